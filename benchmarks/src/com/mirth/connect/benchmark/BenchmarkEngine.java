@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.benchmark;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+
+import org.apache.commons.io.FileUtils;
+
+import com.mirth.connect.donkey.model.DatabaseConstants;
+import com.mirth.connect.donkey.model.event.Event;
+import com.mirth.connect.donkey.server.Donkey;
+import com.mirth.connect.donkey.server.DonkeyConfiguration;
+import com.mirth.connect.donkey.server.DonkeyConnectionPools;
+import com.mirth.connect.donkey.server.controllers.ControllerFactory;
+import com.mirth.connect.donkey.server.event.EventDispatcher;
+
+/**
+ * Starts the Donkey engine against an embedded Derby database in a temporary directory, so that
+ * the benchmarks that touch the message store run against real JDBC code without any setup.
+ */
+public class BenchmarkEngine {
+
+    public static final String SERVER_ID = "benchmark";
+
+    private File directory;
+
+    public void start(int maxConnections) throws Exception {
+        directory = Files.createTempDirectory("mirth-benchmark").toFile();
+
+        Properties properties = new Properties();
+        properties.setProperty(DatabaseConstants.DATABASE, "derby");
+        properties.setProperty(DatabaseConstants.DATABASE_URL, "jdbc:derby:" + new File(directory, "mirthdb").getAbsolutePath() + ";create=true");
+        properties.setProperty(DatabaseConstants.DATABASE_DRIVER, "org.apache.derby.jdbc.EmbeddedDriver");
+        properties.setProperty(DatabaseConstants.DATABASE_USERNAME, "");
+        properties.setProperty(DatabaseConstants.DATABASE_PASSWORD, "");
+        properties.setProperty(DatabaseConstants.DATABASE_MAX_CONNECTIONS, String.valueOf(maxConnections));
+
+        DonkeyConnectionPools.getInstance().init(properties);
+
+        Donkey.getInstance().startEngine(new DonkeyConfiguration(directory.getAbsolutePath(), properties, null, new EventDispatcher() {
+            @Override
+            public void dispatchEvent(Event event) {}
+        }, SERVER_ID));
+    }
+
+    /**
+     * Creates the message tables for the given channel if they don't exist yet.
+     */
+    public void createChannel(String channelId) {
+        ControllerFactory.getFactory().createChannelController().initChannelStorage(channelId);
+    }
+
+    /**
+     * Returns the number of messages stored for the given channel and the total number of characters
+     * of content stored for them.
+     */
+    public long[] getStoredContentSize(String channelId) throws SQLException {
+        long localChannelId = ControllerFactory.getFactory().createChannelController().getLocalChannelId(channelId);
+
+        try (Connection connection = DonkeyConnectionPools.getInstance().getConnectionPool().getDataSource().getConnection(); Statement statement = connection.createStatement(); ResultSet resultSet = statement.executeQuery("SELECT COUNT(*), SUM(LENGTH(CONTENT)) FROM D_MC" + localChannelId)) {
+            resultSet.next();
+            return new long[] { resultSet.getLong(1), resultSet.getLong(2) };
+        }
+    }
+
+    public void stop() throws Exception {
+        Donkey.getInstance().stopEngine();
+
+        try {
+            DriverManager.getConnection("jdbc:derby:;shutdown=true");
+        } catch (SQLException e) {
+            // Derby always reports a successful shutdown as an exception
+        }
+
+        FileUtils.deleteQuietly(directory);
+    }
+}
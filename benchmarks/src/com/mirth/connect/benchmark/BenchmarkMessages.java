@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.benchmark;
+
+/**
+ * Generates the messages used by the benchmarks. Each message has a fixed header and a given number
+ * of repeated records, so that the same benchmark can be run against small and large messages
+ * without shipping sample files.
+ */
+public class BenchmarkMessages {
+
+    private BenchmarkMessages() {}
+
+    /**
+     * An HL7 v2.5 ADT^A01 with the given number of OBX segments.
+     */
+    public static String hl7v2(int observations) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("MSH|^~\\&|LAB|FACILITY|EHR|HOSPITAL|20240101120000||ADT^A01^ADT_A01|MSG00001|P|2.5\r");
+        builder.append("EVN|A01|20240101120000\r");
+        builder.append("PID|1||123456^^^HOSP^MR||DOE^JOHN^Q^JR||19700101|M|||123 MAIN ST^^ANYTOWN^CA^90210^USA||(555)555-1234|||S||123456789|987-65-4321\r");
+        builder.append("PV1|1|I|2000^2012^01||||004777^ATTEND^AARON^A|||SUR||||ADM|A0|\r");
+
+        for (int i = 1; i <= observations; i++) {
+            builder.append("OBX|").append(i).append("|NM|2345-7^GLUCOSE^LN||").append(80 + i % 40).append("|mg/dL^mg/dL^UCUM|70-99|N|||F|||20240101120000\r");
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * A comma delimited file with a header row and the given number of records.
+     */
+    public static String delimited(int records) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("id,last_name,first_name,birth_date,gender,address,city,state,zip\n");
+
+        for (int i = 1; i <= records; i++) {
+            builder.append(i).append(",DOE,JOHN,19700101,M,\"").append(i).append(" MAIN ST, APT 4\",ANYTOWN,CA,90210\n");
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * An X12 837 professional claim with the given number of service lines.
+     */
+    public static String x12(int serviceLines) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("ISA*00*          *00*          *ZZ*SUBMITTER      *ZZ*RECEIVER       *240101*1200*^*00501*000000001*0*P*:~");
+        builder.append("GS*HC*SUBMITTER*RECEIVER*20240101*1200*1*X*005010X222A1~");
+        builder.append("ST*837*0001*005010X222A1~");
+        builder.append("BHT*0019*00*0123*20240101*1200*CH~");
+        builder.append("NM1*41*2*BILLING CLINIC*****46*TGJ23~");
+        builder.append("NM1*IL*1*DOE*JOHN****MI*123456789~");
+        builder.append("CLM*26463774*100***11:B:1*Y*A*Y*I~");
+        builder.append("HI*BK:0340*BF:V7389~");
+
+        for (int i = 1; i <= serviceLines; i++) {
+            builder.append("LX*").append(i).append("~");
+            builder.append("SV1*HC:99213*40*UN*1***1~");
+            builder.append("DTP*472*D8*20240101~");
+        }
+
+        builder.append("SE*").append(7 + serviceLines * 3).append("*0001~");
+        builder.append("GE*1*1~");
+        builder.append("IEA*1*000000001~");
+        return builder.toString();
+    }
+
+    /**
+     * An NCPDP D.0 billing request with the given number of transactions, up to four.
+     */
+    public static String ncpdp(int transactions) {
+        char segment = 0x1E;
+        char group = 0x1D;
+        char field = 0x1C;
+
+        StringBuilder builder = new StringBuilder();
+        builder.append("610066D0B1PCN1234567").append(transactions).append("011234567890     20240101SOFTWARE01");
+        builder.append(segment).append(field).append("AM04").append(field).append("C2123456789").append(field).append("CCJOHN").append(field).append("CDDOE");
+        builder.append(segment).append(field).append("AM01").append(field).append("C419700101").append(field).append("C51");
+
+        for (int i = 1; i <= transactions; i++) {
+            builder.append(group).append(segment).append(field).append("AM07").append(field).append("EM1").append(field).append("D2").append(1000000 + i).append(field).append("E103").append(field).append("D700006073554").append(field).append("E730000").append(field).append("D530");
+            builder.append(segment).append(field).append("AM11").append(field).append("D9100{").append(field).append("DC50{").append(field).append("DQ150{").append(field).append("DU150{");
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * A JSON document with the given number of entries in an array of patients.
+     */
+    public static String json(int records) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("{\"patients\":{\"patient\":[");
+
+        for (int i = 1; i <= records; i++) {
+            if (i > 1) {
+                builder.append(',');
+            }
+
+            builder.append("{\"id\":\"").append(i).append("\",\"name\":{\"family\":\"DOE\",\"given\":\"JOHN\"},\"birthDate\":\"19700101\",\"gender\":\"M\",\"address\":{\"line\":\"").append(i).append(" MAIN ST\",\"city\":\"ANYTOWN\",\"state\":\"CA\",\"zip\":\"90210\"}}");
+        }
+
+        builder.append("]}}");
+        return builder.toString();
+    }
+
+    /**
+     * An XML document with the given number of patient elements, in a default namespace.
+     */
+    public static String xml(int records) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("<patients xmlns=\"urn:example:patients\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\">");
+
+        for (int i = 1; i <= records; i++) {
+            builder.append("<patient><id>").append(i).append("</id><name><family>DOE</family><given>JOHN</given></name><birthDate>19700101</birthDate><gender>M</gender><address><line>").append(i).append(" MAIN ST</line><city>ANYTOWN</city><state>CA</state><zip>90210</zip></address></patient>");
+        }
+
+        builder.append("</patients>");
+        return builder.toString();
+    }
+}
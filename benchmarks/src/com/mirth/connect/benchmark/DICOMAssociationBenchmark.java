@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.benchmark;
+
+import java.io.File;
+import java.net.ServerSocket;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.dcm4che2.data.BasicDicomObject;
+import org.dcm4che2.data.DicomObject;
+import org.dcm4che2.data.Tag;
+import org.dcm4che2.data.UID;
+import org.dcm4che2.data.VR;
+import org.dcm4che2.io.DicomOutputStream;
+import org.dcm4che2.net.Association;
+import org.dcm4che2.net.NetworkConnection;
+import org.dcm4che2.tool.dcmrcv.DcmRcv;
+import org.dcm4che2.tool.dcmsnd.CustomDimseRSPHandler;
+import org.dcm4che2.tool.dcmsnd.MirthDcmSnd;
+import org.dcm4che2.util.UIDUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mirth.connect.connectors.core.dimse.DICOMConfiguration;
+import com.mirth.connect.connectors.core.dimse.DICOMConnectorProperties;
+import com.mirth.connect.connectors.core.dimse.IDICOMDispatcherProperties;
+import com.mirth.connect.connectors.core.dimse.IDICOMReceiver;
+import com.mirth.connect.connectors.core.dimse.IMirthDcmRcv;
+import com.mirth.connect.connectors.core.dimse.IMirthDcmSnd;
+import com.mirth.connect.connectors.dimse.DICOMAssociationPool;
+import com.mirth.connect.donkey.server.channel.IConnector;
+
+/**
+ * Sends C-STORE requests to a dcm4che2 storage SCP running in the same JVM, the way the DICOM
+ * Sender does with and without an association pool. Without the pool every image negotiates and
+ * releases its own association.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DICOMAssociationBenchmark {
+
+    private static final String KEY = "benchmark";
+
+    @Param({ "1", "512" })
+    public int kilobytes;
+
+    private DcmRcv dcmRcv;
+    private int port;
+    private File file;
+    private DICOMConfiguration configuration = new BenchmarkDICOMConfiguration();
+    private DICOMAssociationPool pool;
+
+    @Setup
+    public void setup() throws Exception {
+        ServerSocket socket = new ServerSocket(0);
+        port = socket.getLocalPort();
+        socket.close();
+
+        dcmRcv = new DcmRcv("DCMRCV");
+        dcmRcv.setHostname("127.0.0.1");
+        dcmRcv.setPort(port);
+        dcmRcv.setDestination("/dev/null");
+        dcmRcv.initTransferCapability();
+        dcmRcv.start();
+
+        file = createFile(kilobytes);
+        pool = new DICOMAssociationPool(60000, 0, "benchmark");
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.close();
+        dcmRcv.stop();
+        file.delete();
+    }
+
+    @Benchmark
+    public int newAssociation() throws Exception {
+        MirthDcmSnd dcmSnd = createDcmSnd();
+
+        try {
+            int status = send(dcmSnd);
+            dcmSnd.close();
+            return status;
+        } finally {
+            dcmSnd.stop();
+        }
+    }
+
+    @Benchmark
+    public int pooledAssociation() throws Exception {
+        MirthDcmSnd dcmSnd = pool.borrow(KEY);
+        if (dcmSnd == null) {
+            dcmSnd = createDcmSnd();
+        }
+
+        int status = send(dcmSnd);
+        pool.release(KEY, dcmSnd);
+        return status;
+    }
+
+    private MirthDcmSnd createDcmSnd() throws Exception {
+        MirthDcmSnd dcmSnd = new MirthDcmSnd(configuration);
+        dcmSnd.setCalledAET("DCMRCV");
+        dcmSnd.setRemoteHost("127.0.0.1");
+        dcmSnd.setRemotePort(port);
+        dcmSnd.start();
+        return dcmSnd;
+    }
+
+    private int send(MirthDcmSnd dcmSnd) throws Exception {
+        dcmSnd.clearFiles();
+        dcmSnd.addFile(file);
+        dcmSnd.openIfNeeded();
+
+        StatusHandler handler = new StatusHandler();
+        dcmSnd.send(handler);
+        return handler.status;
+    }
+
+    /*
+     * A secondary capture image with the given number of kilobytes of pixel data.
+     */
+    private File createFile(int kilobytes) throws Exception {
+        String iuid = UIDUtils.createUID();
+
+        DicomObject dicomObject = new BasicDicomObject();
+        dicomObject.putString(Tag.SOPClassUID, VR.UI, UID.SecondaryCaptureImageStorage);
+        dicomObject.putString(Tag.SOPInstanceUID, VR.UI, iuid);
+        dicomObject.putString(Tag.PatientName, VR.PN, "DOE^JOHN");
+        dicomObject.putString(Tag.PatientID, VR.LO, "123456");
+        dicomObject.putInt(Tag.Rows, VR.US, 32);
+        dicomObject.putInt(Tag.Columns, VR.US, kilobytes * 32);
+        dicomObject.putInt(Tag.BitsAllocated, VR.US, 8);
+        dicomObject.putBytes(Tag.PixelData, VR.OB, new byte[kilobytes * 1024]);
+        dicomObject.initFileMetaInformation(UID.SecondaryCaptureImageStorage, iuid, UID.ExplicitVRLittleEndian);
+
+        File file = File.createTempFile("benchmark", ".dcm");
+        DicomOutputStream dos = new DicomOutputStream(file);
+        try {
+            dos.writeDicomFile(dicomObject);
+        } finally {
+            dos.close();
+        }
+
+        return file;
+    }
+
+    private static class StatusHandler extends CustomDimseRSPHandler {
+
+        private int status = -1;
+
+        @Override
+        public void onDimseRSP(Association as, DicomObject cmd, DicomObject data) {
+            status = cmd.getInt(Tag.Status);
+        }
+    }
+
+    /*
+     * Plain connections without TLS, so that the server's configuration doesn't need to be loaded.
+     */
+    private static class BenchmarkDICOMConfiguration implements DICOMConfiguration {
+
+        @Override
+        public void configureConnectorDeploy(IConnector connector) throws Exception {}
+
+        @Override
+        public Object createNetworkConnection() {
+            return new NetworkConnection();
+        }
+
+        @Override
+        public void configureDcmRcv(IMirthDcmRcv dcmrcv, IDICOMReceiver connector, DICOMConnectorProperties connectorProperties) throws Exception {}
+
+        @Override
+        public void configureDcmSnd(IMirthDcmSnd dcmsnd, IConnector connector, IDICOMDispatcherProperties connectorProperties) throws Exception {}
+
+        @Override
+        public Map<String, Object> getCStoreRequestInformation(Object as) {
+            return new HashMap<String, Object>();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.benchmark;
+
+import java.util.Calendar;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mirth.connect.donkey.model.message.ConnectorMessage;
+import com.mirth.connect.donkey.model.message.Message;
+import com.mirth.connect.donkey.model.message.Status;
+import com.mirth.connect.donkey.server.Donkey;
+import com.mirth.connect.donkey.server.data.DonkeyDao;
+import com.mirth.connect.donkey.server.queue.ConnectorMessageQueueDataSource;
+import com.mirth.connect.donkey.server.queue.DestinationQueue;
+
+/**
+ * Acquires and releases queued messages from several queue threads at once. Released messages
+ * stay queued, so the buffer is refilled from the database each time it runs empty, the same as
+ * when a destination keeps failing to send.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class DestinationQueueBenchmark {
+
+    private static final String CHANNEL_ID = "destinationqueuebenchmark";
+    private static final int QUEUED_MESSAGES = 5000;
+
+    @Param({ "100", "1000" })
+    public int bufferCapacity;
+
+    private BenchmarkEngine engine;
+    private DestinationQueue queue;
+
+    @Setup
+    public void setup() throws Exception {
+        engine = new BenchmarkEngine();
+        engine.start(4);
+        engine.createChannel(CHANNEL_ID);
+
+        DonkeyDao dao = Donkey.getInstance().getDaoFactory().getDao();
+
+        try {
+            for (int i = 0; i < QUEUED_MESSAGES; i++) {
+                long messageId = dao.getNextMessageId(CHANNEL_ID);
+                Calendar receivedDate = Calendar.getInstance();
+
+                Message message = new Message();
+                message.setMessageId(messageId);
+                message.setChannelId(CHANNEL_ID);
+                message.setServerId(BenchmarkEngine.SERVER_ID);
+                message.setReceivedDate(receivedDate);
+                dao.insertMessage(message);
+
+                dao.insertConnectorMessage(new ConnectorMessage(CHANNEL_ID, CHANNEL_ID, messageId, 1, BenchmarkEngine.SERVER_ID, receivedDate, Status.QUEUED), false, false);
+            }
+
+            dao.commit();
+        } finally {
+            dao.close();
+        }
+
+        queue = new DestinationQueue(null, 1, false, null, null);
+        queue.setBufferCapacity(bufferCapacity);
+        queue.setDataSource(new ConnectorMessageQueueDataSource(CHANNEL_ID, BenchmarkEngine.SERVER_ID, 1, Status.QUEUED, false, Donkey.getInstance().getDaoFactory()));
+        queue.updateSize();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        engine.stop();
+    }
+
+    @Benchmark
+    public ConnectorMessage acquireAndRelease() {
+        ConnectorMessage connectorMessage = queue.acquire();
+        queue.release(connectorMessage, false);
+        return connectorMessage;
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.benchmark;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+
+import com.mirth.connect.connectors.doc.PdfRenderer;
+import com.openhtmltopdf.pdfboxout.PdfRendererBuilder;
+
+/**
+ * Renders a 10 page report with a linked stylesheet and logo to PDF, the way the Document Writer
+ * did before and after keeping the renderer's caches between messages. The peak heap used during
+ * each iteration is printed after it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgs = { "-Xmx512m" })
+public class DocumentRenderBenchmark {
+
+    private static final int PAGES = 10;
+    private static final int ROWS_PER_PAGE = 35;
+
+    private File directory;
+    private String html;
+    private PdfRenderer renderer;
+
+    @Setup
+    public void setup() throws Exception {
+        directory = new File(FileUtils.getTempDirectory(), "document-benchmark-" + System.nanoTime());
+        directory.mkdirs();
+
+        File stylesheet = new File(directory, "report.css");
+        FileUtils.writeStringToFile(stylesheet, "body { font-family: sans-serif; font-size: 10pt; }\n" + "h1 { page-break-before: always; font-size: 14pt; }\n" + "table { border-collapse: collapse; width: 100%; }\n" + "th, td { border: 1px solid #999; padding: 2px; }\n" + "th { background-color: #ddd; }\n" + "img { width: 120px; height: 40px; }\n", "UTF-8");
+
+        BufferedImage image = new BufferedImage(240, 80, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, 240, 80);
+        graphics.setColor(Color.BLUE);
+        graphics.drawString("Mirth Connect", 20, 45);
+        graphics.dispose();
+        File logo = new File(directory, "logo.png");
+        ImageIO.write(image, "png", logo);
+
+        StringBuilder builder = new StringBuilder();
+        builder.append("<html><head><link rel=\"stylesheet\" type=\"text/css\" href=\"").append(stylesheet.toURI()).append("\"/></head><body>");
+
+        for (int page = 0; page < PAGES; page++) {
+            builder.append("<h1><img src=\"").append(logo.toURI()).append("\"/> Laboratory Results ").append(page + 1).append("</h1>");
+            builder.append("<p>Patient DOE, JOHN. Collected 2014-01-01 08:00. Results within the reference range unless flagged.</p>");
+            builder.append("<table><tr><th>Test</th><th>Result</th><th>Units</th><th>Range</th><th>Comment</th></tr>");
+
+            for (int row = 0; row < ROWS_PER_PAGE; row++) {
+                builder.append("<tr><td>Observation ").append(row).append("</td><td>").append(row * 1.5).append("</td><td>mg/dL</td><td>0 - 100</td><td>Verified by the laboratory</td></tr>");
+            }
+
+            builder.append("</table>");
+        }
+
+        html = builder.append("</body></html>").toString();
+        renderer = new PdfRenderer(null, 10L * 1024 * 1024);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(directory);
+    }
+
+    @Setup(Level.Iteration)
+    public void resetPeakHeap() {
+        System.gc();
+
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void printPeakHeap() {
+        long peak = 0;
+
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+
+        System.out.println(" peak heap: " + (peak / (1024 * 1024)) + " MB");
+    }
+
+    @Benchmark
+    public void uncachedRender() throws Exception {
+        PdfRendererBuilder builder = new PdfRendererBuilder();
+        builder.useFastMode();
+        builder.withW3cDocument(parse(), "");
+        builder.toStream(NullOutputStream.INSTANCE);
+        builder.run();
+    }
+
+    @Benchmark
+    public void cachedRender() throws Exception {
+        renderer.render(parse(), NullOutputStream.INSTANCE);
+    }
+
+    private Document parse() throws Exception {
+        return DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new InputSource(new StringReader(html)));
+    }
+}
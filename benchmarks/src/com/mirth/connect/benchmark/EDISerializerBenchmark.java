@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.benchmark;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.output.NullWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mirth.connect.model.datatype.SerializerProperties;
+import com.mirth.connect.plugins.datatypes.edi.EDISerializationProperties;
+import com.mirth.connect.plugins.datatypes.edi.EDISerializer;
+
+/**
+ * Converts X12 claims between their EDI and XML forms.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EDISerializerBenchmark {
+
+    @Param({ "10", "5000" })
+    public int serviceLines;
+
+    private EDISerializer serializer;
+    private String message;
+    private String xml;
+
+    @Setup
+    public void setup() throws Exception {
+        serializer = new EDISerializer(new SerializerProperties(new EDISerializationProperties(), null, null));
+        message = BenchmarkMessages.x12(serviceLines);
+        xml = serializer.toXML(message);
+    }
+
+    @Benchmark
+    public String toXml() throws Exception {
+        return serializer.toXML(message);
+    }
+
+    /**
+     * Streams the XML to a writer that discards it, so that only the parsing is measured and the
+     * output is never held in memory.
+     */
+    @Benchmark
+    public void toXmlStreaming() throws Exception {
+        serializer.toXML(new StringReader(message), new NullWriter());
+    }
+
+    @Benchmark
+    public String fromXml() throws Exception {
+        return serializer.fromXML(xml);
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mirth.connect.model.datatype.SerializerProperties;
+import com.mirth.connect.plugins.datatypes.hl7v2.ER7Serializer;
+import com.mirth.connect.plugins.datatypes.hl7v2.HL7v2DeserializationProperties;
+import com.mirth.connect.plugins.datatypes.hl7v2.HL7v2SerializationProperties;
+
+/**
+ * Converts HL7 v2 messages between ER7 and XML.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ER7SerializerBenchmark {
+
+    @Param({ "10", "500" })
+    public int observations;
+
+    private ER7Serializer serializer;
+    private String er7;
+    private String xml;
+
+    @Setup
+    public void setup() throws Exception {
+        serializer = new ER7Serializer(new SerializerProperties(new HL7v2SerializationProperties(), new HL7v2DeserializationProperties(), null));
+        er7 = BenchmarkMessages.hl7v2(observations);
+        xml = serializer.toXML(er7);
+    }
+
+    @Benchmark
+    public String toXml() throws Exception {
+        return serializer.toXML(er7);
+    }
+
+    @Benchmark
+    public String fromXml() throws Exception {
+        return serializer.fromXML(xml);
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.benchmark;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.filefilter.WildcardFileFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mirth.connect.connectors.core.file.filesystems.FileConnection;
+import com.mirth.connect.connectors.core.file.filesystems.FileInfo;
+import com.mirth.connect.connectors.file.FileWatchIndex;
+
+/**
+ * Polls a directory full of files that are waiting to be read, the way the File Reader does when it
+ * lists the directory and when it watches it for changes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileWatchIndexBenchmark {
+
+    @Param({ "1000", "20000" })
+    public int files;
+
+    private File directory;
+    private FileConnection connection;
+    private FileWatchIndex index;
+
+    @Setup
+    public void setup() throws Exception {
+        directory = new File(FileUtils.getTempDirectory(), "file-watch-benchmark-" + System.nanoTime());
+        directory.mkdirs();
+
+        for (int i = 0; i < files; i++) {
+            FileUtils.writeStringToFile(new File(directory, String.format("%05d.hl7", i)), "MSH|^~\\&|" + i, "UTF-8");
+        }
+
+        connection = new FileConnection();
+        index = new FileWatchIndex(directory.getAbsolutePath(), false, new WildcardFileFilter("*.hl7"), true, 60 * 60 * 1000, "benchmark");
+        index.start();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        index.close();
+        FileUtils.deleteDirectory(directory);
+    }
+
+    @Benchmark
+    public List<FileInfo> listDirectory() throws Exception {
+        return connection.listFiles(directory.getAbsolutePath(), "*.hl7", false, true);
+    }
+
+    @Benchmark
+    public List<FileInfo> watchDirectory() throws Exception {
+        return index.getReadyFiles();
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mirth.connect.model.transmission.batch.DefaultBatchStreamReader;
+import com.mirth.connect.model.transmission.framemode.FrameStreamHandler;
+import com.mirth.connect.plugins.mllpmode.MLLPModeProperties;
+import com.mirth.connect.util.TcpUtil;
+
+/**
+ * Reads MLLP framed HL7 messages from a stream, the way the TCP Listener reads each message from
+ * its socket.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FrameStreamHandlerBenchmark {
+
+    @Param({ "10", "500" })
+    public int observations;
+
+    private MLLPModeProperties modeProperties;
+    private ByteArrayInputStream input;
+
+    @Setup
+    public void setup() throws Exception {
+        modeProperties = new MLLPModeProperties();
+
+        ByteArrayOutputStream framed = new ByteArrayOutputStream();
+        framed.write(TcpUtil.stringToByteArray(modeProperties.getStartOfMessageBytes()));
+        framed.write(BenchmarkMessages.hl7v2(observations).getBytes(StandardCharsets.UTF_8));
+        framed.write(TcpUtil.stringToByteArray(modeProperties.getEndOfMessageBytes()));
+
+        input = new ByteArrayInputStream(framed.toByteArray());
+    }
+
+    @Benchmark
+    public byte[] read() throws Exception {
+        input.reset();
+        return new FrameStreamHandler(input, null, new DefaultBatchStreamReader(input), modeProperties).read();
+    }
+}
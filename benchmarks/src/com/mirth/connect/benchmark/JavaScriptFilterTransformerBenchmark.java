@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.benchmark;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.ContextFactory;
+import org.mozilla.javascript.Script;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mirth.connect.model.datatype.SerializerProperties;
+import com.mirth.connect.plugins.datatypes.hl7v2.ER7Serializer;
+import com.mirth.connect.plugins.datatypes.hl7v2.HL7v2DeserializationProperties;
+import com.mirth.connect.plugins.datatypes.hl7v2.HL7v2SerializationProperties;
+
+/**
+ * Runs a typical HL7 v2 filter and mapper script the way a filter/transformer does: the script is
+ * compiled once, and each message gets a new scope on top of a sealed shared scope, with the
+ * inbound message parsed into E4X.
+ * 
+ * The script has the same shape as the one JavaScriptBuilder generates, but is built here because
+ * generating and running the real one needs the server controllers. The context checks the
+ * instruction count on every instruction, the same as MirthContext does so that scripts can be
+ * halted.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JavaScriptFilterTransformerBenchmark {
+
+    private static final String SCRIPT = "function doScript() {\n" //
+            + "msg = new XML(transformedData);\n" //
+            + "if (msg.namespace('') != undefined) { default xml namespace = msg.namespace(''); } else { default xml namespace = ''; }\n" //
+            + "tmp = new XML('<patient><id/><name/><birthDate/><results/></patient>');\n" //
+            + "function doFilter() { return msg['MSH']['MSH.9']['MSH.9.1'].toString() == 'ADT'; }\n" //
+            + "function doTransform() {\n" //
+            + "  tmp['id'] = msg['PID']['PID.3']['PID.3.1'].toString();\n" //
+            + "  tmp['name'] = msg['PID']['PID.5']['PID.5.2'].toString() + ' ' + msg['PID']['PID.5']['PID.5.1'].toString();\n" //
+            + "  tmp['birthDate'] = msg['PID']['PID.7']['PID.7.1'].toString();\n" //
+            + "  for each (var obx in msg['OBX']) {\n" //
+            + "    var result = new XML('<result/>');\n" //
+            + "    result.@code = obx['OBX.3']['OBX.3.1'].toString();\n" //
+            + "    result.@value = obx['OBX.5']['OBX.5.1'].toString();\n" //
+            + "    tmp['results'].appendChild(result);\n" //
+            + "  }\n" //
+            + "  channelMap.put('patientId', tmp['id'].toString());\n" //
+            + "}\n" //
+            + "if (doFilter() == true) { doTransform(); return tmp.toXMLString(); } else { return null; }\n" //
+            + "}\n" //
+            + "doScript();\n";
+
+    @Param({ "10", "500" })
+    public int observations;
+
+    private ContextFactory contextFactory;
+    private ScriptableObject sharedScope;
+    private Script script;
+    private String transformedData;
+
+    @Setup
+    public void setup() throws Exception {
+        contextFactory = new ContextFactory() {
+            @Override
+            protected Context makeContext() {
+                Context context = super.makeContext();
+                context.setInstructionObserverThreshold(1);
+                return context;
+            }
+
+            @Override
+            protected void observeInstructionCount(Context context, int instructionCount) {}
+        };
+
+        Context context = contextFactory.enterContext();
+
+        try {
+            sharedScope = context.initStandardObjects(null, true);
+            sharedScope.sealObject();
+            script = context.compileString(SCRIPT, "benchmark", 1, null);
+        } finally {
+            Context.exit();
+        }
+
+        transformedData = new ER7Serializer(new SerializerProperties(new HL7v2SerializationProperties(), new HL7v2DeserializationProperties(), null)).toXML(BenchmarkMessages.hl7v2(observations));
+    }
+
+    @Benchmark
+    public Object filterTransform() {
+        Context context = contextFactory.enterContext();
+
+        try {
+            Scriptable scope = context.newObject(sharedScope);
+            scope.setPrototype(sharedScope);
+            scope.setParentScope(null);
+
+            ScriptableObject.putProperty(scope, "transformedData", transformedData);
+            ScriptableObject.putProperty(scope, "channelMap", Context.javaToJS(new HashMap<String, Object>(), scope));
+
+            return script.exec(context, scope);
+        } finally {
+            Context.exit();
+        }
+    }
+}
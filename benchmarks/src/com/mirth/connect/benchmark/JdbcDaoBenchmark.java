@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.benchmark;
+
+import java.util.Calendar;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mirth.connect.donkey.model.message.ConnectorMessage;
+import com.mirth.connect.donkey.model.message.ContentType;
+import com.mirth.connect.donkey.model.message.Message;
+import com.mirth.connect.donkey.model.message.MessageContent;
+import com.mirth.connect.donkey.model.message.Status;
+import com.mirth.connect.donkey.server.Donkey;
+import com.mirth.connect.donkey.server.data.DonkeyDao;
+import com.mirth.connect.donkey.server.data.DonkeyDaoFactory;
+
+/**
+ * Stores received messages through the JDBC message store on an embedded Derby database, doing the
+ * same inserts as a source connector does for each message it receives. Each size is run with and
+ * without content compression, and the average stored content size is printed at the end of each
+ * run so the storage saved can be weighed against the insert time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JdbcDaoBenchmark {
+
+    private static final String CHANNEL_ID = "jdbcdaobenchmark";
+
+    @Param({ "10", "500" })
+    public int observations;
+
+    @Param({ "false", "true" })
+    public boolean compressed;
+
+    private BenchmarkEngine engine;
+    private DonkeyDaoFactory daoFactory;
+    private String message;
+
+    @Setup
+    public void setup() throws Exception {
+        engine = new BenchmarkEngine();
+        engine.start(4);
+        engine.createChannel(CHANNEL_ID);
+
+        daoFactory = Donkey.getInstance().getDaoFactory();
+        daoFactory.setCompressMessageContent(compressed);
+        message = BenchmarkMessages.hl7v2(observations);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        try {
+            long[] size = engine.getStoredContentSize(CHANNEL_ID);
+
+            if (size[0] > 0) {
+                System.out.println("Stored content (compressed=" + compressed + "): " + (size[1] / size[0]) + " / " + message.length() + " characters per message");
+            }
+        } finally {
+            engine.stop();
+        }
+    }
+
+    @Benchmark
+    public long insertReceivedMessage() {
+        DonkeyDao dao = daoFactory.getDao();
+
+        try {
+            long messageId = dao.getNextMessageId(CHANNEL_ID);
+            Calendar receivedDate = Calendar.getInstance();
+
+            Message sourceMessage = new Message();
+            sourceMessage.setMessageId(messageId);
+            sourceMessage.setChannelId(CHANNEL_ID);
+            sourceMessage.setServerId(BenchmarkEngine.SERVER_ID);
+            sourceMessage.setReceivedDate(receivedDate);
+            dao.insertMessage(sourceMessage);
+
+            dao.insertConnectorMessage(new ConnectorMessage(CHANNEL_ID, CHANNEL_ID, messageId, 0, BenchmarkEngine.SERVER_ID, receivedDate, Status.RECEIVED), false, true);
+            dao.insertMessageContent(new MessageContent(CHANNEL_ID, messageId, 0, ContentType.RAW, message, "HL7V2", false));
+            dao.commit();
+
+            return messageId;
+        } finally {
+            dao.close();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.jms.Connection;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.Session;
+
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reads a queue on an embedded ActiveMQ broker the way the JMS Listener does: one client
+ * acknowledge session and thread per consumer, a few milliseconds of processing per message, and
+ * acknowledgements sent every message or once per batch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JmsConsumerBenchmark {
+
+    private static final String BROKER_URL = "vm://jmsConsumerBenchmark?broker.persistent=false&broker.useJmx=false&jms.prefetchPolicy.queuePrefetch=1";
+    private static final int MESSAGES = 100;
+    private static final int PROCESSING_TIME = 5;
+
+    @Param({ "1", "2", "4" })
+    public int consumers;
+
+    @Param({ "1", "10" })
+    public int acknowledgeBatchSize;
+
+    private Connection connection;
+    private Session session;
+    private Queue queue;
+
+    @Setup
+    public void setup() throws Exception {
+        connection = new ActiveMQConnectionFactory(BROKER_URL).createConnection();
+        connection.start();
+        session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        queue = session.createQueue("benchmark");
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        connection.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public void receive() throws Exception {
+        MessageProducer producer = session.createProducer(queue);
+        for (int i = 0; i < MESSAGES; i++) {
+            producer.send(session.createTextMessage(String.valueOf(i)));
+        }
+        producer.close();
+
+        final AtomicInteger remaining = new AtomicInteger(MESSAGES);
+        List<Thread> threads = new ArrayList<Thread>();
+
+        for (int i = 0; i < consumers; i++) {
+            final Session consumerSession = connection.createSession(false, Session.CLIENT_ACKNOWLEDGE);
+            final MessageConsumer consumer = consumerSession.createConsumer(queue);
+
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        consume(consumer, remaining);
+                        consumerSession.close();
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            }, "Benchmark JMS Consumer " + i);
+            threads.add(thread);
+            thread.start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    private void consume(MessageConsumer consumer, AtomicInteger remaining) throws Exception {
+        Message unacknowledged = null;
+        int unacknowledgedCount = 0;
+
+        while (remaining.get() > 0) {
+            Message message = consumer.receive(10);
+
+            if (message != null) {
+                Thread.sleep(PROCESSING_TIME);
+                remaining.decrementAndGet();
+
+                unacknowledged = message;
+                if (++unacknowledgedCount >= acknowledgeBatchSize) {
+                    message.acknowledge();
+                    unacknowledged = null;
+                    unacknowledgedCount = 0;
+                }
+            }
+        }
+
+        if (unacknowledged != null) {
+            unacknowledged.acknowledge();
+        }
+    }
+}
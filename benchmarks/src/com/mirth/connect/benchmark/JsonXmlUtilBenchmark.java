@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mirth.connect.util.JsonXmlUtil;
+
+/**
+ * Converts documents between JSON and XML, as the JSON data type and the JSON script helpers do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonXmlUtilBenchmark {
+
+    @Param({ "10", "1000" })
+    public int records;
+
+    private String json;
+    private String xml;
+
+    @Setup
+    public void setup() throws Exception {
+        json = BenchmarkMessages.json(records);
+        xml = JsonXmlUtil.jsonToXml(json);
+    }
+
+    @Benchmark
+    public String jsonToXml() throws Exception {
+        return JsonXmlUtil.jsonToXml(json);
+    }
+
+    @Benchmark
+    public String xmlToJson() throws Exception {
+        return JsonXmlUtil.xmlToJson(xml);
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import javax.mail.Message;
+import javax.mail.Session;
+import javax.mail.Transport;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mirth.connect.connectors.smtp.SmtpTransportPool;
+
+/**
+ * Sends emails to an SMTP server running in the same JVM, the way the SMTP Sender does with and
+ * without a connection pool. Without the pool every email connects and says EHLO again.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SmtpTransportBenchmark {
+
+    private static final String KEY = "benchmark";
+
+    private ServerSocket serverSocket;
+    private Session session;
+    private MimeMessage message;
+    private SmtpTransportPool pool;
+
+    @Setup
+    public void setup() throws Exception {
+        serverSocket = new ServerSocket(0);
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                acceptConnections();
+            }
+        }, "Benchmark SMTP Server");
+        thread.setDaemon(true);
+        thread.start();
+
+        Properties properties = new Properties();
+        properties.setProperty("mail.transport.protocol", "smtp");
+        properties.setProperty("mail.smtp.host", "127.0.0.1");
+        properties.setProperty("mail.smtp.port", String.valueOf(serverSocket.getLocalPort()));
+        properties.setProperty("mail.smtp.timeout", "5000");
+        session = Session.getInstance(properties);
+
+        message = new MimeMessage(session);
+        message.setFrom(new InternetAddress("sender@example.com"));
+        message.setRecipient(Message.RecipientType.TO, new InternetAddress("recipient@example.com"));
+        message.setSubject("Benchmark");
+        message.setText("Benchmark message");
+        message.saveChanges();
+
+        pool = new SmtpTransportPool(60000, 0, "benchmark");
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        pool.close();
+        serverSocket.close();
+    }
+
+    @Benchmark
+    public void newConnection() throws Exception {
+        Transport transport = session.getTransport();
+        transport.connect();
+
+        try {
+            transport.sendMessage(message, message.getAllRecipients());
+        } finally {
+            transport.close();
+        }
+    }
+
+    @Benchmark
+    public void pooledConnection() throws Exception {
+        Transport transport = pool.borrow(KEY);
+        if (transport == null) {
+            transport = session.getTransport();
+            transport.connect();
+        }
+
+        transport.sendMessage(message, message.getAllRecipients());
+        pool.release(KEY, transport);
+    }
+
+    private void acceptConnections() {
+        while (!serverSocket.isClosed()) {
+            try {
+                final Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+
+                Thread thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        handle(socket);
+                    }
+                }, "Benchmark SMTP Connection");
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                // Stopped
+            }
+        }
+    }
+
+    /*
+     * Accepts every message without storing it, enough of SMTP for javax.mail to send to.
+     */
+    private void handle(Socket socket) {
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            OutputStream out = socket.getOutputStream();
+            reply(out, "220 localhost ESMTP");
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String command = line.length() >= 4 ? line.substring(0, 4).toUpperCase() : line.toUpperCase();
+
+                if (command.equals("EHLO")) {
+                    reply(out, "250-localhost\r\n250 8BITMIME");
+                } else if (command.equals("DATA")) {
+                    reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                    while ((line = reader.readLine()) != null && !line.equals(".")) {}
+                    reply(out, "250 OK");
+                } else if (command.equals("QUIT")) {
+                    reply(out, "221 Bye");
+                    break;
+                } else {
+                    reply(out, "250 OK");
+                }
+            }
+        } catch (IOException e) {
+            // Closed by the client
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException e) {}
+        }
+    }
+
+    private void reply(OutputStream out, String reply) throws IOException {
+        out.write((reply + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+}
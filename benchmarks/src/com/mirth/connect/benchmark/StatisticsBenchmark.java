@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mirth.connect.donkey.model.message.Status;
+import com.mirth.connect.donkey.server.channel.Statistics;
+
+/**
+ * Updates the in-memory channel statistics from several threads at once, the way source and
+ * destination threads of busy channels do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class StatisticsBenchmark {
+
+    @Param({ "1", "20" })
+    public int channels;
+
+    private Statistics statistics;
+    private String[] channelIds;
+
+    @Setup
+    public void setup() {
+        statistics = new Statistics(null, false);
+        channelIds = new String[channels];
+
+        for (int i = 0; i < channels; i++) {
+            channelIds[i] = "channel" + i;
+        }
+    }
+
+    @Benchmark
+    public void receive() {
+        statistics.update(nextChannelId(), 0, Status.RECEIVED, null);
+    }
+
+    /**
+     * Moves a message from queued to sent, which takes the slower path for the decremented status.
+     */
+    @Benchmark
+    public void send() {
+        String channelId = nextChannelId();
+        statistics.update(channelId, 1, Status.QUEUED, null);
+        statistics.update(channelId, 1, Status.SENT, Status.QUEUED);
+    }
+
+    private String nextChannelId() {
+        return channelIds[channels == 1 ? 0 : ThreadLocalRandom.current().nextInt(channels)];
+    }
+}
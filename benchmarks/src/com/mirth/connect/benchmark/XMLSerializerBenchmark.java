@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mirth.connect.model.datatype.SerializerProperties;
+import com.mirth.connect.plugins.datatypes.xml.XMLSerializationProperties;
+import com.mirth.connect.plugins.datatypes.xml.XMLSerializer;
+
+/**
+ * Serializes XML messages, which only strips namespaces when that is enabled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class XMLSerializerBenchmark {
+
+    @Param({ "10", "1000" })
+    public int records;
+
+    @Param({ "true", "false" })
+    public boolean stripNamespaces;
+
+    private XMLSerializer serializer;
+    private String xml;
+
+    @Setup
+    public void setup() {
+        XMLSerializationProperties serializationProperties = new XMLSerializationProperties();
+        serializationProperties.setStripNamespaces(stripNamespaces);
+
+        serializer = new XMLSerializer(new SerializerProperties(serializationProperties, null, null));
+        xml = BenchmarkMessages.xml(records);
+    }
+
+    @Benchmark
+    public String toXml() throws Exception {
+        return serializer.toXML(xml);
+    }
+}
@@ -825,6 +825,7 @@ public class ChannelSetup extends ChannelSetupBase {
         encryptMessagesCheckBox.setSelected(properties.isEncryptMessageContent());
         encryptAttachmentsCheckBox.setSelected(properties.isEncryptAttachments());
         encryptCustomMetaDataCheckBox.setSelected(properties.isEncryptCustomMetaData());
+        compressMessagesCheckBox.setSelected(properties.isCompressMessageContent());
 
         // Fix dataTypes and properties not set by previous versions of Mirth Connect
         fixNullDataTypesAndProperties();
@@ -985,6 +986,7 @@ public class ChannelSetup extends ChannelSetupBase {
                 durableStatusLabel.setForeground(new Color(0, 130, 0));
                 messageStorageProgressBar.setValue(20);
                 encryptMessagesCheckBox.setEnabled(true);
+                compressMessagesCheckBox.setEnabled(true);
                 encryptAttachmentsCheckBox.setEnabled(true);
                 encryptCustomMetaDataCheckBox.setEnabled(true);
                 removeContentCheckBox.setEnabled(true);
@@ -1000,6 +1002,7 @@ public class ChannelSetup extends ChannelSetupBase {
                 durableStatusLabel.setForeground(new Color(0, 130, 0));
                 messageStorageProgressBar.setValue(25);
                 encryptMessagesCheckBox.setEnabled(true);
+                compressMessagesCheckBox.setEnabled(true);
                 encryptAttachmentsCheckBox.setEnabled(true);
                 encryptCustomMetaDataCheckBox.setEnabled(true);
                 removeContentCheckBox.setEnabled(true);
@@ -1015,6 +1018,7 @@ public class ChannelSetup extends ChannelSetupBase {
                 durableStatusLabel.setForeground(new Color(255, 102, 0));
                 messageStorageProgressBar.setValue(60);
                 encryptMessagesCheckBox.setEnabled(true);
+                compressMessagesCheckBox.setEnabled(true);
                 encryptAttachmentsCheckBox.setEnabled(true);
                 encryptCustomMetaDataCheckBox.setEnabled(true);
                 removeContentCheckBox.setEnabled(true);
@@ -1030,6 +1034,7 @@ public class ChannelSetup extends ChannelSetupBase {
                 durableStatusLabel.setForeground(new Color(130, 0, 0));
                 messageStorageProgressBar.setValue(65);
                 encryptMessagesCheckBox.setEnabled(false);
+                compressMessagesCheckBox.setEnabled(false);
                 encryptAttachmentsCheckBox.setEnabled(false);
                 encryptCustomMetaDataCheckBox.setEnabled(true);
                 removeContentCheckBox.setEnabled(false);
@@ -1045,6 +1050,7 @@ public class ChannelSetup extends ChannelSetupBase {
                 durableStatusLabel.setForeground(new Color(130, 0, 0));
                 messageStorageProgressBar.setValue(100);
                 encryptMessagesCheckBox.setEnabled(false);
+                compressMessagesCheckBox.setEnabled(false);
                 encryptAttachmentsCheckBox.setEnabled(false);
                 encryptCustomMetaDataCheckBox.setEnabled(false);
                 removeContentCheckBox.setEnabled(false);
@@ -1060,6 +1066,9 @@ public class ChannelSetup extends ChannelSetupBase {
         if (encryptAttachmentsCheckBox.isEnabled() && encryptAttachmentsCheckBox.isSelected()) {
             messageStorageProgressBar.setValue(messageStorageProgressBar.getValue() - 3);
         }
+        if (compressMessagesCheckBox.isEnabled() && compressMessagesCheckBox.isSelected()) {
+            messageStorageProgressBar.setValue(messageStorageProgressBar.getValue() - 2);
+        }
 
         // if the "remove content on completion" option is enabled, subtract a percentage from the progress bar
         if (removeContentCheckBox.isEnabled() && removeContentCheckBox.isSelected()) {
@@ -1308,6 +1317,7 @@ public class ChannelSetup extends ChannelSetupBase {
         currentChannel.getProperties().setEncryptMessageContent(encryptMessagesCheckBox.isSelected());
         currentChannel.getProperties().setEncryptAttachments(encryptAttachmentsCheckBox.isSelected());
         currentChannel.getProperties().setEncryptCustomMetaData(encryptCustomMetaDataCheckBox.isSelected());
+        currentChannel.getProperties().setCompressMessageContent(compressMessagesCheckBox.isSelected());
         currentChannel.getProperties().setInitialState((DeployedState) initialStateComboBox.getSelectedItem());
         currentChannel.getProperties().setStoreAttachments(attachmentStoreCheckBox.isSelected());
 
@@ -1395,6 +1405,7 @@ public class ChannelSetup extends ChannelSetupBase {
         properties.setEncryptMessageContent(encryptMessagesCheckBox.isSelected());
         properties.setEncryptAttachments(encryptAttachmentsCheckBox.isSelected());
         properties.setEncryptCustomMetaData(encryptCustomMetaDataCheckBox.isSelected());
+        properties.setCompressMessageContent(compressMessagesCheckBox.isSelected());
         properties.setRemoveContentOnCompletion(removeContentCheckBox.isSelected());
         properties.setRemoveOnlyFilteredOnCompletion(removeOnlyFilteredCheckBox.isSelected());
         properties.setRemoveAttachmentsOnCompletion(removeAttachmentsCheckBox.isSelected());
@@ -2079,6 +2090,15 @@ public class ChannelSetup extends ChannelSetupBase {
             }
         });
 
+        compressMessagesCheckBox = new MirthCheckBox("Compress message content");
+        compressMessagesCheckBox.setBackground(messageStoragePanel.getBackground());
+        compressMessagesCheckBox.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent evt) {
+                encryptMessagesCheckBoxActionPerformed(evt);
+            }
+        });
+
         removeContentCheckBox = new MirthCheckBox("Remove content on completion");
         removeContentCheckBox.setBackground(messageStoragePanel.getBackground());
         removeContentCheckBox.addActionListener(new ActionListener() {
@@ -2501,6 +2521,7 @@ public class ChannelSetup extends ChannelSetupBase {
         encryptMessagesCheckBox.setToolTipText("<html>Encrypt message content that is stored in the database. Messages that<br>are stored while this option is enabled will still be viewable in the<br>message browser, but the content will not be searchable.</html>");
         encryptAttachmentsCheckBox.setToolTipText("<html>Encrypt message attachments that are stored in the database.<br>Attachments that are stored while this option is enabled<br>will still be viewable in the message browser.</html>");
         encryptCustomMetaDataCheckBox.setToolTipText("<html>Encrypt custom metadata columns that are stored in the database.<br/>Custom metadata values that are stored while this option is<br/>enabled will still be viewable in the message browser, but<br/>the metadata will not be searchable.<br/><br/>This will only apply to STRING type custom metadata columns.</html>");
+        compressMessagesCheckBox.setToolTipText("<html>Compress message content before it is stored in the database. Messages that<br>are stored while this option is enabled will still be viewable in the<br>message browser, but the content will not be searchable.</html>");
         removeContentCheckBox.setToolTipText("<html>Remove message content once the message has completed processing.<br/>Not applicable for messages that are errored or queued.</html>");
         removeAttachmentsCheckBox.setToolTipText("<html>Remove message attachments once the message has completed processing.<br/>Not applicable for messages that are errored or queued.</html>");
         removeOnlyFilteredCheckBox.setToolTipText("<html>If checked, only content for filtered connector messages will be removed.</html>");
@@ -2548,6 +2569,7 @@ public class ChannelSetup extends ChannelSetupBase {
         messageStoragePanel.add(encryptMessagesCheckBox, "newline, split 3");
         messageStoragePanel.add(encryptAttachmentsCheckBox);
         messageStoragePanel.add(encryptCustomMetaDataCheckBox);
+        messageStoragePanel.add(compressMessagesCheckBox, "newline");
         messageStoragePanel.add(removeContentCheckBox, "newline, split 2");
         messageStoragePanel.add(removeOnlyFilteredCheckBox);
         messageStoragePanel.add(removeAttachmentsCheckBox, "newline");
@@ -3446,6 +3468,7 @@ public class ChannelSetup extends ChannelSetupBase {
     private MirthCheckBox encryptMessagesCheckBox;
     private MirthCheckBox encryptAttachmentsCheckBox;
     private MirthCheckBox encryptCustomMetaDataCheckBox;
+    private MirthCheckBox compressMessagesCheckBox;
     private MirthCheckBox removeContentCheckBox;
     private MirthCheckBox removeOnlyFilteredCheckBox;
     private MirthCheckBox removeAttachmentsCheckBox;
@@ -62,6 +62,7 @@ import javax.swing.table.DefaultTableCellRenderer;
 import javax.swing.table.TableColumn;
 import javax.swing.text.DateFormatter;
 
+import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.math.NumberUtils;
 import org.apache.logging.log4j.LogManager;
@@ -104,6 +105,7 @@ import com.mirth.connect.donkey.model.message.Response;
 import com.mirth.connect.donkey.model.message.Status;
 import com.mirth.connect.donkey.model.message.attachment.Attachment;
 import com.mirth.connect.donkey.util.Serializer;
+import com.mirth.connect.model.ChannelStatus;
 import com.mirth.connect.model.converters.ObjectXMLSerializer;
 import com.mirth.connect.model.filters.MessageFilter;
 import com.mirth.connect.model.filters.elements.ContentSearchElement;
@@ -663,6 +665,13 @@ public class MessageBrowser extends MessageBrowserBase {
         advancedSearchPopup.applySelectionsToFilter(messageFilter);
         selectedMetaDataIds = messageFilter.getIncludedMetaDataIds();
 
+        // Content searches use SQL LIKE, which can never match compressed content
+        if ((messageFilter.getTextSearch() != null || CollectionUtils.isNotEmpty(messageFilter.getContentSearch())) && isMessageContentCompressed()) {
+            if (!parent.alertOption(this, "<html>This channel compresses its message content, and compressed content cannot be matched by a content search.<br/>Only content stored before compression was enabled, or too small to be compressed, will be searched.<br/>Are you sure you want to proceed?</html>")) {
+                return false;
+            }
+        }
+
         if (messageFilter.getMaxMessageId() == null) {
             try {
                 Long maxMessageId = parent.getClient().getMaxMessageId(channelId);
@@ -676,6 +685,11 @@ public class MessageBrowser extends MessageBrowserBase {
         return true;
     }
 
+    private boolean isMessageContentCompressed() {
+        ChannelStatus channelStatus = parent.channelPanel.getCachedChannelStatuses().get(channelId);
+        return channelStatus != null && channelStatus.getChannel().getProperties().isCompressMessageContent();
+    }
+
     protected void runSearch() {
         if (generateMessageFilter()) {
             updateFilterButtonFont(Font.PLAIN);
@@ -1116,6 +1130,8 @@ public class MessageBrowser extends MessageBrowserBase {
             return ResponseTransformedRadioButton;
         } else if (messagePaneName.equals("Processed Response")) {
             return ProcessedResponseRadioButton;
+        } else if (messagePaneName.equals("Trace")) {
+            return TraceRadioButton;
         } else {
             return null;
         }
@@ -1674,6 +1690,8 @@ public class MessageBrowser extends MessageBrowserBase {
         ProcessedResponseTextArea.setText(text != null ? text : "Select a message to view the processed response message.");
         processedResponseStatusTextArea.setText("");
         processedResponseStatusTextArea.setCaretPosition(0);
+        TraceTextPane.setDocument(new SyntaxDocument());
+        TraceTextPane.setText(text != null ? text : "Select a message to view the trace.");
         ProcessingErrorTextPane.setDocument(new SyntaxDocument());
         ProcessingErrorTextPane.setText(text != null ? text : "Select a message to view any errors.");
         ResponseErrorTextPane.setDocument(new SyntaxDocument());
@@ -1969,6 +1987,7 @@ public class MessageBrowser extends MessageBrowserBase {
         MessageContent responseMessage = connectorMessage.getResponse();
         MessageContent responseTransformedMessage = connectorMessage.getResponseTransformed();
         MessageContent processedResponseMessage = connectorMessage.getProcessedResponse();
+        MessageContent traceMessage = connectorMessage.getTraceContent();
 
         MessagesRadioPane.removeAll();
 
@@ -2077,6 +2096,13 @@ public class MessageBrowser extends MessageBrowserBase {
 
         }
         setCorrectDocument(ProcessedResponseTextArea, content, dataType);
+
+        content = (traceMessage == null) ? null : traceMessage.getContent();
+        if (content != null) {
+            MessagesRadioPane.add(TraceRadioButton);
+
+        }
+        setCorrectDocument(TraceTextPane, content, null);
     }
 
     /**
@@ -2266,6 +2292,8 @@ public class MessageBrowser extends MessageBrowserBase {
                     content = connectorMessage.getResponseTransformed();
                 } else if (messagePaneName.equals("Processed Response")) {
                     content = connectorMessage.getProcessedResponse();
+                } else if (messagePaneName.equals("Trace")) {
+                    content = connectorMessage.getTraceContent();
                 }
 
                 if (content != null && StringUtils.isNotEmpty(content.getContent())) {
@@ -2346,6 +2374,7 @@ public class MessageBrowser extends MessageBrowserBase {
         ResponseRadioButton = new javax.swing.JRadioButton();
         ResponseTransformedRadioButton = new javax.swing.JRadioButton();
         ProcessedResponseRadioButton = new javax.swing.JRadioButton();
+        TraceRadioButton = new javax.swing.JRadioButton();
         MessagesCardPane = new javax.swing.JPanel();
         RawMessageTextPane = new com.mirth.connect.client.ui.components.MirthSyntaxTextArea();
         ProcessedRawMessageTextPane = new com.mirth.connect.client.ui.components.MirthSyntaxTextArea();
@@ -2363,6 +2392,7 @@ public class MessageBrowser extends MessageBrowserBase {
         processedResponseStatusLabel = new javax.swing.JLabel();
         processedResponseLabel = new javax.swing.JLabel();
         processedResponseStatusTextArea = new com.mirth.connect.client.ui.components.MirthSyntaxTextArea();
+        TraceTextPane = new com.mirth.connect.client.ui.components.MirthSyntaxTextArea();
         formatMessageCheckBox = new javax.swing.JCheckBox();
         mappingsPane = new javax.swing.JScrollPane();
         mappingsTable = null;
@@ -2544,6 +2574,18 @@ public class MessageBrowser extends MessageBrowserBase {
         });
         MessagesRadioPane.add(ProcessedResponseRadioButton);
 
+        TraceRadioButton.setBackground(new java.awt.Color(255, 255, 255));
+        messagesGroup.add(TraceRadioButton);
+        TraceRadioButton.setText("Trace");
+        TraceRadioButton.setFocusable(false);
+        TraceRadioButton.setRequestFocusEnabled(false);
+        TraceRadioButton.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                TraceRadioButtonActionPerformed(evt);
+            }
+        });
+        MessagesRadioPane.add(TraceRadioButton);
+
         MessagesCardPane.setBackground(new java.awt.Color(255, 255, 255));
         MessagesCardPane.setLayout(new java.awt.CardLayout());
 
@@ -2647,6 +2689,10 @@ public class MessageBrowser extends MessageBrowserBase {
 
         MessagesCardPane.add(ProcessedResponseTextPane, "Processed Response");
 
+        TraceTextPane.setBorder(javax.swing.BorderFactory.createEtchedBorder());
+        TraceTextPane.setEditable(false);
+        MessagesCardPane.add(TraceTextPane, "Trace");
+
         formatMessageCheckBox.setBackground(new java.awt.Color(255, 255, 255));
         formatMessageCheckBox.setText("Format XML Messages");
         formatMessageCheckBox.setToolTipText("Pretty print messages that are XML.");
@@ -2818,7 +2864,7 @@ public class MessageBrowser extends MessageBrowserBase {
         pageTotalLabel.setAlignmentY(0.0F);
         pageTotalLabel.setHorizontalTextPosition(javax.swing.SwingConstants.RIGHT);
 
-        textSearchField.setToolTipText("<html>\nSearch all message content for the given string. This process could take a long<br/>\ntime depending on the amount of message content currently stored. Any message<br/>\ncontent that was encrypted by this channel will not be searchable.\n</html>");
+        textSearchField.setToolTipText("<html>\nSearch all message content for the given string. This process could take a long<br/>\ntime depending on the amount of message content currently stored. Any message<br/>\ncontent that was encrypted or compressed by this channel will not be searchable.\n</html>");
         textSearchField.addActionListener(new java.awt.event.ActionListener() {
             public void actionPerformed(java.awt.event.ActionEvent evt) {
                 textSearchFieldActionPerformed(evt);
@@ -2936,7 +2982,7 @@ public class MessageBrowser extends MessageBrowserBase {
 
         regexTextSearchCheckBox.setBackground(new java.awt.Color(255, 255, 255));
         regexTextSearchCheckBox.setText("Regex");
-        regexTextSearchCheckBox.setToolTipText("<html> Search all message content for a match to the regular expression pattern.<br/> Regex matching could be a very costly operation and should be used with<br/> caution, specially with large amount of messages. Any message content<br/> that was encrypted by this channel will not be searchable. Only supported<br/> on PostgreSQL, Oracle and MySQL databases.</html> ");
+        regexTextSearchCheckBox.setToolTipText("<html> Search all message content for a match to the regular expression pattern.<br/> Regex matching could be a very costly operation and should be used with<br/> caution, specially with large amount of messages. Any message content<br/> that was encrypted or compressed by this channel will not be searchable. Only supported<br/> on PostgreSQL, Oracle and MySQL databases.</html> ");
 
         javax.swing.GroupLayout jPanel1Layout = new javax.swing.GroupLayout(jPanel1);
         jPanel1.setLayout(jPanel1Layout);
@@ -3203,6 +3249,10 @@ public class MessageBrowser extends MessageBrowserBase {
         messagesRadioButtonActionPerformed(evt);
     }//GEN-LAST:event_ProcessedResponseRadioButtonActionPerformed
 
+    private void TraceRadioButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_TraceRadioButtonActionPerformed
+        messagesRadioButtonActionPerformed(evt);
+    }//GEN-LAST:event_TraceRadioButtonActionPerformed
+
     private void resetButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_resetButtonActionPerformed
         resetSearchCriteria();
     }//GEN-LAST:event_resetButtonActionPerformed
@@ -3265,6 +3315,8 @@ public class MessageBrowser extends MessageBrowserBase {
     private com.mirth.connect.client.ui.components.MirthSyntaxTextArea ResponseTransformedTextPane;
     private javax.swing.JRadioButton SentMessageRadioButton;
     private com.mirth.connect.client.ui.components.MirthSyntaxTextArea SentMessageTextPane;
+    private javax.swing.JRadioButton TraceRadioButton;
+    private com.mirth.connect.client.ui.components.MirthSyntaxTextArea TraceTextPane;
     private javax.swing.JRadioButton TransformedMessageRadioButton;
     private com.mirth.connect.client.ui.components.MirthSyntaxTextArea TransformedMessageTextPane;
     private javax.swing.JButton advSearchButton;
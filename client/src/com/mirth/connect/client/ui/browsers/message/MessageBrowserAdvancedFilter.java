@@ -629,7 +629,7 @@ public class MessageBrowserAdvancedFilter extends MirthDialog {
         contentSplitPane.setResizeWeight(1);
 
         contentSearchTable = new MirthTable();
-        contentSearchTable.setToolTipText("<html> \nSearch specific message content. This process could take a long time<br/>\ndepending on the amount of message content currently stored. Any message<br/>\ncontent that was encrypted by this channel will not be searchable. </html>");
+        contentSearchTable.setToolTipText("<html> \nSearch specific message content. This process could take a long time<br/>\ndepending on the amount of message content currently stored. Any message<br/>\ncontent that was encrypted or compressed by this channel will not be searchable. </html>");
         contentSearchScrollPane = new JScrollPane();
         contentSearchScrollPane.setViewportView(contentSearchTable);
 
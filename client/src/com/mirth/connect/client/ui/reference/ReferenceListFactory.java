@@ -383,6 +383,7 @@ public class ReferenceListFactory extends ReferenceListFactoryBase {
         addReference(new ParameterizedCodeReference(CONTEXT_GLOBAL, Category.UTILITY.toString(), "Decode BASE-64 Data", "Decode a BASE-64 string to a byte array", "FileUtil.decode(${data});"));
         addReference(new ParameterizedCodeReference(CONTEXT_GLOBAL, Category.UTILITY.toString(), "Route Message to Channel", "Sends the specified data to a different channel.", "router.routeMessage('${channelName}', '${message}');"));
         addReference(new ParameterizedCodeReference(CONTEXT_GLOBAL, Category.UTILITY.toString(), "Route Message by Channel ID", "Sends the specified data to a different channel.", "router.routeMessageByChannelId('${channelId}', '${message}');"));
+        addReference(new ParameterizedCodeReference(CONTEXT_GLOBAL, Category.UTILITY.toString(), "Route Messages by Channel ID", "Sends a list of messages to a different channel. If the channel has its source queue enabled, the messages are stored and queued together.", "router.routeMessagesByChannelId('${channelId}', ${messages});"));
         addReference(new ParameterizedCodeReference(CONTEXT_CONNECTOR, Category.UTILITY.toString(), "Perform Message Object Value Replacement", "Returns a string that has been run through Velocity replacer with a connectorMessage context", "var ${results} = replacer.replaceValues(${template}, connectorMessage);"));
         addReference(new ParameterizedCodeReference(CONTEXT_GLOBAL, Category.UTILITY.toString(), "Perform Map Value Replacement", "Returns a string that has been run through Velocity replacer with a map context", "var ${results} = replacer.replaceValues(${template}, ${map});"));
         addReference(new ParameterizedCodeReference(CONTEXT_GLOBAL, Category.UTILITY.toString(), "Format Overpunch NCPDP Number", "Returns number with decimal points and correct sign", "var ${number} = NCPDPUtil.formatNCPDPNumber('${number}', ${decimalpoints});"));
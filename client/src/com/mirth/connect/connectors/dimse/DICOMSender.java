@@ -105,6 +105,8 @@ public class DICOMSender extends ConnectorSettingsPanel {
         properties.setUsername(usernameField.getText());
         properties.setApplicationEntity(remoteApplicationEntityField.getText());
         properties.setLocalApplicationEntity(localApplicationEntityField.getText());
+        properties.setAssociationIdleTimeout(associationIdleTimeoutField.getText());
+        properties.setAssociationMaxOperations(associationMaxOperationsField.getText());
         return properties;
     }
 
@@ -138,6 +140,8 @@ public class DICOMSender extends ConnectorSettingsPanel {
         trustStorePasswordField.setText(props.getTrustStorePW());
         usernameField.setText(props.getUsername());
         remoteApplicationEntityField.setText(props.getApplicationEntity());
+        associationIdleTimeoutField.setText(props.getAssociationIdleTimeout());
+        associationMaxOperationsField.setText(props.getAssociationMaxOperations());
         localApplicationEntityField.setText(props.getLocalApplicationEntity());
 
         if (props.isNoClientAuth()) {
@@ -359,6 +363,10 @@ public class DICOMSender extends ConnectorSettingsPanel {
         // newline
         tcpConnectionTimeoutLabel = new JLabel();
         tcpConnectionTimeoutField = new MirthTextField();
+        associationIdleTimeoutLabel = new JLabel();
+        associationIdleTimeoutField = new MirthTextField();
+        associationMaxOperationsLabel = new JLabel();
+        associationMaxOperationsField = new MirthTextField();
         // newline
         tcpDelayField = new JLabel();
         tcpDelayButtonGroup = new ButtonGroup();
@@ -549,6 +557,12 @@ public class DICOMSender extends ConnectorSettingsPanel {
         tcpConnectionTimeoutLabel.setText("TCP Connection Timeout (ms):");
         tcpConnectionTimeoutField.setToolTipText("Timeout in ms for TCP connect, no timeout by default.");
 
+        associationIdleTimeoutLabel.setText("Association Idle Timeout (s):");
+        associationIdleTimeoutField.setToolTipText("Seconds to keep an unused association open for the next message, 0 to open a new association for every message.");
+
+        associationMaxOperationsLabel.setText("Max Operations per Association:");
+        associationMaxOperationsField.setToolTipText("The maximum number of messages to send on one association before it is closed, or 0 for no limit.");
+
         tcpDelayField.setText("TCP Delay:");
         
         tcpDelayYes.setBackground(new java.awt.Color(255, 255, 255));
@@ -766,8 +780,12 @@ public class DICOMSender extends ConnectorSettingsPanel {
     	
     	settingsPanel.add(associateTimeoutLabel, "newline");
     	settingsPanel.add(associateTimeoutField, "w 50!");
+    	settingsPanel.add(associationIdleTimeoutLabel);
+    	settingsPanel.add(associationIdleTimeoutField, "w 50!");
     	settingsPanel.add(tcpConnectionTimeoutLabel, "newline");
     	settingsPanel.add(tcpConnectionTimeoutField, "w 50!");
+    	settingsPanel.add(associationMaxOperationsLabel);
+    	settingsPanel.add(associationMaxOperationsField, "w 50!");
 
     	
     	JPanel tlsPanel = new JPanel();
@@ -933,6 +951,8 @@ public class DICOMSender extends ConnectorSettingsPanel {
     private MirthRadioButton clientAuthenticationNoRadio;
     private MirthRadioButton clientAuthenticationYesRadio;
     private MirthTextField tcpConnectionTimeoutField;
+    private MirthTextField associationIdleTimeoutField;
+    private MirthTextField associationMaxOperationsField;
     private MirthSyntaxTextArea fileContentsTextPane;
     private MirthRadioButton highPriority;
     private JLabel remoteAddressLabel;
@@ -962,6 +982,8 @@ public class DICOMSender extends ConnectorSettingsPanel {
     private JLabel maxAsyncOperationsLabel;
     private JLabel transcoderBufferSizeLabel;
     private JLabel tcpConnectionTimeoutLabel;
+    private JLabel associationIdleTimeoutLabel;
+    private JLabel associationMaxOperationsLabel;
     private JLabel priorityLabel;
     private MirthTextField keyPasswordField;
     private JLabel keyPasswordLabel;
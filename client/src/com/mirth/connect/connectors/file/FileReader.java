@@ -79,6 +79,7 @@ public class FileReader extends ConnectorSettingsPanel {
         errorResponseActionComboBox.setModel(new DefaultComboBoxModel(new FileAction[] {
                 FileAction.AFTER_PROCESSING, FileAction.MOVE, FileAction.DELETE }));
         fileAgeField.setDocument(new MirthFieldConstraints(0, false, false, true));
+        watchRescanIntervalField.setDocument(new MirthFieldConstraints(0, false, false, true));
         fileSizeMinimumField.setDocument(new MirthFieldConstraints(0, false, false, true));
         fileSizeMaximumField.setDocument(new MirthFieldConstraints(0, false, false, true));
 
@@ -128,6 +129,7 @@ public class FileReader extends ConnectorSettingsPanel {
 
         properties.setCheckFileAge(checkFileAgeYesRadio.isSelected());
         properties.setFileAge(fileAgeField.getText());
+        properties.setWatchRescanInterval(watchRescanIntervalField.getText());
 
         properties.setFileSizeMinimum(fileSizeMinimumField.getText());
         properties.setFileSizeMaximum(fileSizeMaximumField.getText());
@@ -291,6 +293,7 @@ public class FileReader extends ConnectorSettingsPanel {
         }
 
         fileAgeField.setText(props.getFileAge());
+        watchRescanIntervalField.setText(props.getWatchRescanInterval());
 
         fileSizeMinimumField.setText(props.getFileSizeMinimum());
         fileSizeMaximumField.setText(props.getFileSizeMaximum());
@@ -772,6 +775,11 @@ public class FileReader extends ConnectorSettingsPanel {
         fileAgeField = new MirthTextField();
         fileAgeField.setToolTipText("If Check File Age Yes is selected, only the files created that are older than the specified value in milliseconds will be processed.");
 
+        watchRescanIntervalLabel = new JLabel();
+        watchRescanIntervalLabel.setText("Watch Rescan Interval (s):");
+        watchRescanIntervalField = new MirthTextField();
+        watchRescanIntervalField.setToolTipText("<html>If greater than 0, local directories are watched for changes instead of listing every file on each poll.<br/>Files are only read once their size and modification time stop changing. The whole directory is<br/>still scanned every this many seconds, in case changes were missed. Only used for the file scheme.</html>");
+
         fileSizeLabel = new JLabel();
         fileSizeLabel.setText("File Size (bytes):");
         fileSizeMinimumField = new MirthTextField();
@@ -927,6 +935,9 @@ public class FileReader extends ConnectorSettingsPanel {
         add(fileAgeLabel, "newline");
         add(fileAgeField, "w 75!, spanx");
 
+        add(watchRescanIntervalLabel, "newline");
+        add(watchRescanIntervalField, "w 75!, spanx");
+
         add(fileSizeLabel, "newline");
         add(fileSizeMinimumField, "w 75!, split 4, spanx");
         add(fileSizeDashLabel);
@@ -1007,6 +1018,8 @@ public class FileReader extends ConnectorSettingsPanel {
         secureModeNoRadio.setEnabled(false);
         timeoutLabel.setEnabled(false);
         timeoutField.setEnabled(false);
+        watchRescanIntervalLabel.setEnabled(scheme == FileScheme.FILE);
+        watchRescanIntervalField.setEnabled(scheme == FileScheme.FILE);
         advancedSettingsButton.setEnabled(false);
         advancedProperties = null;
         usernameLabel.setText("Username:");
@@ -1274,6 +1287,8 @@ public class FileReader extends ConnectorSettingsPanel {
     private JLabel errorResponseActionLabel;
     private MirthTextField fileAgeField;
     private JLabel fileAgeLabel;
+    private MirthTextField watchRescanIntervalField;
+    private JLabel watchRescanIntervalLabel;
     private MirthTextField fileNameFilterField;
     private JLabel fileSizeDashLabel;
     private JLabel fileSizeLabel;
@@ -165,6 +165,11 @@ public class HttpListener extends ConnectorSettingsPanel implements IHttpListene
         IHttpReceiverProperties properties = (IHttpReceiverProperties) getDefaults();
         properties.setContextPath(contextPathField.getText());
         properties.setTimeout(receiveTimeoutField.getText());
+        if (properties instanceof HttpReceiverProperties) {
+            ((HttpReceiverProperties) properties).setMaxThreads(maxThreadsField.getText());
+            ((HttpReceiverProperties) properties).setAsyncDispatch(asyncDispatchYesRadio.isSelected());
+            ((HttpReceiverProperties) properties).setAsyncQueueSize(asyncQueueSizeField.getText());
+        }
         properties.setXmlBody(messageContentXmlBodyRadio.isSelected());
         properties.setParseMultipart(parseMultipartYesRadio.isSelected());
         properties.setIncludeMetadata(includeMetadataYesRadio.isSelected());
@@ -201,6 +206,18 @@ public class HttpListener extends ConnectorSettingsPanel implements IHttpListene
         contextPathField.setText(props.getContextPath());
         receiveTimeoutField.setText(props.getTimeout());
 
+        if (props instanceof HttpReceiverProperties) {
+            maxThreadsField.setText(((HttpReceiverProperties) props).getMaxThreads());
+            asyncQueueSizeField.setText(((HttpReceiverProperties) props).getAsyncQueueSize());
+
+            if (((HttpReceiverProperties) props).isAsyncDispatch()) {
+                asyncDispatchYesRadio.setSelected(true);
+            } else {
+                asyncDispatchNoRadio.setSelected(true);
+            }
+            asyncDispatchActionPerformed();
+        }
+
         updateHttpUrl();
 
         if (props.isXmlBody()) {
@@ -919,6 +936,14 @@ public class HttpListener extends ConnectorSettingsPanel implements IHttpListene
         contextPathField = new MirthTextField();
         receiveTimeoutLabel = new JLabel();
         receiveTimeoutField = new MirthTextField();
+        maxThreadsLabel = new JLabel();
+        maxThreadsField = new MirthTextField();
+        asyncDispatchButtonGroup = new ButtonGroup();
+        asyncDispatchLabel = new JLabel();
+        asyncDispatchYesRadio = new MirthRadioButton();
+        asyncDispatchNoRadio = new MirthRadioButton();
+        asyncQueueSizeLabel = new JLabel();
+        asyncQueueSizeField = new MirthTextField();
         httpUrlField = new JTextField();
         httpUrlLabel = new JLabel();
         headersLabel = new JLabel();
@@ -979,6 +1004,32 @@ public class HttpListener extends ConnectorSettingsPanel implements IHttpListene
 
         receiveTimeoutLabel.setText("Receive Timeout (ms):");
 
+        maxThreadsLabel.setText("Max Server Threads:");
+
+        asyncDispatchLabel.setText("Async Dispatch:");
+
+        asyncDispatchYesRadio.setBackground(new Color(255, 255, 255));
+        asyncDispatchButtonGroup.add(asyncDispatchYesRadio);
+        asyncDispatchYesRadio.setText("Yes");
+        asyncDispatchYesRadio.setMargin(new Insets(0, 0, 0, 0));
+        asyncDispatchYesRadio.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent evt) {
+                asyncDispatchActionPerformed();
+            }
+        });
+
+        asyncDispatchNoRadio.setBackground(new Color(255, 255, 255));
+        asyncDispatchButtonGroup.add(asyncDispatchNoRadio);
+        asyncDispatchNoRadio.setText("No");
+        asyncDispatchNoRadio.setMargin(new Insets(0, 0, 0, 0));
+        asyncDispatchNoRadio.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent evt) {
+                asyncDispatchActionPerformed();
+            }
+        });
+
+        asyncQueueSizeLabel.setText("Async Queue Size:");
+
         httpUrlLabel.setText("HTTP URL:");
 
         headersLabel.setText("Response Headers:");
@@ -1120,6 +1171,10 @@ public class HttpListener extends ConnectorSettingsPanel implements IHttpListene
         charsetEncodingCombobox.setToolTipText("<html>Select the character set encoding to be used for the response to the sending system.<br>Set to Default to assume the default character set encoding for the JVM running Mirth Connect.</html>");
         contextPathField.setToolTipText("The context path for the HTTP Listener URL.");
         receiveTimeoutField.setToolTipText("Enter the maximum idle time in milliseconds for a connection.");
+        maxThreadsField.setToolTipText("<html>The maximum number of request threads of the web server. HTTP Listeners on the same<br/>host and port share one web server, so they must all use the same value.</html>");
+        asyncDispatchYesRadio.setToolTipText("<html>Select Yes to hand each request off to a thread of this listener while the channel processes it,<br/>instead of holding on to a thread of the web server until the response is sent.</html>");
+        asyncDispatchNoRadio.setToolTipText("<html>Select Yes to hand each request off to a thread of this listener while the channel processes it,<br/>instead of holding on to a thread of the web server until the response is sent.</html>");
+        asyncQueueSizeField.setToolTipText("<html>The number of requests that may wait while the channel is busy, if Async Dispatch is enabled.<br/>Further requests get a 503 response.</html>");
         httpUrlField.setToolTipText("<html>Displays the generated HTTP URL for the HTTP Listener.</html>");
         responseHeadersTable.setToolTipText("Response header parameters are encoded as HTTP headers in the response sent to the client.");
         responseStatusCodeField.setToolTipText("<html>Enter the status code for the HTTP response.  If this field is left blank a <br>default status code of 200 will be returned for a successful message, <br>and 500 will be returned for an errored message. If a \"Respond from\" <br>value is chosen, that response will be used to determine a successful <br>or errored response.<html>");
@@ -1147,12 +1202,19 @@ public class HttpListener extends ConnectorSettingsPanel implements IHttpListene
     }
     
     private void doInitLayout() {
-        setLayout(new MigLayout("insets 0 8 0 8, novisualpadding, hidemode 3, gap 12 6", "[][]6[]", "[][][][][][][][][][][][][grow][grow]"));
+        setLayout(new MigLayout("insets 0 8 0 8, novisualpadding, hidemode 3, gap 12 6", "[][]6[]", "[][][][][][][][][][][][][][][][grow][grow]"));
 
         add(contextPathLabel, "right");
         add(contextPathField, "w 150!, sx");
         add(receiveTimeoutLabel, "newline, right");
         add(receiveTimeoutField, "w 100!, sx");
+        add(maxThreadsLabel, "newline, right");
+        add(maxThreadsField, "w 100!, sx");
+        add(asyncDispatchLabel, "newline, right");
+        add(asyncDispatchYesRadio, "split 2");
+        add(asyncDispatchNoRadio);
+        add(asyncQueueSizeLabel, "newline, right");
+        add(asyncQueueSizeField, "w 100!, sx");
         add(messageContentLabel, "newline, right");
         add(messageContentPlainBodyRadio, "split 2");
         add(messageContentXmlBodyRadio);
@@ -1189,6 +1251,11 @@ public class HttpListener extends ConnectorSettingsPanel implements IHttpListene
         add(staticResourcesDeleteButton, "w 44!");
     }
 
+    private void asyncDispatchActionPerformed() {
+        asyncQueueSizeLabel.setEnabled(asyncDispatchYesRadio.isSelected());
+        asyncQueueSizeField.setEnabled(asyncDispatchYesRadio.isSelected());
+    }
+
     private void messageContentPlainBodyRadioActionPerformed(ActionEvent evt) {
         parent.getChannelSetup().checkAndSetSourceDataType();
         parseMultipartLabel.setEnabled(false);
@@ -1345,6 +1412,14 @@ public class HttpListener extends ConnectorSettingsPanel implements IHttpListene
     private MirthRadioButton parseMultipartYesRadio;
     protected MirthTextField receiveTimeoutField;
     protected JLabel receiveTimeoutLabel;
+    private JLabel maxThreadsLabel;
+    private MirthTextField maxThreadsField;
+    private ButtonGroup asyncDispatchButtonGroup;
+    private JLabel asyncDispatchLabel;
+    private MirthRadioButton asyncDispatchYesRadio;
+    private MirthRadioButton asyncDispatchNoRadio;
+    private JLabel asyncQueueSizeLabel;
+    private MirthTextField asyncQueueSizeField;
     protected JLabel responseStatusCodeLabel;
     private MirthTextField responseContentTypeField;
     private JLabel responseContentTypeLabel;
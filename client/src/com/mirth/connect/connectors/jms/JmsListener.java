@@ -18,6 +18,8 @@ public class JmsListener extends ConnectorSettingsPanel {
         initComponents();
         jmsConnectorPanel.init(JmsConnectorPanel.TYPE_LISTENER, getConnectorName());
         reconnectIntervalField.setDocument(new MirthFieldConstraints(0, false, false, true));
+        acknowledgeBatchSizeField.setDocument(new MirthFieldConstraints(0, false, false, true));
+        acknowledgeIntervalField.setDocument(new MirthFieldConstraints(0, false, false, true));
     }
 
     @Override
@@ -30,6 +32,8 @@ public class JmsListener extends ConnectorSettingsPanel {
         JmsReceiverProperties properties = (JmsReceiverProperties) jmsConnectorPanel.getProperties();
         properties.setSelector(selectorField.getText());
         properties.setReconnectIntervalMillis(reconnectIntervalField.getText());
+        properties.setAcknowledgeBatchSize(acknowledgeBatchSizeField.getText());
+        properties.setAcknowledgeIntervalMillis(acknowledgeIntervalField.getText());
         return properties;
     }
 
@@ -39,6 +43,8 @@ public class JmsListener extends ConnectorSettingsPanel {
         JmsReceiverProperties jmsReceiverProperties = (JmsReceiverProperties) properties;
         selectorField.setText(jmsReceiverProperties.getSelector());
         reconnectIntervalField.setText(jmsReceiverProperties.getReconnectIntervalMillis());
+        acknowledgeBatchSizeField.setText(jmsReceiverProperties.getAcknowledgeBatchSize());
+        acknowledgeIntervalField.setText(jmsReceiverProperties.getAcknowledgeIntervalMillis());
     }
 
     @Override
@@ -71,6 +77,10 @@ public class JmsListener extends ConnectorSettingsPanel {
         jmsConnectorPanel = new com.mirth.connect.connectors.jms.JmsConnectorPanel();
         reconnectIntervalField = new com.mirth.connect.client.ui.components.MirthTextField();
         reconnectIntervalLabel = new javax.swing.JLabel();
+        acknowledgeBatchSizeLabel = new javax.swing.JLabel();
+        acknowledgeBatchSizeField = new com.mirth.connect.client.ui.components.MirthTextField();
+        acknowledgeIntervalLabel = new javax.swing.JLabel();
+        acknowledgeIntervalField = new com.mirth.connect.client.ui.components.MirthTextField();
 
         setBackground(new java.awt.Color(255, 255, 255));
 
@@ -83,6 +93,14 @@ public class JmsListener extends ConnectorSettingsPanel {
 
         reconnectIntervalLabel.setText("Reconnect Interval (ms):");
 
+        acknowledgeBatchSizeLabel.setText("Acknowledge Batch Size:");
+
+        acknowledgeBatchSizeField.setToolTipText("<html>The number of messages to acknowledge at once. If the channel is halted before a batch is acknowledged,<br/>the broker delivers those messages again. Enter 1 to acknowledge every message as soon as it is stored.</html>");
+
+        acknowledgeIntervalLabel.setText("Acknowledge Interval (ms):");
+
+        acknowledgeIntervalField.setToolTipText("<html>The maximum number of milliseconds to wait before acknowledging a batch of messages that isn't full.</html>");
+
         javax.swing.GroupLayout layout = new javax.swing.GroupLayout(this);
         this.setLayout(layout);
         layout.setHorizontalGroup(
@@ -91,11 +109,15 @@ public class JmsListener extends ConnectorSettingsPanel {
             .addGroup(layout.createSequentialGroup()
                 .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.TRAILING)
                     .addComponent(reconnectIntervalLabel)
+                    .addComponent(acknowledgeBatchSizeLabel)
+                    .addComponent(acknowledgeIntervalLabel)
                     .addComponent(selectorLabel, javax.swing.GroupLayout.PREFERRED_SIZE, 150, javax.swing.GroupLayout.PREFERRED_SIZE))
                 .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
                 .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
                     .addComponent(selectorField, javax.swing.GroupLayout.PREFERRED_SIZE, 400, javax.swing.GroupLayout.PREFERRED_SIZE)
-                    .addComponent(reconnectIntervalField, javax.swing.GroupLayout.PREFERRED_SIZE, 87, javax.swing.GroupLayout.PREFERRED_SIZE))
+                    .addComponent(reconnectIntervalField, javax.swing.GroupLayout.PREFERRED_SIZE, 87, javax.swing.GroupLayout.PREFERRED_SIZE)
+                    .addComponent(acknowledgeBatchSizeField, javax.swing.GroupLayout.PREFERRED_SIZE, 87, javax.swing.GroupLayout.PREFERRED_SIZE)
+                    .addComponent(acknowledgeIntervalField, javax.swing.GroupLayout.PREFERRED_SIZE, 87, javax.swing.GroupLayout.PREFERRED_SIZE))
                 .addGap(0, 0, Short.MAX_VALUE))
         );
         layout.setVerticalGroup(
@@ -107,12 +129,24 @@ public class JmsListener extends ConnectorSettingsPanel {
                     .addComponent(reconnectIntervalField, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
                     .addComponent(reconnectIntervalLabel))
                 .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
+                    .addComponent(acknowledgeBatchSizeField, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
+                    .addComponent(acknowledgeBatchSizeLabel))
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
+                    .addComponent(acknowledgeIntervalField, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
+                    .addComponent(acknowledgeIntervalLabel))
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
                 .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
                     .addComponent(selectorField, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
                     .addComponent(selectorLabel)))
         );
     }// </editor-fold>//GEN-END:initComponents
     // Variables declaration - do not modify//GEN-BEGIN:variables
+    private com.mirth.connect.client.ui.components.MirthTextField acknowledgeBatchSizeField;
+    private javax.swing.JLabel acknowledgeBatchSizeLabel;
+    private com.mirth.connect.client.ui.components.MirthTextField acknowledgeIntervalField;
+    private javax.swing.JLabel acknowledgeIntervalLabel;
     private com.mirth.connect.connectors.jms.JmsConnectorPanel jmsConnectorPanel;
     private com.mirth.connect.client.ui.components.MirthTextField reconnectIntervalField;
     private javax.swing.JLabel reconnectIntervalLabel;
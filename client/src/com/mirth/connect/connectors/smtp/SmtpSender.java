@@ -99,6 +99,8 @@ public class SmtpSender extends ConnectorSettingsPanel implements ISmtpSender {
         properties.setLocalAddress(localAddressField.getText());
         properties.setLocalPort(localPortField.getText());
         properties.setTimeout(sendTimeoutField.getText());
+        properties.setConnectionIdleTimeout(connectionIdleTimeoutField.getText());
+        properties.setConnectionMaxMessages(connectionMaxMessagesField.getText());
 
         if (encryptionTls.isSelected()) {
             properties.setEncryption("TLS");
@@ -166,6 +168,8 @@ public class SmtpSender extends ConnectorSettingsPanel implements ISmtpSender {
         localAddressField.setText(props.getLocalAddress());
         localPortField.setText(props.getLocalPort());
         sendTimeoutField.setText(props.getTimeout());
+        connectionIdleTimeoutField.setText(props.getConnectionIdleTimeout());
+        connectionMaxMessagesField.setText(props.getConnectionMaxMessages());
 
         if (props.getEncryption().equalsIgnoreCase("TLS")) {
             encryptionTls.setSelected(true);
@@ -649,6 +653,12 @@ public class SmtpSender extends ConnectorSettingsPanel implements ISmtpSender {
         sendTimeoutLabel = new JLabel("Send Timeout (ms):");
         sendTimeoutField = new MirthTextField();
 
+        connectionIdleTimeoutLabel = new JLabel("Connection Idle Timeout (s):");
+        connectionIdleTimeoutField = new MirthTextField();
+
+        connectionMaxMessagesLabel = new JLabel("Max Messages per Connection:");
+        connectionMaxMessagesField = new MirthTextField();
+
         encryptionLabel = new JLabel("Encryption:");
         ButtonGroup encryptionButtonGroup = new ButtonGroup();
 
@@ -818,6 +828,8 @@ public class SmtpSender extends ConnectorSettingsPanel implements ISmtpSender {
         localAddressField.setToolTipText("<html>The local address that the client socket will be bound to, if Override Local Binding is set to Yes.<br/></html>");
         localPortField.setToolTipText("<html>The local port that the client socket will be bound to, if Override Local Binding is set to Yes.<br/><br/>Note that if a specific (non-zero) local port is chosen, then after a socket is closed it's up to the<br/>underlying OS to release the port before the next socket creation, otherwise the bind attempt will fail.<br/></html>");
         sendTimeoutField.setToolTipText("<html>Enter the number of milliseconds for the SMTP socket connection timeout.</html>");
+        connectionIdleTimeoutField.setToolTipText("<html>If greater than 0, the connection to the SMTP server is kept open between messages instead of<br/>connecting and authenticating again for every message, and is closed after being unused for this many seconds.</html>");
+        connectionMaxMessagesField.setToolTipText("<html>The maximum number of messages to send on one connection before it is closed, or 0 for no limit.</html>");
 
         toolTipText = "Selects whether STARTTLS or SSL should be used for optional connection security.";
         encryptionNone.setToolTipText(toolTipText);
@@ -847,7 +859,7 @@ public class SmtpSender extends ConnectorSettingsPanel implements ISmtpSender {
     }
 
     private void initLayout() {
-        setLayout(new MigLayout("insets 0 8 0 8, novisualpadding, hidemode 3, gap 12 6", "[][]6[]", "[][]4[]4[][][]4[]4[]4[][][][][][]4[]4[][][]"));
+        setLayout(new MigLayout("insets 0 8 0 8, novisualpadding, hidemode 3, gap 12 6", "[][]6[]", "[][]4[]4[][][][][]4[]4[]4[][][][][][]4[]4[][][]"));
 
         add(smtpHostLabel, "right");
         add(smtpHostField, "w 200!, sx, split 2");
@@ -863,6 +875,10 @@ public class SmtpSender extends ConnectorSettingsPanel implements ISmtpSender {
         add(localPortField, "w 50!, sx");
         add(sendTimeoutLabel, "newline, right");
         add(sendTimeoutField, "w 75!, sx");
+        add(connectionIdleTimeoutLabel, "newline, right");
+        add(connectionIdleTimeoutField, "w 75!, sx");
+        add(connectionMaxMessagesLabel, "newline, right");
+        add(connectionMaxMessagesField, "w 75!, sx");
         add(encryptionLabel, "newline, right");
         add(encryptionNone, "split 3");
         add(encryptionTls);
@@ -1043,6 +1059,10 @@ public class SmtpSender extends ConnectorSettingsPanel implements ISmtpSender {
     private MirthTextField localPortField;
     private JLabel sendTimeoutLabel;
     private MirthTextField sendTimeoutField;
+    private JLabel connectionIdleTimeoutLabel;
+    private MirthTextField connectionIdleTimeoutField;
+    private JLabel connectionMaxMessagesLabel;
+    private MirthTextField connectionMaxMessagesField;
     public JLabel encryptionLabel;
     public MirthRadioButton encryptionNone;
     public MirthRadioButton encryptionTls;
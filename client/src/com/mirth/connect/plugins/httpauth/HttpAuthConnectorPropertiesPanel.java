@@ -190,6 +190,9 @@ public class HttpAuthConnectorPropertiesPanel extends AbstractConnectorPropertie
             props.setTokenLocation((TokenLocation) oauth2TokenLocationComboBox.getSelectedItem());
             props.setLocationKey(oauth2TokenField.getText());
             props.setVerificationURL(oauth2VerificationURLField.getText());
+            props.setCacheTtl(oauth2CacheTtlField.getText());
+            props.setCacheNegativeTtl(oauth2CacheNegativeTtlField.getText());
+            props.setCacheMaxEntries(oauth2CacheMaxEntriesField.getText());
             if (connectorPropertiesPanel != null) {
                 Set<ConnectorPluginProperties> connectorPluginProperties = new HashSet<ConnectorPluginProperties>();
                 connectorPluginProperties.add(connectorPropertiesPanel.getProperties());
@@ -286,6 +289,9 @@ public class HttpAuthConnectorPropertiesPanel extends AbstractConnectorPropertie
             oauth2TokenLocationComboBox.setSelectedItem(props.getTokenLocation());
             oauth2TokenField.setText(props.getLocationKey());
             oauth2VerificationURLField.setText(props.getVerificationURL());
+            oauth2CacheTtlField.setText(props.getCacheTtl());
+            oauth2CacheNegativeTtlField.setText(props.getCacheNegativeTtl());
+            oauth2CacheMaxEntriesField.setText(props.getCacheMaxEntries());
             if (connectorPropertiesPanel != null) {
                 Set<ConnectorPluginProperties> connectorPluginProperties = props.getConnectorPluginProperties();
                 if (CollectionUtils.isEmpty(connectorPluginProperties)) {
@@ -773,6 +779,15 @@ public class HttpAuthConnectorPropertiesPanel extends AbstractConnectorPropertie
         oauth2VerificationURLLabel = new JLabel("Verification URL:");
         oauth2VerificationURLField = new MirthTextField();
 
+        oauth2CacheTtlLabel = new JLabel("Cache Accepted Tokens (s):");
+        oauth2CacheTtlField = new MirthTextField();
+
+        oauth2CacheNegativeTtlLabel = new JLabel("Cache Rejected Tokens (s):");
+        oauth2CacheNegativeTtlField = new MirthTextField();
+
+        oauth2CacheMaxEntriesLabel = new JLabel("Max Cached Tokens:");
+        oauth2CacheMaxEntriesField = new MirthTextField();
+
         for (ConnectorPropertiesPlugin connectorPropertiesPlugin : LoadedExtensions.getInstance().getConnectorPropertiesPlugins().values()) {
             if (connectorPropertiesPlugin.isConnectorPropertiesPluginSupported(HttpAuthConnectorPluginProperties.PLUGIN_POINT)) {
                 connectorPropertiesPanel = connectorPropertiesPlugin.getConnectorPropertiesPanel();
@@ -809,6 +824,9 @@ public class HttpAuthConnectorPropertiesPanel extends AbstractConnectorPropertie
         oauth2TokenLocationComboBox.setToolTipText("Determines where the access token is located in client requests.");
         oauth2TokenField.setToolTipText("The header or query parameter to pass along with the verification request.");
         oauth2VerificationURLField.setToolTipText("<html>The HTTP URL to perform a GET request to for access<br/>token verification. If the response code is >= 400,<br/>the authentication attempt is rejected by the server.</html>");
+        oauth2CacheTtlField.setToolTipText("<html>The number of seconds to remember that a token was accepted, so that the<br/>verification URL isn't called for every request. A token revoked at the<br/>verification URL may still be accepted until it expires from the cache.<br/>Set to 0 to verify accepted tokens on every request.</html>");
+        oauth2CacheNegativeTtlField.setToolTipText("<html>The number of seconds to remember that a token was rejected.<br/>Set to 0 to verify rejected tokens again on every request.</html>");
+        oauth2CacheMaxEntriesField.setToolTipText("The maximum number of tokens to remember for this listener.");
         
         useBasicCredentialsTableRadio.setToolTipText("<html>The table below will be used to populate credentials.</html>");
         useBasicCredentialsVariableRadio.setToolTipText("<html>The Java map specified by the following variable will be used to populate credentials.<br/>The map must have String keys and String values.</html>");
@@ -884,6 +902,15 @@ public class HttpAuthConnectorPropertiesPanel extends AbstractConnectorPropertie
         add(oauth2VerificationURLLabel, "newline, right");
         add(oauth2VerificationURLField, "w 300!");
 
+        add(oauth2CacheTtlLabel, "newline, right");
+        add(oauth2CacheTtlField, "w 75!");
+
+        add(oauth2CacheNegativeTtlLabel, "newline, right");
+        add(oauth2CacheNegativeTtlField, "w 75!");
+
+        add(oauth2CacheMaxEntriesLabel, "newline, right");
+        add(oauth2CacheMaxEntriesField, "w 75!");
+
         if (connectorPropertiesPanel != null && connectorPropertiesPanel.getLayoutComponents() != null) {
             for (Component[] row : connectorPropertiesPanel.getLayoutComponents()) {
                 for (int column = 0; column < row.length; column++) {
@@ -992,6 +1019,12 @@ public class HttpAuthConnectorPropertiesPanel extends AbstractConnectorPropertie
         oauth2TokenField.setVisible(false);
         oauth2VerificationURLLabel.setVisible(false);
         oauth2VerificationURLField.setVisible(false);
+        oauth2CacheTtlLabel.setVisible(false);
+        oauth2CacheTtlField.setVisible(false);
+        oauth2CacheNegativeTtlLabel.setVisible(false);
+        oauth2CacheNegativeTtlField.setVisible(false);
+        oauth2CacheMaxEntriesLabel.setVisible(false);
+        oauth2CacheMaxEntriesField.setVisible(false);
         if (connectorPropertiesPanel != null && connectorPropertiesPanel.getLayoutComponents() != null) {
             for (Component[] row : connectorPropertiesPanel.getLayoutComponents()) {
                 for (Component column : row) {
@@ -1039,6 +1072,12 @@ public class HttpAuthConnectorPropertiesPanel extends AbstractConnectorPropertie
             oauth2TokenField.setVisible(true);
             oauth2VerificationURLLabel.setVisible(true);
             oauth2VerificationURLField.setVisible(true);
+            oauth2CacheTtlLabel.setVisible(true);
+            oauth2CacheTtlField.setVisible(true);
+            oauth2CacheNegativeTtlLabel.setVisible(true);
+            oauth2CacheNegativeTtlField.setVisible(true);
+            oauth2CacheMaxEntriesLabel.setVisible(true);
+            oauth2CacheMaxEntriesField.setVisible(true);
             if (connectorPropertiesPanel != null && connectorPropertiesPanel.getLayoutComponents() != null) {
                 for (Component[] row : connectorPropertiesPanel.getLayoutComponents()) {
                     for (Component column : row) {
@@ -1158,5 +1197,11 @@ public class HttpAuthConnectorPropertiesPanel extends AbstractConnectorPropertie
     private JTextField oauth2TokenField;
     private JLabel oauth2VerificationURLLabel;
     private JTextField oauth2VerificationURLField;
+    private JLabel oauth2CacheTtlLabel;
+    private JTextField oauth2CacheTtlField;
+    private JLabel oauth2CacheNegativeTtlLabel;
+    private JTextField oauth2CacheNegativeTtlField;
+    private JLabel oauth2CacheMaxEntriesLabel;
+    private JTextField oauth2CacheMaxEntriesField;
     private AbstractConnectorPropertiesPanel connectorPropertiesPanel;
 }
\ No newline at end of file
@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ * 
+ * http://www.mirthcorp.com
+ * 
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.plugins.latencymetrics;
+
+import java.text.SimpleDateFormat;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Vector;
+
+import javax.swing.JComponent;
+import javax.swing.SwingUtilities;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.mirth.connect.client.core.ClientException;
+import com.mirth.connect.client.core.ForbiddenException;
+import com.mirth.connect.client.ui.PlatformUI;
+import com.mirth.connect.donkey.model.channel.LatencyStatistics;
+import com.mirth.connect.donkey.model.message.SampledMessageTrace;
+import com.mirth.connect.model.DashboardStatus;
+import com.mirth.connect.plugins.DashboardTabPlugin;
+
+public class LatencyMetricsClient extends DashboardTabPlugin {
+
+    private LatencyMetricsPanel latencyMetricsPanel;
+    private Vector<Object> data = new Vector<Object>();
+    private Vector<Object> traceData = new Vector<Object>();
+    private boolean daoMetricsEnabled;
+    private boolean messageTracingEnabled;
+    private double samplePercentage;
+
+    public LatencyMetricsClient(String name) {
+        super(name);
+
+        latencyMetricsPanel = new LatencyMetricsPanel(this);
+    }
+
+    @Override
+    public JComponent getTabComponent() {
+        return latencyMetricsPanel;
+    }
+
+    @Override
+    public void prepareData() throws ClientException {
+        prepareData(null);
+    }
+
+    @Override
+    public void prepareData(List<DashboardStatus> statuses) throws ClientException {
+        // Use this map to look up channel names from channel Ids
+        final Map<String, String> channelNameMap = new HashMap<String, String>();
+
+        try {
+            SwingUtilities.invokeAndWait(new Runnable() {
+
+                @Override
+                public void run() {
+                    Set<DashboardStatus> channelStatuses = PlatformUI.MIRTH_FRAME.getDashboardPanel().getSelectedChannelStatuses();
+                    if (channelStatuses != null) {
+                        for (DashboardStatus channelStatus : channelStatuses) {
+                            channelNameMap.put(channelStatus.getChannelId(), channelStatus.getName());
+                        }
+                    }
+                }
+            });
+        } catch (Exception e) {
+        }
+
+        Vector<Object> newData = new Vector<Object>();
+        Vector<Object> newTraceData = new Vector<Object>();
+
+        try {
+            LatencyMetricsServletInterface servlet = PlatformUI.MIRTH_FRAME.getClient().getServlet(LatencyMetricsServletInterface.class);
+            Set<String> channelIds = new HashSet<String>(channelNameMap.keySet());
+            daoMetricsEnabled = servlet.isDaoMetricsEnabled();
+            messageTracingEnabled = servlet.isMessageTracingEnabled();
+            samplePercentage = servlet.getMessageTraceSamplePercentage();
+
+            addRows(newData, "Stage", servlet.getStageStatisticsPost(channelIds), channelNameMap);
+            addRows(newData, "Message Store", servlet.getDaoStatisticsPost(channelIds), channelNameMap);
+            addTraceRows(newTraceData, servlet.getSampledMessageTracesPost(channelIds), channelNameMap);
+        } catch (ClientException e) {
+            if (e instanceof ForbiddenException) {
+                // Don't error. Let an empty table be shown
+                parent.alertThrowable(parent, e, false);
+            } else {
+                throw e;
+            }
+        }
+
+        data = newData;
+        traceData = newTraceData;
+    }
+
+    @Override
+    public void update() {
+        latencyMetricsPanel.updateTable(data, traceData, daoMetricsEnabled, messageTracingEnabled, samplePercentage);
+    }
+
+    @Override
+    public void update(List<DashboardStatus> statuses) {
+        update();
+    }
+
+    @Override
+    public String getPluginPointName() {
+        return LatencyMetricsServletInterface.PLUGIN_POINT;
+    }
+
+    Set<String> getSelectedChannelIds() {
+        Set<String> channelIds = new HashSet<String>();
+        Set<DashboardStatus> channelStatuses = PlatformUI.MIRTH_FRAME.getDashboardPanel().getSelectedChannelStatuses();
+
+        if (channelStatuses != null) {
+            for (DashboardStatus channelStatus : channelStatuses) {
+                channelIds.add(channelStatus.getChannelId());
+            }
+        }
+
+        return channelIds;
+    }
+
+    private static void addRows(Vector<Object> data, String type, List<LatencyStatistics> statisticsList, Map<String, String> channelNameMap) {
+        for (LatencyStatistics statistics : statisticsList) {
+            Vector<Object> row = new Vector<Object>();
+            row.add(StringUtils.defaultString(channelNameMap.get(statistics.getChannelId()), statistics.getChannelId()));
+            row.add(type);
+            row.add(statistics.getName());
+            row.add(statistics.getCount());
+            row.add(format(statistics.getRate()));
+            row.add(format(statistics.getMean()));
+            row.add(format(statistics.getP50()));
+            row.add(format(statistics.getP90()));
+            row.add(format(statistics.getP99()));
+            row.add(format(statistics.getP999()));
+            row.add(format(statistics.getMax()));
+            data.add(row);
+        }
+    }
+
+    private static void addTraceRows(Vector<Object> data, List<SampledMessageTrace> samples, Map<String, String> channelNameMap) {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+
+        for (SampledMessageTrace sample : samples) {
+            Vector<Object> row = new Vector<Object>();
+            row.add(StringUtils.defaultString(channelNameMap.get(sample.getChannelId()), sample.getChannelId()));
+            row.add(sample.getConnectorName());
+            row.add(sample.getMessageId());
+            row.add(sample.getReceivedDate() != null ? dateFormat.format(sample.getReceivedDate().getTime()) : "");
+            // One stage per line on the server, shown on a single row here
+            row.add(StringUtils.replace(sample.getTrace(), "\n", "; "));
+            data.add(row);
+        }
+    }
+
+    private static String format(double value) {
+        return String.format("%.3f", value);
+    }
+
+    @Override
+    public void start() {}
+
+    @Override
+    public void stop() {}
+
+    @Override
+    public void reset() {}
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ * 
+ * http://www.mirthcorp.com
+ * 
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.plugins.latencymetrics;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.Set;
+import java.util.Vector;
+import java.util.prefs.Preferences;
+
+import javax.swing.JButton;
+import javax.swing.JCheckBox;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JSpinner;
+import javax.swing.ListSelectionModel;
+import javax.swing.SpinnerNumberModel;
+import javax.swing.SwingWorker;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+
+import net.miginfocom.swing.MigLayout;
+
+import org.jdesktop.swingx.JXTable;
+import org.jdesktop.swingx.decorator.HighlighterFactory;
+
+import com.mirth.connect.client.ui.Mirth;
+import com.mirth.connect.client.ui.PlatformUI;
+import com.mirth.connect.client.ui.RefreshTableModel;
+import com.mirth.connect.client.ui.UIConstants;
+import com.mirth.connect.client.ui.components.MirthTable;
+
+public class LatencyMetricsPanel extends JPanel {
+
+    private LatencyMetricsClient plugin;
+    private boolean updatingControls = false;
+
+    public LatencyMetricsPanel(LatencyMetricsClient plugin) {
+        this.plugin = plugin;
+        initComponents();
+    }
+
+    private void initComponents() {
+        setBackground(UIConstants.BACKGROUND_COLOR);
+        setLayout(new MigLayout("fill, insets 0, gap 0", "[grow]", "[][grow][grow]"));
+
+        daoMetricsCheckBox = new JCheckBox("Time message store operations");
+        daoMetricsCheckBox.setBackground(UIConstants.BACKGROUND_COLOR);
+        daoMetricsCheckBox.setFocusable(false);
+        daoMetricsCheckBox.setToolTipText("<html>When checked, the time taken by each message store operation is recorded for every channel.<br/>This adds a small amount of overhead to each operation.</html>");
+        daoMetricsCheckBox.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent evt) {
+                setDaoMetricsEnabled(daoMetricsCheckBox.isSelected());
+            }
+        });
+
+        messageTracingCheckBox = new JCheckBox("Trace message stages");
+        messageTracingCheckBox.setBackground(UIConstants.BACKGROUND_COLOR);
+        messageTracingCheckBox.setFocusable(false);
+        messageTracingCheckBox.setToolTipText("<html>When checked, the time each new message spends in each processing stage is recorded for every channel.<br/>This adds a small amount of overhead to each message.</html>");
+        messageTracingCheckBox.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent evt) {
+                setMessageTracingEnabled(messageTracingCheckBox.isSelected());
+            }
+        });
+
+        sampleLabel = new JLabel("Keep traces of");
+        sampleSpinner = new JSpinner(new SpinnerNumberModel(0d, 0d, 100d, 1d));
+        sampleSpinner.setToolTipText("<html>The percentage of traced messages whose trace is kept. The last 100 traces can be viewed below,<br/>and each trace is also stored with its message so that it can be viewed in the message browser.</html>");
+        sampleSpinner.addChangeListener(new ChangeListener() {
+            @Override
+            public void stateChanged(ChangeEvent evt) {
+                if (!updatingControls) {
+                    setSamplePercentage(((Number) sampleSpinner.getValue()).doubleValue());
+                }
+            }
+        });
+        samplePercentLabel = new JLabel("% of messages");
+
+        resetButton = new JButton("Reset");
+        resetButton.setToolTipText("Clears the recorded metrics of the selected channels, or of all channels if none are selected.");
+        resetButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent evt) {
+                resetMetrics();
+            }
+        });
+
+        metricsTable = new MirthTable();
+        metricsTable.getTableHeader().setReorderingAllowed(false);
+        metricsTable.setSortable(false);
+        metricsTable.setEditable(false);
+        metricsTable.setFocusable(false);
+        metricsTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        metricsTable.setModel(new RefreshTableModel(new String[][] {}, new String[] { "Channel",
+                "Type", "Name", "Count", "Rate (/s)", "Mean (ms)", "50% (ms)", "90% (ms)", "99% (ms)",
+                "99.9% (ms)", "Max (ms)" }));
+
+        if (Preferences.userNodeForPackage(Mirth.class).getBoolean("highlightRows", true)) {
+            metricsTable.setHighlighters(HighlighterFactory.createAlternateStriping(UIConstants.HIGHLIGHTER_COLOR, UIConstants.BACKGROUND_COLOR));
+        }
+
+        metricsScrollPane = new JScrollPane();
+        metricsScrollPane.setViewportView(metricsTable);
+
+        tracesTable = new MirthTable();
+        tracesTable.getTableHeader().setReorderingAllowed(false);
+        tracesTable.setSortable(false);
+        tracesTable.setEditable(false);
+        tracesTable.setFocusable(false);
+        tracesTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        tracesTable.setModel(new RefreshTableModel(new String[][] {}, new String[] { "Channel",
+                "Connector", "Message ID", "Received", "Trace" }));
+
+        if (Preferences.userNodeForPackage(Mirth.class).getBoolean("highlightRows", true)) {
+            tracesTable.setHighlighters(HighlighterFactory.createAlternateStriping(UIConstants.HIGHLIGHTER_COLOR, UIConstants.BACKGROUND_COLOR));
+        }
+
+        tracesScrollPane = new JScrollPane();
+        tracesScrollPane.setViewportView(tracesTable);
+
+        add(daoMetricsCheckBox, "split 6, gapleft 6");
+        add(messageTracingCheckBox, "gapleft 12");
+        add(sampleLabel, "gapleft 12");
+        add(sampleSpinner, "w 60!");
+        add(samplePercentLabel);
+        add(resetButton, "gapleft 12, wrap");
+        add(metricsScrollPane, "grow, wrap");
+        add(tracesScrollPane, "grow");
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public synchronized void updateTable(Vector<Object> data, Vector<Object> traceData, boolean daoMetricsEnabled, boolean messageTracingEnabled, double samplePercentage) {
+        RefreshTableModel model = (RefreshTableModel) metricsTable.getModel();
+        model.refreshDataVector((Vector) data);
+        ((RefreshTableModel) tracesTable.getModel()).refreshDataVector((Vector) traceData);
+        daoMetricsCheckBox.setSelected(daoMetricsEnabled);
+        messageTracingCheckBox.setSelected(messageTracingEnabled);
+
+        updatingControls = true;
+        try {
+            sampleSpinner.setValue(samplePercentage);
+        } finally {
+            updatingControls = false;
+        }
+    }
+
+    private void setDaoMetricsEnabled(final boolean enabled) {
+        SwingWorker<Void, Void> worker = new SwingWorker<Void, Void>() {
+
+            public Void doInBackground() {
+                try {
+                    PlatformUI.MIRTH_FRAME.getClient().getServlet(LatencyMetricsServletInterface.class).setDaoMetricsEnabled(enabled);
+                } catch (Exception e) {
+                    PlatformUI.MIRTH_FRAME.alertThrowable(PlatformUI.MIRTH_FRAME, e);
+                }
+                return null;
+            }
+        };
+
+        worker.execute();
+    }
+
+    private void setMessageTracingEnabled(final boolean enabled) {
+        SwingWorker<Void, Void> worker = new SwingWorker<Void, Void>() {
+
+            public Void doInBackground() {
+                try {
+                    PlatformUI.MIRTH_FRAME.getClient().getServlet(LatencyMetricsServletInterface.class).setMessageTracingEnabled(enabled);
+                } catch (Exception e) {
+                    PlatformUI.MIRTH_FRAME.alertThrowable(PlatformUI.MIRTH_FRAME, e);
+                }
+                return null;
+            }
+        };
+
+        worker.execute();
+    }
+
+    private void setSamplePercentage(final double percentage) {
+        SwingWorker<Void, Void> worker = new SwingWorker<Void, Void>() {
+
+            public Void doInBackground() {
+                try {
+                    PlatformUI.MIRTH_FRAME.getClient().getServlet(LatencyMetricsServletInterface.class).setMessageTraceSamplePercentage(percentage);
+                } catch (Exception e) {
+                    PlatformUI.MIRTH_FRAME.alertThrowable(PlatformUI.MIRTH_FRAME, e);
+                }
+                return null;
+            }
+        };
+
+        worker.execute();
+    }
+
+    private void resetMetrics() {
+        final Set<String> channelIds = plugin.getSelectedChannelIds();
+
+        SwingWorker<Void, Void> worker = new SwingWorker<Void, Void>() {
+
+            public Void doInBackground() {
+                try {
+                    LatencyMetricsServletInterface servlet = PlatformUI.MIRTH_FRAME.getClient().getServlet(LatencyMetricsServletInterface.class);
+                    servlet.resetDaoMetrics(channelIds);
+                    servlet.resetStageMetrics(channelIds);
+                } catch (Exception e) {
+                    PlatformUI.MIRTH_FRAME.alertThrowable(PlatformUI.MIRTH_FRAME, e);
+                }
+                return null;
+            }
+        };
+
+        worker.execute();
+    }
+
+    private JCheckBox daoMetricsCheckBox;
+    private JCheckBox messageTracingCheckBox;
+    private JLabel sampleLabel;
+    private JSpinner sampleSpinner;
+    private JLabel samplePercentLabel;
+    private JButton resetButton;
+    private JXTable metricsTable;
+    private JScrollPane metricsScrollPane;
+    private JXTable tracesTable;
+    private JScrollPane tracesScrollPane;
+}
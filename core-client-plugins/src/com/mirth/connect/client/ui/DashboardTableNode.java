@@ -228,7 +228,9 @@ public class DashboardTableNode extends AbstractDashboardTableNode {
                     break;
 
                 case STARTED:
-                    if (isStarted(status.getChildStatuses())) {
+                    if (status.isRecovering()) {
+                        row[colOffset] = new CellData(UIConstants.ICON_BULLET_ORANGE, "Started (Recovering, " + status.getRecoveredMessages() + " done)");
+                    } else if (isStarted(status.getChildStatuses())) {
                         row[colOffset] = new CellData(UIConstants.ICON_BULLET_GREEN, "Started");
                     } else {
                         row[colOffset] = new CellData(UIConstants.ICON_BULLET_ORANGE, "Started");
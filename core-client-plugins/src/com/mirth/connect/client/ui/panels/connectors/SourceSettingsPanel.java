@@ -122,6 +122,10 @@ public class SourceSettingsPanel extends JPanel {
             batchResponseLastRadio.setSelected(true);
         }
 
+        batchDispatchThreadsLabel.setEnabled(propertiesInterface.canBatch() && properties.isProcessBatch());
+        batchDispatchThreadsField.setEnabled(propertiesInterface.canBatch() && properties.isProcessBatch());
+        batchDispatchThreadsField.setText(String.valueOf(Math.max(properties.getBatchDispatchThreads(), 1)));
+
         enableMaxProcessingThreads();
         processingThreadsField.setText(String.valueOf(properties.getProcessingThreads()));
     }
@@ -255,6 +259,8 @@ public class SourceSettingsPanel extends JPanel {
 
         properties.setFirstResponse(batchResponseFirstRadio.isSelected());
 
+        properties.setBatchDispatchThreads(NumberUtils.toInt(batchDispatchThreadsField.getText(), 0));
+
         properties.setProcessingThreads(NumberUtils.toInt(processingThreadsField.getText(), 0));
     }
 
@@ -273,6 +279,11 @@ public class SourceSettingsPanel extends JPanel {
             valid = false;
         }
 
+        if (properties.isProcessBatch() && properties.getBatchDispatchThreads() <= 0) {
+            batchDispatchThreadsField.setBackground(UIConstants.INVALID_COLOR);
+            valid = false;
+        }
+
         return valid;
     }
 
@@ -300,6 +311,7 @@ public class SourceSettingsPanel extends JPanel {
     public void resetInvalidProperties() {
         queueBufferSizeField.setBackground(null);
         processingThreadsField.setBackground(null);
+        batchDispatchThreadsField.setBackground(null);
     }
 
     public void updateQueueWarning(MessageStorageMode messageStorageMode) {
@@ -384,6 +396,12 @@ public class SourceSettingsPanel extends JPanel {
         batchResponseLastRadio.setToolTipText("<html>Each message in the batch contains its own response that is generated via the method selected above.<br> Select either the response from the first or last message in the batch to be sent back to the originating system.</html>");
         batchResponseButtonGroup.add(batchResponseLastRadio);
 
+        batchDispatchThreadsLabel = new JLabel("Batch Dispatch Threads:");
+
+        batchDispatchThreadsField = new MirthTextField();
+        batchDispatchThreadsField.setDocument(new MirthFieldConstraints(0, false, false, true));
+        batchDispatchThreadsField.setToolTipText("<html>The number of messages from a single batch that may be dispatched<br/>to the channel at once. Responses are still handled in batch order.<br/>This is limited by Max Processing Threads, and when it is greater<br/>than 1, the processing order of batch messages is NOT guaranteed.</html>");
+
         processingThreadsLabel = new JLabel("Max Processing Threads:");
 
         processingThreadsField = new MirthTextField();
@@ -407,6 +425,8 @@ public class SourceSettingsPanel extends JPanel {
         add(batchResponseLabel, "newline, right");
         add(batchResponseFirstRadio, "split");
         add(batchResponseLastRadio);
+        add(batchDispatchThreadsLabel, "newline, right");
+        add(batchDispatchThreadsField, "w 50!");
         add(processingThreadsLabel, "newline, right");
         add(processingThreadsField, "w 50!");
     }
@@ -419,12 +439,16 @@ public class SourceSettingsPanel extends JPanel {
         batchResponseLabel.setEnabled(true);
         batchResponseFirstRadio.setEnabled(true);
         batchResponseLastRadio.setEnabled(true);
+        batchDispatchThreadsLabel.setEnabled(true);
+        batchDispatchThreadsField.setEnabled(true);
     }
 
     private void processBatchNoRadioActionPerformed(ActionEvent evt) {
         batchResponseLabel.setEnabled(false);
         batchResponseFirstRadio.setEnabled(false);
         batchResponseLastRadio.setEnabled(false);
+        batchDispatchThreadsLabel.setEnabled(false);
+        batchDispatchThreadsField.setEnabled(false);
     }
 
     private JLabel sourceQueueLabel;
@@ -440,6 +464,8 @@ public class SourceSettingsPanel extends JPanel {
     private JLabel batchResponseLabel;
     private MirthRadioButton batchResponseFirstRadio;
     private MirthRadioButton batchResponseLastRadio;
+    private JLabel batchDispatchThreadsLabel;
+    private MirthTextField batchDispatchThreadsField;
     private JLabel processingThreadsLabel;
     private MirthTextField processingThreadsField;
 }
\ No newline at end of file
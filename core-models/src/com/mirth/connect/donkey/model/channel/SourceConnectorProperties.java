@@ -76,6 +76,7 @@ public class SourceConnectorProperties implements Serializable, Migratable, Purg
     private int processingThreads;
     private Map<String, String> resourceIds;
     private int queueBufferSize;
+    private int batchDispatchThreads;
 
     public SourceConnectorProperties() {
         this(RESPONSE_NONE);
@@ -90,6 +91,7 @@ public class SourceConnectorProperties implements Serializable, Migratable, Purg
         this.resourceIds = new LinkedHashMap<String, String>();
         resourceIds.put("Default Resource", "[Default Resource]");
         this.queueBufferSize = 0;
+        this.batchDispatchThreads = 1;
     }
     
     public SourceConnectorProperties(SourceConnectorProperties props) {
@@ -99,6 +101,7 @@ public class SourceConnectorProperties implements Serializable, Migratable, Purg
     	firstResponse = props.isFirstResponse();
     	processingThreads = props.getProcessingThreads();
     	queueBufferSize = props.getQueueBufferSize();
+    	batchDispatchThreads = props.getBatchDispatchThreads();
     	
     	resourceIds = new LinkedHashMap<>();
     	for (String resourceIdKey : props.getResourceIds().keySet()) {
@@ -162,6 +165,18 @@ public class SourceConnectorProperties implements Serializable, Migratable, Purg
         this.queueBufferSize = queueBufferSize;
     }
 
+    /**
+     * The number of messages from a single batch that may be dispatched to the channel at once.
+     * Values of 1 or less dispatch batch messages one at a time.
+     */
+    public int getBatchDispatchThreads() {
+        return batchDispatchThreads;
+    }
+
+    public void setBatchDispatchThreads(int batchDispatchThreads) {
+        this.batchDispatchThreads = batchDispatchThreads;
+    }
+
     public boolean equals(Object obj) {
         return EqualsBuilder.reflectionEquals(this, obj);
     }
@@ -242,6 +257,7 @@ public class SourceConnectorProperties implements Serializable, Migratable, Purg
         purgedProperties.put("processingThreads", processingThreads);
         purgedProperties.put("resourceIdsCount", resourceIds.size());
         purgedProperties.put("queueBufferSize", queueBufferSize);
+        purgedProperties.put("batchDispatchThreads", batchDispatchThreads);
         return purgedProperties;
     }
 }
@@ -0,0 +1,22 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ * 
+ * http://www.mirthcorp.com
+ * 
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.donkey.model.message;
+
+import java.util.Map;
+
+/**
+ * Implemented by serializers of binary data types that can read the binary message directly,
+ * rather than the Base64 encoded string form passed to {@link MessageSerializer#toXML(String)}.
+ */
+public interface BinaryMessageSerializer extends MessageSerializer {
+    public String toXML(byte[] message) throws MessageSerializerException;
+
+    public void populateMetaData(byte[] message, Map<String, Object> map);
+}
@@ -35,6 +35,7 @@ public class ConnectorMessage implements Serializable {
     private MessageContent response;
     private MessageContent responseTransformed;
     private MessageContent processedResponse;
+    private MessageContent traceContent;
     private MapContent sourceMapContent = new MapContent();
     private MapContent connectorMapContent = new MapContent();
     private MapContent channelMapContent = new MapContent();
@@ -54,6 +55,7 @@ public class ConnectorMessage implements Serializable {
     private transient Integer queueBucket;
     private transient boolean attemptedFirst;
     private transient long dispatcherId;
+    private transient MessageTrace trace;
 
     public ConnectorMessage() {}
 
@@ -141,6 +143,8 @@ public class ConnectorMessage implements Serializable {
                 return responseTransformed;
             case PROCESSED_RESPONSE:
                 return processedResponse;
+            case MESSAGE_TRACE:
+                return traceContent;
             default:
                 return null;
         }
@@ -172,6 +176,9 @@ public class ConnectorMessage implements Serializable {
             case PROCESSED_RESPONSE:
                 setProcessedResponse(messageContent);
                 break;
+            case MESSAGE_TRACE:
+                setTraceContent(messageContent);
+                break;
             default:
                 /*
                  * if the content type is not recognized, then this code needs to be fixed to
@@ -246,6 +253,18 @@ public class ConnectorMessage implements Serializable {
         this.processedResponse = processedResponse;
     }
 
+    /**
+     * Returns the stored trace of this connector message's processing stages, or null if the
+     * message was not sampled while it was being traced.
+     */
+    public MessageContent getTraceContent() {
+        return traceContent;
+    }
+
+    public void setTraceContent(MessageContent traceContent) {
+        this.traceContent = traceContent;
+    }
+
     public long getMessageId() {
         return messageId;
     }
@@ -287,7 +306,7 @@ public class ConnectorMessage implements Serializable {
     }
 
     public Map<String, Object> getSourceMap() {
-        return sourceMapContent.getMap();
+        return sourceMapContent.getTrackedMap();
     }
 
     public void setSourceMap(Map<String, Object> sourceMap) {
@@ -295,7 +314,7 @@ public class ConnectorMessage implements Serializable {
     }
 
     public Map<String, Object> getConnectorMap() {
-        return connectorMapContent.getMap();
+        return connectorMapContent.getTrackedMap();
     }
 
     public void setConnectorMap(Map<String, Object> connectorMap) {
@@ -303,7 +322,7 @@ public class ConnectorMessage implements Serializable {
     }
 
     public Map<String, Object> getChannelMap() {
-        return channelMapContent.getMap();
+        return channelMapContent.getTrackedMap();
     }
 
     public void setChannelMap(Map<String, Object> channelMap) {
@@ -311,7 +330,7 @@ public class ConnectorMessage implements Serializable {
     }
 
     public Map<String, Object> getResponseMap() {
-        return responseMapContent.getMap();
+        return responseMapContent.getTrackedMap();
     }
 
     public void setResponseMap(Map<String, Object> responseMap) {
@@ -494,6 +513,18 @@ public class ConnectorMessage implements Serializable {
         this.dispatcherId = dispatcherId;
     }
 
+    /**
+     * Returns the trace of this connector message's processing stages, or null if the message is
+     * not being traced.
+     */
+    public MessageTrace getTrace() {
+        return trace;
+    }
+
+    public void setTrace(MessageTrace trace) {
+        this.trace = trace;
+    }
+
     public String toString() {
         return "message " + messageId + "-" + metaDataId + " (" + status + ")";
     }
@@ -17,13 +17,13 @@ import org.apache.commons.lang3.text.WordUtils;
  * 
  * RAW, PROCESSED_RAW, TRANSFORMED, ENCODED, SENT, RESPONSE, RESPONSE_TRANSFORMED,
  * PROCESSED_RESPONSE, CONNECTOR_MAP, CHANNEL_MAP, RESPONSE_MAP, PROCESSING_ERROR,
- * POSTPROCESSOR_ERROR, RESPONSE_ERROR, SOURCE_MAP
+ * POSTPROCESSOR_ERROR, RESPONSE_ERROR, SOURCE_MAP, MESSAGE_TRACE
  */
 public enum ContentType {
     RAW(1), PROCESSED_RAW(2), TRANSFORMED(3), ENCODED(4), SENT(5), RESPONSE(
             6), RESPONSE_TRANSFORMED(7), PROCESSED_RESPONSE(8), CONNECTOR_MAP(9), CHANNEL_MAP(
                     10), RESPONSE_MAP(11), PROCESSING_ERROR(
-                            12), POSTPROCESSOR_ERROR(13), RESPONSE_ERROR(14), SOURCE_MAP(15);
+                            12), POSTPROCESSOR_ERROR(13), RESPONSE_ERROR(14), SOURCE_MAP(15), MESSAGE_TRACE(16);
 
     private static int PROCESSING_ERROR_CODE = 1 << 0;
     private static int POSTPROCESSOR_ERROR_CODE = 1 << 1;
@@ -84,6 +84,8 @@ public enum ContentType {
             return RESPONSE_ERROR;
         if (contentType == ContentType.SOURCE_MAP.getContentTypeCode())
             return SOURCE_MAP;
+        if (contentType == ContentType.MESSAGE_TRACE.getContentTypeCode())
+            return MESSAGE_TRACE;
 
         return null;
     }
@@ -9,19 +9,24 @@
 
 package com.mirth.connect.donkey.model.message;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 public class MapContent extends Content {
     private Object content = new HashMap<String, Object>();
     private transient boolean persisted = false;
+    private transient int changes = 0;
+    private transient Integer storedChanges;
+    private transient Map<String, Object> trackedMap;
 
     public MapContent() {
 
     }
 
     public MapContent(Map<String, Object> map, boolean persisted) {
-        this.content = map;
+        this.content = unwrap(map);
         this.persisted = persisted;
     }
 
@@ -34,8 +39,28 @@ public class MapContent extends Content {
         return null;
     }
 
+    /**
+     * Returns a view of the map that counts the changes made through it, or null if the content is
+     * not a map. Values other than strings, numbers and booleans may be changed in place, so reading
+     * one of them also counts as a change.
+     */
+    public Map<String, Object> getTrackedMap() {
+        Map<String, Object> map = getMap();
+
+        if (map == null) {
+            return null;
+        }
+
+        if (!(trackedMap instanceof ChangeTrackingMap) || ((ChangeTrackingMap) trackedMap).map != map) {
+            trackedMap = new ChangeTrackingMap(map);
+        }
+
+        return trackedMap;
+    }
+
     public void setMap(Map<String, Object> map) {
-        this.content = map;
+        this.content = unwrap(map);
+        changes++;
     }
 
     @Override
@@ -44,7 +69,8 @@ public class MapContent extends Content {
     }
 
     public void setContent(Object content) {
-        this.content = content;
+        this.content = unwrap(content);
+        changes++;
     }
 
     public boolean isPersisted() {
@@ -54,4 +80,142 @@ public class MapContent extends Content {
     public void setPersisted(boolean persisted) {
         this.persisted = persisted;
     }
+
+    /**
+     * Returns the number of changes made to the map so far, through the tracked map or by replacing
+     * it.
+     */
+    public int getChanges() {
+        return changes;
+    }
+
+    /**
+     * Returns the number of changes the map had when it was last stored, or null if that is not
+     * known. If it is the same as getChanges(), the map doesn't need to be serialized and stored
+     * again.
+     */
+    public Integer getStoredChanges() {
+        return storedChanges;
+    }
+
+    public void setStoredChanges(Integer storedChanges) {
+        this.storedChanges = storedChanges;
+    }
+
+    /*
+     * Maps are shared between connector messages, such as the source map, so keep the map itself
+     * rather than another content's view of it. Otherwise the view would be serialized with the
+     * message.
+     */
+    private static Object unwrap(Object content) {
+        if (content instanceof MapContent.ChangeTrackingMap) {
+            return ((MapContent.ChangeTrackingMap) content).map;
+        }
+
+        return content;
+    }
+
+    private static boolean isImmutable(Object value) {
+        return value == null || value instanceof String || value instanceof Boolean || value instanceof Character || value instanceof Integer || value instanceof Long || value instanceof Double || value instanceof Float || value instanceof Short || value instanceof Byte;
+    }
+
+    private class ChangeTrackingMap implements Map<String, Object> {
+        private Map<String, Object> map;
+
+        public ChangeTrackingMap(Map<String, Object> map) {
+            this.map = map;
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return map.isEmpty();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return map.containsKey(key);
+        }
+
+        @Override
+        public boolean containsValue(Object value) {
+            return map.containsValue(value);
+        }
+
+        @Override
+        public Object get(Object key) {
+            Object value = map.get(key);
+
+            if (!isImmutable(value)) {
+                changes++;
+            }
+
+            return value;
+        }
+
+        @Override
+        public Object put(String key, Object value) {
+            changes++;
+            return map.put(key, value);
+        }
+
+        @Override
+        public Object remove(Object key) {
+            changes++;
+            return map.remove(key);
+        }
+
+        @Override
+        public void putAll(Map<? extends String, ? extends Object> m) {
+            changes++;
+            map.putAll(m);
+        }
+
+        @Override
+        public void clear() {
+            changes++;
+            map.clear();
+        }
+
+        /*
+         * The collection views can be used to remove entries or to reach the values, so handing
+         * one out counts as a change.
+         */
+        @Override
+        public Set<String> keySet() {
+            changes++;
+            return map.keySet();
+        }
+
+        @Override
+        public Collection<Object> values() {
+            changes++;
+            return map.values();
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            changes++;
+            return map.entrySet();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return map.equals(o);
+        }
+
+        @Override
+        public int hashCode() {
+            return map.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return map.toString();
+        }
+    }
 }
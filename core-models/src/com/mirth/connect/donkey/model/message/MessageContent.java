@@ -9,6 +9,12 @@
 
 package com.mirth.connect.donkey.model.message;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.apache.commons.codec.binary.Base64OutputStream;
+import org.apache.commons.codec.binary.StringUtils;
+
 public class MessageContent extends Content {
     private String channelId;
     private long messageId;
@@ -16,6 +22,8 @@ public class MessageContent extends Content {
     private ContentType contentType;
     private String content;
     private String dataType;
+    // Binary content as received, until the Base64 string form is asked for and replaces it
+    private transient byte[] binaryContent;
 
     public MessageContent() {}
 
@@ -47,11 +55,40 @@ public class MessageContent extends Content {
 
     @Override
     public String getContent() {
+        if (content == null && binaryContent != null) {
+            // Only one form is kept, so that a large message isn't held in memory twice
+            content = encodeBinaryContent(binaryContent);
+            binaryContent = null;
+        }
         return content;
     }
 
     public void setContent(String content) {
         this.content = content;
+        this.binaryContent = null;
+    }
+
+    /**
+     * Returns true if this content was set from binary data and its string form hasn't been
+     * requested yet, in which case {@link #getBinaryContent()} can be used to read it without
+     * decoding the Base64 string form.
+     */
+    public boolean isBinary() {
+        return binaryContent != null;
+    }
+
+    public byte[] getBinaryContent() {
+        return binaryContent;
+    }
+
+    /**
+     * Sets binary content. The string form returned by {@link #getContent()} is the Base64 encoding
+     * of the data. It is only created the first time it is requested, and from then on it is kept
+     * instead of the binary content.
+     */
+    public void setBinaryContent(byte[] binaryContent) {
+        this.binaryContent = binaryContent;
+        this.content = null;
     }
 
     public String getDataType() {
@@ -77,4 +114,24 @@ public class MessageContent extends Content {
     public void setMetaDataId(Integer metaDataId) {
         this.metaDataId = metaDataId;
     }
+
+    private String encodeBinaryContent(byte[] bytes) {
+        // Chunked the same way binary messages have always been stored, sized to avoid buffer expansion
+        ByteArrayOutputStream baos = new ByteArrayOutputStream((int) (bytes.length * 1.4));
+
+        try (Base64OutputStream b64os = new Base64OutputStream(baos)) {
+            b64os.write(bytes);
+        } catch (IOException e) {
+            // Writing to a byte array can't actually fail
+            throw new IllegalStateException(e);
+        }
+
+        return StringUtils.newStringUsAscii(baos.toByteArray());
+    }
+
+    private Object writeReplace() {
+        // Binary content is transient, so make sure the string form is there to be serialized
+        getContent();
+        return this;
+    }
 }
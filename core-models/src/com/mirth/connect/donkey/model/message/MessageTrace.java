@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.donkey.model.message;
+
+/**
+ * The stages one connector message went through while being processed, with when each of them
+ * started and how long it took. Times are taken from System.nanoTime() and are reported relative to
+ * when the message was dispatched to the channel, so the trace of a source message lines up with
+ * the traces of its destinations.
+ *
+ * A trace is only ever touched by the thread currently processing its connector message, so it
+ * does not synchronize.
+ */
+public class MessageTrace {
+
+    public enum Stage {
+        CHANNEL_LOCK("Channel lock wait"),
+        SOURCE_STORE("Source store"),
+        SOURCE_QUEUE("Source queue wait"),
+        CHAIN_WAIT("Destination chain wait"),
+        PREPROCESSOR("Preprocessor"),
+        SERIALIZE("Serialize"),
+        SCRIPT_WAIT("Script executor wait"),
+        FILTER_TRANSFORMER("Filter/transformer"),
+        DESERIALIZE("Deserialize"),
+        QUEUE_WAIT("Destination queue wait"),
+        SEND("Send"),
+        RESPONSE_TRANSFORMER("Response transformer");
+
+        private String label;
+
+        private Stage(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+
+    private long dispatchTime;
+    private boolean sampled;
+    private long[] startTimes = new long[STAGES.length];
+    private long[] durations = new long[STAGES.length];
+    private int[] counts = new int[STAGES.length];
+    private long handOffTime;
+
+    /**
+     * @param dispatchTime
+     *            the System.nanoTime() at which the message was dispatched to the channel
+     * @param sampled
+     *            whether this trace should be kept once the message has been processed
+     */
+    public MessageTrace(long dispatchTime, boolean sampled) {
+        this.dispatchTime = dispatchTime;
+        this.sampled = sampled;
+    }
+
+    public long getDispatchTime() {
+        return dispatchTime;
+    }
+
+    public boolean isSampled() {
+        return sampled;
+    }
+
+    /**
+     * Adds the time between the given System.nanoTime() values to a stage. A stage that runs more
+     * than once, such as a send that is retried, keeps its first start time and the sum of its
+     * durations.
+     */
+    public void add(Stage stage, long startTime, long endTime) {
+        int index = stage.ordinal();
+
+        if (counts[index]++ == 0) {
+            startTimes[index] = startTime;
+        }
+
+        durations[index] += endTime - startTime;
+    }
+
+    public long getDuration(Stage stage) {
+        return durations[stage.ordinal()];
+    }
+
+    public int getCount(Stage stage) {
+        return counts[stage.ordinal()];
+    }
+
+    /**
+     * Remembers the current time when the message is handed to another thread, such as a queue or
+     * an executor, so that the receiving thread can tell how long it waited.
+     */
+    public void markHandOff() {
+        handOffTime = System.nanoTime();
+    }
+
+    /**
+     * Returns the time of the last hand-off and clears it, or 0 if there wasn't one.
+     */
+    public long takeHandOff() {
+        long time = handOffTime;
+        handOffTime = 0;
+        return time;
+    }
+
+    /**
+     * Returns one line per recorded stage in pipeline order, with the start of the stage and its
+     * duration in milliseconds.
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+
+        for (Stage stage : STAGES) {
+            int index = stage.ordinal();
+
+            if (counts[index] > 0) {
+                if (builder.length() > 0) {
+                    builder.append('\n');
+                }
+
+                builder.append(stage).append(": ").append(format(durations[index])).append(" ms at +").append(format(startTimes[index] - dispatchTime)).append(" ms");
+
+                if (counts[index] > 1) {
+                    builder.append(" (").append(counts[index]).append(" times)");
+                }
+            }
+        }
+
+        return builder.toString();
+    }
+
+    private static String format(long nanos) {
+        return String.format("%.3f", nanos / 1000000d);
+    }
+}
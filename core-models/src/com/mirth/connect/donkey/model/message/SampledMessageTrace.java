@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.donkey.model.message;
+
+import java.io.Serializable;
+import java.util.Calendar;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import com.thoughtworks.xstream.annotations.XStreamAlias;
+
+/**
+ * The trace of one sampled connector message, as returned by the server. The trace has one line per
+ * stage, in the format of {@link MessageTrace#toString()}.
+ */
+@XStreamAlias("sampledMessageTrace")
+public class SampledMessageTrace implements Serializable {
+    private String channelId;
+    private long messageId;
+    private int metaDataId;
+    private String connectorName;
+    private Calendar receivedDate;
+    private String trace;
+
+    public SampledMessageTrace() {}
+
+    public SampledMessageTrace(ConnectorMessage message) {
+        channelId = message.getChannelId();
+        messageId = message.getMessageId();
+        metaDataId = message.getMetaDataId();
+        connectorName = message.getConnectorName();
+        receivedDate = message.getReceivedDate();
+        trace = message.getTrace().toString();
+    }
+
+    public String getChannelId() {
+        return channelId;
+    }
+
+    public void setChannelId(String channelId) {
+        this.channelId = channelId;
+    }
+
+    public long getMessageId() {
+        return messageId;
+    }
+
+    public void setMessageId(long messageId) {
+        this.messageId = messageId;
+    }
+
+    public int getMetaDataId() {
+        return metaDataId;
+    }
+
+    public void setMetaDataId(int metaDataId) {
+        this.metaDataId = metaDataId;
+    }
+
+    public String getConnectorName() {
+        return connectorName;
+    }
+
+    public void setConnectorName(String connectorName) {
+        this.connectorName = connectorName;
+    }
+
+    public Calendar getReceivedDate() {
+        return receivedDate;
+    }
+
+    public void setReceivedDate(Calendar receivedDate) {
+        this.receivedDate = receivedDate;
+    }
+
+    public String getTrace() {
+        return trace;
+    }
+
+    public void setTrace(String trace) {
+        this.trace = trace;
+    }
+
+    @Override
+    public String toString() {
+        return ToStringBuilder.reflectionToString(this);
+    }
+}
@@ -0,0 +1,300 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.donkey.util;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.mirth.connect.donkey.model.message.InvalidMapValue;
+import com.mirth.connect.donkey.util.xstream.SerializerException;
+
+/**
+ * Compact, versioned encoding for connector, channel, response and source maps. Strings, numbers,
+ * booleans, characters, dates and lists or maps of those are written as length-prefixed tokens, so
+ * they can be read back without an XML parser. Any other value is written as a token holding its
+ * XML from the fallback serializer.
+ *
+ * Keys and string values are written as is, so searching the stored content for them still works.
+ * Encoded maps start with {@link #PREFIX}, which can never be the start of serialized XML, so
+ * {@link MapUtil#deserializeMap(Serializer, String)} reads both.
+ */
+public class MapCodec {
+
+    public static final int VERSION = 1;
+
+    private static final String MAGIC = "~m";
+
+    private static final char NULL = 'N';
+    private static final char STRING = 'S';
+    private static final char INTEGER = 'I';
+    private static final char LONG = 'J';
+    private static final char DOUBLE = 'D';
+    private static final char FLOAT = 'F';
+    private static final char SHORT = 'H';
+    private static final char BYTE = 'Y';
+    private static final char BOOLEAN = 'Z';
+    private static final char CHARACTER = 'C';
+    private static final char BIG_DECIMAL = 'E';
+    private static final char BIG_INTEGER = 'G';
+    private static final char DATE = 'T';
+    private static final char LIST = 'L';
+    private static final char HASH_MAP = 'M';
+    private static final char LINKED_HASH_MAP = 'K';
+    private static final char SERIALIZED = 'X';
+
+    private static final char END = ';';
+    private static final char SEPARATOR = ':';
+
+    public static final String PREFIX = MAGIC + VERSION + SEPARATOR;
+
+    // Deeper structures are handed to the fallback serializer, which also handles cycles
+    private static final int MAX_DEPTH = 16;
+
+    private static Logger logger = LogManager.getLogger(MapCodec.class);
+
+    /**
+     * Encodes a map. Maps other than HashMap or LinkedHashMap, or with keys that are not strings,
+     * are serialized entirely with {@link MapUtil#serializeMap(Serializer, Map)} instead.
+     */
+    public static String encode(Serializer serializer, Map<String, Object> map) {
+        if (!isSupportedMap(map)) {
+            return MapUtil.serializeMap(serializer, map);
+        }
+
+        for (Object key : map.keySet()) {
+            if (!(key instanceof String)) {
+                return MapUtil.serializeMap(serializer, map);
+            }
+        }
+
+        StringBuilder builder = new StringBuilder(PREFIX);
+        builder.append(map.getClass() == LinkedHashMap.class ? LINKED_HASH_MAP : HASH_MAP).append(map.size()).append(END);
+
+        for (Entry<String, Object> entry : map.entrySet()) {
+            writeString(builder, STRING, entry.getKey());
+            writeValue(builder, serializer, entry.getKey(), entry.getValue(), 0);
+        }
+
+        return builder.toString();
+    }
+
+    public static boolean isEncoded(String content) {
+        return content != null && content.startsWith(MAGIC);
+    }
+
+    /**
+     * Decodes a map written by {@link #encode(Serializer, Map)}. Values that were written with the
+     * fallback serializer and can no longer be deserialized are returned as
+     * {@link InvalidMapValue}s.
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object> decode(Serializer serializer, String content) {
+        int separator = content.indexOf(SEPARATOR);
+        int version;
+
+        try {
+            version = Integer.parseInt(content.substring(MAGIC.length(), separator));
+        } catch (Exception e) {
+            throw new SerializerException("Invalid encoded map header.", e);
+        }
+
+        if (version != VERSION) {
+            throw new SerializerException("Unsupported encoded map version: " + version);
+        }
+
+        try {
+            Object map = new Reader(serializer, content, separator + 1).readValue();
+
+            if (!(map instanceof Map)) {
+                throw new SerializerException("Encoded content is not a map.");
+            }
+
+            return (Map<String, Object>) map;
+        } catch (SerializerException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw new SerializerException("Invalid encoded map.", e);
+        }
+    }
+
+    private static boolean isSupportedMap(Object object) {
+        return object != null && (object.getClass() == HashMap.class || object.getClass() == LinkedHashMap.class);
+    }
+
+    private static void writeValue(StringBuilder builder, Serializer serializer, String key, Object value, int depth) {
+        if (value == null) {
+            builder.append(NULL);
+            return;
+        }
+
+        Class<?> type = value.getClass();
+
+        if (type == String.class) {
+            writeString(builder, STRING, (String) value);
+        } else if (type == Integer.class) {
+            builder.append(INTEGER).append(value).append(END);
+        } else if (type == Long.class) {
+            builder.append(LONG).append(value).append(END);
+        } else if (type == Double.class) {
+            builder.append(DOUBLE).append(value).append(END);
+        } else if (type == Float.class) {
+            builder.append(FLOAT).append(value).append(END);
+        } else if (type == Short.class) {
+            builder.append(SHORT).append(value).append(END);
+        } else if (type == Byte.class) {
+            builder.append(BYTE).append(value).append(END);
+        } else if (type == Boolean.class) {
+            builder.append(BOOLEAN).append(((Boolean) value) ? '1' : '0');
+        } else if (type == Character.class) {
+            builder.append(CHARACTER).append(((Character) value).charValue());
+        } else if (type == BigDecimal.class) {
+            builder.append(BIG_DECIMAL).append(((BigDecimal) value).toString()).append(END);
+        } else if (type == BigInteger.class) {
+            builder.append(BIG_INTEGER).append(value).append(END);
+        } else if (type == Date.class) {
+            builder.append(DATE).append(((Date) value).getTime()).append(END);
+        } else if (type == ArrayList.class && depth < MAX_DEPTH) {
+            List<?> list = (List<?>) value;
+            builder.append(LIST).append(list.size()).append(END);
+
+            for (Object item : list) {
+                writeValue(builder, serializer, key, item, depth + 1);
+            }
+        } else if (isSupportedMap(value) && depth < MAX_DEPTH) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            builder.append(type == LinkedHashMap.class ? LINKED_HASH_MAP : HASH_MAP).append(map.size()).append(END);
+
+            for (Entry<?, ?> entry : map.entrySet()) {
+                writeValue(builder, serializer, key, entry.getKey(), depth + 1);
+                writeValue(builder, serializer, key, entry.getValue(), depth + 1);
+            }
+        } else if (value instanceof InvalidMapValue) {
+            writeString(builder, SERIALIZED, ((InvalidMapValue) value).getValueXML());
+        } else {
+            String valueXML;
+
+            try {
+                valueXML = serializer.serialize(value);
+            } catch (Exception e) {
+                logger.warn("Non-serializable value found in map, converting value to string with key: " + key);
+                writeString(builder, STRING, value.toString());
+                return;
+            }
+
+            writeString(builder, SERIALIZED, valueXML);
+        }
+    }
+
+    private static void writeString(StringBuilder builder, char type, String value) {
+        builder.append(type).append(value.length()).append(SEPARATOR).append(value);
+    }
+
+    private static class Reader {
+
+        private Serializer serializer;
+        private String content;
+        private int position;
+
+        public Reader(Serializer serializer, String content, int position) {
+            this.serializer = serializer;
+            this.content = content;
+            this.position = position;
+        }
+
+        public Object readValue() {
+            char type = content.charAt(position++);
+
+            switch (type) {
+                case NULL:
+                    return null;
+                case STRING:
+                    return readString();
+                case INTEGER:
+                    return Integer.valueOf(readToken());
+                case LONG:
+                    return Long.valueOf(readToken());
+                case DOUBLE:
+                    return Double.valueOf(readToken());
+                case FLOAT:
+                    return Float.valueOf(readToken());
+                case SHORT:
+                    return Short.valueOf(readToken());
+                case BYTE:
+                    return Byte.valueOf(readToken());
+                case BOOLEAN:
+                    return content.charAt(position++) == '1';
+                case CHARACTER:
+                    return content.charAt(position++);
+                case BIG_DECIMAL:
+                    return new BigDecimal(readToken());
+                case BIG_INTEGER:
+                    return new BigInteger(readToken());
+                case DATE:
+                    return new Date(Long.parseLong(readToken()));
+                case LIST:
+                    int size = Integer.parseInt(readToken());
+                    List<Object> list = new ArrayList<Object>(size);
+                    for (int i = 0; i < size; i++) {
+                        list.add(readValue());
+                    }
+                    return list;
+                case HASH_MAP:
+                case LINKED_HASH_MAP:
+                    int entries = Integer.parseInt(readToken());
+                    Map<Object, Object> map = type == LINKED_HASH_MAP ? new LinkedHashMap<Object, Object>() : new HashMap<Object, Object>();
+                    for (int i = 0; i < entries; i++) {
+                        map.put(readValue(), readValue());
+                    }
+                    return map;
+                case SERIALIZED:
+                    String valueXML = readString();
+                    try {
+                        return serializer.deserialize(valueXML, Object.class);
+                    } catch (Exception e) {
+                        return new InvalidMapValue(valueXML);
+                    }
+                default:
+                    throw new SerializerException("Unknown value type '" + type + "' in encoded map at position " + (position - 1) + ".");
+            }
+        }
+
+        private String readToken() {
+            int end = content.indexOf(END, position);
+            if (end < 0) {
+                throw new SerializerException("Unterminated value in encoded map at position " + position + ".");
+            }
+
+            String token = content.substring(position, end);
+            position = end + 1;
+            return token;
+        }
+
+        private String readString() {
+            int separator = content.indexOf(SEPARATOR, position);
+            if (separator < 0) {
+                throw new SerializerException("Invalid string length in encoded map at position " + position + ".");
+            }
+
+            int length = Integer.parseInt(content.substring(position, separator));
+            position = separator + 1 + length;
+            return content.substring(separator + 1, position);
+        }
+    }
+}
@@ -92,6 +92,10 @@ public class MapUtil {
 
     @SuppressWarnings("unchecked")
     public static Map<String, Object> deserializeMap(Serializer serializer, String serializedMap) {
+        if (MapCodec.isEncoded(serializedMap)) {
+            return MapCodec.decode(serializer, serializedMap);
+        }
+
         try {
             return (Map<String, Object>) serializer.deserialize(serializedMap, Map.class);
         } catch (Exception e) {
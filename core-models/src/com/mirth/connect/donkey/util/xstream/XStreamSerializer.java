@@ -16,6 +16,7 @@ import java.util.List;
 import org.xmlpull.mxp1.MXParser;
 
 import com.mirth.connect.donkey.model.channel.CronProperty;
+import com.mirth.connect.donkey.model.channel.LatencyStatistics;
 import com.mirth.connect.donkey.model.event.ConnectionStatusEventType;
 import com.mirth.connect.donkey.model.event.DeployedStateEventType;
 import com.mirth.connect.donkey.model.event.ErrorEventType;
@@ -23,6 +24,7 @@ import com.mirth.connect.donkey.model.event.MessageEventType;
 import com.mirth.connect.donkey.model.message.ConnectorMessage;
 import com.mirth.connect.donkey.model.message.Message;
 import com.mirth.connect.donkey.model.message.Response;
+import com.mirth.connect.donkey.model.message.SampledMessageTrace;
 import com.mirth.connect.donkey.model.message.attachment.Attachment;
 import com.mirth.connect.donkey.util.Serializer;
 import com.thoughtworks.xstream.XStream;
@@ -39,10 +41,12 @@ public class XStreamSerializer implements Serializer {
         ConnectionStatusEventType.class,
         ConnectorMessage.class,
         CronProperty.class,
+        LatencyStatistics.class,
         ErrorEventType.class,
         Message.class,
         MessageEventType.class,
-        Response.class
+        Response.class,
+        SampledMessageTrace.class
     }; // @formatter:on
 
     private XStream xstream;
@@ -35,6 +35,7 @@ public class ChannelProperties implements Serializable, Migratable, Purgable {
     private boolean encryptData;
     private boolean encryptAttachments;
     private boolean encryptCustomMetaData;
+    private boolean compressMessageContent;
     private boolean removeContentOnCompletion;
     private boolean removeOnlyFilteredOnCompletion;
     private boolean removeAttachmentsOnCompletion;
@@ -50,6 +51,7 @@ public class ChannelProperties implements Serializable, Migratable, Purgable {
         encryptData = false;
         encryptAttachments = false;
         encryptCustomMetaData = false;
+        compressMessageContent = false;
         initialState = DeployedState.STARTED;
         storeAttachments = true;
         metaDataColumns = new ArrayList<MetaDataColumn>();
@@ -82,6 +84,14 @@ public class ChannelProperties implements Serializable, Migratable, Purgable {
         this.encryptData = encryptData;
     }
 
+    public boolean isCompressMessageContent() {
+        return compressMessageContent;
+    }
+
+    public void setCompressMessageContent(boolean compressMessageContent) {
+        this.compressMessageContent = compressMessageContent;
+    }
+
     public boolean isEncryptAttachments() {
         return encryptAttachments;
     }
@@ -220,6 +230,7 @@ public class ChannelProperties implements Serializable, Migratable, Purgable {
         purgedProperties.put("encryptData", encryptData);
         purgedProperties.put("encryptAttachments", encryptAttachments);
         purgedProperties.put("encryptCustomMetaData", encryptCustomMetaData);
+        purgedProperties.put("compressMessageContent", compressMessageContent);
         purgedProperties.put("removeContentOnCompletion", removeContentOnCompletion);
         purgedProperties.put("removeAttachmentsOnCompletion", removeAttachmentsOnCompletion);
         purgedProperties.put("initialState", initialState);
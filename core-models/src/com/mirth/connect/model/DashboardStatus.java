@@ -47,6 +47,10 @@ public class DashboardStatus implements Serializable {
     private Long queued = 0L;
     private boolean waitForPrevious = false;
     private StatusType statusType;
+    private boolean recovering = false;
+    private Long recoveredMessages = 0L;
+    private int activeDestinationChains = 0;
+    private long destinationChainWaitTime = 0L;
 
     public String getChannelId() {
         return this.channelId;
@@ -160,6 +164,41 @@ public class DashboardStatus implements Serializable {
         this.statusType = statusType;
     }
 
+    public boolean isRecovering() {
+        return recovering;
+    }
+
+    public void setRecovering(boolean recovering) {
+        this.recovering = recovering;
+    }
+
+    public Long getRecoveredMessages() {
+        return recoveredMessages;
+    }
+
+    public void setRecoveredMessages(Long recoveredMessages) {
+        this.recoveredMessages = recoveredMessages;
+    }
+
+    public int getActiveDestinationChains() {
+        return activeDestinationChains;
+    }
+
+    public void setActiveDestinationChains(int activeDestinationChains) {
+        this.activeDestinationChains = activeDestinationChains;
+    }
+
+    /**
+     * Returns the average time in milliseconds that destination chains waited before they started.
+     */
+    public long getDestinationChainWaitTime() {
+        return destinationChainWaitTime;
+    }
+
+    public void setDestinationChainWaitTime(long destinationChainWaitTime) {
+        this.destinationChainWaitTime = destinationChainWaitTime;
+    }
+
     public String getKey() {
         return channelId + "-" + metaDataId + "-" + statusType.toString();
     }
@@ -10,6 +10,7 @@
 package com.mirth.connect.connectors.core.file.filesystems;
 
 import java.io.BufferedInputStream;
+import java.io.DataInputStream;
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.InputStream;
@@ -21,6 +22,12 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 
 import org.apache.commons.collections4.MapUtils;
 import org.apache.commons.compress.utils.IOUtils;
@@ -52,8 +59,14 @@ import software.amazon.awssdk.http.apache.ApacheHttpClient;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
 import software.amazon.awssdk.services.s3.model.CommonPrefix;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
 import software.amazon.awssdk.services.s3.model.CopyObjectRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
 import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
@@ -64,8 +77,11 @@ import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
 import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
 import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
 import software.amazon.awssdk.services.s3.model.S3Object;
 import software.amazon.awssdk.services.s3.model.S3Response;
+import software.amazon.awssdk.services.s3.model.UploadPartCopyRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
 import software.amazon.awssdk.services.sts.StsClient;
 import software.amazon.awssdk.services.sts.StsClientBuilder;
 import software.amazon.awssdk.services.sts.auth.StsGetSessionTokenCredentialsProvider;
@@ -75,6 +91,14 @@ public class S3Connection implements FileSystemConnection {
 
     static final String DELIMITER = "/";
 
+    // Objects larger than one part are uploaded in parts, several at a time
+    static final long MULTIPART_PART_SIZE = 8 * 1024 * 1024;
+    static final int MULTIPART_MAX_CONCURRENT_PARTS = 4;
+
+    // CopyObject only supports objects up to 5 GB, larger objects are copied in parts
+    static final long MAX_COPY_SIZE = 5L * 1024 * 1024 * 1024;
+    static final long COPY_PART_SIZE = 1024 * 1024 * 1024;
+
     public class S3FileInfo implements FileInfo {
 
         private String bucketName;
@@ -159,6 +183,10 @@ public class S3Connection implements FileSystemConnection {
     public S3Client client;
     public StsClient sts;
     int stsDuration;
+    public long multipartPartSize = MULTIPART_PART_SIZE;
+    public int multipartMaxConcurrentParts = MULTIPART_MAX_CONCURRENT_PARTS;
+    public long maxCopySize = MAX_COPY_SIZE;
+    public long copyPartSize = COPY_PART_SIZE;
 
     public S3Connection(FileSystemConnectionOptions fileSystemOptions, int timeout) throws Exception {
         this.fileSystemOptions = fileSystemOptions;
@@ -498,6 +526,18 @@ public class S3Connection implements FileSystemConnection {
             key = prefix + key;
         }
 
+        if (contentLength > multipartPartSize) {
+            CompleteMultipartUploadResponse result = uploadParts(client, bucketName, key, message, contentLength);
+
+            if (connectorMap != null) {
+                addMetadataIfNotNull(connectorMap, "s3ETag", unquote(result.eTag()));
+                addMetadataIfNotNull(connectorMap, "s3ExpirationTime", result.expiration());
+                addMetadataIfNotNull(connectorMap, "s3SSEAlgorithm", result.serverSideEncryptionAsString());
+                addMetadataIfNotNull(connectorMap, "s3VersionId", result.versionId());
+            }
+            return;
+        }
+
         PutObjectRequest putRequest = PutObjectRequest.builder().bucket(bucketName).key(key).metadata(getCustomHeaders()).build();
         PutObjectResponse result = client.putObject(putRequest, RequestBody.fromInputStream(message, contentLength));
 
@@ -579,14 +619,34 @@ public class S3Connection implements FileSystemConnection {
                 CustomS3Response<GetObjectResponse> response = client.getObject(getRequest, new CustomResponseTransformer<GetObjectResponse>());
 
                 try {
-                    PutObjectRequest putRequest = PutObjectRequest.builder().bucket(toBucketName).key(toKey).metadata(getCustomHeaders()).build();
-                    client.putObject(putRequest, RequestBody.fromInputStream(new BufferedInputStream(response.getData()), response.getResponse().contentLength()));
+                    long contentLength = response.getResponse().contentLength();
+
+                    if (contentLength > multipartPartSize) {
+                        uploadParts(client, toBucketName, toKey, response.getData(), contentLength);
+                    } else {
+                        PutObjectRequest putRequest = PutObjectRequest.builder().bucket(toBucketName).key(toKey).metadata(getCustomHeaders()).build();
+                        client.putObject(putRequest, RequestBody.fromInputStream(new BufferedInputStream(response.getData()), contentLength));
+                    }
                 } finally {
                     IOUtils.closeQuietly(response.getData());
                 }
             } else {
                 String fromUrl = URLEncoder.encode(fromBucketName + DELIMITER + fromKey, StandardCharsets.UTF_8.toString());
-                client.copyObject(CopyObjectRequest.builder().copySource(fromUrl).bucket(toBucketName).key(toKey).build());
+
+                try {
+                    client.copyObject(CopyObjectRequest.builder().copySource(fromUrl).bucket(toBucketName).key(toKey).build());
+                } catch (S3Exception e) {
+                    if (e.statusCode() != 400) {
+                        throw e;
+                    }
+
+                    HeadObjectResponse head = client.headObject(HeadObjectRequest.builder().bucket(fromBucketName).key(fromKey).build());
+                    if (head.contentLength() <= maxCopySize) {
+                        throw e;
+                    }
+
+                    copyParts(client, fromUrl, head, toBucketName, toKey);
+                }
             }
 
             // delete original
@@ -596,6 +656,123 @@ public class S3Connection implements FileSystemConnection {
         }
     }
 
+    /**
+     * Uploads an object in parts. Parts are read from the stream one at a time and uploaded on
+     * separate threads, so at most multipartMaxConcurrentParts parts are held in memory. The upload
+     * is aborted if any part fails.
+     */
+    CompleteMultipartUploadResponse uploadParts(final S3Client client, final String bucketName, final String key, InputStream message, long contentLength) throws Exception {
+        final String uploadId = client.createMultipartUpload(CreateMultipartUploadRequest.builder().bucket(bucketName).key(key).metadata(getCustomHeaders()).build()).uploadId();
+        int partCount = (int) ((contentLength + multipartPartSize - 1) / multipartPartSize);
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(partCount, multipartMaxConcurrentParts));
+        final Semaphore permits = new Semaphore(multipartMaxConcurrentParts);
+        List<Future<CompletedPart>> futures = new ArrayList<Future<CompletedPart>>();
+        List<CompletedPart> parts = new ArrayList<CompletedPart>();
+
+        try {
+            DataInputStream input = new DataInputStream(message);
+
+            for (int partNumber = 1; partNumber <= partCount; partNumber++) {
+                permits.acquire();
+
+                // Stop reading as soon as a part has failed
+                while (parts.size() < futures.size() && futures.get(parts.size()).isDone()) {
+                    parts.add(getResult(futures.get(parts.size())));
+                }
+
+                final int number = partNumber;
+                final byte[] part = new byte[(int) Math.min(multipartPartSize, contentLength - (partNumber - 1) * multipartPartSize)];
+                input.readFully(part);
+
+                futures.add(executor.submit(new Callable<CompletedPart>() {
+                    @Override
+                    public CompletedPart call() throws Exception {
+                        try {
+                            UploadPartRequest request = UploadPartRequest.builder().bucket(bucketName).key(key).uploadId(uploadId).partNumber(number).contentLength((long) part.length).build();
+                            return CompletedPart.builder().partNumber(number).eTag(client.uploadPart(request, RequestBody.fromBytes(part)).eTag()).build();
+                        } finally {
+                            permits.release();
+                        }
+                    }
+                }));
+            }
+
+            while (parts.size() < futures.size()) {
+                parts.add(getResult(futures.get(parts.size())));
+            }
+
+            return client.completeMultipartUpload(CompleteMultipartUploadRequest.builder().bucket(bucketName).key(key).uploadId(uploadId).multipartUpload(CompletedMultipartUpload.builder().parts(parts).build()).build());
+        } catch (Exception e) {
+            executor.shutdownNow();
+            abortUpload(client, bucketName, key, uploadId);
+            throw e;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Copies an object that is too large for CopyObject in parts, several at a time. The metadata
+     * of the source object is kept, the same as with CopyObject.
+     */
+    void copyParts(final S3Client client, final String fromUrl, HeadObjectResponse head, final String toBucketName, final String toKey) throws Exception {
+        final String uploadId = client.createMultipartUpload(CreateMultipartUploadRequest.builder().bucket(toBucketName).key(toKey).contentType(head.contentType()).metadata(head.metadata()).build()).uploadId();
+        final long contentLength = head.contentLength();
+        int partCount = (int) ((contentLength + copyPartSize - 1) / copyPartSize);
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(partCount, multipartMaxConcurrentParts));
+        List<Future<CompletedPart>> futures = new ArrayList<Future<CompletedPart>>();
+        List<CompletedPart> parts = new ArrayList<CompletedPart>();
+
+        try {
+            for (int partNumber = 1; partNumber <= partCount; partNumber++) {
+                final int number = partNumber;
+                final long start = (partNumber - 1) * copyPartSize;
+
+                futures.add(executor.submit(new Callable<CompletedPart>() {
+                    @Override
+                    public CompletedPart call() throws Exception {
+                        String range = "bytes=" + start + "-" + (Math.min(start + copyPartSize, contentLength) - 1);
+                        UploadPartCopyRequest request = UploadPartCopyRequest.builder().copySource(fromUrl).copySourceRange(range).bucket(toBucketName).key(toKey).uploadId(uploadId).partNumber(number).build();
+                        return CompletedPart.builder().partNumber(number).eTag(client.uploadPartCopy(request).copyPartResult().eTag()).build();
+                    }
+                }));
+            }
+
+            for (Future<CompletedPart> future : futures) {
+                parts.add(getResult(future));
+            }
+
+            client.completeMultipartUpload(CompleteMultipartUploadRequest.builder().bucket(toBucketName).key(toKey).uploadId(uploadId).multipartUpload(CompletedMultipartUpload.builder().parts(parts).build()).build());
+        } catch (Exception e) {
+            executor.shutdownNow();
+            abortUpload(client, toBucketName, toKey, uploadId);
+            throw e;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private void abortUpload(S3Client client, String bucketName, String key, String uploadId) {
+        try {
+            client.abortMultipartUpload(AbortMultipartUploadRequest.builder().bucket(bucketName).key(key).uploadId(uploadId).build());
+        } catch (Exception e) {
+            logger.warn("Unable to abort multipart upload " + uploadId + " to [bucket: " + bucketName + ", key: " + key + "]", e);
+        }
+    }
+
+    private <T> T getResult(Future<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+    }
+
     private class CustomS3Response<T extends S3Response> {
         private T response;
         private InputStream data;
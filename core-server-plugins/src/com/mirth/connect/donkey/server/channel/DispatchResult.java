@@ -39,6 +39,14 @@ public class DispatchResult {
         this.responseDate = Calendar.getInstance();
     }
 
+    /**
+     * Creates the result for a message that failed before it could be stored, so it has no
+     * message ID.
+     */
+    public DispatchResult(ChannelException channelException) {
+        this(0, null, null, false, false, channelException);
+    }
+
     public long getMessageId() {
         return messageId;
     }
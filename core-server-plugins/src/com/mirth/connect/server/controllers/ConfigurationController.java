@@ -258,6 +258,35 @@ public abstract class ConfigurationController extends Controller {
 
     public abstract int getStatsUpdateInterval();
 
+    public abstract int getQueueSnapshotInterval();
+
+    public abstract boolean isQueueDeferBufferFill();
+
+    public abstract String getDestinationChainExecutor();
+
+    public abstract int getDestinationChainThreads();
+
+    public abstract int getDestinationChainChannelThreads();
+
+    /**
+     * Returns the maximum number of PDF documents that Document Writers render at the same time, or
+     * 0 for no limit.
+     */
+    public abstract int getDocumentWriterMaxRenders();
+
+    public abstract boolean isDaoMetricsEnabled();
+
+    /**
+     * Returns true if message maps are stored in the compact MapCodec encoding instead of XML.
+     * Versions before the encoding was added, and external tools that read the content tables,
+     * can't parse it, so it is off by default.
+     */
+    public abstract boolean isCompactMessageMaps();
+
+    public abstract boolean isMessageTracingEnabled();
+
+    public abstract double getMessageTraceSamplePercentage();
+
     public abstract Integer getRhinoLanguageVersion();
 
     public abstract int getStartupLockSleep();
@@ -73,6 +73,15 @@ public interface EngineController {
 
     public DispatchResult dispatchRawMessage(String channelId, RawMessage rawMessage, boolean force, boolean canBatch) throws ChannelException, BatchMessageException;
 
+    /**
+     * Dispatches several raw messages to a channel. If the channel has its source queue enabled,
+     * the messages are persisted in a single transaction and queued together. Otherwise each
+     * message is dispatched on its own, and a message that fails before it is stored gets a
+     * dispatch result with a channel exception instead of failing the others. The dispatch results
+     * are in the same order as the raw messages.
+     */
+    public List<DispatchResult> dispatchRawMessages(String channelId, List<RawMessage> rawMessages, boolean force, boolean canBatch) throws ChannelException, BatchMessageException;
+
     /**
      * Returns a list of DashboardStatus objects representing the running channels.
      * 
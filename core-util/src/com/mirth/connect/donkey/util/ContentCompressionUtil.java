@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.donkey.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.commons.codec.binary.Base64InputStream;
+import org.apache.commons.codec.binary.Base64OutputStream;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Compresses message content before it is stored. Compressed content is Deflate compressed, Base64
+ * encoded and prefixed with a marker, so it can still be stored in the existing text columns and
+ * content that was stored uncompressed can be told apart and read as is.
+ */
+public class ContentCompressionUtil {
+
+    /*
+     * Starts with a control character so it won't be mistaken for the beginning of a message. Any
+     * content that does start with the marker is always compressed, so it reads back unchanged.
+     */
+    public static final String COMPRESSED_PREFIX = "\u0001DFL\u0001";
+
+    // Content shorter than this rarely gets smaller after compressing and encoding
+    public static final int MIN_COMPRESS_LENGTH = 256;
+
+    /**
+     * Returns the compressed form of the content if compression is enabled and it makes the content
+     * smaller, otherwise returns the content itself.
+     */
+    public static String compress(String content, boolean enabled) {
+        if (content == null) {
+            return null;
+        }
+
+        boolean marked = isCompressed(content);
+        if (!marked && (!enabled || content.length() < MIN_COMPRESS_LENGTH)) {
+            return content;
+        }
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(content.length() / 2);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+
+        try (OutputStream outputStream = new DeflaterOutputStream(new Base64OutputStream(baos, true, 0, null), deflater)) {
+            outputStream.write(content.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            deflater.end();
+        }
+
+        String compressed = COMPRESSED_PREFIX + new String(baos.toByteArray(), StandardCharsets.US_ASCII);
+        return marked || compressed.length() < content.length() ? compressed : content;
+    }
+
+    /**
+     * Returns the original content if the given content was compressed, otherwise returns the
+     * content itself.
+     */
+    public static String decompress(String content) {
+        if (!isCompressed(content)) {
+            return content;
+        }
+
+        byte[] encoded = content.substring(COMPRESSED_PREFIX.length()).getBytes(StandardCharsets.US_ASCII);
+
+        try (InputStream inputStream = new InflaterInputStream(new Base64InputStream(new ByteArrayInputStream(encoded)))) {
+            return IOUtils.toString(inputStream, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static boolean isCompressed(String content) {
+        return content != null && content.startsWith(COMPRESSED_PREFIX);
+    }
+}
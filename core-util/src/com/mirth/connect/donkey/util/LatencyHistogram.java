@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.donkey.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-size histogram of non-negative values that many threads can record into without locking.
+ * Values are counted in log-linear buckets in the same way HdrHistogram does: every power of two
+ * is split into 32 buckets, so any percentile read back is within about 3% of the recorded value.
+ *
+ * Values above the highest trackable value are counted in the last bucket, but the maximum is
+ * still kept exactly. Reading while other threads are recording gives a slightly blurred but
+ * otherwise usable picture.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT >> 1;
+
+    private final long highestTrackableValue;
+    private final AtomicLongArray counts;
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder totalSum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+    private volatile long startTime = System.currentTimeMillis();
+
+    public LatencyHistogram(long highestTrackableValue) {
+        if (highestTrackableValue < SUB_BUCKET_COUNT) {
+            throw new IllegalArgumentException("The highest trackable value must be at least " + SUB_BUCKET_COUNT);
+        }
+
+        this.highestTrackableValue = highestTrackableValue;
+        counts = new AtomicLongArray(getBucketIndex(highestTrackableValue) + 1);
+    }
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+
+        counts.incrementAndGet(getBucketIndex(Math.min(value, highestTrackableValue)));
+        totalCount.increment();
+        totalSum.add(value);
+
+        long currentMax;
+        while (value > (currentMax = max.get()) && !max.compareAndSet(currentMax, value)) {}
+    }
+
+    public long getCount() {
+        return totalCount.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long count = totalCount.sum();
+        return count > 0 ? (double) totalSum.sum() / count : 0;
+    }
+
+    /**
+     * Returns the time in milliseconds that recording started, or that the histogram was last
+     * reset.
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * Returns the mean number of values recorded per second since recording started or the
+     * histogram was last reset.
+     */
+    public double getRate() {
+        long elapsed = System.currentTimeMillis() - startTime;
+        return elapsed > 0 ? totalCount.sum() * 1000d / elapsed : 0;
+    }
+
+    public long getValueAtPercentile(double percentile) {
+        return getValuesAtPercentiles(percentile)[0];
+    }
+
+    /**
+     * Returns the value at or below which the given percentages of the recorded values fall. All
+     * of them are read from the same copy of the counts, so they are consistent with each other.
+     * Each value is the highest value of its bucket, but never more than the maximum.
+     */
+    public long[] getValuesAtPercentiles(double... percentiles) {
+        long[] snapshot = new long[counts.length()];
+        long total = 0;
+
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+
+        long currentMax = max.get();
+        long[] values = new long[percentiles.length];
+
+        for (int p = 0; p < percentiles.length; p++) {
+            if (total == 0) {
+                continue;
+            }
+
+            double percentile = Math.min(Math.max(percentiles[p], 0), 100);
+            long target = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+            long cumulative = 0;
+
+            for (int i = 0; i < snapshot.length; i++) {
+                cumulative += snapshot[i];
+
+                if (cumulative >= target) {
+                    values[p] = Math.min(getHighestValueInBucket(i), currentMax);
+                    break;
+                }
+            }
+        }
+
+        return values;
+    }
+
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+
+        totalCount.reset();
+        totalSum.reset();
+        max.set(0);
+        startTime = System.currentTimeMillis();
+    }
+
+    static int getBucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+
+        // Keep the top bits of the value, and count by how far they had to be shifted down
+        int shift = 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift);
+        return SUB_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_HALF_COUNT + (subBucket - SUB_BUCKET_HALF_COUNT);
+    }
+
+    static long getHighestValueInBucket(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+
+        int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF_COUNT + 1;
+        long subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_HALF_COUNT + SUB_BUCKET_HALF_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
@@ -13,12 +13,10 @@ import java.io.StringReader;
 import java.io.StringWriter;
 import java.io.Writer;
 
-import javax.xml.XMLConstants;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 
@@ -27,6 +25,8 @@ import org.apache.logging.log4j.Logger;
 import org.w3c.dom.Document;
 import org.xml.sax.InputSource;
 
+import com.mirth.connect.util.XmlParserPool;
+
 public class DocumentSerializer {
     private Logger logger = LogManager.getLogger(this.getClass());
     private String[] cDataElements = null;
@@ -50,19 +50,10 @@ public class DocumentSerializer {
     }
 
     public void toXML(Document source, Writer writer) {
+        Transformer transformer = null;
+
         try {
-            TransformerFactory factory = TransformerFactory.newInstance();
-            factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_DTD, ""); 
-            factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_STYLESHEET, "");
-
-            // When Saxon-B is on the classpath setting this attribute throws an
-            // IllegalArgumentException.
-            try {
-                factory.setAttribute("indent-number", new Integer(4));
-            } catch (IllegalArgumentException ex) {
-                logger.warn("Could not set Document Serializer attribute: indent-number", ex);
-            }
-            Transformer transformer = factory.newTransformer();
+            transformer = XmlParserPool.borrowTransformer();
 
             if (omitXmlDeclaration) {
                 transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
@@ -99,6 +90,8 @@ public class DocumentSerializer {
             transformer.transform(new DOMSource(source), new StreamResult(writer));
         } catch (Exception e) {
             logger.error(e.getMessage());
+        } finally {
+            XmlParserPool.releaseTransformer(transformer);
         }
     }
 
@@ -110,13 +103,15 @@ public class DocumentSerializer {
 
     public Document fromXML(String source) {
         Document document = null;
+        DocumentBuilder db = null;
 
         try {
-    		DocumentBuilderFactory dbf = getSecureDocumentBuilderFactory();
-    		DocumentBuilder db = dbf.newDocumentBuilder();
-    		document = db.parse(new InputSource(new StringReader(source)));
+            db = XmlParserPool.borrowDocumentBuilder();
+            document = db.parse(new InputSource(new StringReader(source)));
         } catch (Exception e) {
             logger.error(e);
+        } finally {
+            XmlParserPool.releaseDocumentBuilder(db);
         }
 
         return document;
@@ -1,9 +1,11 @@
 package com.mirth.connect.model.converters;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.util.List;
 
 import org.apache.logging.log4j.LogManager;
@@ -24,22 +26,19 @@ public class ObjectJSONSerializer {
     
     // Object -> XML -> JSON
     public void serialize(Object object, OutputStream outputStream) throws IOException {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        OutputStreamWriter xmlWriter = new OutputStreamWriter(baos, "UTF-8");
+        StringWriter xmlWriter = new StringWriter();
         ObjectXMLSerializer.getInstance().serialize(object, xmlWriter);
         
-        String xmlString = baos.toString();
-        String jsonString = "";
-        
-        // Our xml util xml to json
+        // Our xml util xml to json, written to the stream as it is converted
+        Writer jsonWriter = new OutputStreamWriter(outputStream, "UTF-8");
         try {
-            jsonString = JsonXmlUtil.xmlToJson(xmlString);
+            JsonXmlUtil.xmlToJson(new StringReader(xmlWriter.toString()), jsonWriter);
         } catch (Exception e) {
             logger.error(e);
             throw new SerializerException(e);
         }
         
-        outputStream.write(jsonString.getBytes());
+        jsonWriter.flush();
     }
     
     /* Converts a source JSON string to XML then calls ObjectXMLSerializer.deserialize(...)
@@ -9,11 +9,12 @@
 
 package com.mirth.connect.util;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.io.Writer;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
@@ -31,16 +32,11 @@ import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import javax.xml.stream.XMLStreamWriter;
-import javax.xml.transform.Result;
-import javax.xml.transform.Source;
 import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.TransformerFactoryConfigurationError;
-import javax.xml.transform.stax.StAXResult;
-import javax.xml.transform.stax.StAXSource;
 
-import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.Pair;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
@@ -70,6 +66,11 @@ public class JsonXmlUtil {
 
     private static final String SEPARATOR = ":";
 
+    // Creating and configuring the factories on every conversion is expensive, so they're shared
+    private static final XMLInputFactory xmlInputFactory = createXMLInputFactory();
+    private static final XMLOutputFactory xmlOutputFactory = XMLOutputFactory.newInstance();
+    private static final JsonStreamFactory jsonStreamFactory = JsonStreamFactory.newFactory();
+
     public static String xmlToJson(String xmlStr) throws IOException, XMLStreamException, FactoryConfigurationError, TransformerConfigurationException, TransformerException, TransformerFactoryConfigurationError {
         return xmlToJson(xmlStr, true);
     }
@@ -85,25 +86,43 @@ public class JsonXmlUtil {
     }
 
     public static String xmlToJson(JsonXMLConfig config, String xmlStr, boolean normalizeNamespaces, boolean alwaysArray, boolean alwaysExpandObjects) throws IOException, XMLStreamException, FactoryConfigurationError, TransformerConfigurationException, TransformerException, TransformerFactoryConfigurationError {
-        try (InputStream inputStream = IOUtils.toInputStream(xmlStr);
-                ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-            // create source (XML)
-            XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
-            xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
-            XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(inputStream);
-            Source source = new StAXSource(reader);
+        StringWriter writer = new StringWriter();
 
-            // create result (JSON)
-            JsonStreamFactory streamFactory = new CorrectedJsonStreamFactory();
+        try {
+            xmlToJson(config, new StringReader(xmlStr), writer, normalizeNamespaces, alwaysArray, alwaysExpandObjects);
+        } catch (XMLStreamException e) {
+            // The string conversions have always reported parsing errors this way
+            throw new TransformerException(e);
+        }
+
+        return writer.toString();
+    }
+
+    /**
+     * Converts the XML read from the reader to JSON, writing it to the writer as it is parsed. The
+     * writer is flushed but not closed.
+     */
+    public static void xmlToJson(Reader reader, Writer writer) throws XMLStreamException {
+        xmlToJson(reader, writer, true);
+    }
 
-            JsonXMLOutputFactory outputFactory = new ExtendedJsonOutputFactory(config, streamFactory, alwaysArray, alwaysExpandObjects);
-            XMLStreamWriter writer = new ExtendedJsonStreamWriterDelegate(outputFactory.createXMLStreamWriter(outputStream), normalizeNamespaces, alwaysExpandObjects);
+    public static void xmlToJson(Reader reader, Writer writer, boolean normalizeNamespaces) throws XMLStreamException {
+        JsonXMLConfig config = new JsonXMLConfigBuilder().autoArray(true).autoPrimitive(true).prettyPrint(false).build();
+        xmlToJson(config, reader, writer, normalizeNamespaces, false, false);
+    }
+
+    public static void xmlToJson(JsonXMLConfig config, Reader reader, Writer writer, boolean normalizeNamespaces, boolean alwaysArray, boolean alwaysExpandObjects) throws XMLStreamException {
+        // create source (XML)
+        XMLStreamReader xmlReader = xmlInputFactory.createXMLStreamReader(reader);
 
-            Result result = new StAXResult(writer);
+        try {
+            // create result (JSON)
+            JsonXMLOutputFactory outputFactory = new ExtendedJsonOutputFactory(config, new CorrectedJsonStreamFactory(jsonStreamFactory), alwaysArray, alwaysExpandObjects);
+            XMLStreamWriter xmlWriter = new ExtendedJsonStreamWriterDelegate(outputFactory.createXMLStreamWriter(writer), normalizeNamespaces, alwaysExpandObjects);
 
-            // copy source to result via "identity transform"
-            getTransformerFactory().newTransformer().transform(source, result);
-            return outputStream.toString();
+            copy(xmlReader, xmlWriter);
+        } finally {
+            xmlReader.close();
         }
     }
 
@@ -114,39 +133,137 @@ public class JsonXmlUtil {
     }
 
     public static String jsonToXml(JsonXMLConfig config, String jsonStr) throws IOException, XMLStreamException, FactoryConfigurationError, TransformerConfigurationException, TransformerException, TransformerFactoryConfigurationError {
-        String xmlString = null;
         try {
-            xmlString = conversionJsontoXml(config, jsonStr);
-        } catch (TransformerException e) {
-            if ( e.getCause() instanceof XMLStreamException) {
-                String reOrderedString = reOrderJsonString(jsonStr);
-                xmlString = conversionJsontoXml(config, reOrderedString);
-            }else {
-                throw e;
+            try {
+                return conversionJsontoXml(config, jsonStr);
+            } catch (XMLStreamException e) {
+                // Attributes that come after child elements are moved to the front and converted again
+                return conversionJsontoXml(config, reOrderJsonString(jsonStr));
             }
-          
+        } catch (XMLStreamException e) {
+            throw new TransformerException(e);
         }
-        return xmlString;
     }
 
-    private static String conversionJsontoXml(JsonXMLConfig config, String jsonStr) throws XMLStreamException, FactoryConfigurationError, TransformerException, TransformerConfigurationException, IOException {
-        try (InputStream inputStream = IOUtils.toInputStream(jsonStr);
-                ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-            XMLStreamReader reader = new NormalizeXMLInputFactory(config).createXMLStreamReader(inputStream);
-            Map<String, Deque<String>> prefixByTag = ((NormalizeXMLStreamReader) reader).prefixByTag;
-            Source source = new StAXSource(reader);
+    private static String conversionJsontoXml(JsonXMLConfig config, String jsonStr) throws XMLStreamException {
+        StringWriter writer = new StringWriter();
+        jsonToXml(config, new StringReader(jsonStr), writer);
+        return writer.toString();
+    }
 
-            XMLStreamWriter writer = new NormalizeXMLStreamWriterDelegate(XMLOutputFactory.newInstance().createXMLStreamWriter(outputStream), prefixByTag);
+    /**
+     * Converts the JSON read from the reader to XML, writing it to the writer as it is parsed. The
+     * writer is flushed but not closed. Unlike {@link #jsonToXml(String)}, the JSON can only be read
+     * once, so attributes ("@" properties) must come before the child elements of each object.
+     */
+    public static void jsonToXml(Reader reader, Writer writer) throws XMLStreamException {
+        JsonXMLConfig config = new JsonXMLConfigBuilder().multiplePI(false).build();
+        jsonToXml(config, reader, writer);
+    }
+
+    public static void jsonToXml(JsonXMLConfig config, Reader reader, Writer writer) throws XMLStreamException {
+        NormalizeXMLStreamReader jsonReader = new NormalizeXMLInputFactory(config, jsonStreamFactory).createXMLStreamReader(reader);
+
+        try {
+            XMLStreamWriter xmlWriter = new NormalizeXMLStreamWriterDelegate(xmlOutputFactory.createXMLStreamWriter(writer), jsonReader.prefixByTag);
             if (config.isPrettyPrint()) {
-                writer = new PrettyXMLStreamWriter(writer);
+                xmlWriter = new PrettyXMLStreamWriter(xmlWriter);
+            }
+
+            copy(jsonReader, xmlWriter);
+        } finally {
+            jsonReader.close();
+        }
+    }
+
+    /*
+     * Copies the document from the reader to the writer. This replaces an identity transform from a
+     * StAXSource to a StAXResult, and makes the same calls on the writer that it did: namespace
+     * declarations are written before the attributes of each element, a default namespace is
+     * written with the prefix "xmlns", and comments, DTDs and entity references are left out.
+     */
+    private static void copy(XMLStreamReader reader, XMLStreamWriter writer) throws XMLStreamException {
+        int event = reader.getEventType();
+
+        if (event == XMLStreamConstants.START_DOCUMENT) {
+            event = reader.next();
+        }
+        if (event != XMLStreamConstants.START_ELEMENT) {
+            event = reader.nextTag();
+        }
+
+        writer.writeStartDocument();
+        int depth = 0;
+
+        do {
+            switch (event) {
+                case XMLStreamConstants.START_ELEMENT:
+                    depth++;
+                    copyStartElement(reader, writer);
+                    break;
+
+                case XMLStreamConstants.END_ELEMENT:
+                    writer.writeEndElement();
+                    depth--;
+                    break;
+
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                    int length = reader.getTextLength();
+                    char[] text = new char[length];
+                    reader.getTextCharacters(0, text, 0, length);
+                    writer.writeCharacters(text, 0, length);
+                    break;
+
+                case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                    writer.writeProcessingInstruction(reader.getPITarget(), reader.getPIData());
+                    break;
+
+                default:
+                    break;
+            }
+
+            event = reader.next();
+        } while (depth != 0);
+
+        writer.writeEndDocument();
+        writer.flush();
+    }
+
+    private static void copyStartElement(XMLStreamReader reader, XMLStreamWriter writer) throws XMLStreamException {
+        writer.writeStartElement(getQualifiedName(reader.getPrefix(), reader.getLocalName()));
+
+        for (int i = 0; i < reader.getNamespaceCount(); i++) {
+            String prefix = reader.getNamespacePrefix(i);
+            // Undeclaring the default namespace with xmlns="" has a null URI
+            String namespaceURI = StringUtils.defaultString(reader.getNamespaceURI(i));
+
+            if (prefix == null || prefix.isEmpty()) {
+                prefix = XMLConstants.XMLNS_ATTRIBUTE;
             }
-            Result result = new StAXResult(writer);
 
-            getTransformerFactory().newTransformer().transform(source, result);
-            return outputStream.toString();
+            writer.setPrefix(prefix, namespaceURI);
+            writer.writeNamespace(prefix, namespaceURI);
+        }
+
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            String prefix = reader.getAttributePrefix(i);
+
+            if (XMLConstants.XMLNS_ATTRIBUTE.equals(prefix) || ((prefix == null || prefix.isEmpty()) && XMLConstants.XMLNS_ATTRIBUTE.equals(reader.getAttributeLocalName(i)))) {
+                // The XML 1.1 scanner also reports namespace declarations as attributes
+                continue;
+            } else if (prefix == null || prefix.isEmpty()) {
+                writer.writeAttribute(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+            } else {
+                writer.writeAttribute(prefix, StringUtils.defaultString(reader.getAttributeNamespace(i)), reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+            }
         }
     }
 
+    private static String getQualifiedName(String prefix, String localName) {
+        return prefix == null || prefix.isEmpty() ? localName : prefix + SEPARATOR + localName;
+    }
+
     private static void reOrderJsonNode(JsonNode currentNode) {
         if (currentNode.isObject()) {
 
@@ -513,14 +630,27 @@ public class JsonXmlUtil {
             super(config);
         }
 
+        public NormalizeXMLInputFactory(JsonXMLConfig config, JsonStreamFactory streamFactory) {
+            super(config, streamFactory);
+        }
+
         @Override
-        public JsonXMLStreamReader createXMLStreamReader(InputStream stream) throws XMLStreamException {
+        public NormalizeXMLStreamReader createXMLStreamReader(InputStream stream) throws XMLStreamException {
             try {
                 return new NormalizeXMLStreamReader(decorate(streamFactory.createJsonStreamSource(stream)), multiplePI, namespaceSeparator, namespaceMappings);
             } catch (IOException e) {
                 throw new XMLStreamException(e);
             }
         }
+
+        @Override
+        public NormalizeXMLStreamReader createXMLStreamReader(Reader reader) throws XMLStreamException {
+            try {
+                return new NormalizeXMLStreamReader(decorate(streamFactory.createJsonStreamSource(reader)), multiplePI, namespaceSeparator, namespaceMappings);
+            } catch (IOException e) {
+                throw new XMLStreamException(e);
+            }
+        }
     }
 
     private static class NormalizeXMLStreamReader extends JsonXMLStreamReader {
@@ -657,10 +787,9 @@ public class JsonXmlUtil {
         }
     }
 
-    private static TransformerFactory getTransformerFactory() {
-        TransformerFactory tf = TransformerFactory.newInstance();
-        tf.setAttribute(XMLConstants.ACCESS_EXTERNAL_DTD, "");
-        tf.setAttribute(XMLConstants.ACCESS_EXTERNAL_STYLESHEET, "");
-        return tf;
+    private static XMLInputFactory createXMLInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        return factory;
     }
 }
@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * A buffered reader for tokenizers that need to look ahead at the next few characters without
+ * consuming them. Unlike {@link BufferedReader#mark(int)} and reset, looking ahead does not
+ * allocate anything, and any number of characters can be looked at.
+ *
+ * It is still a BufferedReader, so it can be handed to scripts that expect one, and reading lines
+ * or marking from it works the same.
+ */
+public class LookaheadReader extends BufferedReader {
+
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private Reader in;
+    private char[] buffer = new char[DEFAULT_BUFFER_SIZE];
+    private int position = 0;
+    private int limit = 0;
+    private int markPosition = -1;
+    private int readAheadLimit = 0;
+    private boolean endOfInput = false;
+
+    public LookaheadReader(Reader in) {
+        // The superclass buffer is never used
+        super(in, 1);
+        this.in = in;
+    }
+
+    /**
+     * Returns the next character without consuming it, or -1 at the end of the input.
+     */
+    public int peek() throws IOException {
+        return peek(0);
+    }
+
+    /**
+     * Returns the character the given number of characters ahead without consuming anything, or
+     * -1 if the input ends before it.
+     */
+    public int peek(int offset) throws IOException {
+        return fill(offset + 1) ? buffer[position + offset] : -1;
+    }
+
+    /**
+     * Returns up to the given number of characters without consuming them. Fewer are returned if
+     * the input ends first.
+     */
+    public String peekString(int count) throws IOException {
+        fill(count);
+        return new String(buffer, position, Math.min(count, limit - position));
+    }
+
+    /**
+     * Returns true if the next characters are the given token. An empty token always matches.
+     */
+    public boolean lookingAt(String token) throws IOException {
+        int length = token.length();
+        if (!fill(length)) {
+            return false;
+        }
+
+        for (int i = 0; i < length; i++) {
+            if (buffer[position + i] != token.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Consumes the given token if the next characters match it.
+     *
+     * @return true if the token was consumed
+     */
+    public boolean consume(String token) throws IOException {
+        if (lookingAt(token)) {
+            position += token.length();
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public int read() throws IOException {
+        return fill(1) ? buffer[position++] : -1;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!fill(1)) {
+            return -1;
+        }
+
+        int count = Math.min(len, limit - position);
+        System.arraycopy(buffer, position, cbuf, off, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public String readLine() throws IOException {
+        StringBuilder line = null;
+
+        while (fill(1)) {
+            int start = position;
+            while (position < limit) {
+                char c = buffer[position];
+
+                if (c == '\n' || c == '\r') {
+                    String result = line == null ? new String(buffer, start, position - start) : line.append(buffer, start, position - start).toString();
+                    position++;
+                    if (c == '\r' && peek() == '\n') {
+                        position++;
+                    }
+                    return result;
+                }
+
+                position++;
+            }
+
+            if (line == null) {
+                line = new StringBuilder();
+            }
+            line.append(buffer, start, position - start);
+        }
+
+        return line != null ? line.toString() : null;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = 0;
+        while (skipped < n && fill(1)) {
+            int count = (int) Math.min(n - skipped, limit - position);
+            position += count;
+            skipped += count;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean ready() throws IOException {
+        return position < limit || in.ready();
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public void mark(int readAheadLimit) throws IOException {
+        if (readAheadLimit < 0) {
+            throw new IllegalArgumentException("Read-ahead limit < 0");
+        }
+        this.markPosition = position;
+        this.readAheadLimit = readAheadLimit;
+    }
+
+    @Override
+    public void reset() throws IOException {
+        if (markPosition < 0) {
+            throw new IOException("Stream not marked");
+        }
+        position = markPosition;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Reads from the underlying reader until at least the given number of characters are buffered.
+     * Returns false if the input ends first.
+     */
+    private boolean fill(int count) throws IOException {
+        while (limit - position < count) {
+            if (endOfInput) {
+                return false;
+            }
+
+            // A mark is kept until more than its read-ahead limit has been read past it
+            if (markPosition >= 0 && position - markPosition > readAheadLimit) {
+                markPosition = -1;
+            }
+
+            int keep = markPosition >= 0 ? markPosition : position;
+            if (keep > 0) {
+                System.arraycopy(buffer, keep, buffer, 0, limit - keep);
+                limit -= keep;
+                position -= keep;
+                if (markPosition >= 0) {
+                    markPosition = 0;
+                }
+            }
+
+            if (position + count > buffer.length || limit == buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + count));
+            }
+
+            int read = in.read(buffer, limit, buffer.length - limit);
+            if (read < 0) {
+                endOfInput = true;
+            } else {
+                limit += read;
+            }
+        }
+
+        return true;
+    }
+}
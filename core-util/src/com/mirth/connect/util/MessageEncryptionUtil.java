@@ -22,6 +22,7 @@ import com.mirth.connect.donkey.model.message.MapContent;
 import com.mirth.connect.donkey.model.message.Message;
 import com.mirth.connect.donkey.model.message.MessageContent;
 import com.mirth.connect.donkey.model.message.attachment.Attachment;
+import com.mirth.connect.donkey.util.ContentCompressionUtil;
 import com.mirth.connect.donkey.util.MapUtil;
 import com.mirth.connect.model.converters.ObjectXMLSerializer;
 
@@ -49,6 +50,7 @@ public class MessageEncryptionUtil {
             decryptMessageContent(connectorMessage.getResponse(), encryptor);
             decryptMessageContent(connectorMessage.getResponseTransformed(), encryptor);
             decryptMessageContent(connectorMessage.getProcessedResponse(), encryptor);
+            decryptMessageContent(connectorMessage.getTraceContent(), encryptor);
             decryptMapContent(connectorMessage.getSourceMapContent(), encryptor);
             decryptMapContent(connectorMessage.getConnectorMapContent(), encryptor);
             decryptMapContent(connectorMessage.getChannelMapContent(), encryptor);
@@ -63,7 +65,7 @@ public class MessageEncryptionUtil {
     public static void decryptMessageContent(MessageContent content, Encryptor encryptor) {
         if (content != null) {
             if (content.getContent() != null && content.isEncrypted()) {
-                content.setContent(encryptor.decrypt(content.getContent()));
+                content.setContent(ContentCompressionUtil.decompress(encryptor.decrypt(content.getContent())));
                 content.setEncrypted(false);
             }
         }
@@ -72,7 +74,7 @@ public class MessageEncryptionUtil {
     public static void decryptMapContent(MapContent content, Encryptor encryptor) {
         if (content != null) {
             if (content.getContent() != null && content.isEncrypted()) {
-                content.setMap(MapUtil.deserializeMap(ObjectXMLSerializer.getInstance(), encryptor.decrypt((String) content.getContent())));
+                content.setMap(MapUtil.deserializeMap(ObjectXMLSerializer.getInstance(), ContentCompressionUtil.decompress(encryptor.decrypt((String) content.getContent()))));
                 content.setEncrypted(false);
             }
         }
@@ -81,7 +83,7 @@ public class MessageEncryptionUtil {
     public static void decryptErrorContent(ErrorContent content, Encryptor encryptor) {
         if (content != null) {
             if (content.getContent() != null && content.isEncrypted()) {
-                content.setContent(encryptor.decrypt(content.getContent()));
+                content.setContent(ContentCompressionUtil.decompress(encryptor.decrypt(content.getContent())));
                 content.setEncrypted(false);
             }
         }
@@ -128,6 +130,7 @@ public class MessageEncryptionUtil {
             encryptMessageContent(connectorMessage.getResponse(), encryptor);
             encryptMessageContent(connectorMessage.getResponseTransformed(), encryptor);
             encryptMessageContent(connectorMessage.getProcessedResponse(), encryptor);
+            encryptMessageContent(connectorMessage.getTraceContent(), encryptor);
             encryptMapContent(connectorMessage.getSourceMapContent(), encryptor);
             encryptMapContent(connectorMessage.getConnectorMapContent(), encryptor);
             encryptMapContent(connectorMessage.getChannelMapContent(), encryptor);
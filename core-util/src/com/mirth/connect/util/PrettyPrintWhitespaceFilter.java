@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.util;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.XMLFilterImpl;
+
+/**
+ * Removes the whitespace that pretty-printing adds to XML while it is being parsed. Whitespace
+ * before a start tag and after an end tag is dropped, the same as replacing
+ * <code>\s*&lt;([^/][^&gt;]*)&gt;</code> and <code>&lt;([^&gt;]*&#47;|&#47;[^&gt;]*)&gt;\s*</code>
+ * in the source before parsing, but without copying the whole message twice. Whitespace inside an
+ * element that only contains text is kept.
+ */
+public class PrettyPrintWhitespaceFilter extends XMLFilterImpl {
+
+    private StringBuilder text = new StringBuilder();
+    private boolean afterEndTag = false;
+
+    public PrettyPrintWhitespaceFilter(XMLReader parent) {
+        super(parent);
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes atts) throws SAXException {
+        flush(true);
+        super.startElement(uri, localName, qName, atts);
+        afterEndTag = false;
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) throws SAXException {
+        flush(false);
+        super.endElement(uri, localName, qName);
+        // Empty elements end right after they start, so whitespace after them is dropped too
+        afterEndTag = true;
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) throws SAXException {
+        text.append(ch, start, length);
+    }
+
+    @Override
+    public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException {
+        text.append(ch, start, length);
+    }
+
+    @Override
+    public void endDocument() throws SAXException {
+        flush(false);
+        super.endDocument();
+    }
+
+    private void flush(boolean beforeStartTag) throws SAXException {
+        int start = 0;
+        int end = text.length();
+
+        if (afterEndTag) {
+            while (start < end && Character.isWhitespace(text.charAt(start))) {
+                start++;
+            }
+        }
+
+        if (beforeStartTag) {
+            while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+                end--;
+            }
+        }
+
+        if (end > start) {
+            char[] chars = new char[end - start];
+            text.getChars(start, end, chars, 0);
+            super.characters(chars, 0, chars.length);
+        }
+
+        text.setLength(0);
+    }
+}
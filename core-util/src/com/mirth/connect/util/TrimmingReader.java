@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.util;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reads the same characters as {@link String#trim()} would leave of the whole input, without
+ * reading it into memory first. Leading characters up to and including the space are skipped, and
+ * a run of them is only passed on once a character after it shows it isn't at the end of the
+ * input.
+ */
+public class TrimmingReader extends FilterReader {
+
+    private boolean started = false;
+    // Whitespace that was held back until a following character was found, and that character
+    private StringBuilder pending = new StringBuilder();
+    private int pendingPosition = 0;
+    private int next = -2;
+
+    public TrimmingReader(Reader in) {
+        super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (pendingPosition < pending.length()) {
+            return pending.charAt(pendingPosition++);
+        }
+
+        if (next != -2) {
+            int c = next;
+            next = -2;
+            return c;
+        }
+
+        pending.setLength(0);
+        pendingPosition = 0;
+
+        int c;
+        while ((c = in.read()) != -1 && c <= ' ') {
+            if (started) {
+                pending.append((char) c);
+            }
+        }
+
+        if (c == -1) {
+            // Whitespace at the end of the input is dropped
+            pending.setLength(0);
+            return -1;
+        }
+
+        started = true;
+        if (pending.length() > 0) {
+            next = c;
+            return pending.charAt(pendingPosition++);
+        }
+        return c;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+
+        int count = 0;
+        int c;
+        while (count < len && (c = read()) != -1) {
+            cbuf[off + count++] = (char) c;
+
+            // Don't block waiting for more input once something can be returned
+            if (pendingPosition >= pending.length() && next == -2 && !in.ready()) {
+                break;
+            }
+        }
+
+        return count > 0 ? count : -1;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = 0;
+        while (skipped < n && read() != -1) {
+            skipped++;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean ready() throws IOException {
+        return pendingPosition < pending.length() || next != -2 || in.ready();
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public void mark(int readAheadLimit) throws IOException {
+        throw new IOException("mark() not supported");
+    }
+
+    @Override
+    public void reset() throws IOException {
+        throw new IOException("reset() not supported");
+    }
+}
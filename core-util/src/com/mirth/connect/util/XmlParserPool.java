@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.util;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+import org.xml.sax.helpers.XMLReaderFactory;
+
+/**
+ * Reuses the XML parsers, transformers and compiled XPath expressions that serializers and
+ * response validators need for every message. None of these are thread-safe, so each thread keeps
+ * its own. A borrowed object must be released when the caller is done with it, after which it may
+ * be handed out again on the same thread. Borrowing again before releasing, like when a parse
+ * triggers another parse, simply creates another instance.
+ *
+ * All parsers disallow DOCTYPE declarations, and transformers do not access external DTDs or
+ * stylesheets.
+ */
+public class XmlParserPool {
+
+    private static final int MAX_IDLE_PER_THREAD = 2;
+    private static final int MAX_XPATH_EXPRESSIONS_PER_THREAD = 64;
+    private static final String DISALLOW_DOCTYPE_DECL = "http://apache.org/xml/features/disallow-doctype-decl";
+    private static final DefaultHandler NO_OP_HANDLER = new DefaultHandler();
+
+    private static Logger logger = LogManager.getLogger(XmlParserPool.class);
+
+    private static ThreadLocal<Deque<XMLReader>> xmlReaders = newPool();
+    private static ThreadLocal<Deque<DocumentBuilder>> documentBuilders = newPool();
+    private static ThreadLocal<Deque<Transformer>> transformers = newPool();
+    private static ThreadLocal<Map<String, XPathExpression>> xPathExpressions = new ThreadLocal<Map<String, XPathExpression>>() {
+        @Override
+        protected Map<String, XPathExpression> initialValue() {
+            return new LinkedHashMap<String, XPathExpression>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Entry<String, XPathExpression> eldest) {
+                    return size() > MAX_XPATH_EXPRESSIONS_PER_THREAD;
+                }
+            };
+        }
+    };
+
+    private static volatile TransformerFactory transformerFactory;
+
+    /**
+     * Returns a namespace aware SAX reader, configured the same as one from
+     * {@link XMLReaderFactory#createXMLReader()}. Callers must not change its features or
+     * properties.
+     */
+    public static XMLReader borrowXMLReader() throws SAXException {
+        XMLReader reader = xmlReaders.get().pollFirst();
+
+        if (reader == null) {
+            reader = XMLReaderFactory.createXMLReader();
+            reader.setFeature(DISALLOW_DOCTYPE_DECL, true);
+        }
+
+        return reader;
+    }
+
+    public static void releaseXMLReader(XMLReader reader) {
+        if (reader != null) {
+            // Don't hold on to the handlers, they usually reference the whole output
+            reader.setContentHandler(NO_OP_HANDLER);
+            reader.setErrorHandler(NO_OP_HANDLER);
+            reader.setDTDHandler(NO_OP_HANDLER);
+            reader.setEntityResolver(NO_OP_HANDLER);
+            release(xmlReaders, reader);
+        }
+    }
+
+    /**
+     * Returns a document builder from a default {@link DocumentBuilderFactory}, which is not
+     * namespace aware.
+     */
+    public static DocumentBuilder borrowDocumentBuilder() throws ParserConfigurationException {
+        DocumentBuilder builder = documentBuilders.get().pollFirst();
+
+        if (builder == null) {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature(DISALLOW_DOCTYPE_DECL, true);
+            builder = factory.newDocumentBuilder();
+        }
+
+        return builder;
+    }
+
+    public static void releaseDocumentBuilder(DocumentBuilder builder) {
+        if (builder != null) {
+            builder.reset();
+            release(documentBuilders, builder);
+        }
+    }
+
+    /**
+     * Returns an identity transformer that indents by four spaces when indenting is enabled. Output
+     * properties set by the caller are cleared when it is released.
+     */
+    public static Transformer borrowTransformer() throws TransformerConfigurationException {
+        Transformer transformer = transformers.get().pollFirst();
+
+        if (transformer == null) {
+            TransformerFactory factory = getTransformerFactory();
+            synchronized (factory) {
+                transformer = factory.newTransformer();
+            }
+        }
+
+        return transformer;
+    }
+
+    public static void releaseTransformer(Transformer transformer) {
+        if (transformer != null) {
+            /*
+             * Not reset(), since that would also drop the indent amount the factory configured.
+             * Callers may only set output properties.
+             */
+            transformer.setOutputProperties(null);
+            release(transformers, transformer);
+        }
+    }
+
+    /**
+     * Returns the compiled form of an XPath expression. Expressions are compiled once per thread
+     * and may only be evaluated on the calling thread.
+     */
+    public static XPathExpression getXPathExpression(String expression) throws XPathExpressionException {
+        Map<String, XPathExpression> expressions = xPathExpressions.get();
+        XPathExpression compiled = expressions.get(expression);
+
+        if (compiled == null) {
+            compiled = XPathFactory.newInstance().newXPath().compile(expression);
+            expressions.put(expression, compiled);
+        }
+
+        return compiled;
+    }
+
+    private static TransformerFactory getTransformerFactory() {
+        if (transformerFactory == null) {
+            synchronized (XmlParserPool.class) {
+                if (transformerFactory == null) {
+                    TransformerFactory factory = TransformerFactory.newInstance();
+                    factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+                    factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_STYLESHEET, "");
+
+                    // When Saxon-B is on the classpath setting this attribute throws an
+                    // IllegalArgumentException.
+                    try {
+                        factory.setAttribute("indent-number", new Integer(4));
+                    } catch (IllegalArgumentException e) {
+                        logger.warn("Could not set transformer factory attribute: indent-number", e);
+                    }
+
+                    transformerFactory = factory;
+                }
+            }
+        }
+
+        return transformerFactory;
+    }
+
+    private static <T> ThreadLocal<Deque<T>> newPool() {
+        return new ThreadLocal<Deque<T>>() {
+            @Override
+            protected Deque<T> initialValue() {
+                return new ArrayDeque<T>(MAX_IDLE_PER_THREAD);
+            }
+        };
+    }
+
+    private static <T> void release(ThreadLocal<Deque<T>> pool, T item) {
+        Deque<T> idle = pool.get();
+        if (idle.size() < MAX_IDLE_PER_THREAD) {
+            idle.offerFirst(item);
+        }
+    }
+}
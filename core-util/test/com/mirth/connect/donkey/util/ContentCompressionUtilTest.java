@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.donkey.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ContentCompressionUtilTest {
+
+    private static String createMessage() {
+        StringBuilder builder = new StringBuilder("<HL7Message>");
+        for (int i = 0; i < 50; i++) {
+            builder.append("<OBX><OBX.1><OBX.1.1>").append(i).append("</OBX.1.1></OBX.1><OBX.5><OBX.5.1>Résultat ").append(i).append("</OBX.5.1></OBX.5></OBX>");
+        }
+        return builder.append("</HL7Message>").toString();
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        String message = createMessage();
+        String compressed = ContentCompressionUtil.compress(message, true);
+
+        assertTrue(ContentCompressionUtil.isCompressed(compressed));
+        assertTrue(compressed.length() < message.length() / 4);
+        assertEquals(message, ContentCompressionUtil.decompress(compressed));
+    }
+
+    @Test
+    public void testNotCompressed() throws Exception {
+        String message = createMessage();
+        assertSame(message, ContentCompressionUtil.compress(message, false));
+        assertSame(message, ContentCompressionUtil.decompress(message));
+
+        String shortMessage = "MSH|^~\\&|";
+        assertSame(shortMessage, ContentCompressionUtil.compress(shortMessage, true));
+        assertFalse(ContentCompressionUtil.isCompressed(shortMessage));
+
+        assertNull(ContentCompressionUtil.compress(null, true));
+        assertNull(ContentCompressionUtil.decompress(null));
+    }
+
+    @Test
+    public void testMarkedContent() throws Exception {
+        // Content that happens to start with the marker still reads back unchanged
+        String message = ContentCompressionUtil.COMPRESSED_PREFIX + "abc";
+        String stored = ContentCompressionUtil.compress(message, false);
+
+        assertTrue(ContentCompressionUtil.isCompressed(stored));
+        assertEquals(message, ContentCompressionUtil.decompress(stored));
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.donkey.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBuckets() {
+        // Every value falls in a bucket whose highest value is at least it and within about 3%
+        for (long value = 0; value < 1000000; value += 1 + value / 50) {
+            long highest = LatencyHistogram.getHighestValueInBucket(LatencyHistogram.getBucketIndex(value));
+            assertTrue(highest >= value);
+            assertTrue(highest - value <= value / 32);
+        }
+
+        for (int index = 1; index < 500; index++) {
+            long lowest = LatencyHistogram.getHighestValueInBucket(index - 1) + 1;
+            assertEquals(index, LatencyHistogram.getBucketIndex(lowest));
+        }
+    }
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram(1000000);
+
+        for (int i = 1; i <= 10000; i++) {
+            histogram.record(i);
+        }
+
+        assertEquals(10000, histogram.getCount());
+        assertEquals(10000, histogram.getMax());
+        assertEquals(5000.5, histogram.getMean(), 0.001);
+
+        long[] values = histogram.getValuesAtPercentiles(50, 90, 99, 100);
+        assertEquals(5000, values[0], 5000 / 32);
+        assertEquals(9000, values[1], 9000 / 32);
+        assertEquals(9900, values[2], 9900 / 32);
+        assertEquals(10000, values[3]);
+        assertEquals(1, histogram.getValueAtPercentile(0));
+    }
+
+    @Test
+    public void testOutOfRange() {
+        LatencyHistogram histogram = new LatencyHistogram(1000);
+        histogram.record(-5);
+        histogram.record(5000000);
+
+        assertEquals(2, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(50));
+        assertEquals(5000000, histogram.getMax());
+        assertTrue(histogram.getValueAtPercentile(100) >= 1000);
+    }
+
+    @Test
+    public void testConcurrentRecording() throws Exception {
+        final LatencyHistogram histogram = new LatencyHistogram(1000000);
+        Thread[] threads = new Thread[4];
+
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 100000; i++) {
+                        histogram.record(i % 1000);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(400000, histogram.getCount());
+        assertEquals(999, histogram.getMax());
+        assertEquals(500, histogram.getValueAtPercentile(50), 500 / 32);
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+}
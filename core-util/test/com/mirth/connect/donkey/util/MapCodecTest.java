@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.donkey.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.mirth.connect.client.core.Version;
+import com.mirth.connect.donkey.model.message.InvalidMapValue;
+import com.mirth.connect.model.converters.ObjectXMLSerializer;
+
+public class MapCodecTest {
+
+    @BeforeClass
+    public static void setup() {
+        try {
+            ObjectXMLSerializer.getInstance().init(Version.getLatest().toString());
+        } catch (Exception e) {
+            // Ignore if it has already been initialized
+        }
+    }
+
+    @Test
+    public void testCommonValues() throws Exception {
+        List<Object> list = new ArrayList<Object>();
+        list.add("item;with:separators");
+        list.add(null);
+        list.add(3);
+
+        Map<Object, Object> nested = new LinkedHashMap<Object, Object>();
+        nested.put("b", 2L);
+        nested.put("a", list);
+
+        Map<String, Object> map = new HashMap<String, Object>();
+        map.put("string", "MSH|^~\\&|<tag>é");
+        map.put("empty", "");
+        map.put("integer", 42);
+        map.put("long", Long.MIN_VALUE);
+        map.put("double", Double.NaN);
+        map.put("float", 1.5f);
+        map.put("short", (short) 7);
+        map.put("byte", (byte) -1);
+        map.put("boolean", true);
+        map.put("character", ';');
+        map.put("bigDecimal", new BigDecimal("12345.6789"));
+        map.put("bigInteger", new BigInteger("123456789012345678901234567890"));
+        map.put("date", new Date(1234567890123L));
+        map.put("null", null);
+        map.put("nested", nested);
+
+        String encoded = MapCodec.encode(ObjectXMLSerializer.getInstance(), map);
+        assertTrue(MapCodec.isEncoded(encoded));
+        assertTrue(encoded.contains("MSH|^~\\&|<tag>é"));
+
+        Map<String, Object> decoded = MapUtil.deserializeMap(ObjectXMLSerializer.getInstance(), encoded);
+        assertEquals(map, decoded);
+        assertEquals(HashMap.class, decoded.getClass());
+        assertEquals(LinkedHashMap.class, decoded.get("nested").getClass());
+        assertEquals(ArrayList.class, ((Map<?, ?>) decoded.get("nested")).get("a").getClass());
+    }
+
+    @Test
+    public void testFallbackValues() throws Exception {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(1234567890123L);
+
+        Map<String, Object> map = new LinkedHashMap<String, Object>();
+        map.put("calendar", calendar);
+        map.put("invalid", new InvalidMapValue("<com.example.Missing/>"));
+
+        String encoded = MapCodec.encode(ObjectXMLSerializer.getInstance(), map);
+        assertTrue(MapCodec.isEncoded(encoded));
+
+        Map<String, Object> decoded = MapUtil.deserializeMap(ObjectXMLSerializer.getInstance(), encoded);
+        assertEquals(LinkedHashMap.class, decoded.getClass());
+        assertEquals(calendar.getTimeInMillis(), ((Calendar) decoded.get("calendar")).getTimeInMillis());
+        assertEquals("<com.example.Missing/>", ((InvalidMapValue) decoded.get("invalid")).getValueXML());
+    }
+
+    @Test
+    public void testUnsupportedMap() throws Exception {
+        Map<String, Object> map = new TreeMap<String, Object>();
+        map.put("key", "value");
+
+        // Other map types are serialized as XML, which can still be read back
+        String serialized = MapCodec.encode(ObjectXMLSerializer.getInstance(), map);
+        assertFalse(MapCodec.isEncoded(serialized));
+        assertEquals(map, MapUtil.deserializeMap(ObjectXMLSerializer.getInstance(), serialized));
+    }
+}
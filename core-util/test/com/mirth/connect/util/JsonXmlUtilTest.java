@@ -4,6 +4,10 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import javax.xml.stream.XMLStreamException;
 import javax.xml.transform.TransformerException;
 
 import org.junit.Test;
@@ -42,6 +46,37 @@ public class JsonXmlUtilTest {
 		assertEquals(EXPECTED_XML_FROM_JSON_1, JsonXmlUtil.jsonToXml(JSON_1_WITH_ATTRS_AT_END_2));
 	}
 	
+	@Test
+	public void testStreamingJsonToXml() throws Exception {
+		StringWriter writer = new StringWriter();
+		JsonXmlUtil.jsonToXml(new StringReader(JSON_1), writer);
+		assertEquals(EXPECTED_XML_FROM_JSON_1, writer.toString());
+	}
+	
+	@Test(expected = XMLStreamException.class)
+	public void testStreamingJsonWithAttrsAtEndToXml() throws Exception {
+		// The reader can't be read again to move the attributes to the front
+		JsonXmlUtil.jsonToXml(new StringReader(JSON_1_WITH_ATTRS_AT_END_1), new StringWriter());
+	}
+	
+	@Test
+	public void testStreamingXmlToJson() throws Exception {
+		StringWriter writer = new StringWriter();
+		JsonXmlUtil.xmlToJson(new StringReader(NAMESPACED_XML), writer);
+		assertEquals(JsonXmlUtil.xmlToJson(NAMESPACED_XML), writer.toString());
+		assertEquals(EXPECTED_JSON_FROM_NAMESPACED_XML, writer.toString());
+	}
+	
+	@Test
+	public void testStreamingRoundTrip() throws Exception {
+		StringWriter json = new StringWriter();
+		JsonXmlUtil.xmlToJson(new StringReader(EXPECTED_XML_FROM_JSON_1), json);
+		
+		StringWriter xml = new StringWriter();
+		JsonXmlUtil.jsonToXml(new StringReader(json.toString()), xml);
+		assertEquals(EXPECTED_XML_FROM_JSON_1, xml.toString());
+	}
+	
    @Test
     public void testReOrderNestedJsonString1() throws Exception {
         assertEquals(EXPECTED_NESTED_XML_FROM_JSON_1, JsonXmlUtil.jsonToXml(NESTED_JSON_1));
@@ -103,6 +138,10 @@ public class JsonXmlUtilTest {
             "       \"@attr2\": \"some attribute 2\"\n" + 
             "   }\n" + 
             "}";
+	private static String NAMESPACED_XML = "<p:a xmlns:p=\"urn:p\"><p:b p:c=\"1\">t</p:b><d xmlns=\"urn:d\"><!-- comment --><e><![CDATA[<f>]]></e></d></p:a>";
+	
+	private static String EXPECTED_JSON_FROM_NAMESPACED_XML = "{\"a\":{\"@xmlnsprefix\":\"p\",\"@xmlns:p\":\"urn:p\",\"b\":{\"@xmlnsprefix\":\"p\",\"@c\":{\"@xmlnsprefix\":\"p\",\"$\":1},\"$\":\"t\"},\"d\":{\"@xmlns\":\"urn:d\",\"e\":\"<f>\"}}}";
+	
 	private static String EXPECTED_XML_FROM_JSON_1 = "<?xml version=\"1.0\" ?><key1 attr1=\"some attribute\" attr2=\"some attribute 2\"><prop1>some property</prop1></key1>";
 	private static String EXPECTED_NESTED_XML_FROM_JSON_1= "<?xml version=\"1.0\" ?><key1 attr1=\"some attribute\" attr2=\"some attribute 2\"><prop1 attrN1=\"valN1\" attrN3=\"valN3\"><propN1>valN2</propN1></prop1></key1>";
 
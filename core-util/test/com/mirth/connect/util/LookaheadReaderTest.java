@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+
+public class LookaheadReaderTest {
+
+    @Test
+    public void testLookahead() throws Exception {
+        LookaheadReader reader = new LookaheadReader(new StringReader("abc,def"));
+
+        assertEquals('a', reader.peek());
+        assertEquals('c', reader.peek(2));
+        assertEquals(-1, reader.peek(7));
+        assertTrue(reader.lookingAt("abc"));
+        assertTrue(reader.lookingAt(""));
+        assertFalse(reader.lookingAt("abd"));
+        assertFalse(reader.consume("b"));
+        assertTrue(reader.consume("ab"));
+        assertEquals('c', reader.read());
+        assertEquals(",d", reader.peekString(2));
+        assertEquals(",def", reader.peekString(10));
+        assertFalse(reader.lookingAt(",defg"));
+        assertEquals(4, reader.skip(10));
+        assertEquals(-1, reader.read());
+        assertEquals(-1, reader.peek());
+    }
+
+    @Test
+    public void testLookaheadAcrossReads() throws Exception {
+        // Only returns a few characters per read, so lookahead has to keep filling the buffer
+        String text = StringUtils.repeat("0123456789", 5000);
+        LookaheadReader reader = new LookaheadReader(new SlowReader(text, 7));
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < text.length(); i++) {
+            if (i % 10 == 0) {
+                assertTrue(reader.lookingAt("0123456789"));
+                assertEquals(Math.min(20000, text.length() - i), reader.peekString(20000).length());
+            }
+            builder.append((char) reader.read());
+        }
+
+        assertEquals(text, builder.toString());
+        assertEquals(-1, reader.read());
+    }
+
+    @Test
+    public void testReadLine() throws Exception {
+        LookaheadReader reader = new LookaheadReader(new SlowReader("one\r\ntwo\rthree\n\nfour", 3));
+
+        assertEquals("one", reader.readLine());
+        assertEquals("two", reader.readLine());
+        assertEquals("three", reader.readLine());
+        assertEquals("", reader.readLine());
+        assertEquals("four", reader.readLine());
+        assertNull(reader.readLine());
+    }
+
+    @Test
+    public void testMarkAndReset() throws Exception {
+        LookaheadReader reader = new LookaheadReader(new SlowReader(StringUtils.repeat("abcdefgh", 3000), 5));
+
+        reader.skip(3);
+        reader.mark(20000);
+        char[] chars = new char[17000];
+        int read = 0;
+        while (read < chars.length) {
+            read += reader.read(chars, read, chars.length - read);
+        }
+        reader.reset();
+
+        assertEquals('d', reader.read());
+        assertTrue(reader.lookingAt("efgh"));
+    }
+
+    private static class SlowReader extends Reader {
+        private Reader reader;
+        private int maxRead;
+
+        public SlowReader(String text, int maxRead) {
+            this.reader = new StringReader(text);
+            this.maxRead = maxRead;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            return reader.read(cbuf, off, Math.min(len, maxRead));
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+}
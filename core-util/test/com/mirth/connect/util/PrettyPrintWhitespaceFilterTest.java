@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.StringReader;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+public class PrettyPrintWhitespaceFilterTest {
+
+    // The patterns the serializers used to strip pretty-printing before parsing
+    private static final Pattern PRETTY_PATTERN_1 = Pattern.compile("\\s*<([^/][^>]*)>");
+    private static final Pattern PRETTY_PATTERN_2 = Pattern.compile("<([^>]*/|/[^>]*)>\\s*");
+
+    @Test
+    public void testSameAsPatterns() throws Exception {
+        String[] sources = new String[] {
+                "<HL7Message>\n    <MSH>\n        <MSH.1>|</MSH.1>\n        <MSH.2>^~\\&amp;</MSH.2>\n    </MSH>\n</HL7Message>",
+                "<a>  leading and trailing  </a>",
+                "<a><b>x</b>  tail  <c/>  <d>  </d>\r\n\t<e>y</e></a>",
+                "<a>text <b>bold</b> more text</a>",
+                "<a>\n  <empty/>\n  <empty></empty>\n</a>" };
+
+        for (String source : sources) {
+            String expected = parse(PRETTY_PATTERN_2.matcher(PRETTY_PATTERN_1.matcher(source).replaceAll("<$1>")).replaceAll("<$1>"), false);
+            assertEquals(source, expected, parse(source, true));
+        }
+    }
+
+    @Test
+    public void testReaderReuse() throws Exception {
+        XMLReader reader = XmlParserPool.borrowXMLReader();
+        XMLReader nested = XmlParserPool.borrowXMLReader();
+        assertNotSame(reader, nested);
+
+        XmlParserPool.releaseXMLReader(nested);
+        XmlParserPool.releaseXMLReader(reader);
+        assertSame(reader, XmlParserPool.borrowXMLReader());
+        assertSame(nested, XmlParserPool.borrowXMLReader());
+    }
+
+    private String parse(String source, boolean filtered) throws Exception {
+        final StringBuilder events = new StringBuilder();
+        DefaultHandler handler = new DefaultHandler() {
+            @Override
+            public void startElement(String uri, String localName, String qName, Attributes attributes) {
+                events.append('<').append(qName).append('>');
+            }
+
+            @Override
+            public void endElement(String uri, String localName, String qName) {
+                events.append("</").append(qName).append('>');
+            }
+
+            @Override
+            public void characters(char[] ch, int start, int length) {
+                events.append(ch, start, length);
+            }
+        };
+
+        XMLReader reader = XmlParserPool.borrowXMLReader();
+        try {
+            XMLReader parser = filtered ? new PrettyPrintWhitespaceFilter(reader) : reader;
+            parser.setContentHandler(handler);
+            parser.setErrorHandler(handler);
+            parser.parse(new InputSource(new StringReader(source)));
+        } finally {
+            XmlParserPool.releaseXMLReader(reader);
+        }
+
+        return events.toString();
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.StringReader;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+public class TrimmingReaderTest {
+
+    @Test
+    public void testMatchesStringTrim() throws Exception {
+        String[] inputs = new String[] { "", " ", " \r\n\t", "abc", "  abc  ", "\n\ra b\r\nc\n\n",
+                "\u001Ea\u001Eb\u001E", " a  \t b ", "a\u0000", " a " };
+
+        for (String input : inputs) {
+            assertEquals(input.trim(), IOUtils.toString(new TrimmingReader(new StringReader(input))));
+        }
+    }
+
+    @Test
+    public void testSingleCharacterReads() throws Exception {
+        TrimmingReader reader = new TrimmingReader(new StringReader("  a  b  "));
+        StringBuilder builder = new StringBuilder();
+        int c;
+
+        while ((c = reader.read()) != -1) {
+            builder.append((char) c);
+        }
+
+        assertEquals("a  b", builder.toString());
+    }
+}
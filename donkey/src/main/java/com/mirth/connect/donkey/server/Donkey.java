@@ -9,6 +9,7 @@
 
 package com.mirth.connect.donkey.server;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -26,6 +27,8 @@ import org.apache.logging.log4j.Logger;
 import com.google.inject.Inject;
 import com.mirth.connect.donkey.model.DatabaseConstants;
 import com.mirth.connect.donkey.server.channel.Channel;
+import com.mirth.connect.donkey.server.channel.DestinationChainExecutorFactory;
+import com.mirth.connect.donkey.server.channel.MessageTracer;
 import com.mirth.connect.donkey.server.controllers.ControllerFactory;
 import com.mirth.connect.donkey.server.data.DonkeyDao;
 import com.mirth.connect.donkey.server.data.DonkeyDaoFactory;
@@ -33,7 +36,9 @@ import com.mirth.connect.donkey.server.data.DonkeyStatisticsUpdater;
 import com.mirth.connect.donkey.server.data.jdbc.JdbcDaoFactory;
 import com.mirth.connect.donkey.server.data.jdbc.XmlQuerySource;
 import com.mirth.connect.donkey.server.data.jdbc.XmlQuerySource.XmlQuerySourceException;
+import com.mirth.connect.donkey.server.data.metrics.DaoMetrics;
 import com.mirth.connect.donkey.server.event.EventDispatcher;
+import com.mirth.connect.donkey.server.queue.QueueSizeCheckpointer;
 import com.mirth.connect.donkey.util.Serializer;
 import com.mirth.connect.donkey.util.SerializerProvider;
 import com.mirth.connect.donkey.util.xstream.XStreamSerializer;
@@ -64,6 +69,12 @@ public class Donkey {
     private Encryptor encryptor;
     private EventDispatcher eventDispatcher;
     private DonkeyStatisticsUpdater statisticsUpdater;
+    private QueueSizeCheckpointer queueSizeCheckpointer;
+    private boolean deferQueueBufferFill = false;
+    private boolean compactMessageMaps = false;
+    private DestinationChainExecutorFactory destinationChainExecutorFactory;
+    private DaoMetrics daoMetrics = new DaoMetrics();
+    private MessageTracer messageTracer = new MessageTracer();
     private Logger logger = LogManager.getLogger(getClass());
     private boolean running = false;
 
@@ -134,6 +145,25 @@ public class Donkey {
         statisticsUpdater = new DonkeyStatisticsUpdater(daoFactory, updateInterval);
         statisticsUpdater.start();
 
+        deferQueueBufferFill = Boolean.parseBoolean(donkeyConfiguration.getDonkeyProperties().getProperty("donkey.queuedeferbufferfill"));
+        compactMessageMaps = Boolean.parseBoolean(donkeyConfiguration.getDonkeyProperties().getProperty("donkey.compactmaps"));
+
+        // A non-positive interval disables queue size snapshots, so every queue is counted on deploy
+        int checkpointInterval = NumberUtils.toInt(donkeyConfiguration.getDonkeyProperties().getProperty("donkey.queuesnapshotinterval"), QueueSizeCheckpointer.DEFAULT_CHECKPOINT_INTERVAL);
+        if (checkpointInterval > 0 && donkeyConfiguration.getAppData() != null) {
+            queueSizeCheckpointer = new QueueSizeCheckpointer(new File(donkeyConfiguration.getAppData(), QueueSizeCheckpointer.SNAPSHOT_FILE_NAME), donkeyConfiguration.getServerId(), checkpointInterval);
+            queueSizeCheckpointer.load();
+            queueSizeCheckpointer.start();
+        } else {
+            queueSizeCheckpointer = null;
+        }
+
+        daoMetrics.setEnabled(Boolean.parseBoolean(dbProperties.getProperty("donkey.daometrics")));
+        messageTracer.setEnabled(Boolean.parseBoolean(dbProperties.getProperty("donkey.messagetracing")));
+        messageTracer.setSamplePercentage(NumberUtils.toDouble(dbProperties.getProperty("donkey.messagetracing.sample")));
+
+        destinationChainExecutorFactory = new DestinationChainExecutorFactory(dbProperties.getProperty("donkey.chainexecutor"), NumberUtils.toInt(dbProperties.getProperty("donkey.chainexecutor.threads"), DestinationChainExecutorFactory.DEFAULT_SHARED_THREADS), NumberUtils.toInt(dbProperties.getProperty("donkey.chainexecutor.channelthreads")));
+
         running = true;
     }
 
@@ -173,11 +203,43 @@ public class Donkey {
         return statisticsUpdater;
     }
 
+    public QueueSizeCheckpointer getQueueSizeCheckpointer() {
+        return queueSizeCheckpointer;
+    }
+
+    public boolean isDeferQueueBufferFill() {
+        return deferQueueBufferFill;
+    }
+
+    public boolean isCompactMessageMaps() {
+        return compactMessageMaps;
+    }
+
+    public DaoMetrics getDaoMetrics() {
+        return daoMetrics;
+    }
+
+    public MessageTracer getMessageTracer() {
+        return messageTracer;
+    }
+
+    public DestinationChainExecutorFactory getDestinationChainExecutorFactory() {
+        return destinationChainExecutorFactory;
+    }
+
     public void stopEngine() {
         if (statisticsUpdater != null) {
             statisticsUpdater.shutdown();
         }
 
+        if (queueSizeCheckpointer != null) {
+            queueSizeCheckpointer.shutdown();
+        }
+
+        if (destinationChainExecutorFactory != null) {
+            destinationChainExecutorFactory.shutdown();
+        }
+
         running = false;
     }
 
@@ -9,7 +9,6 @@
 
 package com.mirth.connect.donkey.server.channel;
 
-import java.io.IOException;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -31,6 +30,7 @@ import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -55,6 +55,7 @@ import com.mirth.connect.donkey.model.message.ContentType;
 import com.mirth.connect.donkey.model.message.Message;
 import com.mirth.connect.donkey.model.message.MessageContent;
 import com.mirth.connect.donkey.model.message.MessageSerializerException;
+import com.mirth.connect.donkey.model.message.MessageTrace.Stage;
 import com.mirth.connect.donkey.model.message.RawMessage;
 import com.mirth.connect.donkey.model.message.Response;
 import com.mirth.connect.donkey.model.message.Status;
@@ -78,14 +79,16 @@ import com.mirth.connect.donkey.server.controllers.ControllerFactory;
 import com.mirth.connect.donkey.server.controllers.MessageController;
 import com.mirth.connect.donkey.server.data.DonkeyDao;
 import com.mirth.connect.donkey.server.data.DonkeyDaoFactory;
+import com.mirth.connect.donkey.server.data.metrics.DaoMetrics;
 import com.mirth.connect.donkey.server.event.DeployedStateEvent;
 import com.mirth.connect.donkey.server.event.ErrorEvent;
 import com.mirth.connect.donkey.server.event.EventDispatcher;
 import com.mirth.connect.donkey.server.message.batch.BatchAdaptorFactory;
+import com.mirth.connect.donkey.server.queue.ConnectorMessageQueue;
 import com.mirth.connect.donkey.server.queue.ConnectorMessageQueueDataSource;
 import com.mirth.connect.donkey.server.queue.DestinationQueue;
+import com.mirth.connect.donkey.server.queue.QueueSizeCheckpointer;
 import com.mirth.connect.donkey.server.queue.SourceQueue;
-import com.mirth.connect.donkey.util.Base64Util;
 import com.mirth.connect.donkey.util.MessageMaps;
 import com.mirth.connect.donkey.util.Serializer;
 import com.mirth.connect.donkey.util.ThreadUtils;
@@ -129,13 +132,23 @@ public class Channel implements IChannel, Runnable {
      * want to use up all connections in the pool.
      */
     public static Semaphore DELETE_PERMIT = new Semaphore(2, true);
-    // A cached thread pool executor that executes recovery tasks and destination chain tasks
+    // A cached thread pool executor that executes recovery tasks and batch dispatch tasks
     private ExecutorService channelExecutor;
+    // Executes destination chain tasks on the execution backend configured for the engine
+    private DestinationChainExecutor chainExecutor;
+    private DestinationChainMetrics destinationChainMetrics = new DestinationChainMetrics();
+    // The most recent recovery task, which may still be running in the background after startup
+    private volatile RecoveryTask recoveryTask;
+    private volatile Future<Void> recoveryFuture;
+    // How long stopping or halting the channel waits for background recovery to finish
+    private static final int RECOVERY_STOP_TIMEOUT_MILLIS = 30000;
     private Set<Thread> dispatchThreads = new HashSet<Thread>();
     private volatile boolean shuttingDown = false;
 
     private volatile boolean stopSourceQueue = false;
     private ChannelProcessLock processLock;
+    private LongAdder processLockAcquisitions = new LongAdder();
+    private LongAdder processLockWaitTime = new LongAdder();
     private Lock removeContentLock = new ReentrantLock(true);
 
     private MessageController messageController = ControllerFactory.getFactory().createMessageController();
@@ -302,6 +315,26 @@ public class Channel implements IChannel, Runnable {
         return processingThreads;
     }
 
+    ExecutorService getChannelExecutor() {
+        return channelExecutor;
+    }
+
+    public DestinationChainMetrics getDestinationChainMetrics() {
+        return destinationChainMetrics;
+    }
+
+    public RecoveryTask getRecoveryTask() {
+        return recoveryTask;
+    }
+
+    /**
+     * Returns true if the startup recovery task is still recovering messages in the background.
+     */
+    public boolean isRecovering() {
+        RecoveryTask task = recoveryTask;
+        return task != null && task.isBackground() && task.isRunning();
+    }
+
     /**
      * Get the queue that holds messages waiting to be processed
      */
@@ -362,6 +395,21 @@ public class Channel implements IChannel, Runnable {
         this.processLock = processLock;
     }
 
+    /**
+     * Returns how many times a message has obtained the process lock since the channel was created.
+     */
+    public long getProcessLockAcquisitions() {
+        return processLockAcquisitions.sum();
+    }
+
+    /**
+     * Returns the total time in nanoseconds that messages have spent waiting for the process lock
+     * since the channel was created.
+     */
+    public long getProcessLockWaitTime() {
+        return processLockWaitTime.sum();
+    }
+
     public void addDispatchThread(Thread thread) {
         synchronized (dispatchThreads) {
             dispatchThreads.add(thread);
@@ -513,6 +561,11 @@ public class Channel implements IChannel, Runnable {
 
         List<Integer> deployedMetaDataIds = new ArrayList<Integer>();
 
+        QueueSizeCheckpointer queueSizeCheckpointer = Donkey.getInstance().getQueueSizeCheckpointer();
+        if (queueSizeCheckpointer != null) {
+            queueSizeCheckpointer.forget(channelId);
+        }
+
         // Call the connector onDeploy() methods so they can run their onDeploy logic
         try {
             if (responseSelector == null) {
@@ -527,7 +580,7 @@ public class Channel implements IChannel, Runnable {
             }
 
             // manually refresh the source queue size from it's data source
-            sourceQueue.updateSize();
+            initQueueSize(sourceQueue);
 
             deployedMetaDataIds.add(0);
             
@@ -558,7 +611,7 @@ public class Channel implements IChannel, Runnable {
                     }
 
                     // refresh the queue size from it's data source
-                    destinationConnector.getQueue().updateSize();
+                    initQueueSize(destinationConnector.getQueue());
 
                     deployedMetaDataIds.add(metaDataId);
                     
@@ -602,6 +655,18 @@ public class Channel implements IChannel, Runnable {
         eventDispatcher.dispatchEvent(new DeployedStateEvent(channelId, name, null, null, DeployedStateEventType.DEPLOYED, connectorStatistics));
     }
 
+    /**
+     * Initializes a queue's size from the persisted snapshot if one is available, and otherwise
+     * counts the queued messages in the data store.
+     */
+    private void initQueueSize(ConnectorMessageQueue queue) {
+        QueueSizeCheckpointer queueSizeCheckpointer = Donkey.getInstance().getQueueSizeCheckpointer();
+
+        if (queueSizeCheckpointer == null || !queueSizeCheckpointer.restoreSize(queue)) {
+            queue.updateSize();
+        }
+    }
+
     public synchronized void undeploy() throws UndeployException {
         updateCurrentState(DeployedState.UNDEPLOYING);
         // Call the connector onUndeploy() methods so they can run their onUndeploy logic
@@ -627,6 +692,22 @@ public class Channel implements IChannel, Runnable {
             }
         }
 
+        QueueSizeCheckpointer queueSizeCheckpointer = Donkey.getInstance().getQueueSizeCheckpointer();
+        if (queueSizeCheckpointer != null) {
+            queueSizeCheckpointer.record(this);
+        }
+
+        // Stop reporting latencies for the channel, since it may be deleted next
+        DaoMetrics daoMetrics = Donkey.getInstance().getDaoMetrics();
+        if (daoMetrics != null) {
+            daoMetrics.reset(channelId);
+        }
+
+        MessageTracer messageTracer = Donkey.getInstance().getMessageTracer();
+        if (messageTracer != null) {
+            messageTracer.reset(channelId);
+        }
+
         if (firstCause != null) {
             throw new UndeployException("Failed to undeploy channel " + name + " (" + channelId + "): One or more connectors failed to undeploy.", firstCause);
         }
@@ -731,6 +812,13 @@ public class Channel implements IChannel, Runnable {
 
                 channelExecutor = Executors.newCachedThreadPool();
 
+                DestinationChainExecutorFactory chainExecutorFactory = Donkey.getInstance().getDestinationChainExecutorFactory();
+                if (chainExecutorFactory != null) {
+                    chainExecutor = chainExecutorFactory.createExecutor(destinationChainMetrics);
+                } else {
+                    chainExecutor = DestinationChainExecutorFactory.createCachedExecutor(destinationChainMetrics);
+                }
+
                 // start the destination connectors but not the destination queues
                 for (DestinationChainProvider chainProvider : destinationChainProviders) {
                     for (Integer metaDataId : chainProvider.getMetaDataIds()) {
@@ -744,20 +832,29 @@ public class Channel implements IChannel, Runnable {
                 }
 
                 ThreadUtils.checkInterruptedStatus();
-                try {
-                    processUnfinishedMessages();
-                } catch (InterruptedException e) {
-                    logger.error("Startup recovery interrupted for channel " + name + " (" + channelId + ")", e);
-                    throw e;
-                } catch (Exception e) {
-                    Throwable cause;
-                    if (e instanceof ExecutionException) {
-                        cause = e.getCause();
-                    } else {
-                        cause = e;
-                    }
+                if (processingThreads > 1) {
+                    /*
+                     * Message order is not guaranteed with multiple processing threads, so there
+                     * is no need to hold up the channel start while messages are recovered. The
+                     * source connector can start accepting new messages in the meantime.
+                     */
+                    processUnfinishedMessagesInBackground();
+                } else {
+                    try {
+                        processUnfinishedMessages();
+                    } catch (InterruptedException e) {
+                        logger.error("Startup recovery interrupted for channel " + name + " (" + channelId + ")", e);
+                        throw e;
+                    } catch (Exception e) {
+                        Throwable cause;
+                        if (e instanceof ExecutionException) {
+                            cause = e.getCause();
+                        } else {
+                            cause = e;
+                        }
 
-                    logger.error("Startup recovery failed for channel " + name + " (" + channelId + "): " + cause.getMessage(), cause);
+                        logger.error("Startup recovery failed for channel " + name + " (" + channelId + "): " + cause.getMessage(), cause);
+                    }
                 }
 
                 ThreadUtils.checkInterruptedStatus();
@@ -838,13 +935,11 @@ public class Channel implements IChannel, Runnable {
          */
 
         if (channelExecutor != null) {
-            List<Runnable> tasks = channelExecutor.shutdownNow();
-            // If any tasks had not started yet, they need to be cancaelled, otherwise they will be stuck at future.get().
-            for (Runnable task : tasks) {
-                if (task instanceof Future) {
-                    ((Future<?>) task).cancel(true);
-                }
-            }
+            cancelTasks(channelExecutor.shutdownNow());
+        }
+
+        if (chainExecutor != null) {
+            cancelTasks(chainExecutor.shutdownNow());
         }
 
         haltSourceQueue();
@@ -1025,6 +1120,9 @@ public class Channel implements IChannel, Runnable {
     private void stop(List<Integer> metaDataIds) throws Throwable {
         stopSourceQueue = true;
         Throwable firstCause = null;
+
+        // Let any recovery still running in the background finish its current messages before the connectors are stopped
+        stopBackgroundRecovery(false);
         
         // Stop debugging on all connectors
         ThreadUtils.checkInterruptedStatus();
@@ -1106,6 +1204,7 @@ public class Channel implements IChannel, Runnable {
         stopSourceQueue();
 
         channelExecutor.shutdown();
+        chainExecutor.shutdown();
 
         if (firstCause != null) {
             updateCurrentState(DeployedState.STOPPED);
@@ -1116,13 +1215,10 @@ public class Channel implements IChannel, Runnable {
     private void halt(List<Integer> metaDataIds) throws Throwable {
         stopSourceQueue = true;
 
-        List<Runnable> tasks = channelExecutor.shutdownNow();
-        // If any tasks had not started yet, they need to be cancaelled, otherwise they will be stuck at future.get().
-        for (Runnable task : tasks) {
-            if (task instanceof Future) {
-                ((Future<?>) task).cancel(true);
-            }
-        }
+        cancelTasks(channelExecutor.shutdownNow());
+        cancelTasks(chainExecutor.shutdownNow());
+
+        stopBackgroundRecovery(true);
 
         haltSourceQueue();
 
@@ -1175,12 +1271,24 @@ public class Channel implements IChannel, Runnable {
         while (!channelExecutor.awaitTermination(timeout, TimeUnit.MILLISECONDS))
             ;
 
+        while (!chainExecutor.awaitTermination(timeout, TimeUnit.MILLISECONDS))
+            ;
+
         if (firstCause != null) {
             updateCurrentState(DeployedState.STOPPED);
             throw firstCause;
         }
     }
 
+    private void cancelTasks(List<Runnable> tasks) {
+        // If any tasks had not started yet, they need to be cancaelled, otherwise they will be stuck at future.get().
+        for (Runnable task : tasks) {
+            if (task instanceof Future) {
+                ((Future<?>) task).cancel(true);
+            }
+        }
+    }
+
     public void startConnector(Integer metaDataId) throws StartException, ResumeException {
         if (metaDataId == 0) {
             resume();
@@ -1256,15 +1364,49 @@ public class Channel implements IChannel, Runnable {
     }
 
     protected DispatchResult dispatchRawMessage(RawMessage rawMessage, boolean batch) throws ChannelException {
+        return dispatch(Collections.singletonList(rawMessage), batch).get(0);
+    }
+
+    /**
+     * Persists several raw messages in a single transaction and adds them to the source queue
+     * together, so that handing off a group of messages costs one commit instead of one per
+     * message. This requires the source queue to be enabled, since the messages are not processed
+     * here. The returned dispatch results are in the same order as the raw messages.
+     */
+    protected List<DispatchResult> dispatchRawMessages(List<RawMessage> rawMessages) throws ChannelException {
+        if (sourceConnector.isRespondAfterProcessing()) {
+            throw new IllegalStateException("Raw messages can only be dispatched together when the source queue is enabled.");
+        }
+
+        if (rawMessages.isEmpty()) {
+            return new ArrayList<DispatchResult>();
+        }
+
+        return dispatch(rawMessages, false);
+    }
+
+    /**
+     * Stores the raw messages in one transaction and then either processes them, if the source
+     * connector responds after processing, or adds them to the source queue. Only a single message
+     * can be processed at a time, since the process lock is kept for the caller when it is.
+     */
+    private List<DispatchResult> dispatch(List<RawMessage> rawMessages, boolean batch) throws ChannelException {
         // Allow messages to continue processing while the channel is stopping if they are part of an existing batch
         if ((currentState == DeployedState.STOPPING && !batch) || currentState == DeployedState.STOPPED) {
             throw new ChannelException(true);
         }
 
+        boolean respondAfterProcessing = sourceConnector.isRespondAfterProcessing();
+
+        if (respondAfterProcessing && rawMessages.size() > 1) {
+            throw new IllegalStateException("Raw messages can only be dispatched together when the source queue is enabled.");
+        }
+
         Thread currentThread = Thread.currentThread();
         String originalThreadName = currentThread.getName();
         boolean lockAcquired = false;
-        Long persistedMessageId = null;
+        List<ConnectorMessage> sourceMessages = new ArrayList<ConnectorMessage>(rawMessages.size());
+        boolean persisted = false;
 
         try {
             synchronized (dispatchThreads) {
@@ -1284,57 +1426,94 @@ public class Channel implements IChannel, Runnable {
             DonkeyDao dao = null;
             boolean commitSuccess = false;
             Message processedMessage = null;
-            Response response = null;
-            String responseErrorMessage = null;
-            DispatchResult dispatchResult = null;
+            Response[] responses = new Response[rawMessages.size()];
+            String[] responseErrorMessages = new String[rawMessages.size()];
+            List<DispatchResult> dispatchResults = null;
+            MessageTracer messageTracer = Donkey.getInstance().getMessageTracer();
+            boolean tracing = messageTracer.isEnabled();
+            long dispatchTime = tracing ? System.nanoTime() : 0;
 
             try {
                 obtainProcessLock();
                 lockAcquired = true;
+                long lockTime = tracing ? System.nanoTime() : 0;
 
                 /*
-                 * TRANSACTION: Create Raw Message - create a source connector message from the raw
-                 * message and set the status as RECEIVED - store attachments
+                 * TRANSACTION: Create Raw Messages - create a source connector message from each
+                 * raw message and set the status as RECEIVED - store attachments
                  */
                 dao = daoFactory.getDao();
-                ConnectorMessage sourceMessage = createAndStoreSourceMessage(dao, rawMessage);
-                ThreadUtils.checkInterruptedStatus();
 
-                if (sourceConnector.isRespondAfterProcessing()) {
+                for (RawMessage rawMessage : rawMessages) {
+                    ConnectorMessage sourceMessage = createAndStoreSourceMessage(dao, rawMessage);
+                    ThreadUtils.checkInterruptedStatus();
+
+                    if (tracing) {
+                        sourceMessage.setTrace(messageTracer.createTrace(dispatchTime));
+                        messageTracer.record(sourceMessage, Stage.CHANNEL_LOCK, dispatchTime, lockTime);
+                    }
+
+                    sourceMessages.add(sourceMessage);
+                }
+
+                if (respondAfterProcessing) {
+                    ConnectorMessage sourceMessage = sourceMessages.get(0);
+
                     dao.commit(storageSettings.isRawDurable());
                     commitSuccess = true;
-                    persistedMessageId = sourceMessage.getMessageId();
+                    persisted = true;
                     dao.close();
 
-                    markDeletedQueuedMessages(rawMessage, persistedMessageId);
+                    if (tracing) {
+                        messageTracer.record(sourceMessage, Stage.SOURCE_STORE, lockTime);
+                    }
+
+                    markDeletedQueuedMessages(rawMessages.get(0), sourceMessage.getMessageId());
 
                     processedMessage = process(sourceMessage, false);
                 } else {
-                    // Block other threads from adding to the source queue until both the current commit and queue addition finishes
+                    // Block other threads from adding to the source queue until both the current commit and queue additions finish
                     synchronized (sourceQueue) {
                         dao.commit(storageSettings.isRawDurable());
                         commitSuccess = true;
-                        persistedMessageId = sourceMessage.getMessageId();
+                        persisted = true;
                         dao.close();
-                        queue(sourceMessage);
+
+                        // Every message in the group waited for the same lock and commit
+                        if (tracing) {
+                            long storeTime = System.nanoTime();
+
+                            for (ConnectorMessage sourceMessage : sourceMessages) {
+                                messageTracer.record(sourceMessage, Stage.SOURCE_STORE, lockTime, storeTime);
+                                sourceMessage.getTrace().markHandOff();
+                            }
+                        }
+
+                        for (ConnectorMessage sourceMessage : sourceMessages) {
+                            queue(sourceMessage);
+                        }
                     }
 
-                    markDeletedQueuedMessages(rawMessage, persistedMessageId);
+                    for (int i = 0; i < sourceMessages.size(); i++) {
+                        markDeletedQueuedMessages(rawMessages.get(i), sourceMessages.get(i).getMessageId());
+                    }
                 }
 
                 if (responseSelector.canRespond()) {
-                    try {
-                        response = responseSelector.getResponse(sourceMessage, processedMessage);
-                    } catch (Exception e) {
-                        responseErrorMessage = ExceptionUtils.getStackTrace(e);
+                    for (int i = 0; i < sourceMessages.size(); i++) {
+                        try {
+                            responses[i] = responseSelector.getResponse(sourceMessages.get(i), processedMessage);
+                        } catch (Exception e) {
+                            responseErrorMessages[i] = ExceptionUtils.getStackTrace(e);
+                        }
                     }
                 }
             } catch (RuntimeException e) {
                 // TODO determine behavior if this occurs.
                 throw new ChannelException(true, e);
             } finally {
-                if (lockAcquired && (!sourceConnector.isRespondAfterProcessing() || persistedMessageId == null || Thread.currentThread().isInterrupted())) {
-                    // Release the process lock if an exception was thrown before a message was persisted
+                if (lockAcquired && (!respondAfterProcessing || !persisted || Thread.currentThread().isInterrupted())) {
+                    // Release the process lock if an exception was thrown before the messages were persisted
                     // or if the thread was interrupted because no additional processing will be done.
                     releaseProcessLock();
                     lockAcquired = false;
@@ -1349,17 +1528,23 @@ public class Channel implements IChannel, Runnable {
                     dao.close();
                 }
 
-                // Create the DispatchResult at the very end because lockAcquired might have changed
-                if (persistedMessageId != null) {
-                    dispatchResult = new DispatchResult(persistedMessageId, processedMessage, response, sourceConnector.isRespondAfterProcessing(), lockAcquired);
+                // Create the DispatchResults at the very end because lockAcquired might have changed
+                if (persisted) {
+                    dispatchResults = new ArrayList<DispatchResult>(sourceMessages.size());
+
+                    for (int i = 0; i < sourceMessages.size(); i++) {
+                        DispatchResult dispatchResult = new DispatchResult(sourceMessages.get(i).getMessageId(), processedMessage, responses[i], respondAfterProcessing, lockAcquired);
 
-                    if (StringUtils.isNotBlank(responseErrorMessage)) {
-                        dispatchResult.setResponseError(responseErrorMessage);
+                        if (StringUtils.isNotBlank(responseErrorMessages[i])) {
+                            dispatchResult.setResponseError(responseErrorMessages[i]);
+                        }
+
+                        dispatchResults.add(dispatchResult);
                     }
                 }
             }
 
-            return dispatchResult;
+            return dispatchResults;
         } catch (InterruptedException e) {
             // This exception should only ever be thrown during a halt.
             // It is impossible to know whether or not the message was persisted because the task will continue to run
@@ -1385,11 +1570,16 @@ public class Channel implements IChannel, Runnable {
                 channelException = new ChannelException(false, t);
             }
 
-            if (persistedMessageId == null) {
+            if (!persisted) {
                 throw channelException;
             }
 
-            return new DispatchResult(persistedMessageId, null, null, false, lockAcquired, channelException);
+            // The messages are stored, so report the error on each of them instead
+            List<DispatchResult> dispatchResults = new ArrayList<DispatchResult>(sourceMessages.size());
+            for (ConnectorMessage sourceMessage : sourceMessages) {
+                dispatchResults.add(new DispatchResult(sourceMessage.getMessageId(), null, null, false, lockAcquired, channelException));
+            }
+            return dispatchResults;
         } finally {
             synchronized (dispatchThreads) {
                 dispatchThreads.remove(currentThread);
@@ -1546,17 +1736,12 @@ public class Channel implements IChannel, Runnable {
             }
         } else {
             if (rawMessage.isBinary()) {
-                ThreadUtils.checkInterruptedStatus();
-
-                try {
-                    byte[] rawBytes = Base64Util.encodeBase64(rawMessage.getRawBytes());
-                    rawMessage.clearMessage();
-                    sourceMessage.getRaw().setContent(org.apache.commons.codec.binary.StringUtils.newStringUsAscii(rawBytes));
-                } catch (IOException e) {
-                    logger.error("Error processing binary data for channel " + name + " (" + channelId + ").", e);
-                    throw new ChannelException(false, e);
-                }
-
+                /*
+                 * Keep the binary data as is. It is only Base64 encoded when the string form is
+                 * needed, e.g. to store the raw content or when a script reads it.
+                 */
+                sourceMessage.getRaw().setBinaryContent(rawMessage.getRawBytes());
+                rawMessage.clearMessage();
             } else {
                 sourceMessage.getRaw().setContent(rawMessage.getRawData());
                 rawMessage.clearMessage();
@@ -1581,7 +1766,10 @@ public class Channel implements IChannel, Runnable {
     }
 
     public void obtainProcessLock() throws InterruptedException {
+        long startTime = System.nanoTime();
         processLock.acquire();
+        processLockWaitTime.add(System.nanoTime() - startTime);
+        processLockAcquisitions.increment();
     }
 
     public void releaseProcessLock() {
@@ -1641,6 +1829,8 @@ public class Channel implements IChannel, Runnable {
         String processedRawContent = null;
 
         ThreadUtils.checkInterruptedStatus();
+        boolean traced = sourceMessage.getTrace() != null;
+        long preProcessorTime = traced ? System.nanoTime() : 0;
 
         try {
             processedRawContent = preProcessor.doPreProcess(sourceMessage);
@@ -1649,6 +1839,10 @@ public class Channel implements IChannel, Runnable {
             sourceMessage.setProcessingError(e.getFormattedError());
         }
 
+        if (traced) {
+            Donkey.getInstance().getMessageTracer().record(sourceMessage, Stage.PREPROCESSOR, preProcessorTime);
+        }
+
         /*
          * TRANSACTION: Process Source - store processed raw content - update the source status -
          * store transformed content - store encoded content - update source maps - create connector
@@ -1702,6 +1896,10 @@ public class Channel implements IChannel, Runnable {
                 dao.insertMetaData(sourceMessage, metaDataColumns);
             }
 
+            if (sourceMessage.getTrace() != null) {
+                Donkey.getInstance().getMessageTracer().addSample(sourceMessage, dao, storageSettings);
+            }
+
             if (storageSettings.isStoreMaps()) {
                 ThreadUtils.checkInterruptedStatus();
 
@@ -1805,9 +2003,11 @@ public class Channel implements IChannel, Runnable {
 
                     // We don't create a new map here because the source map is read-only and thus won't ever be changed
                     message.setSourceMap(sourceMessage.getSourceMap());
-                    message.setChannelMap(new HashMap<String, Object>(sourceMessage.getChannelMap()));
-                    message.setResponseMap(new HashMap<String, Object>(sourceMessage.getResponseMap()));
+                    // Copy the maps themselves, since copying through the tracked maps would count as changing them
+                    message.setChannelMap(new HashMap<String, Object>(sourceMessage.getChannelMapContent().getMap()));
+                    message.setResponseMap(new HashMap<String, Object>(sourceMessage.getResponseMapContent().getMap()));
                     message.setRaw(raw);
+                    MessageTracer.continueTrace(sourceMessage, message);
 
                     // store the new message, but we don't need to store the content because we will reference the source's encoded content
                     dao.insertConnectorMessage(message, storageSettings.isStoreMaps(), true);
@@ -1843,7 +2043,12 @@ public class Channel implements IChannel, Runnable {
                     try {
                         DestinationChain chain = enabledChains.get(i);
                         chain.setName("Destination Chain Thread " + (i + 1) + " on " + name + " (" + channelId + ")");
-                        destinationChainTasks.add(channelExecutor.submit(chain));
+
+                        if (traced) {
+                            chain.getMessage().getTrace().markHandOff();
+                        }
+
+                        destinationChainTasks.add(chainExecutor.submit(chain));
                     } catch (RejectedExecutionException e) {
                         Thread.currentThread().interrupt();
                         throw new InterruptedException();
@@ -1937,7 +2142,46 @@ public class Channel implements IChannel, Runnable {
      * Process all unfinished messages found in storage
      */
     public void processUnfinishedMessages() throws Exception {
-        channelExecutor.submit(new RecoveryTask(this)).get();
+        RecoveryTask task = new RecoveryTask(this);
+        recoveryTask = task;
+        channelExecutor.submit(task).get();
+    }
+
+    /**
+     * Process all unfinished messages found in storage without waiting for the recovery to
+     * complete. The recovery task is stopped along with the channel.
+     */
+    public void processUnfinishedMessagesInBackground() {
+        RecoveryTask task = new RecoveryTask(this, true);
+        recoveryTask = task;
+        recoveryFuture = channelExecutor.submit(task);
+    }
+
+    /*
+     * Stops the background recovery task from starting any more messages, and waits for the ones
+     * in flight to finish. When halting, the messages being recovered are interrupted instead.
+     * Messages that are not recovered are left unfinished, and are recovered the next time the
+     * channel starts.
+     */
+    private void stopBackgroundRecovery(boolean interrupt) throws InterruptedException {
+        Future<Void> future = recoveryFuture;
+        RecoveryTask task = recoveryTask;
+        recoveryFuture = null;
+
+        if (future != null && task != null) {
+            future.cancel(interrupt);
+            task.cancel();
+
+            if (interrupt) {
+                task.interruptWorkers();
+            } else {
+                task.stop();
+            }
+
+            if (!task.awaitTermination(RECOVERY_STOP_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                logger.warn("Background message recovery for channel " + name + " (" + channelId + ") did not stop within " + (RECOVERY_STOP_TIMEOUT_MILLIS / 1000) + " seconds.");
+            }
+        }
     }
 
     @Override
@@ -1958,6 +2202,10 @@ public class Channel implements IChannel, Runnable {
         try {
             while (sourceMessage != null && !stopSourceQueue) {
                 try {
+                    if (sourceMessage.getTrace() != null) {
+                        Donkey.getInstance().getMessageTracer().recordHandOff(sourceMessage, Stage.SOURCE_QUEUE);
+                    }
+
                     process(sourceMessage, true);
                     sourceQueue.finish(sourceMessage);
                 } catch (Throwable t) {
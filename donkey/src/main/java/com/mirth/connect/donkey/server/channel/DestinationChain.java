@@ -22,7 +22,9 @@ import org.apache.logging.log4j.Logger;
 import com.mirth.connect.donkey.model.message.ConnectorMessage;
 import com.mirth.connect.donkey.model.message.ContentType;
 import com.mirth.connect.donkey.model.message.MessageContent;
+import com.mirth.connect.donkey.model.message.MessageTrace.Stage;
 import com.mirth.connect.donkey.model.message.Status;
+import com.mirth.connect.donkey.server.Donkey;
 import com.mirth.connect.donkey.server.data.DonkeyDao;
 import com.mirth.connect.donkey.util.ThreadUtils;
 
@@ -40,6 +42,10 @@ public class DestinationChain implements Callable<List<ConnectorMessage>> {
         name = "Destination Chain Thread on " + chainProvider.getChannelId();
     }
 
+    public ConnectorMessage getMessage() {
+        return message;
+    }
+
     public void setMessage(ConnectorMessage message) {
         this.message = message;
     }
@@ -82,6 +88,10 @@ public class DestinationChain implements Callable<List<ConnectorMessage>> {
             return null;
         }
 
+        if (message.getTrace() != null) {
+            Donkey.getInstance().getMessageTracer().recordHandOff(message, Stage.CHAIN_WAIT);
+        }
+
         // loop through each metaDataId in the chain, beginning with startMetaDataId
         for (int i = startMetaDataId; i < enabledMetaDataIds.size() && !stopChain; i++) {
             ThreadUtils.checkInterruptedStatus();
@@ -169,9 +179,11 @@ public class DestinationChain implements Callable<List<ConnectorMessage>> {
 
                     // We don't create a new map here because the source map is read-only and thus won't ever be changed
                     nextMessage.setSourceMap(message.getSourceMap());
-                    nextMessage.setChannelMap(new HashMap<String, Object>(message.getChannelMap()));
-                    nextMessage.setResponseMap(new HashMap<String, Object>(message.getResponseMap()));
+                    // Copy the maps themselves, since copying through the tracked maps would count as changing them
+                    nextMessage.setChannelMap(new HashMap<String, Object>(message.getChannelMapContent().getMap()));
+                    nextMessage.setResponseMap(new HashMap<String, Object>(message.getResponseMapContent().getMap()));
                     nextMessage.setRaw(new MessageContent(message.getChannelId(), message.getMessageId(), nextMetaDataId, ContentType.RAW, message.getRaw().getContent(), nextDestinationConnector.getInboundDataType().getType(), message.getRaw().isEncrypted()));
+                    MessageTracer.continueTrace(message, nextMessage);
 
                     ThreadUtils.checkInterruptedStatus();
                     dao.insertConnectorMessage(nextMessage, chainProvider.getStorageSettings().isStoreMaps(), true);
@@ -188,6 +200,10 @@ public class DestinationChain implements Callable<List<ConnectorMessage>> {
                         dao.commit(chainProvider.getStorageSettings().isDurable());
 
                         if (message.getStatus() == Status.QUEUED) {
+                            if (message.getTrace() != null) {
+                                message.getTrace().markHandOff();
+                            }
+
                             destinationConnector.getQueue().add(message);
                         }
                     }
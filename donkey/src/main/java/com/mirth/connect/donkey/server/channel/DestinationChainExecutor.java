@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.donkey.server.channel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executes the destination chains of a single channel on an execution backend provided by
+ * {@link DestinationChainExecutorFactory}. The backend may be owned by this executor or shared with
+ * every other channel. In the latter case, shutting down this executor only affects the chains of
+ * this channel, and the channel may not use more than its share of the backend at a time. Chains
+ * that do not fit are run directly on the submitting thread, so a busy backend slows channels down
+ * instead of queueing chains that a dispatch thread may be blocked on.
+ */
+public class DestinationChainExecutor extends AbstractExecutorService {
+
+    private ExecutorService backend;
+    private boolean sharedBackend;
+    private Semaphore permits;
+    private DestinationChainMetrics metrics;
+    private Set<ChainTask> tasks = ConcurrentHashMap.newKeySet();
+    private Object terminationLock = new Object();
+    private volatile boolean shutdown = false;
+
+    /**
+     * @param maxChains
+     *            the maximum number of chains that may run on the backend at the same time, or 0
+     *            for no limit
+     */
+    DestinationChainExecutor(ExecutorService backend, boolean sharedBackend, int maxChains, DestinationChainMetrics metrics) {
+        this.backend = backend;
+        this.sharedBackend = sharedBackend;
+        this.permits = maxChains > 0 ? new Semaphore(maxChains) : null;
+        this.metrics = metrics;
+    }
+
+    public DestinationChainMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        ChainTask task = new ChainTask(command);
+
+        if (permits == null || permits.tryAcquire()) {
+            synchronized (terminationLock) {
+                if (shutdown) {
+                    releasePermit();
+                    throw new RejectedExecutionException("The destination chain executor has been shut down.");
+                }
+                tasks.add(task);
+            }
+
+            try {
+                backend.execute(task);
+                return;
+            } catch (RejectedExecutionException e) {
+                task.finish();
+
+                // An owned backend only rejects tasks once it has been shut down
+                if (!sharedBackend || backend.isShutdown()) {
+                    throw e;
+                }
+            }
+        } else if (shutdown) {
+            throw new RejectedExecutionException("The destination chain executor has been shut down.");
+        }
+
+        // The channel's share of the backend is used up, so run the chain on the current thread
+        metrics.chainStarted(0, true);
+        try {
+            command.run();
+        } finally {
+            metrics.chainFinished();
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        synchronized (terminationLock) {
+            shutdown = true;
+            terminationLock.notifyAll();
+        }
+
+        if (!sharedBackend) {
+            backend.shutdown();
+        }
+    }
+
+    /**
+     * Interrupts all chains of this channel that are currently running, and returns the ones that
+     * have not started yet. Chains running on a shared backend are interrupted individually, without
+     * affecting the other channels.
+     */
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown();
+
+        List<Runnable> notStarted = new ArrayList<Runnable>();
+        for (ChainTask task : tasks) {
+            if (!task.interrupt()) {
+                notStarted.add(task.command);
+            }
+        }
+
+        if (!sharedBackend) {
+            backend.shutdownNow();
+        }
+
+        return notStarted;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return shutdown && tasks.isEmpty() && (sharedBackend || backend.isTerminated());
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+        synchronized (terminationLock) {
+            while (!shutdown || !tasks.isEmpty()) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(terminationLock, remaining);
+            }
+        }
+
+        return sharedBackend || backend.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    private void releasePermit() {
+        if (permits != null) {
+            permits.release();
+        }
+    }
+
+    private class ChainTask implements Runnable {
+
+        private Runnable command;
+        private long submitTime = System.nanoTime();
+        private Thread thread;
+        private boolean started = false;
+        private boolean finished = false;
+
+        public ChainTask(Runnable command) {
+            this.command = command;
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (finished) {
+                    // Abandoned by shutdownNow before it started
+                    return;
+                }
+                started = true;
+                thread = Thread.currentThread();
+            }
+
+            metrics.chainStarted(System.nanoTime() - submitTime, false);
+            try {
+                command.run();
+            } finally {
+                metrics.chainFinished();
+
+                synchronized (this) {
+                    thread = null;
+                }
+
+                if (sharedBackend) {
+                    // Don't let an interrupt meant for this chain leak into another channel's chain
+                    Thread.interrupted();
+                }
+
+                finish();
+            }
+        }
+
+        /**
+         * Interrupts the chain if it is running. Otherwise the chain is abandoned and false is
+         * returned.
+         */
+        public synchronized boolean interrupt() {
+            if (thread != null) {
+                thread.interrupt();
+                return true;
+            } else if (!started) {
+                finish();
+                return false;
+            }
+            return true;
+        }
+
+        public synchronized void finish() {
+            if (!finished) {
+                finished = true;
+                releasePermit();
+
+                synchronized (terminationLock) {
+                    tasks.remove(this);
+                    terminationLock.notifyAll();
+                }
+            }
+        }
+    }
+}
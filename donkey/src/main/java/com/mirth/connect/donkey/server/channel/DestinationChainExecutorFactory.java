@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.donkey.server.channel;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Creates the executors that channels run their destination chains on. The execution backend is
+ * selected with the donkey.chainexecutor property:
+ *
+ * <ul>
+ * <li>cached (default): each channel gets its own unbounded cached thread pool.</li>
+ * <li>shared: all channels share one bounded pool, and each channel may only use a fair share of
+ * it at a time.</li>
+ * <li>virtual: each chain runs on its own virtual thread. Requires Java 21 or later, otherwise the
+ * cached backend is used.</li>
+ * </ul>
+ */
+public class DestinationChainExecutorFactory {
+
+    public static final String BACKEND_CACHED = "cached";
+    public static final String BACKEND_SHARED = "shared";
+    public static final String BACKEND_VIRTUAL = "virtual";
+    public static final int DEFAULT_SHARED_THREADS = 100;
+
+    private static final int DEFAULT_CHANNEL_SHARE_DIVISOR = 4;
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    private String backend;
+    private int channelThreads;
+    private ExecutorService sharedPool;
+    private Method virtualExecutorMethod;
+    private Logger logger = LogManager.getLogger(getClass());
+
+    /**
+     * @param backend
+     *            the name of the execution backend
+     * @param sharedThreads
+     *            the size of the shared pool
+     * @param channelThreads
+     *            the maximum number of chains a single channel may run at the same time on the
+     *            shared pool, or on virtual threads. If not positive, a channel may use a quarter
+     *            of the shared pool, and virtual threads are not limited.
+     */
+    public DestinationChainExecutorFactory(String backend, int sharedThreads, int channelThreads) {
+        this.backend = StringUtils.defaultIfBlank(StringUtils.lowerCase(StringUtils.trim(backend)), BACKEND_CACHED);
+
+        if (BACKEND_SHARED.equals(this.backend)) {
+            if (sharedThreads < 1) {
+                sharedThreads = DEFAULT_SHARED_THREADS;
+            }
+            if (channelThreads < 1) {
+                channelThreads = Math.max(1, sharedThreads / DEFAULT_CHANNEL_SHARE_DIVISOR);
+            }
+
+            final AtomicInteger threadNumber = new AtomicInteger();
+            // No task queue, a chain that finds no idle thread runs on the dispatching thread instead
+            sharedPool = new ThreadPoolExecutor(0, sharedThreads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "Destination Chain Pool Thread " + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        } else if (BACKEND_VIRTUAL.equals(this.backend)) {
+            try {
+                virtualExecutorMethod = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                // Make sure virtual threads are actually usable on this JVM
+                ((ExecutorService) virtualExecutorMethod.invoke(null)).shutdown();
+            } catch (Throwable t) {
+                logger.warn("Virtual threads are not available on this JVM, destination chains will use a cached thread pool per channel instead.");
+                this.backend = BACKEND_CACHED;
+                virtualExecutorMethod = null;
+            }
+        } else if (!BACKEND_CACHED.equals(this.backend)) {
+            logger.warn("Unknown destination chain executor \"" + backend + "\", destination chains will use a cached thread pool per channel instead.");
+            this.backend = BACKEND_CACHED;
+        }
+
+        this.channelThreads = Math.max(0, channelThreads);
+    }
+
+    public String getBackend() {
+        return backend;
+    }
+
+    /**
+     * Creates the executor for a channel's destination chains. A new executor is needed every time
+     * the channel starts, since stopping the channel shuts it down.
+     */
+    public DestinationChainExecutor createExecutor(DestinationChainMetrics metrics) {
+        if (sharedPool != null) {
+            return new DestinationChainExecutor(sharedPool, true, channelThreads, metrics);
+        } else if (virtualExecutorMethod != null) {
+            try {
+                return new DestinationChainExecutor((ExecutorService) virtualExecutorMethod.invoke(null), false, channelThreads, metrics);
+            } catch (Exception e) {
+                logger.warn("Unable to create a virtual thread executor, using a cached thread pool instead.", e);
+            }
+        }
+
+        return createCachedExecutor(metrics);
+    }
+
+    public void shutdown() {
+        if (sharedPool != null) {
+            sharedPool.shutdownNow();
+        }
+    }
+
+    public static DestinationChainExecutor createCachedExecutor(DestinationChainMetrics metrics) {
+        return new DestinationChainExecutor(Executors.newCachedThreadPool(), false, 0, metrics);
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.donkey.server.channel;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-channel counters for destination chains submitted to the channel's chain executor. The wait
+ * time of a chain is the time between its submission and the moment it starts running.
+ */
+public class DestinationChainMetrics {
+
+    private AtomicInteger activeChains = new AtomicInteger();
+    private AtomicLong executedChains = new AtomicLong();
+    private AtomicLong callerRunsChains = new AtomicLong();
+    private AtomicLong totalWaitNanos = new AtomicLong();
+    private AtomicLong maxWaitNanos = new AtomicLong();
+
+    void chainStarted(long waitNanos, boolean callerRuns) {
+        activeChains.incrementAndGet();
+        executedChains.incrementAndGet();
+        if (callerRuns) {
+            callerRunsChains.incrementAndGet();
+        }
+        totalWaitNanos.addAndGet(waitNanos);
+
+        long max = maxWaitNanos.get();
+        while (waitNanos > max && !maxWaitNanos.compareAndSet(max, waitNanos)) {
+            max = maxWaitNanos.get();
+        }
+    }
+
+    void chainFinished() {
+        activeChains.decrementAndGet();
+    }
+
+    /**
+     * Returns the number of destination chains currently running for the channel, not counting the
+     * last chain of each message, which always runs on the dispatching thread.
+     */
+    public int getActiveChains() {
+        return activeChains.get();
+    }
+
+    public long getExecutedChains() {
+        return executedChains.get();
+    }
+
+    /**
+     * Returns the number of chains that ran on the dispatching thread because the channel had
+     * used up its share of the execution backend.
+     */
+    public long getCallerRunsChains() {
+        return callerRunsChains.get();
+    }
+
+    /**
+     * Returns the average time in milliseconds that chains waited before they started running.
+     */
+    public long getAverageWaitTime() {
+        long executed = executedChains.get();
+        return executed > 0 ? TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get() / executed) : 0;
+    }
+
+    /**
+     * Returns the longest time in milliseconds that a chain waited before it started running.
+     */
+    public long getMaxWaitTime() {
+        return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get());
+    }
+}
@@ -40,6 +40,7 @@ import com.mirth.connect.donkey.model.message.ConnectorMessage;
 import com.mirth.connect.donkey.model.message.ContentType;
 import com.mirth.connect.donkey.model.message.MessageContent;
 import com.mirth.connect.donkey.model.message.MessageSerializerException;
+import com.mirth.connect.donkey.model.message.MessageTrace.Stage;
 import com.mirth.connect.donkey.model.message.Response;
 import com.mirth.connect.donkey.model.message.ResponseValidator;
 import com.mirth.connect.donkey.model.message.Status;
@@ -629,6 +630,10 @@ public class DestinationConnector extends Connector implements Runnable, IDestin
 
             dao.updateStatus(message, previousStatus);
 
+            if (message.getTrace() != null) {
+                Donkey.getInstance().getMessageTracer().addSample(message, dao, storageSettings);
+            }
+
             if (storageSettings.isStoreMaps()) {
                 dao.updateMaps(message);
             }
@@ -844,6 +849,10 @@ public class DestinationConnector extends Connector implements Runnable, IDestin
                 if (connectorMessage != null) {
                     boolean exceptionCaught = false;
 
+                    if (connectorMessage.getTrace() != null) {
+                        Donkey.getInstance().getMessageTracer().recordHandOff(connectorMessage, Stage.QUEUE_WAIT);
+                    }
+
                     try {
                         /*
                          * If the last message id is equal to the current message id, then the
@@ -1108,6 +1117,7 @@ public class DestinationConnector extends Connector implements Runnable, IDestin
     private Response handleSend(ConnectorProperties connectorProperties, ConnectorMessage message) throws InterruptedException {
         message.setSendDate(Calendar.getInstance());
         Response response;
+        long startTime = message.getTrace() != null ? System.nanoTime() : 0;
 
         long dispatcherId = getDispatcherId();
         try {
@@ -1132,6 +1142,10 @@ public class DestinationConnector extends Connector implements Runnable, IDestin
         }
         message.setResponseDate(Calendar.getInstance());
 
+        if (message.getTrace() != null) {
+            Donkey.getInstance().getMessageTracer().record(message, Stage.SEND, startTime);
+        }
+
         return response;
     }
 
@@ -1170,9 +1184,15 @@ public class DestinationConnector extends Connector implements Runnable, IDestin
         }
 
         try {
+            long startTime = message.getTrace() != null ? System.nanoTime() : 0;
+
             // Perform transformation
             responseTransformerExecutor.runResponseTransformer(dao, message, response, isQueueEnabled(), storageSettings, serializer);
 
+            if (message.getTrace() != null) {
+                Donkey.getInstance().getMessageTracer().record(message, Stage.RESPONSE_TRANSFORMER, startTime);
+            }
+
             String error = null;
             if (StringUtils.isNotBlank(response.getError())) {
                 error = response.getError();
@@ -1210,6 +1230,10 @@ public class DestinationConnector extends Connector implements Runnable, IDestin
             }
         }
 
+        if (message.getTrace() != null) {
+            Donkey.getInstance().getMessageTracer().addSample(message, dao, storageSettings);
+        }
+
         if (storageSettings.isStoreMaps()) {
             dao.updateMaps(message);
         }
@@ -10,12 +10,15 @@
 package com.mirth.connect.donkey.server.channel;
 
 import com.mirth.connect.donkey.model.DonkeyException;
+import com.mirth.connect.donkey.model.message.BinaryMessageSerializer;
 import com.mirth.connect.donkey.model.message.ConnectorMessage;
 import com.mirth.connect.donkey.model.message.ContentType;
 import com.mirth.connect.donkey.model.message.DataType;
 import com.mirth.connect.donkey.model.message.MessageContent;
+import com.mirth.connect.donkey.model.message.MessageTrace.Stage;
 import com.mirth.connect.donkey.model.message.SerializationType;
 import com.mirth.connect.donkey.model.message.Status;
+import com.mirth.connect.donkey.server.Donkey;
 import com.mirth.connect.donkey.server.channel.components.FilterTransformer;
 import com.mirth.connect.donkey.util.ThreadUtils;
 
@@ -64,18 +67,33 @@ public class FilterTransformerExecutor {
      */
     public void processConnectorMessage(ConnectorMessage connectorMessage) throws InterruptedException, DonkeyException {
         ThreadUtils.checkInterruptedStatus();
-        String content;
+        MessageContent rawContent;
         String encodedContent;
+        MessageTracer messageTracer = connectorMessage.getTrace() != null ? Donkey.getInstance().getMessageTracer() : null;
+        long startTime = messageTracer != null ? System.nanoTime() : 0;
 
         // If there is no processed raw content (no preprocessor step), use the raw instead.
         if (connectorMessage.getProcessedRaw() == null) {
-            content = connectorMessage.getRaw().getContent();
+            rawContent = connectorMessage.getRaw();
         } else {
-            content = connectorMessage.getProcessedRaw().getContent();
+            rawContent = connectorMessage.getProcessedRaw();
+        }
+
+        // Binary content is read directly when the serializer supports it, so it never has to be Base64 encoded and decoded again
+        BinaryMessageSerializer binarySerializer = null;
+        byte[] binaryContent = null;
+        if (rawContent.isBinary() && inbound.getSerializer() instanceof BinaryMessageSerializer) {
+            binarySerializer = (BinaryMessageSerializer) inbound.getSerializer();
+            // Read once, since the bytes are dropped as soon as anything asks for the string form
+            binaryContent = rawContent.getBinaryContent();
         }
 
         // Populate the connector map with metadata as necessary
-        inbound.getSerializer().populateMetaData(content, connectorMessage.getConnectorMap());
+        if (binarySerializer != null) {
+            binarySerializer.populateMetaData(binaryContent, connectorMessage.getConnectorMap());
+        } else {
+            inbound.getSerializer().populateMetaData(rawContent.getContent(), connectorMessage.getConnectorMap());
+        }
 
         if (filterTransformer != null) {
             // Pre-transformation setup
@@ -84,20 +102,34 @@ public class FilterTransformerExecutor {
                     // Only the raw/processed raw content is used for the raw serialization type, so nothing needs to be done here
                     break;
                 case JSON:
-                    setTransformedContent(connectorMessage, inbound.getSerializer().toJSON(content), inbound.getSerializationType());
+                    setTransformedContent(connectorMessage, inbound.getSerializer().toJSON(rawContent.getContent()), inbound.getSerializationType());
                     break;
                 case XML:
                 default:
                     // Convert the content to xml and set as the transformed content
-                    setTransformedContent(connectorMessage, inbound.getSerializer().toXML(content), inbound.getSerializationType());
+                    if (binarySerializer != null) {
+                        setTransformedContent(connectorMessage, binarySerializer.toXML(binaryContent), inbound.getSerializationType());
+                    } else {
+                        setTransformedContent(connectorMessage, inbound.getSerializer().toXML(rawContent.getContent()), inbound.getSerializationType());
+                    }
                     break;
             }
 
+            if (messageTracer != null) {
+                messageTracer.record(connectorMessage, Stage.SERIALIZE, startTime);
+                startTime = System.nanoTime();
+            }
+
             ThreadUtils.checkInterruptedStatus();
 
             FilterTransformerResult result = filterTransformer.doFilterTransform(connectorMessage);
             String transformedContent = result.getTransformedContent();
 
+            if (messageTracer != null) {
+                messageTracer.record(connectorMessage, Stage.FILTER_TRANSFORMER, startTime);
+                startTime = System.nanoTime();
+            }
+
             setTransformedContent(connectorMessage, transformedContent, outbound.getSerializationType());
 
             // Perform the filter and transformation
@@ -122,6 +154,10 @@ public class FilterTransformerExecutor {
                     encodedContent = outbound.getSerializer().fromXML(connectorMessage.getTransformed().getContent());
                     break;
             }
+
+            if (messageTracer != null) {
+                messageTracer.record(connectorMessage, Stage.DESERIALIZE, startTime);
+            }
         } else {
             /*
              * Since this condition can only occur if the inbound and outbound datatypes are the
@@ -130,6 +166,7 @@ public class FilterTransformerExecutor {
              * optimization of not serializing, but still modifying the message in certain
              * circumstances. It should NOT be used anywhere other than transformers.
              */
+            String content = rawContent.getContent();
             String transformedContent = inbound.getSerializer().transformWithoutSerializing(content, outbound.getSerializer());
             // transformWithoutSerializing should return null if it has no effect.
             if (transformedContent == null) {
@@ -137,6 +174,10 @@ public class FilterTransformerExecutor {
             } else {
                 encodedContent = transformedContent;
             }
+
+            if (messageTracer != null) {
+                messageTracer.record(connectorMessage, Stage.SERIALIZE, startTime);
+            }
         }
 
         connectorMessage.setEncoded(new MessageContent(connectorMessage.getChannelId(), connectorMessage.getMessageId(), connectorMessage.getMetaDataId(), ContentType.ENCODED, encodedContent, outbound.getType(), false));
@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.donkey.server.channel;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.mirth.connect.donkey.model.message.ConnectorMessage;
+import com.mirth.connect.donkey.model.message.ContentType;
+import com.mirth.connect.donkey.model.message.MessageContent;
+import com.mirth.connect.donkey.model.message.MessageTrace;
+import com.mirth.connect.donkey.model.message.MessageTrace.Stage;
+import com.mirth.connect.donkey.model.message.SampledMessageTrace;
+import com.mirth.connect.donkey.server.data.DonkeyDao;
+import com.mirth.connect.donkey.server.data.metrics.LatencyMetrics;
+
+/**
+ * Traces how long messages spend in each stage of a channel. While tracing is enabled, every
+ * message dispatched to a channel gets a {@link MessageTrace} on its connector messages, and every
+ * stage it goes through is recorded in a histogram named after the connector and the stage.
+ *
+ * A percentage of the traced messages can also be sampled. The most recent sampled traces are kept
+ * in memory so they can be viewed from the dashboard, and each one is stored with its connector
+ * message as {@link ContentType#MESSAGE_TRACE} content, so it can be viewed in the message browser.
+ * They are never put in the message maps, so user scripts don't see them.
+ *
+ * Messages dispatched while tracing is disabled have no trace, so each stage only costs a null
+ * check.
+ */
+public class MessageTracer extends LatencyMetrics {
+    private static final int MAX_SAMPLES = 100;
+
+    private volatile double samplePercentage = 0;
+    private Map<String, SampledMessageTrace> samples = new LinkedHashMap<String, SampledMessageTrace>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, SampledMessageTrace> eldest) {
+            return size() > MAX_SAMPLES;
+        }
+    };
+
+    public double getSamplePercentage() {
+        return samplePercentage;
+    }
+
+    /**
+     * Sets the percentage of traced messages, from 0 to 100, whose traces are kept.
+     */
+    public void setSamplePercentage(double samplePercentage) {
+        this.samplePercentage = Math.min(Math.max(samplePercentage, 0), 100);
+    }
+
+    /**
+     * Creates the trace of a message that was dispatched at the given System.nanoTime(), and
+     * decides whether it is sampled.
+     */
+    public MessageTrace createTrace(long dispatchTime) {
+        double samplePercentage = this.samplePercentage;
+        return new MessageTrace(dispatchTime, samplePercentage > 0 && ThreadLocalRandom.current().nextDouble() * 100 < samplePercentage);
+    }
+
+    /**
+     * Starts tracing a destination message if the message it was created from is traced.
+     */
+    public static void continueTrace(ConnectorMessage from, ConnectorMessage to) {
+        MessageTrace trace = from.getTrace();
+
+        if (trace != null) {
+            to.setTrace(new MessageTrace(trace.getDispatchTime(), trace.isSampled()));
+        }
+    }
+
+    /**
+     * Records a stage that started at the given System.nanoTime() and ended now.
+     */
+    public void record(ConnectorMessage message, Stage stage, long startTime) {
+        record(message, stage, startTime, System.nanoTime());
+    }
+
+    public void record(ConnectorMessage message, Stage stage, long startTime, long endTime) {
+        MessageTrace trace = message.getTrace();
+
+        if (trace != null) {
+            trace.add(stage, startTime, endTime);
+            record(message.getChannelId(), message.getConnectorName() + ": " + stage, endTime - startTime);
+        }
+    }
+
+    /**
+     * Records how long the message waited since it was last handed off to another thread, if it
+     * was.
+     */
+    public void recordHandOff(ConnectorMessage message, Stage stage) {
+        MessageTrace trace = message.getTrace();
+
+        if (trace != null) {
+            long handOffTime = trace.takeHandOff();
+
+            if (handOffTime != 0) {
+                record(message, stage, handOffTime);
+            }
+        }
+    }
+
+    /**
+     * Keeps the trace of the message if it was sampled, replacing any trace kept earlier for the
+     * same connector message, and sets it as the message's trace content. This should be called
+     * once the connector is done with the message.
+     * 
+     * @return true if the message was sampled
+     */
+    public boolean addSample(ConnectorMessage message) {
+        MessageTrace trace = message.getTrace();
+
+        if (trace != null && trace.isSampled()) {
+            SampledMessageTrace sample = new SampledMessageTrace(message);
+            String key = message.getChannelId() + ":" + message.getMessageId() + ":" + message.getMetaDataId();
+
+            synchronized (samples) {
+                // Remove it first so that the sample moves to the end
+                samples.remove(key);
+                samples.put(key, sample);
+            }
+
+            message.setTraceContent(new MessageContent(message.getChannelId(), message.getMessageId(), message.getMetaDataId(), ContentType.MESSAGE_TRACE, sample.getTrace(), null, false));
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Keeps the trace of the message if it was sampled, and stores it with the message unless the
+     * channel doesn't store messages. A trace stored earlier for the same connector message, such
+     * as before a queued message was retried, is replaced.
+     */
+    public void addSample(ConnectorMessage message, DonkeyDao dao, StorageSettings storageSettings) {
+        if (addSample(message) && storageSettings.isEnabled()) {
+            dao.storeMessageContent(message.getTraceContent());
+        }
+    }
+
+    /**
+     * Returns the kept traces of the given channels, or of all channels if null, newest first.
+     */
+    public List<SampledMessageTrace> getSamples(Collection<String> channelIds) {
+        List<SampledMessageTrace> list = new ArrayList<SampledMessageTrace>();
+
+        synchronized (samples) {
+            for (SampledMessageTrace sample : samples.values()) {
+                if (channelIds == null || channelIds.contains(sample.getChannelId())) {
+                    list.add(sample);
+                }
+            }
+        }
+
+        Collections.reverse(list);
+        return list;
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+
+        synchronized (samples) {
+            samples.clear();
+        }
+    }
+
+    @Override
+    public void reset(String channelId) {
+        super.reset(channelId);
+
+        synchronized (samples) {
+            for (Iterator<SampledMessageTrace> iterator = samples.values().iterator(); iterator.hasNext();) {
+                if (iterator.next().getChannelId().equals(channelId)) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+}
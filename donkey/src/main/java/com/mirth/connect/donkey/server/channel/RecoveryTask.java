@@ -11,9 +11,17 @@ package com.mirth.connect.donkey.server.channel;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -30,42 +38,178 @@ import com.mirth.connect.donkey.util.ThreadUtils;
 
 public class RecoveryTask implements Callable<Void> {
     private Channel channel;
+    private boolean background;
+    private int recoveryThreads;
+    private Semaphore workerPermits;
+    // Only messages up to this ID existed when the channel started
+    private Long maxMessageId;
+    private volatile Throwable workerFailure;
+    // The threads currently recovering messages for this task
+    private Set<Thread> workerThreads = new HashSet<Thread>();
+    private volatile boolean stopped = false;
+    // Set when no more messages should be handed out, while the ones in flight finish
+    private volatile boolean stopRequested = false;
+    private AtomicBoolean started = new AtomicBoolean(false);
+    private CountDownLatch finishedLatch = new CountDownLatch(1);
+    // The number of messages that were attempted to be recovered
+    private AtomicLong attemptedMessages = new AtomicLong();
+    // The number of messages that were successfully recovered
+    private AtomicLong recoveredMessages = new AtomicLong();
     private Logger logger = LogManager.getLogger(getClass());
 
     public RecoveryTask(Channel channel) {
+        this(channel, false);
+    }
+
+    /**
+     * @param background
+     *            If true, the task is running alongside new traffic that the channel is already
+     *            accepting. Source messages that will be picked up by the source queue are not
+     *            recovered, and any failure is logged rather than propagated to the caller.
+     */
+    public RecoveryTask(Channel channel, boolean background) {
         this.channel = channel;
+        this.background = background;
+        /*
+         * Messages are recovered across the same number of threads that the channel is configured
+         * to process with. If only one processing thread is used, messages must be recovered in
+         * order, so everything happens on the task thread itself.
+         */
+        recoveryThreads = Math.max(channel.getProcessingThreads(), 1);
+        workerPermits = new Semaphore(recoveryThreads);
+
+        if (background) {
+            /*
+             * The source connector starts accepting messages right after this task is submitted.
+             * Those messages are unfinished while they are in flight, so the task must only look
+             * at messages that were already stored, or it would process them a second time.
+             */
+            DonkeyDao dao = channel.getDaoFactory().getDao();
+            try {
+                maxMessageId = dao.getMaxMessageId(channel.getChannelId());
+            } finally {
+                dao.close();
+            }
+        }
+    }
+
+    public boolean isBackground() {
+        return background;
+    }
+
+    /**
+     * Returns true until the task has either finished or been stopped before it started.
+     */
+    public boolean isRunning() {
+        return finishedLatch.getCount() > 0;
+    }
+
+    public long getAttemptedMessages() {
+        return attemptedMessages.get();
+    }
+
+    public long getRecoveredMessages() {
+        return recoveredMessages.get();
+    }
+
+    /**
+     * Prevents the task from running if it has not been started yet. A task that is already
+     * running must be interrupted instead.
+     */
+    public void cancel() {
+        if (started.compareAndSet(false, true)) {
+            finishedLatch.countDown();
+        }
+    }
+
+    /**
+     * Stops handing out new messages to recover. Messages that are already being recovered are
+     * allowed to finish, and the rest are recovered the next time the channel starts.
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    /**
+     * Interrupts any messages still being recovered by worker threads, and prevents new ones from
+     * being started.
+     */
+    public void interruptWorkers() {
+        synchronized (workerThreads) {
+            stopped = true;
+            for (Thread thread : workerThreads) {
+                thread.interrupt();
+            }
+        }
+    }
+
+    /**
+     * Blocks until the task has finished, including any messages still being recovered by worker
+     * threads.
+     */
+    public void awaitTermination() throws InterruptedException {
+        finishedLatch.await();
+    }
+
+    /**
+     * Blocks until the task has finished or the timeout elapses.
+     * 
+     * @return true if the task finished, false if the timeout elapsed first
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return finishedLatch.await(timeout, unit);
     }
 
     @Override
     public Void call() throws Exception {
+        if (!started.compareAndSet(false, true)) {
+            // The task was stopped before it had a chance to run
+            return null;
+        }
+
         String originalThreadName = Thread.currentThread().getName();
 
         try {
             Thread.currentThread().setName("Recovery Task Thread on " + channel.getName() + " (" + channel.getChannelId() + ") < " + originalThreadName);
             return doCall();
+        } catch (Throwable t) {
+            if (!background) {
+                throw t;
+            }
+
+            if (t instanceof InterruptedException) {
+                logger.info("Background message recovery interrupted for channel " + channel.getName() + " (" + channel.getChannelId() + "). Recovered " + recoveredMessages.get() + " out of " + attemptedMessages.get() + " messages.");
+            } else {
+                logger.error("Background message recovery failed for channel " + channel.getName() + " (" + channel.getChannelId() + "): " + t.getMessage(), t);
+            }
+            return null;
         } finally {
+            finishedLatch.countDown();
             Thread.currentThread().setName(originalThreadName);
         }
     }
 
     private Void doCall() throws Exception {
         StorageSettings storageSettings = channel.getStorageSettings();
-        Long maxMessageId = null;
-        // The number of messages that were attempted to be recovered
-        long attemptedMessages = 0L;
-        // The number of messages that were successfully recovered
-        long recoveredMessages = 0L;
 
         // The buffer size for each sub-task
         int sourceBufferSize = 1;
-        int unfinishedBufferSize = 10;
-        int pendingBufferSize = 10;
+        /*
+         * Keep enough messages buffered to keep all recovery threads busy, but never more than that
+         * so memory stays bounded no matter how many messages need to be recovered.
+         */
+        int unfinishedBufferSize = Math.max(10, recoveryThreads * 2);
+        int pendingBufferSize = Math.max(10, recoveryThreads * 2);
         // The minimum message Id that can be retrieved for the next query.
         long sourceMinMessageId = 0L;
         long unfinishedMinMessageId = 0L;
         long pendingMinMessageId = 0L;
-        // The completed status of each sub-task
-        boolean sourceComplete = false;
+        /*
+         * The completed status of each sub-task. When running in the background, source RECEIVED
+         * messages are left for the source queue if it is enabled, since the queue threads are
+         * already running and would otherwise process the same messages.
+         */
+        boolean sourceComplete = background && !channel.getSourceConnector().isRespondAfterProcessing();
         boolean unfinishedComplete = false;
         boolean pendingComplete = false;
         // The queue buffer for each sub-task
@@ -73,72 +217,77 @@ public class RecoveryTask implements Callable<Void> {
         LinkedList<Message> unfinishedMessages = new LinkedList<Message>();
         LinkedList<Message> pendingMessages = new LinkedList<Message>();
 
-        do {
-            ThreadUtils.checkInterruptedStatus();
-            DonkeyDao dao = channel.getDaoFactory().getDao();
+        try {
+            do {
+                ThreadUtils.checkInterruptedStatus();
+                checkWorkerFailure();
 
-            try {
-                if (maxMessageId == null) {
-                    // Cache the max messageId of the channel to be used in the query below
-                    maxMessageId = dao.getMaxMessageId(channel.getChannelId());
+                if (stopRequested) {
+                    logger.info("Stopped message recovery for channel " + channel.getName() + " (" + channel.getChannelId() + "). Recovered " + recoveredMessages.get() + " out of " + attemptedMessages.get() + " messages, the rest will be recovered the next time the channel starts.");
+                    break;
                 }
 
-                if (!sourceComplete && sourceConnectorMessages.isEmpty()) {
-                    // Fill the buffer
-                    sourceConnectorMessages.addAll(dao.getConnectorMessages(channel.getChannelId(), channel.getServerId(), 0, Status.RECEIVED, 0, sourceBufferSize, sourceMinMessageId, maxMessageId));
-
-                    // Mark the sub-task as completed if no messages were retrieved by the query to prevent the query from running again
-                    if (sourceConnectorMessages.isEmpty()) {
-                        sourceComplete = true;
-                    } else {
-                        /*
-                         * If the source queue is on, these messages are usually ignored. Therefore
-                         * we only retrieve one of these messages until we know for sure that we'll
-                         * need to recover them.
-                         */
-                        sourceBufferSize = 100;
+                DonkeyDao dao = channel.getDaoFactory().getDao();
+
+                try {
+                    if (maxMessageId == null) {
+                        // Cache the max messageId of the channel to be used in the query below
+                        maxMessageId = dao.getMaxMessageId(channel.getChannelId());
                     }
-                }
 
-                if (!unfinishedComplete && unfinishedMessages.isEmpty()) {
-                    // Fill the buffer
-                    unfinishedMessages.addAll(dao.getUnfinishedMessages(channel.getChannelId(), channel.getServerId(), unfinishedBufferSize, unfinishedMinMessageId));
+                    if (!sourceComplete && sourceConnectorMessages.isEmpty()) {
+                        // Fill the buffer
+                        sourceConnectorMessages.addAll(dao.getConnectorMessages(channel.getChannelId(), channel.getServerId(), 0, Status.RECEIVED, 0, sourceBufferSize, sourceMinMessageId, maxMessageId));
 
-                    // Mark the sub-task as completed if no messages were retrieved by the query to prevent the query from running again
-                    if (unfinishedMessages.isEmpty()) {
-                        unfinishedComplete = true;
+                        // Mark the sub-task as completed if no messages were retrieved by the query to prevent the query from running again
+                        if (sourceConnectorMessages.isEmpty()) {
+                            sourceComplete = true;
+                        } else {
+                            /*
+                             * If the source queue is on, these messages are usually ignored.
+                             * Therefore we only retrieve one of these messages until we know for
+                             * sure that we'll need to recover them.
+                             */
+                            sourceBufferSize = 100;
+                        }
                     }
-                }
 
-                if (!pendingComplete && pendingMessages.isEmpty()) {
-                    // Fill the buffer
-                    pendingMessages.addAll(dao.getPendingConnectorMessages(channel.getChannelId(), channel.getServerId(), pendingBufferSize, pendingMinMessageId));
+                    if (!unfinishedComplete && unfinishedMessages.isEmpty()) {
+                        // Fill the buffer
+                        unfinishedMessages.addAll(dao.getUnfinishedMessages(channel.getChannelId(), channel.getServerId(), unfinishedBufferSize, unfinishedMinMessageId, maxMessageId));
 
-                    // Mark the sub-task as completed if no messages were retrieved by the query to prevent the query from running again
-                    if (pendingMessages.isEmpty()) {
-                        pendingComplete = true;
+                        // Mark the sub-task as completed if no messages were retrieved by the query to prevent the query from running again
+                        if (unfinishedMessages.isEmpty()) {
+                            unfinishedComplete = true;
+                        }
                     }
-                }
-            } finally {
-                dao.close();
-            }
 
-            // Retrieve the first message of each sub-task
-            ConnectorMessage sourceConnectorMessage = sourceConnectorMessages.peekFirst();
-            Message unfinishedMessage = unfinishedMessages.peekFirst();
-            Message pendingMessage = pendingMessages.peekFirst();
-
-            if (!storageSettings.isMessageRecoveryEnabled()) {
-                sourceComplete = true;
-                unfinishedComplete = true;
-                pendingComplete = true;
-                if (unfinishedMessage != null || pendingMessage != null || (sourceConnectorMessage != null && channel.getSourceConnector().isRespondAfterProcessing())) {
-                    logger.info("Incomplete messages found for channel " + channel.getName() + " (" + channel.getChannelId() + ") but message storage settings do not support recovery. Skipping recovery task.");
+                    if (!pendingComplete && pendingMessages.isEmpty()) {
+                        // Fill the buffer
+                        pendingMessages.addAll(dao.getPendingConnectorMessages(channel.getChannelId(), channel.getServerId(), pendingBufferSize, pendingMinMessageId, maxMessageId));
+
+                        // Mark the sub-task as completed if no messages were retrieved by the query to prevent the query from running again
+                        if (pendingMessages.isEmpty()) {
+                            pendingComplete = true;
+                        }
+                    }
+                } finally {
+                    dao.close();
                 }
-            } else {
-                Long messageId = null;
 
-                try {
+                // Retrieve the first message of each sub-task
+                ConnectorMessage sourceConnectorMessage = sourceConnectorMessages.peekFirst();
+                Message unfinishedMessage = unfinishedMessages.peekFirst();
+                Message pendingMessage = pendingMessages.peekFirst();
+
+                if (!storageSettings.isMessageRecoveryEnabled()) {
+                    sourceComplete = true;
+                    unfinishedComplete = true;
+                    pendingComplete = true;
+                    if (unfinishedMessage != null || pendingMessage != null || (sourceConnectorMessage != null && channel.getSourceConnector().isRespondAfterProcessing())) {
+                        logger.info("Incomplete messages found for channel " + channel.getName() + " (" + channel.getChannelId() + ") but message storage settings do not support recovery. Skipping recovery task.");
+                    }
+                } else {
                     /*
                      * Perform a 3-way merge. The sub-task that has the lowest messageId will be
                      * executed first. However it is possible for the unfinishedMessage and
@@ -148,34 +297,23 @@ public class RecoveryTask implements Callable<Void> {
                     if (sourceConnectorMessage != null && (unfinishedMessage == null || sourceConnectorMessage.getMessageId() < unfinishedMessage.getMessageId()) && (pendingMessage == null || sourceConnectorMessage.getMessageId() < pendingMessage.getMessageId())) {
                         if (!channel.getSourceConnector().isRespondAfterProcessing() && unfinishedComplete && pendingComplete) {
                             /*
-                             * If the other two sub-tasks are completed already and the source queue
-                             * is enabled for this channel, then there is no need to continue
+                             * If the other two sub-tasks are completed already and the source
+                             * queue is enabled for this channel, then there is no need to continue
                              * recovering source RECEIVED messages because they will be picked up by
                              * the source queue.
                              */
                             sourceComplete = true;
                         } else {
-                            // Store the messageId so we can log it out if an exception occurs
-                            messageId = sourceConnectorMessage.getMessageId();
                             // Remove the message from the buffer and update the minMessageId
                             sourceMinMessageId = sourceConnectorMessages.pollFirst().getMessageId() + 1;
 
-                            if (attemptedMessages++ == 0) {
+                            if (attemptedMessages.getAndIncrement() == 0) {
                                 logger.info("Starting message recovery for channel " + channel.getName() + " (" + channel.getChannelId() + "). Incomplete messages found in source queue.");
                             }
-                            logger.debug("Recovering incomplete message " + messageId + " for channel " + channel.getName() + " (" + channel.getChannelId() + ")");
-
-                            // Execute the recovery process for this message
-                            channel.process(sourceConnectorMessage, true);
-                            // Use this to decrement the queue size
-                            channel.getSourceQueue().decrementSize();
-                            logger.debug("Recovered incomplete message " + messageId + " for channel " + channel.getName() + " (" + channel.getChannelId() + ")");
-                            // Increment the number of successfully recovered messages
-                            recoveredMessages++;
+
+                            recover(new SourceRecovery(sourceConnectorMessage));
                         }
                     } else if (unfinishedMessage != null && (pendingMessage == null || unfinishedMessage.getMessageId() <= pendingMessage.getMessageId())) {
-                        // Store the messageId so we can log it out if an exception occurs
-                        messageId = unfinishedMessage.getMessageId();
                         // Remove the message from the buffer and update the minMessageId
                         unfinishedMinMessageId = unfinishedMessages.pollFirst().getMessageId() + 1;
 
@@ -185,56 +323,189 @@ public class RecoveryTask implements Callable<Void> {
                             pendingMessage = pendingMessages.peekFirst();
                         }
 
-                        if (attemptedMessages++ == 0) {
+                        if (attemptedMessages.getAndIncrement() == 0) {
                             logger.info("Starting message recovery for channel " + channel.getName() + " (" + channel.getChannelId() + "). Incomplete unfinished messages found.");
                         }
-                        logger.debug("Recovering incomplete unfinished message " + messageId + " for channel " + channel.getName() + " (" + channel.getChannelId() + ")");
 
-                        // Execute the recovery process for this message
-                        recoverUnfinishedMessage(unfinishedMessage);
-                        logger.debug("Recovered incomplete unfinished message " + messageId + " for channel " + channel.getName() + " (" + channel.getChannelId() + ")");
-                        // Increment the number of successfully recovered messages
-                        recoveredMessages++;
+                        recover(new UnfinishedRecovery(unfinishedMessage));
                     } else if (pendingMessage != null) {
-                        // Store the messageId so we can log it out if an exception occurs
-                        messageId = pendingMessage.getMessageId();
                         // Remove the message from the buffer and update the minMessageId
                         pendingMinMessageId = pendingMessages.pollFirst().getMessageId() + 1;
 
-                        if (attemptedMessages++ == 0) {
+                        if (attemptedMessages.getAndIncrement() == 0) {
                             logger.info("Starting message recovery for channel " + channel.getName() + " (" + channel.getChannelId() + "). Incomplete pending ('P') messages found.");
                         }
-                        logger.debug("Recovering incomplete pending message " + messageId + " for channel " + channel.getName() + " (" + channel.getChannelId() + ")");
 
-                        // Execute the recovery process for this message
-                        recoverPendingMessage(pendingMessage);
-                        logger.debug("Recovered incomplete pending message " + messageId + " for channel " + channel.getName() + " (" + channel.getChannelId() + ")");
-                        // Increment the number of successfully recovered messages
-                        recoveredMessages++;
+                        recover(new PendingRecovery(pendingMessage));
                     }
-                } catch (InterruptedException e) {
-                    // This should only occur if a halt was requested so stop the entire recovery task
-                    throw e;
-                } catch (Exception e) {
-                    /*
-                     * If an exception occurs we skip the message and log an error. This is to
-                     * prevent one bad exception or message from locking the entire channel.
-                     * 
-                     * If a non-Exception gets thrown (OutofMemoryError, etc) then it will
-                     * intentionally not be caught here and the recovery task will be stopped.
-                     */
-                    logger.error("Failed to recover message " + messageId + " for channel " + channel.getName() + " (" + channel.getChannelId() + "): \n" + ExceptionUtils.getStackTrace(e));
                 }
-            }
-        } while (!unfinishedComplete || !pendingComplete || !sourceComplete);
+            } while (!unfinishedComplete || !pendingComplete || !sourceComplete);
+        } finally {
+            // Wait for any messages still being recovered by worker threads
+            workerPermits.acquireUninterruptibly(recoveryThreads);
+            workerPermits.release(recoveryThreads);
+        }
+
+        checkWorkerFailure();
 
-        if (attemptedMessages > 0) {
-            logger.info("Completed message recovery for channel " + channel.getName() + " (" + channel.getChannelId() + "). Successfully recovered " + recoveredMessages + " out of " + attemptedMessages + " messages.");
+        if (attemptedMessages.get() > 0) {
+            logger.info("Completed message recovery for channel " + channel.getName() + " (" + channel.getChannelId() + "). Successfully recovered " + recoveredMessages.get() + " out of " + attemptedMessages.get() + " messages.");
         }
 
         return null;
     }
 
+    /**
+     * Recovers a single message. If the channel only has one processing thread the message is
+     * recovered on the current thread, otherwise it is handed off to the channel executor once a
+     * worker permit is available.
+     */
+    private void recover(final Recovery recovery) throws Exception {
+        if (recoveryThreads == 1) {
+            recovery.run();
+            return;
+        }
+
+        workerPermits.acquire();
+
+        if (stopRequested) {
+            // The channel stopped while waiting for a worker, so leave the message for the next start
+            workerPermits.release();
+            return;
+        }
+
+        try {
+            final String taskThreadName = Thread.currentThread().getName();
+
+            channel.getChannelExecutor().submit(new Runnable() {
+                @Override
+                public void run() {
+                    Thread currentThread = Thread.currentThread();
+                    String originalThreadName = currentThread.getName();
+
+                    try {
+                        synchronized (workerThreads) {
+                            if (stopped) {
+                                return;
+                            }
+                            workerThreads.add(currentThread);
+                        }
+
+                        currentThread.setName(taskThreadName + " (worker)");
+                        recovery.run();
+                    } catch (Throwable t) {
+                        workerFailure = t;
+                    } finally {
+                        synchronized (workerThreads) {
+                            workerThreads.remove(currentThread);
+                            // Don't leave the interrupt on a pooled thread that has moved on
+                            if (stopped) {
+                                Thread.interrupted();
+                            }
+                        }
+
+                        currentThread.setName(originalThreadName);
+                        workerPermits.release();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            workerPermits.release();
+            Thread.currentThread().interrupt();
+            throw new InterruptedException();
+        }
+    }
+
+    private void checkWorkerFailure() throws Exception {
+        Throwable t = workerFailure;
+
+        if (t != null) {
+            if (t instanceof Exception) {
+                throw (Exception) t;
+            }
+            throw (Error) t;
+        }
+    }
+
+    private abstract class Recovery {
+        private long messageId;
+        private String description;
+
+        public Recovery(long messageId, String description) {
+            this.messageId = messageId;
+            this.description = description;
+        }
+
+        public void run() throws InterruptedException {
+            try {
+                logger.debug("Recovering incomplete " + description + "message " + messageId + " for channel " + channel.getName() + " (" + channel.getChannelId() + ")");
+                // Execute the recovery process for this message
+                doRecover();
+                logger.debug("Recovered incomplete " + description + "message " + messageId + " for channel " + channel.getName() + " (" + channel.getChannelId() + ")");
+                // Increment the number of successfully recovered messages
+                recoveredMessages.incrementAndGet();
+            } catch (InterruptedException e) {
+                // This should only occur if a halt was requested so stop the entire recovery task
+                throw e;
+            } catch (Exception e) {
+                /*
+                 * If an exception occurs we skip the message and log an error. This is to prevent
+                 * one bad exception or message from locking the entire channel.
+                 * 
+                 * If a non-Exception gets thrown (OutofMemoryError, etc) then it will intentionally
+                 * not be caught here and the recovery task will be stopped.
+                 */
+                logger.error("Failed to recover message " + messageId + " for channel " + channel.getName() + " (" + channel.getChannelId() + "): \n" + ExceptionUtils.getStackTrace(e));
+            }
+        }
+
+        protected abstract void doRecover() throws Exception;
+    }
+
+    private class SourceRecovery extends Recovery {
+        private ConnectorMessage sourceConnectorMessage;
+
+        public SourceRecovery(ConnectorMessage sourceConnectorMessage) {
+            super(sourceConnectorMessage.getMessageId(), "");
+            this.sourceConnectorMessage = sourceConnectorMessage;
+        }
+
+        @Override
+        protected void doRecover() throws Exception {
+            channel.process(sourceConnectorMessage, true);
+            // Use this to decrement the queue size
+            channel.getSourceQueue().decrementSize();
+        }
+    }
+
+    private class UnfinishedRecovery extends Recovery {
+        private Message unfinishedMessage;
+
+        public UnfinishedRecovery(Message unfinishedMessage) {
+            super(unfinishedMessage.getMessageId(), "unfinished ");
+            this.unfinishedMessage = unfinishedMessage;
+        }
+
+        @Override
+        protected void doRecover() throws Exception {
+            recoverUnfinishedMessage(unfinishedMessage);
+        }
+    }
+
+    private class PendingRecovery extends Recovery {
+        private Message pendingMessage;
+
+        public PendingRecovery(Message pendingMessage) {
+            super(pendingMessage.getMessageId(), "pending ");
+            this.pendingMessage = pendingMessage;
+        }
+
+        @Override
+        protected void doRecover() throws Exception {
+            recoverPendingMessage(pendingMessage);
+        }
+    }
+
     private void recoverUnfinishedMessage(Message unfinishedMessage) throws InterruptedException {
         ConnectorMessage sourceMessage = unfinishedMessage.getConnectorMessages().get(0);
         // get the list of destination meta data ids to send to
@@ -9,18 +9,25 @@
 
 package com.mirth.connect.donkey.server.channel;
 
+import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import com.mirth.connect.connectors.core.interop.InteropReceiverPlugin;
 import com.mirth.connect.donkey.model.channel.DeployedState;
+import com.mirth.connect.donkey.model.channel.SourceConnectorPropertiesInterface;
 import com.mirth.connect.donkey.model.event.ConnectionStatusEventType;
 import com.mirth.connect.donkey.model.event.DeployedStateEventType;
 import com.mirth.connect.donkey.model.message.BatchRawMessage;
@@ -306,6 +313,28 @@ public class SourceConnector extends Connector implements ISourceConnector {
         return channel.dispatchRawMessage(rawMessage, false);
     }
 
+    /**
+     * Persists the raw messages in a single transaction and queues them on the source queue. Only
+     * supported when the source queue is enabled.
+     * 
+     * @param rawMessages
+     *            The raw messages to dispatch
+     * @param force
+     *            If true, dispatch the messages to the channel even if the source connector is
+     *            stopped
+     * @return The dispatch results, in the same order as the raw messages
+     * @throws ChannelException
+     */
+    public List<DispatchResult> dispatchRawMessages(List<RawMessage> rawMessages, boolean force) throws ChannelException {
+        if (!force && getCurrentState() == DeployedState.STOPPED) {
+            ChannelException e = new ChannelException(true);
+            logger.warn("Source connector is currently stopped for channel " + channel.getName() + " (" + channel.getChannelId() + ").", e);
+            throw e;
+        }
+
+        return channel.dispatchRawMessages(rawMessages);
+    }
+
     @Override
     public Boolean dispatchBatchMessage(BatchRawMessage batchRawMessage, ResponseHandler responseHandler) throws BatchMessageException {
         return dispatchBatchMessage(batchRawMessage, responseHandler, null);
@@ -340,57 +369,40 @@ public class SourceConnector extends Connector implements ISourceConnector {
                 // Create a new adaptor for this batch
                 batchAdaptor = batchAdaptorFactory.createBatchAdaptor(batchRawMessage);
 
-                Long batchSet = null;
-                String message;
-                // Get the next message for this batch
-                while ((message = batchAdaptor.getMessage()) != null) {
-                    messagesExist = true;
-                    // Create a copy of the source map for this message
-                    Map<String, Object> sourceMap = new HashMap<String, Object>(batchRawMessage.getSourceMap());
+                int batchDispatchThreads = getBatchDispatchThreads();
 
-                    // Add the batchId to identify the message's position in the batch
-                    sourceMap.put(Constants.BATCH_SEQUENCE_ID_KEY, batchAdaptor.getBatchSequenceId());
-
-                    // Add the message Id of the first message in the batch
-                    if (batchSet != null) {
-                        sourceMap.put(Constants.BATCH_ID_KEY, batchSet);
-                    }
-
-                    if (batchAdaptor.isLookAhead()) {
-                        sourceMap.put(Constants.BATCH_COMPLETE_KEY, batchAdaptor.isBatchComplete());
-                    }
-
-                    // Create a new RawMessage to be dispatched
-                    RawMessage rawMessage = new RawMessage(message, destinationMetaDataIds, sourceMap, batchRawMessage.getAttachments());
-
-                    DispatchResult dispatchResult = null;
-                    try {
-                        // Dispatch the message
-                        dispatchResult = channel.dispatchRawMessage(rawMessage, true);
-                        // Set the dispatch result for this message into the response handler
-                        responseHandler.setDispatchResult(dispatchResult);
-
-                        // If this was the first message in the batch, keep track of the message Id
-                        if (batchAdaptor.getBatchSequenceId() == 1) {
-                            batchSet = dispatchResult.getMessageId();
-                        }
-
-                        // Clear attachments from the batch raw message
-                        batchRawMessage.setAttachments(null);
+                if (batchDispatchThreads > 1) {
+                    messagesExist = dispatchBatchMessagesInParallel(batchAdaptor, batchRawMessage, responseHandler, destinationMetaDataIds, batchDispatchThreads);
+                } else {
+                    Long batchSet = null;
+                    String message;
+                    // Get the next message for this batch
+                    while ((message = batchAdaptor.getMessage()) != null) {
+                        messagesExist = true;
+                        // Create a new RawMessage to be dispatched
+                        RawMessage rawMessage = createBatchRawMessage(batchAdaptor, batchRawMessage, message, batchSet, destinationMetaDataIds);
 
+                        DispatchResult dispatchResult = null;
                         try {
-                            // Allow the response handler to process the result
-                            responseHandler.responseProcess(batchAdaptor.getBatchSequenceId(), batchAdaptor.isBatchComplete());
-                        } catch (Exception e) {
-                            // Stop the entire batch if an exceptions occurs processing a response
-                            throw new BatchMessageException("Failed to process response for batch message at message " + batchAdaptor.getBatchSequenceId(), e);
+                            // Dispatch the message
+                            dispatchResult = channel.dispatchRawMessage(rawMessage, true);
+
+                            // If this was the first message in the batch, keep track of the message Id
+                            if (batchAdaptor.getBatchSequenceId() == 1) {
+                                batchSet = dispatchResult.getMessageId();
+                            }
+
+                            // Clear attachments from the batch raw message
+                            batchRawMessage.setAttachments(null);
+
+                            processBatchResponse(responseHandler, dispatchResult, batchAdaptor.getBatchSequenceId(), batchAdaptor.isBatchComplete());
+                        } catch (ChannelException e) {
+                            // Call back to the response handler if a channel exception occurred. The message should not have been persisted
+                            responseHandler.responseError(e);
+                            throw new BatchMessageException("Failed to process batch message at message " + batchAdaptor.getBatchSequenceId(), e);
+                        } finally {
+                            finishDispatch(dispatchResult);
                         }
-                    } catch (ChannelException e) {
-                        // Call back to the response handler if a channel exception occurred. The message should not have been persisted
-                        responseHandler.responseError(e);
-                        throw new BatchMessageException("Failed to process batch message at message " + batchAdaptor.getBatchSequenceId(), e);
-                    } finally {
-                        finishDispatch(dispatchResult);
                     }
                 }
             } finally {
@@ -407,6 +419,228 @@ public class SourceConnector extends Connector implements ISourceConnector {
         return messagesExist;
     }
 
+    /**
+     * Splits the batch on the calling thread while up to the given number of messages are
+     * dispatched to the channel at once. The first message is dispatched by itself so that its
+     * message ID is available as the batch ID of every following message. Responses are processed
+     * and dispatches finished in batch sequence order.
+     */
+    private boolean dispatchBatchMessagesInParallel(BatchAdaptor batchAdaptor, BatchRawMessage batchRawMessage, ResponseHandler responseHandler, Collection<Integer> destinationMetaDataIds, int batchDispatchThreads) throws BatchMessageException {
+        Deque<BatchDispatchTask> pendingTasks = new ArrayDeque<BatchDispatchTask>(batchDispatchThreads);
+        boolean messagesExist = false;
+        boolean completed = false;
+
+        try {
+            Long batchSet = null;
+            String message;
+
+            while ((message = batchAdaptor.getMessage()) != null) {
+                messagesExist = true;
+                RawMessage rawMessage = createBatchRawMessage(batchAdaptor, batchRawMessage, message, batchSet, destinationMetaDataIds);
+                BatchDispatchTask task = new BatchDispatchTask(rawMessage, batchAdaptor.getBatchSequenceId(), batchAdaptor.isBatchComplete());
+
+                if (batchSet == null) {
+                    task.run();
+                    completeBatchDispatch(task, responseHandler);
+                    batchSet = task.dispatchResult.getMessageId();
+
+                    // Clear attachments from the batch raw message
+                    batchRawMessage.setAttachments(null);
+                } else {
+                    // Wait for the oldest message before reading further ahead than the number of dispatch threads
+                    if (pendingTasks.size() >= batchDispatchThreads) {
+                        completeBatchDispatch(pendingTasks.poll(), responseHandler);
+                    }
+
+                    pendingTasks.add(task);
+
+                    try {
+                        channel.getChannelExecutor().execute(task);
+                    } catch (RejectedExecutionException e) {
+                        task.cancel();
+                        task.error = new ChannelException(true, e);
+                    }
+                }
+            }
+
+            while (!pendingTasks.isEmpty()) {
+                completeBatchDispatch(pendingTasks.poll(), responseHandler);
+            }
+
+            completed = true;
+        } finally {
+            if (!completed) {
+                // Skip messages that have not been dispatched yet, and finish the ones that have
+                for (BatchDispatchTask task : pendingTasks) {
+                    task.cancel();
+                }
+
+                for (BatchDispatchTask task : pendingTasks) {
+                    task.awaitUninterruptibly();
+                    finishDispatch(task.dispatchResult);
+                }
+            }
+        }
+
+        return messagesExist;
+    }
+
+    private void completeBatchDispatch(BatchDispatchTask task, ResponseHandler responseHandler) throws BatchMessageException {
+        try {
+            try {
+                task.await();
+            } catch (InterruptedException e) {
+                task.cancel();
+                task.awaitUninterruptibly();
+                Thread.currentThread().interrupt();
+
+                if (task.error == null && task.dispatchResult == null) {
+                    task.error = new ChannelException(true, e);
+                }
+            }
+
+            if (task.error != null) {
+                if (task.error instanceof ChannelException) {
+                    // Call back to the response handler if a channel exception occurred. The message should not have been persisted
+                    responseHandler.responseError((ChannelException) task.error);
+                    throw new BatchMessageException("Failed to process batch message at message " + task.batchSequenceId, task.error);
+                } else if (task.error instanceof RuntimeException) {
+                    throw (RuntimeException) task.error;
+                } else if (task.error instanceof Error) {
+                    throw (Error) task.error;
+                }
+
+                throw new BatchMessageException("Failed to process batch message at message " + task.batchSequenceId, task.error);
+            }
+
+            processBatchResponse(responseHandler, task.dispatchResult, task.batchSequenceId, task.batchComplete);
+        } finally {
+            finishDispatch(task.dispatchResult);
+        }
+    }
+
+    private RawMessage createBatchRawMessage(BatchAdaptor batchAdaptor, BatchRawMessage batchRawMessage, String message, Long batchSet, Collection<Integer> destinationMetaDataIds) {
+        // Create a copy of the source map for this message
+        Map<String, Object> sourceMap = new HashMap<String, Object>(batchRawMessage.getSourceMap());
+
+        // Add the batchId to identify the message's position in the batch
+        sourceMap.put(Constants.BATCH_SEQUENCE_ID_KEY, batchAdaptor.getBatchSequenceId());
+
+        // Add the message Id of the first message in the batch
+        if (batchSet != null) {
+            sourceMap.put(Constants.BATCH_ID_KEY, batchSet);
+        }
+
+        if (batchAdaptor.isLookAhead()) {
+            sourceMap.put(Constants.BATCH_COMPLETE_KEY, batchAdaptor.isBatchComplete());
+        }
+
+        return new RawMessage(message, destinationMetaDataIds, sourceMap, batchRawMessage.getAttachments());
+    }
+
+    private void processBatchResponse(ResponseHandler responseHandler, DispatchResult dispatchResult, int batchSequenceId, boolean batchComplete) throws BatchMessageException {
+        // Set the dispatch result for this message into the response handler
+        responseHandler.setDispatchResult(dispatchResult);
+
+        try {
+            // Allow the response handler to process the result
+            responseHandler.responseProcess(batchSequenceId, batchComplete);
+        } catch (Exception e) {
+            // Stop the entire batch if an exceptions occurs processing a response
+            throw new BatchMessageException("Failed to process response for batch message at message " + batchSequenceId, e);
+        }
+    }
+
+    /**
+     * Returns the number of batch messages to dispatch at once, which is never more than the number
+     * of messages the channel can process at once.
+     */
+    private int getBatchDispatchThreads() {
+        int batchDispatchThreads = 1;
+
+        if (getConnectorProperties() instanceof SourceConnectorPropertiesInterface) {
+            batchDispatchThreads = ((SourceConnectorPropertiesInterface) getConnectorProperties()).getSourceConnectorProperties().getBatchDispatchThreads();
+        }
+
+        return Math.min(batchDispatchThreads, channel.getProcessingThreads());
+    }
+
+    /**
+     * Dispatches a single message of a batch. The dispatch result and any error are published to
+     * the batch reader through the done latch.
+     */
+    private class BatchDispatchTask implements Runnable {
+        private RawMessage rawMessage;
+        private int batchSequenceId;
+        private boolean batchComplete;
+        private AtomicBoolean started = new AtomicBoolean(false);
+        private CountDownLatch done = new CountDownLatch(1);
+        private DispatchResult dispatchResult;
+        private Throwable error;
+
+        public BatchDispatchTask(RawMessage rawMessage, int batchSequenceId, boolean batchComplete) {
+            this.rawMessage = rawMessage;
+            this.batchSequenceId = batchSequenceId;
+            this.batchComplete = batchComplete;
+        }
+
+        @Override
+        public void run() {
+            if (!started.compareAndSet(false, true)) {
+                return;
+            }
+
+            try {
+                dispatchResult = channel.dispatchRawMessage(rawMessage, true);
+
+                /*
+                 * Release the process lock here rather than in finishDispatch. Dispatches are
+                 * finished in batch order, so a later message holding a permit could otherwise
+                 * block an earlier message that is still waiting for one.
+                 */
+                if (dispatchResult != null && dispatchResult.isLockAcquired()) {
+                    channel.releaseProcessLock();
+                    dispatchResult.setLockAcquired(false);
+                }
+            } catch (Throwable t) {
+                error = t;
+            } finally {
+                done.countDown();
+            }
+        }
+
+        public void await() throws InterruptedException {
+            done.await();
+        }
+
+        public void awaitUninterruptibly() {
+            boolean interrupted = false;
+
+            while (true) {
+                try {
+                    done.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Prevents the task from dispatching if it has not started yet. A dispatch that is already
+         * in progress is allowed to finish.
+         */
+        public void cancel() {
+            if (started.compareAndSet(false, true)) {
+                done.countDown();
+            }
+        }
+    }
+
     /**
      * Handles a response generated for a message that was recovered by the channel
      * 
@@ -118,9 +118,9 @@ public interface DonkeyDao {
 
     public Map<Integer, Status> getConnectorMessageStatuses(String channelId, long messageId, boolean checkProcessed);
 
-    public List<Message> getUnfinishedMessages(String channelId, String serverId, int limit, Long minMessageId);
+    public List<Message> getUnfinishedMessages(String channelId, String serverId, int limit, Long minMessageId, Long maxMessageId);
 
-    public List<Message> getPendingConnectorMessages(String channelId, String serverId, int limit, Long minMessageId);
+    public List<Message> getPendingConnectorMessages(String channelId, String serverId, int limit, Long minMessageId, Long maxMessageId);
 
     public List<MetaDataColumn> getMetaDataColumns(String channelId);
 
@@ -138,6 +138,8 @@ public interface DonkeyDao {
 
     public void setDecryptData(boolean decryptData);
 
+    public void setCompressMessageContent(boolean compressMessageContent);
+
     public void setStatisticsUpdater(StatisticsUpdater statisticsUpdater);
 
     public void commit();
@@ -24,6 +24,8 @@ public interface DonkeyDaoFactory {
 
     public void setDecryptData(boolean decryptData);
 
+    public void setCompressMessageContent(boolean compressMessageContent);
+
     public void setStatisticsUpdater(StatisticsUpdater statisticsUpdater);
 
     public ConnectionPool getConnectionPool();
@@ -38,6 +38,7 @@ public class BufferedDao implements DonkeyDao {
     private boolean encryptAttachments;
     private boolean encryptCustomMetaData;
     private boolean decryptData;
+    private boolean compressMessageContent;
     private StatisticsUpdater statisticsUpdater;
     private Queue<DaoTask> tasks = new LinkedList<DaoTask>();
     private boolean closed = false;
@@ -65,6 +66,11 @@ public class BufferedDao implements DonkeyDao {
         this.decryptData = decryptData;
     }
 
+    @Override
+    public void setCompressMessageContent(boolean compressMessageContent) {
+        this.compressMessageContent = compressMessageContent;
+    }
+
     @Override
     public void setStatisticsUpdater(StatisticsUpdater statisticsUpdater) {
         this.statisticsUpdater = statisticsUpdater;
@@ -98,6 +104,7 @@ public class BufferedDao implements DonkeyDao {
 
         dao.setEncryptData(encryptMessageContent, encryptAttachments, encryptCustomMetaData);
         dao.setDecryptData(decryptData);
+        dao.setCompressMessageContent(compressMessageContent);
         dao.setStatisticsUpdater(statisticsUpdater);
 
         return dao;
@@ -460,11 +467,11 @@ public class BufferedDao implements DonkeyDao {
     }
 
     @Override
-    public List<Message> getPendingConnectorMessages(String channelId, String serverId, int limit, Long minMessageId) {
+    public List<Message> getPendingConnectorMessages(String channelId, String serverId, int limit, Long minMessageId, Long maxMessageId) {
         DonkeyDao dao = getDelegateDao();
 
         try {
-            return dao.getPendingConnectorMessages(channelId, serverId, limit, minMessageId);
+            return dao.getPendingConnectorMessages(channelId, serverId, limit, minMessageId, maxMessageId);
         } finally {
             dao.close();
         }
@@ -547,11 +554,11 @@ public class BufferedDao implements DonkeyDao {
     }
 
     @Override
-    public List<Message> getUnfinishedMessages(String channelId, String serverId, int limit, Long minMessageId) {
+    public List<Message> getUnfinishedMessages(String channelId, String serverId, int limit, Long minMessageId, Long maxMessageId) {
         DonkeyDao dao = getDelegateDao();
 
         try {
-            return dao.getUnfinishedMessages(channelId, serverId, limit, minMessageId);
+            return dao.getUnfinishedMessages(channelId, serverId, limit, minMessageId, maxMessageId);
         } finally {
             dao.close();
         }
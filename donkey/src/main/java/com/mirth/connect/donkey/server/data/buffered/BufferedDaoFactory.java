@@ -22,6 +22,7 @@ public class BufferedDaoFactory implements DonkeyDaoFactory {
     private boolean encryptAttachments = false;
     private boolean encryptCustomMetaData = false;
     private boolean decryptData = true;
+    private boolean compressMessageContent = false;
     private StatisticsUpdater statisticsUpdater;
 
     public BufferedDaoFactory(DonkeyDaoFactory delegateFactory, SerializerProvider serializerProvider, StatisticsUpdater statisticsUpdater) {
@@ -50,6 +51,11 @@ public class BufferedDaoFactory implements DonkeyDaoFactory {
         this.decryptData = decryptData;
     }
 
+    @Override
+    public void setCompressMessageContent(boolean compressMessageContent) {
+        this.compressMessageContent = compressMessageContent;
+    }
+
     @Override
     public void setStatisticsUpdater(StatisticsUpdater statisticsUpdater) {
         this.statisticsUpdater = statisticsUpdater;
@@ -62,7 +68,9 @@ public class BufferedDaoFactory implements DonkeyDaoFactory {
 
     @Override
     public DonkeyDao getDao(SerializerProvider serializerProvider) {
-        return new BufferedDao(delegateFactory, serializerProvider, encryptMessageContent, encryptAttachments, encryptCustomMetaData, decryptData, statisticsUpdater);
+        BufferedDao dao = new BufferedDao(delegateFactory, serializerProvider, encryptMessageContent, encryptAttachments, encryptCustomMetaData, decryptData, statisticsUpdater);
+        dao.setCompressMessageContent(compressMessageContent);
+        return dao;
     }
 
     @Override
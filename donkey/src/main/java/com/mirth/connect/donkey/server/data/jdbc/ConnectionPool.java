@@ -18,5 +18,23 @@ public interface ConnectionPool {
 
     public Integer getMaxConnections();
 
+    /**
+     * Returns the number of connections currently checked out of the pool, or null if the pool
+     * doesn't keep track of it.
+     */
+    public Integer getActiveConnections();
+
+    /**
+     * Returns the number of connections sitting idle in the pool, or null if the pool doesn't keep
+     * track of it.
+     */
+    public Integer getIdleConnections();
+
+    /**
+     * Returns the number of threads waiting for a connection, or null if the pool doesn't keep
+     * track of it.
+     */
+    public Integer getWaitingThreads();
+
     public DataSource getDataSource();
 }
@@ -24,6 +24,7 @@ import org.apache.commons.pool2.impl.GenericObjectPool;
 
 public class DBCPConnectionPool implements ConnectionPool {
     private DataSource dataSource;
+    private GenericObjectPool<PoolableConnection> connectionPool;
     private int maxConnections;
 
     public DBCPConnectionPool(String url, String username, String password, int maxConnections, boolean readOnly) {
@@ -34,7 +35,7 @@ public class DBCPConnectionPool implements ConnectionPool {
         poolableConnectionFactory.setDefaultAutoCommit(false);
         poolableConnectionFactory.setDefaultReadOnly(readOnly);
 
-        GenericObjectPool<PoolableConnection> connectionPool = new GenericObjectPool<PoolableConnection>(poolableConnectionFactory);
+        connectionPool = new GenericObjectPool<PoolableConnection>(poolableConnectionFactory);
         connectionPool.setMaxTotal(maxConnections);
         connectionPool.setMaxIdle(maxConnections);
 
@@ -57,6 +58,21 @@ public class DBCPConnectionPool implements ConnectionPool {
         return maxConnections;
     }
 
+    @Override
+    public Integer getActiveConnections() {
+        return connectionPool.getNumActive();
+    }
+
+    @Override
+    public Integer getIdleConnections() {
+        return connectionPool.getNumIdle();
+    }
+
+    @Override
+    public Integer getWaitingThreads() {
+        return connectionPool.getNumWaiters();
+    }
+
     @Override
     public DataSource getDataSource() {
         return dataSource;
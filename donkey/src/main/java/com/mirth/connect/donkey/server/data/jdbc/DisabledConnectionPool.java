@@ -43,6 +43,21 @@ public class DisabledConnectionPool implements ConnectionPool {
         return null;
     }
 
+    @Override
+    public Integer getActiveConnections() {
+        return null;
+    }
+
+    @Override
+    public Integer getIdleConnections() {
+        return null;
+    }
+
+    @Override
+    public Integer getWaitingThreads() {
+        return null;
+    }
+
     @Override
     public DataSource getDataSource() {
         return null;
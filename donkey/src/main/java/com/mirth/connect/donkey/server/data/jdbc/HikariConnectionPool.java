@@ -15,10 +15,14 @@ import java.sql.SQLException;
 import javax.sql.DataSource;
 
 import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.MetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
 
 public class HikariConnectionPool implements ConnectionPool {
     private HikariDataSource dataSource;
     private int maxConnections;
+    private volatile PoolStats poolStats;
 
     public HikariConnectionPool(String driver, String url, String username, String password, int maxConnections, boolean jdbc4, String testQuery, boolean readOnly) {
         this.maxConnections = maxConnections;
@@ -34,6 +38,15 @@ public class HikariConnectionPool implements ConnectionPool {
         dataSource.setMinimumIdle(0);
         dataSource.setReadOnly(readOnly);
 
+        // The pool statistics are handed over when the pool starts, on the first getConnection
+        dataSource.setMetricsTrackerFactory(new MetricsTrackerFactory() {
+            @Override
+            public MetricsTracker create(String poolName, PoolStats poolStats) {
+                HikariConnectionPool.this.poolStats = poolStats;
+                return new MetricsTracker();
+            }
+        });
+
         if (!jdbc4) {
             dataSource.setConnectionTestQuery(testQuery);
         }
@@ -50,6 +63,21 @@ public class HikariConnectionPool implements ConnectionPool {
         return maxConnections;
     }
 
+    @Override
+    public Integer getActiveConnections() {
+        return poolStats != null ? poolStats.getActiveConnections() : 0;
+    }
+
+    @Override
+    public Integer getIdleConnections() {
+        return poolStats != null ? poolStats.getIdleConnections() : 0;
+    }
+
+    @Override
+    public Integer getWaitingThreads() {
+        return poolStats != null ? poolStats.getPendingThreads() : 0;
+    }
+
     @Override
     public DataSource getDataSource() {
         return dataSource;
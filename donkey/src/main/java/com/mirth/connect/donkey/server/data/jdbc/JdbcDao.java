@@ -25,6 +25,7 @@ import java.util.Arrays;
 import java.util.Calendar;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -59,6 +60,8 @@ import com.mirth.connect.donkey.server.data.ChannelDoesNotExistException;
 import com.mirth.connect.donkey.server.data.DonkeyDao;
 import com.mirth.connect.donkey.server.data.StatisticsUpdater;
 import com.mirth.connect.donkey.server.event.DonkeyEventDispatcherProvider;
+import com.mirth.connect.donkey.util.ContentCompressionUtil;
+import com.mirth.connect.donkey.util.MapCodec;
 import com.mirth.connect.donkey.util.MapUtil;
 import com.mirth.connect.donkey.util.SerializerProvider;
 
@@ -72,6 +75,7 @@ public class JdbcDao implements DonkeyDao {
     private boolean encryptAttachments;
     private boolean encryptCustomMetaData;
     private boolean decryptData;
+    private boolean compressMessageContent;
     private StatisticsUpdater statisticsUpdater;
     private Set<ContentType> alwaysDecrypt = new HashSet<ContentType>();
     private Encryptor encryptor;
@@ -81,6 +85,7 @@ public class JdbcDao implements DonkeyDao {
     private Map<String, Map<Integer, Set<Status>>> resetCurrentStats = new HashMap<String, Map<Integer, Set<Status>>>();
     private Map<String, Map<Integer, Set<Status>>> resetTotalStats = new HashMap<String, Map<Integer, Set<Status>>>();
     private List<String> removedChannelIds = new ArrayList<String>();
+    private Map<MapContent, Integer> uncommittedMapChanges = new IdentityHashMap<MapContent, Integer>();
     private String asyncCommitCommand;
     private Map<String, Long> localChannelIds;
     private String statsServerId;
@@ -121,6 +126,11 @@ public class JdbcDao implements DonkeyDao {
         this.decryptData = decryptData;
     }
 
+    @Override
+    public void setCompressMessageContent(boolean compressMessageContent) {
+        this.compressMessageContent = compressMessageContent;
+    }
+
     @Override
     public void setStatisticsUpdater(StatisticsUpdater statisticsUpdater) {
         this.statisticsUpdater = statisticsUpdater;
@@ -215,16 +225,18 @@ public class JdbcDao implements DonkeyDao {
 
         PreparedStatement statement = null;
         try {
-            String content;
-            boolean encrypted;
+            String content = messageContent.getContent();
+            boolean encrypted = messageContent.isEncrypted();
+
+            // Compress before encrypting, since encrypted content doesn't compress
+            if (!encrypted) {
+                content = ContentCompressionUtil.compress(content, compressMessageContent);
+            }
 
             // Only encrypt if the content is not already encrypted
-            if (encryptMessageContent && encryptor != null && !messageContent.isEncrypted()) {
-                content = encryptor.encrypt(messageContent.getContent());
+            if (encryptMessageContent && encryptor != null && !encrypted) {
+                content = encryptor.encrypt(content);
                 encrypted = true;
-            } else {
-                content = messageContent.getContent();
-                encrypted = messageContent.isEncrypted();
             }
 
             statement = prepareStatement("batchInsertMessageContent", messageContent.getChannelId());
@@ -277,6 +289,11 @@ public class JdbcDao implements DonkeyDao {
     private void insertContent(String channelId, long messageId, int metaDataId, ContentType contentType, String content, String dataType, boolean encrypted) {
         PreparedStatement statement = null;
         try {
+            // Compress before encrypting, since encrypted content doesn't compress
+            if (!encrypted) {
+                content = ContentCompressionUtil.compress(content, compressMessageContent);
+            }
+
             // Only encrypt if the content is not already encrypted
             if (encryptMessageContent && encryptor != null && !encrypted) {
                 content = encryptor.encrypt(content);
@@ -303,6 +320,11 @@ public class JdbcDao implements DonkeyDao {
     public void storeContent(String channelId, long messageId, int metaDataId, ContentType contentType, String content, String dataType, boolean encrypted) {
         PreparedStatement statement = null;
         try {
+            // Compress before encrypting, since encrypted content doesn't compress
+            if (!encrypted) {
+                content = ContentCompressionUtil.compress(content, compressMessageContent);
+            }
+
             // Only encrypt if the content is not already encrypted
             if (encryptMessageContent && encryptor != null && !encrypted) {
                 content = encryptor.encrypt(content);
@@ -1075,6 +1097,15 @@ public class JdbcDao implements DonkeyDao {
         if (mapContent != null) {
             boolean encrypted = mapContent.isEncrypted();
             boolean persisted = mapContent.isPersisted();
+            int changes = mapContent.getChanges();
+
+            // Compare against what this transaction already wrote, which isn't stored until commit
+            Integer storedChanges = uncommittedMapChanges.containsKey(mapContent) ? uncommittedMapChanges.get(mapContent) : mapContent.getStoredChanges();
+
+            // Maps are stored several times per message, only serialize and write the ones that changed
+            if (persisted && storedChanges != null && storedChanges == changes) {
+                return;
+            }
 
             String content = null;
             if (encrypted) {
@@ -1082,7 +1113,11 @@ public class JdbcDao implements DonkeyDao {
             } else {
                 Map<String, Object> map = mapContent.getMap();
                 if (MapUtils.isNotEmpty(map)) {
-                    content = MapUtil.serializeMap(serializerProvider.getSerializer(metaDataId), map);
+                    if (donkey.isCompactMessageMaps()) {
+                        content = MapCodec.encode(serializerProvider.getSerializer(metaDataId), map);
+                    } else {
+                        content = MapUtil.serializeMap(serializerProvider.getSerializer(metaDataId), map);
+                    }
                 }
             }
 
@@ -1096,6 +1131,8 @@ public class JdbcDao implements DonkeyDao {
             } else if (persisted) {
                 deleteMessageContentByMetaDataIdAndContentType(channelId, messageId, metaDataId, contentType);
             }
+
+            uncommittedMapChanges.put(mapContent, changes);
         }
     }
 
@@ -1678,7 +1715,7 @@ public class JdbcDao implements DonkeyDao {
     }
 
     @Override
-    public List<Message> getUnfinishedMessages(String channelId, String serverId, int limit, Long minMessageId) {
+    public List<Message> getUnfinishedMessages(String channelId, String serverId, int limit, Long minMessageId, Long maxMessageId) {
         PreparedStatement statement = null;
         ResultSet resultSet = null;
 
@@ -1693,7 +1730,8 @@ public class JdbcDao implements DonkeyDao {
 
             statement = connection.prepareStatement(querySource.getQuery("getUnfinishedMessages", params));
             statement.setLong(1, minMessageId);
-            statement.setString(2, serverId);
+            statement.setLong(2, maxMessageId);
+            statement.setString(3, serverId);
             resultSet = statement.executeQuery();
 
             while (resultSet.next()) {
@@ -1730,7 +1768,7 @@ public class JdbcDao implements DonkeyDao {
     }
 
     @Override
-    public List<Message> getPendingConnectorMessages(String channelId, String serverId, int limit, Long minMessageId) {
+    public List<Message> getPendingConnectorMessages(String channelId, String serverId, int limit, Long minMessageId, Long maxMessageId) {
         PreparedStatement statement = null;
         ResultSet resultSet = null;
 
@@ -1745,7 +1783,8 @@ public class JdbcDao implements DonkeyDao {
 
             statement = connection.prepareStatement(querySource.getQuery("getPendingMessageIds", params));
             statement.setLong(1, minMessageId);
-            statement.setString(2, serverId);
+            statement.setLong(2, maxMessageId);
+            statement.setString(3, serverId);
 
             resultSet = statement.executeQuery();
 
@@ -2468,6 +2507,12 @@ public class JdbcDao implements DonkeyDao {
         }
 
         transactionStats.clear();
+
+        // The maps are only known to be stored once the transaction has committed
+        for (Entry<MapContent, Integer> entry : uncommittedMapChanges.entrySet()) {
+            entry.getKey().setStoredChanges(entry.getValue());
+        }
+        uncommittedMapChanges.clear();
     }
 
     @Override
@@ -2475,6 +2520,7 @@ public class JdbcDao implements DonkeyDao {
         logger.debug("Rolling back transaction");
 
         try {
+            uncommittedMapChanges.clear();
             connection.rollback();
             transactionStats.clear();
         } catch (SQLException e) {
@@ -2675,6 +2721,10 @@ public class JdbcDao implements DonkeyDao {
                     encrypted = false;
                 }
 
+                if (!encrypted) {
+                    content = ContentCompressionUtil.decompress(content);
+                }
+
                 messageContents.add(new MessageContent(channelId, messageId, metaDataId, contentType, content, dataType, encrypted));
             }
         } catch (SQLException e) {
@@ -2718,6 +2768,10 @@ public class JdbcDao implements DonkeyDao {
                     encrypted = false;
                 }
 
+                if (!encrypted) {
+                    content = ContentCompressionUtil.decompress(content);
+                }
+
                 Map<Integer, List<MessageContent>> connectorMessageContentMap = messageContentMap.get(messageId);
                 if (connectorMessageContentMap == null) {
                     connectorMessageContentMap = new HashMap<Integer, List<MessageContent>>();
@@ -2767,6 +2821,10 @@ public class JdbcDao implements DonkeyDao {
                     encrypted = false;
                 }
 
+                if (!encrypted) {
+                    content = ContentCompressionUtil.decompress(content);
+                }
+
                 if (contentType == ContentType.ENCODED) {
                     contentType = ContentType.RAW;
                 }
@@ -2834,6 +2892,9 @@ public class JdbcDao implements DonkeyDao {
                 case SOURCE_MAP:
                     connectorMessage.setSourceMapContent(getMapContentFromMessageContent(messageContent));
                     break;
+                case MESSAGE_TRACE:
+                    connectorMessage.setTraceContent(messageContent);
+                    break;
             }
         }
     }
@@ -58,6 +58,7 @@ public class JdbcDaoFactory implements DonkeyDaoFactory {
     private boolean encryptAttachments = false;
     private boolean encryptCustomMetaData = false;
     private boolean decryptData = true;
+    private boolean compressMessageContent = false;
     private Map<Connection, PreparedStatementSource> statementSources = new ConcurrentHashMap<Connection, PreparedStatementSource>();
     private Logger logger = LogManager.getLogger(getClass());
 
@@ -111,6 +112,11 @@ public class JdbcDaoFactory implements DonkeyDaoFactory {
         this.decryptData = decryptData;
     }
 
+    @Override
+    public void setCompressMessageContent(boolean compressMessageContent) {
+        this.compressMessageContent = compressMessageContent;
+    }
+
     @Override
     public void setStatisticsUpdater(StatisticsUpdater statisticsUpdater) {
         this.statisticsUpdater = statisticsUpdater;
@@ -157,7 +163,9 @@ public class JdbcDaoFactory implements DonkeyDaoFactory {
             }
         }
 
-        return getDao(donkey, connection, querySource, statementSource, serializerProvider, encryptMessageContent, encryptAttachments, encryptCustomMetaData, decryptData, statisticsUpdater, channelController.getStatistics(), channelController.getTotalStatistics(), statsServerId);
+        JdbcDao dao = getDao(donkey, connection, querySource, statementSource, serializerProvider, encryptMessageContent, encryptAttachments, encryptCustomMetaData, decryptData, statisticsUpdater, channelController.getStatistics(), channelController.getTotalStatistics(), statsServerId);
+        dao.setCompressMessageContent(compressMessageContent);
+        return dao;
     }
 
     protected JdbcDao getDao(Donkey donkey, Connection connection, QuerySource querySource, PreparedStatementSource statementSource, SerializerProvider serializerProvider, boolean encryptMessageContent, boolean encryptAttachments, boolean encryptCustomMetaData, boolean decryptData, StatisticsUpdater statisticsUpdater, Statistics currentStats, Statistics totalStats, String statsServerId) {
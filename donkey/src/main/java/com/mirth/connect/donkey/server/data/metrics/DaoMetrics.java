@@ -0,0 +1,17 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ * 
+ * http://www.mirthcorp.com
+ * 
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.donkey.server.data.metrics;
+
+/**
+ * Latency histograms of message store operations, kept per channel and per operation. Recording is
+ * only done by the {@link MetricsDao}s handed out while metrics are enabled, so it can be switched
+ * on and off while channels are running.
+ */
+public class DaoMetrics extends LatencyMetrics {}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ * 
+ * http://www.mirthcorp.com
+ * 
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.donkey.server.data.metrics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import com.mirth.connect.donkey.model.channel.LatencyStatistics;
+import com.mirth.connect.donkey.util.LatencyHistogram;
+
+/**
+ * Latency histograms kept per channel and per name. Callers are expected to check
+ * {@link #isEnabled()} before timing anything, so that recording can be switched on and off while
+ * channels are running.
+ */
+public class LatencyMetrics {
+    // Latencies are recorded in microseconds, and anything over an hour is counted as an hour
+    private static final long HIGHEST_TRACKABLE_LATENCY = TimeUnit.HOURS.toMicros(1);
+    private static final double[] PERCENTILES = new double[] { 50, 90, 99, 99.9 };
+
+    private volatile boolean enabled = false;
+    private ConcurrentMap<String, ConcurrentMap<String, LatencyHistogram>> channelHistograms = new ConcurrentHashMap<String, ConcurrentMap<String, LatencyHistogram>>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public void record(String channelId, String name, long nanos) {
+        ConcurrentMap<String, LatencyHistogram> histograms = channelHistograms.get(channelId);
+
+        if (histograms == null) {
+            ConcurrentMap<String, LatencyHistogram> newHistograms = new ConcurrentHashMap<String, LatencyHistogram>();
+            histograms = channelHistograms.putIfAbsent(channelId, newHistograms);
+
+            if (histograms == null) {
+                histograms = newHistograms;
+            }
+        }
+
+        LatencyHistogram histogram = histograms.get(name);
+
+        if (histogram == null) {
+            LatencyHistogram newHistogram = new LatencyHistogram(HIGHEST_TRACKABLE_LATENCY);
+            histogram = histograms.putIfAbsent(name, newHistogram);
+
+            if (histogram == null) {
+                histogram = newHistogram;
+            }
+        }
+
+        histogram.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    /**
+     * Returns the statistics of every name recorded for the given channels, ordered by channel and
+     * name. If channelIds is null, all channels are included.
+     */
+    public List<LatencyStatistics> getStatistics(Collection<String> channelIds) {
+        Map<String, ConcurrentMap<String, LatencyHistogram>> channels = new TreeMap<String, ConcurrentMap<String, LatencyHistogram>>(channelHistograms);
+
+        if (channelIds != null) {
+            channels.keySet().retainAll(channelIds);
+        }
+
+        List<LatencyStatistics> statistics = new ArrayList<LatencyStatistics>();
+
+        for (Entry<String, ConcurrentMap<String, LatencyHistogram>> channelEntry : channels.entrySet()) {
+            for (Entry<String, LatencyHistogram> nameEntry : new TreeMap<String, LatencyHistogram>(channelEntry.getValue()).entrySet()) {
+                LatencyHistogram histogram = nameEntry.getValue();
+                long[] percentiles = histogram.getValuesAtPercentiles(PERCENTILES);
+
+                LatencyStatistics latencyStatistics = new LatencyStatistics();
+                latencyStatistics.setChannelId(channelEntry.getKey());
+                latencyStatistics.setName(nameEntry.getKey());
+                latencyStatistics.setCount(histogram.getCount());
+                latencyStatistics.setRate(histogram.getRate());
+                latencyStatistics.setMean(toMillis(histogram.getMean()));
+                latencyStatistics.setP50(toMillis(percentiles[0]));
+                latencyStatistics.setP90(toMillis(percentiles[1]));
+                latencyStatistics.setP99(toMillis(percentiles[2]));
+                latencyStatistics.setP999(toMillis(percentiles[3]));
+                latencyStatistics.setMax(toMillis(histogram.getMax()));
+                statistics.add(latencyStatistics);
+            }
+        }
+
+        return statistics;
+    }
+
+    /**
+     * Returns the IDs of the channels that have anything recorded.
+     */
+    public Set<String> getChannelIds() {
+        return new HashSet<String>(channelHistograms.keySet());
+    }
+
+    /**
+     * Clears everything recorded so far.
+     */
+    public void reset() {
+        channelHistograms.clear();
+    }
+
+    /**
+     * Clears everything recorded so far for the given channel.
+     */
+    public void reset(String channelId) {
+        channelHistograms.remove(channelId);
+    }
+
+    private static double toMillis(double micros) {
+        return micros / 1000;
+    }
+}
@@ -0,0 +1,705 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ * 
+ * http://www.mirthcorp.com
+ * 
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.donkey.server.data.metrics;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.mirth.connect.donkey.model.channel.MetaDataColumn;
+import com.mirth.connect.donkey.model.channel.Ports;
+import com.mirth.connect.donkey.model.message.ConnectorMessage;
+import com.mirth.connect.donkey.model.message.Message;
+import com.mirth.connect.donkey.model.message.MessageContent;
+import com.mirth.connect.donkey.model.message.Status;
+import com.mirth.connect.donkey.model.message.attachment.Attachment;
+import com.mirth.connect.donkey.server.channel.Statistics;
+import com.mirth.connect.donkey.server.data.DonkeyDao;
+import com.mirth.connect.donkey.server.data.StatisticsUpdater;
+
+/**
+ * Records how long each call to the wrapped DAO takes in the channel's {@link DaoMetrics}.
+ */
+public class MetricsDao implements DonkeyDao {
+    private DonkeyDao dao;
+    private DaoMetrics metrics;
+    private String channelId;
+
+    protected MetricsDao(DonkeyDao dao, DaoMetrics metrics, String channelId) {
+        this.dao = dao;
+        this.metrics = metrics;
+        this.channelId = channelId;
+    }
+
+    public DonkeyDao getDao() {
+        return dao;
+    }
+
+    public void setDao(DonkeyDao dao) {
+        this.dao = dao;
+    }
+
+    @Override
+    public void setEncryptData(boolean encryptMessageContent, boolean encryptAttachments, boolean encryptCustomMetaData) {
+        dao.setEncryptData(encryptMessageContent, encryptAttachments, encryptCustomMetaData);
+    }
+
+    @Override
+    public void setDecryptData(boolean decryptData) {
+        dao.setDecryptData(decryptData);
+    }
+
+    @Override
+    public void setCompressMessageContent(boolean compressMessageContent) {
+        dao.setCompressMessageContent(compressMessageContent);
+    }
+
+    @Override
+    public void setStatisticsUpdater(StatisticsUpdater statisticsUpdater) {
+        dao.setStatisticsUpdater(statisticsUpdater);
+    }
+
+    @Override
+    public void commit() {
+        long startTime = System.nanoTime();
+
+        try {
+            dao.commit();
+        } finally {
+            metrics.record(channelId, "commit", System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public void commit(boolean durable) {
+        long startTime = System.nanoTime();
+
+        try {
+            dao.commit(durable);
+        } finally {
+            metrics.record(channelId, durable ? "commit" : "commitNonDurable", System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public void rollback() {
+        long startTime = System.nanoTime();
+
+        try {
+            dao.rollback();
+        } finally {
+            metrics.record(channelId, "rollback", System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public void close() {
+        dao.close();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return dao.isClosed();
+    }
+
+    @Override
+    public void insertMessage(Message message) {
+        long startTime = System.nanoTime();
+
+        try {
+            dao.insertMessage(message);
+        } finally {
+            metrics.record(channelId, "insertMessage", System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public void insertConnectorMessage(ConnectorMessage connectorMessage, boolean storeMaps, boolean updateStats) {
+        long startTime = System.nanoTime();
+
+        try {
+            dao.insertConnectorMessage(connectorMessage, storeMaps, updateStats);
+        } finally {
+            metrics.record(channelId, "insertConnectorMessage", System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public void insertMessageContent(MessageContent messageContent) {
+        long startTime = System.nanoTime();
+
+        try {
+            dao.insertMessageContent(messageContent);
+        } finally {
+            metrics.record(channelId, "insertMessageContent", System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public void batchInsertMessageContent(MessageContent messageContent) {
+        long startTime = System.nanoTime();
+
+        try {
+            dao.batchInsertMessageContent(messageContent);
+        } finally {
+            metrics.record(channelId, "batchInsertMessageContent", System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public void executeBatchInsertMessageContent(String channelId) {
+        long startTime = System.nanoTime();
+
+        try {
+            dao.executeBatchInsertMessageContent(channelId);
+        } finally {
+            metrics.record(channelId, "executeBatchInsertMessageContent", System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public void insertMessageAttachment(String channelId, long messageId, Attachment attachment) {
+        long startTime = System.nanoTime();
+
+        try {
+            dao.insertMessageAttachment(channelId, messageId, attachment);
+        } finally {
+            metrics.record(channelId, "insertMessageAttachment", System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public void updateMessageAttachment(String channelId, long messageId, Attachment attachment) {
+        long startTime = System.nanoTime();
+
+        try {
+            dao.updateMessageAttachment(channelId, messageId, attachment);
+        } finally {
+            metrics.record(channelId, "updateMessageAttachment", System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public void insertMetaData(ConnectorMessage connectorMessage, List<MetaDataColumn> metaDataColumns) {
+        long startTime = System.nanoTime();
+
+        try {
+            dao.insertMetaData(connectorMessage, metaDataColumns);
+        } finally {
+            metrics.record(channelId, "insertMetaData", System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public void storeMetaData(ConnectorMessage connectorMessage, List<MetaDataColumn> metaDataColumns) {
+        long startTime = System.nanoTime();
+
+        try {
+            dao.storeMetaData(connectorMessage, metaDataColumns);
+        } finally {
+            metrics.record(channelId, "storeMetaData", System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public void storeMessageContent(MessageContent messageContent) {
+        long startTime = System.nanoTime();
+
+        try {
+            dao.storeMessageContent(messageContent);
+        } finally {
+            metrics.record(channelId, "storeMessageContent", System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public void addChannelStatistics(Statistics statistics) {
+        long startTime = System.nanoTime();
+
+        try {
+            dao.addChannelStatistics(statistics);
+        } finally {
+            metrics.record(channelId, "addChannelStatistics", System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public void updateSendAttempts(ConnectorMessage connectorMessage) {
+        long startTime = System.nanoTime();
+
+        try {
+            dao.updateSendAttempts(connectorMessage);
+        } finally {
+            metrics.record(channelId, "updateResponseError", System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public void updateStatus(ConnectorMessage connectorMessage, Status previousStatus) {
+        long startTime = System.nanoTime();
+
+        try {
+            dao.updateStatus(connectorMessage, previousStatus);
+        } finally {
+            metrics.record(channelId, "updateStatus", System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public void updateErrors(ConnectorMessage connectorMessage) {
+        long startTime = System.nanoTime();
+
+        try {
+            dao.updateErrors(connectorMessage);
+        } finally {
+            metrics.record(channelId, "updateErrors", System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public void updateMaps(ConnectorMessage connectorMessage) {
+        long startTime = System.nanoTime();
+
+        try {
+            dao.updateMaps(connectorMessage);
+        } finally {
+            metrics.record(channelId, "updateMaps", System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public void updateSourceMap(ConnectorMessage connectorMessage) {
+        long startTime = System.nanoTime();
+
+        try {
+            dao.updateSourceMap(connectorMessage);
+        } finally {
+            metrics.record(channelId, "updateSourceMap", System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public void updateResponseMap(ConnectorMessage connectorMessage) {
+        long startTime = System.nanoTime();
+
+        try {
+            dao.updateResponseMap(connectorMessage);
+        } finally {
+            metrics.record(channelId, "updateResponseMap", System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public void markAsProcessed(String channelId, long messageId) {
+        long startTime = System.nanoTime();
+
+        try {
+            dao.markAsProcessed(channelId, messageId);
+        } finally {
+            metrics.record(channelId, "markAsProcessed", System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public void resetMessage(String channelId, long messageId) {
+        long startTime = System.nanoTime();
+
+        try {
+            dao.resetMessage(channelId, messageId);
+        } finally {
+            metrics.record(channelId, "resetMessage", System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public void deleteMessage(String channelId, long messageId) {
+        long startTime = System.nanoTime();
+
+        try {
+            dao.deleteMessage(channelId, messageId);
+        } finally {
+            metrics.record(channelId, "deleteMessage", System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public void deleteConnectorMessages(String channelId, long messageId, Set<Integer> metaDataIds) {
+        long startTime = System.nanoTime();
+
+        try {
+            dao.deleteConnectorMessages(channelId, messageId, metaDataIds);
+        } finally {
+            metrics.record(channelId, "deleteConnectorMessages", System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public void deleteMessageStatistics(String channelId, long messageId, Set<Integer> metaDataIds) {
+        long startTime = System.nanoTime();
+
+        try {
+            dao.deleteMessageStatistics(channelId, messageId, metaDataIds);
+        } finally {
+            metrics.record(channelId, "deleteMessageStatistics", System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public void deleteAllMessages(String channelId) {
+        long startTime = System.nanoTime();
+
+        try {
+            dao.deleteAllMessages(channelId);
+        } finally {
+            metrics.record(channelId, "deleteAllMessages", System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public void deleteMessageContent(String channelId, long messageId) {
+        long startTime = System.nanoTime();
+
+        try {
+            dao.deleteMessageContent(channelId, messageId);
+        } finally {
+            metrics.record(channelId, "deleteMessageContent", System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public void deleteMessageContentByMetaDataIds(String channelId, long messageId, Set<Integer> metaDataIds) {
+        long startTime = System.nanoTime();
+
+        try {
+            dao.deleteMessageContentByMetaDataIds(channelId, messageId, metaDataIds);
+        } finally {
+            metrics.record(channelId, "deleteMessageContentByMetaDataIds", System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public void deleteMessageAttachments(String channelId, long messageId) {
+        long startTime = System.nanoTime();
+
+        try {
+            dao.deleteMessageAttachments(channelId, messageId);
+        } finally {
+            metrics.record(channelId, "deleteMessageAttachments", System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public void createChannel(String channelId, long localChannelId) {
+        long startTime = System.nanoTime();
+
+        try {
+            dao.createChannel(channelId, localChannelId);
+        } finally {
+            metrics.record(channelId, "createChannel", System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public boolean initTableStructure() {
+        long startTime = System.nanoTime();
+
+        try {
+            return dao.initTableStructure();
+        } finally {
+            metrics.record(channelId, "initTableStructure", System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public void checkAndCreateChannelTables() {
+        long startTime = System.nanoTime();
+
+        try {
+            dao.checkAndCreateChannelTables();
+        } finally {
+            metrics.record(channelId, "checkOrCreateChannelTables", System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public void removeChannel(String channelId) {
+        long startTime = System.nanoTime();
+
+        try {
+            dao.removeChannel(channelId);
+        } finally {
+            metrics.record(channelId, "removeChannel", System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public void addMetaDataColumn(String channelId, MetaDataColumn metaDataColumn) {
+        long startTime = System.nanoTime();
+
+        try {
+            dao.addMetaDataColumn(channelId, metaDataColumn);
+        } finally {
+            metrics.record(channelId, "addMetaDataColumn", System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public void removeMetaDataColumn(String channelId, String columnName) {
+        long startTime = System.nanoTime();
+
+        try {
+            dao.removeMetaDataColumn(channelId, columnName);
+        } finally {
+            metrics.record(channelId, "removeMetaDataColumn", System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public void resetStatistics(String channelId, Integer metaDataId, Set<Status> statuses) {
+        long startTime = System.nanoTime();
+
+        try {
+            dao.resetStatistics(channelId, metaDataId, statuses);
+        } finally {
+            metrics.record(channelId, "resetStatistics", System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public void resetAllStatistics(String channelId) {
+        long startTime = System.nanoTime();
+
+        try {
+            dao.resetAllStatistics(channelId);
+        } finally {
+            metrics.record(channelId, "resetStatistics", System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public Long selectMaxLocalChannelId() {
+        long startTime = System.nanoTime();
+
+        try {
+            return dao.selectMaxLocalChannelId();
+        } finally {
+            metrics.record(channelId, "selectMaxLocalChannelId", System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public Map<String, Long> getLocalChannelIds() {
+        long startTime = System.nanoTime();
+
+        try {
+            return dao.getLocalChannelIds();
+        } finally {
+            metrics.record(channelId, "getLocalChannelIds", System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public long getMaxMessageId(String channelId) {
+        long startTime = System.nanoTime();
+
+        try {
+            return dao.getMaxMessageId(channelId);
+        } finally {
+            metrics.record(channelId, "getMaxMessageId", System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public long getMinMessageId(String channelId) {
+        long startTime = System.nanoTime();
+
+        try {
+            return dao.getMinMessageId(channelId);
+        } finally {
+            metrics.record(channelId, "getMinMessageId", System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public long getNextMessageId(String channelId) {
+        long startTime = System.nanoTime();
+
+        try {
+            return dao.getNextMessageId(channelId);
+        } finally {
+            metrics.record(channelId, "getNextMessageId", System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public List<Attachment> getMessageAttachment(String channelId, long messageId) {
+        long startTime = System.nanoTime();
+
+        try {
+            return dao.getMessageAttachment(channelId, messageId);
+        } finally {
+            metrics.record(channelId, "getMessageAttachment", System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public Attachment getMessageAttachment(String channelId, String attachmentId, Long messageId) {
+        long startTime = System.nanoTime();
+
+        try {
+            return dao.getMessageAttachment(channelId, attachmentId, messageId);
+        } finally {
+            metrics.record(channelId, "getMessageAttachment", System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public List<Message> getPendingConnectorMessages(String channelId, String serverId, int limit, Long minMessageId, Long maxMessageId) {
+        long startTime = System.nanoTime();
+
+        try {
+            return dao.getPendingConnectorMessages(channelId, serverId, limit, minMessageId, maxMessageId);
+        } finally {
+            metrics.record(channelId, "getPendingConnectorMessages", System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public List<Message> getMessages(String channelId, List<Long> messageIds) {
+        long startTime = System.nanoTime();
+
+        try {
+            return dao.getMessages(channelId, messageIds);
+        } finally {
+            metrics.record(channelId, "getMessages", System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public List<ConnectorMessage> getConnectorMessages(String channelId, String serverId, int metaDataId, Status status, int offset, int limit, Long minMessageId, Long maxMessageId) {
+        long startTime = System.nanoTime();
+
+        try {
+            return dao.getConnectorMessages(channelId, serverId, metaDataId, status, offset, limit, minMessageId, maxMessageId);
+        } finally {
+            metrics.record(channelId, "getConnectorMessages", System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public List<ConnectorMessage> getConnectorMessages(String channelId, long messageId, Set<Integer> metaDataIds, boolean includeContent) {
+        long startTime = System.nanoTime();
+
+        try {
+            return dao.getConnectorMessages(channelId, messageId, metaDataIds, includeContent);
+        } finally {
+            metrics.record(channelId, "getConnectorMessages", System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public Map<Integer, ConnectorMessage> getConnectorMessages(String channelId, long messageId, List<Integer> metaDataIds) {
+        long startTime = System.nanoTime();
+
+        try {
+            return dao.getConnectorMessages(channelId, messageId, metaDataIds);
+        } finally {
+            metrics.record(channelId, "getConnectorMessages", System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public int getConnectorMessageCount(String channelId, String serverId, int metaDataId, Status status) {
+        long startTime = System.nanoTime();
+
+        try {
+            return dao.getConnectorMessageCount(channelId, serverId, metaDataId, status);
+        } finally {
+            metrics.record(channelId, "getConnectorMessageCount", System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public long getConnectorMessageMaxMessageId(String channelId, String serverId, int metaDataId, Status status) {
+        long startTime = System.nanoTime();
+
+        try {
+            return dao.getConnectorMessageMaxMessageId(channelId, serverId, metaDataId, status);
+        } finally {
+            metrics.record(channelId, "getConnectorMessageMaxMessageId", System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public Map<Integer, Status> getConnectorMessageStatuses(String channelId, long messageId, boolean checkProcessed) {
+        long startTime = System.nanoTime();
+
+        try {
+            return dao.getConnectorMessageStatuses(channelId, messageId, checkProcessed);
+        } finally {
+            metrics.record(channelId, "getConnectorMessageStatuses", System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public List<Message> getUnfinishedMessages(String channelId, String serverId, int limit, Long minMessageId, Long maxMessageId) {
+        long startTime = System.nanoTime();
+
+        try {
+            return dao.getUnfinishedMessages(channelId, serverId, limit, minMessageId, maxMessageId);
+        } finally {
+            metrics.record(channelId, "getUnfinishedMessages", System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public List<MetaDataColumn> getMetaDataColumns(String channelId) {
+        long startTime = System.nanoTime();
+
+        try {
+            return dao.getMetaDataColumns(channelId);
+        } finally {
+            metrics.record(channelId, "getMetaDataColumns", System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public Statistics getChannelStatistics(String serverId) {
+        long startTime = System.nanoTime();
+
+        try {
+            return dao.getChannelStatistics(serverId);
+        } finally {
+            metrics.record(channelId, "getChannelStatistics", System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public Statistics getChannelTotalStatistics(String serverId) {
+        long startTime = System.nanoTime();
+
+        try {
+            return dao.getChannelTotalStatistics(serverId);
+        } finally {
+            metrics.record(channelId, "getChannelTotalStatistics", System.nanoTime() - startTime);
+        }
+    }
+    
+    @Override
+    public List<Ports> getPortsInUse() {
+        long startTime = System.nanoTime();
+
+        try {
+            return dao.getPortsInUse();
+        } finally {
+            metrics.record(channelId, "getPortsInUse", System.nanoTime() - startTime);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ * 
+ * http://www.mirthcorp.com
+ * 
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.donkey.server.data.metrics;
+
+import com.mirth.connect.donkey.server.data.DonkeyDao;
+import com.mirth.connect.donkey.server.data.DonkeyDaoFactory;
+import com.mirth.connect.donkey.server.data.StatisticsUpdater;
+import com.mirth.connect.donkey.server.data.jdbc.ConnectionPool;
+import com.mirth.connect.donkey.util.SerializerProvider;
+
+/**
+ * Wraps the DAOs of a single channel so their calls are timed. While metrics are disabled the
+ * delegate's DAOs are returned as they are, so nothing is added to the call path.
+ */
+public class MetricsDaoFactory implements DonkeyDaoFactory {
+    private DonkeyDaoFactory delegateFactory;
+    private DaoMetrics metrics;
+    private String channelId;
+    private boolean encryptMessageContent = false;
+    private boolean encryptAttachments = false;
+    private boolean encryptCustomMetaData = false;
+    private boolean decryptData = true;
+    private boolean compressMessageContent = false;
+    private StatisticsUpdater statisticsUpdater;
+
+    public MetricsDaoFactory(DonkeyDaoFactory delegateFactory, DaoMetrics metrics, String channelId) {
+        this.delegateFactory = delegateFactory;
+        this.metrics = metrics;
+        this.channelId = channelId;
+    }
+
+    public DonkeyDaoFactory getDelegateFactory() {
+        return delegateFactory;
+    }
+
+    public void setDelegateFactory(DonkeyDaoFactory delegateFactory) {
+        this.delegateFactory = delegateFactory;
+    }
+
+    public DaoMetrics getMetrics() {
+        return metrics;
+    }
+
+    public String getChannelId() {
+        return channelId;
+    }
+
+    @Override
+    public void setEncryptData(boolean encryptMessageContent, boolean encryptAttachments, boolean encryptCustomMetaData) {
+        this.encryptMessageContent = encryptMessageContent;
+        this.encryptAttachments = encryptAttachments;
+        this.encryptCustomMetaData = encryptCustomMetaData;
+    }
+
+    @Override
+    public void setDecryptData(boolean decryptData) {
+        this.decryptData = decryptData;
+    }
+
+    @Override
+    public void setCompressMessageContent(boolean compressMessageContent) {
+        this.compressMessageContent = compressMessageContent;
+    }
+
+    @Override
+    public void setStatisticsUpdater(StatisticsUpdater statisticsUpdater) {
+        this.statisticsUpdater = statisticsUpdater;
+    }
+
+    @Override
+    public DonkeyDao getDao() {
+        return wrap(delegateFactory.getDao());
+    }
+
+    @Override
+    public DonkeyDao getDao(SerializerProvider serializerProvider) {
+        return wrap(delegateFactory.getDao(serializerProvider));
+    }
+
+    @Override
+    public ConnectionPool getConnectionPool() {
+        return delegateFactory.getConnectionPool();
+    }
+
+    private DonkeyDao wrap(DonkeyDao delegateDao) {
+        DonkeyDao dao = metrics.isEnabled() ? new MetricsDao(delegateDao, metrics, channelId) : delegateDao;
+        dao.setEncryptData(encryptMessageContent, encryptAttachments, encryptCustomMetaData);
+        dao.setDecryptData(decryptData);
+        dao.setCompressMessageContent(compressMessageContent);
+
+        // Keep the delegate's updater unless one was given
+        if (statisticsUpdater != null) {
+            dao.setStatisticsUpdater(statisticsUpdater);
+        }
+        return dao;
+    }
+}
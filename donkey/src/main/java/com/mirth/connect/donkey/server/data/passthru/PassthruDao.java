@@ -68,6 +68,9 @@ public class PassthruDao implements DonkeyDao {
     @Override
     public void setDecryptData(boolean decryptData) {}
 
+    @Override
+    public void setCompressMessageContent(boolean compressMessageContent) {}
+
     @Override
     public void commit() {
         commit(false);
@@ -288,7 +291,7 @@ public class PassthruDao implements DonkeyDao {
     }
 
     @Override
-    public List<Message> getPendingConnectorMessages(String channelId, String serverId, int limit, Long minMessageId) {
+    public List<Message> getPendingConnectorMessages(String channelId, String serverId, int limit, Long minMessageId, Long maxMessageId) {
         return new ArrayList<Message>();
     }
 
@@ -303,7 +306,7 @@ public class PassthruDao implements DonkeyDao {
     }
 
     @Override
-    public List<Message> getUnfinishedMessages(String channelId, String serverId, int limit, Long minMessageId) {
+    public List<Message> getUnfinishedMessages(String channelId, String serverId, int limit, Long minMessageId, Long maxMessageId) {
         return new ArrayList<Message>();
     }
 
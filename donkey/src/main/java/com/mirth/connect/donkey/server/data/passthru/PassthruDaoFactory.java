@@ -31,6 +31,9 @@ public class PassthruDaoFactory implements DonkeyDaoFactory {
     @Override
     public void setDecryptData(boolean decryptData) {}
 
+    @Override
+    public void setCompressMessageContent(boolean compressMessageContent) {}
+
     @Override
     public void setStatisticsUpdater(StatisticsUpdater statisticsUpdater) {
         this.statisticsUpdater = statisticsUpdater;
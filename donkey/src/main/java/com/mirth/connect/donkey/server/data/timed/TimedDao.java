@@ -60,6 +60,11 @@ public class TimedDao implements DonkeyDao {
         dao.setDecryptData(decryptData);
     }
 
+    @Override
+    public void setCompressMessageContent(boolean compressMessageContent) {
+        dao.setCompressMessageContent(compressMessageContent);
+    }
+
     @Override
     public void setStatisticsUpdater(StatisticsUpdater statisticsUpdater) {
         dao.setStatisticsUpdater(statisticsUpdater);
@@ -542,11 +547,11 @@ public class TimedDao implements DonkeyDao {
     }
 
     @Override
-    public List<Message> getPendingConnectorMessages(String channelId, String serverId, int limit, Long minMessageId) {
+    public List<Message> getPendingConnectorMessages(String channelId, String serverId, int limit, Long minMessageId, Long maxMessageId) {
         long startTime = System.currentTimeMillis();
 
         try {
-            return dao.getPendingConnectorMessages(channelId, serverId, limit, minMessageId);
+            return dao.getPendingConnectorMessages(channelId, serverId, limit, minMessageId, maxMessageId);
         } finally {
             timer.log("getPendingConnectorMessages", System.currentTimeMillis() - startTime);
         }
@@ -630,11 +635,11 @@ public class TimedDao implements DonkeyDao {
     }
 
     @Override
-    public List<Message> getUnfinishedMessages(String channelId, String serverId, int limit, Long minMessageId) {
+    public List<Message> getUnfinishedMessages(String channelId, String serverId, int limit, Long minMessageId, Long maxMessageId) {
         long startTime = System.currentTimeMillis();
 
         try {
-            return dao.getUnfinishedMessages(channelId, serverId, limit, minMessageId);
+            return dao.getUnfinishedMessages(channelId, serverId, limit, minMessageId, maxMessageId);
         } finally {
             timer.log("getUnfinishedMessages", System.currentTimeMillis() - startTime);
         }
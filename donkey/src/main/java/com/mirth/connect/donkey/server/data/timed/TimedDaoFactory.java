@@ -23,6 +23,7 @@ public class TimedDaoFactory implements DonkeyDaoFactory {
     private boolean encryptAttachments = false;
     private boolean encryptCustomMetaData = false;
     private boolean decryptData = true;
+    private boolean compressMessageContent = false;
     private StatisticsUpdater statisticsUpdater;
 
     public TimedDaoFactory(DonkeyDaoFactory delegateFactory, ActionTimer timer) {
@@ -58,6 +59,11 @@ public class TimedDaoFactory implements DonkeyDaoFactory {
         this.decryptData = decryptData;
     }
 
+    @Override
+    public void setCompressMessageContent(boolean compressMessageContent) {
+        this.compressMessageContent = compressMessageContent;
+    }
+
     @Override
     public void setStatisticsUpdater(StatisticsUpdater statisticsUpdater) {
         this.statisticsUpdater = statisticsUpdater;
@@ -68,6 +74,7 @@ public class TimedDaoFactory implements DonkeyDaoFactory {
         DonkeyDao dao = new TimedDao(delegateFactory.getDao(), timer);
         dao.setEncryptData(encryptMessageContent, encryptAttachments, encryptCustomMetaData);
         dao.setDecryptData(decryptData);
+        dao.setCompressMessageContent(compressMessageContent);
         dao.setStatisticsUpdater(statisticsUpdater);
         return dao;
     }
@@ -77,6 +84,7 @@ public class TimedDaoFactory implements DonkeyDaoFactory {
         DonkeyDao dao = new TimedDao(delegateFactory.getDao(serializerProvider), timer);
         dao.setEncryptData(encryptMessageContent, encryptAttachments, encryptCustomMetaData);
         dao.setDecryptData(decryptData);
+        dao.setCompressMessageContent(compressMessageContent);
         dao.setStatisticsUpdater(statisticsUpdater);
         return dao;
     }
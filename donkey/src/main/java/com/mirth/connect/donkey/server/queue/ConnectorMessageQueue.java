@@ -9,6 +9,8 @@
 
 package com.mirth.connect.donkey.server.queue;
 
+import java.util.Calendar;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -32,6 +34,9 @@ public abstract class ConnectorMessageQueue {
     private int bufferCapacity = 1000;
     private boolean reachedCapacity = false;
     private boolean invalidated = false;
+    private boolean deferBufferFill = Donkey.getInstance().isDeferQueueBufferFill();
+    private boolean reconcilePending = false;
+    private Integer lastKnownSize;
 
     protected abstract ConnectorMessage pollFirstValue();
 
@@ -55,6 +60,18 @@ public abstract class ConnectorMessageQueue {
         }
     }
 
+    public boolean isDeferBufferFill() {
+        return deferBufferFill;
+    }
+
+    /**
+     * When enabled, adding a message to an invalidated queue only updates the size, and the buffer
+     * is not filled from the data store until the first acquire or poll.
+     */
+    public void setDeferBufferFill(boolean deferBufferFill) {
+        this.deferBufferFill = deferBufferFill;
+    }
+
     public ConnectorMessageQueueDataSource getDataSource() {
         return dataSource;
     }
@@ -64,11 +81,59 @@ public abstract class ConnectorMessageQueue {
         metaDataId = dataSource.getMetaDataId();
 
         this.dataSource = dataSource;
+        synchronized (this) {
+            reconcilePending = false;
+            lastKnownSize = null;
+        }
         invalidate(false, true);
     }
 
     public synchronized void updateSize() {
         size = dataSource.getSize();
+        reconcilePending = false;
+    }
+
+    /**
+     * Initializes the queue size from a previously persisted snapshot instead of counting the
+     * messages in the data store. The snapshot size is kept through invalidations until
+     * reconcileSize() replaces it with the actual count.
+     */
+    public synchronized void setSnapshotSize(int size) {
+        this.size = size;
+        reconcilePending = true;
+    }
+
+    /**
+     * Returns the current size if it is known, otherwise the size at the time of the last
+     * invalidation. This never queries the data store.
+     */
+    public synchronized Integer getSnapshotSize() {
+        return size != null ? size : lastKnownSize;
+    }
+
+    /**
+     * Returns the received date of the first message in the buffer, or null if the buffer is
+     * empty. This never queries the data store, so messages that haven't been buffered yet are not
+     * considered.
+     */
+    public synchronized Calendar getFirstBufferedReceivedDate() {
+        Iterator<ConnectorMessage> iterator = buffer.values().iterator();
+        return iterator.hasNext() ? iterator.next().getReceivedDate() : null;
+    }
+
+    public synchronized boolean isReconcilePending() {
+        return reconcilePending;
+    }
+
+    /**
+     * Replaces a size that was initialized from a snapshot with the actual count from the data
+     * store. Does nothing if the size has already been updated since.
+     */
+    public synchronized void reconcileSize() {
+        if (reconcilePending && dataSource != null) {
+            updateSize();
+            eventDispatcher.dispatchEvent(new MessageEvent(channelId, metaDataId, MessageEventType.QUEUED, (long) size, true));
+        }
     }
 
     public synchronized void updateSizeIfEmpty() {
@@ -84,7 +149,14 @@ public abstract class ConnectorMessageQueue {
             reset();
         }
 
-        size = null;
+        if (size != null) {
+            lastKnownSize = size;
+        }
+
+        // A snapshot size stays in place until it has been reconciled with the data store
+        if (!reconcilePending) {
+            size = null;
+        }
         invalidated = true;
 
         if (updateSize) {
@@ -139,9 +211,14 @@ public abstract class ConnectorMessageQueue {
              * If the buffer was never filled after an invalidate, we can't just insert the message
              * directly into the buffer because there could be messages that should process before
              * it. Therefore we'll just fill the buffer to resync it with the database. This method
-             * can only be called after a new message was added to the database
+             * can only be called after a new message was added to the database. If filling is
+             * deferred, the buffer will be filled by the next acquire or poll instead.
              */
-            fillBuffer();
+            if (deferBufferFill) {
+                notifyTimeoutLock();
+            } else {
+                fillBuffer();
+            }
         } else {
             if (size == null) {
                 updateSize();
@@ -152,12 +229,7 @@ public abstract class ConnectorMessageQueue {
                         buffer.put(connectorMessage.getMessageId(), connectorMessage);
 
                         // If there is a poll with timeout waiting, notify that an item was added to the buffer.
-                        if (timeoutLock.get()) {
-                            synchronized (timeoutLock) {
-                                timeoutLock.notifyAll();
-                                timeoutLock.set(false);
-                            }
-                        }
+                        notifyTimeoutLock();
                     }
                 } else {
                     reachedCapacity = true;
@@ -181,12 +253,27 @@ public abstract class ConnectorMessageQueue {
         invalidated = false;
         buffer = dataSource.getItems(0, Math.min(bufferCapacity, size));
 
+        /*
+         * If the size came from a snapshot and fewer messages were returned than requested, then
+         * the buffer holds everything that is queued and the actual size is known.
+         */
+        if (reconcilePending && buffer.size() < Math.min(bufferCapacity, size) && !dataSource.isQueueRotated()) {
+            size = buffer.size();
+            reconcilePending = false;
+        }
+
         if (buffer.size() == size) {
             reachedCapacity = false;
         }
 
         // If there is a poll with timeout waiting, notify that an item was added to the buffer.
-        if (buffer.size() > 0 && timeoutLock.get()) {
+        if (buffer.size() > 0) {
+            notifyTimeoutLock();
+        }
+    }
+
+    private void notifyTimeoutLock() {
+        if (timeoutLock.get()) {
             synchronized (timeoutLock) {
                 timeoutLock.notifyAll();
                 timeoutLock.set(false);
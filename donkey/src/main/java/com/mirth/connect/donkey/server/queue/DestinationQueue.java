@@ -118,6 +118,18 @@ public class DestinationQueue extends ConnectorMessageQueue {
         return statusUpdateLock.writeLock();
     }
 
+    @Override
+    public void reconcileSize() {
+        // Counting the queue must not overlap with queue threads committing statuses
+        Lock lock = getInvalidationLock();
+        lock.lock();
+        try {
+            super.reconcileSize();
+        } finally {
+            lock.unlock();
+        }
+    }
+
     @Override
     protected void reset() {
         checkedOut.clear();
@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.donkey.server.queue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.mirth.connect.donkey.server.Donkey;
+import com.mirth.connect.donkey.server.channel.Channel;
+import com.mirth.connect.donkey.server.channel.DestinationChainProvider;
+import com.mirth.connect.donkey.server.channel.DestinationConnector;
+
+/**
+ * Persists the sizes of all connector message queues to a file in the application data directory,
+ * periodically and when the engine stops. On the next startup, queues are initialized from those
+ * sizes instead of counting their messages in the database, and the actual counts are reconciled
+ * afterwards on a single background thread.
+ *
+ * A periodic checkpoint can be up to one checkpoint interval old when the server stops without
+ * shutting down, so a queue that was empty then may not be now. Restoring such a queue as empty
+ * would hide its messages until it was reconciled, so empty queues are only restored from the
+ * checkpoint written at shutdown. Other queues are counted as usual.
+ */
+public class QueueSizeCheckpointer extends Thread {
+
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 60000;
+    public static final String SNAPSHOT_FILE_NAME = "queuesizes.properties";
+
+    private static final String SERVER_ID_KEY = "server.id";
+    private static final String SHUTDOWN_KEY = "shutdown";
+
+    private File snapshotFile;
+    private String serverId;
+    private int checkpointInterval;
+    private Map<String, Integer> restoredSizes = new ConcurrentHashMap<String, Integer>();
+    private Map<String, Integer> recordedSizes = new ConcurrentHashMap<String, Integer>();
+    private ExecutorService reconcileExecutor;
+    private Logger logger = LogManager.getLogger(getClass());
+
+    public QueueSizeCheckpointer(File snapshotFile, String serverId, int checkpointInterval) {
+        this.snapshotFile = snapshotFile;
+        this.serverId = serverId;
+        if (checkpointInterval <= 0) {
+            checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL;
+        }
+        this.checkpointInterval = checkpointInterval;
+        setName("Queue Size Checkpoint Thread");
+        setDaemon(true);
+
+        reconcileExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "Queue Size Reconcile Thread");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Loads the queue sizes persisted by the previous run. Snapshots written by a different server
+     * ID are ignored.
+     */
+    public void load() {
+        if (!snapshotFile.isFile()) {
+            return;
+        }
+
+        Properties properties = new Properties();
+        try (InputStream inputStream = new FileInputStream(snapshotFile)) {
+            properties.load(inputStream);
+        } catch (IOException e) {
+            logger.warn("Unable to load queue size snapshots from " + snapshotFile.getAbsolutePath() + ".", e);
+            return;
+        }
+
+        if (!StringUtils.equals(serverId, properties.getProperty(SERVER_ID_KEY))) {
+            logger.debug("Ignoring queue size snapshots written by a different server ID.");
+            return;
+        }
+
+        boolean shutdown = Boolean.parseBoolean(properties.getProperty(SHUTDOWN_KEY));
+
+        for (String key : properties.stringPropertyNames()) {
+            if (!key.equals(SERVER_ID_KEY) && !key.equals(SHUTDOWN_KEY)) {
+                int size = NumberUtils.toInt(properties.getProperty(key), -1);
+                if (size > 0 || (size == 0 && shutdown)) {
+                    restoredSizes.put(key, size);
+                }
+            }
+        }
+    }
+
+    /**
+     * Initializes the size of the given queue from its snapshot, if one was loaded, and schedules
+     * the actual count in the background. Each snapshot is only used once.
+     *
+     * @return true if the size was restored, false if the caller needs to count the queue itself
+     */
+    public boolean restoreSize(final ConnectorMessageQueue queue) {
+        Integer size = restoredSizes.remove(getKey(queue.channelId, queue.metaDataId));
+
+        if (size == null) {
+            return false;
+        }
+
+        queue.setSnapshotSize(size);
+
+        reconcileExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    queue.reconcileSize();
+                } catch (Throwable t) {
+                    logger.warn("Unable to reconcile the queue size for channel " + queue.channelId + ", connector " + queue.metaDataId + ".", t);
+                }
+            }
+        });
+
+        return true;
+    }
+
+    /**
+     * Records the current queue sizes of a channel, so they are included in the checkpoint written
+     * at shutdown even after the channel is undeployed. Periodic checkpoints drop the sizes of
+     * channels that are no longer deployed.
+     */
+    public void record(Channel channel) {
+        record(channel.getSourceQueue());
+
+        for (DestinationChainProvider chainProvider : channel.getDestinationChainProviders()) {
+            for (DestinationConnector destinationConnector : chainProvider.getDestinationConnectors().values()) {
+                record(destinationConnector.getQueue());
+            }
+        }
+    }
+
+    private void record(ConnectorMessageQueue queue) {
+        if (queue != null && queue.channelId != null) {
+            Integer size = queue.getSnapshotSize();
+
+            if (size != null) {
+                recordedSizes.put(getKey(queue.channelId, queue.metaDataId), size);
+            }
+        }
+    }
+
+    /**
+     * Removes all recorded sizes for a channel. Called on deploy, since sizes recorded for a
+     * previous deployment may no longer be accurate.
+     */
+    public void forget(String channelId) {
+        String prefix = channelId + ".";
+
+        for (String key : recordedSizes.keySet()) {
+            if (key.startsWith(prefix)) {
+                recordedSizes.remove(key);
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        boolean done = false;
+
+        while (!done) {
+            try {
+                Thread.sleep(checkpointInterval);
+                checkpoint();
+            } catch (InterruptedException e) {
+                /*
+                 * Do one last checkpoint so the sizes at shutdown are used on the next startup.
+                 * Channels have been undeployed by now, so keep the sizes recorded for them.
+                 */
+                checkpoint(true);
+
+                Thread.currentThread().interrupt();
+                done = true;
+            }
+        }
+    }
+
+    public void shutdown() {
+        reconcileExecutor.shutdownNow();
+
+        if (isAlive()) {
+            interrupt();
+            try {
+                join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Writes the current queue sizes of all deployed channels. Sizes recorded for channels that
+     * are no longer deployed, such as deleted channels, are dropped.
+     */
+    public void checkpoint() {
+        checkpoint(false);
+    }
+
+    private synchronized void checkpoint(boolean shutdown) {
+        Map<String, Channel> deployedChannels = Donkey.getInstance().getDeployedChannels();
+
+        for (Channel channel : deployedChannels.values()) {
+            record(channel);
+        }
+
+        if (!shutdown) {
+            for (Iterator<String> iterator = recordedSizes.keySet().iterator(); iterator.hasNext();) {
+                String key = iterator.next();
+
+                if (!deployedChannels.containsKey(StringUtils.substringBeforeLast(key, "."))) {
+                    iterator.remove();
+                }
+            }
+        }
+
+        Properties properties = new Properties();
+        properties.setProperty(SERVER_ID_KEY, StringUtils.defaultString(serverId));
+        properties.setProperty(SHUTDOWN_KEY, String.valueOf(shutdown));
+        for (Entry<String, Integer> entry : recordedSizes.entrySet()) {
+            properties.setProperty(entry.getKey(), String.valueOf(entry.getValue()));
+        }
+
+        File tempFile = new File(snapshotFile.getPath() + ".tmp");
+
+        try {
+            try (OutputStream outputStream = new FileOutputStream(tempFile)) {
+                properties.store(outputStream, "Queue size snapshots, do not edit");
+            }
+
+            try {
+                Files.move(tempFile.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            logger.warn("Unable to write queue size snapshots to " + snapshotFile.getAbsolutePath() + ".", e);
+        }
+    }
+
+    private String getKey(String channelId, Integer metaDataId) {
+        return channelId + "." + metaDataId;
+    }
+}
@@ -9,11 +9,17 @@
 
 package com.mirth.connect.donkey.server.channel;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -21,12 +27,20 @@ import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.withSettings;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
@@ -34,10 +48,18 @@ import com.google.inject.AbstractModule;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 import com.mirth.connect.donkey.model.channel.ConnectorProperties;
+import com.mirth.connect.donkey.model.channel.DeployedState;
+import com.mirth.connect.donkey.model.channel.LatencyStatistics;
 import com.mirth.connect.donkey.model.channel.SourceConnectorProperties;
 import com.mirth.connect.donkey.model.channel.SourceConnectorPropertiesInterface;
+import com.mirth.connect.donkey.model.message.ConnectorMessage;
 import com.mirth.connect.donkey.model.message.DataType;
+import com.mirth.connect.donkey.model.message.Message;
+import com.mirth.connect.donkey.model.message.MessageContent;
+import com.mirth.connect.donkey.model.message.MessageTrace;
+import com.mirth.connect.donkey.model.message.MessageTrace.Stage;
 import com.mirth.connect.donkey.model.message.RawMessage;
+import com.mirth.connect.donkey.model.message.Status;
 import com.mirth.connect.donkey.model.message.attachment.Attachment;
 import com.mirth.connect.donkey.server.Donkey;
 import com.mirth.connect.donkey.server.data.DonkeyDao;
@@ -52,6 +74,7 @@ public class ChannelTest {
     public static void setupControllers() throws Exception {
         Donkey donkey = mock(Donkey.class);
         when(donkey.getEventDispatcher()).thenReturn(mock(EventDispatcher.class));
+        when(donkey.getMessageTracer()).thenReturn(new MessageTracer());
 
         Injector injector = Guice.createInjector(new AbstractModule() {
             @Override
@@ -106,8 +129,215 @@ public class ChannelTest {
         assertNull(rawMessage.getAttachments());
     }
 
+    @Test
+    public void testBackgroundRecovery() throws Exception {
+        final int testSize = 20;
+        final CountDownLatch recoveryLatch = new CountDownLatch(1);
+        final Set<Long> recoveredMessageIds = Collections.synchronizedSet(new HashSet<Long>());
+
+        Channel channel = createChannel(new Channel() {
+            @Override
+            public Message process(ConnectorMessage sourceMessage, boolean markAsProcessed) throws InterruptedException {
+                // Hold up recovery until the channel has finished starting
+                recoveryLatch.await();
+                recoveredMessageIds.add(sourceMessage.getMessageId());
+                return null;
+            }
+        });
+
+        SourceConnectorProperties sourceConnectorProperties = ((SourceConnectorPropertiesInterface) channel.getSourceConnector().getConnectorProperties()).getSourceConnectorProperties();
+        when(sourceConnectorProperties.getProcessingThreads()).thenReturn(4);
+        when(channel.getSourceConnector().isRespondAfterProcessing()).thenReturn(true);
+
+        List<ConnectorMessage> sourceMessages = new ArrayList<ConnectorMessage>();
+        for (long messageId = 1; messageId <= testSize; messageId++) {
+            sourceMessages.add(new ConnectorMessage(channel.getChannelId(), null, messageId, 0, null, Calendar.getInstance(), Status.RECEIVED));
+        }
+
+        DonkeyDao dao = channel.getDaoFactory().getDao();
+        when(dao.getConnectorMessages(anyString(), any(), anyInt(), any(Status.class), anyInt(), anyInt(), anyLong(), any())).thenReturn(sourceMessages.subList(0, 1), sourceMessages.subList(1, testSize), new ArrayList<ConnectorMessage>());
+
+        channel.start(null);
+
+        // The channel should be started even though no messages have been recovered yet
+        assertEquals(DeployedState.STARTED, channel.getCurrentState());
+        assertTrue(channel.getRecoveryTask().isBackground());
+        assertTrue(channel.isRecovering());
+
+        recoveryLatch.countDown();
+        channel.getRecoveryTask().awaitTermination();
+
+        assertFalse(channel.isRecovering());
+        assertEquals(testSize, recoveredMessageIds.size());
+        assertEquals(testSize, channel.getRecoveryTask().getRecoveredMessages());
+        verify(channel.getSourceQueue(), times(testSize)).decrementSize();
+    }
+
+    @Test
+    public void testBackgroundRecoveryBoundedByMessagesAtStart() throws Exception {
+        Channel channel = createChannel();
+
+        SourceConnectorProperties sourceConnectorProperties = ((SourceConnectorPropertiesInterface) channel.getSourceConnector().getConnectorProperties()).getSourceConnectorProperties();
+        when(sourceConnectorProperties.getProcessingThreads()).thenReturn(4);
+
+        DonkeyDao dao = channel.getDaoFactory().getDao();
+        when(dao.getMaxMessageId(channel.getChannelId())).thenReturn(20L, 50L);
+        when(channel.getSourceConnector().getCurrentState()).thenReturn(DeployedState.STOPPED);
+
+        channel.start(null);
+        channel.getRecoveryTask().awaitTermination();
+
+        // Messages received after the channel started are in flight, not unfinished
+        InOrder inOrder = inOrder(dao, channel.getSourceConnector());
+        inOrder.verify(dao).getMaxMessageId(channel.getChannelId());
+        inOrder.verify(channel.getSourceConnector()).start();
+        verify(dao).getUnfinishedMessages(anyString(), any(), anyInt(), anyLong(), eq(20L));
+        verify(dao).getPendingConnectorMessages(anyString(), any(), anyInt(), anyLong(), eq(20L));
+    }
+
+    @Test(timeout = 20000)
+    public void testStopFinishesInFlightRecovery() throws Exception {
+        final CountDownLatch processingLatch = new CountDownLatch(2);
+        final Set<Long> recoveredMessageIds = Collections.synchronizedSet(new HashSet<Long>());
+
+        Channel channel = createChannel(new Channel() {
+            @Override
+            public Message process(ConnectorMessage sourceMessage, boolean markAsProcessed) throws InterruptedException {
+                processingLatch.countDown();
+                // Interrupting the recovery would fail the message here
+                Thread.sleep(300);
+                recoveredMessageIds.add(sourceMessage.getMessageId());
+                return null;
+            }
+        });
+
+        SourceConnectorProperties sourceConnectorProperties = ((SourceConnectorPropertiesInterface) channel.getSourceConnector().getConnectorProperties()).getSourceConnectorProperties();
+        when(sourceConnectorProperties.getProcessingThreads()).thenReturn(2);
+        when(channel.getSourceConnector().isRespondAfterProcessing()).thenReturn(true);
+
+        DonkeyDao dao = channel.getDaoFactory().getDao();
+        List<ConnectorMessage> sourceMessages = new ArrayList<ConnectorMessage>();
+        for (long messageId = 1; messageId <= 10; messageId++) {
+            sourceMessages.add(new ConnectorMessage(channel.getChannelId(), null, messageId, 0, null, Calendar.getInstance(), Status.RECEIVED));
+        }
+        when(dao.getConnectorMessages(anyString(), any(), anyInt(), any(Status.class), anyInt(), anyInt(), anyLong(), any())).thenReturn(sourceMessages.subList(0, 1), sourceMessages.subList(1, 10), new ArrayList<ConnectorMessage>());
+
+        channel.start(null);
+        processingLatch.await();
+        assertTrue(channel.isRecovering());
+
+        channel.stop();
+
+        // The two messages in flight finished, and no others were started
+        assertFalse(channel.isRecovering());
+        assertEquals(new HashSet<Long>(Arrays.asList(1L, 2L)), recoveredMessageIds);
+        assertEquals(2, channel.getRecoveryTask().getRecoveredMessages());
+    }
+
+    @Test(timeout = 20000)
+    public void testHaltInterruptsBackgroundRecovery() throws Exception {
+        final CountDownLatch processingLatch = new CountDownLatch(1);
+
+        Channel channel = createChannel(new Channel() {
+            @Override
+            public Message process(ConnectorMessage sourceMessage, boolean markAsProcessed) throws InterruptedException {
+                // Never finishes unless the worker is interrupted
+                processingLatch.countDown();
+                new CountDownLatch(1).await();
+                return null;
+            }
+        });
+
+        SourceConnectorProperties sourceConnectorProperties = ((SourceConnectorPropertiesInterface) channel.getSourceConnector().getConnectorProperties()).getSourceConnectorProperties();
+        when(sourceConnectorProperties.getProcessingThreads()).thenReturn(4);
+        when(channel.getSourceConnector().isRespondAfterProcessing()).thenReturn(true);
+
+        DonkeyDao dao = channel.getDaoFactory().getDao();
+        List<ConnectorMessage> sourceMessages = new ArrayList<ConnectorMessage>();
+        sourceMessages.add(new ConnectorMessage(channel.getChannelId(), null, 1, 0, null, Calendar.getInstance(), Status.RECEIVED));
+        when(dao.getConnectorMessages(anyString(), any(), anyInt(), any(Status.class), anyInt(), anyInt(), anyLong(), any())).thenReturn(sourceMessages, new ArrayList<ConnectorMessage>());
+
+        channel.start(null);
+        processingLatch.await();
+        assertTrue(channel.isRecovering());
+
+        channel.halt();
+
+        assertFalse(channel.isRecovering());
+        assertEquals(0, channel.getRecoveryTask().getRecoveredMessages());
+    }
+
+    @Test
+    public void testDispatchRawMessagesInOneTransaction() throws Exception {
+        Channel channel = createChannel();
+        channel.setResponseSelector(mock(ResponseSelector.class));
+        channel.start(null);
+
+        List<RawMessage> rawMessages = new ArrayList<RawMessage>();
+        for (int i = 1; i <= 5; i++) {
+            rawMessages.add(new RawMessage("message " + i));
+        }
+
+        DonkeyDao dao = channel.getDaoFactory().getDao();
+        List<DispatchResult> dispatchResults = channel.dispatchRawMessages(rawMessages);
+
+        // All messages are committed together and queued in order
+        assertEquals(5, dispatchResults.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i + 1, dispatchResults.get(i).getMessageId());
+            assertFalse(dispatchResults.get(i).isLockAcquired());
+        }
+        verify(dao, times(5)).insertMessageContent(any(MessageContent.class));
+        verify(dao, times(1)).commit(anyBoolean());
+        verify(channel.getSourceQueue(), times(5)).add(any(ConnectorMessage.class));
+    }
+
+    @Test
+    public void testDispatchRawMessageTracing() throws Exception {
+        MessageTracer messageTracer = Donkey.getInstance().getMessageTracer();
+        messageTracer.setEnabled(true);
+        messageTracer.setSamplePercentage(100);
+
+        try {
+            Channel channel = createChannel();
+            channel.setResponseSelector(mock(ResponseSelector.class));
+            when(channel.getSourceConnector().getSourceName()).thenReturn("Source");
+            channel.start(null);
+
+            List<RawMessage> rawMessages = new ArrayList<RawMessage>();
+            for (int i = 1; i <= 3; i++) {
+                rawMessages.add(new RawMessage("message " + i));
+            }
+            channel.dispatchRawMessages(rawMessages);
+
+            ArgumentCaptor<ConnectorMessage> captor = ArgumentCaptor.forClass(ConnectorMessage.class);
+            verify(channel.getSourceQueue(), times(3)).add(captor.capture());
+
+            for (ConnectorMessage sourceMessage : captor.getAllValues()) {
+                MessageTrace trace = sourceMessage.getTrace();
+                assertTrue(trace.isSampled());
+                assertEquals(1, trace.getCount(Stage.CHANNEL_LOCK));
+                assertEquals(1, trace.getCount(Stage.SOURCE_STORE));
+                assertEquals(0, trace.getCount(Stage.SOURCE_QUEUE));
+            }
+
+            List<LatencyStatistics> statistics = messageTracer.getStatistics(Collections.singleton(channel.getChannelId()));
+            assertEquals(2, statistics.size());
+            assertEquals("Source: Channel lock wait", statistics.get(0).getName());
+            assertEquals(3, statistics.get(0).getCount());
+            assertEquals("Source: Source store", statistics.get(1).getName());
+        } finally {
+            messageTracer.setEnabled(false);
+            messageTracer.setSamplePercentage(0);
+            messageTracer.reset();
+        }
+    }
+
     private Channel createChannel() {
-        Channel channel = new Channel();
+        return createChannel(new Channel());
+    }
+
+    private Channel createChannel(Channel channel) {
         channel.setChannelId(UUID.randomUUID().toString());
         channel.setProcessLock(mock(ChannelProcessLock.class));
         channel.setSourceQueue(mock(SourceQueue.class));
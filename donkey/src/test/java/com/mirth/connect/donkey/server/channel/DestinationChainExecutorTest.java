@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.donkey.server.channel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class DestinationChainExecutorTest {
+
+    @Test
+    public void testChannelShareOfSharedBackend() throws Exception {
+        DestinationChainExecutorFactory factory = new DestinationChainExecutorFactory(DestinationChainExecutorFactory.BACKEND_SHARED, 10, 2);
+
+        try {
+            DestinationChainMetrics metrics = new DestinationChainMetrics();
+            DestinationChainExecutor executor = factory.createExecutor(metrics);
+            final CountDownLatch started = new CountDownLatch(2);
+            final CountDownLatch release = new CountDownLatch(1);
+
+            Callable<Thread> blockingChain = new Callable<Thread>() {
+                @Override
+                public Thread call() throws Exception {
+                    started.countDown();
+                    release.await();
+                    return Thread.currentThread();
+                }
+            };
+
+            Future<Thread> first = executor.submit(blockingChain);
+            Future<Thread> second = executor.submit(blockingChain);
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            assertEquals(2, metrics.getActiveChains());
+
+            // The channel's share is used up, so the next chain runs on the submitting thread
+            Future<Thread> third = executor.submit(new Callable<Thread>() {
+                @Override
+                public Thread call() throws Exception {
+                    return Thread.currentThread();
+                }
+            });
+            assertTrue(third.isDone());
+            assertEquals(Thread.currentThread(), third.get());
+
+            release.countDown();
+            assertFalse(Thread.currentThread().equals(first.get()));
+            assertFalse(Thread.currentThread().equals(second.get()));
+
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+            assertEquals(0, metrics.getActiveChains());
+            assertEquals(3, metrics.getExecutedChains());
+            assertEquals(1, metrics.getCallerRunsChains());
+        } finally {
+            factory.shutdown();
+        }
+    }
+
+    @Test
+    public void testHaltOnlyAffectsOwnChannel() throws Exception {
+        DestinationChainExecutorFactory factory = new DestinationChainExecutorFactory(DestinationChainExecutorFactory.BACKEND_SHARED, 10, 0);
+
+        try {
+            DestinationChainExecutor halted = factory.createExecutor(new DestinationChainMetrics());
+            DestinationChainExecutor running = factory.createExecutor(new DestinationChainMetrics());
+            final CountDownLatch started = new CountDownLatch(2);
+            final CountDownLatch release = new CountDownLatch(1);
+
+            Callable<Boolean> blockingChain = new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws Exception {
+                    started.countDown();
+                    try {
+                        release.await();
+                        return true;
+                    } catch (InterruptedException e) {
+                        return false;
+                    }
+                }
+            };
+
+            Future<Boolean> haltedChain = halted.submit(blockingChain);
+            Future<Boolean> runningChain = running.submit(blockingChain);
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            assertTrue(halted.shutdownNow().isEmpty());
+            assertTrue(halted.awaitTermination(5, TimeUnit.SECONDS));
+            assertFalse(haltedChain.get());
+            assertFalse(runningChain.isDone());
+            assertFalse(running.isShutdown());
+
+            release.countDown();
+            assertTrue(runningChain.get());
+        } finally {
+            factory.shutdown();
+        }
+    }
+
+    @Test
+    public void testBackendFallback() throws Exception {
+        assertEquals(DestinationChainExecutorFactory.BACKEND_CACHED, new DestinationChainExecutorFactory(null, 0, 0).getBackend());
+        assertEquals(DestinationChainExecutorFactory.BACKEND_CACHED, new DestinationChainExecutorFactory("unknown", 0, 0).getBackend());
+
+        // Virtual threads are only used when the JVM supports them
+        boolean virtualThreads = true;
+        try {
+            Class.forName("java.lang.Thread").getMethod("ofVirtual");
+        } catch (NoSuchMethodException e) {
+            virtualThreads = false;
+        }
+        assertEquals(virtualThreads ? DestinationChainExecutorFactory.BACKEND_VIRTUAL : DestinationChainExecutorFactory.BACKEND_CACHED, new DestinationChainExecutorFactory(" Virtual ", 0, 0).getBackend());
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.donkey.server.channel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.mirth.connect.donkey.model.channel.LatencyStatistics;
+import com.mirth.connect.donkey.model.message.ConnectorMessage;
+import com.mirth.connect.donkey.model.message.ContentType;
+import com.mirth.connect.donkey.model.message.MessageContent;
+import com.mirth.connect.donkey.model.message.MessageTrace;
+import com.mirth.connect.donkey.model.message.MessageTrace.Stage;
+import com.mirth.connect.donkey.model.message.SampledMessageTrace;
+import com.mirth.connect.donkey.model.message.Status;
+
+public class MessageTracerTest {
+
+    @Test
+    public void testSampling() {
+        MessageTracer messageTracer = new MessageTracer();
+
+        for (int i = 0; i < 100; i++) {
+            assertFalse(messageTracer.createTrace(System.nanoTime()).isSampled());
+        }
+
+        messageTracer.setSamplePercentage(150);
+        assertEquals(100, messageTracer.getSamplePercentage(), 0);
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(messageTracer.createTrace(System.nanoTime()).isSampled());
+        }
+    }
+
+    @Test
+    public void testRecordStages() {
+        MessageTracer messageTracer = new MessageTracer();
+        ConnectorMessage sourceMessage = createMessage(0, "Source");
+        ConnectorMessage destinationMessage = createMessage(1, "Destination 1");
+
+        // Nothing is recorded for a message that isn't traced
+        messageTracer.record(sourceMessage, Stage.SEND, System.nanoTime());
+        MessageTracer.continueTrace(sourceMessage, destinationMessage);
+        assertNull(destinationMessage.getTrace());
+        assertTrue(messageTracer.getStatistics(null).isEmpty());
+
+        long dispatchTime = System.nanoTime();
+        sourceMessage.setTrace(new MessageTrace(dispatchTime, true));
+        messageTracer.record(sourceMessage, Stage.CHANNEL_LOCK, dispatchTime, dispatchTime + 1000000);
+        MessageTracer.continueTrace(sourceMessage, destinationMessage);
+
+        MessageTrace trace = destinationMessage.getTrace();
+        assertEquals(dispatchTime, trace.getDispatchTime());
+        assertTrue(trace.isSampled());
+
+        // A send that is retried adds up
+        messageTracer.record(destinationMessage, Stage.SEND, dispatchTime + 2000000, dispatchTime + 3000000);
+        messageTracer.record(destinationMessage, Stage.SEND, dispatchTime + 4000000, dispatchTime + 6000000);
+        assertEquals(2, trace.getCount(Stage.SEND));
+        assertEquals(3000000, trace.getDuration(Stage.SEND));
+
+        // A hand-off is only recorded once
+        trace.markHandOff();
+        messageTracer.recordHandOff(destinationMessage, Stage.QUEUE_WAIT);
+        messageTracer.recordHandOff(destinationMessage, Stage.QUEUE_WAIT);
+        assertEquals(1, trace.getCount(Stage.QUEUE_WAIT));
+
+        List<LatencyStatistics> statistics = messageTracer.getStatistics(null);
+        assertEquals(3, statistics.size());
+        assertEquals("Destination 1: Destination queue wait", statistics.get(0).getName());
+        assertEquals("Destination 1: Send", statistics.get(1).getName());
+        assertEquals(2, statistics.get(1).getCount());
+        assertEquals("Source: Channel lock wait", statistics.get(2).getName());
+        assertEquals(1, statistics.get(2).getMean(), 0.05);
+    }
+
+    @Test
+    public void testSamples() {
+        MessageTracer messageTracer = new MessageTracer();
+        ConnectorMessage message = createMessage(1, "Destination 1");
+        long dispatchTime = System.nanoTime();
+
+        message.setTrace(new MessageTrace(dispatchTime, false));
+        assertFalse(messageTracer.addSample(message));
+        assertTrue(messageTracer.getSamples(null).isEmpty());
+        assertNull(message.getTraceContent());
+
+        MessageTrace trace = new MessageTrace(dispatchTime, true);
+        trace.add(Stage.SEND, dispatchTime + 2000000, dispatchTime + 3500000);
+        trace.add(Stage.SEND, dispatchTime + 4000000, dispatchTime + 4500000);
+        message.setTrace(trace);
+        messageTracer.addSample(message);
+
+        // Adding the same connector message again replaces its earlier trace
+        trace.add(Stage.SERIALIZE, dispatchTime + 1000000, dispatchTime + 1250000);
+        messageTracer.addSample(message);
+
+        List<SampledMessageTrace> samples = messageTracer.getSamples(null);
+        assertEquals(1, samples.size());
+        assertEquals("channelId", samples.get(0).getChannelId());
+        assertEquals(1, samples.get(0).getMessageId());
+        assertEquals(1, samples.get(0).getMetaDataId());
+        assertEquals("Destination 1", samples.get(0).getConnectorName());
+        assertEquals(String.format("Serialize: %.3f ms at +%.3f ms%nSend: %.3f ms at +%.3f ms (2 times)", 0.25, 1.0, 2.0, 2.0).replace(System.lineSeparator(), "\n"), samples.get(0).getTrace());
+
+        // The trace is never exposed to user scripts or stored with the maps
+        assertTrue(message.getConnectorMap().isEmpty());
+
+        // It is stored as its own content instead
+        MessageContent traceContent = message.getTraceContent();
+        assertEquals(ContentType.MESSAGE_TRACE, traceContent.getContentType());
+        assertEquals(1, traceContent.getMetaDataId());
+        assertEquals(samples.get(0).getTrace(), traceContent.getContent());
+
+        ConnectorMessage otherMessage = createMessage(0, "Source");
+        otherMessage.setChannelId("otherChannelId");
+        otherMessage.setTrace(new MessageTrace(dispatchTime, true));
+        messageTracer.addSample(otherMessage);
+        assertEquals("otherChannelId", messageTracer.getSamples(null).get(0).getChannelId());
+        assertEquals(1, messageTracer.getSamples(Collections.singleton("channelId")).size());
+
+        messageTracer.reset("channelId");
+        assertEquals(1, messageTracer.getSamples(null).size());
+        messageTracer.reset();
+        assertTrue(messageTracer.getSamples(null).isEmpty());
+    }
+
+    @Test
+    public void testSamplesAreBounded() {
+        MessageTracer messageTracer = new MessageTracer();
+
+        for (int i = 1; i <= 150; i++) {
+            ConnectorMessage message = new ConnectorMessage("channelId", "channel", i, 0, "serverId", Calendar.getInstance(), Status.RECEIVED);
+            message.setTrace(new MessageTrace(System.nanoTime(), true));
+            messageTracer.addSample(message);
+        }
+
+        List<SampledMessageTrace> samples = messageTracer.getSamples(null);
+        assertEquals(100, samples.size());
+        assertEquals(150, samples.get(0).getMessageId());
+        assertEquals(51, samples.get(99).getMessageId());
+    }
+
+    private ConnectorMessage createMessage(int metaDataId, String connectorName) {
+        ConnectorMessage message = new ConnectorMessage("channelId", "channel", 1, metaDataId, "serverId", Calendar.getInstance(), Status.RECEIVED);
+        message.setConnectorName(connectorName);
+        return message;
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.donkey.server.channel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.mirth.connect.donkey.model.channel.ConnectorProperties;
+import com.mirth.connect.donkey.model.channel.DeployedState;
+import com.mirth.connect.donkey.model.channel.SourceConnectorProperties;
+import com.mirth.connect.donkey.model.channel.SourceConnectorPropertiesInterface;
+import com.mirth.connect.donkey.model.message.BatchRawMessage;
+import com.mirth.connect.donkey.model.message.RawMessage;
+import com.mirth.connect.donkey.server.Constants;
+import com.mirth.connect.donkey.server.Donkey;
+import com.mirth.connect.donkey.server.event.EventDispatcher;
+import com.mirth.connect.donkey.server.message.batch.BatchAdaptor;
+import com.mirth.connect.donkey.server.message.batch.BatchAdaptorFactory;
+import com.mirth.connect.donkey.server.message.batch.BatchMessageException;
+import com.mirth.connect.donkey.server.message.batch.ResponseHandler;
+
+public class SourceConnectorTest {
+
+    @BeforeClass
+    public static void setupControllers() throws Exception {
+        Donkey donkey = mock(Donkey.class);
+        when(donkey.getEventDispatcher()).thenReturn(mock(EventDispatcher.class));
+        when(donkey.getMessageTracer()).thenReturn(new MessageTracer());
+
+        Injector injector = Guice.createInjector(new AbstractModule() {
+            @Override
+            protected void configure() {
+                requestStaticInjection(Donkey.class);
+                bind(Donkey.class).toInstance(donkey);
+            }
+        });
+        injector.getInstance(Donkey.class);
+
+        // Make sure injection succeeded
+        assertTrue(donkey == Donkey.getInstance());
+    }
+
+    @Test
+    public void testParallelBatchDispatch() throws Exception {
+        final int batchSize = 200;
+        ExecutorService executor = Executors.newCachedThreadPool();
+
+        try {
+            final List<RawMessage> dispatched = Collections.synchronizedList(new ArrayList<RawMessage>());
+            final AtomicInteger inFlight = new AtomicInteger();
+            final AtomicInteger maxInFlight = new AtomicInteger();
+
+            Channel channel = mock(Channel.class);
+            when(channel.getProcessingThreads()).thenReturn(4);
+            when(channel.getChannelExecutor()).thenReturn(executor);
+            when(channel.getStorageSettings()).thenReturn(new StorageSettings());
+            when(channel.dispatchRawMessage(any(RawMessage.class), anyBoolean())).thenAnswer(new Answer<DispatchResult>() {
+                private Random random = new Random();
+
+                @Override
+                public DispatchResult answer(InvocationOnMock invocation) throws Throwable {
+                    int current = inFlight.incrementAndGet();
+                    synchronized (maxInFlight) {
+                        maxInFlight.set(Math.max(maxInFlight.get(), current));
+                    }
+
+                    RawMessage rawMessage = invocation.getArgument(0);
+                    dispatched.add(rawMessage);
+
+                    // Let messages complete out of order
+                    Thread.sleep(random.nextInt(3));
+                    inFlight.decrementAndGet();
+
+                    int batchSequenceId = (Integer) rawMessage.getSourceMap().get(Constants.BATCH_SEQUENCE_ID_KEY);
+                    return new DispatchResult(1000 + batchSequenceId, null, null, false, true);
+                }
+            });
+
+            SourceConnector sourceConnector = createSourceConnector(channel, batchSize, 8);
+            final List<Integer> responseOrder = new ArrayList<Integer>();
+
+            ResponseHandler responseHandler = new ResponseHandler() {
+                @Override
+                public void responseProcess(int batchSequenceId, boolean batchComplete) throws Exception {
+                    assertEquals(1000 + batchSequenceId, dispatchResult.getMessageId());
+                    assertEquals(batchSequenceId == batchSize, batchComplete);
+                    responseOrder.add(batchSequenceId);
+                }
+
+                @Override
+                public void responseError(ChannelException e) {}
+            };
+
+            assertTrue(sourceConnector.dispatchBatchMessage(new BatchRawMessage(null, new HashMap<String, Object>()), responseHandler));
+
+            // Responses are handled in batch order even though dispatches complete out of order
+            assertEquals(batchSize, responseOrder.size());
+            for (int i = 0; i < batchSize; i++) {
+                assertEquals(Integer.valueOf(i + 1), responseOrder.get(i));
+            }
+
+            // Dispatching is limited by the channel's processing threads
+            assertTrue(maxInFlight.get() <= 4);
+
+            // Every message after the first carries the message ID of the first as its batch ID
+            assertEquals(batchSize, dispatched.size());
+            for (RawMessage rawMessage : dispatched) {
+                Map<String, Object> sourceMap = rawMessage.getSourceMap();
+                if ((Integer) sourceMap.get(Constants.BATCH_SEQUENCE_ID_KEY) == 1) {
+                    assertNull(sourceMap.get(Constants.BATCH_ID_KEY));
+                } else {
+                    assertEquals(1001L, sourceMap.get(Constants.BATCH_ID_KEY));
+                }
+            }
+
+            // Process lock permits are all given back
+            verify(channel, times(batchSize)).releaseProcessLock();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testParallelBatchDispatchError() throws Exception {
+        ExecutorService executor = Executors.newCachedThreadPool();
+
+        try {
+            Channel channel = mock(Channel.class);
+            when(channel.getProcessingThreads()).thenReturn(4);
+            when(channel.getChannelExecutor()).thenReturn(executor);
+            when(channel.getStorageSettings()).thenReturn(new StorageSettings());
+            when(channel.dispatchRawMessage(any(RawMessage.class), anyBoolean())).thenAnswer(new Answer<DispatchResult>() {
+                @Override
+                public DispatchResult answer(InvocationOnMock invocation) throws Throwable {
+                    RawMessage rawMessage = invocation.getArgument(0);
+                    int batchSequenceId = (Integer) rawMessage.getSourceMap().get(Constants.BATCH_SEQUENCE_ID_KEY);
+                    if (batchSequenceId == 10) {
+                        throw new ChannelException(false);
+                    }
+                    return new DispatchResult(1000 + batchSequenceId, null, null, false, true);
+                }
+            });
+
+            SourceConnector sourceConnector = createSourceConnector(channel, 50, 4);
+            final List<Integer> responseOrder = new ArrayList<Integer>();
+            final AtomicInteger errors = new AtomicInteger();
+
+            ResponseHandler responseHandler = new ResponseHandler() {
+                @Override
+                public void responseProcess(int batchSequenceId, boolean batchComplete) throws Exception {
+                    responseOrder.add(batchSequenceId);
+                }
+
+                @Override
+                public void responseError(ChannelException e) {
+                    errors.incrementAndGet();
+                }
+            };
+
+            boolean failed = false;
+            try {
+                sourceConnector.dispatchBatchMessage(new BatchRawMessage(null, new HashMap<String, Object>()), responseHandler);
+            } catch (BatchMessageException e) {
+                failed = true;
+            }
+
+            assertTrue(failed);
+            assertEquals(1, errors.get());
+            assertEquals(9, responseOrder.size());
+            assertFalse(responseOrder.contains(10));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private SourceConnector createSourceConnector(Channel channel, final int batchSize, int batchDispatchThreads) throws Exception {
+        SourceConnector sourceConnector = new SourceConnector();
+        sourceConnector.setChannel(channel);
+        sourceConnector.setCurrentState(DeployedState.STARTED);
+
+        SourceConnectorProperties sourceConnectorProperties = new SourceConnectorProperties();
+        sourceConnectorProperties.setBatchDispatchThreads(batchDispatchThreads);
+        ConnectorProperties connectorProperties = mock(ConnectorProperties.class, withSettings().extraInterfaces(SourceConnectorPropertiesInterface.class));
+        when(((SourceConnectorPropertiesInterface) connectorProperties).getSourceConnectorProperties()).thenReturn(sourceConnectorProperties);
+        sourceConnector.setConnectorProperties(connectorProperties);
+
+        BatchAdaptorFactory batchAdaptorFactory = mock(BatchAdaptorFactory.class);
+        when(batchAdaptorFactory.startBatch()).thenReturn(true);
+        when(batchAdaptorFactory.createBatchAdaptor(any(BatchRawMessage.class))).thenAnswer(new Answer<BatchAdaptor>() {
+            @Override
+            public BatchAdaptor answer(InvocationOnMock invocation) throws Throwable {
+                return new BatchAdaptor(null, null, null) {
+                    @Override
+                    protected String getNextMessage(int batchSequenceId) throws Exception {
+                        return batchSequenceId <= batchSize ? "message " + batchSequenceId : null;
+                    }
+
+                    @Override
+                    public void cleanup() throws BatchMessageException {}
+                };
+            }
+        });
+        sourceConnector.setBatchAdaptorFactory(batchAdaptorFactory);
+
+        return sourceConnector;
+    }
+}
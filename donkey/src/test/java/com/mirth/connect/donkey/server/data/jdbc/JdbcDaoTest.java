@@ -10,6 +10,7 @@
 package com.mirth.connect.donkey.server.data.jdbc;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
@@ -26,7 +27,9 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Calendar;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -36,17 +39,24 @@ import org.junit.Before;
 import org.junit.Test;
 
 import com.mirth.connect.donkey.model.channel.MetaDataColumn;
+import com.mirth.connect.donkey.model.message.ConnectorMessage;
+import com.mirth.connect.donkey.model.message.Status;
 import com.mirth.connect.donkey.model.message.attachment.Attachment;
 import com.mirth.connect.donkey.server.Donkey;
 import com.mirth.connect.donkey.server.channel.Channel;
 import com.mirth.connect.donkey.server.channel.Statistics;
 import com.mirth.connect.donkey.server.data.StatisticsUpdater;
+import com.mirth.connect.donkey.util.MapCodec;
+import com.mirth.connect.donkey.util.Serializer;
 import com.mirth.connect.donkey.util.SerializerProvider;
 
 public class JdbcDaoTest {
+    private static final String SERIALIZED_MAP = "<map/>";
+
     private JdbcDao dao;
     private Donkey donkey;
     private Connection connection;
+    private Serializer serializer;
 
     @Before
     public void before() {
@@ -387,12 +397,118 @@ public class JdbcDaoTest {
         verify(deleteStatement, times(0)).executeUpdate();
     }
 
+    @Test
+    public void testUpdateMapsOnlyStoresChangedMaps() throws Exception {
+        String channelId = "testchannel";
+        PreparedStatement storeStatement = mock(PreparedStatement.class);
+        when(storeStatement.executeUpdate()).thenReturn(1);
+        when(donkey.isCompactMessageMaps()).thenReturn(true);
+
+        JdbcDao dao = getDao(channelId, mock(ResultSet.class), mock(PreparedStatement.class), mock(PreparedStatement.class), mock(PreparedStatement.class), mock(PreparedStatement.class));
+        doReturn(storeStatement).when(dao).prepareStatement(eq("storeMessageContent"), eq(channelId));
+
+        ConnectorMessage connectorMessage = new ConnectorMessage(channelId, "test", 1, 1, "", Calendar.getInstance(), Status.SENT);
+        connectorMessage.getChannelMapContent().setPersisted(true);
+        connectorMessage.getChannelMap().put("key", "value");
+
+        dao.updateMaps(connectorMessage);
+        dao.updateMaps(connectorMessage);
+        verify(storeStatement, times(1)).executeUpdate();
+        verify(storeStatement, times(1)).setString(1, MapCodec.encode(null, connectorMessage.getChannelMapContent().getMap()));
+
+        dao.commit();
+        dao.updateMaps(connectorMessage);
+        verify(storeStatement, times(1)).executeUpdate();
+
+        connectorMessage.getChannelMap().put("key", "changed");
+        dao.updateMaps(connectorMessage);
+        verify(storeStatement, times(2)).executeUpdate();
+    }
+
+    @Test
+    public void testUpdateMapsStoresAgainAfterRollback() throws Exception {
+        String channelId = "testchannel";
+        PreparedStatement storeStatement = mock(PreparedStatement.class);
+        when(storeStatement.executeUpdate()).thenReturn(1);
+        when(donkey.isCompactMessageMaps()).thenReturn(true);
+
+        JdbcDao dao = getDao(channelId, mock(ResultSet.class), mock(PreparedStatement.class), mock(PreparedStatement.class), mock(PreparedStatement.class), mock(PreparedStatement.class));
+        doReturn(storeStatement).when(dao).prepareStatement(eq("storeMessageContent"), eq(channelId));
+
+        ConnectorMessage connectorMessage = new ConnectorMessage(channelId, "test", 1, 1, "", Calendar.getInstance(), Status.SENT);
+        connectorMessage.getChannelMapContent().setPersisted(true);
+        connectorMessage.getChannelMap().put("key", "value");
+
+        dao.updateMaps(connectorMessage);
+        verify(storeStatement, times(1)).executeUpdate();
+
+        // The rolled back write never happened, so the same map has to be written again
+        dao.rollback();
+        dao.updateMaps(connectorMessage);
+        verify(storeStatement, times(2)).executeUpdate();
+        assertNull(connectorMessage.getChannelMapContent().getStoredChanges());
+
+        dao.commit();
+        assertEquals(Integer.valueOf(connectorMessage.getChannelMapContent().getChanges()), connectorMessage.getChannelMapContent().getStoredChanges());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testUpdateMapsSkipsSerializingUnchangedMaps() throws Exception {
+        String channelId = "testchannel";
+        PreparedStatement storeStatement = mock(PreparedStatement.class);
+        when(storeStatement.executeUpdate()).thenReturn(1);
+
+        JdbcDao dao = getDao(channelId, mock(ResultSet.class), mock(PreparedStatement.class), mock(PreparedStatement.class), mock(PreparedStatement.class), mock(PreparedStatement.class));
+        doReturn(storeStatement).when(dao).prepareStatement(eq("storeMessageContent"), eq(channelId));
+
+        ConnectorMessage connectorMessage = new ConnectorMessage(channelId, "test", 1, 1, "", Calendar.getInstance(), Status.SENT);
+        connectorMessage.getChannelMapContent().setPersisted(true);
+        connectorMessage.getChannelMap().put("key", "value");
+        connectorMessage.getChannelMap().put("list", new ArrayList<String>());
+
+        dao.updateMaps(connectorMessage);
+        dao.commit();
+        verify(serializer, times(1)).serialize(any());
+
+        // Reading a string doesn't change the map, so it isn't serialized again
+        assertEquals("value", connectorMessage.getChannelMap().get("key"));
+        dao.updateMaps(connectorMessage);
+        verify(serializer, times(1)).serialize(any());
+        verify(storeStatement, times(1)).executeUpdate();
+
+        // A value that can be changed in place counts as a change once it has been read
+        ((List<String>) connectorMessage.getChannelMap().get("list")).add("item");
+        dao.updateMaps(connectorMessage);
+        verify(serializer, times(2)).serialize(any());
+        verify(storeStatement, times(2)).executeUpdate();
+    }
+
+    @Test
+    public void testUpdateMapsUsesXmlByDefault() throws Exception {
+        String channelId = "testchannel";
+        PreparedStatement storeStatement = mock(PreparedStatement.class);
+        when(storeStatement.executeUpdate()).thenReturn(1);
+
+        JdbcDao dao = getDao(channelId, mock(ResultSet.class), mock(PreparedStatement.class), mock(PreparedStatement.class), mock(PreparedStatement.class), mock(PreparedStatement.class));
+        doReturn(storeStatement).when(dao).prepareStatement(eq("storeMessageContent"), eq(channelId));
+
+        ConnectorMessage connectorMessage = new ConnectorMessage(channelId, "test", 1, 1, "", Calendar.getInstance(), Status.SENT);
+        connectorMessage.getChannelMapContent().setPersisted(true);
+        connectorMessage.getChannelMap().put("key", "value");
+
+        dao.updateMaps(connectorMessage);
+        verify(storeStatement, times(1)).setString(1, SERIALIZED_MAP);
+    }
+
     private JdbcDao getDao(String channelId, ResultSet segmentCountResult, PreparedStatement segmentCountStatement, PreparedStatement updateStatement, PreparedStatement insertStatement, PreparedStatement deleteStatement) throws Exception {
-        Donkey donkey = mock(Donkey.class);
         Connection connection = mock(Connection.class);
         QuerySource querySource = mock(QuerySource.class);
         PreparedStatementSource statementSource = mock(PreparedStatementSource.class);
+        serializer = mock(Serializer.class);
+        when(serializer.serialize(any())).thenReturn(SERIALIZED_MAP);
         SerializerProvider serializerProvider = mock(SerializerProvider.class);
+        when(serializerProvider.getSerializer(any())).thenReturn(serializer);
         boolean encryptMessageContent = false;
         boolean encryptAttachments = false;
         boolean encryptCustomMetaData = false;
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.donkey.server.data.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.mirth.connect.donkey.model.DonkeyDaoException;
+import com.mirth.connect.donkey.model.channel.LatencyStatistics;
+import com.mirth.connect.donkey.model.message.Message;
+import com.mirth.connect.donkey.server.data.DonkeyDao;
+import com.mirth.connect.donkey.server.data.DonkeyDaoFactory;
+
+public class MetricsDaoFactoryTest {
+
+    @Test
+    public void testDisabled() {
+        DonkeyDao delegateDao = mock(DonkeyDao.class);
+        DonkeyDaoFactory delegateFactory = mock(DonkeyDaoFactory.class);
+        when(delegateFactory.getDao()).thenReturn(delegateDao);
+
+        DaoMetrics metrics = new DaoMetrics();
+        DonkeyDao dao = new MetricsDaoFactory(delegateFactory, metrics, "channel").getDao();
+
+        assertSame(delegateDao, dao);
+        dao.commit();
+        assertTrue(metrics.getStatistics(null).isEmpty());
+    }
+
+    @Test
+    public void testEnabled() {
+        DonkeyDao delegateDao = mock(DonkeyDao.class);
+        DonkeyDaoFactory delegateFactory = mock(DonkeyDaoFactory.class);
+        when(delegateFactory.getDao()).thenReturn(delegateDao);
+        when(delegateDao.getMaxMessageId("channel")).thenReturn(5L);
+        doThrow(new DonkeyDaoException("failed")).when(delegateDao).rollback();
+
+        DaoMetrics metrics = new DaoMetrics();
+        metrics.setEnabled(true);
+        DonkeyDao dao = new MetricsDaoFactory(delegateFactory, metrics, "channel").getDao();
+
+        Message message = new Message();
+        dao.insertMessage(message);
+        dao.insertMessage(message);
+        assertEquals(5L, dao.getMaxMessageId("channel"));
+        dao.commit(false);
+
+        // Failed operations are timed too
+        try {
+            dao.rollback();
+            fail();
+        } catch (DonkeyDaoException e) {
+        }
+
+        verify(delegateDao).commit(false);
+
+        List<LatencyStatistics> statistics = metrics.getStatistics(null);
+        assertEquals(4, statistics.size());
+        assertEquals("commitNonDurable", statistics.get(0).getName());
+        assertEquals("getMaxMessageId", statistics.get(1).getName());
+        assertEquals("insertMessage", statistics.get(2).getName());
+        assertEquals(2, statistics.get(2).getCount());
+        assertEquals("rollback", statistics.get(3).getName());
+        assertEquals("channel", statistics.get(3).getChannelId());
+
+        assertTrue(metrics.getStatistics(Arrays.asList("other")).isEmpty());
+        metrics.reset("channel");
+        assertTrue(metrics.getStatistics(null).isEmpty());
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.donkey.server.queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.mirth.connect.donkey.server.Donkey;
+import com.mirth.connect.donkey.server.channel.Channel;
+import com.mirth.connect.donkey.server.event.EventDispatcher;
+
+public class QueueSizeCheckpointerTest {
+
+    private static final String CHANNEL_ID = "0f4f8cc3-3d1c-4d6a-9f0c-0d7d2bd2f3d1";
+    private static final String OTHER_CHANNEL_ID = "5b0e4c0e-8f3a-4f57-b1d4-6c1f1a2e9c47";
+    private static final String EMPTY_CHANNEL_ID = "a9d2f6b1-2c7e-4e8a-9b3f-4d5e6f7a8b9c";
+
+    @BeforeClass
+    public static void setupControllers() throws Exception {
+        Donkey donkey = mock(Donkey.class);
+        when(donkey.getEventDispatcher()).thenReturn(mock(EventDispatcher.class));
+        when(donkey.getDeployedChannels()).thenReturn(new ConcurrentHashMap<String, Channel>());
+
+        Injector injector = Guice.createInjector(new AbstractModule() {
+            @Override
+            protected void configure() {
+                requestStaticInjection(Donkey.class);
+                bind(Donkey.class).toInstance(donkey);
+            }
+        });
+        injector.getInstance(Donkey.class);
+
+        // Make sure injection succeeded
+        assertTrue(donkey == Donkey.getInstance());
+    }
+
+    @Test
+    public void testCheckpointAndRestore() throws Exception {
+        File snapshotFile = File.createTempFile("queuesizes", ".properties");
+        snapshotFile.deleteOnExit();
+
+        // Record the sizes of an undeployed channel and write them out at shutdown
+        Channel channel = mock(Channel.class);
+        SourceQueue sourceQueue = createSourceQueue(CHANNEL_ID, 7);
+        sourceQueue.updateSize();
+        when(channel.getSourceQueue()).thenReturn(sourceQueue);
+
+        QueueSizeCheckpointer checkpointer = new QueueSizeCheckpointer(snapshotFile, "server1", 1000);
+        checkpointer.record(channel);
+        checkpointer.start();
+        checkpointer.shutdown();
+
+        // A new queue should take the snapshot size without counting, then reconcile in the background
+        QueueSizeCheckpointer restored = new QueueSizeCheckpointer(snapshotFile, "server1", 1000);
+        restored.load();
+
+        ConnectorMessageQueueDataSource dataSource = createDataSource(CHANNEL_ID, 5);
+        SourceQueue queue = new SourceQueue();
+        queue.setDataSource(dataSource);
+
+        assertTrue(restored.restoreSize(queue));
+        verify(dataSource, timeout(5000)).getSize();
+        assertEquals(5, queue.size());
+        assertFalse(queue.isReconcilePending());
+
+        // Each snapshot is only used once
+        assertFalse(restored.restoreSize(queue));
+        restored.shutdown();
+
+        // Snapshots written by another server are ignored
+        QueueSizeCheckpointer otherServer = new QueueSizeCheckpointer(snapshotFile, "server2", 1000);
+        otherServer.load();
+        assertFalse(otherServer.restoreSize(queue));
+        otherServer.shutdown();
+    }
+
+    @Test
+    public void testPeriodicCheckpoint() throws Exception {
+        File snapshotFile = File.createTempFile("queuesizes", ".properties");
+        snapshotFile.deleteOnExit();
+
+        Channel undeployedChannel = mock(Channel.class);
+        SourceQueue undeployedQueue = createSourceQueue(CHANNEL_ID, 7);
+        undeployedQueue.updateSize();
+        when(undeployedChannel.getSourceQueue()).thenReturn(undeployedQueue);
+
+        Channel fullChannel = mock(Channel.class);
+        SourceQueue fullQueue = createSourceQueue(OTHER_CHANNEL_ID, 3);
+        fullQueue.updateSize();
+        when(fullChannel.getSourceQueue()).thenReturn(fullQueue);
+
+        Channel emptyChannel = mock(Channel.class);
+        SourceQueue emptyQueue = createSourceQueue(EMPTY_CHANNEL_ID, 0);
+        emptyQueue.updateSize();
+        when(emptyChannel.getSourceQueue()).thenReturn(emptyQueue);
+
+        Map<String, Channel> deployedChannels = Donkey.getInstance().getDeployedChannels();
+        deployedChannels.put(OTHER_CHANNEL_ID, fullChannel);
+        deployedChannels.put(EMPTY_CHANNEL_ID, emptyChannel);
+
+        try {
+            QueueSizeCheckpointer checkpointer = new QueueSizeCheckpointer(snapshotFile, "server1", 1000);
+            checkpointer.record(undeployedChannel);
+            checkpointer.checkpoint();
+            checkpointer.shutdown();
+        } finally {
+            deployedChannels.clear();
+        }
+
+        QueueSizeCheckpointer restored = new QueueSizeCheckpointer(snapshotFile, "server1", 1000);
+        restored.load();
+
+        // Channels that are no longer deployed are dropped
+        assertFalse(restored.restoreSize(createSourceQueue(CHANNEL_ID, 7)));
+
+        // A periodic snapshot may be stale, so an empty queue is counted instead of restored
+        assertFalse(restored.restoreSize(createSourceQueue(EMPTY_CHANNEL_ID, 2)));
+
+        SourceQueue queue = createSourceQueue(OTHER_CHANNEL_ID, 3);
+        assertTrue(restored.restoreSize(queue));
+        assertEquals(Integer.valueOf(3), queue.getSnapshotSize());
+        restored.shutdown();
+    }
+
+    @Test
+    public void testSnapshotSizeKeptUntilReconciled() throws Exception {
+        ConnectorMessageQueueDataSource dataSource = createDataSource(CHANNEL_ID, 3);
+        SourceQueue queue = new SourceQueue();
+        queue.setDataSource(dataSource);
+
+        queue.setSnapshotSize(4);
+        queue.invalidate(true, true);
+        assertEquals(4, queue.size());
+        verify(dataSource, never()).getSize();
+
+        queue.reconcileSize();
+        assertEquals(3, queue.size());
+
+        // Once reconciled, invalidating goes back to counting
+        queue.invalidate(true, true);
+        verify(dataSource, times(2)).getSize();
+        assertEquals(Integer.valueOf(3), queue.getSnapshotSize());
+    }
+
+    private SourceQueue createSourceQueue(String channelId, int size) {
+        SourceQueue queue = new SourceQueue();
+        queue.setDataSource(createDataSource(channelId, size));
+        return queue;
+    }
+
+    private ConnectorMessageQueueDataSource createDataSource(String channelId, int size) {
+        ConnectorMessageQueueDataSource dataSource = mock(ConnectorMessageQueueDataSource.class);
+        when(dataSource.getChannelId()).thenReturn(channelId);
+        when(dataSource.getMetaDataId()).thenReturn(0);
+        when(dataSource.getSize()).thenReturn(size);
+        return dataSource;
+    }
+}
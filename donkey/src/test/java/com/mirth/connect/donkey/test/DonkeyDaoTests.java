@@ -1743,7 +1743,7 @@ public class DonkeyDaoTests {
 
             try {
                 dao = daoFactory.getDao();
-                databaseMessages = dao.getUnfinishedMessages(channel.getChannelId(), channel.getServerId(), TEST_SIZE, 0L);
+                databaseMessages = dao.getUnfinishedMessages(channel.getChannelId(), channel.getServerId(), TEST_SIZE, 0L, Long.MAX_VALUE);
             } finally {
                 TestUtils.close(dao);
             }
@@ -35,6 +35,7 @@ import com.mirth.connect.donkey.test.util.TestDataType;
 import com.mirth.connect.donkey.test.util.TestUtils;
 import com.mirth.connect.donkey.test.util.TestUtils.MessageStorageMode;
 import com.mirth.connect.donkey.util.ActionTimer;
+import com.mirth.connect.donkey.util.ContentCompressionUtil;
 
 public class PerformanceTests {
     private final static String TEST_MESSAGE = "src/test/java/com/mirth/connect/donkey/test/hl7/large.hl7";
@@ -85,6 +86,19 @@ public class PerformanceTests {
         testStorageMode(MessageStorageMode.PRODUCTION);
     }
 
+    @Test
+    public final void testProductionCompressed() throws Exception {
+        String compressed = ContentCompressionUtil.compress(testMessage, true);
+        System.out.println("Compressed content size: " + compressed.length() + " / " + testMessage.length() + " characters");
+
+        Donkey.getInstance().getDaoFactory().setCompressMessageContent(true);
+        try {
+            testStorageMode(MessageStorageMode.PRODUCTION);
+        } finally {
+            Donkey.getInstance().getDaoFactory().setCompressMessageContent(false);
+        }
+    }
+
     @Test
     public final void testRaw() throws Exception {
         testStorageMode(MessageStorageMode.RAW);
@@ -83,6 +83,7 @@ import com.mirth.connect.donkey.server.data.passthru.PassthruDaoFactory;
 import com.mirth.connect.donkey.server.event.EventDispatcher;
 import com.mirth.connect.donkey.server.queue.ConnectorMessageQueueDataSource;
 import com.mirth.connect.donkey.server.queue.DestinationQueue;
+import com.mirth.connect.donkey.util.MapUtil;
 import com.mirth.connect.donkey.util.ResourceUtil;
 import com.mirth.connect.donkey.util.Serializer;
 import com.mirth.connect.donkey.util.SerializerProvider;
@@ -1042,9 +1043,8 @@ public class TestUtils {
         return new MapContent(deserializeMap(content.getContent()), true);
     }
 
-    @SuppressWarnings("unchecked")
     private static Map<String, Object> deserializeMap(String serializedMap) {
-        return Donkey.getInstance().getSerializer().deserialize(serializedMap, Map.class);
+        return MapUtil.deserializeMap(Donkey.getInstance().getSerializer(), serializedMap);
     }
 
     public static String getErrorFromMessageContent(MessageContent content) {
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.connectors.dimse;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.dcm4che2.tool.dcmsnd.MirthDcmSnd;
+
+import com.mirth.connect.server.util.KeyedConnectionPool;
+
+/**
+ * Keeps the associations of a DICOM Sender open between messages, so that each C-STORE doesn't
+ * have to wait for a new association to be negotiated and released. Associations are only reused
+ * for the same remote AE, address and TLS settings.
+ */
+public class DICOMAssociationPool extends KeyedConnectionPool<MirthDcmSnd> {
+
+    private Logger logger = LogManager.getLogger(getClass());
+
+    /**
+     * @param idleTimeout
+     *            The number of milliseconds an association may stay open without being used.
+     * @param maxOperations
+     *            The maximum number of messages to send on one association, or 0 for no limit.
+     * @param name
+     *            Used to name the thread that closes idle associations.
+     */
+    public DICOMAssociationPool(long idleTimeout, int maxOperations, String name) {
+        super(idleTimeout, maxOperations, "DICOM Association Reaper on " + name);
+    }
+
+    /**
+     * Gives back an association after a message has been sent on it. Associations that the remote
+     * side has already released are closed instead of being pooled.
+     */
+    @Override
+    public void release(String key, MirthDcmSnd dcmSnd) {
+        if (dcmSnd.isOpen()) {
+            super.release(key, dcmSnd);
+        } else {
+            discard(dcmSnd);
+        }
+    }
+
+    @Override
+    protected boolean isConnected(MirthDcmSnd dcmSnd) {
+        return dcmSnd.isOpen();
+    }
+
+    @Override
+    protected void closeConnection(MirthDcmSnd dcmSnd) {
+        try {
+            if (dcmSnd.isOpen()) {
+                dcmSnd.close();
+            }
+        } catch (Throwable t) {
+            logger.debug("Error releasing DICOM association.", t);
+        } finally {
+            dcmSnd.stop();
+        }
+    }
+}
@@ -12,6 +12,7 @@ package com.mirth.connect.connectors.dimse;
 import java.io.File;
 import java.util.Iterator;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.math.NumberUtils;
 import org.apache.logging.log4j.LogManager;
@@ -53,6 +54,7 @@ public class DICOMDispatcher extends DestinationConnector implements IDICOMDispa
     private ConfigurationController configurationController = ControllerFactory.getFactory().createConfigurationController();
     private TemplateValueReplacer replacer = new TemplateValueReplacer();
     protected DICOMConfiguration configuration = null;
+    private DICOMAssociationPool associationPool = null;
 
     @Override
     public void onDeploy() throws ConnectorTaskException {
@@ -79,13 +81,36 @@ public class DICOMDispatcher extends DestinationConnector implements IDICOMDispa
     public void onUndeploy() throws ConnectorTaskException {}
 
     @Override
-    public void onStart() throws ConnectorTaskException {}
+    public void onStart() throws ConnectorTaskException {
+        // Channels saved before these settings existed don't have them, so they keep the pool off
+        int idleTimeout = NumberUtils.toInt(connectorProperties.getAssociationIdleTimeout(), 0);
+
+        if (idleTimeout > 0) {
+            int maxOperations = NumberUtils.toInt(connectorProperties.getAssociationMaxOperations(), 0);
+            associationPool = new DICOMAssociationPool(idleTimeout * 1000L, maxOperations, getChannel().getName() + " (" + getChannelId() + ") > " + getDestinationName());
+        }
+    }
 
     @Override
-    public void onStop() throws ConnectorTaskException {}
+    public void onStop() throws ConnectorTaskException {
+        closeAssociationPool();
+    }
 
     @Override
-    public void onHalt() throws ConnectorTaskException {}
+    public void onHalt() throws ConnectorTaskException {
+        closeAssociationPool();
+    }
+
+    void setAssociationPool(DICOMAssociationPool associationPool) {
+        this.associationPool = associationPool;
+    }
+
+    private void closeAssociationPool() {
+        if (associationPool != null) {
+            associationPool.close();
+            associationPool = null;
+        }
+    }
 
     @Override
     public void replaceConnectorProperties(ConnectorProperties connectorProperties, ConnectorMessage connectorMessage) {
@@ -127,114 +152,45 @@ public class DICOMDispatcher extends DestinationConnector implements IDICOMDispa
         Status responseStatus = Status.QUEUED;
 
         File tempFile = null;
-        MirthDcmSnd dcmSnd = getDcmSnd(configuration);
+        MirthDcmSnd dcmSnd = null;
+        String associationKey = null;
+        boolean reuseAssociation = false;
 
         try {
             tempFile = File.createTempFile("temp", "tmp");
 
             FileUtils.writeByteArrayToFile(tempFile, getAttachmentHandlerProvider().reAttachMessage(dicomDispatcherProperties.getTemplate(), connectorMessage, null, true, dicomDispatcherProperties.getDestinationConnectorProperties().isReattachAttachments()));
 
-            dcmSnd.setCalledAET("DCMRCV");
-            dcmSnd.setRemoteHost(dicomDispatcherProperties.getHost());
-            dcmSnd.setRemotePort(NumberUtils.toInt(dicomDispatcherProperties.getPort()));
-
-            if ((dicomDispatcherProperties.getApplicationEntity() != null) && !dicomDispatcherProperties.getApplicationEntity().equals("")) {
-                dcmSnd.setCalledAET(dicomDispatcherProperties.getApplicationEntity());
-            }
-
-            if ((dicomDispatcherProperties.getLocalApplicationEntity() != null) && !dicomDispatcherProperties.getLocalApplicationEntity().equals("")) {
-                dcmSnd.setCalling(dicomDispatcherProperties.getLocalApplicationEntity());
+            boolean pooled = false;
+            if (associationPool != null && isPoolable(dicomDispatcherProperties)) {
+                associationKey = getAssociationKey(dicomDispatcherProperties);
+                dcmSnd = associationPool.borrow(associationKey);
+                pooled = dcmSnd != null;
             }
 
-            if ((dicomDispatcherProperties.getLocalHost() != null) && !dicomDispatcherProperties.getLocalHost().equals("")) {
-                dcmSnd.setLocalHost(dicomDispatcherProperties.getLocalHost());
-                dcmSnd.setLocalPort(NumberUtils.toInt(dicomDispatcherProperties.getLocalPort()));
+            if (dcmSnd == null) {
+                dcmSnd = createDcmSnd(dicomDispatcherProperties);
             }
 
-            dcmSnd.addFile(tempFile);
-
-            //TODO Allow variables
-            int value = NumberUtils.toInt(dicomDispatcherProperties.getAcceptTo());
-            if (value != 5)
-                dcmSnd.setAcceptTimeout(value);
-
-            value = NumberUtils.toInt(dicomDispatcherProperties.getAsync());
-            if (value > 0)
-                dcmSnd.setMaxOpsInvoked(value);
-
-            value = NumberUtils.toInt(dicomDispatcherProperties.getBufSize());
-            if (value != 1)
-                dcmSnd.setTranscoderBufferSize(value);
-
-            value = NumberUtils.toInt(dicomDispatcherProperties.getConnectTo());
-            if (value > 0)
-                dcmSnd.setConnectTimeout(value);
-            if (dicomDispatcherProperties.getPriority().equals("med"))
-                dcmSnd.setPriority(0);
-            else if (dicomDispatcherProperties.getPriority().equals("low"))
-                dcmSnd.setPriority(1);
-            else if (dicomDispatcherProperties.getPriority().equals("high"))
-                dcmSnd.setPriority(2);
-            if (dicomDispatcherProperties.getUsername() != null && !dicomDispatcherProperties.getUsername().equals("")) {
-                String username = dicomDispatcherProperties.getUsername();
-                UserIdentity userId;
-                if (dicomDispatcherProperties.getPasscode() != null && !dicomDispatcherProperties.getPasscode().equals("")) {
-                    String passcode = dicomDispatcherProperties.getPasscode();
-                    userId = new UserIdentity.UsernamePasscode(username, passcode.toCharArray());
-                } else {
-                    userId = new UserIdentity.Username(username);
+            try {
+                prepareFile(dcmSnd, tempFile);
+            } catch (Exception e) {
+                if (!pooled) {
+                    throw e;
                 }
-                userId.setPositiveResponseRequested(dicomDispatcherProperties.isUidnegrsp());
-                dcmSnd.setUserIdentity(userId);
-            }
-            dcmSnd.setPackPDV(dicomDispatcherProperties.isPdv1());
-
-            value = NumberUtils.toInt(dicomDispatcherProperties.getRcvpdulen());
-            if (value != 16)
-                dcmSnd.setMaxPDULengthReceive(value);
-
-            value = NumberUtils.toInt(dicomDispatcherProperties.getReaper());
-            if (value != 10)
-                dcmSnd.setAssociationReaperPeriod(value);
 
-            value = NumberUtils.toInt(dicomDispatcherProperties.getReleaseTo());
-            if (value != 5)
-                dcmSnd.setReleaseTimeout(value);
-
-            value = NumberUtils.toInt(dicomDispatcherProperties.getRspTo());
-            if (value != 60)
-                dcmSnd.setDimseRspTimeout(value);
-
-            value = NumberUtils.toInt(dicomDispatcherProperties.getShutdownDelay());
-            if (value != 1000)
-                dcmSnd.setShutdownDelay(value);
-
-            value = NumberUtils.toInt(dicomDispatcherProperties.getSndpdulen());
-            if (value != 16)
-                dcmSnd.setMaxPDULengthSend(value);
-
-            value = NumberUtils.toInt(dicomDispatcherProperties.getSoCloseDelay());
-            if (value != 50)
-                dcmSnd.setSocketCloseDelay(value);
-
-            value = NumberUtils.toInt(dicomDispatcherProperties.getSorcvbuf());
-            if (value > 0)
-                dcmSnd.setReceiveBufferSize(value);
-
-            value = NumberUtils.toInt(dicomDispatcherProperties.getSosndbuf());
-            if (value > 0)
-                dcmSnd.setSendBufferSize(value);
-
-            dcmSnd.setStorageCommitment(dicomDispatcherProperties.isStgcmt());
-            dcmSnd.setTcpNoDelay(!dicomDispatcherProperties.isTcpDelay());
-
-            configuration.configureDcmSnd(dcmSnd, this, dicomDispatcherProperties);
-
-            dcmSnd.setOfferDefaultTransferSyntaxInSeparatePresentationContext(dicomDispatcherProperties.isTs1());
-            dcmSnd.configureTransferCapability();
-            dcmSnd.start();
+                // Nothing has been written on the pooled association yet, so it is safe to use a new one
+                logger.debug("Error renegotiating pooled DICOM association, opening a new association.", e);
+                associationPool.discard(dcmSnd);
+                dcmSnd = null;
+                dcmSnd = createDcmSnd(dicomDispatcherProperties);
+                prepareFile(dcmSnd, tempFile);
+            }
 
-            dcmSnd.open();
+            /*
+             * Once the C-STORE has been written the remote side may already have stored the
+             * object, so it is never sent again here, even if no response comes back.
+             */
             CommandDataDimseRSPHandler rspHandler = new CommandDataDimseRSPHandler();
             dcmSnd.send(rspHandler);
 
@@ -257,11 +213,17 @@ public class DICOMDispatcher extends DestinationConnector implements IDICOMDispa
                 }
             }
 
-            dcmSnd.close();
+            if (associationKey == null) {
+                dcmSnd.close();
+            }
 
             int status = rspHandler.getStatus();
 
-            if (status == 0) {
+            if (associationKey != null && !rspHandler.hasResponse()) {
+                // Without a response it isn't known whether the pooled association failed before or after the object was stored
+                responseStatusMessage = "No response received from DICOM server. The message was not sent again, since the server may already have stored it.";
+                responseStatus = Status.QUEUED;
+            } else if (status == 0) {
                 responseStatusMessage = "DICOM message successfully sent";
                 responseStatus = Status.SENT;
             } else if (status == 0xB000 || status == 0xB006 || status == 0xB007) {
@@ -280,12 +242,22 @@ public class DICOMDispatcher extends DestinationConnector implements IDICOMDispa
             }
 
             responseData = rspHandler.getCommandData();
+            // Only associations that got a response are reused, since otherwise they may have failed
+            reuseAssociation = associationKey != null && rspHandler.hasResponse();
         } catch (Exception e) {
             responseStatusMessage = ErrorMessageBuilder.buildErrorResponse(e.getMessage(), e);
             responseError = ErrorMessageBuilder.buildErrorMessage(connectorProperties.getName(), e.getMessage(), null);
             eventController.dispatchEvent(new ErrorEvent(getChannelId(), getMetaDataId(), connectorMessage.getMessageId(), ErrorEventType.DESTINATION_CONNECTOR, getDestinationName(), connectorProperties.getName(), e.getMessage(), null));
         } finally {
-            dcmSnd.stop();
+            if (dcmSnd != null) {
+                if (reuseAssociation) {
+                    associationPool.release(associationKey, dcmSnd);
+                } else if (associationKey != null) {
+                    associationPool.discard(dcmSnd);
+                } else {
+                    dcmSnd.stop();
+                }
+            }
 
             if (tempFile != null) {
                 tempFile.delete();
@@ -297,6 +269,156 @@ public class DICOMDispatcher extends DestinationConnector implements IDICOMDispa
         return new Response(responseStatus, responseData, responseStatusMessage, responseError);
     }
 
+    private MirthDcmSnd createDcmSnd(DICOMDispatcherProperties properties) throws Exception {
+        MirthDcmSnd dcmSnd = getDcmSnd(configuration);
+        configureDcmSnd(dcmSnd, properties);
+        dcmSnd.start();
+        return dcmSnd;
+    }
+
+    private void prepareFile(MirthDcmSnd dcmSnd, File file) throws Exception {
+        dcmSnd.clearFiles();
+        dcmSnd.addFile(file);
+        // Only negotiates a new association if the open one doesn't accept this SOP class and transfer syntax
+        dcmSnd.openIfNeeded();
+    }
+
+    private void configureDcmSnd(MirthDcmSnd dcmSnd, DICOMDispatcherProperties properties) throws Exception {
+        dcmSnd.setCalledAET("DCMRCV");
+        dcmSnd.setRemoteHost(properties.getHost());
+        dcmSnd.setRemotePort(NumberUtils.toInt(properties.getPort()));
+
+        if ((properties.getApplicationEntity() != null) && !properties.getApplicationEntity().equals("")) {
+            dcmSnd.setCalledAET(properties.getApplicationEntity());
+        }
+
+        if ((properties.getLocalApplicationEntity() != null) && !properties.getLocalApplicationEntity().equals("")) {
+            dcmSnd.setCalling(properties.getLocalApplicationEntity());
+        }
+
+        if ((properties.getLocalHost() != null) && !properties.getLocalHost().equals("")) {
+            dcmSnd.setLocalHost(properties.getLocalHost());
+            dcmSnd.setLocalPort(NumberUtils.toInt(properties.getLocalPort()));
+        }
+
+        //TODO Allow variables
+        int value = NumberUtils.toInt(properties.getAcceptTo());
+        if (value != 5)
+            dcmSnd.setAcceptTimeout(value);
+
+        value = NumberUtils.toInt(properties.getAsync());
+        if (value > 0)
+            dcmSnd.setMaxOpsInvoked(value);
+
+        value = NumberUtils.toInt(properties.getBufSize());
+        if (value != 1)
+            dcmSnd.setTranscoderBufferSize(value);
+
+        value = NumberUtils.toInt(properties.getConnectTo());
+        if (value > 0)
+            dcmSnd.setConnectTimeout(value);
+        if (properties.getPriority().equals("med"))
+            dcmSnd.setPriority(0);
+        else if (properties.getPriority().equals("low"))
+            dcmSnd.setPriority(1);
+        else if (properties.getPriority().equals("high"))
+            dcmSnd.setPriority(2);
+        if (properties.getUsername() != null && !properties.getUsername().equals("")) {
+            String username = properties.getUsername();
+            UserIdentity userId;
+            if (properties.getPasscode() != null && !properties.getPasscode().equals("")) {
+                String passcode = properties.getPasscode();
+                userId = new UserIdentity.UsernamePasscode(username, passcode.toCharArray());
+            } else {
+                userId = new UserIdentity.Username(username);
+            }
+            userId.setPositiveResponseRequested(properties.isUidnegrsp());
+            dcmSnd.setUserIdentity(userId);
+        }
+        dcmSnd.setPackPDV(properties.isPdv1());
+
+        value = NumberUtils.toInt(properties.getRcvpdulen());
+        if (value != 16)
+            dcmSnd.setMaxPDULengthReceive(value);
+
+        value = NumberUtils.toInt(properties.getReaper());
+        if (value != 10)
+            dcmSnd.setAssociationReaperPeriod(value);
+
+        value = NumberUtils.toInt(properties.getReleaseTo());
+        if (value != 5)
+            dcmSnd.setReleaseTimeout(value);
+
+        value = NumberUtils.toInt(properties.getRspTo());
+        if (value != 60)
+            dcmSnd.setDimseRspTimeout(value);
+
+        value = NumberUtils.toInt(properties.getShutdownDelay());
+        if (value != 1000)
+            dcmSnd.setShutdownDelay(value);
+
+        value = NumberUtils.toInt(properties.getSndpdulen());
+        if (value != 16)
+            dcmSnd.setMaxPDULengthSend(value);
+
+        value = NumberUtils.toInt(properties.getSoCloseDelay());
+        if (value != 50)
+            dcmSnd.setSocketCloseDelay(value);
+
+        value = NumberUtils.toInt(properties.getSorcvbuf());
+        if (value > 0)
+            dcmSnd.setReceiveBufferSize(value);
+
+        value = NumberUtils.toInt(properties.getSosndbuf());
+        if (value > 0)
+            dcmSnd.setSendBufferSize(value);
+
+        dcmSnd.setStorageCommitment(properties.isStgcmt());
+        dcmSnd.setTcpNoDelay(!properties.isTcpDelay());
+
+        configuration.configureDcmSnd(dcmSnd, this, properties);
+
+        dcmSnd.setOfferDefaultTransferSyntaxInSeparatePresentationContext(properties.isTs1());
+    }
+
+    /*
+     * Storage commitment results are tied to the association they were requested on, and a local
+     * port means a listener is bound for each sender, so those associations aren't pooled.
+     */
+    private boolean isPoolable(DICOMDispatcherProperties properties) {
+        boolean listening = org.apache.commons.lang3.StringUtils.isNotEmpty(properties.getLocalHost()) && NumberUtils.toInt(properties.getLocalPort()) > 0;
+        return !properties.isStgcmt() && !listening;
+    }
+
+    /*
+     * Associations are only reused for messages with the same connection settings, after
+     * replacement. The presentation contexts aren't part of the key, since an association is
+     * renegotiated when a message needs a SOP class or transfer syntax that it didn't accept.
+     */
+    private String getAssociationKey(DICOMDispatcherProperties properties) {
+        StringBuilder key = new StringBuilder();
+
+        for (Object value : new Object[] { properties.getHost(), properties.getPort(),
+                properties.getApplicationEntity(), properties.getLocalHost(),
+                properties.getLocalPort(), properties.getLocalApplicationEntity(),
+                properties.getUsername(), properties.getPasscode(), properties.isUidnegrsp(),
+                properties.getAcceptTo(), properties.getAsync(), properties.getBufSize(),
+                properties.getConnectTo(), properties.getPriority(), properties.isPdv1(),
+                properties.getRcvpdulen(), properties.getReaper(), properties.getReleaseTo(),
+                properties.getRspTo(), properties.getShutdownDelay(),
+                properties.getSndpdulen(), properties.getSoCloseDelay(),
+                properties.getSorcvbuf(), properties.getSosndbuf(), properties.isTcpDelay(),
+                properties.isTs1(), properties.getTls(), properties.isNoClientAuth(),
+                properties.isNossl2(), properties.getKeyStore(), properties.getKeyStorePW(),
+                properties.getKeyPW(), properties.getTrustStore(),
+                properties.getTrustStorePW() }) {
+            key.append(value).append('\u0000');
+        }
+
+        // Hashed so that passwords aren't kept in the pool
+        return DigestUtils.sha256Hex(key.toString());
+    }
+
     protected MirthDcmSnd getDcmSnd(DICOMConfiguration configuration) {
         return new MirthDcmSnd(configuration);
     }
@@ -310,6 +432,10 @@ public class DICOMDispatcher extends DestinationConnector implements IDICOMDispa
             this.cmd = cmd;
         }
 
+        public boolean hasResponse() {
+            return cmd != null;
+        }
+
         public int getStatus() {
             if (cmd != null) {
                 return cmd.getInt(Tag.Status);
@@ -53,6 +53,8 @@ public class DICOMDispatcherProperties extends ConnectorProperties implements De
     private boolean ts1;
     private boolean uidnegrsp;
     private String username;
+    private String associationIdleTimeout;
+    private String associationMaxOperations;
 
     private String keyPW;
     private String keyStore;
@@ -91,6 +93,8 @@ public class DICOMDispatcherProperties extends ConnectorProperties implements De
         uidnegrsp = false;
         username = "";
         applicationEntity = "";
+        associationIdleTimeout = "0";
+        associationMaxOperations = "1000";
 
         keyPW = "";
         keyStore = "";
@@ -135,6 +139,8 @@ public class DICOMDispatcherProperties extends ConnectorProperties implements De
         uidnegrsp = props.isUidnegrsp();
         username = props.getUsername();
         applicationEntity = props.getApplicationEntity();
+        associationIdleTimeout = props.getAssociationIdleTimeout();
+        associationMaxOperations = props.getAssociationMaxOperations();
 
         keyPW = props.getKeyPW();
         keyStore = props.getKeyStore();
@@ -168,6 +174,22 @@ public class DICOMDispatcherProperties extends ConnectorProperties implements De
         this.port = port;
     }
 
+    public String getAssociationIdleTimeout() {
+        return associationIdleTimeout;
+    }
+
+    public void setAssociationIdleTimeout(String associationIdleTimeout) {
+        this.associationIdleTimeout = associationIdleTimeout;
+    }
+
+    public String getAssociationMaxOperations() {
+        return associationMaxOperations;
+    }
+
+    public void setAssociationMaxOperations(String associationMaxOperations) {
+        this.associationMaxOperations = associationMaxOperations;
+    }
+
     public String getApplicationEntity() {
         return applicationEntity;
     }
@@ -565,6 +587,8 @@ public class DICOMDispatcherProperties extends ConnectorProperties implements De
         purgedProperties.put("noClientAuth", noClientAuth);
         purgedProperties.put("nossl2", nossl2);
         purgedProperties.put("tls", tls);
+        purgedProperties.put("associationIdleTimeout", PurgeUtil.getNumericValue(associationIdleTimeout));
+        purgedProperties.put("associationMaxOperations", PurgeUtil.getNumericValue(associationMaxOperations));
         return purgedProperties;
     }
 }
@@ -9,6 +9,7 @@
 
 package com.mirth.connect.connectors.doc;
 
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
@@ -18,6 +19,9 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Reader;
 import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Semaphore;
 import java.util.regex.Pattern;
 
 import javax.xml.parsers.DocumentBuilder;
@@ -50,22 +54,26 @@ import com.mirth.connect.donkey.server.event.ConnectionStatusEvent;
 import com.mirth.connect.donkey.server.event.ErrorEvent;
 import com.mirth.connect.donkey.util.Base64Util;
 import com.mirth.connect.donkey.util.DonkeyElement;
+import com.mirth.connect.server.controllers.ConfigurationController;
 import com.mirth.connect.server.controllers.ControllerFactory;
 import com.mirth.connect.server.controllers.EventController;
 import com.mirth.connect.server.util.TemplateValueReplacer;
 import com.mirth.connect.util.ErrorMessageBuilder;
-import com.openhtmltopdf.pdfboxout.PdfRendererBuilder;
 
 public class DocumentDispatcher extends DestinationConnector {
 
     private static final Pattern PAGE_SIZE_PATTERN = Pattern.compile("@page\\s*\\{[\\s\\S]*?size\\s*:[\\s\\S]*?\\}");
+    private static final long MAX_CACHED_RESOURCE_BYTES = 10L * 1024 * 1024;
 
     private Logger logger = LogManager.getLogger(this.getClass());
     private DocumentDispatcherProperties connectorProperties;
     private EventController eventController = ControllerFactory.getFactory().createEventController();
+    private ConfigurationController configurationController = ControllerFactory.getFactory().createConfigurationController();
     private TemplateValueReplacer replacer = new TemplateValueReplacer();
+    private PdfRenderer pdfRenderer = null;
 
     private static long ownerPasswordSeq = System.currentTimeMillis();
+    private static Semaphore renderPermits = null;
 
     @Override
     public void onDeploy() throws ConnectorTaskException {
@@ -78,7 +86,10 @@ public class DocumentDispatcher extends DestinationConnector {
     public void onUndeploy() throws ConnectorTaskException {}
 
     @Override
-    public void onStart() throws ConnectorTaskException {}
+    public void onStart() throws ConnectorTaskException {
+        // Linked resources are loaded again after the connector is restarted
+        pdfRenderer = new PdfRenderer(getRenderPermits(), MAX_CACHED_RESOURCE_BYTES);
+    }
 
     @Override
     public void onStop() throws ConnectorTaskException {}
@@ -86,6 +97,18 @@ public class DocumentDispatcher extends DestinationConnector {
     @Override
     public void onHalt() throws ConnectorTaskException {}
 
+    private Semaphore getRenderPermits() {
+        synchronized (DocumentDispatcher.class) {
+            int maxRenders = configurationController.getDocumentWriterMaxRenders();
+
+            if (renderPermits == null && maxRenders > 0) {
+                renderPermits = new Semaphore(maxRenders, true);
+            }
+
+            return renderPermits;
+        }
+    }
+
     @Override
     public void replaceConnectorProperties(ConnectorProperties connectorProperties, ConnectorMessage connectorMessage) {
         DocumentDispatcherProperties props = (DocumentDispatcherProperties) connectorProperties;
@@ -170,24 +193,19 @@ public class DocumentDispatcher extends DestinationConnector {
 
         String stringContents = getAttachmentHandlerProvider().reAttachMessage(contents.toString(), connectorMessage, documentDispatcherProperties.getDestinationConnectorProperties().isReattachAttachments());
 
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        if (documentDispatcherProperties.getDocumentType().equalsIgnoreCase("pdf")) {
-            createPDF(new StringReader(stringContents), outputStream, documentDispatcherProperties);
+        boolean writeFile = StringUtils.isBlank(documentDispatcherProperties.getOutput()) || !documentDispatcherProperties.getOutput().equalsIgnoreCase("attachment");
+        boolean writeAttachment = StringUtils.isNotBlank(documentDispatcherProperties.getOutput()) && !documentDispatcherProperties.getOutput().equalsIgnoreCase("file");
 
-            boolean encrypt = documentDispatcherProperties.isEncrypt();
-            String password = documentDispatcherProperties.getPassword();
-
-            if (encrypt && password != null) {
-                ByteArrayInputStream inputStream = new ByteArrayInputStream(outputStream.toByteArray());
-
-                outputStream = new ByteArrayOutputStream();
-                encryptPDF(inputStream, outputStream, password);
-            }
-        } else if (documentDispatcherProperties.getDocumentType().equalsIgnoreCase("rtf")) {
-            createRTF(new ByteArrayInputStream(stringContents.getBytes()), outputStream, documentDispatcherProperties);
+        if (!writeAttachment) {
+            // Nothing else needs the document, so it is written straight to the file instead of being kept in memory
+            writeDocumentToFile(stringContents, documentDispatcherProperties);
+            return null;
         }
 
-        if (StringUtils.isBlank(documentDispatcherProperties.getOutput()) || !documentDispatcherProperties.getOutput().equalsIgnoreCase("attachment")) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        createDocument(stringContents, outputStream, documentDispatcherProperties);
+
+        if (writeFile) {
             FileOutputStream fileOutputStream = null;
             try {
                 File file = createFile(documentDispatcherProperties.getHost() + "/" + documentDispatcherProperties.getOutputPattern());
@@ -202,13 +220,54 @@ public class DocumentDispatcher extends DestinationConnector {
             }
         }
 
-        if (StringUtils.isNotBlank(documentDispatcherProperties.getOutput()) && !documentDispatcherProperties.getOutput().equalsIgnoreCase("file")) {
-            Attachment attachment = com.mirth.connect.donkey.server.controllers.ControllerFactory.getFactory().createMessageController().createAttachment(new String(Base64Util.encodeBase64(outputStream.toByteArray(), false), "US-ASCII"), documentDispatcherProperties.getDocumentType().contains("pdf") ? "application/pdf" : "application/rtf");
-            com.mirth.connect.donkey.server.controllers.ControllerFactory.getFactory().createMessageController().insertAttachment(attachment, connectorMessage.getChannelId(), connectorMessage.getMessageId());
+        // The encoded bytes are stored as they are, without converting them to a string first
+        Attachment attachment = com.mirth.connect.donkey.server.controllers.ControllerFactory.getFactory().createMessageController().createAttachment(Base64Util.encodeBase64(outputStream.toByteArray(), false), documentDispatcherProperties.getDocumentType().contains("pdf") ? "application/pdf" : "application/rtf");
+        com.mirth.connect.donkey.server.controllers.ControllerFactory.getFactory().createMessageController().insertAttachment(attachment, connectorMessage.getChannelId(), connectorMessage.getMessageId());
 
-            return attachment.getAttachmentId();
+        return attachment.getAttachmentId();
+    }
+
+    private void createDocument(String stringContents, OutputStream outputStream, DocumentDispatcherProperties documentDispatcherProperties) throws Exception {
+        if (documentDispatcherProperties.getDocumentType().equalsIgnoreCase("pdf")) {
+            boolean encrypt = documentDispatcherProperties.isEncrypt();
+            String password = documentDispatcherProperties.getPassword();
+
+            if (encrypt && password != null) {
+                ByteArrayOutputStream pdfOutputStream = new ByteArrayOutputStream();
+                createPDF(new StringReader(stringContents), pdfOutputStream, documentDispatcherProperties);
+                encryptPDF(new ByteArrayInputStream(pdfOutputStream.toByteArray()), outputStream, password);
+            } else {
+                createPDF(new StringReader(stringContents), outputStream, documentDispatcherProperties);
+            }
+        } else if (documentDispatcherProperties.getDocumentType().equalsIgnoreCase("rtf")) {
+            createRTF(new ByteArrayInputStream(stringContents.getBytes()), outputStream, documentDispatcherProperties);
+        }
+    }
+
+    /*
+     * The document is rendered to a file in the server's temp directory and then moved over the
+     * output file, so that a failed render doesn't leave a partial document behind, and nothing
+     * polling the output directory picks up a document that is still being written. If the temp
+     * directory is on another file system the move copies the file instead.
+     */
+    private void writeDocumentToFile(String stringContents, DocumentDispatcherProperties documentDispatcherProperties) throws Exception {
+        File file = new File(documentDispatcherProperties.getHost() + "/" + documentDispatcherProperties.getOutputPattern()).getAbsoluteFile();
+        file.getParentFile().mkdirs();
+        logger.info("Writing document to: " + file.getAbsolutePath());
+
+        File tempFile = File.createTempFile("DocumentWriter", ".tmp");
+        OutputStream outputStream = null;
+
+        try {
+            outputStream = new BufferedOutputStream(new FileOutputStream(tempFile));
+            createDocument(stringContents, outputStream, documentDispatcherProperties);
+            outputStream.close();
+
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            IOUtils.closeQuietly(outputStream);
+            tempFile.delete();
         }
-        return null;
     }
 
     private void createPDF(Reader reader, OutputStream outputStream, DocumentDispatcherProperties props) throws Exception {
@@ -254,11 +313,7 @@ public class DocumentDispatcher extends DestinationConnector {
             } catch (Exception e) {
             }
             
-            PdfRendererBuilder pdfRenderedBuilder = new PdfRendererBuilder();
-            pdfRenderedBuilder.useFastMode();
-            pdfRenderedBuilder.withW3cDocument(doc, "");
-            pdfRenderedBuilder.toStream(outputStream);
-            pdfRenderedBuilder.run();
+            pdfRenderer.render(doc, outputStream);
         } catch (Throwable e) {
             throw new Exception(e);
         }
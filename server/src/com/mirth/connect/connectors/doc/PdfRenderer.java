@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.connectors.doc;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.w3c.dom.Document;
+
+import com.openhtmltopdf.extend.FSCacheEx;
+import com.openhtmltopdf.extend.FSCacheValue;
+import com.openhtmltopdf.extend.FSStream;
+import com.openhtmltopdf.extend.FSStreamFactory;
+import com.openhtmltopdf.extend.impl.FSDefaultCacheStore;
+import com.openhtmltopdf.pdfboxout.PdfRendererBuilder;
+
+/**
+ * Renders the HTML documents of a Document Writer to PDF. Font metrics, and the stylesheets, images
+ * and fonts that the template links to, are kept between messages so that they are only loaded
+ * once while the connector is started. Local files are loaded again when they are modified, and
+ * resources loaded over http are only kept for as long as their Cache-Control or Expires header
+ * allows.
+ *
+ * Laying out a large document can take seconds and a lot of heap, so the number of documents
+ * rendered at the same time can be limited with permits shared by all Document Writers.
+ */
+public class PdfRenderer {
+
+    private static final int TIMEOUT = 10000;
+
+    private Logger logger = LogManager.getLogger(getClass());
+    private Semaphore renderPermits;
+    private FSCacheEx<String, FSCacheValue> fontMetricsCache = new FSDefaultCacheStore();
+    private ResourceCache resourceCache;
+
+    /**
+     * @param renderPermits
+     *            Acquired for each render, or null to render any number of documents at once.
+     * @param maxResourceBytes
+     *            The maximum total size of the linked resources to keep.
+     */
+    public PdfRenderer(Semaphore renderPermits, long maxResourceBytes) {
+        this.renderPermits = renderPermits;
+        this.resourceCache = new ResourceCache(maxResourceBytes);
+    }
+
+    public void render(Document document, OutputStream outputStream) throws IOException, InterruptedException {
+        if (renderPermits != null) {
+            renderPermits.acquire();
+        }
+
+        try {
+            PdfRendererBuilder builder = new PdfRendererBuilder();
+            builder.useFastMode();
+            builder.useCacheStore(PdfRendererBuilder.CacheStore.PDF_FONT_METRICS, fontMetricsCache);
+            builder.useProtocolsStreamImplementation(resourceCache, "http", "https", "file");
+            builder.withW3cDocument(document, "");
+            builder.toStream(outputStream);
+            builder.run();
+        } finally {
+            if (renderPermits != null) {
+                renderPermits.release();
+            }
+        }
+    }
+
+    public int getResourceCount() {
+        return resourceCache.size();
+    }
+
+    public long getResourceBytes() {
+        return resourceCache.getTotalBytes();
+    }
+
+    /*
+     * The least recently used resources are removed first once the total size is reached. Resources
+     * that fail to load aren't kept, so that they are tried again for the next document.
+     */
+    private class ResourceCache implements FSStreamFactory {
+
+        private long maxBytes;
+        private long totalBytes;
+        private Map<String, CachedResource> resources = new LinkedHashMap<String, CachedResource>(16, 0.75f, true);
+
+        public ResourceCache(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public FSStream getUrl(final String uri) {
+            return new FSStream() {
+                @Override
+                public InputStream getStream() {
+                    byte[] bytes = getBytes(uri);
+                    return bytes != null ? new ByteArrayInputStream(bytes) : null;
+                }
+
+                @Override
+                public Reader getReader() {
+                    byte[] bytes = getBytes(uri);
+                    return bytes != null ? new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8) : null;
+                }
+            };
+        }
+
+        public synchronized int size() {
+            return resources.size();
+        }
+
+        public synchronized long getTotalBytes() {
+            return totalBytes;
+        }
+
+        private byte[] getBytes(String uri) {
+            File file = getFile(uri);
+
+            synchronized (this) {
+                CachedResource resource = resources.get(uri);
+                if (resource != null) {
+                    if (resource.isCurrent()) {
+                        return resource.bytes;
+                    }
+                    remove(uri);
+                }
+            }
+
+            // Taken before reading, so that a file modified while it is read is loaded again next time
+            long lastModified = file != null ? file.lastModified() : 0;
+            byte[] bytes;
+            long expires;
+            InputStream inputStream = null;
+
+            try {
+                URLConnection connection = new URL(uri).openConnection();
+                connection.setConnectTimeout(TIMEOUT);
+                connection.setReadTimeout(TIMEOUT);
+                inputStream = connection.getInputStream();
+                bytes = IOUtils.toByteArray(inputStream);
+                expires = connection instanceof HttpURLConnection ? getExpires(connection) : 0;
+            } catch (IOException e) {
+                logger.warn("Unable to load document resource: " + uri, e);
+                return null;
+            } finally {
+                IOUtils.closeQuietly(inputStream);
+            }
+
+            // Local files are kept until they are modified, and other resources until they expire
+            if (bytes.length <= maxBytes && (file != null || expires > System.currentTimeMillis())) {
+                put(uri, new CachedResource(bytes, expires, file, lastModified));
+            }
+
+            return bytes;
+        }
+
+        private void put(String uri, CachedResource resource) {
+            synchronized (this) {
+                remove(uri);
+                resources.put(uri, resource);
+                totalBytes += resource.bytes.length;
+
+                for (Iterator<CachedResource> it = resources.values().iterator(); totalBytes > maxBytes && it.hasNext();) {
+                    totalBytes -= it.next().bytes.length;
+                    it.remove();
+                }
+            }
+        }
+
+        private synchronized void remove(String uri) {
+            CachedResource resource = resources.remove(uri);
+            if (resource != null) {
+                totalBytes -= resource.bytes.length;
+            }
+        }
+
+        /*
+         * Returns when a resource loaded over http expires, from the max-age of its Cache-Control
+         * header or from its Expires header. Resources that don't allow caching, or that don't say
+         * how long they may be cached for, expire right away.
+         */
+        private long getExpires(URLConnection connection) {
+            long now = System.currentTimeMillis();
+            String cacheControl = connection.getHeaderField("Cache-Control");
+
+            if (cacheControl != null) {
+                for (String directive : cacheControl.toLowerCase().split(",")) {
+                    directive = directive.trim();
+
+                    if (directive.equals("no-store") || directive.equals("no-cache")) {
+                        return now;
+                    } else if (directive.startsWith("max-age=")) {
+                        return now + NumberUtils.toLong(StringUtils.removeStart(directive, "max-age="), 0) * 1000;
+                    }
+                }
+            }
+
+            long expiration = connection.getExpiration();
+            return expiration > 0 ? expiration : now;
+        }
+
+        private File getFile(String uri) {
+            if (!StringUtils.startsWithIgnoreCase(uri, "file:")) {
+                return null;
+            }
+
+            try {
+                return new File(new URI(uri));
+            } catch (Exception e) {
+                // Not a local file path, so it isn't cached
+                return null;
+            }
+        }
+    }
+
+    private static class CachedResource {
+        private byte[] bytes;
+        private long expires;
+        private File file;
+        private long lastModified;
+
+        public CachedResource(byte[] bytes, long expires, File file, long lastModified) {
+            this.bytes = bytes;
+            this.expires = expires;
+            this.file = file;
+            this.lastModified = lastModified;
+        }
+
+        public boolean isCurrent() {
+            if (file != null) {
+                return file.lastModified() == lastModified;
+            }
+            return System.currentTimeMillis() < expires;
+        }
+    }
+}
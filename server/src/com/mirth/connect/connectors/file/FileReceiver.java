@@ -10,12 +10,15 @@
 package com.mirth.connect.connectors.file;
 
 import java.io.File;
+import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -25,9 +28,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Stack;
+import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.io.filefilter.WildcardFileFilter;
 import org.apache.commons.lang3.SerializationUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.math.NumberUtils;
@@ -37,6 +42,7 @@ import org.apache.commons.text.StringEscapeUtils;
 
 import com.mirth.connect.connectors.core.file.FileConfiguration;
 import com.mirth.connect.connectors.core.file.FileConnectorException;
+import com.mirth.connect.connectors.core.file.FileScheme;
 import com.mirth.connect.connectors.core.file.FileSystemConnectionOptions;
 import com.mirth.connect.connectors.core.file.IFileConnector;
 import com.mirth.connect.connectors.core.file.IFileReceiver;
@@ -45,6 +51,7 @@ import com.mirth.connect.connectors.core.file.SchemeProperties;
 import com.mirth.connect.connectors.core.file.SftpSchemeProperties;
 import com.mirth.connect.connectors.core.file.filesystems.FileInfo;
 import com.mirth.connect.connectors.core.file.filesystems.FileSystemConnection;
+import com.mirth.connect.connectors.core.file.filters.RegexFilenameFilter;
 import com.mirth.connect.donkey.model.event.ConnectionStatusEventType;
 import com.mirth.connect.donkey.model.event.ErrorEventType;
 import com.mirth.connect.donkey.model.message.BatchRawMessage;
@@ -87,6 +94,10 @@ public class FileReceiver extends PollConnector implements IFileReceiver {
     private long fileSizeMinimum;
     private long fileSizeMaximum;
 
+    private int watchRescanInterval;
+    private FileWatchIndex watchIndex = null;
+    private String watchFilenamePattern = null;
+
     @Override
     public void onDeploy() throws ConnectorTaskException {
         this.connectorProperties = (FileReceiverProperties) SerializationUtils.clone(getConnectorProperties());
@@ -121,6 +132,9 @@ public class FileReceiver extends PollConnector implements IFileReceiver {
         fileSizeMinimum = NumberUtils.toLong(connectorProperties.getFileSizeMinimum(), 0);
         fileSizeMaximum = NumberUtils.toLong(connectorProperties.getFileSizeMaximum(), 0);
 
+        // Channels saved before this setting existed don't have it, so they keep listing the directory
+        watchRescanInterval = NumberUtils.toInt(connectorProperties.getWatchRescanInterval(), 0);
+
         eventController.dispatchEvent(new ConnectionStatusEvent(getChannelId(), getMetaDataId(), getSourceName(), ConnectionStatusEventType.IDLE));
     }
 
@@ -169,6 +183,8 @@ public class FileReceiver extends PollConnector implements IFileReceiver {
 
     @Override
     public void onStop() throws ConnectorTaskException {
+        closeWatchIndex();
+
         try {
             fileConnector.doStop();
         } catch (FileConnectorException e) {
@@ -223,7 +239,15 @@ public class FileReceiver extends PollConnector implements IFileReceiver {
             String pollId = "" + System.nanoTime();
             AtomicInteger pollSequenceId = new AtomicInteger(1);
 
-            if (connectorProperties.isDirectoryRecursion()) {
+            FileWatchIndex watchIndex = getWatchIndex(readDir);
+
+            if (watchIndex != null) {
+                List<List<FileInfo>> directories = listWatchedFiles(watchIndex);
+
+                for (int i = 0; i < directories.size(); i++) {
+                    processFiles(directories.get(i), pollId, pollSequenceId, i == directories.size() - 1);
+                }
+            } else if (connectorProperties.isDirectoryRecursion()) {
                 Set<String> visitedDirectories = new HashSet<String>();
                 Stack<String> directoryStack = new Stack<String>();
                 directoryStack.push(readDir);
@@ -254,6 +278,77 @@ public class FileReceiver extends PollConnector implements IFileReceiver {
         }
     }
     
+    /*
+     * Local directories can be watched for changes instead of being listed on every poll. Returns
+     * null if the directory is listed instead.
+     */
+    private FileWatchIndex getWatchIndex(String readDir) {
+        if (watchRescanInterval <= 0 || connectorProperties.getScheme() != FileScheme.FILE) {
+            return null;
+        }
+
+        // The directory and filter may contain variables, so they are checked on every poll
+        if (watchIndex != null && (!watchIndex.getDirectory().equals(Paths.get(readDir).toAbsolutePath()) || !StringUtils.equals(watchFilenamePattern, filenamePattern))) {
+            closeWatchIndex();
+        }
+
+        if (watchIndex == null) {
+            FilenameFilter filenameFilter;
+
+            if (connectorProperties.isRegex()) {
+                filenameFilter = new RegexFilenameFilter(filenamePattern);
+            } else {
+                filenameFilter = new WildcardFileFilter(filenamePattern.trim().split("\\s*,\\s*"));
+            }
+
+            FileWatchIndex index = new FileWatchIndex(readDir, connectorProperties.isDirectoryRecursion(), filenameFilter, connectorProperties.isIgnoreDot(), watchRescanInterval * 1000L, getChannel().getName());
+
+            try {
+                index.start();
+            } catch (Exception e) {
+                if (Files.isDirectory(Paths.get(readDir))) {
+                    logger.warn("Unable to watch directory " + readDir + " in channel " + getChannelId() + ", listing it instead.", e);
+                }
+                return null;
+            }
+
+            watchIndex = index;
+            watchFilenamePattern = filenamePattern;
+        }
+
+        return watchIndex;
+    }
+
+    private void closeWatchIndex() {
+        if (watchIndex != null) {
+            watchIndex.close();
+            watchIndex = null;
+        }
+    }
+
+    /*
+     * Files are grouped by directory, and each directory is processed in turn, the same as when
+     * the directories are listed.
+     */
+    private List<List<FileInfo>> listWatchedFiles(FileWatchIndex watchIndex) throws IOException {
+        Map<String, List<FileInfo>> directories = new TreeMap<String, List<FileInfo>>();
+
+        for (FileInfo file : watchIndex.getReadyFiles()) {
+            if (isFileValid(file)) {
+                List<FileInfo> files = directories.get(file.getParent());
+
+                if (files == null) {
+                    files = new ArrayList<FileInfo>();
+                    directories.put(file.getParent(), files);
+                }
+
+                files.add(file);
+            }
+        }
+
+        return new ArrayList<List<FileInfo>>(directories.values());
+    }
+
     private FileSystemConnection getConnection() throws Exception {
         FileSystemConnection con = fileConnector.getConnection(fileSystemOptions);
         if (configuration != null) {
@@ -342,6 +437,11 @@ public class FileReceiver extends PollConnector implements IFileReceiver {
 
                 eventController.dispatchEvent(new ConnectionStatusEvent(getChannelId(), getMetaDataId(), getSourceName(), ConnectionStatusEventType.READING));
                 processFile(file, pollId, pollSequenceId, pollComplete);
+
+                if (watchIndex != null) {
+                    watchIndex.processed(file);
+                }
+
                 eventController.dispatchEvent(new ConnectionStatusEvent(getChannelId(), getMetaDataId(), getSourceName(), ConnectionStatusEventType.IDLE));
 
                 if (pollComplete) {
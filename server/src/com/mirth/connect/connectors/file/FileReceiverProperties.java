@@ -55,6 +55,7 @@ public class FileReceiverProperties extends ConnectorProperties implements PollC
     private String errorMoveToFileName;
     private boolean checkFileAge;
     private String fileAge;
+    private String watchRescanInterval;
     private String fileSizeMinimum;
     private String fileSizeMaximum;
     private boolean ignoreFileSizeMaximum;
@@ -93,6 +94,7 @@ public class FileReceiverProperties extends ConnectorProperties implements PollC
         errorMoveToFileName = "";
         checkFileAge = true;
         fileAge = "1000";
+        watchRescanInterval = "0";
         fileSizeMinimum = "0";
         fileSizeMaximum = "";
         ignoreFileSizeMaximum = true;
@@ -295,6 +297,18 @@ public class FileReceiverProperties extends ConnectorProperties implements PollC
         this.fileAge = fileAge;
     }
 
+    /**
+     * If greater than 0, local directories are watched for changes instead of being listed on every
+     * poll, and are still scanned in full every this many seconds in case changes were missed.
+     */
+    public String getWatchRescanInterval() {
+        return watchRescanInterval;
+    }
+
+    public void setWatchRescanInterval(String watchRescanInterval) {
+        this.watchRescanInterval = watchRescanInterval;
+    }
+
     public String getFileSizeMinimum() {
         return fileSizeMinimum;
     }
@@ -485,6 +499,7 @@ public class FileReceiverProperties extends ConnectorProperties implements PollC
         purgedProperties.put("errorReadingAction", errorReadingAction);
         purgedProperties.put("checkFileAge", checkFileAge);
         purgedProperties.put("fileAge", PurgeUtil.getNumericValue(fileAge));
+        purgedProperties.put("watchRescanInterval", PurgeUtil.getNumericValue(watchRescanInterval));
         purgedProperties.put("fileSizeMinimum", PurgeUtil.getNumericValue(fileSizeMinimum));
         purgedProperties.put("fileSizeMaximum", PurgeUtil.getNumericValue(fileSizeMaximum));
         purgedProperties.put("ignoreFileSizeMaximum", ignoreFileSizeMaximum);
@@ -0,0 +1,443 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.connectors.file;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.mirth.connect.connectors.core.file.filesystems.FileInfo;
+
+/**
+ * Keeps track of the files in a local File Reader directory using a WatchService, so that each poll
+ * doesn't have to list and stat every file in the directory tree.
+ *
+ * The size and last modified time of each file are recorded when it is created or changed. A file
+ * is only returned by {@link #getReadyFiles} once it is stable, meaning that it still has the same
+ * size and last modified time when it is checked during a poll, so files that are still being
+ * written are left for a later poll. Only files that changed since the last poll are checked.
+ *
+ * Events can be lost if the directory changes faster than they are read, and some file systems
+ * (network shares in particular) don't report changes made by other hosts at all. The whole tree
+ * is therefore scanned again when events overflow, and periodically as a safety net.
+ */
+public class FileWatchIndex {
+
+    private static final String IGNORE = ".ignore";
+
+    private Logger logger = LogManager.getLogger(getClass());
+    private Path directory;
+    private boolean recursive;
+    private FilenameFilter filenameFilter;
+    private boolean ignoreDot;
+    private long rescanInterval;
+    private String name;
+
+    private WatchService watchService;
+    private Map<WatchKey, Path> watchedDirectories = new HashMap<WatchKey, Path>();
+    private Map<Path, Entry> entries = new HashMap<Path, Entry>();
+    private long nextRescan;
+    private boolean rescanNeeded = true;
+    private Thread watchThread;
+
+    /**
+     * @param directory
+     *            The directory to read files from.
+     * @param recursive
+     *            If true, files in subdirectories are read as well.
+     * @param filenameFilter
+     *            Files that don't match the filter are ignored.
+     * @param ignoreDot
+     *            If true, files starting with a dot are ignored.
+     * @param rescanInterval
+     *            The number of milliseconds between full scans of the directory tree.
+     * @param name
+     *            Used to name the thread that reads events.
+     */
+    public FileWatchIndex(String directory, boolean recursive, FilenameFilter filenameFilter, boolean ignoreDot, long rescanInterval, String name) {
+        this.directory = Paths.get(directory).toAbsolutePath();
+        this.recursive = recursive;
+        this.filenameFilter = filenameFilter;
+        this.ignoreDot = ignoreDot;
+        this.rescanInterval = rescanInterval;
+        this.name = name;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Starts watching the directory. The files in it are indexed by the first call to
+     * {@link #getReadyFiles}.
+     */
+    public void start() throws IOException {
+        watchService = directory.getFileSystem().newWatchService();
+
+        try {
+            register(directory);
+        } catch (IOException e) {
+            watchService.close();
+            throw e;
+        }
+
+        watchThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                watch();
+            }
+        }, "File Watcher on " + name);
+        watchThread.setDaemon(true);
+        watchThread.start();
+    }
+
+    public void close() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            logger.debug("Error closing watch service.", e);
+        }
+    }
+
+    /**
+     * Returns the files that are ready to be read. Files that changed since the last call are
+     * checked first, and the whole directory tree is scanned again if it is due.
+     */
+    public List<FileInfo> getReadyFiles() throws IOException {
+        synchronized (this) {
+            if (rescanNeeded || System.currentTimeMillis() >= nextRescan) {
+                rescan();
+            }
+        }
+
+        List<Entry> changed = new ArrayList<Entry>();
+
+        synchronized (this) {
+            for (Entry entry : entries.values()) {
+                if (!entry.stable) {
+                    changed.add(entry);
+                }
+            }
+        }
+
+        // A file is stable if it hasn't changed since the last event for it
+        for (Entry entry : changed) {
+            Entry current = read(entry.path);
+
+            synchronized (this) {
+                if (entries.get(entry.path) == entry) {
+                    if (current == null) {
+                        entries.remove(entry.path);
+                    } else if (current.size == entry.size && current.lastModified == entry.lastModified) {
+                        entry.stable = true;
+                    } else {
+                        entries.put(entry.path, current);
+                    }
+                }
+            }
+        }
+
+        List<FileInfo> files = new ArrayList<FileInfo>();
+
+        synchronized (this) {
+            for (Entry entry : entries.values()) {
+                if (entry.stable) {
+                    files.add(entry);
+                }
+            }
+        }
+
+        return files;
+    }
+
+    /**
+     * Checks the file again during the next poll, after it has been read and possibly moved or
+     * deleted.
+     */
+    public synchronized void processed(FileInfo file) {
+        Entry entry = entries.get(Paths.get(file.getAbsolutePath()));
+
+        if (entry != null) {
+            entry.stable = false;
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                Path dir;
+
+                synchronized (this) {
+                    dir = watchedDirectories.get(key);
+                }
+
+                if (dir != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == OVERFLOW) {
+                            logger.debug("Too many changes in " + directory + ", scanning it again.");
+
+                            synchronized (this) {
+                                rescanNeeded = true;
+                            }
+                        } else {
+                            changed(dir.resolve((Path) event.context()));
+                        }
+                    }
+                }
+
+                if (!key.reset()) {
+                    synchronized (this) {
+                        watchedDirectories.remove(key);
+                    }
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            // Stopped
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void changed(Path path) {
+        if (Files.isDirectory(path)) {
+            if (recursive) {
+                // Files may have been added before the new directory was registered
+                try {
+                    scan(path, null);
+                } catch (IOException e) {
+                    logger.debug("Error scanning new directory " + path, e);
+
+                    synchronized (this) {
+                        rescanNeeded = true;
+                    }
+                }
+            }
+            return;
+        }
+
+        String fileName = path.getFileName().toString();
+
+        // Creating or removing an ignore file changes whether the file it belongs to is read
+        if (fileName.endsWith(IGNORE)) {
+            path = path.resolveSibling(fileName.substring(0, fileName.length() - IGNORE.length()));
+        }
+
+        Entry entry = accept(path) ? read(path) : null;
+
+        synchronized (this) {
+            if (entry != null) {
+                entries.put(path, entry);
+            } else {
+                entries.remove(path);
+            }
+        }
+    }
+
+    /*
+     * Lists the whole directory tree, registering any directories that aren't watched yet and
+     * reconciling the index with the files found.
+     */
+    private void rescan() throws IOException {
+        Set<Path> found = new HashSet<Path>();
+        scan(directory, found);
+
+        for (Iterator<Path> it = entries.keySet().iterator(); it.hasNext();) {
+            if (!found.contains(it.next())) {
+                it.remove();
+            }
+        }
+
+        rescanNeeded = false;
+        nextRescan = System.currentTimeMillis() + rescanInterval;
+    }
+
+    private void scan(Path start, final Set<Path> found) throws IOException {
+        Files.walkFileTree(start, EnumSet.of(FileVisitOption.FOLLOW_LINKS), recursive ? Integer.MAX_VALUE : 1, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                register(dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                if (attrs.isRegularFile() && accept(file)) {
+                    synchronized (FileWatchIndex.this) {
+                        Entry entry = entries.get(file);
+
+                        if (entry == null || entry.size != attrs.size() || entry.lastModified != attrs.lastModifiedTime().toMillis()) {
+                            entries.put(file, new Entry(file, attrs.size(), attrs.lastModifiedTime().toMillis(), Files.isReadable(file)));
+                        }
+                    }
+
+                    if (found != null) {
+                        found.add(file);
+                    }
+                }
+
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) throws IOException {
+                // Symbolic link loops, and files removed while scanning
+                logger.debug("Unable to read " + file, e);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void register(Path dir) throws IOException {
+        WatchKey key;
+
+        try {
+            key = dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+        } catch (ClosedWatchServiceException e) {
+            // Closed while the poll was running
+            return;
+        }
+
+        synchronized (this) {
+            watchedDirectories.put(key, dir);
+        }
+    }
+
+    /*
+     * The same files that the local file system connection lists.
+     */
+    private boolean accept(Path path) {
+        String fileName = path.getFileName().toString();
+
+        if (fileName.endsWith(IGNORE) || (ignoreDot && fileName.startsWith("."))) {
+            return false;
+        }
+
+        if (!filenameFilter.accept(path.getParent().toFile(), fileName)) {
+            return false;
+        }
+
+        return !Files.exists(path.resolveSibling(fileName + IGNORE));
+    }
+
+    private Entry read(Path path) {
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+
+            if (attrs.isRegularFile()) {
+                return new Entry(path, attrs.size(), attrs.lastModifiedTime().toMillis(), Files.isReadable(path));
+            }
+        } catch (NoSuchFileException e) {
+            // Deleted
+        } catch (IOException e) {
+            logger.debug("Unable to read attributes of " + path, e);
+        }
+
+        return null;
+    }
+
+    /*
+     * The attributes of a file as of the last time it was checked, so that reading, filtering and
+     * sorting the files doesn't stat them again.
+     */
+    private static class Entry implements FileInfo {
+        private Path path;
+        private long size;
+        private long lastModified;
+        private boolean readable;
+        private boolean stable;
+
+        public Entry(Path path, long size, long lastModified, boolean readable) {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.readable = readable;
+        }
+
+        @Override
+        public String getName() {
+            return path.getFileName().toString();
+        }
+
+        @Override
+        public String getAbsolutePath() {
+            return path.toString();
+        }
+
+        @Override
+        public String getCanonicalPath() throws IOException {
+            return path.toFile().getCanonicalPath();
+        }
+
+        @Override
+        public String getParent() {
+            return path.getParent().toString();
+        }
+
+        @Override
+        public long getSize() {
+            return size;
+        }
+
+        @Override
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        @Override
+        public boolean isDirectory() {
+            return false;
+        }
+
+        @Override
+        public boolean isFile() {
+            return true;
+        }
+
+        @Override
+        public boolean isReadable() {
+            return readable;
+        }
+
+        @Override
+        public void populateSourceMap(Map<String, Object> sourceMap) {}
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.connectors.http;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+
+/**
+ * Puts requests into async mode and runs the wrapped handler on an executor, so that the Jetty
+ * thread goes back to the server's pool while the channel processes the message. The response is
+ * completed once the wrapped handler returns. Requests wait in the executor's queue rather than in
+ * Jetty threads when the channel is busy, so a slow channel doesn't hold up the other listeners on
+ * a shared server.
+ *
+ * The executor's queue should be bounded. A request that doesn't fit, or that arrives while the
+ * listener is stopping, gets a 503 response right away.
+ */
+public class AsyncDispatchHandler extends HandlerWrapper {
+
+    private Logger logger = LogManager.getLogger(getClass());
+    private Executor executor;
+
+    public AsyncDispatchHandler(Handler handler, Executor executor) {
+        this.executor = executor;
+        setHandler(handler);
+    }
+
+    @Override
+    public void handle(final String target, final Request baseRequest, final HttpServletRequest request, final HttpServletResponse response) throws IOException, ServletException {
+        final AsyncContext asyncContext = request.startAsync();
+        // Channels have no time limit for processing, the same as when requests are handled synchronously
+        asyncContext.setTimeout(0);
+        baseRequest.setHandled(true);
+
+        DispatchTask task = new DispatchTask(target, baseRequest, request, response, asyncContext);
+
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            // The queue is full or the listener is stopping
+            logger.debug("Rejected HTTP request because the listener is busy or stopping.");
+            task.reject();
+        }
+    }
+
+    /**
+     * Sends a 503 response for a request that was taken out of the executor's queue before it ran,
+     * such as when the listener stops.
+     */
+    public static void reject(Runnable task) {
+        if (task instanceof DispatchTask) {
+            ((DispatchTask) task).reject();
+        }
+    }
+
+    private class DispatchTask implements Runnable {
+        private String target;
+        private Request baseRequest;
+        private HttpServletRequest request;
+        private HttpServletResponse response;
+        private AsyncContext asyncContext;
+
+        private DispatchTask(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response, AsyncContext asyncContext) {
+            this.target = target;
+            this.baseRequest = baseRequest;
+            this.request = request;
+            this.response = response;
+            this.asyncContext = asyncContext;
+        }
+
+        @Override
+        public void run() {
+            try {
+                getHandler().handle(target, baseRequest, request, response);
+            } catch (Throwable t) {
+                logger.error("Error handling HTTP request.", t);
+                sendError(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            } finally {
+                asyncContext.complete();
+            }
+        }
+
+        private void reject() {
+            sendError(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            asyncContext.complete();
+        }
+    }
+
+    private void sendError(HttpServletResponse response, int status) {
+        if (!response.isCommitted()) {
+            try {
+                response.sendError(status);
+            } catch (Exception e) {
+                logger.debug("Unable to send HTTP error response.", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.connectors.http;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.handler.ContextHandlerCollection;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+import com.mirth.connect.donkey.model.channel.ConnectorPluginProperties;
+
+/**
+ * Shares one Jetty server between all HTTP Listeners on the same host and port, instead of
+ * starting a server with its own connector and thread pool for each of them. Listeners add their
+ * handlers when they start and remove them when they stop, and requests are routed to a listener
+ * by its context path. A server is started when the first listener on its port is added and
+ * stopped when the last one is removed.
+ *
+ * The connector and thread pool of a shared server are configured by the first listener added to
+ * it. A later listener is rejected unless it uses the same HTTP configuration class, idle timeout,
+ * maximum number of threads and connector plugin properties (such as TLS settings), since it would
+ * otherwise silently run with the first listener's settings. It is also rejected if its context
+ * path or any of its static resource context paths is already used by another listener.
+ */
+public class HttpListenerRegistry {
+
+    private static HttpListenerRegistry instance = null;
+
+    private Logger logger = LogManager.getLogger(getClass());
+    private Map<String, SharedServer> servers = new HashMap<String, SharedServer>();
+
+    public static HttpListenerRegistry getInstance() {
+        synchronized (HttpListenerRegistry.class) {
+            if (instance == null) {
+                instance = new HttpListenerRegistry();
+            }
+
+            return instance;
+        }
+    }
+
+    HttpListenerRegistry() {}
+
+    /**
+     * Adds the handler of a listener to the server for its host and port, creating and starting
+     * the server if it doesn't exist yet.
+     *
+     * @param contextPaths
+     *            The context path of the listener and of each of its static resources.
+     * @return The server the handler was added to.
+     */
+    public synchronized Server register(HttpReceiver receiver, Set<String> contextPaths, Handler handler) throws Exception {
+        String key = getKey(receiver.getHost(), receiver.getPort());
+        ServerSettings settings = new ServerSettings(receiver);
+        SharedServer sharedServer = servers.get(key);
+
+        if (sharedServer == null) {
+            sharedServer = createServer(key, receiver, settings);
+        } else {
+            if (!sharedServer.settings.configurationClass.equals(settings.configurationClass)) {
+                throw new Exception("Address " + key + " is already in use by an HTTP Listener with a different HTTP configuration.");
+            }
+
+            if (!sharedServer.settings.equals(settings)) {
+                throw new Exception("Address " + key + " is already in use by an HTTP Listener with different connection settings. Listeners on the same address must use the same timeout, maximum threads and TLS settings.");
+            }
+
+            for (String contextPath : contextPaths) {
+                HttpReceiver owner = sharedServer.contextPaths.get(contextPath);
+                if (owner != null) {
+                    throw new Exception("Context path \"" + StringUtils.defaultIfEmpty(contextPath, "/") + "\" on " + key + " is already in use by channel \"" + owner.getChannel().getName() + "\".");
+                }
+            }
+        }
+
+        try {
+            handler.setServer(sharedServer.server);
+            handler.start();
+        } catch (Exception e) {
+            if (sharedServer.handlers.isEmpty()) {
+                stopServer(key, sharedServer);
+            }
+            throw e;
+        }
+
+        sharedServer.contexts.addHandler(handler);
+        for (String contextPath : contextPaths) {
+            sharedServer.contextPaths.put(contextPath, receiver);
+        }
+        sharedServer.handlers.put(receiver, handler);
+
+        logger.debug("Added HTTP Listener for channel " + receiver.getChannelId() + " with context paths " + contextPaths + " to " + key + ".");
+        return sharedServer.server;
+    }
+
+    /**
+     * Removes the handler of a listener from its server, and stops the server if no other
+     * listeners are using it.
+     */
+    public synchronized void unregister(HttpReceiver receiver) throws Exception {
+        String key = getKey(receiver.getHost(), receiver.getPort());
+        SharedServer sharedServer = servers.get(key);
+
+        if (sharedServer == null) {
+            return;
+        }
+
+        Handler handler = sharedServer.handlers.remove(receiver);
+        if (handler == null) {
+            return;
+        }
+
+        sharedServer.contextPaths.values().removeAll(Collections.singleton(receiver));
+
+        logger.debug("Removing HTTP Listener for channel " + receiver.getChannelId() + " from " + key + ".");
+
+        if (sharedServer.handlers.isEmpty()) {
+            stopServer(key, sharedServer);
+        } else {
+            sharedServer.contexts.removeHandler(handler);
+            handler.stop();
+        }
+    }
+
+    private SharedServer createServer(String key, HttpReceiver receiver, ServerSettings settings) throws Exception {
+        QueuedThreadPool threadPool = new QueuedThreadPool(settings.maxThreads);
+        threadPool.setName("HTTP Listener on " + key);
+
+        Server server = new Server(threadPool);
+        ContextHandlerCollection contexts = new ContextHandlerCollection();
+        server.setHandler(contexts);
+
+        // The HTTP configuration adds the connector, including any TLS settings
+        receiver.configureServer(server);
+
+        logger.debug("Starting HTTP server on " + key + ".");
+        try {
+            server.start();
+        } catch (Exception e) {
+            try {
+                server.stop();
+            } catch (Exception e2) {}
+            throw e;
+        }
+
+        SharedServer sharedServer = new SharedServer(server, contexts, settings);
+        servers.put(key, sharedServer);
+        return sharedServer;
+    }
+
+    private void stopServer(String key, SharedServer sharedServer) throws Exception {
+        servers.remove(key);
+        logger.debug("Stopping HTTP server on " + key + ".");
+        sharedServer.server.stop();
+    }
+
+    private String getKey(String host, int port) {
+        return host + ":" + port;
+    }
+
+    private static class SharedServer {
+        private Server server;
+        private ContextHandlerCollection contexts;
+        private ServerSettings settings;
+        private Map<String, HttpReceiver> contextPaths = new HashMap<String, HttpReceiver>();
+        private Map<HttpReceiver, Handler> handlers = new HashMap<HttpReceiver, Handler>();
+
+        public SharedServer(Server server, ContextHandlerCollection contexts, ServerSettings settings) {
+            this.server = server;
+            this.contexts = contexts;
+            this.settings = settings;
+        }
+    }
+
+    /**
+     * The settings of a listener that end up on the connector of the server.
+     */
+    private static class ServerSettings {
+        private String configurationClass;
+        private int timeout;
+        private int maxThreads;
+        private List<ConnectorPluginProperties> pluginProperties;
+
+        public ServerSettings(HttpReceiver receiver) {
+            configurationClass = receiver.getConfiguration().getClass().getName();
+            timeout = receiver.getTimeout();
+            maxThreads = receiver.getMaxThreads();
+            pluginProperties = receiver.getServerPluginProperties();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof ServerSettings)) {
+                return false;
+            }
+
+            ServerSettings other = (ServerSettings) obj;
+            if (!configurationClass.equals(other.configurationClass) || timeout != other.timeout || maxThreads != other.maxThreads || pluginProperties.size() != other.pluginProperties.size()) {
+                return false;
+            }
+
+            // Plugin properties are required to implement equals, but not hashCode
+            for (ConnectorPluginProperties properties : pluginProperties) {
+                if (!other.pluginProperties.contains(properties)) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return configurationClass.hashCode() * 31 + timeout;
+        }
+    }
+}
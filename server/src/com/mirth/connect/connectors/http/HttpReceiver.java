@@ -24,12 +24,19 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NavigableMap;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 import java.util.zip.GZIPInputStream;
@@ -131,6 +138,9 @@ import com.mirth.connect.util.CharsetUtils;
 import com.mirth.connect.util.HttpUtil;
 
 public class HttpReceiver extends SourceConnector implements IHttpReceiver, BinaryContentTypeResolver {
+    private static final int DEFAULT_MAX_THREADS = 200;
+    private static final int DEFAULT_ASYNC_QUEUE_SIZE = 1000;
+
     private Logger logger = LogManager.getLogger(this.getClass());
     private ConfigurationController configurationController = ControllerFactory.getFactory().createConfigurationController();
     private EventController eventController = ControllerFactory.getFactory().createEventController();
@@ -140,10 +150,14 @@ public class HttpReceiver extends SourceConnector implements IHttpReceiver, Bina
     private String host;
     private int port;
     private int timeout;
+    private int maxThreads = DEFAULT_MAX_THREADS;
+    private boolean asyncDispatch;
+    private int asyncQueueSize = DEFAULT_ASYNC_QUEUE_SIZE;
     private String[] binaryMimeTypesArray;
     private Pattern binaryMimeTypesRegex;
     private HttpAuthConnectorPluginProperties authProps;
     private AuthenticatorProvider authenticatorProvider;
+    private ThreadPoolExecutor dispatchExecutor;
 
     @Override
     public void onDeploy() throws ConnectorTaskException {
@@ -239,6 +253,16 @@ public class HttpReceiver extends SourceConnector implements IHttpReceiver, Bina
         port = NumberUtils.toInt(replacer.replaceValues(((ListenerConnectorPropertiesInterface) getConnectorProperties()).getListenerConnectorProperties().getPort(), channelId, channelName));
         timeout = NumberUtils.toInt(replacer.replaceValues(((IHttpReceiverProperties) getConnectorProperties()).getTimeout(), channelId, channelName), 0);
 
+        // Listeners saved before these settings existed don't have them, so they get the defaults
+        if (getConnectorProperties() instanceof HttpReceiverProperties) {
+            HttpReceiverProperties receiverProperties = (HttpReceiverProperties) getConnectorProperties();
+            maxThreads = NumberUtils.toInt(receiverProperties.getMaxThreads());
+            maxThreads = maxThreads > 0 ? maxThreads : DEFAULT_MAX_THREADS;
+            asyncDispatch = receiverProperties.isAsyncDispatch();
+            asyncQueueSize = NumberUtils.toInt(receiverProperties.getAsyncQueueSize());
+            asyncQueueSize = asyncQueueSize > 0 ? asyncQueueSize : DEFAULT_ASYNC_QUEUE_SIZE;
+        }
+
         // Initialize contextPath to "" or its value after replacements
         String contextPath = (((IHttpReceiverProperties) getConnectorProperties()).getContextPath() == null ? "" : replacer.replaceValues(((IHttpReceiverProperties) getConnectorProperties()).getContextPath(), channelId, channelName)).trim();
 
@@ -255,11 +279,10 @@ public class HttpReceiver extends SourceConnector implements IHttpReceiver, Bina
         }
 
         try {
-            server = new Server();
-            configuration.configureReceiver(this);
-
             HandlerCollection handlers = new HandlerCollection();
             Handler serverHandler = handlers;
+            Set<String> contextPaths = new HashSet<String>();
+            contextPaths.add(contextPath);
 
             // Add handlers for each static resource
             if (((IHttpReceiverProperties) getConnectorProperties()).getStaticResources() != null) {
@@ -305,6 +328,8 @@ public class HttpReceiver extends SourceConnector implements IHttpReceiver, Bina
                     staticResourcesList.add(new HttpStaticResource(resourceContextPath, staticResource.getResourceType(), staticResource.getValue(), staticResource.getContentType(), queryParameters));
                 }
 
+                contextPaths.addAll(staticResourcesMap.keySet());
+
                 // Iterate through each context path in reverse so that more specific contexts take precedence
                 for (List<HttpStaticResource> staticResourcesList : staticResourcesMap.descendingMap().values()) {
                     for (HttpStaticResource staticResource : staticResourcesList) {
@@ -322,17 +347,22 @@ public class HttpReceiver extends SourceConnector implements IHttpReceiver, Bina
             // Add the main request handler
             ContextHandler contextHandler = new ContextHandler();
             contextHandler.setContextPath(contextPath);
-            contextHandler.setHandler(new RequestHandler());
+            if (asyncDispatch) {
+                dispatchExecutor = createDispatchExecutor();
+                contextHandler.setHandler(new AsyncDispatchHandler(new RequestHandler(), dispatchExecutor));
+            } else {
+                contextHandler.setHandler(new RequestHandler());
+            }
             handlers.addHandler(contextHandler);
 
             // Wrap the handler collection in a security handler if needed
             if (authenticatorProvider != null) {
                 serverHandler = createSecurityHandler(handlers);
             }
-            server.setHandler(serverHandler);
 
-            logger.debug("starting HTTP server with address: " + host + ":" + port);
-            server.start();
+            // Listeners on the same address share one server, and requests are routed by context path
+            logger.debug("adding HTTP listener to server with address: " + host + ":" + port);
+            server = HttpListenerRegistry.getInstance().register(this, contextPaths, serverHandler);
             eventController.dispatchEvent(new ConnectionStatusEvent(getChannelId(), getMetaDataId(), getSourceName(), ConnectionStatusEventType.IDLE));
         } catch (Exception e) {
             eventController.dispatchEvent(new ConnectionStatusEvent(getChannelId(), getMetaDataId(), getSourceName(), ConnectionStatusEventType.FAILURE));
@@ -355,13 +385,32 @@ public class HttpReceiver extends SourceConnector implements IHttpReceiver, Bina
 
         if (server != null) {
             try {
-                logger.debug("stopping HTTP server");
-                server.stop();
+                logger.debug("removing HTTP listener from server");
+                HttpListenerRegistry.getInstance().unregister(this);
             } catch (Exception e) {
                 firstCause = new ConnectorTaskException("Failed to stop HTTP Listener", e.getCause());
+            } finally {
+                server = null;
             }
         }
 
+        if (dispatchExecutor != null) {
+            /*
+             * Requests that are already being processed are allowed to finish, the same as when they
+             * are handled synchronously. Requests still waiting in the queue are failed instead of
+             * being dispatched after the listener has stopped.
+             */
+            dispatchExecutor.shutdown();
+            List<Runnable> queuedRequests = new ArrayList<Runnable>();
+            dispatchExecutor.getQueue().drainTo(queuedRequests);
+
+            for (Runnable queuedRequest : queuedRequests) {
+                AsyncDispatchHandler.reject(queuedRequest);
+            }
+
+            dispatchExecutor = null;
+        }
+
         if (firstCause != null) {
             throw firstCause;
         }
@@ -689,11 +738,13 @@ public class HttpReceiver extends SourceConnector implements IHttpReceiver, Bina
 
         if (!ignorePayload) {
             InputStream requestInputStream = request.getInputStream();
+            long contentLength = request.getContentLengthLong();
             // If a security handler already consumed the entity, get it from the request attribute instead
             try {
                 byte[] entity = (byte[]) request.getAttribute(EntityProvider.ATTRIBUTE_NAME);
                 if (entity != null) {
                     requestInputStream = new ByteArrayInputStream(entity);
+                    contentLength = entity.length;
                 }
             } catch (Exception e) {
             }
@@ -704,6 +755,7 @@ public class HttpReceiver extends SourceConnector implements IHttpReceiver, Bina
                 for (String contentEncoding : contentEncodingList) {
                     if (contentEncoding != null && (contentEncoding.equalsIgnoreCase("gzip") || contentEncoding.equalsIgnoreCase("x-gzip"))) {
                         requestInputStream = new GZIPInputStream(requestInputStream);
+                        contentLength = -1;
                         break;
                     }
                 }
@@ -717,7 +769,9 @@ public class HttpReceiver extends SourceConnector implements IHttpReceiver, Bina
             if (parseMultipart) {
                 requestMessage.setContent(new MimeMultipart(new ByteArrayDataSource(requestInputStream, contentType.toString())));
             } else if (isBinaryContentType(contentType)) {
-                requestMessage.setContent(IOUtils.toByteArray(requestInputStream));
+                requestMessage.setContent(readContent(requestInputStream, contentLength));
+            } else if (contentLength >= 0) {
+                requestMessage.setContent(new String(readContent(requestInputStream, contentLength), HttpMessageConverter.getDefaultHttpCharset(request.getCharacterEncoding())));
             } else {
                 requestMessage.setContent(IOUtils.toString(requestInputStream, HttpMessageConverter.getDefaultHttpCharset(request.getCharacterEncoding())));
             }
@@ -726,6 +780,18 @@ public class HttpReceiver extends SourceConnector implements IHttpReceiver, Bina
         return requestMessage;
     }
 
+    /*
+     * When the length of the body is known up front, it's read straight into an array of that size
+     * instead of through a growing buffer that's copied again at the end.
+     */
+    private byte[] readContent(InputStream inputStream, long contentLength) throws IOException {
+        if (contentLength >= 0 && contentLength <= Integer.MAX_VALUE) {
+            return IOUtils.toByteArray(inputStream, contentLength);
+        }
+
+        return IOUtils.toByteArray(inputStream);
+    }
+
     @Override
     public void populateSourceMap(Object request, HttpRequestMessage requestMessage, Map<String, Object> sourceMap) {
     	if (connectorPlugin != null && connectorPlugin instanceof InteropReceiverPlugin) {
@@ -944,6 +1010,60 @@ public class HttpReceiver extends SourceConnector implements IHttpReceiver, Bina
         return server;
     }
 
+    /*
+     * Requests beyond the channel's processing threads wait in the queue, where they don't hold on
+     * to a thread of the shared server. The queue is bounded so that a slow channel pushes back on
+     * its clients with 503 responses instead of piling up requests.
+     */
+    private ThreadPoolExecutor createDispatchExecutor() {
+        final String channelName = getChannel().getName();
+        final AtomicInteger threadNumber = new AtomicInteger();
+        int threads = Math.max(1, getChannel().getProcessingThreads());
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(asyncQueueSize), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "HTTP Listener Dispatch Thread " + threadNumber.incrementAndGet() + " on " + channelName);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    HttpConfiguration getConfiguration() {
+        return configuration;
+    }
+
+    /**
+     * Returns the connector plugin properties that the HTTP configuration may use to set up the
+     * connector of the server, such as TLS settings. Authentication is done by each listener's own
+     * handler, so its properties are left out.
+     */
+    List<ConnectorPluginProperties> getServerPluginProperties() {
+        List<ConnectorPluginProperties> serverPluginProperties = new ArrayList<ConnectorPluginProperties>();
+
+        if (getConnectorProperties() != null && getConnectorProperties().getPluginProperties() != null) {
+            for (ConnectorPluginProperties pluginProperties : getConnectorProperties().getPluginProperties()) {
+                if (!(pluginProperties instanceof HttpAuthConnectorPluginProperties)) {
+                    serverPluginProperties.add(pluginProperties);
+                }
+            }
+        }
+
+        return serverPluginProperties;
+    }
+
+    /**
+     * Called when this listener is the first one on its address, to let the HTTP configuration add
+     * the connector to the new server.
+     */
+    void configureServer(Server server) throws Exception {
+        this.server = server;
+        configuration.configureReceiver(this);
+    }
+
     public String getHost() {
         return host;
     }
@@ -956,6 +1076,10 @@ public class HttpReceiver extends SourceConnector implements IHttpReceiver, Bina
         return timeout;
     }
 
+    int getMaxThreads() {
+        return maxThreads;
+    }
+
     protected Map<String, List<String>> extractParameters(Request request) {
         Map<String, List<String>> parameterMap = new HashMap<String, List<String>>();
 
@@ -44,6 +44,9 @@ public class HttpReceiverProperties extends ConnectorProperties implements Liste
     private String charset;
     private String contextPath;
     private String timeout;
+    private String maxThreads;
+    private boolean asyncDispatch;
+    private String asyncQueueSize;
     private List<HttpStaticResource> staticResources;
 
     public HttpReceiverProperties() {
@@ -62,6 +65,9 @@ public class HttpReceiverProperties extends ConnectorProperties implements Liste
         this.charset = "UTF-8";
         this.contextPath = "";
         this.timeout = "30000";
+        this.maxThreads = "200";
+        this.asyncDispatch = false;
+        this.asyncQueueSize = "1000";
         this.staticResources = new ArrayList<HttpStaticResource>();
         this.responseHeadersVariable = "";
         this.useResponseHeadersVariable = false;
@@ -85,6 +91,15 @@ public class HttpReceiverProperties extends ConnectorProperties implements Liste
         charset = props.getCharset();
         contextPath = props.getContextPath(); 
         timeout = props.getTimeout();
+        if (props instanceof HttpReceiverProperties) {
+            maxThreads = ((HttpReceiverProperties) props).getMaxThreads();
+            asyncDispatch = ((HttpReceiverProperties) props).isAsyncDispatch();
+            asyncQueueSize = ((HttpReceiverProperties) props).getAsyncQueueSize();
+        } else {
+            maxThreads = "200";
+            asyncDispatch = false;
+            asyncQueueSize = "1000";
+        }
         staticResources = props.getStaticResources();
         responseHeadersVariable = props.getResponseHeadersVariable(); 
         useResponseHeadersVariable = props.isUseHeadersVariable();
@@ -230,6 +245,42 @@ public class HttpReceiverProperties extends ConnectorProperties implements Liste
         this.timeout = timeout;
     }
 
+    /**
+     * The maximum number of request threads of the server. Listeners on the same host and port
+     * share one server, so they must all use the same value.
+     */
+    public String getMaxThreads() {
+        return maxThreads;
+    }
+
+    public void setMaxThreads(String maxThreads) {
+        this.maxThreads = maxThreads;
+    }
+
+    /**
+     * If true, each request is handed off to a thread of the listener while the channel processes
+     * it, instead of holding on to a thread of the server until the response is sent.
+     */
+    public boolean isAsyncDispatch() {
+        return asyncDispatch;
+    }
+
+    public void setAsyncDispatch(boolean asyncDispatch) {
+        this.asyncDispatch = asyncDispatch;
+    }
+
+    /**
+     * The number of requests that may wait for the channel when dispatching asynchronously. Further
+     * requests get a 503 response.
+     */
+    public String getAsyncQueueSize() {
+        return asyncQueueSize;
+    }
+
+    public void setAsyncQueueSize(String asyncQueueSize) {
+        this.asyncQueueSize = asyncQueueSize;
+    }
+
     @Override
     public List<HttpStaticResource> getStaticResources() {
         return staticResources;
@@ -358,6 +409,9 @@ public class HttpReceiverProperties extends ConnectorProperties implements Liste
         purgedProperties.put("responseHeaderChars", responseHeaders.size());
         purgedProperties.put("charset", charset);
         purgedProperties.put("timeout", PurgeUtil.getNumericValue(timeout));
+        purgedProperties.put("maxThreads", PurgeUtil.getNumericValue(maxThreads));
+        purgedProperties.put("asyncDispatch", asyncDispatch);
+        purgedProperties.put("asyncQueueSize", PurgeUtil.getNumericValue(asyncQueueSize));
         return purgedProperties;
     }
 }
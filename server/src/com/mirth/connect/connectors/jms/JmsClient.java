@@ -199,6 +199,14 @@ public class JmsClient implements ExceptionListener {
         return session;
     }
 
+    /**
+     * Creates another client acknowledge session on the same connection, for consumers that run on
+     * their own threads.
+     */
+    public Session createSession() throws JMSException {
+        return connection.createSession(false, Session.CLIENT_ACKNOWLEDGE);
+    }
+
     /*
      * This method is synchronized in case a queued destination is running in "attempt first" mode.
      * The queue thread and the destination's "attempt first" thread could potentially execute this
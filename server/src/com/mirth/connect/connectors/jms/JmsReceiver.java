@@ -10,6 +10,8 @@
 package com.mirth.connect.connectors.jms;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.jms.BytesMessage;
 import javax.jms.Destination;
@@ -18,10 +20,12 @@ import javax.jms.Message;
 import javax.jms.MessageConsumer;
 import javax.jms.MessageListener;
 import javax.jms.ObjectMessage;
+import javax.jms.Session;
 import javax.jms.TextMessage;
 import javax.jms.Topic;
 
 import org.apache.commons.io.output.ByteArrayOutputStream;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import com.mirth.connect.donkey.model.event.ConnectionStatusEventType;
@@ -42,9 +46,16 @@ import com.mirth.connect.server.controllers.EventController;
 import com.mirth.connect.server.util.TemplateValueReplacer;
 
 public class JmsReceiver extends SourceConnector {
+    /*
+     * How long consumer threads wait for a message before checking whether the connector is
+     * stopping, or whether pending acknowledgements are due.
+     */
+    private static final int RECEIVE_TIMEOUT = 1000;
+
     private JmsClient jmsClient;
     private JmsReceiverProperties connectorProperties;
     private EventController eventController = ControllerFactory.getFactory().createEventController();
+    private List<ConsumerThread> consumerThreads = new ArrayList<ConsumerThread>();
     private Logger logger = LogManager.getLogger(getClass());
 
     @Override
@@ -66,20 +77,44 @@ public class JmsReceiver extends SourceConnector {
         String channelName = getChannel().getName();
         String destinationName = replacer.replaceValues(connectorProperties.getDestinationName(), channelId, channelName);
 
+        // Threads left over from before a reconnect exit once their consumers are closed
+        stopConsumerThreads(false);
+
         try {
-            MessageConsumer consumer;
             Destination destination = jmsClient.getDestination(destinationName);
             String selector = replacer.replaceValues(connectorProperties.getSelector(), channelId, channelName);
-
-            if (connectorProperties.isTopic() && connectorProperties.isDurableTopic()) {
-                consumer = jmsClient.getSession().createDurableSubscriber((Topic) destination, connectorProperties.getClientId(), selector, true);
+            int consumers = getConsumerCount(destination);
+            // Channels saved before these settings existed don't have them, so they acknowledge every message
+            int acknowledgeBatchSize = NumberUtils.toInt(connectorProperties.getAcknowledgeBatchSize(), 1);
+            int acknowledgeInterval = NumberUtils.toInt(connectorProperties.getAcknowledgeIntervalMillis(), 1000);
+
+            if (consumers == 1 && acknowledgeBatchSize <= 1) {
+                MessageConsumer consumer = createConsumer(jmsClient.getSession(), destination, selector);
+                consumer.setMessageListener(new JmsReceiverMessageListener(1, 0));
+                logger.debug("Message consumer created");
             } else {
-                consumer = jmsClient.getSession().createConsumer(destination, selector, true);
-            }
+                List<ConsumerThread> threads = new ArrayList<ConsumerThread>();
+
+                for (int i = 1; i <= consumers; i++) {
+                    // Sessions can only be used by one thread, so each consumer gets its own on the shared connection
+                    Session session = i == 1 ? jmsClient.getSession() : jmsClient.createSession();
+                    MessageConsumer consumer = createConsumer(session, destination, selector);
+                    threads.add(new ConsumerThread(consumer, new JmsReceiverMessageListener(acknowledgeBatchSize, acknowledgeInterval), i));
+                }
 
-            consumer.setMessageListener(new JmsReceiverMessageListener());
-            logger.debug("Message consumer created");
+                synchronized (consumerThreads) {
+                    consumerThreads.addAll(threads);
+                }
+
+                for (ConsumerThread thread : threads) {
+                    thread.start();
+                }
+
+                logger.debug(consumers + " message consumers created");
+            }
         } catch (Exception e) {
+            stopConsumerThreads(false);
+
             try {
                 jmsClient.stop();
             } catch (Exception e1) {
@@ -94,6 +129,18 @@ public class JmsReceiver extends SourceConnector {
 
     @Override
     public void onStop() throws ConnectorTaskException {
+        // Consumers finish the messages they are processing and acknowledge them before the connection is closed
+        stopConsumerThreads(true);
+        stopClient();
+    }
+
+    @Override
+    public void onHalt() throws ConnectorTaskException {
+        stopConsumerThreads(false);
+        stopClient();
+    }
+
+    private void stopClient() throws ConnectorTaskException {
         try {
             jmsClient.stop();
         } catch (Exception e) {
@@ -103,9 +150,97 @@ public class JmsReceiver extends SourceConnector {
         eventController.dispatchEvent(new ConnectionStatusEvent(getChannelId(), getMetaDataId(), getSourceName(), ConnectionStatusEventType.DISCONNECTED));
     }
 
-    @Override
-    public void onHalt() throws ConnectorTaskException {
-        onStop();
+    private MessageConsumer createConsumer(Session session, Destination destination, String selector) throws JMSException {
+        if (connectorProperties.isTopic() && connectorProperties.isDurableTopic()) {
+            return session.createDurableSubscriber((Topic) destination, connectorProperties.getClientId(), selector, true);
+        } else {
+            return session.createConsumer(destination, selector, true);
+        }
+    }
+
+    /*
+     * Every consumer of a topic subscription would get its own copy of each message, so only queues
+     * are read by more than one consumer.
+     */
+    private int getConsumerCount(Destination destination) {
+        if (destination instanceof Topic || connectorProperties.isTopic()) {
+            return 1;
+        }
+
+        return Math.max(1, connectorProperties.getSourceConnectorProperties().getProcessingThreads());
+    }
+
+    /**
+     * @param wait
+     *            If true, waits for the threads to finish the messages they are processing and to
+     *            acknowledge them. Otherwise messages that haven't been acknowledged yet are
+     *            delivered again by the broker.
+     */
+    private void stopConsumerThreads(boolean wait) {
+        List<ConsumerThread> threads;
+
+        synchronized (consumerThreads) {
+            threads = new ArrayList<ConsumerThread>(consumerThreads);
+            consumerThreads.clear();
+        }
+
+        for (ConsumerThread thread : threads) {
+            thread.halted = !wait;
+            thread.stopped = true;
+        }
+
+        if (wait) {
+            for (ConsumerThread thread : threads) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /*
+     * Receives messages from one consumer and its session. Messages are received synchronously
+     * instead of with a MessageListener, so that batched acknowledgements are sent by the thread that
+     * owns the session, even when no more messages arrive.
+     */
+    private class ConsumerThread extends Thread {
+        private MessageConsumer consumer;
+        private JmsReceiverMessageListener listener;
+        private volatile boolean stopped = false;
+        private volatile boolean halted = false;
+
+        public ConsumerThread(MessageConsumer consumer, JmsReceiverMessageListener listener, int number) {
+            super("JMS Receiver Consumer Thread " + number + " on " + getChannel().getName() + " (" + getChannelId() + ")");
+            this.consumer = consumer;
+            this.listener = listener;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!stopped) {
+                    Message message = consumer.receive(listener.getReceiveTimeout());
+
+                    if (message != null) {
+                        listener.onMessage(message);
+                    }
+
+                    listener.acknowledgeIfDue(false);
+                }
+
+                if (!halted) {
+                    listener.acknowledgeIfDue(true);
+                }
+            } catch (Exception e) {
+                // The connection was closed, either when stopping or to reconnect
+                if (!stopped) {
+                    logger.debug("JMS consumer stopped receiving messages.", e);
+                }
+            }
+        }
     }
 
     @Override
@@ -114,6 +249,25 @@ public class JmsReceiver extends SourceConnector {
     }
 
     private class JmsReceiverMessageListener implements MessageListener {
+        private int acknowledgeBatchSize;
+        private long acknowledgeInterval;
+        private Message unacknowledgedMessage;
+        private int unacknowledgedCount;
+        private long acknowledgeDeadline;
+
+        /**
+         * @param acknowledgeBatchSize
+         *            The number of messages to acknowledge at once, or 1 to acknowledge every message
+         *            as soon as it is stored.
+         * @param acknowledgeInterval
+         *            The maximum number of milliseconds to wait before acknowledging a batch that
+         *            isn't full.
+         */
+        public JmsReceiverMessageListener(int acknowledgeBatchSize, long acknowledgeInterval) {
+            this.acknowledgeBatchSize = Math.max(1, acknowledgeBatchSize);
+            this.acknowledgeInterval = acknowledgeInterval;
+        }
+
         /*
          * This method is executed for every JMS message received by the MessageConsumer created in
          * onStart()
@@ -151,12 +305,7 @@ public class JmsReceiver extends SourceConnector {
 
                     try {
                         dispatchBatchMessage(batchRawMessage, null);
-
-                        try {
-                            message.acknowledge();
-                        } catch (JMSException e) {
-                            reportError("Failed to acknowledge JMS message", messageId, e);
-                        }
+                        acknowledge(message, messageId, null);
                     } catch (BatchMessageException e) {
                         reportError("Failed to process batch message", messageId, e);
                     }
@@ -164,13 +313,7 @@ public class JmsReceiver extends SourceConnector {
                     try {
                         dispatchResult = dispatchRawMessage(rawMessage);
                         dispatchResult.setAttemptedResponse(true);
-
-                        try {
-                            message.acknowledge();
-                        } catch (JMSException e) {
-                            reportError("Failed to acknowledge JMS message", messageId, e);
-                            dispatchResult.setResponseError("Failed to acknowledge message: " + e.getMessage());
-                        }
+                        acknowledge(message, messageId, dispatchResult);
                     } catch (ChannelException e) {
                         reportError("Failed to process message", messageId, e);
                     } finally {
@@ -183,6 +326,63 @@ public class JmsReceiver extends SourceConnector {
             }
         }
 
+        /*
+         * In client acknowledge mode, acknowledging a message also acknowledges every message that
+         * was received before it on the same session, so a batch is acknowledged with its last
+         * message.
+         */
+        private void acknowledge(Message message, Long messageId, DispatchResult dispatchResult) {
+            if (acknowledgeBatchSize > 1) {
+                if (unacknowledgedCount == 0) {
+                    acknowledgeDeadline = System.currentTimeMillis() + acknowledgeInterval;
+                }
+
+                unacknowledgedMessage = message;
+                unacknowledgedCount++;
+                return;
+            }
+
+            try {
+                message.acknowledge();
+            } catch (JMSException e) {
+                reportError("Failed to acknowledge JMS message", messageId, e);
+
+                if (dispatchResult != null) {
+                    dispatchResult.setResponseError("Failed to acknowledge message: " + e.getMessage());
+                }
+            }
+        }
+
+        /**
+         * Acknowledges the pending batch once it is full or its interval has passed.
+         * 
+         * @param force
+         *            If true, acknowledges any pending messages now.
+         */
+        public void acknowledgeIfDue(boolean force) {
+            if (unacknowledgedCount > 0 && (force || unacknowledgedCount >= acknowledgeBatchSize || System.currentTimeMillis() >= acknowledgeDeadline)) {
+                try {
+                    unacknowledgedMessage.acknowledge();
+                } catch (JMSException e) {
+                    reportError("Failed to acknowledge " + unacknowledgedCount + " JMS messages", null, e);
+                }
+
+                unacknowledgedMessage = null;
+                unacknowledgedCount = 0;
+            }
+        }
+
+        /*
+         * Waits no longer than the time left before the pending batch has to be acknowledged.
+         */
+        public long getReceiveTimeout() {
+            if (unacknowledgedCount > 0) {
+                return Math.max(1, Math.min(RECEIVE_TIMEOUT, acknowledgeDeadline - System.currentTimeMillis()));
+            }
+
+            return RECEIVE_TIMEOUT;
+        }
+
         /**
          * Convert a JMS message into a RawMessage to dispatch to the source connector
          */
@@ -20,6 +20,8 @@ public class JmsReceiverProperties extends JmsConnectorProperties implements Sou
     private String selector;
     private String reconnectIntervalMillis;
     private boolean durableTopic;
+    private String acknowledgeBatchSize;
+    private String acknowledgeIntervalMillis;
 
     public JmsReceiverProperties() {
         super();
@@ -27,6 +29,8 @@ public class JmsReceiverProperties extends JmsConnectorProperties implements Sou
         selector = "";
         reconnectIntervalMillis = "10000";
         durableTopic = false;
+        acknowledgeBatchSize = "1";
+        acknowledgeIntervalMillis = "1000";
     }
 
     @Override
@@ -79,6 +83,30 @@ public class JmsReceiverProperties extends JmsConnectorProperties implements Sou
         this.durableTopic = durableTopic;
     }
 
+    /**
+     * The number of messages to acknowledge at once. A batch is acknowledged through its last
+     * message, so the broker delivers the whole batch again if the connector is halted before then.
+     * 1 acknowledges every message as soon as it is stored.
+     */
+    public String getAcknowledgeBatchSize() {
+        return acknowledgeBatchSize;
+    }
+
+    public void setAcknowledgeBatchSize(String acknowledgeBatchSize) {
+        this.acknowledgeBatchSize = acknowledgeBatchSize;
+    }
+
+    /**
+     * The maximum number of milliseconds to wait before acknowledging a batch that isn't full.
+     */
+    public String getAcknowledgeIntervalMillis() {
+        return acknowledgeIntervalMillis;
+    }
+
+    public void setAcknowledgeIntervalMillis(String acknowledgeIntervalMillis) {
+        this.acknowledgeIntervalMillis = acknowledgeIntervalMillis;
+    }
+
     @Override
     public boolean canBatch() {
         return true;
@@ -90,6 +118,8 @@ public class JmsReceiverProperties extends JmsConnectorProperties implements Sou
         purgedProperties.put("sourceConnectorProperties", sourceConnectorProperties.getPurgedProperties());
         purgedProperties.put("reconnectIntervalMillis", PurgeUtil.getNumericValue(reconnectIntervalMillis));
         purgedProperties.put("durableTopic", durableTopic);
+        purgedProperties.put("acknowledgeBatchSize", PurgeUtil.getNumericValue(acknowledgeBatchSize));
+        purgedProperties.put("acknowledgeIntervalMillis", PurgeUtil.getNumericValue(acknowledgeIntervalMillis));
         return purgedProperties;
     }
 }
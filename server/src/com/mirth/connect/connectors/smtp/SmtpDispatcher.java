@@ -15,8 +15,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
+import java.util.TreeMap;
 
+import javax.mail.Transport;
+import javax.mail.internet.MimeMessage;
+
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.apache.commons.mail.ByteArrayDataSource;
 import org.apache.commons.mail.Email;
 import org.apache.commons.mail.HtmlEmail;
@@ -52,6 +58,7 @@ public class SmtpDispatcher extends DestinationConnector {
 
     private SmtpConfiguration configuration = null;
     private String charsetEncoding;
+    private SmtpTransportPool transportPool = null;
 
     @Override
     public void onDeploy() throws ConnectorTaskException {
@@ -79,13 +86,32 @@ public class SmtpDispatcher extends DestinationConnector {
     public void onUndeploy() throws ConnectorTaskException {}
 
     @Override
-    public void onStart() throws ConnectorTaskException {}
+    public void onStart() throws ConnectorTaskException {
+        // Channels saved before these settings existed don't have them, so they keep the pool off
+        int idleTimeout = NumberUtils.toInt(getConnectorProperties().getConnectionIdleTimeout(), 0);
+
+        if (idleTimeout > 0) {
+            int maxMessages = NumberUtils.toInt(getConnectorProperties().getConnectionMaxMessages(), 0);
+            transportPool = new SmtpTransportPool(idleTimeout * 1000L, maxMessages, getChannel().getName() + " (" + getChannelId() + ") > " + getDestinationName());
+        }
+    }
 
     @Override
-    public void onStop() throws ConnectorTaskException {}
+    public void onStop() throws ConnectorTaskException {
+        closeTransportPool();
+    }
 
     @Override
-    public void onHalt() throws ConnectorTaskException {}
+    public void onHalt() throws ConnectorTaskException {
+        closeTransportPool();
+    }
+
+    private void closeTransportPool() {
+        if (transportPool != null) {
+            transportPool.close();
+            transportPool = null;
+        }
+    }
 
     @Override
     public void replaceConnectorProperties(ConnectorProperties connectorProperties, ConnectorMessage connectorMessage) {
@@ -252,7 +278,7 @@ public class SmtpDispatcher extends DestinationConnector {
              * From the Commons Email JavaDoc: send returns
              * "the message id of the underlying MimeMessage".
              */
-            responseData = email.send();
+            responseData = sendEmail(email, smtpDispatcherProperties);
             responseStatus = Status.SENT;
             responseStatusMessage = "Email sent successfully.";
         } catch (Exception e) {
@@ -269,6 +295,74 @@ public class SmtpDispatcher extends DestinationConnector {
         return new Response(responseStatus, responseData, responseStatusMessage, responseError);
     }
 
+    String sendEmail(Email email, SmtpDispatcherProperties smtpDispatcherProperties) throws Exception {
+        if (transportPool == null) {
+            return email.send();
+        }
+
+        email.buildMimeMessage();
+        MimeMessage message = email.getMimeMessage();
+        message.saveChanges();
+
+        /*
+         * Pooled connections that the server has closed are dropped by borrow before anything is
+         * sent on them, and a new connection is opened instead. Once sendMessage has been called
+         * the message is never sent again here, since the server may already have accepted it.
+         */
+        String transportKey = getTransportKey(smtpDispatcherProperties, email.getMailSession().getProperties());
+        Transport transport = transportPool.borrow(transportKey);
+
+        try {
+            if (transport == null) {
+                transport = email.getMailSession().getTransport();
+                transport.connect();
+            }
+
+            transport.sendMessage(message, message.getAllRecipients());
+        } catch (Exception e) {
+            if (transport != null) {
+                transportPool.discard(transport);
+            }
+            throw e;
+        }
+
+        transportPool.release(transportKey, transport);
+        return message.getMessageID();
+    }
+
+    void setTransportPool(SmtpTransportPool transportPool) {
+        this.transportPool = transportPool;
+    }
+
+    /*
+     * The mail session properties are part of the key because the SMTP configuration class may
+     * set its own SSL properties on them, such as a socket factory or trust settings.
+     */
+    private String getTransportKey(SmtpDispatcherProperties properties, Properties mailProperties) {
+        StringBuilder key = new StringBuilder();
+
+        for (Object value : new Object[] { properties.getSmtpHost(), properties.getSmtpPort(),
+                properties.isOverrideLocalBinding(), properties.getLocalAddress(),
+                properties.getLocalPort(), properties.getTimeout(), properties.getEncryption(),
+                properties.isAuthentication(), properties.getUsername(),
+                properties.getPassword() }) {
+            key.append(value).append('\u0000');
+        }
+
+        // Only the properties set on this session, not the system properties it defaults to
+        Map<String, String> sessionProperties = new TreeMap<String, String>();
+        for (Entry<Object, Object> entry : mailProperties.entrySet()) {
+            sessionProperties.put(String.valueOf(entry.getKey()), String.valueOf(entry.getValue()));
+        }
+
+        for (Entry<String, String> entry : sessionProperties.entrySet()) {
+            key.append(entry.getKey()).append('=').append(entry.getValue()).append('\u0000');
+        }
+
+        // Hashed so that passwords aren't kept in the pool
+        return DigestUtils.sha256Hex(key.toString());
+    }
+
     Map<String, String> getHeaders(SmtpDispatcherProperties smtpDispatcherProperties, ConnectorMessage connectorMessage) {
         Map<String, String> headers;
 
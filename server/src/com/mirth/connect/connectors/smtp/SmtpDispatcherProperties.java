@@ -35,6 +35,8 @@ public class SmtpDispatcherProperties extends ConnectorProperties implements Des
     private String localAddress;
     private String localPort;
     private String timeout;
+    private String connectionIdleTimeout;
+    private String connectionMaxMessages;
     private String encryption;
     private boolean authentication;
     private String username;
@@ -64,6 +66,8 @@ public class SmtpDispatcherProperties extends ConnectorProperties implements Des
         this.localAddress = "0.0.0.0";
         this.localPort = "0";
         this.timeout = "5000";
+        this.connectionIdleTimeout = "0";
+        this.connectionMaxMessages = "100";
         this.encryption = "none";
         this.authentication = false;
         this.username = "";
@@ -95,6 +99,8 @@ public class SmtpDispatcherProperties extends ConnectorProperties implements Des
         localAddress = props.getLocalAddress();
         localPort = props.getLocalPort();
         timeout = props.getTimeout();
+        connectionIdleTimeout = props.getConnectionIdleTimeout();
+        connectionMaxMessages = props.getConnectionMaxMessages();
         encryption = props.getEncryption();
         authentication = props.isAuthentication();
         username = props.getUsername();
@@ -171,6 +177,22 @@ public class SmtpDispatcherProperties extends ConnectorProperties implements Des
         this.timeout = timeout;
     }
 
+    public String getConnectionIdleTimeout() {
+        return connectionIdleTimeout;
+    }
+
+    public void setConnectionIdleTimeout(String connectionIdleTimeout) {
+        this.connectionIdleTimeout = connectionIdleTimeout;
+    }
+
+    public String getConnectionMaxMessages() {
+        return connectionMaxMessages;
+    }
+
+    public void setConnectionMaxMessages(String connectionMaxMessages) {
+        this.connectionMaxMessages = connectionMaxMessages;
+    }
+
     @Override
     public String getEncryption() {
         return encryption;
@@ -459,6 +481,8 @@ public class SmtpDispatcherProperties extends ConnectorProperties implements Des
         purgedProperties.put("destinationConnectorProperties", destinationConnectorProperties.getPurgedProperties());
         purgedProperties.put("overrideLocalBinding", overrideLocalBinding);
         purgedProperties.put("timeout", PurgeUtil.getNumericValue(timeout));
+        purgedProperties.put("connectionIdleTimeout", PurgeUtil.getNumericValue(connectionIdleTimeout));
+        purgedProperties.put("connectionMaxMessages", PurgeUtil.getNumericValue(connectionMaxMessages));
         purgedProperties.put("encryption", encryption);
         purgedProperties.put("authentication", authentication);
         purgedProperties.put("headerChars", headers.size());
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.connectors.smtp;
+
+import javax.mail.Transport;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.mirth.connect.server.util.KeyedConnectionPool;
+
+/**
+ * Keeps the connections of an SMTP Sender open between messages, so that each email doesn't have
+ * to connect, start TLS and authenticate again. Connections are only reused for the same host,
+ * port, credentials and encryption.
+ */
+public class SmtpTransportPool extends KeyedConnectionPool<Transport> {
+
+    private Logger logger = LogManager.getLogger(getClass());
+
+    /**
+     * @param idleTimeout
+     *            The number of milliseconds a connection may stay open without being used.
+     * @param maxMessages
+     *            The maximum number of messages to send on one connection, or 0 for no limit.
+     * @param name
+     *            Used to name the thread that closes idle connections.
+     */
+    public SmtpTransportPool(long idleTimeout, int maxMessages, String name) {
+        super(idleTimeout, maxMessages, "SMTP Connection Reaper on " + name);
+    }
+
+    @Override
+    protected boolean isConnected(Transport transport) {
+        // For SMTP this sends a NOOP
+        return transport.isConnected();
+    }
+
+    @Override
+    protected void closeConnection(Transport transport) {
+        try {
+            transport.close();
+        } catch (Throwable t) {
+            logger.debug("Error closing SMTP connection.", t);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.connectors.vm;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.mirth.connect.donkey.model.message.RawMessage;
+import com.mirth.connect.donkey.server.channel.ChannelException;
+import com.mirth.connect.donkey.server.channel.DispatchResult;
+import com.mirth.connect.donkey.server.message.batch.BatchMessageException;
+import com.mirth.connect.server.controllers.EngineController;
+
+/**
+ * Groups messages that are routed to the same channel at the same time, so that the target channel
+ * stores and queues them in one transaction. The first thread to arrive dispatches its own message
+ * along with every message that queued up behind it while the previous group was being dispatched.
+ * The other threads wait for the result of their own message.
+ *
+ * If a group fails, nothing in it was stored. The failure may have been caused by just one of its
+ * messages, so each thread then dispatches its own message on its own.
+ */
+class VmDispatchBatcher {
+
+    private static final int MAX_BATCH_SIZE = 1000;
+    private static final ConcurrentMap<String, VmDispatchBatcher> batchers = new ConcurrentHashMap<String, VmDispatchBatcher>();
+
+    private String channelId;
+    private List<PendingMessage> pendingMessages = new ArrayList<PendingMessage>();
+    private boolean dispatching = false;
+
+    static VmDispatchBatcher getInstance(String channelId) {
+        VmDispatchBatcher batcher = batchers.get(channelId);
+
+        if (batcher == null) {
+            batcher = new VmDispatchBatcher(channelId);
+            VmDispatchBatcher existing = batchers.putIfAbsent(channelId, batcher);
+            if (existing != null) {
+                batcher = existing;
+            }
+        }
+
+        return batcher;
+    }
+
+    /**
+     * Forgets the groups of the given channels, once the channels routing to them are undeployed or
+     * they are no longer deployed themselves. Messages that are already waiting are still dispatched.
+     */
+    static void removeInstances(Collection<String> channelIds) {
+        batchers.keySet().removeAll(channelIds);
+    }
+
+    VmDispatchBatcher(String channelId) {
+        this.channelId = channelId;
+    }
+
+    DispatchResult dispatch(EngineController engineController, RawMessage rawMessage) throws ChannelException {
+        PendingMessage pendingMessage = new PendingMessage(rawMessage);
+        List<PendingMessage> batch;
+
+        synchronized (this) {
+            pendingMessages.add(pendingMessage);
+            boolean interrupted = false;
+
+            while (dispatching && !pendingMessage.done) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    if (pendingMessages.remove(pendingMessage)) {
+                        // Nobody has picked up the message yet, so it is safe to give up on it
+                        throw new ChannelException(true, e);
+                    }
+
+                    // The message is already being dispatched, so wait for its result
+                    interrupted = true;
+                }
+            }
+
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+
+            if (pendingMessage.done) {
+                return getResult(engineController, pendingMessage);
+            }
+
+            dispatching = true;
+            pendingMessages.remove(pendingMessage);
+
+            // Anything past the maximum is left for the next thread so that one group doesn't grow without bound
+            List<PendingMessage> waitingMessages = pendingMessages.subList(0, Math.min(pendingMessages.size(), MAX_BATCH_SIZE - 1));
+            batch = new ArrayList<PendingMessage>(waitingMessages.size() + 1);
+            batch.add(pendingMessage);
+            batch.addAll(waitingMessages);
+            waitingMessages.clear();
+        }
+
+        try {
+            List<RawMessage> rawMessages = new ArrayList<RawMessage>(batch.size());
+            for (PendingMessage message : batch) {
+                rawMessages.add(message.rawMessage);
+            }
+
+            List<DispatchResult> dispatchResults = engineController.dispatchRawMessages(channelId, rawMessages, false, true);
+
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).dispatchResult = dispatchResults.get(i);
+            }
+        } catch (Throwable t) {
+            for (PendingMessage message : batch) {
+                message.throwable = t;
+            }
+
+            /*
+             * Nothing was stored, so the messages are dispatched again one at a time. An interrupted
+             * thread gives up on its own message, but not on the others in its group.
+             */
+            if (batch.size() > 1) {
+                boolean interrupted = isInterrupted(t);
+
+                for (PendingMessage message : batch) {
+                    message.dispatchAlone = message != pendingMessage || !interrupted;
+                }
+            }
+        } finally {
+            synchronized (this) {
+                for (PendingMessage message : batch) {
+                    message.done = true;
+                }
+
+                dispatching = false;
+                notifyAll();
+            }
+        }
+
+        return getResult(engineController, pendingMessage);
+    }
+
+    synchronized int getPendingCount() {
+        return pendingMessages.size();
+    }
+
+    private DispatchResult getResult(EngineController engineController, PendingMessage pendingMessage) throws ChannelException {
+        if (pendingMessage.dispatchAlone) {
+            try {
+                return engineController.dispatchRawMessage(channelId, pendingMessage.rawMessage, false, true);
+            } catch (BatchMessageException e) {
+                throw new ChannelException(false, e);
+            }
+        }
+
+        return pendingMessage.getResult();
+    }
+
+    private boolean isInterrupted(Throwable t) {
+        return Thread.currentThread().isInterrupted() || t instanceof InterruptedException || t.getCause() instanceof InterruptedException;
+    }
+
+    private static class PendingMessage {
+        private RawMessage rawMessage;
+        private DispatchResult dispatchResult;
+        private Throwable throwable;
+        private boolean dispatchAlone;
+        private boolean done;
+
+        private PendingMessage(RawMessage rawMessage) {
+            this.rawMessage = rawMessage;
+        }
+
+        private DispatchResult getResult() throws ChannelException {
+            if (throwable instanceof ChannelException) {
+                throw (ChannelException) throwable;
+            } else if (throwable != null) {
+                throw new ChannelException(false, throwable);
+            } else if (dispatchResult != null && dispatchResult.getMessageId() == 0 && dispatchResult.getChannelException() != null) {
+                // The message failed before it was stored, the same as if it had been dispatched on its own
+                throw dispatchResult.getChannelException();
+            }
+
+            return dispatchResult;
+        }
+    }
+}
@@ -10,8 +10,11 @@
 package com.mirth.connect.connectors.vm;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.codec.binary.StringUtils;
 import org.apache.commons.collections4.CollectionUtils;
@@ -29,10 +32,12 @@ import com.mirth.connect.donkey.server.ConnectorTaskException;
 import com.mirth.connect.donkey.server.Constants;
 import com.mirth.connect.donkey.server.channel.DestinationConnector;
 import com.mirth.connect.donkey.server.channel.DispatchResult;
+import com.mirth.connect.donkey.server.channel.IChannel;
 import com.mirth.connect.donkey.server.event.ConnectionStatusEvent;
 import com.mirth.connect.donkey.server.event.ErrorEvent;
 import com.mirth.connect.server.controllers.ConfigurationController;
 import com.mirth.connect.server.controllers.ControllerFactory;
+import com.mirth.connect.server.controllers.EngineController;
 import com.mirth.connect.server.controllers.EventController;
 import com.mirth.connect.server.controllers.ExtensionController;
 import com.mirth.connect.server.util.GlobalChannelVariableStore;
@@ -54,6 +59,7 @@ public class VmDispatcher extends DestinationConnector {
     private GlobalVariableStore globalMap;
     private GlobalChannelVariableStore globalChannelMap;
     private Logger logger = LogManager.getLogger(getClass());
+    private Set<String> batchedChannelIds = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
 
     @Override
     public void onDeploy() throws ConnectorTaskException {
@@ -63,7 +69,10 @@ public class VmDispatcher extends DestinationConnector {
     }
 
     @Override
-    public void onUndeploy() throws ConnectorTaskException {}
+    public void onUndeploy() throws ConnectorTaskException {
+        VmDispatchBatcher.removeInstances(batchedChannelIds);
+        batchedChannelIds.clear();
+    }
 
     @Override
     public void onStart() throws ConnectorTaskException {
@@ -155,7 +164,26 @@ public class VmDispatcher extends DestinationConnector {
                 // Remove the reference to the raw message so its doesn't hold the entire message in memory.
                 data = null;
 
-                DispatchResult dispatchResult = ControllerFactory.getFactory().createEngineController().dispatchRawMessage(targetChannelId, rawMessage, false, true);
+                EngineController engineController = ControllerFactory.getFactory().createEngineController();
+                IChannel targetChannel = engineController.getDeployedChannel(targetChannelId);
+                DispatchResult dispatchResult;
+
+                /*
+                 * When the target channel queues on its source, messages that other threads are
+                 * routing to it at the same time are stored and queued together. Otherwise each
+                 * message is processed before the response is returned, so it is dispatched alone.
+                 */
+                if (targetChannel != null && !targetChannel.getSourceConnector().isRespondAfterProcessing() && !targetChannel.getSourceConnector().isProcessBatch()) {
+                    batchedChannelIds.add(targetChannelId);
+                    dispatchResult = VmDispatchBatcher.getInstance(targetChannelId).dispatch(engineController, rawMessage);
+                } else {
+                    if (targetChannel == null && batchedChannelIds.remove(targetChannelId)) {
+                        // The target channel was undeployed
+                        VmDispatchBatcher.removeInstances(Collections.singleton(targetChannelId));
+                    }
+
+                    dispatchResult = engineController.dispatchRawMessage(targetChannelId, rawMessage, false, true);
+                }
 
                 if (dispatchResult != null && dispatchResult.getSelectedResponse() != null) {
                     // If a response was returned from the channel then use that message
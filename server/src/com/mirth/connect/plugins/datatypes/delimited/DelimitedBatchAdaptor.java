@@ -9,7 +9,6 @@
 
 package com.mirth.connect.plugins.datatypes.delimited;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Reader;
 import java.util.ArrayList;
@@ -42,6 +41,7 @@ import com.mirth.connect.server.util.javascript.JavaScriptScopeUtil;
 import com.mirth.connect.server.util.javascript.JavaScriptTask;
 import com.mirth.connect.server.util.javascript.JavaScriptUtil;
 import com.mirth.connect.server.util.javascript.MirthContextFactory;
+import com.mirth.connect.util.LookaheadReader;
 import com.mirth.connect.util.StringUtil;
 
 public class DelimitedBatchAdaptor extends DebuggableBatchAdaptor {
@@ -49,7 +49,7 @@ public class DelimitedBatchAdaptor extends DebuggableBatchAdaptor {
     private ContextFactoryController contextFactoryController = ControllerFactory.getFactory().createContextFactoryController();
     private DelimitedSerializationProperties serializationProperties;
     private DelimitedReader delimitedReader = null;
-    private BufferedReader bufferedReader;
+    private LookaheadReader lookaheadReader;
     private boolean skipHeader;
     private Integer groupingColumnIndex;
     private String batchMessageDelimiter = null;
@@ -82,7 +82,7 @@ public class DelimitedBatchAdaptor extends DebuggableBatchAdaptor {
         if (batchRawMessage.getBatchMessageSource() instanceof BatchMessageReader) {
             if (batchSequenceId == 1) {
                 BatchMessageReader batchMessageReader = (BatchMessageReader) batchRawMessage.getBatchMessageSource();
-                bufferedReader = new BufferedReader(batchMessageReader.getReader());
+                lookaheadReader = delimitedReader.createReader(batchMessageReader.getReader());
                 skipHeader = true;
             }
             return getMessageFromReader();
@@ -94,7 +94,7 @@ public class DelimitedBatchAdaptor extends DebuggableBatchAdaptor {
     }
 
     private String getMessageFromReader() throws Exception {
-        String message = getMessage(bufferedReader, skipHeader);
+        String message = getMessage(lookaheadReader, skipHeader);
         skipHeader = false;
         return message;
     }
@@ -107,18 +107,17 @@ public class DelimitedBatchAdaptor extends DebuggableBatchAdaptor {
      * Finds the next message in the input stream and returns it.
      * 
      * @param in
-     *            The input stream (it's a BufferedReader, because operations on it require
-     *            in.mark()).
+     *            The input stream.
      * @param skipHeader
      *            Pass true to skip the configured number of header rows, otherwise false.
      * @return The next message, or null if there are no more messages.
      * @throws IOException
      * @throws InterruptedException
      */
-    private String getMessage(final BufferedReader in, final boolean skipHeader) throws Exception {
+    private String getMessage(final LookaheadReader in, final boolean skipHeader) throws Exception {
         String recDelim = delimitedReader.getRecordDelimiter();
         int ch;
-        String lookAhead = "";
+        boolean atRecDelim = false;
         DelimitedBatchProperties batchProperties = (DelimitedBatchProperties) getBatchProperties();
         // If skipping the header, and the option is configured, consume all the skip records,
         // including the record delimiters
@@ -126,13 +125,11 @@ public class DelimitedBatchAdaptor extends DebuggableBatchAdaptor {
             for (int i = 0; i < batchProperties.getBatchSkipRecords(); i++) {
                 do {
                     ch = delimitedReader.getChar(in, null);
-                    lookAhead = delimitedReader.peekChars(in, recDelim.length());
-                } while (ch != -1 && !lookAhead.equals(recDelim));
+                    atRecDelim = delimitedReader.lookingAt(in, recDelim);
+                } while (ch != -1 && !atRecDelim);
 
-                if (lookAhead.equals(recDelim)) {
-                    for (int j = 0; j < recDelim.length(); j++) {
-                        ch = delimitedReader.getChar(in, null);
-                    }
+                if (atRecDelim) {
+                    delimitedReader.consume(in, recDelim, null);
                 }
             }
         }
@@ -162,13 +159,10 @@ public class DelimitedBatchAdaptor extends DebuggableBatchAdaptor {
                 }
 
                 // If the next sequence of characters is the message delimiter
-                lookAhead = delimitedReader.peekChars(in, batchMessageDelimiter.length());
-                if (lookAhead.equals(batchMessageDelimiter)) {
+                if (delimitedReader.lookingAt(in, batchMessageDelimiter)) {
 
                     // Consume it.
-                    for (int i = 0; i < batchMessageDelimiter.length(); i++) {
-                        ch = delimitedReader.getChar(in, null);
-                    }
+                    delimitedReader.consume(in, batchMessageDelimiter, null);
 
                     // Append it if it is being included
                     if (batchProperties.isBatchMessageDelimiterIncluded()) {
@@ -9,8 +9,8 @@
 
 package com.mirth.connect.plugins.datatypes.delimited;
 
-import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.Reader;
 import java.util.ArrayList;
 
 import org.apache.commons.lang3.StringUtils;
@@ -21,6 +21,7 @@ import org.xml.sax.ContentHandler;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
+import com.mirth.connect.util.LookaheadReader;
 import com.mirth.connect.util.StringUtil;
 
 public class DelimitedReader extends SAXParser {
@@ -81,7 +82,7 @@ public class DelimitedReader extends SAXParser {
         // output:
         // o columnNames A list of column names (taken from either file header,
         // or supplied by user).
-        BufferedReader in = new BufferedReader(input.getCharacterStream());
+        LookaheadReader in = createReader(input.getCharacterStream());
 
         // Start the document
         String documentHead = "delimited";
@@ -141,19 +142,25 @@ public class DelimitedReader extends SAXParser {
         contentHandler.endDocument();
     }
 
+    /**
+     * Returns a reader over the given input to pass to {@link #getRecord(LookaheadReader, StringBuilder)}.
+     */
+    public LookaheadReader createReader(Reader reader) {
+        return new LookaheadReader(reader);
+    }
+
     /**
      * Get the next record from the input stream, and consume the record delimiter, if any.
      * 
      * @param in
-     *            The input stream (it's a BufferedReader, because operations on it require
-     *            in.mark()).
+     *            The input stream, from {@link #createReader(Reader)}.
      * @param rawText
      *            Optional StringBuilder used to return a copy of the raw text read by this method.
      * @return The record represented as a collection of column values, or null if there is no next
      *         record.
      * @throws IOException
      */
-    public ArrayList<String> getRecord(BufferedReader in, StringBuilder rawText) throws IOException {
+    public ArrayList<String> getRecord(LookaheadReader in, StringBuilder rawText) throws IOException {
 
         // If there is an ungotten (pushed back) record, consume it and return
         // it, rather
@@ -172,7 +179,7 @@ public class DelimitedReader extends SAXParser {
             return null;
 
         String recDelim = recordDelimiter;
-        String lookAhead = "";
+        boolean atRecDelim = false;
         ArrayList<String> record = new ArrayList<String>();
 
         // If column widths are set, separate and get each column's value based off of its set width
@@ -183,11 +190,11 @@ public class DelimitedReader extends SAXParser {
 
                 // Read through the stream at the set length for this column width
                 StringBuilder columnValue = new StringBuilder();
-                lookAhead = peekChars(in, recDelim.length());
+                atRecDelim = lookingAt(in, recDelim);
                 for (int j = 0; j < serializationProperties.getColumnWidths()[i]; j++) {
 
                     // If the next characters are the record delimiter
-                    if (lookAhead.equals(recDelim)) {
+                    if (atRecDelim) {
                         break;
                     }
 
@@ -198,30 +205,28 @@ public class DelimitedReader extends SAXParser {
                     }
 
                     columnValue.append((char) ch);
-                    lookAhead = peekChars(in, recDelim.length());
+                    atRecDelim = lookingAt(in, recDelim);
                 }
 
                 // Add column value to the record
                 record.add(ltrim(columnValue.toString()));
 
                 // Break on end of input or record delimiter
-                if (ch == -1 || lookAhead.equals(recDelim)) {
+                if (ch == -1 || atRecDelim) {
                     break;
                 }
             }
 
             // Consume trailing characters, if any, up until end of input stream or
             // record delimiter
-            while (ch != -1 && !lookAhead.equals(recDelim)) {
+            while (ch != -1 && !atRecDelim) {
                 ch = getChar(in, rawText);
-                lookAhead = peekChars(in, recDelim.length());
+                atRecDelim = lookingAt(in, recDelim);
             }
 
             // Consume record delimiter
-            if (lookAhead.equals(recDelim)) {
-                for (int i = 0; i < recDelim.length(); i++) {
-                    ch = getChar(in, rawText);
-                }
+            if (atRecDelim) {
+                consume(in, recDelim, rawText);
             }
         } else {
             String colDelim = ","; // default
@@ -235,27 +240,19 @@ public class DelimitedReader extends SAXParser {
                 record.add(columnValue);
 
                 // Break at end of input
-                ch = peekChar(in);
-                if (ch == -1) {
-                    ch = getChar(in, rawText);
+                if (peekChar(in) == -1) {
                     break;
                 }
 
                 // Consume record delimiter and break
-                lookAhead = peekChars(in, recDelim.length());
-                if (lookAhead.equals(recDelim)) {
-                    for (int i = 0; i < recDelim.length(); i++) {
-                        ch = getChar(in, rawText);
-                    }
+                if (lookingAt(in, recDelim)) {
+                    consume(in, recDelim, rawText);
                     break;
                 }
 
                 // Consume column delimiter
-                lookAhead = peekChars(in, colDelim.length());
-                if (lookAhead.equals(colDelim)) {
-                    for (int i = 0; i < colDelim.length(); i++) {
-                        ch = getChar(in, rawText);
-                    }
+                if (lookingAt(in, colDelim)) {
+                    consume(in, colDelim, rawText);
                 }
             }
         }
@@ -281,14 +278,13 @@ public class DelimitedReader extends SAXParser {
      * Get the next column value from the input stream, and consume the column delimiter, if any.
      * 
      * @param in
-     *            The input stream (it's a BufferedReader, because operations on it require
-     *            in.mark()).
+     *            The input stream.
      * @param rawText
      *            Optional StringBuilder used to return a copy of the raw text read by this method.
      * @return The column value, or null if there is no next column value.
      * @throws IOException
      */
-    private String getColumnValue(BufferedReader in, StringBuilder rawText) throws IOException {
+    private String getColumnValue(LookaheadReader in, StringBuilder rawText) throws IOException {
 
         // Return empty string if input stream is empty
         int ch;
@@ -320,18 +316,15 @@ public class DelimitedReader extends SAXParser {
 
         // If the column value isn't quoted
         boolean inQuote = false;
-        String lookAhead = peekChars(in, theQuoteToken.length());
-        if (!lookAhead.equals(theQuoteToken)) {
+        if (!lookingAt(in, theQuoteToken)) {
             for (;;) {
                 // Break on record delimiter
-                lookAhead = peekChars(in, recDelim.length());
-                if (lookAhead.equals(recDelim)) {
+                if (lookingAt(in, recDelim)) {
                     break;
                 }
 
                 // Break on column delimiter
-                lookAhead = peekChars(in, colDelim.length());
-                if (lookAhead.equals(colDelim)) {
+                if (lookingAt(in, colDelim)) {
                     break;
                 }
 
@@ -350,9 +343,11 @@ public class DelimitedReader extends SAXParser {
             inQuote = true;
 
             // Get the quote token
-            for (int i = 0; i < theQuoteToken.length(); i++) {
-                ch = getChar(in, rawText);
-            }
+            consume(in, theQuoteToken, rawText);
+
+            String doubledQuoteToken = theQuoteToken + theQuoteToken;
+            String escapedQuoteToken = theQuoteEscapeToken + theQuoteToken;
+            String escapedEscapeToken = theQuoteEscapeToken + theQuoteEscapeToken;
 
             for (;;) {
                 // Process escaped quotes
@@ -361,75 +356,55 @@ public class DelimitedReader extends SAXParser {
                     if (serializationProperties.isEscapeWithDoubleQuote()) {
 
                         // Then check if the next few characters are two quote tokens
-                        lookAhead = peekChars(in, theQuoteToken.length() * 2);
-                        if (lookAhead.equals(theQuoteToken + theQuoteToken)) {
+                        if (lookingAt(in, doubledQuoteToken)) {
                             // If so, consume the first one
-                            for (int i = 0; i < theQuoteToken.length(); i++) {
-                                getChar(in, rawText);
-                            }
+                            consume(in, theQuoteToken, rawText);
 
                             // And add the second one (the escaped quote)
-                            for (int i = 0; i < theQuoteToken.length(); i++) {
-                                ch = getChar(in, rawText);
-                                columnValue.append((char) ch);
-                            }
+                            consume(in, theQuoteToken, rawText);
+                            columnValue.append(theQuoteToken);
                             continue;
                         }
                     } else {
                         // First check if the next few characters are an escaped quote token
-                        lookAhead = peekChars(in, theQuoteEscapeToken.length() + theQuoteToken.length());
-                        if (lookAhead.equals(theQuoteEscapeToken + theQuoteToken)) {
+                        if (lookingAt(in, escapedQuoteToken)) {
                             // Consume the escape token
-                            for (int i = 0; i < theQuoteEscapeToken.length(); i++) {
-                                getChar(in, rawText);
-                            }
+                            consume(in, theQuoteEscapeToken, rawText);
 
                             // And add the escaped quote token
-                            for (int i = 0; i < theQuoteToken.length(); i++) {
-                                ch = getChar(in, rawText);
-                                columnValue.append((char) ch);
-                            }
+                            consume(in, theQuoteToken, rawText);
+                            columnValue.append(theQuoteToken);
                             continue;
                         }
 
                         // If not, then check if the next few characters are an escaped escape token
-                        lookAhead = peekChars(in, theQuoteEscapeToken.length() * 2);
-                        if (lookAhead.equals(theQuoteEscapeToken + theQuoteEscapeToken)) {
+                        if (lookingAt(in, escapedEscapeToken)) {
                             // Consume the escape token
-                            for (int i = 0; i < theQuoteEscapeToken.length(); i++) {
-                                getChar(in, rawText);
-                            }
+                            consume(in, theQuoteEscapeToken, rawText);
 
                             // And add the escaped escape token
-                            for (int i = 0; i < theQuoteEscapeToken.length(); i++) {
-                                ch = getChar(in, rawText);
-                                columnValue.append((char) ch);
-                            }
+                            consume(in, theQuoteEscapeToken, rawText);
+                            columnValue.append(theQuoteEscapeToken);
                             continue;
                         }
                     }
                 }
 
                 // If the next characters are a quote token
-                lookAhead = peekChars(in, theQuoteToken.length());
-                if (inQuote && lookAhead.equals(theQuoteToken)) {
+                if (inQuote && lookingAt(in, theQuoteToken)) {
                     // This is the ending quote token. Get it.
-                    for (int i = 0; i < theQuoteToken.length(); i++) {
-                        ch = getChar(in, rawText);
-                    }
+                    consume(in, theQuoteToken, rawText);
                     inQuote = false;
                     continue;
                 }
 
                 // Break on record delimiter
-                lookAhead = peekChars(in, recDelim.length());
-                if (!inQuote && lookAhead.equals(recDelim)) {
+                if (!inQuote && lookingAt(in, recDelim)) {
                     break;
                 }
 
                 // Break on column delimiter
-                lookAhead = peekChars(in, colDelim.length());
-                if (!inQuote && lookAhead.equals(colDelim)) {
+                if (!inQuote && lookingAt(in, colDelim)) {
                     break;
                 }
 
@@ -502,49 +477,26 @@ public class DelimitedReader extends SAXParser {
         return quoteEscapeToken;
     }
 
-    /**
-     * This low level reader gets the next non-ignored character from the input, and returns it.
-     * 
-     * @param in
-     *            The input stream (it's a BufferedReader, because operations on it require
-     *            in.mark()).
-     * @param remark
-     *            Iff true, remarks the input stream after reading an ignored character.
-     * @return The next non-ignored character read, or -1 if end of input stream.
-     * @throws IOException
-     */
-    private int getNonIgnoredChar(BufferedReader in, boolean remark) throws IOException {
-        int ch;
-
-        // If configured, gobble \r
-        if (serializationProperties.isIgnoreCR()) {
-            while (((char) (ch = in.read())) == '\r') {
-                if (remark) {
-                    in.mark(1);
-                }
-            }
-        } else {
-            ch = in.read();
-        }
-
-        return ch;
-    }
-
     /**
      * Get the next character from the input, and return it.
      * 
      * @param in
-     *            The input stream (it's a BufferedReader, because operations on it require
-     *            in.mark()).
+     *            The input stream.
      * @param rawText
      *            Optional StringBuilder used to return a copy of the raw text read by this method.
      * @return The next character read from the input stream, or -1 if the end of input stream is
      *         reached.
      * @throws IOException
      */
-    public int getChar(BufferedReader in, StringBuilder rawText) throws IOException {
-        in.mark(1);
-        int ch = getNonIgnoredChar(in, true);
+    public int getChar(LookaheadReader in, StringBuilder rawText) throws IOException {
+        int ch = in.read();
+
+        // If configured, gobble \r
+        if (serializationProperties.isIgnoreCR()) {
+            while (ch == '\r') {
+                ch = in.read();
+            }
+        }
 
         // If building up the raw text, and a character was successfully read,
         // append it to the raw text
@@ -559,49 +511,64 @@ public class DelimitedReader extends SAXParser {
      * Look ahead one character in the stream, return it, but don't consume it.
      * 
      * @param in
-     *            The input stream (it's a BufferedReader, because operations on it require
-     *            in.mark()).
+     *            The input stream.
      * @return The next character in the stream, or -1 if end of stream reached.
      * @throws IOException
      */
-    public int peekChar(BufferedReader in) throws IOException {
-        in.mark(1);
-        int ch = getNonIgnoredChar(in, true);
-        in.reset();
+    public int peekChar(LookaheadReader in) throws IOException {
+        if (!serializationProperties.isIgnoreCR()) {
+            return in.peek();
+        }
+
+        int offset = 0;
+        int ch;
+        while ((ch = in.peek(offset++)) == '\r') {}
         return ch;
     }
 
     /**
-     * Look ahead n characters in the stream, return them, but don't consume them.
+     * Look ahead in the stream and check whether the next characters are the given token, without
+     * consuming them or allocating anything.
      * 
      * @param in
-     *            The input stream (it's a BufferedReader, because operations on it require
-     *            in.mark()).
-     * @param n
-     *            The number of characters to read.
-     * @return A string containing the next n characters without consuming them. Returns an empty
-     *         string if no characters are read.
+     *            The input stream.
+     * @param token
+     *            The characters to look for.
+     * @return True if the next characters in the stream (ignoring \r if configured) are the token.
      * @throws IOException
      */
-    public String peekChars(BufferedReader in, int n) throws IOException {
-        // Mark with a little extra (64 characters) in case the code skips over
-        // some ignored characters (e.g. \r's)
-        // Beyond 64 ignored characters may cause a problem on reset().
-        in.mark(n + 64);
-        StringBuilder result = new StringBuilder();
-        while (n > 0) {
-
-            int ch = getNonIgnoredChar(in, false);
-
-            if (ch == -1) {
-                break;
+    public boolean lookingAt(LookaheadReader in, String token) throws IOException {
+        if (!serializationProperties.isIgnoreCR()) {
+            return in.lookingAt(token);
+        }
+
+        int offset = 0;
+        for (int i = 0; i < token.length(); i++) {
+            int ch;
+            while ((ch = in.peek(offset++)) == '\r') {}
+
+            if (ch != token.charAt(i)) {
+                return false;
             }
+        }
+        return true;
+    }
 
-            result.append((char) ch);
-            n--;
+    /**
+     * Consume the given token, which the caller has already checked is next in the stream.
+     * 
+     * @param in
+     *            The input stream.
+     * @param token
+     *            The token to consume.
+     * @param rawText
+     *            Optional StringBuilder used to return a copy of the raw text read by this method.
+     * @throws IOException
+     */
+    public void consume(LookaheadReader in, String token, StringBuilder rawText) throws IOException {
+        for (int i = 0; i < token.length(); i++) {
+            getChar(in, rawText);
         }
-        in.reset();
-        return result.toString();
     }
 
     /**
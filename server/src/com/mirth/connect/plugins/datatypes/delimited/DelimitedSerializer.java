@@ -9,8 +9,10 @@
 
 package com.mirth.connect.plugins.datatypes.delimited;
 
+import java.io.Reader;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.io.Writer;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -18,7 +20,6 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.xml.sax.InputSource;
 import org.xml.sax.XMLReader;
-import org.xml.sax.helpers.XMLReaderFactory;
 
 import com.mirth.connect.donkey.model.message.MessageSerializer;
 import com.mirth.connect.donkey.model.message.MessageSerializerException;
@@ -27,6 +28,7 @@ import com.mirth.connect.model.converters.XMLPrettyPrinter;
 import com.mirth.connect.model.datatype.SerializerProperties;
 import com.mirth.connect.model.util.DefaultMetaData;
 import com.mirth.connect.util.ErrorMessageBuilder;
+import com.mirth.connect.util.XmlParserPool;
 
 public class DelimitedSerializer implements IMessageSerializer {
     private Logger logger = LogManager.getLogger(this.getClass());
@@ -65,11 +67,11 @@ public class DelimitedSerializer implements IMessageSerializer {
     @Override
     public String fromXML(String source) throws MessageSerializerException {
         StringBuilder builder = new StringBuilder();
+        XMLReader xr = null;
 
         try {
             DelimitedXMLHandler handler = new DelimitedXMLHandler(deserializationProperties);
-            XMLReader xr = XMLReaderFactory.createXMLReader();
-            xr.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            xr = XmlParserPool.borrowXMLReader();
             xr.setContentHandler(handler);
             xr.setErrorHandler(handler);
             xr.parse(new InputSource(new StringReader(source)));
@@ -78,6 +80,8 @@ public class DelimitedSerializer implements IMessageSerializer {
             String exceptionMessage = e.getClass().getName() + ":" + e.getMessage();
             logger.error(exceptionMessage);
             throw new MessageSerializerException("Error converting XML to delimited text", e, ErrorMessageBuilder.buildErrorMessage(this.getClass().getSimpleName(), "Error converting XML to delimited text", e));
+        } finally {
+            XmlParserPool.releaseXMLReader(xr);
         }
 
         return builder.toString();
@@ -85,14 +89,23 @@ public class DelimitedSerializer implements IMessageSerializer {
 
     @Override
     public String toXML(String source) throws MessageSerializerException {
+        StringWriter stringWriter = new StringWriter();
+        toXML(new StringReader(source), stringWriter);
+        return stringWriter.toString();
+    }
+
+    /**
+     * Converts delimited text read from the given reader to XML, writing it to the given writer as
+     * each record is read. Only callers that already have a stream benefit from this; channels
+     * still convert their String content with {@link #toXML(String)}.
+     */
+    public void toXML(Reader source, Writer target) throws MessageSerializerException {
         try {
-            StringWriter stringWriter = new StringWriter();
-            XMLPrettyPrinter serializer = new XMLPrettyPrinter(stringWriter);
+            XMLPrettyPrinter serializer = new XMLPrettyPrinter(target);
             serializer.setEncodeEntities(true);
             DelimitedReader delimitedReader = new DelimitedReader(serializationProperties);
             delimitedReader.setContentHandler(serializer);
-            delimitedReader.parse(new InputSource(new StringReader(source)));
-            return stringWriter.toString();
+            delimitedReader.parse(new InputSource(source));
         } catch (Exception e) {
             throw new MessageSerializerException("Error converting delimited text to XML", e, ErrorMessageBuilder.buildErrorMessage(this.getClass().getSimpleName(), "Error converting delimited text to XML", e));
         }
@@ -12,6 +12,7 @@ package com.mirth.connect.plugins.datatypes.dicom;
 import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.StringWriter;
 import java.util.HashMap;
 import java.util.Map;
@@ -42,6 +43,7 @@ import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 import org.xml.sax.InputSource;
 
+import com.mirth.connect.donkey.model.message.BinaryMessageSerializer;
 import com.mirth.connect.donkey.model.message.MessageSerializer;
 import com.mirth.connect.donkey.model.message.MessageSerializerException;
 import com.mirth.connect.donkey.util.Base64Util;
@@ -52,7 +54,7 @@ import com.mirth.connect.model.datatype.SerializerProperties;
 import com.mirth.connect.model.util.DefaultMetaData;
 import com.mirth.connect.util.ErrorMessageBuilder;
 
-public class DICOMSerializer implements IMessageSerializer {
+public class DICOMSerializer implements IMessageSerializer, BinaryMessageSerializer {
     private DocumentSerializer documentSerializer = new DocumentSerializer();
 
     public DICOMSerializer() {
@@ -148,11 +150,19 @@ public class DICOMSerializer implements IMessageSerializer {
 
     @Override
     public String toXML(String source) throws MessageSerializerException {
-        try {
-            byte[] encodedMessage = org.apache.commons.codec.binary.StringUtils.getBytesUsAscii(source);
+        byte[] encodedMessage = org.apache.commons.codec.binary.StringUtils.getBytesUsAscii(source);
+        return toXML(new Base64InputStream(new ByteArrayInputStream(encodedMessage)));
+    }
+
+    @Override
+    public String toXML(byte[] source) throws MessageSerializerException {
+        return toXML(new ByteArrayInputStream(source));
+    }
 
+    private String toXML(InputStream source) throws MessageSerializerException {
+        try {
             StringWriter output = new StringWriter();
-            DicomInputStream dis = new DicomInputStream(new BufferedInputStream(new Base64InputStream(new ByteArrayInputStream(encodedMessage))));
+            DicomInputStream dis = new DicomInputStream(new BufferedInputStream(source));
             /*
              * This parameter was added in dcm4che 2.0.28. We use it to retain the memory allocation
              * behavior from 2.0.25. http://www.mirthcorp.com/community/issues/browse/MIRTH-2166
@@ -236,6 +246,9 @@ public class DICOMSerializer implements IMessageSerializer {
     @Override
     public void populateMetaData(String message, Map<String, Object> map) {}
 
+    @Override
+    public void populateMetaData(byte[] message, Map<String, Object> map) {}
+
     @Override
     public String toJSON(String message) throws MessageSerializerException {
         return null;
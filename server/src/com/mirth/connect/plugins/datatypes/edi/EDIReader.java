@@ -9,7 +9,6 @@
 
 package com.mirth.connect.plugins.datatypes.edi;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.util.StringTokenizer;
 
@@ -21,6 +20,9 @@ import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import org.xml.sax.helpers.AttributesImpl;
 
+import com.mirth.connect.util.LookaheadReader;
+import com.mirth.connect.util.TrimmingReader;
+
 public class EDIReader extends SAXParser {
     private Logger logger = LogManager.getLogger(this.getClass());
 
@@ -30,6 +32,8 @@ public class EDIReader extends SAXParser {
 
     private String subelementDelimiter;
 
+    private String documentHead;
+
     public EDIReader(String segmentDelimiter, String elementDelimiter, String subelementDelimiter) {
         this.segmentDelimiter = segmentDelimiter;
         this.elementDelimiter = elementDelimiter;
@@ -38,142 +42,186 @@ public class EDIReader extends SAXParser {
     }
 
     public void parse(InputSource input) throws SAXException, IOException {
-        // Read the data from the InputSource
-        BufferedReader in = new BufferedReader(input.getCharacterStream());
-        String nextLine = "";
-        StringBuffer sb = new StringBuffer();
-        while ((nextLine = in.readLine()) != null) {
-            sb.append(nextLine);
-            sb.append("\n");
-        }
-        String message = sb.toString();
-        message = message.trim();
+        /*
+         * Segments are read from the trimmed input one at a time, so the whole message never needs
+         * to be held in memory. Line breaks are read as newlines, like the lines of the message
+         * were always read before.
+         */
+        LookaheadReader in = new LookaheadReader(new TrimmingReader(input.getCharacterStream()));
+        documentHead = "";
         // fire SAX events
-        String documentHead = "";
         ContentHandler contentHandler = getContentHandler();
         contentHandler.startDocument();
-        // First tokenize the segments
-        if (message == null || message.length() < 3) {
-            logger.error("Unable to parse, message is null or too short: " + message);
-            throw new SAXException("Unable to parse, message is null or too short: " + message);
+
+        String start = peekChars(in, 3);
+        if (start.length() < 3) {
+            logger.error("Unable to parse, message is null or too short: " + start);
+            throw new SAXException("Unable to parse, message is null or too short: " + start);
         }
 
         // Tokenize the segments first
-        StringTokenizer segmentTokenizer = new StringTokenizer(message, segmentDelimiter);
+        StringBuilder segment = new StringBuilder();
         int segmentCounter = 0;
+        int ch;
 
-        while (segmentTokenizer.hasMoreTokens()) {
-            String segment = segmentTokenizer.nextToken();
-            // loop through each segment and pull out the elements
-            StringTokenizer elementTokenizer = new StringTokenizer(segment, elementDelimiter, true);
-
-            if (elementTokenizer.hasMoreTokens()) {
-                // Our XML element is named after the first element
-                String segmentID = elementTokenizer.nextToken().trim();
-                // check if we have EDI or X12
-                if (segmentCounter == 0) {
-                    if (segmentID.equals("ISA")) {
-                        documentHead = "X12Transaction";
-                    } else {
-                        documentHead = "EDIMessage";
-                    }
+        do {
+            ch = readChar(in);
 
-                    AttributesImpl attributesImpl = new AttributesImpl();
-                    attributesImpl.addAttribute("", "segmentDelimiter", "", "", segmentDelimiter);
-                    attributesImpl.addAttribute("", "elementDelimiter", "", "", elementDelimiter);
-                    attributesImpl.addAttribute("", "subelementDelimiter", "", "", subelementDelimiter);
-                    contentHandler.startElement("", documentHead, "", attributesImpl);
+            if (ch == -1 || segmentDelimiter.indexOf(ch) >= 0) {
+                if (segment.length() > 0) {
+                    parseSegment(segment.toString(), segmentCounter++, contentHandler);
+                    segment.setLength(0);
                 }
-                contentHandler.startElement("", segmentID, "", null);
-
-                int fieldID = 0;
-                String field = "00";
-                int subelementID = 1;
-                boolean lastsegElement = false;
-                boolean lastsegSubelement = true;
-                while (elementTokenizer.hasMoreTokens()) {
-                    // Codes should be in the form ISA.01, etc
-                    field = fieldID < 10 ? "0" + fieldID : "" + fieldID;
-                    // Go through each element and add as new child under
-                    // the segment element
-                    String element = elementTokenizer.nextToken();
-                    // System.out.println("EL:" + element);
-                    // The naming is SEG.<field number>
-                    if (element.equals(elementDelimiter)) {
-                        if (lastsegElement) {
-                            contentHandler.startElement("", segmentID + "." + field, "", null);
-                            contentHandler.endElement("", segmentID + "." + field, "");
-                        }
-                        fieldID++;
-                        lastsegElement = true;
-                    } else {
-                        lastsegElement = false;
-
-                        if (element.indexOf(subelementDelimiter) > -1) {
-                            contentHandler.startElement("", segmentID + "." + field, "", null);
-                            // check if we have sub-elements, if so add them
-                            StringTokenizer subelementTokenizer = new StringTokenizer(element, subelementDelimiter, true);
-                            subelementID = 1;
-                            lastsegSubelement = true;
-                            while (subelementTokenizer.hasMoreTokens()) {
-                                String subelement = subelementTokenizer.nextToken();
-                                if (subelement.equals(subelementDelimiter)) {
-                                    String subelementName = segmentID + "." + field + "." + subelementID;
-                                    if (lastsegSubelement) {
-                                        contentHandler.startElement("", subelementName, "", null);
-                                        contentHandler.characters("".toCharArray(), 0, 0);
-                                        contentHandler.endElement("", subelementName, "");
-                                    }
-                                    subelementID++;
-                                    lastsegSubelement = true;
-                                } else {
-
-                                    String subelementName = segmentID + "." + field + "." + subelementID;
-                                    lastsegSubelement = false;
-                                    // The naming is SEG.<field
-                                    // number>.<element number>
+            } else {
+                segment.append((char) ch);
+            }
+        } while (ch != -1);
+
+        contentHandler.endElement("", documentHead, "");
+        contentHandler.endDocument();
+    }
+
+    private void parseSegment(String segment, int segmentCounter, ContentHandler contentHandler) throws SAXException {
+        // loop through each segment and pull out the elements
+        StringTokenizer elementTokenizer = new StringTokenizer(segment, elementDelimiter, true);
+
+        if (elementTokenizer.hasMoreTokens()) {
+            // Our XML element is named after the first element
+            String segmentID = elementTokenizer.nextToken().trim();
+            // check if we have EDI or X12
+            if (segmentCounter == 0) {
+                if (segmentID.equals("ISA")) {
+                    documentHead = "X12Transaction";
+                } else {
+                    documentHead = "EDIMessage";
+                }
+
+                AttributesImpl attributesImpl = new AttributesImpl();
+                attributesImpl.addAttribute("", "segmentDelimiter", "", "", segmentDelimiter);
+                attributesImpl.addAttribute("", "elementDelimiter", "", "", elementDelimiter);
+                attributesImpl.addAttribute("", "subelementDelimiter", "", "", subelementDelimiter);
+                contentHandler.startElement("", documentHead, "", attributesImpl);
+            }
+            contentHandler.startElement("", segmentID, "", null);
+
+            int fieldID = 0;
+            String field = "00";
+            int subelementID = 1;
+            boolean lastsegElement = false;
+            boolean lastsegSubelement = true;
+            while (elementTokenizer.hasMoreTokens()) {
+                // Codes should be in the form ISA.01, etc
+                field = fieldID < 10 ? "0" + fieldID : "" + fieldID;
+                // Go through each element and add as new child under
+                // the segment element
+                String element = elementTokenizer.nextToken();
+                // System.out.println("EL:" + element);
+                // The naming is SEG.<field number>
+                if (element.equals(elementDelimiter)) {
+                    if (lastsegElement) {
+                        contentHandler.startElement("", segmentID + "." + field, "", null);
+                        contentHandler.endElement("", segmentID + "." + field, "");
+                    }
+                    fieldID++;
+                    lastsegElement = true;
+                } else {
+                    lastsegElement = false;
+
+                    if (element.indexOf(subelementDelimiter) > -1) {
+                        contentHandler.startElement("", segmentID + "." + field, "", null);
+                        // check if we have sub-elements, if so add them
+                        StringTokenizer subelementTokenizer = new StringTokenizer(element, subelementDelimiter, true);
+                        subelementID = 1;
+                        lastsegSubelement = true;
+                        while (subelementTokenizer.hasMoreTokens()) {
+                            String subelement = subelementTokenizer.nextToken();
+                            if (subelement.equals(subelementDelimiter)) {
+                                String subelementName = segmentID + "." + field + "." + subelementID;
+                                if (lastsegSubelement) {
                                     contentHandler.startElement("", subelementName, "", null);
-                                    contentHandler.characters(subelement.toCharArray(), 0, subelement.length());
+                                    contentHandler.characters("".toCharArray(), 0, 0);
                                     contentHandler.endElement("", subelementName, "");
-
                                 }
-                            }
-                            String subelementName = segmentID + "." + (field) + "." + subelementID;
-                            if (lastsegSubelement) {
+                                subelementID++;
+                                lastsegSubelement = true;
+                            } else {
+
+                                String subelementName = segmentID + "." + field + "." + subelementID;
+                                lastsegSubelement = false;
+                                // The naming is SEG.<field
+                                // number>.<element number>
                                 contentHandler.startElement("", subelementName, "", null);
-                                contentHandler.characters("".toCharArray(), 0, 0);
+                                contentHandler.characters(subelement.toCharArray(), 0, subelement.length());
                                 contentHandler.endElement("", subelementName, "");
+
                             }
-                            contentHandler.endElement("", segmentID + "." + (field), null);
-                        } else {
-                            contentHandler.startElement("", segmentID + "." + field, "", null);
-                            contentHandler.startElement("", segmentID + "." + field + ".1", "", null);
+                        }
+                        String subelementName = segmentID + "." + (field) + "." + subelementID;
+                        if (lastsegSubelement) {
+                            contentHandler.startElement("", subelementName, "", null);
+                            contentHandler.characters("".toCharArray(), 0, 0);
+                            contentHandler.endElement("", subelementName, "");
+                        }
+                        contentHandler.endElement("", segmentID + "." + (field), null);
+                    } else {
+                        contentHandler.startElement("", segmentID + "." + field, "", null);
+                        contentHandler.startElement("", segmentID + "." + field + ".1", "", null);
 
-                            // Set the text contents to the value
-                            contentHandler.characters(element.toCharArray(), 0, element.length());
-                            contentHandler.endElement("", segmentID + "." + (field) + ".1", null);
-                            contentHandler.endElement("", segmentID + "." + (field), null);
+                        // Set the text contents to the value
+                        contentHandler.characters(element.toCharArray(), 0, element.length());
+                        contentHandler.endElement("", segmentID + "." + (field) + ".1", null);
+                        contentHandler.endElement("", segmentID + "." + (field), null);
 
-                        }
                     }
-
-                }
-                if (lastsegElement) {
-                    // Set the field id here so we don't get dupe fields like
-                    // SE.01 and SE.01 when we have SE**~
-                    field = fieldID < 10 ? "0" + fieldID : "" + fieldID;
-                    contentHandler.startElement("", segmentID + "." + field, "", null);
-                    contentHandler.endElement("", segmentID + "." + field, "");
                 }
-                contentHandler.endElement("", segmentID, "");
 
-            } else {
-                throw new SAXException("Could not find elements in segment: " + segment);
             }
-            segmentCounter++;
+            if (lastsegElement) {
+                // Set the field id here so we don't get dupe fields like
+                // SE.01 and SE.01 when we have SE**~
+                field = fieldID < 10 ? "0" + fieldID : "" + fieldID;
+                contentHandler.startElement("", segmentID + "." + field, "", null);
+                contentHandler.endElement("", segmentID + "." + field, "");
+            }
+            contentHandler.endElement("", segmentID, "");
+
+        } else {
+            throw new SAXException("Could not find elements in segment: " + segment);
         }
-        contentHandler.endElement("", documentHead, "");
-        contentHandler.endDocument();
     }
 
+    /**
+     * Reads the next character, returning any line break as a newline.
+     */
+    private int readChar(LookaheadReader in) throws IOException {
+        int ch = in.read();
+
+        if (ch == '\r') {
+            if (in.peek() == '\n') {
+                in.read();
+            }
+            ch = '\n';
+        }
+
+        return ch;
+    }
+
+    /**
+     * Returns up to the given number of characters without consuming them, with line breaks read
+     * as newlines.
+     */
+    private String peekChars(LookaheadReader in, int count) throws IOException {
+        StringBuilder chars = new StringBuilder(count);
+        int offset = 0;
+        int ch;
+
+        while (chars.length() < count && (ch = in.peek(offset++)) != -1) {
+            if (ch == '\r' && in.peek(offset) == '\n') {
+                offset++;
+            }
+            chars.append(ch == '\r' ? '\n' : (char) ch);
+        }
+
+        return chars.toString();
+    }
 }
@@ -9,19 +9,18 @@
 
 package com.mirth.connect.plugins.datatypes.edi;
 
+import java.io.Reader;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.io.Writer;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.xml.sax.InputSource;
-import org.xml.sax.SAXException;
 import org.xml.sax.XMLReader;
-import org.xml.sax.helpers.XMLReaderFactory;
 
 import com.mirth.connect.donkey.model.message.MessageSerializer;
 import com.mirth.connect.donkey.model.message.MessageSerializerException;
@@ -30,9 +29,15 @@ import com.mirth.connect.model.converters.XMLPrettyPrinter;
 import com.mirth.connect.model.datatype.SerializerProperties;
 import com.mirth.connect.model.util.DefaultMetaData;
 import com.mirth.connect.util.ErrorMessageBuilder;
+import com.mirth.connect.util.LookaheadReader;
+import com.mirth.connect.util.PrettyPrintWhitespaceFilter;
 import com.mirth.connect.util.StringUtil;
+import com.mirth.connect.util.XmlParserPool;
 
 public class EDISerializer implements IMessageSerializer {
+    // The ISA segment including its segment delimiter, not counting a newline after it
+    private static final int ISA_LENGTH = 106;
+
     private Logger logger = LogManager.getLogger(this.getClass());
     private EDISerializationProperties serializationProperties;
 
@@ -40,9 +45,6 @@ public class EDISerializer implements IMessageSerializer {
     private String serializationElementDelimiter = null;
     private String serializationSubelementDelimiter = null;
 
-    private static Pattern prettyPattern1 = Pattern.compile("\\s*<([^/][^>]*)>");
-    private static Pattern prettyPattern2 = Pattern.compile("<([^>]*/|/[^>]*)>\\s*");
-
     public EDISerializer(SerializerProperties properties) {
         serializationProperties = (EDISerializationProperties) properties.getSerializationProperties();
 
@@ -67,36 +69,49 @@ public class EDISerializer implements IMessageSerializer {
 
     @Override
     public String fromXML(String source) throws MessageSerializerException {
-        XMLReader xr;
-        try {
-            xr = XMLReaderFactory.createXMLReader();
-            xr.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
-        } catch (SAXException e) {
-            throw new MessageSerializerException("Error converting XML to EDI", e, ErrorMessageBuilder.buildErrorMessage(this.getClass().getSimpleName(), "Error converting XML to EDI", e));
-        }
+        XMLReader xr = null;
         EDIXMLHandler handler = new EDIXMLHandler();
-        xr.setContentHandler(handler);
-        xr.setErrorHandler(handler);
         try {
-            //Parse, but first replace all spaces between brackets. This fixes pretty-printed XML we might receive
-            xr.parse(new InputSource(new StringReader(prettyPattern2.matcher(prettyPattern1.matcher(source).replaceAll("<$1>")).replaceAll("<$1>"))));
+            xr = XmlParserPool.borrowXMLReader();
+
+            //Parse, ignoring the whitespace between tags. This fixes pretty-printed XML we might receive
+            XMLReader filter = new PrettyPrintWhitespaceFilter(xr);
+            filter.setContentHandler(handler);
+            filter.setErrorHandler(handler);
+            filter.parse(new InputSource(new StringReader(source)));
         } catch (Exception e) {
             throw new MessageSerializerException("Error converting XML to EDI", e, ErrorMessageBuilder.buildErrorMessage(this.getClass().getSimpleName(), "Error converting XML to EDI", e));
+        } finally {
+            XmlParserPool.releaseXMLReader(xr);
         }
         return handler.getOutput().toString();
     }
 
     @Override
     public String toXML(String source) throws MessageSerializerException {
+        StringWriter stringWriter = new StringWriter();
+        toXML(new StringReader(source), stringWriter);
+        return stringWriter.toString();
+    }
+
+    /**
+     * Converts EDI read from the given reader to XML, writing it to the given writer as each
+     * segment is read. Neither the EDI message nor the XML is held in memory.
+     *
+     * Channels don't call this yet. Batch adaptors hand each message to the channel as a String,
+     * and the filter and transformer store the XML as a String, so they go through
+     * {@link #toXML(String)}.
+     */
+    public void toXML(Reader source, Writer target) throws MessageSerializerException {
         try {
-            Delimiters delimiters = getDelimiters(source);
+            LookaheadReader reader = new LookaheadReader(source);
+            // The delimiters can be inferred from the fixed length ISA segment
+            Delimiters delimiters = getDelimiters(reader.peekString(ISA_LENGTH + 1));
             EDIReader ediReader = new EDIReader(delimiters.segmentDelimiter, delimiters.elementDelimiter, delimiters.subelementDelimiter);
-            StringWriter stringWriter = new StringWriter();
-            XMLPrettyPrinter serializer = new XMLPrettyPrinter(stringWriter);
+            XMLPrettyPrinter serializer = new XMLPrettyPrinter(target);
             serializer.setEncodeEntities(true);
             ediReader.setContentHandler(serializer);
-            ediReader.parse(new InputSource(new StringReader(source)));
-            return stringWriter.toString();
+            ediReader.parse(new InputSource(reader));
         } catch (Exception e) {
             throw new MessageSerializerException("Error converting EDI to XML", e, ErrorMessageBuilder.buildErrorMessage(this.getClass().getSimpleName(), "Error converting EDI to XML", e));
         }
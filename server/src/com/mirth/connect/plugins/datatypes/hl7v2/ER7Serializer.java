@@ -23,7 +23,6 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.xml.sax.InputSource;
 import org.xml.sax.XMLReader;
-import org.xml.sax.helpers.XMLReaderFactory;
 
 import com.mirth.connect.donkey.model.message.MessageSerializer;
 import com.mirth.connect.donkey.model.message.MessageSerializerException;
@@ -32,7 +31,9 @@ import com.mirth.connect.model.converters.XMLPrettyPrinter;
 import com.mirth.connect.model.datatype.SerializerProperties;
 import com.mirth.connect.model.util.DefaultMetaData;
 import com.mirth.connect.util.ErrorMessageBuilder;
+import com.mirth.connect.util.PrettyPrintWhitespaceFilter;
 import com.mirth.connect.util.StringUtil;
+import com.mirth.connect.util.XmlParserPool;
 
 import ca.uhn.hl7v2.DefaultHapiContext;
 import ca.uhn.hl7v2.HL7Exception;
@@ -59,8 +60,6 @@ public class ER7Serializer implements IMessageSerializer {
     private HL7v2DeserializationProperties deserializationProperties;
 
     private static Pattern ampersandPattern = Pattern.compile("&amp;");
-    private static Pattern prettyPattern1 = Pattern.compile("\\s*<([^/][^>]*)>");
-    private static Pattern prettyPattern2 = Pattern.compile("<([^>]*/|/[^>]*)>\\s*");
 
 
     public ER7Serializer(SerializerProperties properties) {
@@ -292,16 +291,21 @@ public class ER7Serializer implements IMessageSerializer {
                 }
 
                 XMLEncodedHL7Handler handler = new XMLEncodedHL7Handler(deserializationSegmentDelimiter, fieldSeparator, componentSeparator, repetitionSeparator, escapeCharacter, subcomponentSeparator, true);
-                XMLReader reader = XMLReaderFactory.createXMLReader();
-                reader.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
-                reader.setContentHandler(handler);
-                reader.setErrorHandler(handler);
+                XMLReader reader = XmlParserPool.borrowXMLReader();
+
+                try {
+                    /*
+                     * Parse, ignoring the whitespace between tags. This fixes pretty-printed XML we
+                     * might receive.
+                     */
+                    XMLReader filter = new PrettyPrintWhitespaceFilter(reader);
+                    filter.setContentHandler(handler);
+                    filter.setErrorHandler(handler);
+                    filter.parse(new InputSource(new StringReader(source)));
+                } finally {
+                    XmlParserPool.releaseXMLReader(reader);
+                }
 
-                /*
-                 * Parse, but first replace all spaces between brackets. This fixes pretty-printed
-                 * XML we might receive.
-                 */
-                reader.parse(new InputSource(new StringReader(prettyPattern2.matcher(prettyPattern1.matcher(source).replaceAll("<$1>")).replaceAll("<$1>"))));
                 return handler.getOutput().toString();
             }
         } catch (Exception e) {
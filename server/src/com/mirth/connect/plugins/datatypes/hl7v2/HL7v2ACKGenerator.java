@@ -11,12 +11,12 @@ package com.mirth.connect.plugins.datatypes.hl7v2;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.regex.Pattern;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import com.mirth.connect.model.datatype.SerializerProperties;
+import com.mirth.connect.server.userutil.ER7Message;
 
 // Supports ACKS from 2.1-2.4
 // 2.5 is supported but the advanced fields in ERR and SFT are not supported
@@ -75,68 +75,24 @@ public class HL7v2ACKGenerator {
 
         } else {
 
-            fieldDelim = message.charAt(3); // Usually |
-            componentDelim = message.charAt(4); // Usually ^
-            if (message.charAt(5) != fieldDelim) {
-                repetitionSeparator = message.charAt(5); // Usually ~
-                if (message.charAt(6) != fieldDelim) {
-                    escapeCharacter = message.charAt(6); // Usually \
-                    if (message.charAt(7) != fieldDelim) {
-                        subcomponentDelim = message.charAt(7); // Usually &
-                    }
-                }
-            }
-
-            // Handle single line messages without any segment delimiters
-            int firstSegmentDelim = message.indexOf(String.valueOf(segmentDelim));
-            String mshString;
-            if (firstSegmentDelim != -1) {
-                mshString = message.substring(0, firstSegmentDelim);
-            } else {
-                mshString = message;
-            }
-
-            Pattern fieldPattern = Pattern.compile(Pattern.quote(String.valueOf(fieldDelim)));
-            Pattern componentPattern = Pattern.compile(Pattern.quote(String.valueOf(componentDelim)));
-
-            String[] mshFields = fieldPattern.split(mshString);
-            int mshFieldsLength = mshFields.length;
-
-            if (mshFieldsLength > 2) {
-                sendingApplication = componentPattern.split(mshFields[2])[0]; // MSH.3.1
-                if (mshFieldsLength > 3) {
-                    sendingFacility = componentPattern.split(mshFields[3])[0]; // MSH.4.1
-                    if (mshFieldsLength > 4) {
-                        receivingApplication = componentPattern.split(mshFields[4])[0]; // MSH.5.1
-                        if (mshFieldsLength > 5) {
-                            receivingFacility = componentPattern.split(mshFields[5])[0]; // MSH.6.1
-                            if (mshFieldsLength > 8) { // MSH.9.2
-                                String[] msgDT = componentPattern.split(mshFields[8]);
-
-                                if (msgDT.length > 1) {
-                                    originalEvent = msgDT[1];
-                                }
-
-                                if (mshFieldsLength > 9) {
-                                    originalId = componentPattern.split(mshFields[9])[0]; // MSH.10.1
-                                    if (mshFieldsLength > 10) {
-                                        String[] msh11 = componentPattern.split(mshFields[10]); // MSH.11
-                                        procId = msh11[0]; // MSH.11.1
-
-                                        if (msh11.length > 1) {
-                                            procIdMode = msh11[1]; // MSH.11.2
-                                        }
-
-                                        if (mshFieldsLength > 11) {
-                                            version = componentPattern.split(mshFields[11])[0]; // MSH.12.1
-                                        }
-                                    }
-                                }
-                            }
-                        }
-                    }
-                }
-            }
+            // Only the MSH segment is scanned, and only the fields that are read are copied
+            ER7Message er7Message = new ER7Message(message, segmentDelim);
+
+            fieldDelim = er7Message.getFieldSeparator(); // Usually |
+            componentDelim = er7Message.getComponentSeparator(); // Usually ^
+            repetitionSeparator = er7Message.getRepetitionSeparator(); // Usually ~
+            escapeCharacter = er7Message.getEscapeCharacter(); // Usually \
+            subcomponentDelim = er7Message.getSubcomponentSeparator(); // Usually &
+
+            sendingApplication = er7Message.get("MSH.3.1");
+            sendingFacility = er7Message.get("MSH.4.1");
+            receivingApplication = er7Message.get("MSH.5.1");
+            receivingFacility = er7Message.get("MSH.6.1");
+            originalEvent = er7Message.get("MSH.9.2");
+            originalId = er7Message.get("MSH.10.1");
+            procId = er7Message.get("MSH.11.1");
+            procIdMode = er7Message.get("MSH.11.2");
+            version = er7Message.get("MSH.12.1");
         }
 
         if (textMessage != null && textMessage.length() > 0) {
@@ -244,4 +200,4 @@ public class HL7v2ACKGenerator {
             return ackBuilder.toString();
         }
     }
-}
\ No newline at end of file
+}
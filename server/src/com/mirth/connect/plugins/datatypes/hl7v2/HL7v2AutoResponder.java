@@ -9,16 +9,10 @@
 
 package com.mirth.connect.plugins.datatypes.hl7v2;
 
-import java.io.CharArrayReader;
-import java.io.Reader;
+import java.io.StringReader;
 import java.util.Map;
-import java.util.regex.Pattern;
 
 import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathExpression;
-import javax.xml.xpath.XPathFactory;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
@@ -32,8 +26,10 @@ import com.mirth.connect.donkey.model.message.Response;
 import com.mirth.connect.donkey.model.message.Status;
 import com.mirth.connect.model.datatype.ResponseGenerationProperties;
 import com.mirth.connect.model.datatype.SerializationProperties;
+import com.mirth.connect.server.userutil.ER7Message;
 import com.mirth.connect.server.util.TemplateValueReplacer;
 import com.mirth.connect.util.StringUtil;
+import com.mirth.connect.util.XmlParserPool;
 
 public class HL7v2AutoResponder implements AutoResponder {
 
@@ -118,27 +114,18 @@ public class HL7v2AutoResponder implements AutoResponder {
 
                 // Check if the message is ER7 or XML
                 if (isXML) { // XML form
-                    XPath xpath = XPathFactory.newInstance().newXPath();
-                    XPathExpression msh15Query = xpath.compile("//MSH.15/text()");
-                    DocumentBuilderFactory domFactory = DocumentBuilderFactory.newInstance();
-            		domFactory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
-                    DocumentBuilder builder = domFactory.newDocumentBuilder();
-                    Reader reader = new CharArrayReader(hl7Message.toCharArray());
-                    Document doc = builder.parse(new InputSource(reader));
-                    msh15 = msh15Query.evaluate(doc);
-                } else { // ER7
-                    char fieldDelim = hl7Message.charAt(3); // Usually |
-                    char componentDelim = hl7Message.charAt(4); // Usually ^
-
-                    Pattern fieldPattern = Pattern.compile(Pattern.quote(String.valueOf(fieldDelim)));
-                    Pattern componentPattern = Pattern.compile(Pattern.quote(String.valueOf(componentDelim)));
-
-                    String mshString = StringUtils.split(hl7Message, serializationSegmentDelimiter)[0];
-                    String[] mshFields = fieldPattern.split(mshString);
+                    DocumentBuilder builder = XmlParserPool.borrowDocumentBuilder();
+                    Document doc;
 
-                    if (mshFields.length > 14) {
-                        msh15 = componentPattern.split(mshFields[14])[0]; // MSH.15.1
+                    try {
+                        doc = builder.parse(new InputSource(new StringReader(hl7Message)));
+                    } finally {
+                        XmlParserPool.releaseDocumentBuilder(builder);
                     }
+
+                    msh15 = XmlParserPool.getXPathExpression("//MSH.15/text()").evaluate(doc);
+                } else { // ER7
+                    msh15 = new ER7Message(hl7Message, serializationSegmentDelimiter).get("MSH.15.1");
                 }
 
                 if (msh15 != null && !msh15.equals("")) {
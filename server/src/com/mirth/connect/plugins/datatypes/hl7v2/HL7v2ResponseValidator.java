@@ -9,11 +9,10 @@
 
 package com.mirth.connect.plugins.datatypes.hl7v2;
 
-import java.io.CharArrayReader;
+import java.io.StringReader;
 import java.util.Arrays;
 
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.xpath.XPathFactory;
+import javax.xml.parsers.DocumentBuilder;
 
 import org.apache.commons.lang3.StringUtils;
 import org.w3c.dom.Document;
@@ -29,6 +28,7 @@ import com.mirth.connect.plugins.datatypes.hl7v2.HL7v2ResponseValidationProperti
 import com.mirth.connect.server.util.TemplateValueReplacer;
 import com.mirth.connect.util.ErrorMessageBuilder;
 import com.mirth.connect.util.StringUtil;
+import com.mirth.connect.util.XmlParserPool;
 
 public class HL7v2ResponseValidator implements ResponseValidator {
 
@@ -58,20 +58,19 @@ public class HL7v2ResponseValidator implements ResponseValidator {
             try {
                 if (responseData.trim().startsWith("<")) {
                     // XML response received
-            		DocumentBuilderFactory dbf = getSecureDocumentBuilderFactory();
-                    Document doc = dbf.newDocumentBuilder().parse(new InputSource(new CharArrayReader(responseData.toCharArray())));
-                    String ackCode = XPathFactory.newInstance().newXPath().compile("//MSA.1/text()").evaluate(doc).trim();
+                    Document doc = parseDocument(responseData);
+                    String ackCode = XmlParserPool.getXPathExpression("//MSA.1/text()").evaluate(doc).trim();
 
                     boolean rejected = Arrays.asList(rejectedACKCodes).contains(ackCode);
                     boolean error = rejected || Arrays.asList(errorACKCodes).contains(ackCode);
 
                     if (error || rejected) {
-                        String msa3 = StringUtils.trim(XPathFactory.newInstance().newXPath().compile("//MSA.3/text()").evaluate(doc));
-                        String err1 = StringUtils.trim(XPathFactory.newInstance().newXPath().compile("//ERR.1/text()").evaluate(doc));
+                        String msa3 = StringUtils.trim(XmlParserPool.getXPathExpression("//MSA.3/text()").evaluate(doc));
+                        String err1 = StringUtils.trim(XmlParserPool.getXPathExpression("//ERR.1/text()").evaluate(doc));
                         handleNACK(response, rejected, msa3, err1);
                     } else if (Arrays.asList(successfulACKCodes).contains(ackCode)) {
                         if (validateMessageControlId) {
-                            String msa2 = StringUtils.trim(XPathFactory.newInstance().newXPath().compile("//MSA.2/text()").evaluate(doc));
+                            String msa2 = StringUtils.trim(XmlParserPool.getXPathExpression("//MSA.2/text()").evaluate(doc));
                             String originalControlID = getOriginalControlId(connectorMessage);
 
                             if (!StringUtils.equals(msa2, originalControlID)) {
@@ -232,9 +231,8 @@ public class HL7v2ResponseValidator implements ResponseValidator {
         }
 
         if (originalMessage.startsWith("<")) {
-    		DocumentBuilderFactory dbf = getSecureDocumentBuilderFactory();
-            Document doc = dbf.newDocumentBuilder().parse(new InputSource(new CharArrayReader(originalMessage.toCharArray())));
-            controlId = XPathFactory.newInstance().newXPath().compile("//MSH.10.1/text()").evaluate(doc).trim();
+            Document doc = parseDocument(originalMessage);
+            controlId = XmlParserPool.getXPathExpression("//MSH.10.1/text()").evaluate(doc).trim();
         } else {
             int index;
 
@@ -308,9 +306,13 @@ public class HL7v2ResponseValidator implements ResponseValidator {
         response.setError(statusMessage + "\nExpected: " + originalControlID + "\nActual: " + msa2);
     }
     
-	private static DocumentBuilderFactory getSecureDocumentBuilderFactory() throws Exception {
-		DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-		dbf.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
-		return dbf;
-	}
+    private static Document parseDocument(String xml) throws Exception {
+        DocumentBuilder builder = XmlParserPool.borrowDocumentBuilder();
+
+        try {
+            return builder.parse(new InputSource(new StringReader(xml)));
+        } finally {
+            XmlParserPool.releaseDocumentBuilder(builder);
+        }
+    }
 }
\ No newline at end of file
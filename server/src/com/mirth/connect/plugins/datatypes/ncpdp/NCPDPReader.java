@@ -12,7 +12,6 @@ package com.mirth.connect.plugins.datatypes.ncpdp;
 import java.io.IOException;
 import java.util.Stack;
 
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -22,6 +21,9 @@ import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import org.xml.sax.helpers.AttributesImpl;
 
+import com.mirth.connect.util.LookaheadReader;
+import com.mirth.connect.util.TrimmingReader;
+
 public class NCPDPReader extends SAXParser {
     private Logger logger = LogManager.getLogger(this.getClass());
 
@@ -38,45 +40,52 @@ public class NCPDPReader extends SAXParser {
 
     @Override
     public void parse(InputSource input) throws SAXException, IOException {
-        // convert the InputSource to a String and trim the whitespace
-        String message = IOUtils.toString(input.getCharacterStream()).trim();
+        // read the trimmed message one segment at a time instead of reading it all into a String
+        LookaheadReader in = new LookaheadReader(new TrimmingReader(input.getCharacterStream()));
 
         ContentHandler contentHandler = getContentHandler();
         contentHandler.startDocument();
 
-        if ((message == null) || (message.length() < 3)) {
-            throw new SAXException("Unable to parse, message is null or too short: " + message);
+        String start = in.peekString(3);
+        if (start.length() < 3) {
+            throw new SAXException("Unable to parse, message is null or too short: " + start);
         }
 
         // process header
-        String header = parseHeader(message, contentHandler);
+        StringBuilder header = new StringBuilder();
+        boolean groupInHeader = false;
 
-        // process body
-        int groupDelimeterIndex = message.indexOf(groupDelimeter);
-        int segmentDelimeterIndex = message.indexOf(segmentDelimeter);
-        int bodyIndex = 0;
+        while (!in.consume(segmentDelimeter)) {
+            if (!groupInHeader && in.lookingAt(groupDelimeter)) {
+                groupInHeader = true;
+            }
 
-        if ((groupDelimeterIndex == -1) || (segmentDelimeterIndex < groupDelimeterIndex)) {
-            bodyIndex = segmentDelimeterIndex;
-        } else {
-            bodyIndex = groupDelimeterIndex;
+            int ch = in.read();
+            if (ch == -1) {
+                throw new SAXException("Unable to parse, message does not contain a segment delimiter.");
+            }
+            header.append((char) ch);
         }
 
-        String body = message.substring(bodyIndex, message.length());
+        String headerElementName = parseHeader(header.toString(), contentHandler);
 
-        boolean hasMoreSegments = true;
+        // process body
         boolean inGroup = false;
         boolean firstTransaction = true;
         int groupCounter = 0;
+        StringBuilder segment = new StringBuilder();
 
-        while (hasMoreSegments) {
-            // get next segment or group
-            groupDelimeterIndex = body.indexOf(groupDelimeter);
-            segmentDelimeterIndex = body.indexOf(segmentDelimeter);
+        /*
+         * A group delimiter in the header starts the first transaction, and anything between it and
+         * the end of the header belongs to neither.
+         */
+        boolean nextIsGroup = groupInHeader;
 
-            if ((groupDelimeterIndex > -1) && (groupDelimeterIndex < segmentDelimeterIndex)) { // case: next part is a group
+        while (true) {
+            if (nextIsGroup) { // case: next part is a group
                 // process last segment before group
-                parseSegment(body.substring(0, groupDelimeterIndex), contentHandler);
+                parseSegment(segment.toString(), contentHandler);
+                segment.setLength(0);
 
                 if (inGroup) {
                     contentHandler.endElement("", "TRANSACTION", "");
@@ -92,16 +101,28 @@ public class NCPDPReader extends SAXParser {
                 attr.addAttribute("", "counter", "counter", "", Integer.toString(++groupCounter));
                 contentHandler.startElement("", "TRANSACTION", "", attr);
                 inGroup = true;
-            } else if (groupDelimeterIndex == -1 && segmentDelimeterIndex == -1) { // case: last segment
-                parseSegment(body, contentHandler);
-                hasMoreSegments = false;
-            } else { // case: next part is a segment
-                String segment = body.substring(0, segmentDelimeterIndex);
-                parseSegment(segment, contentHandler);
-            }
+                nextIsGroup = false;
+            } else if (in.consume(segmentDelimeter)) { // case: next part is a segment
+                parseSegment(segment.toString(), contentHandler);
+                segment.setLength(0);
+            } else if (in.lookingAt(groupDelimeter)) {
+                // the group delimiter and anything up to the next segment delimiter are skipped
+                while (!in.consume(segmentDelimeter)) {
+                    if (in.read() == -1) {
+                        throw new SAXException("Unable to parse, group delimiter is not followed by a segment delimiter.");
+                    }
+                }
+                nextIsGroup = true;
+            } else {
+                int ch = in.read();
+
+                if (ch == -1) { // case: last segment
+                    parseSegment(segment.toString(), contentHandler);
+                    break;
+                }
 
-            // remove processed segment from message body
-            body = body.substring(segmentDelimeterIndex + segmentDelimeter.length());
+                segment.append((char) ch);
+            }
         }
 
         // end group if we have started one
@@ -110,85 +131,81 @@ public class NCPDPReader extends SAXParser {
             contentHandler.endElement("", "TRANSACTIONS", "");
         }
 
-        contentHandler.endElement("", header, "");
+        contentHandler.endElement("", headerElementName, "");
         contentHandler.endDocument();
     }
 
-    private String parseHeader(String message, ContentHandler contentHandler) throws SAXException {
+    /*
+     * The first segment is always the Transaction header so we will process it seperately.
+     */
+    private String parseHeader(String header, ContentHandler contentHandler) throws SAXException {
         String headerElementName = StringUtils.EMPTY;
 
-        /*
-         * The first segment is always the Transaction header so we will process it seperately.
-         */
-        if (message.indexOf(segmentDelimeter) != -1) {
-            String header = message.substring(0, message.indexOf(segmentDelimeter));
-
-            // handle a request (requests have a longer header than responses)
-            if (header.length() > 40) {
-                String transactionName = NCPDPReference.getInstance().getTransactionName(header.substring(8, 10));
-                version = header.substring(6, 8);
-                headerElementName = "NCPDP_" + version + "_" + transactionName + "_Request";
-
-                contentHandler.startElement("", headerElementName, "", null);
-                contentHandler.startElement("", "TransactionHeaderRequest", "", null);
-                contentHandler.startElement("", "BinNumber", "", null);
-                contentHandler.characters(header.toCharArray(), 0, 6);
-                contentHandler.endElement("", "BinNumber", "");
-                contentHandler.startElement("", "VersionReleaseNumber", "", null);
-                contentHandler.characters(header.toCharArray(), 6, 2);
-                contentHandler.endElement("", "VersionReleaseNumber", "");
-                contentHandler.startElement("", "TransactionCode", "", null);
-                contentHandler.characters(header.toCharArray(), 8, 2);
-                contentHandler.endElement("", "TransactionCode", "");
-                contentHandler.startElement("", "ProcessorControlNumber", "", null);
-                contentHandler.characters(header.toCharArray(), 10, 10);
-                contentHandler.endElement("", "ProcessorControlNumber", "");
-                contentHandler.startElement("", "TransactionCount", "", null);
-                contentHandler.characters(header.toCharArray(), 20, 1);
-                contentHandler.endElement("", "TransactionCount", "");
-                contentHandler.startElement("", "ServiceProviderIdQualifier", "", null);
-                contentHandler.characters(header.toCharArray(), 21, 2);
-                contentHandler.endElement("", "ServiceProviderIdQualifier", "");
-                contentHandler.startElement("", "ServiceProviderId", "", null);
-                contentHandler.characters(header.toCharArray(), 23, 15);
-                contentHandler.endElement("", "ServiceProviderId", "");
-                contentHandler.startElement("", "DateOfService", "", null);
-                contentHandler.characters(header.toCharArray(), 38, 8);
-                contentHandler.endElement("", "DateOfService", "");
-                contentHandler.startElement("", "SoftwareVendorCertificationId", "", null);
-                contentHandler.characters(header.toCharArray(), 46, 10);
-                contentHandler.endElement("", "SoftwareVendorCertificationId", "");
-                contentHandler.endElement("", "TransactionHeaderRequest", "");
-            } else { // handle a response
-                String transaction = NCPDPReference.getInstance().getTransactionName(header.substring(2, 4));
-                version = header.substring(0, 2);
-                headerElementName = "NCPDP_" + version + "_" + transaction + "_Response";
-
-                contentHandler.startElement("", headerElementName, "", null);
-                contentHandler.startElement("", "TransactionHeaderResponse", "", null);
-                contentHandler.startElement("", "VersionReleaseNumber", "", null);
-                contentHandler.characters(header.toCharArray(), 0, 2);
-                contentHandler.endElement("", "VersionReleaseNumber", "");
-                contentHandler.startElement("", "TransactionCode", "", null);
-                contentHandler.characters(header.toCharArray(), 2, 2);
-                contentHandler.endElement("", "TransactionCode", "");
-                contentHandler.startElement("", "TransactionCount", "", null);
-                contentHandler.characters(header.toCharArray(), 4, 1);
-                contentHandler.endElement("", "TransactionCount", "");
-                contentHandler.startElement("", "HeaderResponseStatus", "", null);
-                contentHandler.characters(header.toCharArray(), 5, 1);
-                contentHandler.endElement("", "HeaderResponseStatus", "");
-                contentHandler.startElement("", "ServiceProviderIdQualifier", "", null);
-                contentHandler.characters(header.toCharArray(), 6, 2);
-                contentHandler.endElement("", "ServiceProviderIdQualifier", "");
-                contentHandler.startElement("", "ServiceProviderId", "", null);
-                contentHandler.characters(header.toCharArray(), 8, 15);
-                contentHandler.endElement("", "ServiceProviderId", "");
-                contentHandler.startElement("", "DateOfService", "", null);
-                contentHandler.characters(header.toCharArray(), 23, 8);
-                contentHandler.endElement("", "DateOfService", "");
-                contentHandler.endElement("", "TransactionHeaderResponse", "");
-            }
+        // handle a request (requests have a longer header than responses)
+        if (header.length() > 40) {
+            String transactionName = NCPDPReference.getInstance().getTransactionName(header.substring(8, 10));
+            version = header.substring(6, 8);
+            headerElementName = "NCPDP_" + version + "_" + transactionName + "_Request";
+
+            contentHandler.startElement("", headerElementName, "", null);
+            contentHandler.startElement("", "TransactionHeaderRequest", "", null);
+            contentHandler.startElement("", "BinNumber", "", null);
+            contentHandler.characters(header.toCharArray(), 0, 6);
+            contentHandler.endElement("", "BinNumber", "");
+            contentHandler.startElement("", "VersionReleaseNumber", "", null);
+            contentHandler.characters(header.toCharArray(), 6, 2);
+            contentHandler.endElement("", "VersionReleaseNumber", "");
+            contentHandler.startElement("", "TransactionCode", "", null);
+            contentHandler.characters(header.toCharArray(), 8, 2);
+            contentHandler.endElement("", "TransactionCode", "");
+            contentHandler.startElement("", "ProcessorControlNumber", "", null);
+            contentHandler.characters(header.toCharArray(), 10, 10);
+            contentHandler.endElement("", "ProcessorControlNumber", "");
+            contentHandler.startElement("", "TransactionCount", "", null);
+            contentHandler.characters(header.toCharArray(), 20, 1);
+            contentHandler.endElement("", "TransactionCount", "");
+            contentHandler.startElement("", "ServiceProviderIdQualifier", "", null);
+            contentHandler.characters(header.toCharArray(), 21, 2);
+            contentHandler.endElement("", "ServiceProviderIdQualifier", "");
+            contentHandler.startElement("", "ServiceProviderId", "", null);
+            contentHandler.characters(header.toCharArray(), 23, 15);
+            contentHandler.endElement("", "ServiceProviderId", "");
+            contentHandler.startElement("", "DateOfService", "", null);
+            contentHandler.characters(header.toCharArray(), 38, 8);
+            contentHandler.endElement("", "DateOfService", "");
+            contentHandler.startElement("", "SoftwareVendorCertificationId", "", null);
+            contentHandler.characters(header.toCharArray(), 46, 10);
+            contentHandler.endElement("", "SoftwareVendorCertificationId", "");
+            contentHandler.endElement("", "TransactionHeaderRequest", "");
+        } else { // handle a response
+            String transaction = NCPDPReference.getInstance().getTransactionName(header.substring(2, 4));
+            version = header.substring(0, 2);
+            headerElementName = "NCPDP_" + version + "_" + transaction + "_Response";
+
+            contentHandler.startElement("", headerElementName, "", null);
+            contentHandler.startElement("", "TransactionHeaderResponse", "", null);
+            contentHandler.startElement("", "VersionReleaseNumber", "", null);
+            contentHandler.characters(header.toCharArray(), 0, 2);
+            contentHandler.endElement("", "VersionReleaseNumber", "");
+            contentHandler.startElement("", "TransactionCode", "", null);
+            contentHandler.characters(header.toCharArray(), 2, 2);
+            contentHandler.endElement("", "TransactionCode", "");
+            contentHandler.startElement("", "TransactionCount", "", null);
+            contentHandler.characters(header.toCharArray(), 4, 1);
+            contentHandler.endElement("", "TransactionCount", "");
+            contentHandler.startElement("", "HeaderResponseStatus", "", null);
+            contentHandler.characters(header.toCharArray(), 5, 1);
+            contentHandler.endElement("", "HeaderResponseStatus", "");
+            contentHandler.startElement("", "ServiceProviderIdQualifier", "", null);
+            contentHandler.characters(header.toCharArray(), 6, 2);
+            contentHandler.endElement("", "ServiceProviderIdQualifier", "");
+            contentHandler.startElement("", "ServiceProviderId", "", null);
+            contentHandler.characters(header.toCharArray(), 8, 15);
+            contentHandler.endElement("", "ServiceProviderId", "");
+            contentHandler.startElement("", "DateOfService", "", null);
+            contentHandler.characters(header.toCharArray(), 23, 8);
+            contentHandler.endElement("", "DateOfService", "");
+            contentHandler.endElement("", "TransactionHeaderResponse", "");
         }
 
         return headerElementName;
@@ -9,8 +9,10 @@
 
 package com.mirth.connect.plugins.datatypes.ncpdp;
 
+import java.io.Reader;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.io.Writer;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
@@ -32,6 +34,7 @@ import com.mirth.connect.model.datatype.SerializerProperties;
 import com.mirth.connect.model.util.DefaultMetaData;
 import com.mirth.connect.util.ErrorMessageBuilder;
 import com.mirth.connect.util.StringUtil;
+import com.mirth.connect.util.XmlParserPool;
 
 public class NCPDPSerializer implements IMessageSerializer {
     private NCPDPSerializationProperties serializationProperties;
@@ -144,14 +147,22 @@ public class NCPDPSerializer implements IMessageSerializer {
             version = "51";
         }
 
+        // Validating readers are configured for a specific version, so only plain readers are pooled
+        boolean pooled = !deserializationProperties.isUseStrictValidation();
+        XMLReader reader = null;
+
         try {
-            XMLReader reader = XMLReaderFactory.createXMLReader();
-            reader.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
-            
+            if (pooled) {
+                reader = XmlParserPool.borrowXMLReader();
+            } else {
+                reader = XMLReaderFactory.createXMLReader();
+                reader.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            }
+
             NCPDPXMLHandler handler = new NCPDPXMLHandler(deserializationSegmentDelimiter, deserializationGroupDelimiter, deserializationFieldDelimiter, version);
             reader.setContentHandler(handler);
 
-            if (deserializationProperties.isUseStrictValidation()) {
+            if (!pooled) {
                 reader.setFeature("http://xml.org/sax/features/validation", true);
                 reader.setFeature("http://apache.org/xml/features/validation/schema", true);
                 reader.setFeature("http://apache.org/xml/features/validation/schema-full-checking", true);
@@ -170,6 +181,10 @@ public class NCPDPSerializer implements IMessageSerializer {
             return handler.getOutput().toString();
         } catch (Exception e) {
             throw new MessageSerializerException("Error converting XML to NCPDP message.", e, ErrorMessageBuilder.buildErrorMessage(this.getClass().getSimpleName(), "Error converting XML to NCPDP", e));
+        } finally {
+            if (pooled) {
+                XmlParserPool.releaseXMLReader(reader);
+            }
         }
     }
 
@@ -221,13 +236,22 @@ public class NCPDPSerializer implements IMessageSerializer {
 
     @Override
     public String toXML(String source) throws MessageSerializerException {
+        StringWriter stringWriter = new StringWriter();
+        toXML(new StringReader(source), stringWriter);
+        return stringWriter.toString();
+    }
+
+    /**
+     * Converts an NCPDP message read from the given reader to XML, writing it to the given writer as
+     * each segment is read. The channel pipeline keeps raw and transformed content as Strings, so
+     * it still uses {@link #toXML(String)}.
+     */
+    public void toXML(Reader source, Writer target) throws MessageSerializerException {
         try {
             NCPDPReader ncpdpReader = new NCPDPReader(serializationSegmentDelimiter, serializationGroupDelimiter, serializationFieldDelimiter);
-            StringWriter stringWriter = new StringWriter();
-            XMLPrettyPrinter serializer = new XMLPrettyPrinter(stringWriter);
+            XMLPrettyPrinter serializer = new XMLPrettyPrinter(target);
             ncpdpReader.setContentHandler(serializer);
-            ncpdpReader.parse(new InputSource(new StringReader(source)));
-            return stringWriter.toString();
+            ncpdpReader.parse(new InputSource(source));
         } catch (Exception e) {
             throw new MessageSerializerException("Error converting NCPDP message to XML.", e, ErrorMessageBuilder.buildErrorMessage(this.getClass().getSimpleName(), "Error converting NCPDP to XML", e));
         }
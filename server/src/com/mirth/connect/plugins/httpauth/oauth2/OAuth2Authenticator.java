@@ -13,34 +13,24 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.collections4.CollectionUtils;
+import org.apache.http.Header;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.protocol.HttpClientContext;
 import org.apache.http.client.utils.HttpClientUtils;
 import org.apache.http.client.utils.URIBuilder;
-import org.apache.http.config.RegistryBuilder;
-import org.apache.http.config.SocketConfig;
-import org.apache.http.conn.socket.ConnectionSocketFactory;
-import org.apache.http.conn.socket.PlainConnectionSocketFactory;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
-import org.apache.http.impl.client.HttpClients;
-import org.apache.http.impl.conn.BasicHttpClientConnectionManager;
-
-import com.mirth.connect.donkey.model.channel.ConnectorPluginProperties;
+
 import com.mirth.connect.plugins.core.httpauth.Authenticator;
 import com.mirth.connect.plugins.core.httpauth.RequestInfo;
 import com.mirth.connect.plugins.httpauth.AuthenticationResult;
 import com.mirth.connect.plugins.httpauth.oauth2.OAuth2HttpAuthProperties.TokenLocation;
 import com.mirth.connect.server.util.TemplateValueReplacer;
-import com.mirth.connect.util.HttpUtil;
 
 public class OAuth2Authenticator extends Authenticator {
 
-    private static final int SOCKET_TIMEOUT = 30000;
-
     private TemplateValueReplacer replacer = new TemplateValueReplacer();
     private OAuth2AuthenticatorProvider provider;
 
@@ -52,67 +42,87 @@ public class OAuth2Authenticator extends Authenticator {
     public AuthenticationResult authenticate(RequestInfo request) throws Exception {
         OAuth2HttpAuthProperties properties = getReplacedProperties(request);
 
-        CloseableHttpClient client = null;
-        CloseableHttpResponse response = null;
+        URIBuilder uriBuilder = new URIBuilder(properties.getVerificationURL());
 
-        try {
-            // Create and configure the client and context 
-            RegistryBuilder<ConnectionSocketFactory> socketFactoryRegistry = RegistryBuilder.<ConnectionSocketFactory> create().register("http", PlainConnectionSocketFactory.getSocketFactory());
-            ConnectorPluginProperties pluginProperties = null;
-            if (CollectionUtils.isNotEmpty(properties.getConnectorPluginProperties())) {
-                pluginProperties = properties.getConnectorPluginProperties().iterator().next();
+        // Add query parameters
+        if (properties.getTokenLocation() == TokenLocation.QUERY) {
+            List<String> paramList = request.getQueryParameters().get(properties.getLocationKey());
+            if (CollectionUtils.isNotEmpty(paramList)) {
+                for (String value : paramList) {
+                    uriBuilder.addParameter(properties.getLocationKey(), value);
+                }
             }
-            provider.getHttpConfiguration().configureSocketFactoryRegistry(pluginProperties, socketFactoryRegistry);
-            BasicHttpClientConnectionManager httpClientConnectionManager = new BasicHttpClientConnectionManager(socketFactoryRegistry.build());
-            httpClientConnectionManager.setSocketConfig(SocketConfig.custom().setSoTimeout(SOCKET_TIMEOUT).build());
-            HttpClientBuilder clientBuilder = HttpClients.custom().setConnectionManager(httpClientConnectionManager);
-            HttpUtil.configureClientBuilder(clientBuilder);
-            client = clientBuilder.build();
-
-            HttpClientContext context = HttpClientContext.create();
-            RequestConfig requestConfig = RequestConfig.custom().setConnectTimeout(SOCKET_TIMEOUT).setSocketTimeout(SOCKET_TIMEOUT).setStaleConnectionCheckEnabled(true).build();
-            context.setRequestConfig(requestConfig);
+        }
 
-            URIBuilder uriBuilder = new URIBuilder(properties.getVerificationURL());
+        // Build the final URI and create a GET request
+        HttpGet httpGet = new HttpGet(uriBuilder.build());
 
-            // Add query parameters
-            if (properties.getTokenLocation() == TokenLocation.QUERY) {
-                List<String> paramList = request.getQueryParameters().get(properties.getLocationKey());
-                if (CollectionUtils.isNotEmpty(paramList)) {
-                    for (String value : paramList) {
-                        uriBuilder.addParameter(properties.getLocationKey(), value);
-                    }
+        // Add headers
+        if (properties.getTokenLocation() == TokenLocation.HEADER) {
+            List<String> headerList = request.getHeaders().get(properties.getLocationKey());
+            if (CollectionUtils.isNotEmpty(headerList)) {
+                for (String value : headerList) {
+                    httpGet.addHeader(properties.getLocationKey(), value);
                 }
             }
+        }
 
-            // Build the final URI and create a GET request
-            HttpGet httpGet = new HttpGet(uriBuilder.build());
+        // Use the cached result if this token was verified recently
+        TokenVerificationCache cache = provider.getCache();
+        String cacheKey = null;
+        if (cache != null) {
+            cacheKey = getCacheKey(httpGet);
+            Boolean valid = cache.get(cacheKey);
 
-            // Add headers
-            if (properties.getTokenLocation() == TokenLocation.HEADER) {
-                List<String> headerList = request.getHeaders().get(properties.getLocationKey());
-                if (CollectionUtils.isNotEmpty(headerList)) {
-                    for (String value : headerList) {
-                        httpGet.addHeader(properties.getLocationKey(), value);
-                    }
-                }
+            if (valid != null) {
+                return valid ? AuthenticationResult.Success() : AuthenticationResult.Failure();
             }
+        }
+
+        CloseableHttpResponse response = null;
+
+        try {
+            HttpClientContext context = HttpClientContext.create();
+            RequestConfig requestConfig = RequestConfig.custom().setConnectTimeout(OAuth2AuthenticatorProvider.SOCKET_TIMEOUT).setSocketTimeout(OAuth2AuthenticatorProvider.SOCKET_TIMEOUT).setStaleConnectionCheckEnabled(true).build();
+            context.setRequestConfig(requestConfig);
 
             // Execute the request
-            response = client.execute(httpGet, context);
+            response = provider.getHttpClient().execute(httpGet, context);
+            int statusCode = response.getStatusLine().getStatusCode();
 
             // Determine authentication from the status code 
-            if (response.getStatusLine().getStatusCode() < 400) {
+            if (statusCode < 400) {
+                if (cache != null) {
+                    cache.put(cacheKey, true);
+                }
                 return AuthenticationResult.Success();
             } else {
+                // Server errors don't say anything about the token, so they aren't cached
+                if (cache != null && statusCode < 500) {
+                    cache.put(cacheKey, false);
+                }
                 return AuthenticationResult.Failure();
             }
         } finally {
+            // Consumes the entity so that the connection is returned to the pool
             HttpClientUtils.closeQuietly(response);
-            HttpClientUtils.closeQuietly(client);
         }
     }
 
+    /*
+     * Hashes the verification request, including the URI and any token headers, so that tokens
+     * are only cached for the verification URL that checked them.
+     */
+    private String getCacheKey(HttpGet httpGet) {
+        StringBuilder builder = new StringBuilder(httpGet.getURI().toString());
+
+        for (Header header : httpGet.getAllHeaders()) {
+            builder.append('\n').append(header.getName()).append(": ").append(header.getValue());
+        }
+
+        return DigestUtils.sha256Hex(builder.toString());
+    }
+
     private OAuth2HttpAuthProperties getReplacedProperties(RequestInfo request) {
         OAuth2HttpAuthProperties properties = new OAuth2HttpAuthProperties((OAuth2HttpAuthProperties) provider.getProperties());
         String channelId = provider.getConnector().getChannelId();
@@ -9,36 +9,126 @@
 
 package com.mirth.connect.plugins.httpauth.oauth2;
 
+import java.util.Set;
+
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.apache.http.client.utils.HttpClientUtils;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.config.SocketConfig;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+
 import com.mirth.connect.connectors.core.http.HttpConfiguration;
 import com.mirth.connect.connectors.http.DefaultHttpConfiguration;
+import com.mirth.connect.donkey.model.channel.ConnectorPluginProperties;
 import com.mirth.connect.donkey.server.channel.Connector;
 import com.mirth.connect.plugins.core.httpauth.Authenticator;
 import com.mirth.connect.plugins.core.httpauth.AuthenticatorProvider;
 import com.mirth.connect.plugins.httpauth.HttpAuthConnectorPluginProperties;
 import com.mirth.connect.server.controllers.ConfigurationController;
 import com.mirth.connect.server.controllers.ControllerFactory;
+import com.mirth.connect.util.HttpUtil;
 
 public class OAuth2AuthenticatorProvider extends AuthenticatorProvider {
 
     private static final ConfigurationController configurationController = ControllerFactory.getFactory().createConfigurationController();
 
+    static final int SOCKET_TIMEOUT = 30000;
+    private static final int MAX_CONNECTIONS = 20;
+    private static final int DEFAULT_CACHE_MAX_ENTRIES = 1000;
+
     private HttpConfiguration configuration;
+    private TokenVerificationCache cache;
+    private CloseableHttpClient client;
 
     public OAuth2AuthenticatorProvider(Connector connector, HttpAuthConnectorPluginProperties properties) {
+        this(connector, properties, createCache((OAuth2HttpAuthProperties) properties));
+    }
+
+    OAuth2AuthenticatorProvider(Connector connector, HttpAuthConnectorPluginProperties properties, TokenVerificationCache cache) {
         super(connector, properties);
         try {
             configuration = (HttpConfiguration) Class.forName(configurationController.getProperty("HTTP", "httpConfigurationClass")).newInstance();
         } catch (Exception e) {
             configuration = new DefaultHttpConfiguration();
         }
+
+        this.cache = cache;
+        if (cache != null) {
+            OAuth2MetricsCollector.getInstance().add(this);
+        }
+    }
+
+    private static TokenVerificationCache createCache(OAuth2HttpAuthProperties properties) {
+        // Listeners saved before these settings existed don't have them, so they don't cache
+        int ttl = NumberUtils.toInt(properties.getCacheTtl(), 0);
+        int negativeTtl = NumberUtils.toInt(properties.getCacheNegativeTtl(), 0);
+        int maxEntries = NumberUtils.toInt(properties.getCacheMaxEntries(), DEFAULT_CACHE_MAX_ENTRIES);
+
+        if ((ttl > 0 || negativeTtl > 0) && maxEntries > 0) {
+            return new TokenVerificationCache(ttl * 1000L, negativeTtl * 1000L, maxEntries);
+        }
+
+        return null;
     }
 
     HttpConfiguration getHttpConfiguration() {
         return configuration;
     }
 
+    /**
+     * Returns the cache of token verification results, or null if caching is disabled.
+     */
+    TokenVerificationCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Returns the client used to call the verification URL. Connections are pooled and kept alive
+     * between requests, so that each verification doesn't need a new TCP connection and TLS
+     * handshake.
+     */
+    synchronized CloseableHttpClient getHttpClient() throws Exception {
+        if (client == null) {
+            RegistryBuilder<ConnectionSocketFactory> socketFactoryRegistry = RegistryBuilder.<ConnectionSocketFactory> create().register("http", PlainConnectionSocketFactory.getSocketFactory());
+            ConnectorPluginProperties pluginProperties = null;
+            Set<ConnectorPluginProperties> connectorPluginProperties = ((OAuth2HttpAuthProperties) getProperties()).getConnectorPluginProperties();
+            if (CollectionUtils.isNotEmpty(connectorPluginProperties)) {
+                pluginProperties = connectorPluginProperties.iterator().next();
+            }
+            getHttpConfiguration().configureSocketFactoryRegistry(pluginProperties, socketFactoryRegistry);
+
+            PoolingHttpClientConnectionManager httpClientConnectionManager = new PoolingHttpClientConnectionManager(socketFactoryRegistry.build());
+            httpClientConnectionManager.setDefaultSocketConfig(SocketConfig.custom().setSoTimeout(SOCKET_TIMEOUT).build());
+            httpClientConnectionManager.setMaxTotal(MAX_CONNECTIONS);
+            httpClientConnectionManager.setDefaultMaxPerRoute(MAX_CONNECTIONS);
+            HttpClientBuilder clientBuilder = HttpClients.custom().setConnectionManager(httpClientConnectionManager);
+            HttpUtil.configureClientBuilder(clientBuilder);
+            client = clientBuilder.build();
+        }
+
+        return client;
+    }
+
     @Override
     public Authenticator getAuthenticator() throws Exception {
         return new OAuth2Authenticator(this);
     }
+
+    @Override
+    public void shutdown() {
+        if (cache != null) {
+            OAuth2MetricsCollector.getInstance().remove(this);
+        }
+
+        synchronized (this) {
+            HttpClientUtils.closeQuietly(client);
+            client = null;
+        }
+    }
 }
\ No newline at end of file
@@ -15,6 +15,7 @@ import java.util.Map;
 import java.util.Set;
 
 import com.mirth.connect.donkey.model.channel.ConnectorPluginProperties;
+import com.mirth.connect.donkey.util.purge.PurgeUtil;
 import com.mirth.connect.plugins.core.httpauth.AuthType;
 import com.mirth.connect.plugins.httpauth.HttpAuthConnectorPluginProperties;
 
@@ -38,6 +39,9 @@ public class OAuth2HttpAuthProperties extends HttpAuthConnectorPluginProperties
     private TokenLocation tokenLocation;
     private String locationKey;
     private String verificationURL;
+    private String cacheTtl;
+    private String cacheNegativeTtl;
+    private String cacheMaxEntries;
     private Set<ConnectorPluginProperties> connectorPluginProperties;
 
     public OAuth2HttpAuthProperties() {
@@ -45,6 +49,9 @@ public class OAuth2HttpAuthProperties extends HttpAuthConnectorPluginProperties
         tokenLocation = TokenLocation.HEADER;
         locationKey = "Authorization";
         verificationURL = "";
+        cacheTtl = "0";
+        cacheNegativeTtl = "0";
+        cacheMaxEntries = "1000";
     }
 
     public OAuth2HttpAuthProperties(OAuth2HttpAuthProperties props) {
@@ -52,6 +59,9 @@ public class OAuth2HttpAuthProperties extends HttpAuthConnectorPluginProperties
         tokenLocation = props.getTokenLocation();
         locationKey = props.getLocationKey();
         verificationURL = props.getVerificationURL();
+        cacheTtl = props.getCacheTtl();
+        cacheNegativeTtl = props.getCacheNegativeTtl();
+        cacheMaxEntries = props.getCacheMaxEntries();
 
         if (props.getConnectorPluginProperties() != null) {
             connectorPluginProperties = new HashSet<ConnectorPluginProperties>();
@@ -85,6 +95,38 @@ public class OAuth2HttpAuthProperties extends HttpAuthConnectorPluginProperties
         this.verificationURL = verificationURL;
     }
 
+    /**
+     * The number of seconds that a successful token verification is cached for, or 0 if successful
+     * verifications are not cached. A cached token is still accepted after it has been revoked.
+     */
+    public String getCacheTtl() {
+        return cacheTtl;
+    }
+
+    public void setCacheTtl(String cacheTtl) {
+        this.cacheTtl = cacheTtl;
+    }
+
+    /**
+     * The number of seconds that a rejected token is cached for, or 0 if rejected tokens are
+     * verified again every time.
+     */
+    public String getCacheNegativeTtl() {
+        return cacheNegativeTtl;
+    }
+
+    public void setCacheNegativeTtl(String cacheNegativeTtl) {
+        this.cacheNegativeTtl = cacheNegativeTtl;
+    }
+
+    public String getCacheMaxEntries() {
+        return cacheMaxEntries;
+    }
+
+    public void setCacheMaxEntries(String cacheMaxEntries) {
+        this.cacheMaxEntries = cacheMaxEntries;
+    }
+
     public Set<ConnectorPluginProperties> getConnectorPluginProperties() {
         return connectorPluginProperties;
     }
@@ -103,6 +145,9 @@ public class OAuth2HttpAuthProperties extends HttpAuthConnectorPluginProperties
         Map<String, Object> purgedProperties = new HashMap<String, Object>();
         purgedProperties.put("authType", getAuthType());
         purgedProperties.put("tokenLocation", tokenLocation);
+        purgedProperties.put("cacheTtl", PurgeUtil.getNumericValue(cacheTtl));
+        purgedProperties.put("cacheNegativeTtl", PurgeUtil.getNumericValue(cacheNegativeTtl));
+        purgedProperties.put("cacheMaxEntries", PurgeUtil.getNumericValue(cacheMaxEntries));
         if (connectorPluginProperties != null) {
             Set<Map<String, Object>> purgedPluginProperties = new HashSet<Map<String, Object>>();
             for (ConnectorPluginProperties cpp : connectorPluginProperties) {
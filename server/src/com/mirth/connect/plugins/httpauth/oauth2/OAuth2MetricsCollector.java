@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.plugins.httpauth.oauth2;
+
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+import com.mirth.connect.server.metrics.MetricsCollector;
+import com.mirth.connect.server.metrics.MetricsRegistry;
+import com.mirth.connect.server.metrics.MetricsWriter;
+
+/**
+ * Token verification cache hits and misses of each deployed HTTP Listener using OAuth2
+ * authentication.
+ */
+public class OAuth2MetricsCollector implements MetricsCollector {
+
+    private static OAuth2MetricsCollector instance = null;
+
+    private Set<OAuth2AuthenticatorProvider> providers = new CopyOnWriteArraySet<OAuth2AuthenticatorProvider>();
+
+    public static OAuth2MetricsCollector getInstance() {
+        synchronized (OAuth2MetricsCollector.class) {
+            if (instance == null) {
+                instance = new OAuth2MetricsCollector();
+                MetricsRegistry.getInstance().register(instance);
+            }
+
+            return instance;
+        }
+    }
+
+    private OAuth2MetricsCollector() {}
+
+    public void add(OAuth2AuthenticatorProvider provider) {
+        providers.add(provider);
+    }
+
+    public void remove(OAuth2AuthenticatorProvider provider) {
+        providers.remove(provider);
+    }
+
+    @Override
+    public void collect(MetricsWriter writer) {
+        if (providers.isEmpty()) {
+            return;
+        }
+
+        writer.family("mirth_oauth2_token_cache_hits_total", MetricsWriter.COUNTER, "Requests authenticated from the OAuth2 token verification cache.");
+        for (OAuth2AuthenticatorProvider provider : providers) {
+            if (provider.getCache() != null) {
+                writer.sample("mirth_oauth2_token_cache_hits_total", provider.getCache().getHitCount(), "channel_id", provider.getConnector().getChannelId());
+            }
+        }
+
+        writer.family("mirth_oauth2_token_cache_misses_total", MetricsWriter.COUNTER, "Requests that called the OAuth2 verification URL.");
+        for (OAuth2AuthenticatorProvider provider : providers) {
+            if (provider.getCache() != null) {
+                writer.sample("mirth_oauth2_token_cache_misses_total", provider.getCache().getMissCount(), "channel_id", provider.getConnector().getChannelId());
+            }
+        }
+
+        writer.family("mirth_oauth2_token_cache_entries", MetricsWriter.GAUGE, "Tokens in the OAuth2 token verification cache.");
+        for (OAuth2AuthenticatorProvider provider : providers) {
+            if (provider.getCache() != null) {
+                writer.sample("mirth_oauth2_token_cache_entries", provider.getCache().size(), "channel_id", provider.getConnector().getChannelId());
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.plugins.httpauth.oauth2;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers whether tokens were accepted or rejected by the verification URL. Accepted and rejected
+ * tokens expire separately, and once the cache is full the least recently used token is dropped.
+ * Keys are hashes, so the tokens themselves are never kept in memory.
+ */
+public class TokenVerificationCache {
+
+    private long ttl;
+    private long negativeTtl;
+    private Map<String, Entry> entries;
+    private AtomicLong hits = new AtomicLong();
+    private AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param ttl
+     *            The number of milliseconds to cache accepted tokens for.
+     * @param negativeTtl
+     *            The number of milliseconds to cache rejected tokens for.
+     * @param maxEntries
+     *            The maximum number of tokens to cache.
+     */
+    public TokenVerificationCache(long ttl, long negativeTtl, final int maxEntries) {
+        this.ttl = ttl;
+        this.negativeTtl = negativeTtl;
+
+        entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns true if the token was accepted, false if it was rejected, or null if its result isn't
+     * cached or has expired.
+     */
+    public synchronized Boolean get(String key) {
+        Entry entry = entries.get(key);
+
+        if (entry != null && entry.expires > currentTimeMillis()) {
+            hits.incrementAndGet();
+            return entry.valid;
+        }
+
+        if (entry != null) {
+            entries.remove(key);
+        }
+
+        misses.incrementAndGet();
+        return null;
+    }
+
+    public synchronized void put(String key, boolean valid) {
+        long expiry = valid ? ttl : negativeTtl;
+
+        if (expiry > 0) {
+            entries.put(key, new Entry(valid, currentTimeMillis() + expiry));
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    private static class Entry {
+        private boolean valid;
+        private long expires;
+
+        public Entry(boolean valid, long expires) {
+            this.valid = valid;
+            this.expires = expires;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ * 
+ * http://www.mirthcorp.com
+ * 
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.plugins.latencymetrics;
+
+import static com.mirth.connect.plugins.latencymetrics.LatencyMetricsServletInterface.PERMISSION_MANAGE;
+import static com.mirth.connect.plugins.latencymetrics.LatencyMetricsServletInterface.PERMISSION_VIEW;
+import static com.mirth.connect.plugins.latencymetrics.LatencyMetricsServletInterface.PLUGIN_POINT;
+
+import java.util.Properties;
+
+import com.mirth.connect.client.core.api.util.OperationUtil;
+import com.mirth.connect.model.ExtensionPermission;
+import com.mirth.connect.plugins.ServicePlugin;
+
+public class LatencyMetricsProvider implements ServicePlugin {
+
+    @Override
+    public String getPluginPointName() {
+        return PLUGIN_POINT;
+    }
+
+    public Properties getDefaultProperties() {
+        return new Properties();
+    }
+
+    @Override
+    public ExtensionPermission[] getExtensionPermissions() {
+        ExtensionPermission viewPermission = new ExtensionPermission(PLUGIN_POINT, PERMISSION_VIEW, "Displays how long message store operations and message processing stages take for each channel on the Dashboard.", OperationUtil.getOperationNamesForPermission(PERMISSION_VIEW, LatencyMetricsServletInterface.class), new String[] {});
+        ExtensionPermission managePermission = new ExtensionPermission(PLUGIN_POINT, PERMISSION_MANAGE, "Allows message store operations and message processing stages to be timed, and the recorded times to be cleared.", OperationUtil.getOperationNamesForPermission(PERMISSION_MANAGE, LatencyMetricsServletInterface.class), new String[] {});
+        return new ExtensionPermission[] { viewPermission, managePermission };
+    }
+
+    @Override
+    public void start() {}
+
+    @Override
+    public void stop() {}
+
+    @Override
+    public void update(Properties properties) {}
+
+    @Override
+    public void init(Properties properties) {}
+}
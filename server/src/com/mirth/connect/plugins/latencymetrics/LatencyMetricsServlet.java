@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ * 
+ * http://www.mirthcorp.com
+ * 
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.plugins.latencymetrics;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.SecurityContext;
+
+import org.apache.commons.collections4.CollectionUtils;
+
+import com.mirth.connect.client.core.ClientException;
+import com.mirth.connect.donkey.model.channel.LatencyStatistics;
+import com.mirth.connect.donkey.model.message.SampledMessageTrace;
+import com.mirth.connect.donkey.server.Donkey;
+import com.mirth.connect.donkey.server.channel.MessageTracer;
+import com.mirth.connect.donkey.server.data.metrics.DaoMetrics;
+import com.mirth.connect.donkey.server.data.metrics.LatencyMetrics;
+import com.mirth.connect.server.api.MirthServlet;
+
+public class LatencyMetricsServlet extends MirthServlet implements LatencyMetricsServletInterface {
+
+    public LatencyMetricsServlet(@Context HttpServletRequest request, @Context SecurityContext sc) {
+        super(request, sc, PLUGIN_POINT);
+    }
+
+    @Override
+    public List<LatencyStatistics> getDaoStatistics(Set<String> channelIds) throws ClientException {
+        return getStatistics(getDaoMetrics(), channelIds);
+    }
+
+    @Override
+    public List<LatencyStatistics> getDaoStatisticsPost(Set<String> channelIds) throws ClientException {
+        return getDaoStatistics(channelIds);
+    }
+
+    @Override
+    public boolean isDaoMetricsEnabled() throws ClientException {
+        return getDaoMetrics().isEnabled();
+    }
+
+    @Override
+    public void setDaoMetricsEnabled(boolean enabled) throws ClientException {
+        getDaoMetrics().setEnabled(enabled);
+    }
+
+    @Override
+    public void resetDaoMetrics(Set<String> channelIds) throws ClientException {
+        reset(getDaoMetrics(), channelIds);
+    }
+
+    @Override
+    public List<LatencyStatistics> getStageStatistics(Set<String> channelIds) throws ClientException {
+        return getStatistics(getMessageTracer(), channelIds);
+    }
+
+    @Override
+    public List<LatencyStatistics> getStageStatisticsPost(Set<String> channelIds) throws ClientException {
+        return getStageStatistics(channelIds);
+    }
+
+    @Override
+    public boolean isMessageTracingEnabled() throws ClientException {
+        return getMessageTracer().isEnabled();
+    }
+
+    @Override
+    public void setMessageTracingEnabled(boolean enabled) throws ClientException {
+        getMessageTracer().setEnabled(enabled);
+    }
+
+    @Override
+    public double getMessageTraceSamplePercentage() throws ClientException {
+        return getMessageTracer().getSamplePercentage();
+    }
+
+    @Override
+    public void setMessageTraceSamplePercentage(double percentage) throws ClientException {
+        getMessageTracer().setSamplePercentage(percentage);
+    }
+
+    @Override
+    public List<SampledMessageTrace> getSampledMessageTraces(Set<String> channelIds) throws ClientException {
+        List<SampledMessageTrace> samples = getMessageTracer().getSamples(CollectionUtils.isEmpty(channelIds) ? null : channelIds);
+
+        if (doesUserHaveChannelRestrictions()) {
+            for (Iterator<SampledMessageTrace> iterator = samples.iterator(); iterator.hasNext();) {
+                if (isChannelRedacted(iterator.next().getChannelId())) {
+                    iterator.remove();
+                }
+            }
+        }
+
+        return samples;
+    }
+
+    @Override
+    public List<SampledMessageTrace> getSampledMessageTracesPost(Set<String> channelIds) throws ClientException {
+        return getSampledMessageTraces(channelIds);
+    }
+
+    @Override
+    public void resetStageMetrics(Set<String> channelIds) throws ClientException {
+        reset(getMessageTracer(), channelIds);
+    }
+
+    private List<LatencyStatistics> getStatistics(LatencyMetrics metrics, Set<String> channelIds) {
+        List<LatencyStatistics> statistics = metrics.getStatistics(CollectionUtils.isEmpty(channelIds) ? null : channelIds);
+
+        if (doesUserHaveChannelRestrictions()) {
+            for (Iterator<LatencyStatistics> iterator = statistics.iterator(); iterator.hasNext();) {
+                if (isChannelRedacted(iterator.next().getChannelId())) {
+                    iterator.remove();
+                }
+            }
+        }
+
+        return statistics;
+    }
+
+    private void reset(LatencyMetrics metrics, Set<String> channelIds) {
+        if (CollectionUtils.isEmpty(channelIds)) {
+            if (!doesUserHaveChannelRestrictions()) {
+                metrics.reset();
+                return;
+            }
+
+            channelIds = metrics.getChannelIds();
+        }
+
+        for (String channelId : redactChannelIds(channelIds)) {
+            metrics.reset(channelId);
+        }
+    }
+
+    private DaoMetrics getDaoMetrics() {
+        return Donkey.getInstance().getDaoMetrics();
+    }
+
+    private MessageTracer getMessageTracer() {
+        return Donkey.getInstance().getMessageTracer();
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ * 
+ * http://www.mirthcorp.com
+ * 
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.plugins.latencymetrics;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.ExampleObject;
+import io.swagger.v3.oas.annotations.parameters.RequestBody;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+import java.util.List;
+import java.util.Set;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+
+import com.mirth.connect.client.core.ClientException;
+import com.mirth.connect.client.core.Operation.ExecuteType;
+import com.mirth.connect.client.core.api.BaseServletInterface;
+import com.mirth.connect.client.core.api.MirthOperation;
+import com.mirth.connect.client.core.api.Param;
+import com.mirth.connect.donkey.model.channel.LatencyStatistics;
+import com.mirth.connect.donkey.model.message.SampledMessageTrace;
+
+@Path("/extensions/latencymetrics")
+@Tag(name = "Extension Services")
+@Consumes({ MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON })
+@Produces({ MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON })
+public interface LatencyMetricsServletInterface extends BaseServletInterface {
+
+    public static final String PLUGIN_POINT = "Latency Metrics";
+    public static final String PERMISSION_VIEW = "View Latency Metrics";
+    public static final String PERMISSION_MANAGE = "Manage Latency Metrics";
+
+    @GET
+    @Path("/dao/statistics")
+    @Operation(summary = "Retrieves the latency percentiles and rates of message store operations for the given channels.")
+    @MirthOperation(name = "getDaoStatistics", display = "Get DAO metrics", permission = PERMISSION_VIEW, type = ExecuteType.ASYNC, auditable = false)
+    public List<LatencyStatistics> getDaoStatistics(@Param("channelIds") @Parameter(description = "The IDs of the channels to retrieve metrics for. If absent, all channels will be retrieved.") @QueryParam("channelId") Set<String> channelIds) throws ClientException;
+
+    @POST
+    @Path("/dao/statistics/_getStatistics")
+    @Operation(summary = "Retrieves the latency percentiles and rates of message store operations for the given channels. This is a POST request alternative to GET /dao/statistics that may be used when there are too many channel IDs to include in the query parameters.")
+    @MirthOperation(name = "getDaoStatistics", display = "Get DAO metrics", permission = PERMISSION_VIEW, type = ExecuteType.ASYNC, auditable = false)
+    public List<LatencyStatistics> getDaoStatisticsPost(// @formatter:off
+            @Param("channelIds") @RequestBody(description = "The IDs of the channels to retrieve metrics for. If absent, all channels will be retrieved.", content = {
+                    @Content(mediaType = MediaType.APPLICATION_XML, examples = {
+                            @ExampleObject(name = "channelIds", ref = "../apiexamples/guid_set_xml") }),
+                    @Content(mediaType = MediaType.APPLICATION_JSON, examples = {
+                            @ExampleObject(name = "channelIds", ref = "../apiexamples/guid_set_json") }) }) Set<String> channelIds) throws ClientException;
+    // @formatter:on
+
+    @GET
+    @Path("/dao/enabled")
+    @Operation(summary = "Returns true if message store operations are currently being timed.")
+    @MirthOperation(name = "isDaoMetricsEnabled", display = "Get DAO metrics enabled flag", permission = PERMISSION_VIEW, type = ExecuteType.ASYNC, auditable = false)
+    @Produces({ MediaType.APPLICATION_JSON, MediaType.TEXT_PLAIN })
+    public boolean isDaoMetricsEnabled() throws ClientException;
+
+    @POST
+    @Path("/dao/enabled/{enabled}")
+    @Operation(summary = "Starts or stops timing message store operations. Already recorded metrics are kept.")
+    @MirthOperation(name = "setDaoMetricsEnabled", display = "Set DAO metrics enabled flag", permission = PERMISSION_MANAGE)
+    public void setDaoMetricsEnabled(@Param("enabled") @Parameter(description = "Indicates whether operations should be timed.", required = true) @PathParam("enabled") boolean enabled) throws ClientException;
+
+    @POST
+    @Path("/dao/_reset")
+    @Operation(summary = "Clears the recorded metrics for the given channels.")
+    @MirthOperation(name = "resetDaoMetrics", display = "Reset DAO metrics", permission = PERMISSION_MANAGE)
+    public void resetDaoMetrics(@Param("channelIds") @Parameter(description = "The IDs of the channels to clear metrics for. If absent, the metrics of all channels the user has access to will be cleared.") @QueryParam("channelId") Set<String> channelIds) throws ClientException;
+
+    @GET
+    @Path("/stages/statistics")
+    @Operation(summary = "Retrieves the latency percentiles and rates of each message processing stage for the given channels.")
+    @MirthOperation(name = "getStageStatistics", display = "Get message stage metrics", permission = PERMISSION_VIEW, type = ExecuteType.ASYNC, auditable = false)
+    public List<LatencyStatistics> getStageStatistics(@Param("channelIds") @Parameter(description = "The IDs of the channels to retrieve metrics for. If absent, all channels will be retrieved.") @QueryParam("channelId") Set<String> channelIds) throws ClientException;
+
+    @POST
+    @Path("/stages/statistics/_getStatistics")
+    @Operation(summary = "Retrieves the latency percentiles and rates of each message processing stage for the given channels. This is a POST request alternative to GET /stages/statistics that may be used when there are too many channel IDs to include in the query parameters.")
+    @MirthOperation(name = "getStageStatistics", display = "Get message stage metrics", permission = PERMISSION_VIEW, type = ExecuteType.ASYNC, auditable = false)
+    public List<LatencyStatistics> getStageStatisticsPost(// @formatter:off
+            @Param("channelIds") @RequestBody(description = "The IDs of the channels to retrieve metrics for. If absent, all channels will be retrieved.", content = {
+                    @Content(mediaType = MediaType.APPLICATION_XML, examples = {
+                            @ExampleObject(name = "channelIds", ref = "../apiexamples/guid_set_xml") }),
+                    @Content(mediaType = MediaType.APPLICATION_JSON, examples = {
+                            @ExampleObject(name = "channelIds", ref = "../apiexamples/guid_set_json") }) }) Set<String> channelIds) throws ClientException;
+    // @formatter:on
+
+    @GET
+    @Path("/stages/enabled")
+    @Operation(summary = "Returns true if newly dispatched messages are being traced through the processing stages.")
+    @MirthOperation(name = "isMessageTracingEnabled", display = "Get message tracing enabled flag", permission = PERMISSION_VIEW, type = ExecuteType.ASYNC, auditable = false)
+    @Produces({ MediaType.APPLICATION_JSON, MediaType.TEXT_PLAIN })
+    public boolean isMessageTracingEnabled() throws ClientException;
+
+    @POST
+    @Path("/stages/enabled/{enabled}")
+    @Operation(summary = "Starts or stops tracing newly dispatched messages through the processing stages. Already recorded metrics are kept.")
+    @MirthOperation(name = "setMessageTracingEnabled", display = "Set message tracing enabled flag", permission = PERMISSION_MANAGE)
+    public void setMessageTracingEnabled(@Param("enabled") @Parameter(description = "Indicates whether messages should be traced.", required = true) @PathParam("enabled") boolean enabled) throws ClientException;
+
+    @GET
+    @Path("/stages/samplePercentage")
+    @Operation(summary = "Returns the percentage of traced messages whose trace is kept.")
+    @MirthOperation(name = "getMessageTraceSamplePercentage", display = "Get message trace sample percentage", permission = PERMISSION_VIEW, type = ExecuteType.ASYNC, auditable = false)
+    @Produces({ MediaType.APPLICATION_JSON, MediaType.TEXT_PLAIN })
+    public double getMessageTraceSamplePercentage() throws ClientException;
+
+    @POST
+    @Path("/stages/samplePercentage/{percentage}")
+    @Operation(summary = "Sets the percentage of traced messages whose trace is kept in memory, so that it can be retrieved with GET /stages/samples. Traces are never stored with the message.")
+    @MirthOperation(name = "setMessageTraceSamplePercentage", display = "Set message trace sample percentage", permission = PERMISSION_MANAGE)
+    public void setMessageTraceSamplePercentage(@Param("percentage") @Parameter(description = "The percentage, from 0 to 100.", required = true) @PathParam("percentage") double percentage) throws ClientException;
+
+    @GET
+    @Path("/stages/samples")
+    @Operation(summary = "Retrieves the most recent sampled message traces for the given channels, newest first. Only the last 100 traces are kept.")
+    @MirthOperation(name = "getSampledMessageTraces", display = "Get sampled message traces", permission = PERMISSION_VIEW, type = ExecuteType.ASYNC, auditable = false)
+    public List<SampledMessageTrace> getSampledMessageTraces(@Param("channelIds") @Parameter(description = "The IDs of the channels to retrieve traces for. If absent, all channels will be retrieved.") @QueryParam("channelId") Set<String> channelIds) throws ClientException;
+
+    @POST
+    @Path("/stages/samples/_getSamples")
+    @Operation(summary = "Retrieves the most recent sampled message traces for the given channels, newest first. This is a POST request alternative to GET /stages/samples that may be used when there are too many channel IDs to include in the query parameters.")
+    @MirthOperation(name = "getSampledMessageTraces", display = "Get sampled message traces", permission = PERMISSION_VIEW, type = ExecuteType.ASYNC, auditable = false)
+    public List<SampledMessageTrace> getSampledMessageTracesPost(// @formatter:off
+            @Param("channelIds") @RequestBody(description = "The IDs of the channels to retrieve traces for. If absent, all channels will be retrieved.", content = {
+                    @Content(mediaType = MediaType.APPLICATION_XML, examples = {
+                            @ExampleObject(name = "channelIds", ref = "../apiexamples/guid_set_xml") }),
+                    @Content(mediaType = MediaType.APPLICATION_JSON, examples = {
+                            @ExampleObject(name = "channelIds", ref = "../apiexamples/guid_set_json") }) }) Set<String> channelIds) throws ClientException;
+    // @formatter:on
+
+    @POST
+    @Path("/stages/_reset")
+    @Operation(summary = "Clears the recorded message stage metrics and sampled traces for the given channels.")
+    @MirthOperation(name = "resetStageMetrics", display = "Reset message stage metrics", permission = PERMISSION_MANAGE)
+    public void resetStageMetrics(@Param("channelIds") @Parameter(description = "The IDs of the channels to clear metrics for. If absent, the metrics of all channels the user has access to will be cleared.") @QueryParam("channelId") Set<String> channelIds) throws ClientException;
+}
@@ -13,6 +13,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
 import java.net.InetAddress;
 import java.net.ServerSocket;
 import java.nio.charset.Charset;
@@ -24,6 +25,9 @@ import java.util.List;
 import java.util.Timer;
 import java.util.TimerTask;
 
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
 import org.apache.commons.configuration2.PropertiesConfiguration;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -60,6 +64,8 @@ import com.mirth.connect.server.controllers.UserController;
 import com.mirth.connect.server.logging.JuliToLog4JService;
 import com.mirth.connect.server.logging.LogOutputStream;
 import com.mirth.connect.server.logging.MirthLog4jFilter;
+import com.mirth.connect.server.mbeans.DaoMetricsMXBean;
+import com.mirth.connect.server.mbeans.DaoMetricsService;
 import com.mirth.connect.server.util.NetworkUtil;
 import com.mirth.connect.server.util.ResourceUtil;
 import com.mirth.connect.server.util.SqlConfig;
@@ -445,6 +451,17 @@ public class Mirth extends Thread {
         } catch (Exception e) {
             logger.error(e);
         }
+
+        try {
+            MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName daoMetricsName = new ObjectName(DaoMetricsMXBean.OBJECT_NAME);
+
+            if (!mbeanServer.isRegistered(daoMetricsName)) {
+                mbeanServer.registerMBean(new DaoMetricsService(), daoMetricsName);
+            }
+        } catch (Exception e) {
+            logger.warn("Unable to register the message store metrics MBean.", e);
+        }
     }
 
     /**
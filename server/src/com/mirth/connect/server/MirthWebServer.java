@@ -109,6 +109,7 @@ import com.mirth.connect.server.api.providers.StrictTransportSecurityFilter;
 import com.mirth.connect.server.controllers.ConfigurationController;
 import com.mirth.connect.server.controllers.ControllerFactory;
 import com.mirth.connect.server.controllers.ExtensionController;
+import com.mirth.connect.server.servlets.MetricsServlet;
 import com.mirth.connect.server.servlets.SwaggerExamplesServlet;
 import com.mirth.connect.server.servlets.SwaggerServlet;
 import com.mirth.connect.server.servlets.WebStartServlet;
@@ -349,6 +350,11 @@ public class MirthWebServer extends Server {
         servletContextHandler.addServlet(new ServletHolder(new WebStartServlet()), "/webstart.jnlp");
         servletContextHandler.addServlet(new ServletHolder(new WebStartServlet()), "/webstart");
         servletContextHandler.addServlet(new ServletHolder(new WebStartServlet()), "/webstart/extensions/*");
+
+        // Serve engine and JVM metrics for Prometheus if enabled
+        if (Boolean.parseBoolean(mirthProperties.getString("server.metrics", "false"))) {
+            servletContextHandler.addServlet(new ServletHolder(new MetricsServlet(mirthProperties.getString("server.metrics.token", ""))), "/metrics");
+        }
         handlers.addHandler(servletContextHandler);
 
         // add the default handler for misc requests (favicon, etc.)
@@ -164,6 +164,11 @@ public class JavaScriptBuilder {
                 break;
         }
 
+        // Give HL7 v2 scripts indexed access to the ER7 message, which is only scanned if it's used
+        if ("HL7V2".equals(transformer.getInboundDataType())) {
+            builder.append("msgER7 = new ER7Message(connectorMessage.getProcessedRawData() != null ? connectorMessage.getProcessedRawData() : connectorMessage.getRawData());\n");
+        }
+
         // Turn the outbound template into an E4X XML object, if there is one
         if (StringUtils.isNotBlank(transformer.getOutboundTemplate())) {
             SerializationType templateSerializationType = DataTypeFactory.getSerializationType(transformer.getOutboundDataType(), transformer.getOutboundProperties(), true);
@@ -103,6 +103,8 @@ import com.mirth.connect.connectors.ws.WebServiceDispatcherProperties;
 import com.mirth.connect.donkey.model.DatabaseConstants;
 import com.mirth.connect.donkey.model.message.batch.BatchStreamReader;
 import com.mirth.connect.donkey.server.data.DonkeyStatisticsUpdater;
+import com.mirth.connect.donkey.server.channel.DestinationChainExecutorFactory;
+import com.mirth.connect.donkey.server.queue.QueueSizeCheckpointer;
 import com.mirth.connect.donkey.util.DonkeyElement;
 import com.mirth.connect.model.Channel;
 import com.mirth.connect.model.ChannelDependency;
@@ -188,6 +190,16 @@ public class DefaultConfigurationController extends ConfigurationController {
     private static DatabaseSettings databaseConfig;
     private static String apiBypassword;
     private static int statsUpdateInterval;
+    private static int queueSnapshotInterval;
+    private static boolean queueDeferBufferFill;
+    private static String destinationChainExecutor;
+    private static int destinationChainThreads;
+    private static int destinationChainChannelThreads;
+    private static int documentWriterMaxRenders;
+    private static boolean daoMetricsEnabled;
+    private static boolean compactMessageMaps;
+    private static boolean messageTracingEnabled;
+    private static double messageTraceSamplePercentage;
     private static Integer rhinoLanguageVersion;
     private static int startupLockSleep;
     protected volatile boolean configMapLoaded = false;
@@ -207,6 +219,16 @@ public class DefaultConfigurationController extends ConfigurationController {
     private static final String STARTUP_DEPLOY = "server.startupdeploy";
     private static final String API_BYPASSWORD = "server.api.bypassword";
     private static final String STATS_UPDATE_INTERVAL = "donkey.statsupdateinterval";
+    private static final String QUEUE_SNAPSHOT_INTERVAL = "donkey.queuesnapshotinterval";
+    private static final String QUEUE_DEFER_BUFFER_FILL = "donkey.queuedeferbufferfill";
+    private static final String DESTINATION_CHAIN_EXECUTOR = "donkey.chainexecutor";
+    private static final String DESTINATION_CHAIN_THREADS = "donkey.chainexecutor.threads";
+    private static final String DESTINATION_CHAIN_CHANNEL_THREADS = "donkey.chainexecutor.channelthreads";
+    private static final String DOCUMENT_WRITER_MAX_RENDERS = "document.writer.maxrenders";
+    private static final String DAO_METRICS = "donkey.daometrics";
+    private static final String COMPACT_MESSAGE_MAPS = "donkey.compactmaps";
+    private static final String MESSAGE_TRACING = "donkey.messagetracing";
+    private static final String MESSAGE_TRACE_SAMPLE = "donkey.messagetracing.sample";
     private static final String RHINO_LANGUAGE_VERSION = "rhino.languageversion";
     private static final String SERVER_STARTUP_LOCK_SLEEP = "server.startuplocksleep";
     private static final String XSTREAM_DENY_TYPES = "xstream.denytypes";
@@ -381,6 +403,16 @@ public class DefaultConfigurationController extends ConfigurationController {
             }
 
             statsUpdateInterval = NumberUtils.toInt(mirthConfig.getString(STATS_UPDATE_INTERVAL), DonkeyStatisticsUpdater.DEFAULT_UPDATE_INTERVAL);
+            queueSnapshotInterval = NumberUtils.toInt(mirthConfig.getString(QUEUE_SNAPSHOT_INTERVAL), QueueSizeCheckpointer.DEFAULT_CHECKPOINT_INTERVAL);
+            queueDeferBufferFill = mirthConfig.getBoolean(QUEUE_DEFER_BUFFER_FILL, false);
+            destinationChainExecutor = mirthConfig.getString(DESTINATION_CHAIN_EXECUTOR, DestinationChainExecutorFactory.BACKEND_CACHED);
+            destinationChainThreads = NumberUtils.toInt(mirthConfig.getString(DESTINATION_CHAIN_THREADS), DestinationChainExecutorFactory.DEFAULT_SHARED_THREADS);
+            destinationChainChannelThreads = NumberUtils.toInt(mirthConfig.getString(DESTINATION_CHAIN_CHANNEL_THREADS), 0);
+            documentWriterMaxRenders = NumberUtils.toInt(mirthConfig.getString(DOCUMENT_WRITER_MAX_RENDERS), 0);
+            daoMetricsEnabled = mirthConfig.getBoolean(DAO_METRICS, false);
+            compactMessageMaps = mirthConfig.getBoolean(COMPACT_MESSAGE_MAPS, false);
+            messageTracingEnabled = mirthConfig.getBoolean(MESSAGE_TRACING, false);
+            messageTraceSamplePercentage = NumberUtils.toDouble(mirthConfig.getString(MESSAGE_TRACE_SAMPLE), 0);
 
             if (Strings.isNullOrEmpty(mirthConfig.getString(CONFIGURATION_MAP_LOCATION)) || "file".equals(mirthConfig.getString(CONFIGURATION_MAP_LOCATION))) {
                 PropertiesConfiguration configurationMapProperties = PropertiesConfigurationUtil.create();
@@ -813,6 +845,56 @@ public class DefaultConfigurationController extends ConfigurationController {
         return statsUpdateInterval;
     }
 
+    @Override
+    public int getQueueSnapshotInterval() {
+        return queueSnapshotInterval;
+    }
+
+    @Override
+    public boolean isQueueDeferBufferFill() {
+        return queueDeferBufferFill;
+    }
+
+    @Override
+    public String getDestinationChainExecutor() {
+        return destinationChainExecutor;
+    }
+
+    @Override
+    public int getDestinationChainThreads() {
+        return destinationChainThreads;
+    }
+
+    @Override
+    public int getDestinationChainChannelThreads() {
+        return destinationChainChannelThreads;
+    }
+
+    @Override
+    public int getDocumentWriterMaxRenders() {
+        return documentWriterMaxRenders;
+    }
+
+    @Override
+    public boolean isDaoMetricsEnabled() {
+        return daoMetricsEnabled;
+    }
+
+    @Override
+    public boolean isCompactMessageMaps() {
+        return compactMessageMaps;
+    }
+
+    @Override
+    public boolean isMessageTracingEnabled() {
+        return messageTracingEnabled;
+    }
+
+    @Override
+    public double getMessageTraceSamplePercentage() {
+        return messageTraceSamplePercentage;
+    }
+
     @Override
     public Integer getRhinoLanguageVersion() {
         return rhinoLanguageVersion;
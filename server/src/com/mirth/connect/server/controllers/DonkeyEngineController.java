@@ -72,6 +72,7 @@ import com.mirth.connect.donkey.server.channel.ChannelProcessLock;
 import com.mirth.connect.donkey.server.channel.Connector;
 import com.mirth.connect.donkey.model.channel.DebugOptions;
 import com.mirth.connect.donkey.server.channel.DefaultChannelProcessLock;
+import com.mirth.connect.donkey.server.channel.DestinationChainMetrics;
 import com.mirth.connect.donkey.server.channel.DestinationChainProvider;
 import com.mirth.connect.donkey.server.channel.DestinationConnector;
 import com.mirth.connect.donkey.server.channel.DestinationConnectorPlugin;
@@ -80,6 +81,7 @@ import com.mirth.connect.donkey.server.channel.FilterTransformerExecutor;
 import com.mirth.connect.donkey.server.channel.MetaDataReplacer;
 import com.mirth.connect.donkey.server.channel.PollConnector;
 import com.mirth.connect.donkey.server.channel.PollSourceConnectorPlugin;
+import com.mirth.connect.donkey.server.channel.RecoveryTask;
 import com.mirth.connect.donkey.server.channel.ResponseSelector;
 import com.mirth.connect.donkey.server.channel.ResponseTransformerExecutor;
 import com.mirth.connect.donkey.server.channel.SourceConnector;
@@ -90,6 +92,7 @@ import com.mirth.connect.donkey.server.channel.components.PostProcessor;
 import com.mirth.connect.donkey.server.channel.components.PreProcessor;
 import com.mirth.connect.donkey.server.data.DonkeyDao;
 import com.mirth.connect.donkey.server.data.buffered.BufferedDaoFactory;
+import com.mirth.connect.donkey.server.data.metrics.MetricsDaoFactory;
 import com.mirth.connect.donkey.server.data.passthru.PassthruDaoFactory;
 import com.mirth.connect.donkey.server.event.ErrorEvent;
 import com.mirth.connect.donkey.server.event.EventDispatcher;
@@ -270,6 +273,15 @@ public class DonkeyEngineController implements EngineController {
 
         Properties donkeyProperties = configurationController.getDatabaseSettings().getProperties(ObjectXMLSerializer.getInstance());
         donkeyProperties.setProperty("donkey.statsupdateinterval", String.valueOf(configurationController.getStatsUpdateInterval()));
+        donkeyProperties.setProperty("donkey.queuesnapshotinterval", String.valueOf(configurationController.getQueueSnapshotInterval()));
+        donkeyProperties.setProperty("donkey.queuedeferbufferfill", String.valueOf(configurationController.isQueueDeferBufferFill()));
+        donkeyProperties.setProperty("donkey.chainexecutor", configurationController.getDestinationChainExecutor());
+        donkeyProperties.setProperty("donkey.chainexecutor.threads", String.valueOf(configurationController.getDestinationChainThreads()));
+        donkeyProperties.setProperty("donkey.chainexecutor.channelthreads", String.valueOf(configurationController.getDestinationChainChannelThreads()));
+        donkeyProperties.setProperty("donkey.daometrics", String.valueOf(configurationController.isDaoMetricsEnabled()));
+        donkeyProperties.setProperty("donkey.compactmaps", String.valueOf(configurationController.isCompactMessageMaps()));
+        donkeyProperties.setProperty("donkey.messagetracing", String.valueOf(configurationController.isMessageTracingEnabled()));
+        donkeyProperties.setProperty("donkey.messagetracing.sample", String.valueOf(configurationController.getMessageTraceSamplePercentage()));
 
         donkey.startEngine(new DonkeyConfiguration(configurationController.getApplicationDataDir(), donkeyProperties, donkeyEncryptor, eventDispatcher, configurationController.getServerId()));
     }
@@ -896,6 +908,16 @@ public class DonkeyEngineController implements EngineController {
                 status.setState(channel.getCurrentState());
                 status.setDeployedDate(channel.getDeployDate());
 
+                RecoveryTask recoveryTask = channel.getRecoveryTask();
+                if (recoveryTask != null && channel.isRecovering()) {
+                    status.setRecovering(true);
+                    status.setRecoveredMessages(recoveryTask.getRecoveredMessages());
+                }
+
+                DestinationChainMetrics chainMetrics = channel.getDestinationChainMetrics();
+                status.setActiveDestinationChains(chainMetrics.getActiveChains());
+                status.setDestinationChainWaitTime(chainMetrics.getAverageWaitTime());
+
                 int channelRevision = 0;
                 // Just in case the channel no longer exists
                 if (channelRevisions != null && channelRevisions.containsKey(channelId)) {
@@ -1156,6 +1178,47 @@ public class DonkeyEngineController implements EngineController {
         }
     }
 
+    @Override
+    public List<DispatchResult> dispatchRawMessages(String channelId, List<RawMessage> rawMessages, boolean force, boolean canBatch) throws ChannelException, BatchMessageException {
+        if (!isDeployed(channelId)) {
+            ChannelException e = new ChannelException(true);
+            logger.error("Could not find channel to route to: " + channelId, e);
+            throw e;
+        }
+
+        SourceConnector sourceConnector = donkey.getDeployedChannels().get(channelId).getSourceConnector();
+        List<DispatchResult> dispatchResults = new ArrayList<DispatchResult>(rawMessages.size());
+
+        // Messages can only be handed off together when they are queued rather than processed right away
+        if (sourceConnector.isRespondAfterProcessing() || (canBatch && sourceConnector.isProcessBatch())) {
+            for (RawMessage rawMessage : rawMessages) {
+                /*
+                 * A failure only affects its own message. The messages before it have already been
+                 * dispatched, so their results must be kept or the caller would retry them.
+                 */
+                try {
+                    dispatchResults.add(dispatchRawMessage(channelId, rawMessage, force, canBatch));
+                } catch (ChannelException e) {
+                    dispatchResults.add(new DispatchResult(e));
+                } catch (BatchMessageException e) {
+                    dispatchResults.add(new DispatchResult(new ChannelException(false, e)));
+                }
+            }
+        } else if (!rawMessages.isEmpty()) {
+            for (DispatchResult dispatchResult : sourceConnector.dispatchRawMessages(rawMessages, force)) {
+                try {
+                    dispatchResult.setAttemptedResponse(true);
+                } finally {
+                    sourceConnector.finishDispatch(dispatchResult);
+                }
+
+                dispatchResults.add(dispatchResult);
+            }
+        }
+
+        return dispatchResults;
+    }
+
     protected Channel createChannelFromModel(com.mirth.connect.model.Channel channelModel, DebugOptions debugOptions) throws Exception {
         String channelId = channelModel.getId();
         ChannelProperties channelProperties = channelModel.getProperties();
@@ -1200,8 +1263,10 @@ public class DonkeyEngineController implements EngineController {
 
         if (storageSettings.isEnabled()) {
             SerializerProvider serializerProvider = createSerializerProvider(channelModel);
-            BufferedDaoFactory bufferedDaoFactory = new BufferedDaoFactory(donkey.getDaoFactory(), serializerProvider, donkey.getStatisticsUpdater());
+            MetricsDaoFactory metricsDaoFactory = new MetricsDaoFactory(donkey.getDaoFactory(), donkey.getDaoMetrics(), channelId);
+            BufferedDaoFactory bufferedDaoFactory = new BufferedDaoFactory(metricsDaoFactory, serializerProvider, donkey.getStatisticsUpdater());
             bufferedDaoFactory.setEncryptData(channelProperties.isEncryptMessageContent(), channelProperties.isEncryptAttachments(), channelProperties.isEncryptCustomMetaData());
+            bufferedDaoFactory.setCompressMessageContent(channelProperties.isCompressMessageContent());
 
             channel.setDaoFactory(bufferedDaoFactory);
         } else {
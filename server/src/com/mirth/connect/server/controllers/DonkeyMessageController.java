@@ -48,6 +48,7 @@ import com.mirth.connect.donkey.server.Donkey;
 import com.mirth.connect.donkey.server.channel.Channel;
 import com.mirth.connect.donkey.server.channel.ChannelException;
 import com.mirth.connect.donkey.server.data.DonkeyDao;
+import com.mirth.connect.donkey.util.ContentCompressionUtil;
 import com.mirth.connect.donkey.util.MapUtil;
 import com.mirth.connect.donkey.util.xstream.SerializerException;
 import com.mirth.connect.model.MessageImportResult;
@@ -404,6 +405,7 @@ public class DonkeyMessageController extends MessageController {
                         rawContent.setContent(encryptor.decrypt(rawContent.getContent()));
                         rawContent.setEncrypted(false);
                     }
+                    rawContent.setContent(ContentCompressionUtil.decompress(rawContent.getContent()));
 
                     ConnectorMessage connectorMessage = new ConnectorMessage();
                     connectorMessage.setChannelId(channelId);
@@ -437,6 +439,7 @@ public class DonkeyMessageController extends MessageController {
                                 sourceMapContent.setContent(encryptor.decrypt(sourceMapContent.getContent()));
                                 sourceMapContent.setEncrypted(false);
                             }
+                            sourceMapContent.setContent(ContentCompressionUtil.decompress(sourceMapContent.getContent()));
 
                             /*
                              * We do putAll instead of setting the source map directly here because
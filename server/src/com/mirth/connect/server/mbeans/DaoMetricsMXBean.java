@@ -0,0 +1,30 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ * 
+ * http://www.mirthcorp.com
+ * 
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.server.mbeans;
+
+import java.util.List;
+
+import com.mirth.connect.donkey.model.channel.LatencyStatistics;
+
+public interface DaoMetricsMXBean {
+    public static final String OBJECT_NAME = "com.mirth.connect:type=DaoMetrics";
+
+    public boolean isEnabled();
+
+    public void setEnabled(boolean enabled);
+
+    public List<LatencyStatistics> getStatistics();
+
+    public List<LatencyStatistics> getChannelStatistics(String channelId);
+
+    public void reset();
+
+    public void resetChannel(String channelId);
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ * 
+ * http://www.mirthcorp.com
+ * 
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.server.mbeans;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.mirth.connect.donkey.model.channel.LatencyStatistics;
+import com.mirth.connect.donkey.server.Donkey;
+import com.mirth.connect.donkey.server.data.metrics.DaoMetrics;
+
+public class DaoMetricsService implements DaoMetricsMXBean {
+
+    @Override
+    public boolean isEnabled() {
+        return getDaoMetrics().isEnabled();
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        getDaoMetrics().setEnabled(enabled);
+    }
+
+    @Override
+    public List<LatencyStatistics> getStatistics() {
+        return getDaoMetrics().getStatistics(null);
+    }
+
+    @Override
+    public List<LatencyStatistics> getChannelStatistics(String channelId) {
+        return getDaoMetrics().getStatistics(Collections.singleton(channelId));
+    }
+
+    @Override
+    public void reset() {
+        getDaoMetrics().reset();
+    }
+
+    @Override
+    public void resetChannel(String channelId) {
+        getDaoMetrics().reset(channelId);
+    }
+
+    private DaoMetrics getDaoMetrics() {
+        return Donkey.getInstance().getDaoMetrics();
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.server.metrics;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import com.mirth.connect.donkey.model.message.Status;
+import com.mirth.connect.donkey.server.Donkey;
+import com.mirth.connect.donkey.server.channel.Channel;
+import com.mirth.connect.donkey.server.channel.DestinationChainProvider;
+import com.mirth.connect.donkey.server.channel.DestinationConnector;
+import com.mirth.connect.donkey.server.channel.Statistics;
+import com.mirth.connect.donkey.server.queue.ConnectorMessageQueue;
+import com.mirth.connect.server.controllers.ControllerFactory;
+
+/**
+ * Message counts, queues and process lock waits of every deployed channel. The counts are the
+ * lifetime statistics kept in memory by the engine, and queue sizes are only reported once they are
+ * known, so scraping never queries the database.
+ */
+public class ChannelMetricsCollector implements MetricsCollector {
+
+    @Override
+    public void collect(MetricsWriter writer) {
+        Statistics statistics = ControllerFactory.getFactory().createChannelController().getTotalStatistics();
+        List<ChannelSnapshot> channels = new ArrayList<ChannelSnapshot>();
+
+        for (Channel channel : Donkey.getInstance().getDeployedChannels().values()) {
+            channels.add(new ChannelSnapshot(channel, statistics.getChannelStats(channel.getChannelId())));
+        }
+
+        writer.family("mirth_channel_messages_total", MetricsWriter.COUNTER, "Messages processed by the channel, by status.");
+        for (ChannelSnapshot channel : channels) {
+            Map<Status, Long> stats = channel.stats.get(null);
+
+            if (stats != null) {
+                for (Entry<Status, Long> entry : stats.entrySet()) {
+                    writer.sample("mirth_channel_messages_total", entry.getValue(), "channel_id", channel.id, "channel_name", channel.name, "status", entry.getKey().name().toLowerCase());
+                }
+            }
+        }
+
+        writer.family("mirth_connector_messages_total", MetricsWriter.COUNTER, "Messages processed by the connector, by status.");
+        for (ChannelSnapshot channel : channels) {
+            for (ConnectorSnapshot connector : channel.connectors) {
+                Map<Status, Long> stats = channel.stats.get(connector.metaDataId);
+
+                if (stats != null) {
+                    for (Entry<Status, Long> entry : stats.entrySet()) {
+                        writer.sample("mirth_connector_messages_total", entry.getValue(), "channel_id", channel.id, "channel_name", channel.name, "connector_id", String.valueOf(connector.metaDataId), "connector_name", connector.name, "status", entry.getKey().name().toLowerCase());
+                    }
+                }
+            }
+        }
+
+        writer.family("mirth_queue_size", MetricsWriter.GAUGE, "Messages waiting in the source or destination queue.");
+        for (ChannelSnapshot channel : channels) {
+            for (ConnectorSnapshot connector : channel.connectors) {
+                if (connector.queueSize != null) {
+                    writer.sample("mirth_queue_size", connector.queueSize, "channel_id", channel.id, "channel_name", channel.name, "connector_id", String.valueOf(connector.metaDataId), "connector_name", connector.name);
+                }
+            }
+        }
+
+        writer.family("mirth_queue_oldest_message_age_seconds", MetricsWriter.GAUGE, "Time since the oldest buffered message in the queue was received.");
+        for (ChannelSnapshot channel : channels) {
+            for (ConnectorSnapshot connector : channel.connectors) {
+                if (connector.oldestReceivedDate != null) {
+                    double age = Math.max(0, System.currentTimeMillis() - connector.oldestReceivedDate.getTimeInMillis()) / 1000d;
+                    writer.sample("mirth_queue_oldest_message_age_seconds", age, "channel_id", channel.id, "channel_name", channel.name, "connector_id", String.valueOf(connector.metaDataId), "connector_name", connector.name);
+                }
+            }
+        }
+
+        writer.family("mirth_channel_process_lock_acquisitions_total", MetricsWriter.COUNTER, "Times a message obtained the channel process lock.");
+        for (ChannelSnapshot channel : channels) {
+            writer.sample("mirth_channel_process_lock_acquisitions_total", channel.processLockAcquisitions, "channel_id", channel.id, "channel_name", channel.name);
+        }
+
+        writer.family("mirth_channel_process_lock_wait_seconds_total", MetricsWriter.COUNTER, "Time messages spent waiting for the channel process lock.");
+        for (ChannelSnapshot channel : channels) {
+            writer.sample("mirth_channel_process_lock_wait_seconds_total", channel.processLockWaitTime / 1e9, "channel_id", channel.id, "channel_name", channel.name);
+        }
+    }
+
+    private static class ChannelSnapshot {
+        private String id;
+        private String name;
+        private Map<Integer, Map<Status, Long>> stats;
+        private List<ConnectorSnapshot> connectors = new ArrayList<ConnectorSnapshot>();
+        private long processLockAcquisitions;
+        private long processLockWaitTime;
+
+        public ChannelSnapshot(Channel channel, Map<Integer, Map<Status, Long>> stats) {
+            id = channel.getChannelId();
+            name = channel.getName();
+            this.stats = stats;
+            processLockAcquisitions = channel.getProcessLockAcquisitions();
+            processLockWaitTime = channel.getProcessLockWaitTime();
+
+            // The source queue is only used when the source responds before processing
+            boolean sourceQueued = channel.getSourceConnector() != null && !channel.getSourceConnector().isRespondAfterProcessing();
+            connectors.add(new ConnectorSnapshot(0, channel.getSourceConnector() != null ? channel.getSourceConnector().getSourceName() : "Source", sourceQueued ? channel.getSourceQueue() : null));
+
+            for (DestinationChainProvider chainProvider : channel.getDestinationChainProviders()) {
+                for (DestinationConnector destinationConnector : chainProvider.getDestinationConnectors().values()) {
+                    connectors.add(new ConnectorSnapshot(destinationConnector.getMetaDataId(), destinationConnector.getDestinationName(), destinationConnector.isQueueEnabled() ? destinationConnector.getQueue() : null));
+                }
+            }
+        }
+    }
+
+    private static class ConnectorSnapshot {
+        private int metaDataId;
+        private String name;
+        private Integer queueSize;
+        private Calendar oldestReceivedDate;
+
+        public ConnectorSnapshot(int metaDataId, String name, ConnectorMessageQueue queue) {
+            this.metaDataId = metaDataId;
+            this.name = name;
+
+            if (queue != null) {
+                queueSize = queue.getSnapshotSize();
+                oldestReceivedDate = queue.getFirstBufferedReceivedDate();
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.server.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import com.mirth.connect.donkey.server.DonkeyConnectionPools;
+import com.mirth.connect.donkey.server.data.jdbc.ConnectionPool;
+
+/**
+ * Connection usage of the message store connection pools. The read-only pool is only reported when
+ * read/write splitting is enabled.
+ */
+public class ConnectionPoolMetricsCollector implements MetricsCollector {
+
+    @Override
+    public void collect(MetricsWriter writer) {
+        DonkeyConnectionPools connectionPools = DonkeyConnectionPools.getInstance();
+        Map<String, ConnectionPool> pools = new LinkedHashMap<String, ConnectionPool>();
+
+        if (connectionPools.getConnectionPool() != null) {
+            pools.put("readwrite", connectionPools.getConnectionPool());
+        }
+        if (connectionPools.getReadOnlyConnectionPool() != null && connectionPools.getReadOnlyConnectionPool() != connectionPools.getConnectionPool()) {
+            pools.put("readonly", connectionPools.getReadOnlyConnectionPool());
+        }
+
+        writer.family("mirth_db_pool_connections_active", MetricsWriter.GAUGE, "Connections checked out of the pool.");
+        for (Entry<String, ConnectionPool> entry : pools.entrySet()) {
+            writeSample(writer, "mirth_db_pool_connections_active", entry.getKey(), entry.getValue().getActiveConnections());
+        }
+
+        writer.family("mirth_db_pool_connections_idle", MetricsWriter.GAUGE, "Idle connections in the pool.");
+        for (Entry<String, ConnectionPool> entry : pools.entrySet()) {
+            writeSample(writer, "mirth_db_pool_connections_idle", entry.getKey(), entry.getValue().getIdleConnections());
+        }
+
+        writer.family("mirth_db_pool_connections_max", MetricsWriter.GAUGE, "Maximum number of connections in the pool.");
+        for (Entry<String, ConnectionPool> entry : pools.entrySet()) {
+            writeSample(writer, "mirth_db_pool_connections_max", entry.getKey(), entry.getValue().getMaxConnections());
+        }
+
+        writer.family("mirth_db_pool_waiting_threads", MetricsWriter.GAUGE, "Threads waiting for a connection from the pool.");
+        for (Entry<String, ConnectionPool> entry : pools.entrySet()) {
+            writeSample(writer, "mirth_db_pool_waiting_threads", entry.getKey(), entry.getValue().getWaitingThreads());
+        }
+    }
+
+    private void writeSample(MetricsWriter writer, String name, String pool, Integer value) {
+        if (value != null) {
+            writer.sample(name, value, "pool", pool);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.server.metrics;
+
+import com.mirth.connect.server.util.javascript.JavaScriptUtil;
+
+/**
+ * Activity of the executor that runs filter, transformer and other channel scripts.
+ */
+public class JavaScriptMetricsCollector implements MetricsCollector {
+
+    @Override
+    public void collect(MetricsWriter writer) {
+        writer.family("mirth_javascript_threads_active", MetricsWriter.GAUGE, "Threads currently executing scripts.");
+        writer.sample("mirth_javascript_threads_active", JavaScriptUtil.getActiveThreadCount());
+
+        writer.family("mirth_javascript_threads", MetricsWriter.GAUGE, "Threads in the script executor, including idle ones.");
+        writer.sample("mirth_javascript_threads", JavaScriptUtil.getThreadCount());
+
+        writer.family("mirth_javascript_tasks_completed_total", MetricsWriter.COUNTER, "Scripts that have finished executing.");
+        writer.sample("mirth_javascript_tasks_completed_total", JavaScriptUtil.getCompletedTaskCount());
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.server.metrics;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+
+/**
+ * Memory, garbage collection, thread and class loading metrics of the server JVM, using the same
+ * names as the Prometheus JVM client so that existing dashboards can be used.
+ */
+public class JvmMetricsCollector implements MetricsCollector {
+
+    @Override
+    public void collect(MetricsWriter writer) {
+        MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+        MemoryUsage heap = memoryBean.getHeapMemoryUsage();
+        MemoryUsage nonHeap = memoryBean.getNonHeapMemoryUsage();
+
+        writer.family("jvm_memory_bytes_used", MetricsWriter.GAUGE, "Used bytes of a given JVM memory area.");
+        writer.sample("jvm_memory_bytes_used", heap.getUsed(), "area", "heap");
+        writer.sample("jvm_memory_bytes_used", nonHeap.getUsed(), "area", "nonheap");
+
+        writer.family("jvm_memory_bytes_committed", MetricsWriter.GAUGE, "Committed bytes of a given JVM memory area.");
+        writer.sample("jvm_memory_bytes_committed", heap.getCommitted(), "area", "heap");
+        writer.sample("jvm_memory_bytes_committed", nonHeap.getCommitted(), "area", "nonheap");
+
+        writer.family("jvm_memory_bytes_max", MetricsWriter.GAUGE, "Max bytes of a given JVM memory area, or -1 if undefined.");
+        writer.sample("jvm_memory_bytes_max", heap.getMax(), "area", "heap");
+        writer.sample("jvm_memory_bytes_max", nonHeap.getMax(), "area", "nonheap");
+
+        List<GarbageCollectorMXBean> garbageCollectors = ManagementFactory.getGarbageCollectorMXBeans();
+
+        writer.family("jvm_gc_collection_seconds_count", MetricsWriter.COUNTER, "Number of collections run by a given JVM garbage collector.");
+        for (GarbageCollectorMXBean garbageCollector : garbageCollectors) {
+            writer.sample("jvm_gc_collection_seconds_count", garbageCollector.getCollectionCount(), "gc", garbageCollector.getName());
+        }
+
+        writer.family("jvm_gc_collection_seconds_sum", MetricsWriter.COUNTER, "Time spent in a given JVM garbage collector.");
+        for (GarbageCollectorMXBean garbageCollector : garbageCollectors) {
+            writer.sample("jvm_gc_collection_seconds_sum", garbageCollector.getCollectionTime() / 1000d, "gc", garbageCollector.getName());
+        }
+
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+        writer.family("jvm_threads_current", MetricsWriter.GAUGE, "Current thread count of the JVM.");
+        writer.sample("jvm_threads_current", threadBean.getThreadCount());
+
+        writer.family("jvm_threads_daemon", MetricsWriter.GAUGE, "Daemon thread count of the JVM.");
+        writer.sample("jvm_threads_daemon", threadBean.getDaemonThreadCount());
+
+        writer.family("jvm_threads_peak", MetricsWriter.GAUGE, "Peak thread count of the JVM.");
+        writer.sample("jvm_threads_peak", threadBean.getPeakThreadCount());
+
+        writer.family("jvm_classes_loaded", MetricsWriter.GAUGE, "The number of classes that are currently loaded in the JVM.");
+        writer.sample("jvm_classes_loaded", ManagementFactory.getClassLoadingMXBean().getLoadedClassCount());
+
+        writer.family("process_start_time_seconds", MetricsWriter.GAUGE, "Start time of the process since unix epoch in seconds.");
+        writer.sample("process_start_time_seconds", ManagementFactory.getRuntimeMXBean().getStartTime() / 1000d);
+    }
+}
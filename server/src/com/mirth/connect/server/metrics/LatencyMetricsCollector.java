@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.server.metrics;
+
+import java.util.List;
+
+import com.mirth.connect.donkey.model.channel.LatencyStatistics;
+import com.mirth.connect.donkey.server.Donkey;
+import com.mirth.connect.donkey.server.data.metrics.LatencyMetrics;
+
+/**
+ * The message store and message stage latencies, as summaries. Nothing is written for either of
+ * them unless they have been enabled.
+ */
+public class LatencyMetricsCollector implements MetricsCollector {
+
+    @Override
+    public void collect(MetricsWriter writer) {
+        Donkey donkey = Donkey.getInstance();
+        writeSummary(writer, donkey.getDaoMetrics(), "mirth_message_store_latency_seconds", "operation", "Time taken by message store operations.");
+        writeSummary(writer, donkey.getMessageTracer(), "mirth_message_stage_latency_seconds", "stage", "Time messages spent in each stage of a connector.");
+    }
+
+    private void writeSummary(MetricsWriter writer, LatencyMetrics latencyMetrics, String name, String nameLabel, String help) {
+        if (latencyMetrics == null || !latencyMetrics.isEnabled()) {
+            return;
+        }
+
+        List<LatencyStatistics> statistics = latencyMetrics.getStatistics(null);
+        if (statistics.isEmpty()) {
+            return;
+        }
+
+        writer.family(name, MetricsWriter.SUMMARY, help);
+
+        for (LatencyStatistics latency : statistics) {
+            String channelId = latency.getChannelId();
+            String latencyName = latency.getName();
+
+            // The statistics are in milliseconds
+            writer.sample(name, latency.getP50() / 1000, "channel_id", channelId, nameLabel, latencyName, "quantile", "0.5");
+            writer.sample(name, latency.getP90() / 1000, "channel_id", channelId, nameLabel, latencyName, "quantile", "0.9");
+            writer.sample(name, latency.getP99() / 1000, "channel_id", channelId, nameLabel, latencyName, "quantile", "0.99");
+            writer.sample(name, latency.getP999() / 1000, "channel_id", channelId, nameLabel, latencyName, "quantile", "0.999");
+            writer.sample(name + "_sum", latency.getMean() * latency.getCount() / 1000, "channel_id", channelId, nameLabel, latencyName);
+            writer.sample(name + "_count", latency.getCount(), "channel_id", channelId, nameLabel, latencyName);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.server.metrics;
+
+/**
+ * Writes one or more metric families each time the metrics endpoint is scraped. Collectors should
+ * only read values that are already kept in memory, and never query the database.
+ */
+public interface MetricsCollector {
+    public void collect(MetricsWriter writer);
+}
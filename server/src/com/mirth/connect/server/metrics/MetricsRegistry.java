@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.server.metrics;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The collectors whose metrics are served by the metrics endpoint. The engine, connection pool,
+ * JavaScript and JVM collectors are registered by default, and extensions may register their own.
+ */
+public class MetricsRegistry {
+    private static MetricsRegistry instance = null;
+
+    private List<MetricsCollector> collectors = new CopyOnWriteArrayList<MetricsCollector>();
+    private Logger logger = LogManager.getLogger(getClass());
+
+    public static MetricsRegistry getInstance() {
+        synchronized (MetricsRegistry.class) {
+            if (instance == null) {
+                instance = new MetricsRegistry();
+                instance.register(new ChannelMetricsCollector());
+                instance.register(new LatencyMetricsCollector());
+                instance.register(new ConnectionPoolMetricsCollector());
+                instance.register(new JavaScriptMetricsCollector());
+                instance.register(new JvmMetricsCollector());
+            }
+
+            return instance;
+        }
+    }
+
+    MetricsRegistry() {}
+
+    public void register(MetricsCollector collector) {
+        collectors.add(collector);
+    }
+
+    public void unregister(MetricsCollector collector) {
+        collectors.remove(collector);
+    }
+
+    /**
+     * Returns the metrics of all registered collectors. A collector that fails is logged and left
+     * out, so that the rest of the metrics can still be scraped.
+     */
+    public String collect() {
+        StringBuilder metrics = new StringBuilder();
+
+        for (MetricsCollector collector : collectors) {
+            StringBuilder builder = new StringBuilder();
+
+            try {
+                collector.collect(new MetricsWriter(builder));
+                metrics.append(builder);
+            } catch (Exception e) {
+                logger.warn("Failed to collect metrics from " + collector.getClass().getSimpleName() + ".", e);
+            }
+        }
+
+        return metrics.toString();
+    }
+}
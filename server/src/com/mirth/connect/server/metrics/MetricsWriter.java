@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.server.metrics;
+
+/**
+ * Writes metrics in the Prometheus text exposition format (version 0.0.4). Every metric family is
+ * started with {@link #family(String, String, String)}, followed by all of its samples. Label names
+ * and values are given as alternating arguments.
+ */
+public class MetricsWriter {
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    public static final String COUNTER = "counter";
+    public static final String GAUGE = "gauge";
+    public static final String SUMMARY = "summary";
+
+    private StringBuilder builder;
+
+    public MetricsWriter(StringBuilder builder) {
+        this.builder = builder;
+    }
+
+    public void family(String name, String type, String help) {
+        builder.append("# HELP ").append(name).append(' ');
+        escape(help, false);
+        builder.append('\n');
+        builder.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    public void sample(String name, double value, String... labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be given as name and value pairs");
+        }
+
+        builder.append(name);
+
+        if (labels.length > 0) {
+            builder.append('{');
+
+            for (int i = 0; i < labels.length; i += 2) {
+                if (i > 0) {
+                    builder.append(',');
+                }
+
+                builder.append(labels[i]).append("=\"");
+                escape(labels[i + 1], true);
+                builder.append('"');
+            }
+
+            builder.append('}');
+        }
+
+        builder.append(' ');
+        appendValue(value);
+        builder.append('\n');
+    }
+
+    private void appendValue(double value) {
+        if (Double.isNaN(value)) {
+            builder.append("NaN");
+        } else if (Double.isInfinite(value)) {
+            builder.append(value > 0 ? "+Inf" : "-Inf");
+        } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            // Whole numbers such as counts are written without a fraction or exponent
+            builder.append((long) value);
+        } else {
+            builder.append(value);
+        }
+    }
+
+    private void escape(String value, boolean quoted) {
+        if (value == null) {
+            return;
+        }
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            if (c == '\\') {
+                builder.append("\\\\");
+            } else if (c == '\n') {
+                builder.append("\\n");
+            } else if (c == '"' && quoted) {
+                builder.append("\\\"");
+            } else {
+                builder.append(c);
+            }
+        }
+    }
+}
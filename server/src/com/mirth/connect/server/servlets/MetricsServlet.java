@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.server.servlets;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.mirth.connect.server.metrics.MetricsRegistry;
+import com.mirth.connect.server.metrics.MetricsWriter;
+
+/**
+ * Serves the metrics of the {@link MetricsRegistry} for Prometheus to scrape. If a token is
+ * configured, requests must send it as a bearer token.
+ */
+public class MetricsServlet extends HttpServlet {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private byte[] token;
+
+    public MetricsServlet(String token) {
+        this.token = StringUtils.isNotBlank(token) ? token.trim().getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+        if (!isAuthorized(request.getHeader("Authorization"))) {
+            response.setHeader("WWW-Authenticate", "Bearer");
+            response.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+            return;
+        }
+
+        byte[] metrics = MetricsRegistry.getInstance().collect().getBytes(StandardCharsets.UTF_8);
+
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(MetricsWriter.CONTENT_TYPE);
+        response.setContentLength(metrics.length);
+        response.getOutputStream().write(metrics);
+    }
+
+    boolean isAuthorized(String authorization) {
+        if (token == null) {
+            return true;
+        }
+
+        if (authorization == null || !StringUtils.startsWithIgnoreCase(authorization, BEARER_PREFIX)) {
+            return false;
+        }
+
+        // Compare in constant time so that the token can't be guessed from response times
+        return MessageDigest.isEqual(token, authorization.substring(BEARER_PREFIX.length()).trim().getBytes(StandardCharsets.UTF_8));
+    }
+}
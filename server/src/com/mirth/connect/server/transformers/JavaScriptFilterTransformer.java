@@ -21,6 +21,8 @@ import org.mozilla.javascript.tools.debugger.MirthMain;
 import com.mirth.connect.donkey.model.channel.DebugOptions;
 import com.mirth.connect.donkey.model.event.ErrorEventType;
 import com.mirth.connect.donkey.model.message.ConnectorMessage;
+import com.mirth.connect.donkey.model.message.MessageTrace.Stage;
+import com.mirth.connect.donkey.server.Donkey;
 import com.mirth.connect.donkey.server.channel.Channel;
 import com.mirth.connect.donkey.server.channel.Connector;
 import com.mirth.connect.donkey.server.channel.DestinationConnector;
@@ -186,14 +188,20 @@ public class JavaScriptFilterTransformer implements FilterTransformer {
 
     private class FilterTransformerTask extends JavaScriptTask<FilterTransformerResult> {
         private ConnectorMessage message;
+        private long submitTime;
 
         public FilterTransformerTask(MirthContextFactory contextFactory, ConnectorMessage message) {
             super(contextFactory, (connector instanceof SourceConnector ? "Source" : "Destination") + " Filter/Transformer", connector);
             this.message = message;
+            submitTime = message.getTrace() != null ? System.nanoTime() : 0;
         }
 
         @Override
         public FilterTransformerResult doCall() throws Exception {
+            if (message.getTrace() != null) {
+                Donkey.getInstance().getMessageTracer().record(message, Stage.SCRIPT_WAIT, submitTime);
+            }
+
             Logger scriptLogger = LogManager.getLogger("filter");
             // Use an array to store the phase, otherwise java and javascript end up referencing two different objects.
             String[] phase = { new String() };
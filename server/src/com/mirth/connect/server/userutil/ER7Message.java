@@ -0,0 +1,477 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.server.userutil;
+
+import java.util.Arrays;
+
+/**
+ * Provides read-only access to the fields of an HL7 v2.x message in ER7 (pipe-delimited) format,
+ * without converting it to XML. Segments are indexed in a single pass, only as far as needed for
+ * the values requested, and values are only copied out of the message when they are returned.
+ *
+ * Values are looked up with paths like "PID.5.1", where the segment name is followed by the field,
+ * component and subcomponent numbers. Dashes may be used instead of periods (e.g. "PID-5-1"). A
+ * segment or field repetition other than the first can be selected with a one-based index in
+ * brackets, e.g. "OBX[2].5" or "PID.3[2].1". As in the XML representation, MSH.1 is the field
+ * separator and MSH.2 holds the encoding characters.
+ *
+ * Escape sequences in the message are returned as is.
+ */
+public class ER7Message {
+
+    private static final String[] HEADER_SEGMENTS = new String[] { "MSH", "FHS", "BHS" };
+
+    private CharSequence message;
+    private String segmentDelimiter;
+    private char fieldSeparator = '|';
+    private char componentSeparator = '^';
+    private char repetitionSeparator = '~';
+    private char subcomponentSeparator = '&';
+    private char escapeCharacter = '\\';
+
+    // Where indexing will continue, or -1 if the header hasn't been read yet
+    private int position = -1;
+    private int segmentCount = 0;
+    private int[] segmentEnds;
+    // The start of every field of every segment, with the first field of each segment in segmentFields
+    private int[] segmentFields;
+    private int[] fieldStarts;
+    private int fieldCount = 0;
+
+    /**
+     * Instantiates a new ER7Message object. Any line break (CR, LF, or CRLF) is treated as a
+     * segment delimiter.
+     *
+     * @param message
+     *            The HL7 v2.x message in ER7 format.
+     */
+    public ER7Message(CharSequence message) {
+        this(message, null);
+    }
+
+    /**
+     * Instantiates a new ER7Message object.
+     *
+     * @param message
+     *            The HL7 v2.x message in ER7 format.
+     * @param segmentDelimiter
+     *            The characters that separate segments. If null or empty, any line break (CR, LF,
+     *            or CRLF) is treated as a segment delimiter.
+     */
+    public ER7Message(CharSequence message, String segmentDelimiter) {
+        this.message = message != null ? message : "";
+        this.segmentDelimiter = segmentDelimiter != null && segmentDelimiter.length() > 0 ? segmentDelimiter : null;
+    }
+
+    /**
+     * Returns a value from the message.
+     *
+     * @param path
+     *            The path of the value, e.g. "PID.5.1" or "OBX[2].5".
+     * @return The value at the given path, or an empty string if the message does not contain it.
+     * @throws IllegalArgumentException
+     *             If the path is not valid.
+     */
+    public String get(String path) {
+        Path parsedPath = new Path(path);
+
+        int segment = findSegment(parsedPath.segmentName, parsedPath.segmentRepetition);
+        if (segment < 0) {
+            return "";
+        }
+
+        if (parsedPath.field < 0) {
+            return substring(segmentStart(segment), segmentEnds[segment]);
+        }
+
+        boolean header = isHeaderSegment(segment);
+        if (header && parsedPath.field == 1) {
+            return String.valueOf(fieldSeparator);
+        }
+
+        int fieldIndex = header ? parsedPath.field - 1 : parsedPath.field;
+        int fields = segmentFields[segment + 1] - segmentFields[segment];
+        if (fieldIndex >= fields) {
+            return "";
+        }
+
+        int start = fieldStarts[segmentFields[segment] + fieldIndex];
+        int end = fieldIndex + 1 < fields ? fieldStarts[segmentFields[segment] + fieldIndex + 1] - 1 : segmentEnds[segment];
+
+        // The encoding characters can't be split on themselves
+        if (header && parsedPath.field == 2) {
+            return substring(start, end);
+        }
+
+        int[] range = new int[] { start, end };
+        if (!narrow(range, repetitionSeparator, parsedPath.fieldRepetition) || !narrow(range, componentSeparator, parsedPath.component) || !narrow(range, subcomponentSeparator, parsedPath.subcomponent)) {
+            return "";
+        }
+
+        return substring(range[0], range[1]);
+    }
+
+    /**
+     * Returns whether the message contains at least one segment with the given name.
+     *
+     * @param segmentName
+     *            The name of the segment, e.g. "PID".
+     * @return True if the message contains the segment, false otherwise.
+     */
+    public boolean hasSegment(String segmentName) {
+        return findSegment(segmentName, 1) >= 0;
+    }
+
+    /**
+     * Returns the number of segments in the message.
+     *
+     * @return The number of segments in the message.
+     */
+    public int getSegmentCount() {
+        indexAll();
+        return segmentCount;
+    }
+
+    /**
+     * Returns the number of segments with the given name.
+     *
+     * @param segmentName
+     *            The name of the segment, e.g. "OBX".
+     * @return The number of segments with the given name.
+     */
+    public int getSegmentCount(String segmentName) {
+        indexAll();
+        int count = 0;
+
+        for (int i = 0; i < segmentCount; i++) {
+            if (segmentNameEquals(i, segmentName)) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Returns the names of all segments in the message, in order.
+     *
+     * @return The segment names.
+     */
+    public String[] getSegmentNames() {
+        indexAll();
+        String[] names = new String[segmentCount];
+
+        for (int i = 0; i < segmentCount; i++) {
+            int start = segmentStart(i);
+            int end = segmentFields[i + 1] - segmentFields[i] > 1 ? fieldStarts[segmentFields[i] + 1] - 1 : segmentEnds[i];
+            names[i] = substring(start, end);
+        }
+
+        return names;
+    }
+
+    /**
+     * Returns the field separator of the message, usually {@code |}.
+     *
+     * @return The field separator.
+     */
+    public char getFieldSeparator() {
+        readHeader();
+        return fieldSeparator;
+    }
+
+    /**
+     * Returns the component separator of the message, usually {@code ^}.
+     *
+     * @return The component separator.
+     */
+    public char getComponentSeparator() {
+        readHeader();
+        return componentSeparator;
+    }
+
+    /**
+     * Returns the repetition separator of the message, usually {@code ~}.
+     *
+     * @return The repetition separator.
+     */
+    public char getRepetitionSeparator() {
+        readHeader();
+        return repetitionSeparator;
+    }
+
+    /**
+     * Returns the subcomponent separator of the message, usually {@code &}.
+     *
+     * @return The subcomponent separator.
+     */
+    public char getSubcomponentSeparator() {
+        readHeader();
+        return subcomponentSeparator;
+    }
+
+    /**
+     * Returns the escape character of the message, usually {@code \}.
+     *
+     * @return The escape character.
+     */
+    public char getEscapeCharacter() {
+        readHeader();
+        return escapeCharacter;
+    }
+
+    /**
+     * Returns the original message.
+     */
+    @Override
+    public String toString() {
+        return message.toString();
+    }
+
+    private void readHeader() {
+        if (position >= 0) {
+            return;
+        }
+
+        // Skip leading whitespace
+        position = 0;
+        while (position < message.length() && message.charAt(position) <= ' ') {
+            position++;
+        }
+
+        readDelimiters(position);
+
+        segmentEnds = new int[16];
+        segmentFields = new int[17];
+        fieldStarts = new int[64];
+    }
+
+    /**
+     * Indexes the next segment, so that lookups near the start of the message don't need to scan
+     * the rest of it. Returns false if there are no more segments.
+     */
+    private boolean indexNextSegment() {
+        readHeader();
+        int length = message.length();
+        int delimiterLength = 0;
+
+        // Blank lines between segments are skipped
+        while (position < length && (delimiterLength = delimiterLength(position)) > 0) {
+            position += delimiterLength;
+        }
+
+        if (position >= length) {
+            return false;
+        }
+
+        segmentFields = ensureCapacity(segmentFields, segmentCount + 2);
+        segmentEnds = ensureCapacity(segmentEnds, segmentCount + 1);
+        addField(position);
+
+        while (position < length && (delimiterLength = delimiterLength(position)) == 0) {
+            if (message.charAt(position) == fieldSeparator) {
+                addField(position + 1);
+            }
+            position++;
+        }
+
+        segmentEnds[segmentCount++] = position;
+        segmentFields[segmentCount] = fieldCount;
+        position += delimiterLength;
+        return true;
+    }
+
+    private void indexAll() {
+        while (indexNextSegment()) {}
+    }
+
+    private void readDelimiters(int position) {
+        for (String header : HEADER_SEGMENTS) {
+            if (startsWith(position, header) && position + 3 < message.length()) {
+                fieldSeparator = message.charAt(position + 3);
+
+                char[] encodingCharacters = new char[] { componentSeparator, repetitionSeparator,
+                        escapeCharacter, subcomponentSeparator };
+                int index = position + 4;
+                for (int i = 0; i < encodingCharacters.length && index < message.length(); i++, index++) {
+                    char c = message.charAt(index);
+                    if (c == fieldSeparator || delimiterLength(index) > 0) {
+                        break;
+                    }
+                    encodingCharacters[i] = c;
+                }
+
+                componentSeparator = encodingCharacters[0];
+                repetitionSeparator = encodingCharacters[1];
+                escapeCharacter = encodingCharacters[2];
+                subcomponentSeparator = encodingCharacters[3];
+                return;
+            }
+        }
+    }
+
+    private int delimiterLength(int position) {
+        if (segmentDelimiter != null) {
+            return startsWith(position, segmentDelimiter) ? segmentDelimiter.length() : 0;
+        }
+
+        char c = message.charAt(position);
+        if (c == '\r') {
+            return position + 1 < message.length() && message.charAt(position + 1) == '\n' ? 2 : 1;
+        }
+        return c == '\n' ? 1 : 0;
+    }
+
+    private void addField(int start) {
+        fieldStarts = ensureCapacity(fieldStarts, fieldCount + 1);
+        fieldStarts[fieldCount++] = start;
+    }
+
+    private int segmentStart(int segment) {
+        return fieldStarts[segmentFields[segment]];
+    }
+
+    private int findSegment(String segmentName, int repetition) {
+        for (int i = 0; i < segmentCount || indexNextSegment(); i++) {
+            if (segmentNameEquals(i, segmentName) && --repetition == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean segmentNameEquals(int segment, String segmentName) {
+        int start = segmentStart(segment);
+        int end = start + segmentName.length();
+
+        if (end > segmentEnds[segment] || (end < segmentEnds[segment] && message.charAt(end) != fieldSeparator)) {
+            return false;
+        }
+        return startsWith(start, segmentName);
+    }
+
+    private boolean isHeaderSegment(int segment) {
+        for (String header : HEADER_SEGMENTS) {
+            if (segmentNameEquals(segment, header)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Narrows the range to the part with the given one-based index, using the given separator. A
+     * part of 0 leaves the range as is.
+     */
+    private boolean narrow(int[] range, char separator, int part) {
+        if (part <= 0) {
+            return true;
+        }
+
+        int start = range[0];
+        for (int i = 1; i < part; i++) {
+            start = indexOf(separator, start, range[1]);
+            if (start < 0) {
+                return false;
+            }
+            start++;
+        }
+
+        int end = indexOf(separator, start, range[1]);
+        range[0] = start;
+        range[1] = end < 0 ? range[1] : end;
+        return true;
+    }
+
+    private int indexOf(char c, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (message.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean startsWith(int position, String prefix) {
+        if (position + prefix.length() > message.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (message.charAt(position + i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String substring(int start, int end) {
+        return message.subSequence(start, end).toString();
+    }
+
+    private static int[] ensureCapacity(int[] array, int capacity) {
+        return capacity <= array.length ? array : Arrays.copyOf(array, Math.max(capacity, array.length * 2));
+    }
+
+    private static class Path {
+
+        private String segmentName;
+        private int segmentRepetition = 1;
+        private int field = -1;
+        private int fieldRepetition = 1;
+        private int component = 0;
+        private int subcomponent = 0;
+
+        public Path(String path) {
+            if (path == null) {
+                throw new IllegalArgumentException("The path cannot be null.");
+            }
+
+            String[] parts = path.trim().split("[.-]");
+            if (parts.length > 4 || parts[0].isEmpty()) {
+                throw new IllegalArgumentException("Invalid ER7 path: " + path);
+            }
+
+            try {
+                int bracket = parts[0].indexOf('[');
+                segmentName = bracket < 0 ? parts[0] : parts[0].substring(0, bracket);
+                if (bracket >= 0) {
+                    segmentRepetition = parseRepetition(parts[0].substring(bracket));
+                }
+
+                if (parts.length > 1) {
+                    bracket = parts[1].indexOf('[');
+                    field = Integer.parseInt(bracket < 0 ? parts[1] : parts[1].substring(0, bracket));
+                    if (bracket >= 0) {
+                        fieldRepetition = parseRepetition(parts[1].substring(bracket));
+                    }
+                }
+                if (parts.length > 2) {
+                    component = Integer.parseInt(parts[2]);
+                }
+                if (parts.length > 3) {
+                    subcomponent = Integer.parseInt(parts[3]);
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid ER7 path: " + path, e);
+            }
+
+            if (segmentName.isEmpty() || segmentRepetition < 1 || (parts.length > 1 && field < 0) || fieldRepetition < 1 || component < 0 || subcomponent < 0) {
+                throw new IllegalArgumentException("Invalid ER7 path: " + path);
+            }
+        }
+
+        private int parseRepetition(String repetition) {
+            if (!repetition.endsWith("]")) {
+                throw new NumberFormatException(repetition);
+            }
+            return Integer.parseInt(repetition.substring(1, repetition.length() - 1));
+        }
+    }
+}
@@ -9,6 +9,10 @@
 
 package com.mirth.connect.server.userutil;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -119,6 +123,83 @@ public class VMRouter {
         }
     }
 
+    /**
+     * Dispatches several messages to a channel, specified by the deployed channel name. See
+     * {@link #routeMessagesByChannelId(String, List)}.
+     * 
+     * @param channelName
+     *            The name of the deployed channel to dispatch the messages to.
+     * @param messages
+     *            The messages to dispatch to the channel. Each element may be a String or a
+     *            RawMessage object.
+     * @return A Response object for each message, in the same order as the messages.
+     */
+    public List<Response> routeMessages(String channelName, List<?> messages) {
+        com.mirth.connect.model.Channel channel = channelController.getDeployedChannelByName(channelName);
+
+        if (channel == null) {
+            logger.error("Could not find channel to route to for channel name: " + channelName);
+            return new ArrayList<Response>(Collections.nCopies(messages.size(), new Response(Status.ERROR, "Could not find channel to route to for channel name: " + channelName)));
+        }
+
+        return routeMessagesByChannelId(channel.getId(), messages);
+    }
+
+    /**
+     * Dispatches several messages to a channel, specified by the deployed channel ID. If the
+     * channel has its source queue enabled, the messages are stored and queued together in a single
+     * transaction, which is considerably faster than routing them one at a time. If the dispatch
+     * fails for any reason (for example, if the target channel is not started), a Response object
+     * with the ERROR status and the error message will be returned for each message that could not
+     * be dispatched.
+     * 
+     * @param channelId
+     *            The ID of the deployed channel to dispatch the messages to.
+     * @param messages
+     *            The messages to dispatch to the channel. Each element may be a String or a
+     *            RawMessage object.
+     * @return A list containing the Response object returned by the channel for each message, in
+     *         the same order as the messages. An element is null if the channel's source connector
+     *         is not configured to return a response.
+     */
+    public List<Response> routeMessagesByChannelId(String channelId, List<?> messages) {
+        try {
+            List<com.mirth.connect.donkey.model.message.RawMessage> rawMessages = new ArrayList<com.mirth.connect.donkey.model.message.RawMessage>(messages.size());
+
+            for (Object message : messages) {
+                if (message instanceof RawMessage) {
+                    rawMessages.add(convertRawMessage((RawMessage) message));
+                } else {
+                    rawMessages.add(convertRawMessage(new RawMessage(String.valueOf(message))));
+                }
+            }
+
+            List<Response> responses = new ArrayList<Response>(rawMessages.size());
+
+            for (DispatchResult dispatchResult : engineController.dispatchRawMessages(channelId, rawMessages, false, true)) {
+                Response response = null;
+                if (dispatchResult != null && dispatchResult.getSelectedResponse() != null) {
+                    response = new Response(dispatchResult.getSelectedResponse());
+                } else if (dispatchResult != null && dispatchResult.getChannelException() != null) {
+                    String message = "Error routing message to channel id: " + channelId;
+                    Throwable e = dispatchResult.getChannelException();
+                    logger.error(message, e);
+                    response = new Response(Status.ERROR, null, ErrorMessageBuilder.buildErrorResponse(message, e), ErrorMessageBuilder.buildErrorMessage(this.getClass().getSimpleName(), message, e));
+                }
+
+                responses.add(response);
+            }
+
+            return responses;
+        } catch (Throwable e) {
+            String message = "Error routing messages to channel id: " + channelId;
+            logger.error(message, e);
+            String responseStatusMessage = ErrorMessageBuilder.buildErrorResponse(message, e);
+            String responseError = ErrorMessageBuilder.buildErrorMessage(this.getClass().getSimpleName(), message, e);
+            return new ArrayList<Response>(Collections.nCopies(messages.size(), new Response(Status.ERROR, null, responseStatusMessage, responseError)));
+        }
+    }
+
     private com.mirth.connect.donkey.model.message.RawMessage convertRawMessage(RawMessage message) {
         if (message.isBinary()) {
             return new com.mirth.connect.donkey.model.message.RawMessage(message.getRawBytes(), message.getDestinationMetaDataIds(), message.getSourceMap());
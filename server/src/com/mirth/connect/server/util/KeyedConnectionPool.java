@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.server.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Keeps the connections of a destination connector open between messages. Connections are pooled
+ * by a key made from the connection settings of the message, so that they are only reused for
+ * messages that would have opened the same connection.
+ *
+ * A connection is closed once it has been idle for the idle timeout, or after it has been used for
+ * the maximum number of messages. Connections that were closed by the remote side are dropped the
+ * next time they would be used.
+ */
+public abstract class KeyedConnectionPool<T> {
+
+    private Logger logger = LogManager.getLogger(getClass());
+    private long idleTimeout;
+    private int maxUses;
+    private Map<String, Deque<PooledConnection<T>>> idle = new HashMap<String, Deque<PooledConnection<T>>>();
+    private Map<T, PooledConnection<T>> borrowed = new IdentityHashMap<T, PooledConnection<T>>();
+    private ScheduledExecutorService reaper;
+    private boolean closed = false;
+
+    /**
+     * @param idleTimeout
+     *            The number of milliseconds a connection may stay open without being used.
+     * @param maxUses
+     *            The maximum number of messages to send on one connection, or 0 for no limit.
+     * @param threadName
+     *            The name of the thread that closes idle connections.
+     */
+    public KeyedConnectionPool(long idleTimeout, int maxUses, final String threadName) {
+        this.idleTimeout = idleTimeout;
+        this.maxUses = maxUses;
+
+        reaper = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, threadName);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        long period = Math.max(idleTimeout / 2, 1000);
+        reaper.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                closeAll(removeExpired());
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns true if the connection is still open. This may talk to the remote side, so it is never
+     * called while holding the lock.
+     */
+    protected abstract boolean isConnected(T connection);
+
+    /**
+     * Closes the connection. Any errors should be logged rather than thrown.
+     */
+    protected abstract void closeConnection(T connection);
+
+    /**
+     * Returns an open connection for the given key, or null if there are none. The connection must
+     * be given back with {@link #release} or {@link #discard} once the message is sent.
+     */
+    public T borrow(String key) {
+        closeAll(removeExpired());
+
+        while (true) {
+            PooledConnection<T> pooled;
+
+            synchronized (this) {
+                Deque<PooledConnection<T>> connections = idle.get(key);
+                if (connections == null || connections.isEmpty()) {
+                    return null;
+                }
+
+                pooled = connections.pop();
+                borrowed.put(pooled.connection, pooled);
+            }
+
+            if (isConnected(pooled.connection)) {
+                return pooled.connection;
+            }
+
+            logger.debug("Dropping pooled connection that was closed by the remote side.");
+            discard(pooled.connection);
+        }
+    }
+
+    /**
+     * Gives back a connection after a message has been sent on it, or adds a new one to the pool.
+     * The connection is closed instead if it has reached the maximum number of messages.
+     */
+    public void release(String key, T connection) {
+        PooledConnection<T> pooled;
+
+        synchronized (this) {
+            pooled = borrowed.remove(connection);
+            if (pooled == null) {
+                pooled = new PooledConnection<T>(connection);
+            }
+
+            pooled.uses++;
+
+            if (!closed && (maxUses <= 0 || pooled.uses < maxUses)) {
+                pooled.lastUsed = System.currentTimeMillis();
+
+                Deque<PooledConnection<T>> connections = idle.get(key);
+                if (connections == null) {
+                    connections = new ArrayDeque<PooledConnection<T>>();
+                    idle.put(key, connections);
+                }
+
+                // The most recently used connections are reused first, so that the others can time out
+                connections.push(pooled);
+                return;
+            }
+        }
+
+        closeConnection(connection);
+    }
+
+    /**
+     * Closes a connection that failed, or that shouldn't be reused.
+     */
+    public void discard(T connection) {
+        synchronized (this) {
+            borrowed.remove(connection);
+        }
+
+        closeConnection(connection);
+    }
+
+    /**
+     * Closes all idle connections. Connections that are still in use are closed when they are given
+     * back.
+     */
+    public void close() {
+        List<PooledConnection<T>> connections = new ArrayList<PooledConnection<T>>();
+
+        synchronized (this) {
+            closed = true;
+
+            for (Deque<PooledConnection<T>> deque : idle.values()) {
+                connections.addAll(deque);
+            }
+            idle.clear();
+        }
+
+        reaper.shutdownNow();
+        closeAll(connections);
+    }
+
+    private synchronized List<PooledConnection<T>> removeExpired() {
+        List<PooledConnection<T>> expired = new ArrayList<PooledConnection<T>>();
+        long now = System.currentTimeMillis();
+
+        for (Iterator<Deque<PooledConnection<T>>> it = idle.values().iterator(); it.hasNext();) {
+            Deque<PooledConnection<T>> connections = it.next();
+
+            for (Iterator<PooledConnection<T>> it2 = connections.iterator(); it2.hasNext();) {
+                PooledConnection<T> pooled = it2.next();
+
+                if (now - pooled.lastUsed >= idleTimeout) {
+                    it2.remove();
+                    expired.add(pooled);
+                }
+            }
+
+            if (connections.isEmpty()) {
+                it.remove();
+            }
+        }
+
+        return expired;
+    }
+
+    /*
+     * Closing a connection usually waits for the remote side, so this is never done while holding
+     * the lock.
+     */
+    private void closeAll(List<PooledConnection<T>> connections) {
+        for (PooledConnection<T> pooled : connections) {
+            closeConnection(pooled.connection);
+        }
+    }
+
+    private static class PooledConnection<T> {
+        private T connection;
+        private int uses;
+        private long lastUsed;
+
+        public PooledConnection(T connection) {
+            this.connection = connection;
+        }
+    }
+}
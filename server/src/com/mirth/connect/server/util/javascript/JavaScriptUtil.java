@@ -14,7 +14,6 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.SynchronousQueue;
@@ -66,11 +65,32 @@ public class JavaScriptUtil implements IJavaScriptUtil {
     private static CompiledScriptCache compiledScriptCache = CompiledScriptCache.getInstance();
     private static final int SOURCE_CODE_LINE_WRAPPER = 5;
     private static final RejectedExecutionHandler defaultHandler = new AbortPolicy();
-    private static ExecutorService executor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), new MirthJavaScriptThreadFactory(), defaultHandler);
+    private static ThreadPoolExecutor executor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), new MirthJavaScriptThreadFactory(), defaultHandler);
     private static ContextFactoryController contextFactoryController = ControllerFactory.getFactory().createContextFactoryController();
     private static volatile String globalScriptContextFactoryId = null;
     private static String serverId = ControllerFactory.getFactory().createConfigurationController().getServerId();
 
+    /**
+     * Returns the number of threads currently executing scripts.
+     */
+    public static int getActiveThreadCount() {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * Returns the number of threads in the script executor, including idle ones.
+     */
+    public static int getThreadCount() {
+        return executor.getPoolSize();
+    }
+
+    /**
+     * Returns the approximate number of scripts that have finished executing.
+     */
+    public static long getCompletedTaskCount() {
+        return executor.getCompletedTaskCount();
+    }
+
     public static <T> T execute(JavaScriptTask<T> task) throws JavaScriptExecutorException, InterruptedException {
         Future<T> future = executor.submit(task);
 
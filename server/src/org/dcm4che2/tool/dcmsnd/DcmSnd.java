@@ -1241,7 +1241,7 @@ public class DcmSnd extends StorageCommitmentService {
                     @Override
                     public void onDimseRSP(Association as, DicomObject cmd,
                             DicomObject data) {
-                        DcmSnd.this.onDimseRSP(cmd);
+                        DcmSnd.this.onDimseRSP(cmd, info);
                         if (responseHandler != null) {
                             responseHandler.onDimseRSP(as, cmd, data);
                         }
@@ -1346,6 +1346,62 @@ public class DcmSnd extends StorageCommitmentService {
         }
     }
 
+    /**
+     * Returns true if an association is open and can be used to send files.
+     */
+    public boolean isOpen() {
+        return assoc != null && assoc.isReadyForDataTransfer();
+    }
+
+    /**
+     * Returns true if the open association has accepted the SOP classes and transfer syntaxes of
+     * all files that haven't been sent yet.
+     */
+    public boolean isTransferCapabilityAccepted() {
+        if (!isOpen()) {
+            return false;
+        }
+
+        for (int i = lastSentFile, n = files.size(); i < n; ++i) {
+            FileInfo info = files.get(i);
+            TransferCapability tc = assoc.getTransferCapabilityAsSCU(info.cuid);
+            if (tc == null || selectTransferSyntax(tc.getTransferSyntax(),
+                    fileref ? DCM4CHEE_URI_REFERENCED_TS_UID : info.tsuid) == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Opens an association if none is open, or negotiates a new one if the open association
+     * doesn't accept the files that haven't been sent yet. The new association offers the SOP
+     * classes of all files added so far, so that it can be reused for them as well.
+     * 
+     * @return true if a new association was opened
+     */
+    public boolean openIfNeeded() throws IOException, ConfigurationException,
+            InterruptedException {
+        if (isTransferCapabilityAccepted()) {
+            return false;
+        }
+        if (isOpen()) {
+            close();
+        }
+        configureTransferCapability();
+        open();
+        return true;
+    }
+
+    /**
+     * Removes the files that have already been added, so that the association can be reused to
+     * send other files.
+     */
+    public void clearFiles() {
+        files.clear();
+        lastSentFile = 0;
+    }
+
     public static final class FileInfo {
         File f;
 
@@ -1485,10 +1541,9 @@ public class DcmSnd extends StorageCommitmentService {
         System.err.println(cmd.toString());
     }
 
-    private void onDimseRSP(DicomObject cmd) {
+    // The file is passed in, since message IDs keep counting up when an association is reused
+    private void onDimseRSP(DicomObject cmd, FileInfo info) {
         int status = cmd.getInt(Tag.Status);
-        int msgId = cmd.getInt(Tag.MessageIDBeingRespondedTo);
-        FileInfo info = files.get(msgId - 1);
         info.status = status;
         switch (status) {
         case 0:
@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.connectors.dimse;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.dcm4che2.data.BasicDicomObject;
+import org.dcm4che2.data.DicomObject;
+import org.dcm4che2.data.Tag;
+import org.dcm4che2.data.UID;
+import org.dcm4che2.data.VR;
+import org.dcm4che2.io.DicomOutputStream;
+import org.dcm4che2.net.Association;
+import org.dcm4che2.tool.dcmrcv.DcmRcv;
+import org.dcm4che2.tool.dcmsnd.CustomDimseRSPHandler;
+import org.dcm4che2.tool.dcmsnd.MirthDcmSnd;
+import org.dcm4che2.util.UIDUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DICOMAssociationPoolTest {
+
+    private static final String KEY = "key";
+
+    private DcmRcv dcmRcv;
+    private int port;
+    private DICOMAssociationPool pool;
+    private List<File> files = new ArrayList<File>();
+
+    @Before
+    public void setup() throws Exception {
+        ServerSocket socket = new ServerSocket(0);
+        port = socket.getLocalPort();
+        socket.close();
+
+        dcmRcv = new DcmRcv("DCMRCV");
+        dcmRcv.setHostname("127.0.0.1");
+        dcmRcv.setPort(port);
+        dcmRcv.setDestination("/dev/null");
+        dcmRcv.initTransferCapability();
+        dcmRcv.start();
+    }
+
+    @After
+    public void tearDown() {
+        if (pool != null) {
+            pool.close();
+        }
+        dcmRcv.stop();
+
+        for (File file : files) {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testReuseAssociation() throws Exception {
+        pool = new DICOMAssociationPool(60000, 0, "test");
+        MirthDcmSnd dcmSnd = createDcmSnd();
+
+        assertTrue(send(dcmSnd, UID.SecondaryCaptureImageStorage));
+        pool.release(KEY, dcmSnd);
+
+        for (int i = 0; i < 5; i++) {
+            MirthDcmSnd pooled = pool.borrow(KEY);
+            assertSame(dcmSnd, pooled);
+            // The open association is used without negotiating again
+            assertFalse(send(pooled, UID.SecondaryCaptureImageStorage));
+            pool.release(KEY, pooled);
+        }
+
+        assertNull(pool.borrow("other"));
+    }
+
+    @Test
+    public void testRenegotiateForNewSOPClass() throws Exception {
+        pool = new DICOMAssociationPool(60000, 0, "test");
+        MirthDcmSnd dcmSnd = createDcmSnd();
+
+        assertTrue(send(dcmSnd, UID.SecondaryCaptureImageStorage));
+        assertTrue(send(dcmSnd, UID.CTImageStorage));
+
+        // Both SOP classes were offered when negotiating again, so neither needs another association
+        assertFalse(send(dcmSnd, UID.SecondaryCaptureImageStorage));
+        assertFalse(send(dcmSnd, UID.CTImageStorage));
+
+        pool.discard(dcmSnd);
+        assertFalse(dcmSnd.isOpen());
+    }
+
+    @Test
+    public void testMaxOperations() throws Exception {
+        pool = new DICOMAssociationPool(60000, 2, "test");
+        MirthDcmSnd dcmSnd = createDcmSnd();
+
+        send(dcmSnd, UID.SecondaryCaptureImageStorage);
+        pool.release(KEY, dcmSnd);
+
+        assertSame(dcmSnd, pool.borrow(KEY));
+        send(dcmSnd, UID.SecondaryCaptureImageStorage);
+        pool.release(KEY, dcmSnd);
+
+        // Closed after the second message
+        assertNull(pool.borrow(KEY));
+        assertFalse(dcmSnd.isOpen());
+    }
+
+    @Test
+    public void testIdleTimeout() throws Exception {
+        pool = new DICOMAssociationPool(100, 0, "test");
+        MirthDcmSnd dcmSnd = createDcmSnd();
+
+        send(dcmSnd, UID.SecondaryCaptureImageStorage);
+        pool.release(KEY, dcmSnd);
+        Thread.sleep(200);
+
+        assertNull(pool.borrow(KEY));
+        assertFalse(dcmSnd.isOpen());
+    }
+
+    @Test
+    public void testRemoteClose() throws Exception {
+        // The receiver aborts associations that are idle for more than 200 ms
+        dcmRcv.stop();
+        dcmRcv = new DcmRcv("DCMRCV");
+        dcmRcv.setHostname("127.0.0.1");
+        dcmRcv.setPort(port);
+        dcmRcv.setDestination("/dev/null");
+        dcmRcv.setIdleTimeout(200);
+        dcmRcv.setAssociationReaperPeriod(100);
+        dcmRcv.initTransferCapability();
+        dcmRcv.start();
+
+        pool = new DICOMAssociationPool(60000, 0, "test");
+        MirthDcmSnd dcmSnd = createDcmSnd();
+
+        send(dcmSnd, UID.SecondaryCaptureImageStorage);
+        pool.release(KEY, dcmSnd);
+
+        long deadline = System.currentTimeMillis() + 10000;
+        while (dcmSnd.isOpen() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+
+        assertNull(pool.borrow(KEY));
+    }
+
+    private MirthDcmSnd createDcmSnd() throws Exception {
+        MirthDcmSnd dcmSnd = new MirthDcmSnd(new DefaultDICOMConfiguration());
+        dcmSnd.setCalledAET("DCMRCV");
+        dcmSnd.setRemoteHost("127.0.0.1");
+        dcmSnd.setRemotePort(port);
+        dcmSnd.start();
+        return dcmSnd;
+    }
+
+    /*
+     * Sends one file and returns whether a new association had to be negotiated for it.
+     */
+    private boolean send(MirthDcmSnd dcmSnd, String cuid) throws Exception {
+        dcmSnd.clearFiles();
+        dcmSnd.addFile(createFile(cuid));
+        boolean opened = dcmSnd.openIfNeeded();
+
+        StatusHandler handler = new StatusHandler();
+        dcmSnd.send(handler);
+        assertNotNull(handler.cmd);
+        assertEquals(0, handler.cmd.getInt(Tag.Status));
+
+        return opened;
+    }
+
+    private File createFile(String cuid) throws Exception {
+        String iuid = UIDUtils.createUID();
+
+        DicomObject dicomObject = new BasicDicomObject();
+        dicomObject.putString(Tag.SOPClassUID, VR.UI, cuid);
+        dicomObject.putString(Tag.SOPInstanceUID, VR.UI, iuid);
+        dicomObject.putString(Tag.PatientName, VR.PN, "DOE^JOHN");
+        dicomObject.initFileMetaInformation(cuid, iuid, UID.ExplicitVRLittleEndian);
+
+        File file = File.createTempFile("dicom", ".dcm");
+        files.add(file);
+
+        DicomOutputStream dos = new DicomOutputStream(file);
+        try {
+            dos.writeDicomFile(dicomObject);
+        } finally {
+            dos.close();
+        }
+
+        return file;
+    }
+
+    private static class StatusHandler extends CustomDimseRSPHandler {
+
+        private DicomObject cmd;
+
+        @Override
+        public void onDimseRSP(Association as, DicomObject cmd, DicomObject data) {
+            this.cmd = cmd;
+        }
+    }
+}
@@ -175,7 +175,39 @@ public class DICOMDispatcherTest {
         assertEquals("Error status code received from DICOM server: 0x" + StringUtils.shortToHex(0xB008), statusMessage);
     }
 
+    @Test
+    public void testPooledAssociationNotResentWithoutResponse() throws Exception {
+        TestDICOMDispatcher dispatcher = new TestDICOMDispatcher();
+        dispatcher.configuration = new DefaultDICOMConfiguration();
+        DICOMAssociationPool pool = new DICOMAssociationPool(60000, 0, "test");
+        dispatcher.setAssociationPool(pool);
+        DICOMDispatcherProperties props = new DICOMDispatcherProperties();
+        props.setHost("host");
+        props.setPort("9000");
+        ConnectorMessage message = new ConnectorMessage();
+
+        TestMirthDcmSnd.setCmdStatus(0);
+        TestMirthDcmSnd.sendCount = 0;
+
+        try {
+            assertEquals(Status.SENT, dispatcher.send(props, message).getStatus());
+
+            // The remote side may have stored the object even though no response came back
+            TestMirthDcmSnd.respond = false;
+            Response response = dispatcher.send(props, message);
+
+            assertEquals(Status.QUEUED, response.getStatus());
+            assertEquals("No response received from DICOM server. The message was not sent again, since the server may already have stored it.", response.getStatusMessage());
+            assertEquals(2, TestMirthDcmSnd.sendCount);
+        } finally {
+            TestMirthDcmSnd.respond = true;
+            pool.close();
+        }
+    }
+
     private static class TestMirthDcmSnd extends MirthDcmSnd {
+        private static int sendCount;
+        private static boolean respond = true;
         private static int cmdStatus;
         private static boolean commitSucceeded = true;
         private static boolean failedSOP = false;
@@ -222,8 +254,18 @@ public class DICOMDispatcherTest {
         @Override
         public void addFile(File f) {}
 
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
         @Override
         public void send(CustomDimseRSPHandler responseHandler) {
+            sendCount++;
+            if (!respond) {
+                return;
+            }
+
             CommandDataDimseRSPHandler handler = (CommandDataDimseRSPHandler) responseHandler;
             BasicDicomObject cmd = new BasicDicomObject();
             cmd.putInt(Tag.Status, VR.IS, cmdStatus);
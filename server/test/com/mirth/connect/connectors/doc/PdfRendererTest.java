@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.connectors.doc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+
+public class PdfRendererTest {
+
+    private static final String CSS = "body { font-family: serif; } h1 { color: #336699; }";
+
+    private Server server;
+    private ResourceHandler handler;
+    private String baseUrl;
+
+    @Before
+    public void setup() throws Exception {
+        handler = new ResourceHandler();
+        server = new Server();
+        ServerConnector serverConnector = new ServerConnector(server);
+        serverConnector.setHost("127.0.0.1");
+        serverConnector.setPort(0);
+        server.addConnector(serverConnector);
+        server.setHandler(handler);
+        server.start();
+
+        baseUrl = "http://127.0.0.1:" + serverConnector.getLocalPort();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.stop();
+    }
+
+    @Test
+    public void testLinkedResourcesCached() throws Exception {
+        PdfRenderer renderer = new PdfRenderer(null, 10000);
+
+        for (int i = 0; i < 3; i++) {
+            assertPdf(render(renderer, "<link rel=\"stylesheet\" type=\"text/css\" href=\"" + baseUrl + "/report.css\"/>"));
+        }
+
+        // The stylesheet is only requested for the first document
+        assertEquals(Integer.valueOf(1), handler.requests.get("/report.css"));
+        assertEquals(1, renderer.getResourceCount());
+    }
+
+    @Test
+    public void testFailedResourceNotCached() throws Exception {
+        PdfRenderer renderer = new PdfRenderer(null, 10000);
+
+        assertPdf(render(renderer, "<link rel=\"stylesheet\" type=\"text/css\" href=\"" + baseUrl + "/missing.css\"/>"));
+        assertPdf(render(renderer, "<link rel=\"stylesheet\" type=\"text/css\" href=\"" + baseUrl + "/missing.css\"/>"));
+
+        assertEquals(Integer.valueOf(2), handler.requests.get("/missing.css"));
+        assertEquals(0, renderer.getResourceCount());
+    }
+
+    @Test
+    public void testResourcesNotCachedWithoutCacheControl() throws Exception {
+        PdfRenderer renderer = new PdfRenderer(null, 10000);
+
+        for (int i = 0; i < 2; i++) {
+            render(renderer, "<link rel=\"stylesheet\" type=\"text/css\" href=\"" + baseUrl + "/plain.css\"/><link rel=\"stylesheet\" type=\"text/css\" href=\"" + baseUrl + "/nocache.css\"/>");
+        }
+
+        assertEquals(Integer.valueOf(2), handler.requests.get("/plain.css"));
+        assertEquals(Integer.valueOf(2), handler.requests.get("/nocache.css"));
+        assertEquals(0, renderer.getResourceCount());
+    }
+
+    @Test
+    public void testMaxResourceBytes() throws Exception {
+        PdfRenderer renderer = new PdfRenderer(null, CSS.length());
+
+        render(renderer, "<link rel=\"stylesheet\" type=\"text/css\" href=\"" + baseUrl + "/report.css\"/>");
+        render(renderer, "<link rel=\"stylesheet\" type=\"text/css\" href=\"" + baseUrl + "/other.css\"/>");
+        render(renderer, "<link rel=\"stylesheet\" type=\"text/css\" href=\"" + baseUrl + "/report.css\"/>");
+
+        assertEquals(Integer.valueOf(2), handler.requests.get("/report.css"));
+        assertEquals(1, renderer.getResourceCount());
+        assertEquals(CSS.length(), renderer.getResourceBytes());
+    }
+
+    @Test
+    public void testModifiedFileLoadedAgain() throws Exception {
+        File file = File.createTempFile("PdfRendererTest", ".css");
+
+        try {
+            FileUtils.writeStringToFile(file, CSS, "UTF-8");
+            PdfRenderer renderer = new PdfRenderer(null, 10000);
+            String head = "<link rel=\"stylesheet\" type=\"text/css\" href=\"" + file.toURI() + "\"/>";
+
+            render(renderer, head);
+            assertEquals(1, renderer.getResourceCount());
+            assertEquals(CSS.length(), renderer.getResourceBytes());
+
+            FileUtils.writeStringToFile(file, CSS + " p { color: red; }", "UTF-8");
+            file.setLastModified(file.lastModified() + 2000);
+
+            render(renderer, head);
+            assertEquals(1, renderer.getResourceCount());
+            assertEquals(CSS.length() + 18, renderer.getResourceBytes());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testRenderPermitsReleased() throws Exception {
+        Semaphore permits = new Semaphore(1);
+        PdfRenderer renderer = new PdfRenderer(permits, 10000);
+
+        assertPdf(render(renderer, ""));
+        assertEquals(1, permits.availablePermits());
+    }
+
+    private byte[] render(PdfRenderer renderer, String head) throws Exception {
+        String html = "<html><head>" + head + "</head><body><h1>Report</h1><p>Contents</p></body></html>";
+        Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new InputSource(new StringReader(html)));
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        renderer.render(document, outputStream);
+        return outputStream.toByteArray();
+    }
+
+    private void assertPdf(byte[] bytes) {
+        assertTrue(new String(bytes, 0, 5).equals("%PDF-"));
+    }
+
+    private static class ResourceHandler extends AbstractHandler {
+
+        private Map<String, Integer> requests = Collections.synchronizedMap(new HashMap<String, Integer>());
+
+        @Override
+        public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException {
+            Integer count = requests.get(target);
+            requests.put(target, count == null ? 1 : count + 1);
+
+            if (target.endsWith("/missing.css")) {
+                response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            } else {
+                response.setStatus(HttpServletResponse.SC_OK);
+                response.setContentType("text/css");
+
+                if (target.endsWith("/nocache.css")) {
+                    response.setHeader("Cache-Control", "no-cache");
+                } else if (!target.endsWith("/plain.css")) {
+                    response.setHeader("Cache-Control", "public, max-age=60");
+                }
+
+                response.getWriter().write(CSS);
+            }
+
+            baseRequest.setHandled(true);
+        }
+    }
+}
@@ -26,6 +26,7 @@ import static org.mockito.Mockito.when;
 import java.io.File;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -617,11 +618,68 @@ public class FileReceiverTest {
         assertTrue(exceptionThrown);
     }
 
+    /*
+     * Watching the directory dispatches the same messages in the same order as listing it
+     */
+    @Test
+    public void testPollWatched() throws Exception {
+        assertWatchedPollsEqual("tests/filereader/nonbatch", false, false, FileReceiverProperties.SORT_BY_NAME);
+        assertWatchedPollsEqual("tests/filereader/nonbatch", true, false, FileReceiverProperties.SORT_BY_NAME);
+        assertWatchedPollsEqual("tests/filereader/batch", false, true, FileReceiverProperties.SORT_BY_NAME);
+        assertWatchedPollsEqual("tests/filereader/batch", true, true, FileReceiverProperties.SORT_BY_NAME);
+        assertWatchedPollsEqual("tests/filereader/containsempty", true, false, FileReceiverProperties.SORT_BY_NAME);
+    }
+
+    private void assertWatchedPollsEqual(String directory, boolean directoryRecursion, boolean batchProcess, String sortBy) throws Exception {
+        TestFileReceiver listingReceiver = createReceiver(directory, directoryRecursion, batchProcess, sortBy, null);
+        listingReceiver.poll();
+
+        TestFileReceiver watchingReceiver = createReceiver(directory, directoryRecursion, batchProcess, sortBy, null, false, "60");
+        watchingReceiver.poll();
+        watchingReceiver.poll();
+        watchingReceiver.stop();
+
+        // The receivers may also have been polled by their schedules, so each poll is compared separately
+        List<RawMessage> expected = getPolls(listingReceiver).get(0);
+        List<List<RawMessage>> polls = getPolls(watchingReceiver);
+        assertTrue(polls.size() >= 2);
+
+        for (List<RawMessage> poll : polls) {
+            assertEquals(directory, expected.size(), poll.size());
+
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).getRawData(), poll.get(i).getRawData());
+                for (String key : new String[] { ORIGINAL_FILENAME, "fileDirectory", "fileSize", "fileLastModified", POLL_SEQUENCE_ID, POLL_COMPLETE }) {
+                    assertEquals(key, expected.get(i).getSourceMap().get(key), poll.get(i).getSourceMap().get(key));
+                }
+            }
+        }
+    }
+
+    private List<List<RawMessage>> getPolls(TestFileReceiver receiver) {
+        Map<Object, List<RawMessage>> polls = new LinkedHashMap<Object, List<RawMessage>>();
+
+        for (RawMessage message : new ArrayList<RawMessage>(receiver.rawMessages)) {
+            List<RawMessage> poll = polls.get(message.getSourceMap().get(POLL_ID));
+            if (poll == null) {
+                poll = new ArrayList<RawMessage>();
+                polls.put(message.getSourceMap().get(POLL_ID), poll);
+            }
+            poll.add(message);
+        }
+
+        return new ArrayList<List<RawMessage>>(polls.values());
+    }
+
     private TestFileReceiver createReceiver(String directory, boolean directoryRecursion, boolean batchProcess, String sortBy, String fileSizeMaximum) throws Exception {
         return createReceiver(directory, directoryRecursion, batchProcess, sortBy, fileSizeMaximum, false);
     }
 
     private TestFileReceiver createReceiver(String directory, boolean directoryRecursion, boolean batchProcess, String sortBy, String fileSizeMaximum, boolean fileTypeBinary) throws Exception {
+        return createReceiver(directory, directoryRecursion, batchProcess, sortBy, fileSizeMaximum, fileTypeBinary, "0");
+    }
+
+    private TestFileReceiver createReceiver(String directory, boolean directoryRecursion, boolean batchProcess, String sortBy, String fileSizeMaximum, boolean fileTypeBinary, String watchRescanInterval) throws Exception {
         TestFileReceiver receiver = spy(new TestFileReceiver() {
             @Override
             public String getConfigurationClass() {
@@ -647,6 +705,7 @@ public class FileReceiverTest {
             connectorProperties.setFileSizeMaximum(fileSizeMaximum);
         }
         connectorProperties.setBinary(fileTypeBinary);
+        connectorProperties.setWatchRescanInterval(watchRescanInterval);
         receiver.setConnectorProperties(connectorProperties);
 
         FileConnector fileConnector = mock(FileConnector.class);
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.connectors.file;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.filefilter.WildcardFileFilter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mirth.connect.connectors.core.file.filesystems.FileConnection;
+import com.mirth.connect.connectors.core.file.filesystems.FileInfo;
+
+public class FileWatchIndexTest {
+
+    private static final long HOUR = 60 * 60 * 1000;
+
+    private File directory;
+    private FileWatchIndex index;
+
+    @Before
+    public void setup() throws Exception {
+        directory = new File(FileUtils.getTempDirectory(), "file-watch-test-" + System.nanoTime());
+        directory.mkdirs();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (index != null) {
+            index.close();
+        }
+        FileUtils.deleteDirectory(directory);
+    }
+
+    @Test
+    public void testInitialScan() throws Exception {
+        write("01.hl7");
+        write("02.hl7");
+        write("03.hl7");
+        write("03.hl7.ignore");
+        write(".04.hl7");
+        write("05.txt");
+        write("nested/06.hl7");
+
+        index = createIndex(false, HOUR);
+        assertFiles("01.hl7", "02.hl7");
+    }
+
+    @Test
+    public void testCreatedAndDeletedFiles() throws Exception {
+        write("01.hl7");
+        index = createIndex(false, HOUR);
+        assertFiles("01.hl7");
+
+        // Only events are seen, since the directory isn't scanned again for an hour
+        write("02.hl7");
+        awaitFiles("01.hl7", "02.hl7");
+
+        new File(directory, "01.hl7").delete();
+        awaitFiles("02.hl7");
+
+        write("02.hl7.ignore");
+        awaitFiles();
+    }
+
+    @Test
+    public void testRecursive() throws Exception {
+        write("01.hl7");
+        index = createIndex(true, HOUR);
+        assertFiles("01.hl7");
+
+        write("nested/deeper/02.hl7");
+        awaitFiles("01.hl7", "02.hl7");
+    }
+
+    @Test
+    public void testProcessedFileRemoved() throws Exception {
+        write("01.hl7");
+        index = createIndex(false, HOUR);
+        List<FileInfo> files = index.getReadyFiles();
+        assertEquals(1, files.size());
+
+        // Not returned again once moved, whether or not the event has been read yet
+        index.processed(files.get(0));
+        new File(directory, "01.hl7").delete();
+        assertFiles();
+    }
+
+    @Test
+    public void testRescan() throws Exception {
+        index = createIndex(false, 100);
+        assertFiles();
+
+        // Changes that aren't reported are found by the next scan
+        index.close();
+        write("01.hl7");
+        Thread.sleep(200);
+        assertFiles("01.hl7");
+    }
+
+    @Test
+    public void testSameFilesAsListing() throws Exception {
+        int count = 2000;
+        for (int i = 0; i < count; i++) {
+            write(String.format("%05d.hl7", i));
+        }
+
+        Set<String> listed = getPaths(new FileConnection().listFiles(directory.getAbsolutePath(), "*.hl7", false, true));
+        assertEquals(count, listed.size());
+
+        index = createIndex(false, HOUR);
+
+        // Every poll returns the files that are still there, until they are processed
+        for (int i = 0; i < 2; i++) {
+            assertEquals(listed, getPaths(index.getReadyFiles()));
+        }
+    }
+
+    private FileWatchIndex createIndex(boolean recursive, long rescanInterval) throws Exception {
+        FileWatchIndex index = new FileWatchIndex(directory.getAbsolutePath(), recursive, new WildcardFileFilter("*.hl7"), true, rescanInterval, "test");
+        index.start();
+        return index;
+    }
+
+    private void write(String name) throws Exception {
+        FileUtils.writeStringToFile(new File(directory, name), "MSH|^~\\&|" + name, "UTF-8");
+    }
+
+    private Set<String> getPaths(List<FileInfo> files) {
+        Set<String> paths = new HashSet<String>();
+        for (FileInfo file : files) {
+            paths.add(file.getAbsolutePath());
+        }
+        return paths;
+    }
+
+    private Set<String> getNames() throws Exception {
+        Set<String> names = new HashSet<String>();
+        for (FileInfo file : index.getReadyFiles()) {
+            names.add(file.getName());
+        }
+        return names;
+    }
+
+    private void assertFiles(String... names) throws Exception {
+        assertEquals(new HashSet<String>(Arrays.asList(names)), getNames());
+    }
+
+    private void awaitFiles(String... names) throws Exception {
+        Set<String> expected = new HashSet<String>(Arrays.asList(names));
+        long deadline = System.currentTimeMillis() + 10000;
+
+        while (!expected.equals(getNames()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+
+        assertFiles(names);
+    }
+}
@@ -0,0 +1,456 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.connectors.file.filesystems;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mirth.connect.connectors.core.file.FileSystemConnectionOptions;
+import com.mirth.connect.connectors.core.file.S3SchemeProperties;
+import com.mirth.connect.connectors.core.file.filesystems.FileInfo;
+import com.mirth.connect.connectors.core.file.filesystems.S3Connection;
+
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3Configuration;
+
+/**
+ * Runs S3Connection transfers against an in-process server that implements the parts of the S3
+ * REST API that the connection uses.
+ */
+public class S3ConnectionTransferTest {
+
+    private static final String BUCKET = "test";
+
+    private Server server;
+    private S3Stub stub;
+    private S3Connection s3Conn;
+
+    @Before
+    public void setup() throws Exception {
+        stub = new S3Stub();
+        server = new Server();
+        ServerConnector serverConnector = new ServerConnector(server);
+        serverConnector.setHost("127.0.0.1");
+        serverConnector.setPort(0);
+        server.addConnector(serverConnector);
+        server.setHandler(stub);
+        server.start();
+
+        S3SchemeProperties schemeProps = new S3SchemeProperties();
+        schemeProps.setUseDefaultCredentialProviderChain(false);
+        schemeProps.setUseTemporaryCredentials(false);
+        schemeProps.setRegion(Region.US_EAST_1.id());
+
+        s3Conn = new S3Connection(new FileSystemConnectionOptions(false, "user", "pass", schemeProps), 10000);
+        s3Conn.client.close();
+        s3Conn.client = S3Client.builder().endpointOverride(URI.create("http://127.0.0.1:" + serverConnector.getLocalPort())).region(Region.US_EAST_1).credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("user", "pass"))).serviceConfiguration(S3Configuration.builder().pathStyleAccessEnabled(true).chunkedEncodingEnabled(false).build()).build();
+        s3Conn.multipartPartSize = 1024;
+        s3Conn.multipartMaxConcurrentParts = 3;
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        s3Conn.destroy();
+        server.stop();
+    }
+
+    @Test
+    public void testSmallObjectPut() throws Exception {
+        byte[] data = randomBytes(1000);
+        Map<String, Object> connectorMap = new HashMap<String, Object>();
+        s3Conn.writeFile("small.hl7", BUCKET + "/dir", false, new ByteArrayInputStream(data), data.length, connectorMap);
+
+        assertArrayEquals(data, stub.objects.get(BUCKET + "/dir/small.hl7").data);
+        assertEquals(DigestUtils.md5Hex(data), connectorMap.get("s3ETag"));
+        assertEquals(1, stub.count("PutObject"));
+        assertEquals(0, stub.count("UploadPart"));
+    }
+
+    @Test
+    public void testMultipartUpload() throws Exception {
+        stub.partDelay = 20;
+        s3Conn.schemeProps.getCustomHeaders().put("source", Collections.singletonList("mirth"));
+
+        byte[] data = randomBytes(10 * 1024 + 100);
+        Map<String, Object> connectorMap = new HashMap<String, Object>();
+        s3Conn.writeFile("large.hl7", BUCKET + "/dir", false, new ByteArrayInputStream(data), data.length, connectorMap);
+
+        StoredObject object = stub.objects.get(BUCKET + "/dir/large.hl7");
+        assertArrayEquals(data, object.data);
+        assertEquals("mirth", object.metadata.get("source"));
+        assertTrue(((String) connectorMap.get("s3ETag")).endsWith("-11"));
+        assertEquals(0, stub.count("PutObject"));
+        assertEquals(11, stub.count("UploadPart"));
+
+        // Parts are uploaded concurrently, up to the limit
+        assertTrue(stub.maxConcurrentParts.get() > 1);
+        assertTrue(stub.maxConcurrentParts.get() <= 3);
+    }
+
+    @Test
+    public void testFailedMultipartUploadAborted() throws Exception {
+        stub.failPartNumber = 3;
+
+        byte[] data = randomBytes(10 * 1024);
+        try {
+            s3Conn.writeFile("large.hl7", BUCKET, false, new ByteArrayInputStream(data), data.length, null);
+            fail("Exception should have been thrown");
+        } catch (Exception e) {
+        }
+
+        assertEquals(1, stub.count("AbortMultipartUpload"));
+        assertEquals(0, stub.count("CompleteMultipartUpload"));
+        assertTrue(stub.uploads.isEmpty());
+        assertFalse(s3Conn.exists("large.hl7", BUCKET));
+    }
+
+    @Test
+    public void testMoveCopiedOnServer() throws Exception {
+        byte[] data = randomBytes(5000);
+        stub.put(BUCKET + "/in/01.hl7", data, Collections.<String, String> emptyMap());
+
+        s3Conn.move("01.hl7", BUCKET + "/in", "01.hl7", BUCKET + "/done");
+
+        assertArrayEquals(data, stub.objects.get(BUCKET + "/done/01.hl7").data);
+        assertFalse(stub.objects.containsKey(BUCKET + "/in/01.hl7"));
+        assertEquals(1, stub.count("CopyObject"));
+        assertEquals(0, stub.count("GetObject"));
+        assertEquals(0, stub.count("PutObject"));
+    }
+
+    @Test
+    public void testMoveLargeObjectCopiedInParts() throws Exception {
+        stub.maxCopySize = 1000;
+        s3Conn.maxCopySize = 1000;
+        s3Conn.copyPartSize = 400;
+
+        byte[] data = randomBytes(2500);
+        stub.put(BUCKET + "/in/01.hl7", data, Collections.singletonMap("source", "mirth"));
+
+        s3Conn.move("01.hl7", BUCKET + "/in", "01.hl7", BUCKET + "/done");
+
+        StoredObject object = stub.objects.get(BUCKET + "/done/01.hl7");
+        assertArrayEquals(data, object.data);
+        assertEquals("mirth", object.metadata.get("source"));
+        assertFalse(stub.objects.containsKey(BUCKET + "/in/01.hl7"));
+        assertEquals(7, stub.count("UploadPartCopy"));
+        assertEquals(0, stub.count("GetObject"));
+    }
+
+    @Test
+    public void testListFilesPaginated() throws Exception {
+        stub.pageSize = 3;
+
+        for (int i = 0; i < 10; i++) {
+            stub.put(BUCKET + "/in/" + i + ".hl7", randomBytes(10), Collections.<String, String> emptyMap());
+        }
+        stub.put(BUCKET + "/in/other.txt", randomBytes(10), Collections.<String, String> emptyMap());
+        stub.put(BUCKET + "/in/nested/10.hl7", randomBytes(10), Collections.<String, String> emptyMap());
+
+        List<FileInfo> files = s3Conn.listFiles(BUCKET + "/in", "*.hl7", false, true);
+        assertEquals(10, files.size());
+        assertEquals(4, stub.count("ListObjectsV2"));
+
+        List<String> directories = s3Conn.listDirectories(BUCKET + "/in");
+        assertEquals(Collections.singletonList(BUCKET + "/in/nested/"), directories);
+    }
+
+    private byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static class StoredObject {
+        private byte[] data;
+        private Map<String, String> metadata;
+        private String eTag;
+        private Instant lastModified = Instant.now();
+    }
+
+    private static class Upload {
+        private Map<String, String> metadata;
+        private Map<Integer, byte[]> parts = new ConcurrentHashMap<Integer, byte[]>();
+    }
+
+    /*
+     * Path-style requests only, without chunked encoding.
+     */
+    private static class S3Stub extends AbstractHandler {
+
+        private static final Pattern PART_PATTERN = Pattern.compile("<Part>(.*?)</Part>", Pattern.DOTALL);
+        private static final Pattern PART_NUMBER_PATTERN = Pattern.compile("<PartNumber>(\\d+)</PartNumber>");
+
+        private Map<String, StoredObject> objects = new ConcurrentHashMap<String, StoredObject>();
+        private Map<String, Upload> uploads = new ConcurrentHashMap<String, Upload>();
+        private Map<String, AtomicInteger> requests = new ConcurrentHashMap<String, AtomicInteger>();
+        private AtomicInteger uploadIds = new AtomicInteger();
+        private AtomicInteger concurrentParts = new AtomicInteger();
+        private AtomicInteger maxConcurrentParts = new AtomicInteger();
+        private int pageSize = 1000;
+        private long maxCopySize = Long.MAX_VALUE;
+        private int failPartNumber;
+        private long partDelay;
+
+        public int count(String operation) {
+            AtomicInteger count = requests.get(operation);
+            return count == null ? 0 : count.get();
+        }
+
+        public StoredObject put(String path, byte[] data, Map<String, String> metadata) {
+            StoredObject object = new StoredObject();
+            object.data = data;
+            object.metadata = new HashMap<String, String>(metadata);
+            object.eTag = DigestUtils.md5Hex(data);
+            objects.put(path, object);
+            return object;
+        }
+
+        @Override
+        public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException {
+            baseRequest.setHandled(true);
+
+            String path = URLDecoder.decode(StringUtils.removeStart(request.getRequestURI(), "/"), "UTF-8");
+            String bucket = StringUtils.substringBefore(path, "/");
+            String method = request.getMethod();
+            String uploadId = request.getParameter("uploadId");
+            String copySource = request.getHeader("x-amz-copy-source");
+
+            if (method.equals("GET") && !path.contains("/")) {
+                listObjects(bucket, request, response);
+            } else if (method.equals("PUT") && uploadId != null && copySource != null) {
+                uploadPartCopy(path, uploadId, URLDecoder.decode(copySource, "UTF-8"), request, response);
+            } else if (method.equals("PUT") && uploadId != null) {
+                uploadPart(uploadId, request, response);
+            } else if (method.equals("PUT") && copySource != null) {
+                copyObject(path, URLDecoder.decode(copySource, "UTF-8"), response);
+            } else if (method.equals("PUT")) {
+                count("PutObject", 1);
+                byte[] data = IOUtils.toByteArray(request.getInputStream());
+                response.setHeader("ETag", "\"" + put(path, data, getMetadata(request)).eTag + "\"");
+            } else if (method.equals("POST") && request.getParameter("uploads") != null) {
+                count("CreateMultipartUpload", 1);
+                Upload upload = new Upload();
+                upload.metadata = getMetadata(request);
+                String id = String.valueOf(uploadIds.incrementAndGet());
+                uploads.put(id, upload);
+                writeXml(response, "<InitiateMultipartUploadResult><Bucket>" + bucket + "</Bucket><Key>" + StringUtils.substringAfter(path, "/") + "</Key><UploadId>" + id + "</UploadId></InitiateMultipartUploadResult>");
+            } else if (method.equals("POST") && uploadId != null) {
+                completeUpload(path, uploadId, request, response);
+            } else if (method.equals("DELETE") && uploadId != null) {
+                count("AbortMultipartUpload", 1);
+                uploads.remove(uploadId);
+                response.setStatus(HttpServletResponse.SC_NO_CONTENT);
+            } else if (method.equals("DELETE")) {
+                count("DeleteObject", 1);
+                objects.remove(path);
+                response.setStatus(HttpServletResponse.SC_NO_CONTENT);
+            } else {
+                StoredObject object = objects.get(path);
+                count(method.equals("HEAD") ? "HeadObject" : "GetObject", 1);
+
+                if (object == null) {
+                    writeError(response, HttpServletResponse.SC_NOT_FOUND, "NoSuchKey");
+                    return;
+                }
+
+                response.setHeader("ETag", "\"" + object.eTag + "\"");
+                response.setHeader("Last-Modified", DateTimeFormatter.RFC_1123_DATE_TIME.format(object.lastModified.atZone(ZoneOffset.UTC)));
+                response.setContentType("binary/octet-stream");
+                for (Map.Entry<String, String> entry : object.metadata.entrySet()) {
+                    response.setHeader("x-amz-meta-" + entry.getKey(), entry.getValue());
+                }
+                response.setContentLength(object.data.length);
+
+                if (method.equals("GET")) {
+                    response.getOutputStream().write(object.data);
+                }
+            }
+        }
+
+        private void listObjects(String bucket, HttpServletRequest request, HttpServletResponse response) throws IOException {
+            count("ListObjectsV2", 1);
+            String prefix = StringUtils.defaultString(request.getParameter("prefix"));
+            String delimiter = request.getParameter("delimiter");
+            int start = Integer.parseInt(StringUtils.defaultIfEmpty(request.getParameter("continuation-token"), "0"));
+
+            // Keys and common prefixes in order, the same as S3
+            TreeMap<String, StoredObject> entries = new TreeMap<String, StoredObject>();
+            for (Map.Entry<String, StoredObject> entry : objects.entrySet()) {
+                String key = StringUtils.substringAfter(entry.getKey(), "/");
+
+                if (entry.getKey().startsWith(bucket + "/") && key.startsWith(prefix)) {
+                    int index = delimiter == null ? -1 : key.indexOf(delimiter, prefix.length());
+                    entries.put(index < 0 ? key : key.substring(0, index + 1), index < 0 ? entry.getValue() : null);
+                }
+            }
+
+            List<String> keys = new ArrayList<String>(entries.keySet());
+            int end = Math.min(start + pageSize, keys.size());
+
+            StringBuilder xml = new StringBuilder("<ListBucketResult><Name>" + bucket + "</Name><Prefix>" + prefix + "</Prefix><KeyCount>" + (end - start) + "</KeyCount><MaxKeys>" + pageSize + "</MaxKeys>");
+            xml.append("<IsTruncated>" + (end < keys.size()) + "</IsTruncated>");
+            if (end < keys.size()) {
+                xml.append("<NextContinuationToken>" + end + "</NextContinuationToken>");
+            }
+
+            for (String key : keys.subList(start, end)) {
+                StoredObject object = entries.get(key);
+
+                if (object == null) {
+                    xml.append("<CommonPrefixes><Prefix>" + key + "</Prefix></CommonPrefixes>");
+                } else {
+                    xml.append("<Contents><Key>" + key + "</Key><LastModified>" + object.lastModified + "</LastModified><ETag>\"" + object.eTag + "\"</ETag><Size>" + object.data.length + "</Size><StorageClass>STANDARD</StorageClass></Contents>");
+                }
+            }
+
+            writeXml(response, xml.append("</ListBucketResult>").toString());
+        }
+
+        private void uploadPart(String uploadId, HttpServletRequest request, HttpServletResponse response) throws IOException {
+            count("UploadPart", 1);
+            int partNumber = Integer.parseInt(request.getParameter("partNumber"));
+            byte[] data = IOUtils.toByteArray(request.getInputStream());
+
+            int concurrent = concurrentParts.incrementAndGet();
+            try {
+                maxConcurrentParts.accumulateAndGet(concurrent, Math::max);
+                Thread.sleep(partDelay);
+            } catch (InterruptedException e) {
+            } finally {
+                concurrentParts.decrementAndGet();
+            }
+
+            if (partNumber == failPartNumber) {
+                writeError(response, HttpServletResponse.SC_FORBIDDEN, "AccessDenied");
+            } else {
+                uploads.get(uploadId).parts.put(partNumber, data);
+                response.setHeader("ETag", "\"" + DigestUtils.md5Hex(data) + "\"");
+            }
+        }
+
+        private void uploadPartCopy(String path, String uploadId, String copySource, HttpServletRequest request, HttpServletResponse response) throws IOException {
+            count("UploadPartCopy", 1);
+            byte[] source = objects.get(copySource).data;
+            String[] range = StringUtils.removeStart(request.getHeader("x-amz-copy-source-range"), "bytes=").split("-");
+
+            byte[] data = new byte[Integer.parseInt(range[1]) - Integer.parseInt(range[0]) + 1];
+            System.arraycopy(source, Integer.parseInt(range[0]), data, 0, data.length);
+            uploads.get(uploadId).parts.put(Integer.parseInt(request.getParameter("partNumber")), data);
+
+            writeXml(response, "<CopyPartResult><ETag>\"" + DigestUtils.md5Hex(data) + "\"</ETag><LastModified>" + Instant.now() + "</LastModified></CopyPartResult>");
+        }
+
+        private void copyObject(String path, String copySource, HttpServletResponse response) throws IOException {
+            count("CopyObject", 1);
+            StoredObject source = objects.get(copySource);
+
+            if (source.data.length > maxCopySize) {
+                writeError(response, HttpServletResponse.SC_BAD_REQUEST, "InvalidRequest");
+                return;
+            }
+
+            StoredObject object = put(path, source.data, source.metadata);
+            writeXml(response, "<CopyObjectResult><ETag>\"" + object.eTag + "\"</ETag><LastModified>" + object.lastModified + "</LastModified></CopyObjectResult>");
+        }
+
+        private void completeUpload(String path, String uploadId, HttpServletRequest request, HttpServletResponse response) throws IOException {
+            count("CompleteMultipartUpload", 1);
+            Upload upload = uploads.remove(uploadId);
+            String body = IOUtils.toString(request.getInputStream(), StandardCharsets.UTF_8);
+
+            List<byte[]> parts = new ArrayList<byte[]>();
+            Matcher matcher = PART_PATTERN.matcher(body);
+            while (matcher.find()) {
+                Matcher partNumber = PART_NUMBER_PATTERN.matcher(matcher.group(1));
+                partNumber.find();
+                parts.add(upload.parts.get(Integer.parseInt(partNumber.group(1))));
+            }
+
+            byte[] data = new byte[0];
+            for (byte[] part : parts) {
+                byte[] combined = new byte[data.length + part.length];
+                System.arraycopy(data, 0, combined, 0, data.length);
+                System.arraycopy(part, 0, combined, data.length, part.length);
+                data = combined;
+            }
+
+            StoredObject object = put(path, data, upload.metadata);
+            object.eTag = DigestUtils.md5Hex(data) + "-" + parts.size();
+            writeXml(response, "<CompleteMultipartUploadResult><Key>" + StringUtils.substringAfter(path, "/") + "</Key><ETag>\"" + object.eTag + "\"</ETag></CompleteMultipartUploadResult>");
+        }
+
+        private Map<String, String> getMetadata(HttpServletRequest request) {
+            Map<String, String> metadata = new HashMap<String, String>();
+
+            for (String name : Collections.list(request.getHeaderNames())) {
+                if (name.toLowerCase().startsWith("x-amz-meta-")) {
+                    metadata.put(name.substring("x-amz-meta-".length()).toLowerCase(), request.getHeader(name));
+                }
+            }
+
+            return metadata;
+        }
+
+        private void count(String operation, int delta) {
+            requests.computeIfAbsent(operation, key -> new AtomicInteger()).addAndGet(delta);
+        }
+
+        private void writeXml(HttpServletResponse response, String xml) throws IOException {
+            response.setContentType("application/xml");
+            response.getWriter().write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>" + xml);
+        }
+
+        private void writeError(HttpServletResponse response, int status, String code) throws IOException {
+            response.setStatus(status);
+            writeXml(response, "<Error><Code>" + code + "</Code><Message>" + code + "</Message></Error>");
+        }
+    }
+}
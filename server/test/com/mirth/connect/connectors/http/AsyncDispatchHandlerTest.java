@@ -0,0 +1,294 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.connectors.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.io.IOUtils;
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Sends more concurrent requests than the server has request threads to a handler that blocks
+ * like a busy channel, and compares how many of them are in flight at once with and without async
+ * dispatching.
+ */
+public class AsyncDispatchHandlerTest {
+
+    private static final int SERVER_THREADS = 8;
+    private static final int REQUESTS = 40;
+
+    private Server server;
+    private ExecutorService clients;
+    private ExecutorService dispatchExecutor;
+    private BlockingHandler blockingHandler;
+
+    @Before
+    public void setup() {
+        clients = Executors.newFixedThreadPool(REQUESTS);
+        dispatchExecutor = Executors.newFixedThreadPool(REQUESTS);
+        blockingHandler = new BlockingHandler();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        blockingHandler.release.countDown();
+        clients.shutdownNow();
+        dispatchExecutor.shutdownNow();
+
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testSynchronousRequestsPerThread() throws Exception {
+        int port = startServer(blockingHandler);
+        int inFlight = sendRequests(port);
+
+        // Each request in flight holds one of the server's threads
+        assertTrue("In flight: " + inFlight, inFlight < SERVER_THREADS);
+    }
+
+    @Test
+    public void testAsyncRequestsPerThread() throws Exception {
+        int port = startServer(new AsyncDispatchHandler(blockingHandler, dispatchExecutor));
+        int inFlight = sendRequests(port);
+
+        // None of the requests in flight hold a server thread
+        assertEquals(REQUESTS, inFlight);
+        assertTrue("In flight per server thread: " + ((double) inFlight / SERVER_THREADS), inFlight > SERVER_THREADS * 4);
+    }
+
+    @Test
+    public void testAsyncResponse() throws Exception {
+        blockingHandler.release.countDown();
+        int port = startServer(new AsyncDispatchHandler(blockingHandler, dispatchExecutor));
+
+        assertEquals("done", get(port));
+    }
+
+    @Test
+    public void testAsyncError() throws Exception {
+        int port = startServer(new AsyncDispatchHandler(new AbstractHandler() {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException {
+                throw new IOException("Channel failed");
+            }
+        }, dispatchExecutor));
+
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + port + "/").openConnection();
+        assertEquals(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, connection.getResponseCode());
+        connection.disconnect();
+    }
+
+    @Test
+    public void testQueueFull() throws Exception {
+        ThreadPoolExecutor boundedExecutor = new ThreadPoolExecutor(1, 1, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(1));
+
+        try {
+            int port = startServer(new AsyncDispatchHandler(blockingHandler, boundedExecutor));
+
+            // One request is being processed and one is queued
+            Future<String> processing = sendRequest(port);
+            waitForInFlight(1);
+            Future<String> queued = sendRequest(port);
+            waitForQueued(boundedExecutor, 1);
+
+            // There is no room for a third
+            assertEquals(HttpServletResponse.SC_SERVICE_UNAVAILABLE, getStatus(port));
+
+            blockingHandler.release.countDown();
+            assertEquals("done", processing.get(30, TimeUnit.SECONDS));
+            assertEquals("done", queued.get(30, TimeUnit.SECONDS));
+        } finally {
+            boundedExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testRejectQueued() throws Exception {
+        ThreadPoolExecutor boundedExecutor = new ThreadPoolExecutor(1, 1, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(10));
+
+        try {
+            int port = startServer(new AsyncDispatchHandler(blockingHandler, boundedExecutor));
+
+            Future<String> processing = sendRequest(port);
+            waitForInFlight(1);
+            Future<Integer> queued = clients.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    return getStatus(port);
+                }
+            });
+            waitForQueued(boundedExecutor, 1);
+
+            // The same as when the listener stops
+            boundedExecutor.shutdown();
+            List<Runnable> queuedRequests = new ArrayList<Runnable>();
+            boundedExecutor.getQueue().drainTo(queuedRequests);
+            for (Runnable queuedRequest : queuedRequests) {
+                AsyncDispatchHandler.reject(queuedRequest);
+            }
+
+            assertEquals(HttpServletResponse.SC_SERVICE_UNAVAILABLE, (int) queued.get(30, TimeUnit.SECONDS));
+
+            // The request that was already being processed still finishes
+            blockingHandler.release.countDown();
+            assertEquals("done", processing.get(30, TimeUnit.SECONDS));
+            assertEquals(1, blockingHandler.inFlight.get());
+        } finally {
+            boundedExecutor.shutdownNow();
+        }
+    }
+
+    private Future<String> sendRequest(final int port) {
+        return clients.submit(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return get(port);
+            }
+        });
+    }
+
+    private void waitForInFlight(int inFlight) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 20000;
+        while (blockingHandler.inFlight.get() < inFlight && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(inFlight, blockingHandler.inFlight.get());
+    }
+
+    private void waitForQueued(ThreadPoolExecutor executor, int queued) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 20000;
+        while (executor.getQueue().size() < queued && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(queued, executor.getQueue().size());
+    }
+
+    private int getStatus(int port) throws Exception {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + port + "/").openConnection();
+
+        try {
+            return connection.getResponseCode();
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private int startServer(Handler handler) throws Exception {
+        QueuedThreadPool threadPool = new QueuedThreadPool(SERVER_THREADS, SERVER_THREADS);
+        threadPool.setReservedThreads(0);
+        server = new Server(threadPool);
+
+        ServerConnector connector = new ServerConnector(server, 1, 1);
+        connector.setHost("127.0.0.1");
+        connector.setPort(0);
+        server.addConnector(connector);
+        server.setHandler(handler);
+        server.start();
+
+        return connector.getLocalPort();
+    }
+
+    /*
+     * Sends all requests at once, waits until no more of them are reaching the handler, and then
+     * lets them all finish. Returns the most requests that were in the handler at the same time.
+     */
+    private int sendRequests(final int port) throws Exception {
+        List<Future<String>> responses = new ArrayList<Future<String>>();
+
+        for (int i = 0; i < REQUESTS; i++) {
+            responses.add(clients.submit(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    return get(port);
+                }
+            }));
+        }
+
+        int inFlight = 0;
+        int previous;
+        long deadline = System.currentTimeMillis() + 20000;
+
+        do {
+            previous = inFlight;
+            Thread.sleep(500);
+            inFlight = blockingHandler.inFlight.get();
+        } while ((inFlight == 0 || inFlight != previous) && System.currentTimeMillis() < deadline);
+
+        blockingHandler.release.countDown();
+
+        for (Future<String> response : responses) {
+            assertEquals("done", response.get(30, TimeUnit.SECONDS));
+        }
+
+        return inFlight;
+    }
+
+    private String get(int port) throws Exception {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + port + "/").openConnection();
+        InputStream inputStream = connection.getInputStream();
+
+        try {
+            return IOUtils.toString(inputStream, "UTF-8");
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    private static class BlockingHandler extends AbstractHandler {
+
+        private AtomicInteger inFlight = new AtomicInteger();
+        private CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException {
+            inFlight.incrementAndGet();
+
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            response.getWriter().write("done");
+            baseRequest.setHandled(true);
+        }
+    }
+}
@@ -0,0 +1,336 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.connectors.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.io.IOUtils;
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.server.handler.ContextHandler;
+import org.eclipse.jetty.server.handler.HandlerCollection;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mirth.connect.connectors.core.http.HttpConfiguration;
+import com.mirth.connect.donkey.model.channel.ConnectorPluginProperties;
+import com.mirth.connect.donkey.server.channel.Channel;
+import com.mirth.connect.plugins.httpauth.basic.BasicHttpAuthProperties;
+
+public class HttpListenerRegistryTest {
+
+    private HttpListenerRegistry registry;
+    private int port;
+
+    @Before
+    public void setup() throws Exception {
+        registry = new HttpListenerRegistry();
+
+        ServerSocket socket = new ServerSocket(0);
+        port = socket.getLocalPort();
+        socket.close();
+    }
+
+    @Test
+    public void testSharedServer() throws Exception {
+        TestReceiver receiver1 = new TestReceiver("channel1", port);
+        TestReceiver receiver2 = new TestReceiver("channel2", port);
+
+        Server server1 = registry.register(receiver1, Collections.singleton(""), createHandler("", "channel1"));
+        Server server2 = registry.register(receiver2, Collections.singleton("/api"), createHandler("/api", "channel2"));
+
+        assertSame(server1, server2);
+        assertEquals("channel1", get("/patients"));
+        assertEquals("channel2", get("/api/patients"));
+
+        // Removing one listener leaves the others running
+        registry.unregister(receiver1);
+        assertTrue(server1.isRunning());
+        assertEquals(404, getStatus("/patients"));
+        assertEquals("channel2", get("/api/patients"));
+
+        // The server is stopped with the last listener
+        registry.unregister(receiver2);
+        assertFalse(server1.isRunning());
+    }
+
+    @Test
+    public void testDuplicateContextPath() throws Exception {
+        TestReceiver receiver1 = new TestReceiver("channel1", port);
+        TestReceiver receiver2 = new TestReceiver("channel2", port);
+
+        registry.register(receiver1, Collections.singleton("/api"), createHandler("/api", "channel1"));
+
+        try {
+            registry.register(receiver2, Collections.singleton("/api"), createHandler("/api", "channel2"));
+            fail("Expected the context path to be rejected");
+        } catch (Exception e) {
+            assertTrue(e.getMessage().contains("channel1"));
+        }
+
+        assertEquals("channel1", get("/api"));
+        registry.unregister(receiver1);
+    }
+
+    @Test
+    public void testDuplicateStaticResourceContextPath() throws Exception {
+        TestReceiver receiver1 = new TestReceiver("channel1", port);
+        TestReceiver receiver2 = new TestReceiver("channel2", port);
+        TestReceiver receiver3 = new TestReceiver("channel3", port);
+
+        registry.register(receiver1, new HashSet<String>(Arrays.asList("", "/docs")), createHandler("", "channel1"));
+
+        // A listener can't take over a static resource of another one
+        try {
+            registry.register(receiver2, Collections.singleton("/docs"), createHandler("/docs", "channel2"));
+            fail("Expected the context path to be rejected");
+        } catch (Exception e) {
+            assertTrue(e.getMessage().contains("channel1"));
+        }
+
+        // Or add a static resource on the context path of another one
+        try {
+            registry.register(receiver3, new HashSet<String>(Arrays.asList("/api", "")), createHandler("/api", "channel3"));
+            fail("Expected the static resource context path to be rejected");
+        } catch (Exception e) {
+            assertTrue(e.getMessage().contains("channel1"));
+        }
+
+        // All of its paths are freed when the listener is removed
+        registry.unregister(receiver1);
+        registry.register(receiver2, Collections.singleton("/docs"), createHandler("/docs", "channel2"));
+        assertEquals("channel2", get("/docs"));
+        registry.unregister(receiver2);
+    }
+
+    @Test
+    public void testDifferentMaxThreads() throws Exception {
+        TestReceiver receiver1 = new TestReceiver("channel1", port);
+        TestReceiver receiver2 = new TestReceiver("channel2", port);
+        receiver2.maxThreads = 50;
+
+        registry.register(receiver1, Collections.singleton(""), createHandler("", "channel1"));
+
+        try {
+            registry.register(receiver2, Collections.singleton("/api"), createHandler("/api", "channel2"));
+            fail("Expected the maximum threads to be rejected");
+        } catch (Exception e) {
+            assertTrue(e.getMessage().contains("different connection settings"));
+        }
+
+        registry.unregister(receiver1);
+    }
+
+    @Test
+    public void testDifferentTimeout() throws Exception {
+        TestReceiver receiver1 = new TestReceiver("channel1", port);
+        TestReceiver receiver2 = new TestReceiver("channel2", port);
+        receiver2.timeout = 5000;
+
+        registry.register(receiver1, Collections.singleton(""), createHandler("", "channel1"));
+
+        try {
+            registry.register(receiver2, Collections.singleton("/api"), createHandler("/api", "channel2"));
+            fail("Expected the timeout to be rejected");
+        } catch (Exception e) {
+            assertTrue(e.getMessage().contains("different connection settings"));
+        }
+
+        // The root context of the first listener still gets the request
+        assertEquals("channel1", get("/api"));
+        registry.unregister(receiver1);
+    }
+
+    @Test
+    public void testDifferentTlsSettings() throws Exception {
+        TestReceiver receiver1 = new TestReceiver("channel1", port, new TestTlsProperties("keystore.jks", true));
+        TestReceiver receiver2 = new TestReceiver("channel2", port, new TestTlsProperties("keystore.jks", false));
+        TestReceiver receiver3 = new TestReceiver("channel3", port, new TestTlsProperties("keystore.jks", true), new BasicHttpAuthProperties());
+
+        registry.register(receiver1, Collections.singleton(""), createHandler("", "channel1"));
+
+        // A listener without client authentication can't share the server of one with it
+        try {
+            registry.register(receiver2, Collections.singleton("/api"), createHandler("/api", "channel2"));
+            fail("Expected the TLS settings to be rejected");
+        } catch (Exception e) {
+            assertTrue(e.getMessage().contains("different connection settings"));
+        }
+
+        // Authentication is done per listener, so it doesn't have to match
+        registry.register(receiver3, Collections.singleton("/api"), createHandler("/api", "channel3"));
+        assertEquals("channel3", get("/api"));
+
+        registry.unregister(receiver1);
+        registry.unregister(receiver3);
+    }
+
+    @Test
+    public void testRestartListener() throws Exception {
+        TestReceiver receiver = new TestReceiver("channel1", port);
+
+        Server server1 = registry.register(receiver, Collections.singleton("/api"), createHandler("/api", "channel1"));
+        registry.unregister(receiver);
+        Server server2 = registry.register(receiver, Collections.singleton("/api"), createHandler("/api", "channel1"));
+
+        assertFalse(server1 == server2);
+        assertEquals("channel1", get("/api"));
+        registry.unregister(receiver);
+    }
+
+    private Handler createHandler(String contextPath, final String response) {
+        ContextHandler contextHandler = new ContextHandler();
+        contextHandler.setContextPath(contextPath);
+        contextHandler.setHandler(new AbstractHandler() {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse servletResponse) throws IOException {
+                servletResponse.getWriter().write(response);
+                baseRequest.setHandled(true);
+            }
+        });
+
+        HandlerCollection handlers = new HandlerCollection();
+        handlers.addHandler(contextHandler);
+        return handlers;
+    }
+
+    private String get(String path) throws Exception {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + port + path).openConnection();
+        InputStream inputStream = connection.getInputStream();
+
+        try {
+            return IOUtils.toString(inputStream, "UTF-8");
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    private int getStatus(String path) throws Exception {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + port + path).openConnection();
+
+        try {
+            return connection.getResponseCode();
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static class TestReceiver extends HttpReceiver {
+
+        private int port;
+        private int timeout;
+        private int maxThreads = 20;
+        private Server server;
+        private HttpConfiguration configuration = new DefaultHttpConfiguration();
+
+        public TestReceiver(String channelName, int port, ConnectorPluginProperties... pluginProperties) {
+            this.port = port;
+
+            Channel channel = mock(Channel.class);
+            doReturn(channelName).when(channel).getChannelId();
+            doReturn(channelName).when(channel).getName();
+            setChannel(channel);
+
+            HttpReceiverProperties connectorProperties = new HttpReceiverProperties();
+            connectorProperties.setPluginProperties(new HashSet<ConnectorPluginProperties>());
+            Collections.addAll(connectorProperties.getPluginProperties(), pluginProperties);
+            setConnectorProperties(connectorProperties);
+        }
+
+        @Override
+        public String getHost() {
+            return "127.0.0.1";
+        }
+
+        @Override
+        public int getPort() {
+            return port;
+        }
+
+        @Override
+        public int getTimeout() {
+            return timeout;
+        }
+
+        @Override
+        int getMaxThreads() {
+            return maxThreads;
+        }
+
+        @Override
+        public Server getServer() {
+            return server;
+        }
+
+        @Override
+        HttpConfiguration getConfiguration() {
+            return configuration;
+        }
+
+        @Override
+        void configureServer(Server server) throws Exception {
+            this.server = server;
+            configuration.configureReceiver(this);
+        }
+    }
+
+    private static class TestTlsProperties extends ConnectorPluginProperties {
+
+        private String keyStore;
+        private boolean clientAuth;
+
+        public TestTlsProperties(String keyStore, boolean clientAuth) {
+            this.keyStore = keyStore;
+            this.clientAuth = clientAuth;
+        }
+
+        @Override
+        public String getName() {
+            return "Test TLS";
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof TestTlsProperties && keyStore.equals(((TestTlsProperties) obj).keyStore) && clientAuth == ((TestTlsProperties) obj).clientAuth;
+        }
+
+        @Override
+        public ConnectorPluginProperties clone() {
+            return new TestTlsProperties(keyStore, clientAuth);
+        }
+
+        @Override
+        public Map<String, Object> getPurgedProperties() {
+            return new HashMap<String, Object>();
+        }
+    }
+}
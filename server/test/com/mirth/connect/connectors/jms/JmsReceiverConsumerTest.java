@@ -0,0 +1,334 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.connectors.jms;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.Session;
+
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.activemq.broker.BrokerRegistry;
+import org.apache.activemq.broker.region.Destination;
+import org.apache.activemq.command.ActiveMQQueue;
+import org.apache.activemq.command.ActiveMQTopic;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.mirth.connect.donkey.model.message.RawMessage;
+import com.mirth.connect.donkey.server.channel.ChannelException;
+import com.mirth.connect.donkey.server.channel.ChannelProcessLock;
+import com.mirth.connect.donkey.server.channel.DispatchResult;
+import com.mirth.connect.donkey.server.channel.FilterTransformerExecutor;
+import com.mirth.connect.donkey.server.event.EventDispatcher;
+import com.mirth.connect.server.TestUtils.DummyChannel;
+import com.mirth.connect.server.channel.MirthMetaDataReplacer;
+import com.mirth.connect.server.controllers.ConfigurationController;
+import com.mirth.connect.server.controllers.ContextFactoryController;
+import com.mirth.connect.server.controllers.ControllerFactory;
+import com.mirth.connect.server.controllers.EventController;
+import com.mirth.connect.server.util.javascript.MirthContextFactory;
+
+/**
+ * Runs the JMS Listener against an embedded, non-persistent ActiveMQ broker.
+ */
+public class JmsReceiverConsumerTest {
+
+    private static final String CONNECTION_FACTORY_CLASS = ActiveMQConnectionFactory.class.getName();
+    private static final String BROKER_NAME = "jmsReceiverConsumerTest";
+    private static final String BROKER_URL = "vm://" + BROKER_NAME + "?broker.persistent=false&broker.useJmx=false&jms.prefetchPolicy.queuePrefetch=1";
+    private static final int PROCESSING_TIME = 5;
+
+    private static ConnectionFactory connectionFactory;
+    private static Connection connection;
+    private static Session session;
+    private static int queueNumber = 0;
+
+    @BeforeClass
+    public static void beforeClass() throws Exception {
+        connectionFactory = new ActiveMQConnectionFactory(BROKER_URL);
+
+        // The connection factory is loaded from the test classpath instead of library resources
+        MirthContextFactory contextFactory = mock(MirthContextFactory.class);
+        contextFactory.initApplicationClassLoader(JmsReceiverConsumerTest.class.getClassLoader());
+        ContextFactoryController contextFactoryController = mock(ContextFactoryController.class);
+        when(contextFactoryController.getContextFactory(any())).thenReturn(contextFactory);
+
+        final ControllerFactory controllerFactory = mock(ControllerFactory.class);
+        when(controllerFactory.createContextFactoryController()).thenReturn(contextFactoryController);
+        when(controllerFactory.createConfigurationController()).thenReturn(mock(ConfigurationController.class));
+        when(controllerFactory.createEventController()).thenReturn(mock(EventController.class));
+
+        Guice.createInjector(new AbstractModule() {
+            @Override
+            protected void configure() {
+                requestStaticInjection(ControllerFactory.class);
+                bind(ControllerFactory.class).toInstance(controllerFactory);
+            }
+        }).getInstance(ControllerFactory.class);
+
+        // Keeps the embedded broker running between tests
+        connection = connectionFactory.createConnection();
+        connection.start();
+        session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+    }
+
+    @AfterClass
+    public static void afterClass() throws Exception {
+        if (connection != null) {
+            connection.close();
+        }
+    }
+
+    @Test
+    public void testConcurrentConsumers() throws Exception {
+        int count = 100;
+
+        for (int consumers : new int[] { 1, 2, 4 }) {
+            Queue queue = createQueue();
+            TestChannel channel = new TestChannel();
+            JmsReceiver receiver = createReceiver(channel, queue, consumers, "1", "0");
+            putMessages(queue, count);
+
+            receiver.start();
+
+            // Each processing thread reads the queue with its own consumer
+            assertEquals(consumers, getBrokerQueue(queue).getConsumers().size());
+
+            channel.waitForMessages(count);
+            receiver.stop();
+            receiver.onUndeploy();
+
+            assertEquals(count, channel.getMessageNumbers().size());
+            assertEquals(count, channel.getRawMessages().size());
+
+            // Every message was acknowledged once
+            waitForAcknowledged(queue, count);
+            assertNull(receiveRemaining(queue));
+        }
+    }
+
+    @Test
+    public void testTopicSingleConsumer() throws Exception {
+        String topicName = "consumerTest" + (queueNumber++);
+        JmsReceiver receiver = createReceiver(new TestChannel(), topicName, true, 4, "1", "0");
+        receiver.start();
+
+        try {
+            // Every consumer of a topic would get its own copy of each message
+            Destination topic = BrokerRegistry.getInstance().lookup(BROKER_NAME).getDestination(new ActiveMQTopic(topicName));
+            assertEquals(1, topic.getConsumers().size());
+        } finally {
+            receiver.stop();
+            receiver.onUndeploy();
+        }
+    }
+
+    @Test
+    public void testBatchAcknowledgedOnStop() throws Exception {
+        Queue queue = createQueue();
+        TestChannel channel = new TestChannel();
+        JmsReceiver receiver = createReceiver(channel, queue, 1, "10", "60000");
+        putMessages(queue, 25);
+
+        receiver.start();
+        channel.waitForMessages(25);
+
+        // Only the full batches have been acknowledged
+        waitForAcknowledged(queue, 20);
+
+        receiver.stop();
+        receiver.onUndeploy();
+
+        // The partial batch was acknowledged before the connection was closed
+        waitForAcknowledged(queue, 25);
+        assertNull(receiveRemaining(queue));
+    }
+
+    @Test
+    public void testBatchAcknowledgedAfterInterval() throws Exception {
+        Queue queue = createQueue();
+        TestChannel channel = new TestChannel();
+        JmsReceiver receiver = createReceiver(channel, queue, 1, "1000", "200");
+        putMessages(queue, 25);
+
+        receiver.start();
+        channel.waitForMessages(25);
+
+        // The batch isn't full, so it is acknowledged once the interval has passed
+        waitForAcknowledged(queue, 25);
+
+        receiver.halt();
+        receiver.onUndeploy();
+
+        assertNull(receiveRemaining(queue));
+    }
+
+    @Test
+    public void testUnacknowledgedBatchRedelivered() throws Exception {
+        Queue queue = createQueue();
+        TestChannel channel = new TestChannel();
+        JmsReceiver receiver = createReceiver(channel, queue, 1, "1000", "60000");
+        putMessages(queue, 25);
+
+        receiver.start();
+        channel.waitForMessages(25);
+        receiver.halt();
+        receiver.onUndeploy();
+
+        MessageConsumer consumer = session.createConsumer(queue);
+        try {
+            for (int i = 0; i < 25; i++) {
+                assertTrue(consumer.receive(5000).getJMSRedelivered());
+            }
+        } finally {
+            consumer.close();
+        }
+    }
+
+    private Queue createQueue() throws Exception {
+        return session.createQueue("consumerTest" + (queueNumber++));
+    }
+
+    private void putMessages(Queue queue, int count) throws Exception {
+        MessageProducer producer = session.createProducer(queue);
+
+        for (int i = 0; i < count; i++) {
+            producer.send(session.createTextMessage(String.valueOf(i)));
+        }
+
+        producer.close();
+    }
+
+    private Destination getBrokerQueue(Queue queue) throws Exception {
+        return BrokerRegistry.getInstance().lookup(BROKER_NAME).getDestination(new ActiveMQQueue(queue.getQueueName()));
+    }
+
+    /*
+     * Acknowledgements are sent to the broker asynchronously, so this waits for the broker to have
+     * removed the given number of messages from the queue, and fails if it removes more.
+     */
+    private void waitForAcknowledged(Queue queue, long count) throws Exception {
+        Destination destination = getBrokerQueue(queue);
+        long deadline = System.currentTimeMillis() + 5000;
+
+        while (destination.getDestinationStatistics().getDequeues().getCount() < count) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Only " + destination.getDestinationStatistics().getDequeues().getCount() + " of " + count + " messages were acknowledged");
+            }
+            Thread.sleep(10);
+        }
+
+        assertEquals(count, destination.getDestinationStatistics().getDequeues().getCount());
+    }
+
+    private javax.jms.Message receiveRemaining(Queue queue) throws Exception {
+        MessageConsumer consumer = session.createConsumer(queue);
+        try {
+            return consumer.receive(500);
+        } finally {
+            consumer.close();
+        }
+    }
+
+    private JmsReceiver createReceiver(TestChannel channel, Queue queue, int consumers, String acknowledgeBatchSize, String acknowledgeIntervalMillis) throws Exception {
+        return createReceiver(channel, queue.getQueueName(), false, consumers, acknowledgeBatchSize, acknowledgeIntervalMillis);
+    }
+
+    private JmsReceiver createReceiver(TestChannel channel, String destinationName, boolean topic, int consumers, String acknowledgeBatchSize, String acknowledgeIntervalMillis) throws Exception {
+        JmsReceiverProperties connectorProperties = new JmsReceiverProperties();
+        connectorProperties.setUseJndi(false);
+        connectorProperties.setConnectionFactoryClass(CONNECTION_FACTORY_CLASS);
+        connectorProperties.getConnectionProperties().put("brokerURL", BROKER_URL);
+        connectorProperties.setDestinationName(destinationName);
+        connectorProperties.setTopic(topic);
+        connectorProperties.getSourceConnectorProperties().setProcessingThreads(consumers);
+        connectorProperties.setAcknowledgeBatchSize(acknowledgeBatchSize);
+        connectorProperties.setAcknowledgeIntervalMillis(acknowledgeIntervalMillis);
+
+        JmsReceiver receiver = new JmsReceiver();
+        receiver.setConnectorProperties(connectorProperties);
+        receiver.setChannelId(channel.getChannelId());
+        receiver.setMetaDataId(0);
+        receiver.setChannel(channel);
+        receiver.setMetaDataReplacer(new MirthMetaDataReplacer());
+        receiver.setRespondAfterProcessing(true);
+        receiver.setFilterTransformerExecutor(new FilterTransformerExecutor(receiver.getInboundDataType(), receiver.getOutboundDataType()));
+        channel.setSourceConnector(receiver);
+
+        receiver.onDeploy();
+        return receiver;
+    }
+
+    /*
+     * Takes a few milliseconds to process each message, like a channel that stores its messages.
+     */
+    private static class TestChannel extends DummyChannel {
+
+        private Set<String> messageNumbers = new HashSet<String>();
+
+        public TestChannel() {
+            super("testchannel", "testserver");
+            setName("Test Channel");
+            setProcessLock(mock(ChannelProcessLock.class));
+        }
+
+        @Override
+        protected EventDispatcher getEventDispatcher() {
+            return mock(EventDispatcher.class);
+        }
+
+        @Override
+        protected DispatchResult dispatchRawMessage(RawMessage rawMessage, boolean batch) throws ChannelException {
+            try {
+                Thread.sleep(PROCESSING_TIME);
+            } catch (InterruptedException e) {
+                throw new ChannelException(false, e);
+            }
+
+            synchronized (this) {
+                messageNumbers.add(rawMessage.getRawData());
+                DispatchResult dispatchResult = super.dispatchRawMessage(rawMessage, batch);
+                notifyAll();
+                return dispatchResult;
+            }
+        }
+
+        public synchronized Set<String> getMessageNumbers() {
+            return new HashSet<String>(messageNumbers);
+        }
+
+        public synchronized void waitForMessages(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 30000;
+
+            while (messageNumbers.size() < count && System.currentTimeMillis() < deadline) {
+                wait(deadline - System.currentTimeMillis());
+            }
+
+            assertEquals(count, messageNumbers.size());
+        }
+    }
+}
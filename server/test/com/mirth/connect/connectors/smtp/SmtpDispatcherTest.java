@@ -2,6 +2,7 @@ package com.mirth.connect.connectors.smtp;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.doReturn;
 
 import java.util.ArrayList;
@@ -9,6 +10,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.commons.mail.Email;
+import org.apache.commons.mail.MultiPartEmail;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
@@ -248,6 +251,111 @@ public class SmtpDispatcherTest {
         assertTrue(result.isEmpty());
     }
 
+    @Test
+    public void testSendEmailReusesConnection() throws Exception {
+        TestSmtpServer server = startServer();
+        SmtpTransportPool pool = new SmtpTransportPool(60000, 0, "test");
+        dispatcher.setTransportPool(pool);
+
+        try {
+            for (int i = 0; i < 3; i++) {
+                dispatcher.sendEmail(createEmail(server), props);
+            }
+
+            assertEquals(1, server.getConnections());
+            assertEquals(3, server.getMessages());
+        } finally {
+            pool.close();
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testSendEmailReplacesClosedConnection() throws Exception {
+        TestSmtpServer server = startServer();
+        SmtpTransportPool pool = new SmtpTransportPool(60000, 0, "test");
+        dispatcher.setTransportPool(pool);
+
+        try {
+            dispatcher.sendEmail(createEmail(server), props);
+            server.closeConnections();
+            dispatcher.sendEmail(createEmail(server), props);
+
+            assertEquals(2, server.getConnections());
+            assertEquals(2, server.getMessages());
+        } finally {
+            pool.close();
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testSendEmailNotRepeatedAfterData() throws Exception {
+        TestSmtpServer server = startServer();
+        SmtpTransportPool pool = new SmtpTransportPool(60000, 0, "test");
+        dispatcher.setTransportPool(pool);
+
+        try {
+            dispatcher.sendEmail(createEmail(server), props);
+            server.setDropAfterData(true);
+
+            try {
+                dispatcher.sendEmail(createEmail(server), props);
+                fail("Expected the email to fail");
+            } catch (Exception e) {
+                // The server may have accepted the message, so it must not be sent on a new connection
+            }
+
+            assertEquals(1, server.getConnections());
+            assertEquals(2, server.getMessages());
+        } finally {
+            pool.close();
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testSendEmailKeyIncludesMailProperties() throws Exception {
+        TestSmtpServer server = startServer();
+        SmtpTransportPool pool = new SmtpTransportPool(60000, 0, "test");
+        dispatcher.setTransportPool(pool);
+
+        try {
+            dispatcher.sendEmail(createEmail(server), props);
+
+            // The SMTP configuration class may set its own SSL properties on the session
+            Email email = createEmail(server);
+            email.getMailSession().getProperties().setProperty("mail.smtp.ssl.protocols", "TLSv1.3");
+            dispatcher.sendEmail(email, props);
+
+            assertEquals(2, server.getConnections());
+            assertEquals(2, server.getMessages());
+        } finally {
+            pool.close();
+            server.stop();
+        }
+    }
+
+    private TestSmtpServer startServer() throws Exception {
+        TestSmtpServer server = new TestSmtpServer();
+        server.start();
+        props.setSmtpHost("127.0.0.1");
+        props.setSmtpPort(String.valueOf(server.getPort()));
+        return server;
+    }
+
+    private Email createEmail(TestSmtpServer server) throws Exception {
+        Email email = new MultiPartEmail();
+        email.setHostName("127.0.0.1");
+        email.setSmtpPort(server.getPort());
+        email.setSocketTimeout(5000);
+        email.setFrom("sender@example.com");
+        email.addTo("recipient@example.com");
+        email.setSubject("Test");
+        email.setMsg("Test message");
+        return email;
+    }
+
     class CustomMessageMap extends MessageMaps {
         protected Map<Object, Object> map;
 
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.connectors.smtp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Properties;
+
+import javax.mail.Message;
+import javax.mail.Session;
+import javax.mail.Transport;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SmtpTransportPoolTest {
+
+    private static final String KEY = "key";
+
+    private TestSmtpServer server;
+    private Session session;
+    private SmtpTransportPool pool;
+
+    @Before
+    public void setup() throws Exception {
+        server = new TestSmtpServer();
+        server.start();
+
+        Properties properties = new Properties();
+        properties.setProperty("mail.transport.protocol", "smtp");
+        properties.setProperty("mail.smtp.host", "127.0.0.1");
+        properties.setProperty("mail.smtp.port", String.valueOf(server.getPort()));
+        properties.setProperty("mail.smtp.timeout", "5000");
+        session = Session.getInstance(properties);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (pool != null) {
+            pool.close();
+        }
+        server.stop();
+    }
+
+    @Test
+    public void testReuseConnection() throws Exception {
+        pool = new SmtpTransportPool(60000, 0, "test");
+        Transport transport = connect();
+
+        send(transport);
+        pool.release(KEY, transport);
+
+        for (int i = 0; i < 5; i++) {
+            Transport pooled = pool.borrow(KEY);
+            assertSame(transport, pooled);
+            send(pooled);
+            pool.release(KEY, pooled);
+        }
+
+        assertNull(pool.borrow("other"));
+        assertEquals(1, server.getConnections());
+        assertEquals(6, server.getMessages());
+    }
+
+    @Test
+    public void testMaxMessages() throws Exception {
+        pool = new SmtpTransportPool(60000, 2, "test");
+        Transport transport = connect();
+
+        send(transport);
+        pool.release(KEY, transport);
+
+        assertSame(transport, pool.borrow(KEY));
+        send(transport);
+        pool.release(KEY, transport);
+
+        // Closed after the second message
+        assertNull(pool.borrow(KEY));
+        assertFalse(transport.isConnected());
+    }
+
+    @Test
+    public void testIdleTimeout() throws Exception {
+        pool = new SmtpTransportPool(100, 0, "test");
+        Transport transport = connect();
+
+        send(transport);
+        pool.release(KEY, transport);
+        Thread.sleep(200);
+
+        assertNull(pool.borrow(KEY));
+        assertFalse(transport.isConnected());
+    }
+
+    @Test
+    public void testServerClose() throws Exception {
+        pool = new SmtpTransportPool(60000, 0, "test");
+        Transport transport = connect();
+
+        send(transport);
+        pool.release(KEY, transport);
+
+        server.closeConnections();
+
+        assertNull(pool.borrow(KEY));
+    }
+
+    private Transport connect() throws Exception {
+        Transport transport = session.getTransport();
+        transport.connect();
+        return transport;
+    }
+
+    private void send(Transport transport) throws Exception {
+        MimeMessage message = new MimeMessage(session);
+        message.setFrom(new InternetAddress("sender@example.com"));
+        message.setRecipient(Message.RecipientType.TO, new InternetAddress("recipient@example.com"));
+        message.setSubject("Test");
+        message.setText("Test message");
+        message.saveChanges();
+
+        transport.sendMessage(message, message.getAllRecipients());
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.connectors.smtp;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Accepts every message without storing it, enough of SMTP for javax.mail to send to.
+ */
+class TestSmtpServer implements Runnable {
+
+    private ServerSocket serverSocket;
+    private List<Socket> sockets = new CopyOnWriteArrayList<Socket>();
+    private AtomicInteger connections = new AtomicInteger();
+    private AtomicInteger messages = new AtomicInteger();
+    private volatile boolean dropAfterData = false;
+
+    public void start() throws IOException {
+        serverSocket = new ServerSocket(0);
+        Thread thread = new Thread(this, "Test SMTP Server");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public int getConnections() {
+        return connections.get();
+    }
+
+    public int getMessages() {
+        return messages.get();
+    }
+
+    /**
+     * When set, the server closes the connection after it has received a message, without
+     * replying, as if the connection failed after the message was sent.
+     */
+    public void setDropAfterData(boolean dropAfterData) {
+        this.dropAfterData = dropAfterData;
+    }
+
+    public void closeConnections() throws IOException {
+        for (Socket socket : sockets) {
+            socket.close();
+        }
+    }
+
+    public void stop() throws IOException {
+        serverSocket.close();
+        closeConnections();
+    }
+
+    @Override
+    public void run() {
+        while (!serverSocket.isClosed()) {
+            try {
+                final Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                sockets.add(socket);
+                connections.incrementAndGet();
+
+                Thread thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        handle(socket);
+                    }
+                }, "Test SMTP Connection");
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                // Stopped
+            }
+        }
+    }
+
+    private void handle(Socket socket) {
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            OutputStream out = socket.getOutputStream();
+            reply(out, "220 localhost ESMTP");
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String command = line.length() >= 4 ? line.substring(0, 4).toUpperCase() : line.toUpperCase();
+
+                if (command.equals("EHLO")) {
+                    reply(out, "250-localhost\r\n250 8BITMIME");
+                } else if (command.equals("DATA")) {
+                    reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                    while ((line = reader.readLine()) != null && !line.equals(".")) {}
+                    messages.incrementAndGet();
+
+                    if (dropAfterData) {
+                        break;
+                    }
+                    reply(out, "250 OK");
+                } else if (command.equals("QUIT")) {
+                    reply(out, "221 Bye");
+                    break;
+                } else {
+                    reply(out, "250 OK");
+                }
+            }
+        } catch (IOException e) {
+            // Closed by the client or the test
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException e) {}
+            sockets.remove(socket);
+        }
+    }
+
+    private void reply(OutputStream out, String reply) throws IOException {
+        out.write((reply + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.connectors.vm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.mirth.connect.donkey.model.message.RawMessage;
+import com.mirth.connect.donkey.server.channel.ChannelException;
+import com.mirth.connect.donkey.server.channel.DispatchResult;
+import com.mirth.connect.server.controllers.EngineController;
+
+public class VmDispatchBatcherTest {
+
+    private static final String CHANNEL_ID = "channelId";
+
+    private CountDownLatch firstDispatchStarted;
+    private CountDownLatch releaseFirstDispatch;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testConcurrentMessagesDispatchedTogether() throws Exception {
+        final CountDownLatch firstDispatchStarted = new CountDownLatch(1);
+        final CountDownLatch releaseFirstDispatch = new CountDownLatch(1);
+        final List<List<RawMessage>> dispatchedGroups = Collections.synchronizedList(new ArrayList<List<RawMessage>>());
+
+        EngineController engineController = mock(EngineController.class);
+        when(engineController.dispatchRawMessages(eq(CHANNEL_ID), anyList(), eq(false), eq(true))).thenAnswer(new Answer<List<DispatchResult>>() {
+            @Override
+            public List<DispatchResult> answer(InvocationOnMock invocation) throws Throwable {
+                List<RawMessage> rawMessages = new ArrayList<RawMessage>((List<RawMessage>) invocation.getArgument(1));
+                dispatchedGroups.add(rawMessages);
+
+                if (dispatchedGroups.size() == 1) {
+                    firstDispatchStarted.countDown();
+                    releaseFirstDispatch.await();
+                }
+
+                List<DispatchResult> dispatchResults = new ArrayList<DispatchResult>();
+                for (RawMessage rawMessage : rawMessages) {
+                    DispatchResult dispatchResult = mock(DispatchResult.class);
+                    when(dispatchResult.getMessageId()).thenReturn(Long.valueOf(rawMessage.getRawData()));
+                    dispatchResults.add(dispatchResult);
+                }
+                return dispatchResults;
+            }
+        });
+
+        final VmDispatchBatcher batcher = new VmDispatchBatcher(CHANNEL_ID);
+        ExecutorService executor = Executors.newFixedThreadPool(6);
+
+        try {
+            List<Future<DispatchResult>> futures = new ArrayList<Future<DispatchResult>>();
+            futures.add(submit(executor, batcher, engineController, 1));
+            assertTrue(firstDispatchStarted.await(10, TimeUnit.SECONDS));
+
+            // These arrive while the first message is being dispatched, so they wait and go together
+            for (int i = 2; i <= 6; i++) {
+                futures.add(submit(executor, batcher, engineController, i));
+            }
+            waitForPendingMessages(batcher, 5);
+            releaseFirstDispatch.countDown();
+
+            for (int i = 0; i < futures.size(); i++) {
+                assertEquals(i + 1, futures.get(i).get(10, TimeUnit.SECONDS).getMessageId());
+            }
+
+            assertEquals(2, dispatchedGroups.size());
+            assertEquals(1, dispatchedGroups.get(0).size());
+            assertEquals(5, dispatchedGroups.get(1).size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testFailureBeforeStoreOnlyAffectsItsMessage() throws Exception {
+        DispatchResult stored = mock(DispatchResult.class);
+        ChannelException channelException = new ChannelException(true);
+
+        EngineController engineController = mock(EngineController.class);
+        when(engineController.dispatchRawMessages(eq(CHANNEL_ID), anyList(), eq(false), eq(true))).thenReturn(Collections.singletonList(stored), Collections.singletonList(new DispatchResult(channelException)));
+
+        VmDispatchBatcher batcher = new VmDispatchBatcher(CHANNEL_ID);
+        assertSame(stored, batcher.dispatch(engineController, new RawMessage("1")));
+
+        try {
+            batcher.dispatch(engineController, new RawMessage("2"));
+            fail("Expected the dispatch to fail");
+        } catch (ChannelException e) {
+            assertSame(channelException, e);
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testDispatchException() throws Exception {
+        EngineController engineController = mock(EngineController.class);
+        when(engineController.dispatchRawMessages(eq(CHANNEL_ID), anyList(), eq(false), eq(true))).thenThrow(new ChannelException(true));
+
+        try {
+            new VmDispatchBatcher(CHANNEL_ID).dispatch(engineController, new RawMessage("1"));
+            fail("Expected the dispatch to fail");
+        } catch (ChannelException e) {
+            assertTrue(e.isStopped());
+        }
+    }
+
+    @Test
+    public void testGroupFailureDispatchedAlone() throws Exception {
+        EngineController engineController = mockEngineController(new ChannelException(false));
+        List<Future<DispatchResult>> futures = dispatchBehindBlockedGroup(engineController);
+
+        // Every message in the failed group was stored on its own instead
+        for (int i = 0; i < futures.size(); i++) {
+            assertEquals(i + 1, futures.get(i).get(10, TimeUnit.SECONDS).getMessageId());
+        }
+        verify(engineController, times(5)).dispatchRawMessage(eq(CHANNEL_ID), any(RawMessage.class), eq(false), eq(true));
+    }
+
+    @Test
+    public void testInterruptedGroupOnlyFailsLeadingMessage() throws Exception {
+        EngineController engineController = mockEngineController(new ChannelException(true, new InterruptedException()));
+        List<Future<DispatchResult>> futures = dispatchBehindBlockedGroup(engineController);
+        int failed = 0;
+
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                assertEquals(i + 1, futures.get(i).get(10, TimeUnit.SECONDS).getMessageId());
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause().getCause() instanceof InterruptedException);
+                failed++;
+            }
+        }
+
+        // The thread that was dispatching the group gives up on its own message only
+        assertEquals(1, failed);
+        verify(engineController, times(4)).dispatchRawMessage(eq(CHANNEL_ID), any(RawMessage.class), eq(false), eq(true));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testSingleMessageFailureNotDispatchedAgain() throws Exception {
+        EngineController engineController = mock(EngineController.class);
+        when(engineController.dispatchRawMessages(eq(CHANNEL_ID), anyList(), eq(false), eq(true))).thenThrow(new ChannelException(false));
+
+        try {
+            new VmDispatchBatcher(CHANNEL_ID).dispatch(engineController, new RawMessage("1"));
+            fail("Expected the dispatch to fail");
+        } catch (ChannelException e) {}
+
+        verify(engineController, never()).dispatchRawMessage(eq(CHANNEL_ID), any(RawMessage.class), eq(false), eq(true));
+    }
+
+    @Test
+    public void testRemoveInstances() throws Exception {
+        VmDispatchBatcher batcher = VmDispatchBatcher.getInstance(CHANNEL_ID);
+        assertSame(batcher, VmDispatchBatcher.getInstance(CHANNEL_ID));
+
+        VmDispatchBatcher.removeInstances(Collections.singleton(CHANNEL_ID));
+        assertNotSame(batcher, VmDispatchBatcher.getInstance(CHANNEL_ID));
+        VmDispatchBatcher.removeInstances(Collections.singleton(CHANNEL_ID));
+    }
+
+    /*
+     * The first group dispatched is held until messages 2 to 6 are waiting behind it. The group of
+     * those five then fails with the given exception, and messages dispatched on their own succeed.
+     */
+    @SuppressWarnings("unchecked")
+    private EngineController mockEngineController(final ChannelException groupException) throws Exception {
+        firstDispatchStarted = new CountDownLatch(1);
+        releaseFirstDispatch = new CountDownLatch(1);
+
+        EngineController engineController = mock(EngineController.class);
+        when(engineController.dispatchRawMessages(eq(CHANNEL_ID), anyList(), eq(false), eq(true))).thenAnswer(new Answer<List<DispatchResult>>() {
+            @Override
+            public List<DispatchResult> answer(InvocationOnMock invocation) throws Throwable {
+                List<RawMessage> rawMessages = (List<RawMessage>) invocation.getArgument(1);
+
+                if (rawMessages.get(0).getRawData().equals("1")) {
+                    firstDispatchStarted.countDown();
+                    releaseFirstDispatch.await();
+                    return Collections.singletonList(createDispatchResult(rawMessages.get(0)));
+                }
+
+                throw groupException;
+            }
+        });
+        when(engineController.dispatchRawMessage(eq(CHANNEL_ID), any(RawMessage.class), eq(false), eq(true))).thenAnswer(new Answer<DispatchResult>() {
+            @Override
+            public DispatchResult answer(InvocationOnMock invocation) throws Throwable {
+                return createDispatchResult((RawMessage) invocation.getArgument(1));
+            }
+        });
+
+        return engineController;
+    }
+
+    private List<Future<DispatchResult>> dispatchBehindBlockedGroup(EngineController engineController) throws Exception {
+        VmDispatchBatcher batcher = new VmDispatchBatcher(CHANNEL_ID);
+        ExecutorService executor = Executors.newFixedThreadPool(6);
+        List<Future<DispatchResult>> futures = new ArrayList<Future<DispatchResult>>();
+
+        futures.add(submit(executor, batcher, engineController, 1));
+        assertTrue(firstDispatchStarted.await(10, TimeUnit.SECONDS));
+
+        for (int i = 2; i <= 6; i++) {
+            futures.add(submit(executor, batcher, engineController, i));
+        }
+        waitForPendingMessages(batcher, 5);
+        releaseFirstDispatch.countDown();
+
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        return futures;
+    }
+
+    private DispatchResult createDispatchResult(RawMessage rawMessage) {
+        DispatchResult dispatchResult = mock(DispatchResult.class);
+        when(dispatchResult.getMessageId()).thenReturn(Long.valueOf(rawMessage.getRawData()));
+        return dispatchResult;
+    }
+
+    private Future<DispatchResult> submit(ExecutorService executor, final VmDispatchBatcher batcher, final EngineController engineController, final int message) {
+        return executor.submit(() -> batcher.dispatch(engineController, new RawMessage(String.valueOf(message))));
+    }
+
+    private void waitForPendingMessages(VmDispatchBatcher batcher, int count) throws InterruptedException {
+        long end = System.currentTimeMillis() + 10000;
+        while (batcher.getPendingCount() < count && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, batcher.getPendingCount());
+    }
+}
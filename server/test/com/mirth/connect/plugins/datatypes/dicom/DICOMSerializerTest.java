@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.plugins.datatypes.dicom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.commons.codec.binary.StringUtils;
+import org.dcm4che2.data.BasicDicomObject;
+import org.dcm4che2.data.DicomObject;
+import org.dcm4che2.data.Tag;
+import org.dcm4che2.data.VR;
+import org.junit.Test;
+
+import com.mirth.connect.donkey.model.message.ContentType;
+import com.mirth.connect.donkey.model.message.MessageContent;
+import com.mirth.connect.donkey.util.Base64Util;
+import com.mirth.connect.model.converters.DICOMConverter;
+
+public class DICOMSerializerTest {
+
+    @Test
+    public void testBinaryToXML() throws Exception {
+        DicomObject dicomObject = new BasicDicomObject();
+        dicomObject.putString(Tag.PatientName, VR.PN, "Doe^John");
+        dicomObject.putString(Tag.PatientID, VR.LO, "12345");
+        byte[] bytes = DICOMConverter.dicomObjectToByteArray(dicomObject);
+        String encoded = StringUtils.newStringUsAscii(Base64Util.encodeBase64(bytes));
+
+        DICOMSerializer serializer = new DICOMSerializer();
+        String xml = serializer.toXML(bytes);
+
+        // Reading the binary directly produces the same XML as reading the Base64 string
+        assertEquals(serializer.toXML(encoded), xml);
+        assertTrue(xml.contains("Doe^John"));
+
+        // The string form of binary content is the same Base64 that was stored before
+        MessageContent content = new MessageContent("channelId", 1L, 0, ContentType.RAW, null, "DICOM", false);
+        content.setBinaryContent(bytes);
+        assertTrue(content.isBinary());
+        assertEquals(encoded, content.getContent());
+
+        // Once the string form exists, the bytes aren't kept as well
+        assertFalse(content.isBinary());
+        assertNull(content.getBinaryContent());
+        assertEquals(encoded, content.getContent());
+
+        content.setBinaryContent(bytes);
+        content.setContent(encoded);
+        assertFalse(content.isBinary());
+    }
+}
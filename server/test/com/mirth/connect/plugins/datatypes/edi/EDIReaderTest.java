@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.plugins.datatypes.edi;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mirth.connect.model.datatype.SerializerProperties;
+
+/**
+ * The expected output files were produced by the string based reader that EDIReader replaced, so
+ * these tests check that reading one segment at a time gives exactly the same XML.
+ */
+public class EDIReaderTest {
+
+    private static final String ISA = "ISA*00*          *00*          *ZZ*SENDER         *ZZ*RECEIVER       *240115*1200*U*00401*000000001*0*P*>~";
+    private static final String BODY = "GS*HC*SENDER*RECEIVER*20240115*1200*1*X*004010X098A1~ST*837*0001~BHT*0019*00*123*20240115*1200*CH~NM1*41*2*ACME CLINIC*****46*12345~HI*BK>4019*BF>2724>>>~SE*5*0001~GE*1*1~IEA*1*000000001~";
+
+    private EDISerializer serializer;
+
+    @Before
+    public void setup() {
+        serializer = new EDISerializer(new SerializerProperties(new EDISerializationProperties(), null, null));
+    }
+
+    @Test
+    public void testDefaultDelimiters() throws Exception {
+        assertOutput("test-edi-reader-output01.xml", ISA + BODY);
+    }
+
+    @Test
+    public void testNewlineAfterSegmentDelimiter() throws Exception {
+        assertOutput("test-edi-reader-output02.xml", ISA + "\n" + BODY.replace("~", "~\n"));
+    }
+
+    @Test
+    public void testDelimitersFromISA() throws Exception {
+        String isa = "ISA|00|          |00|          |ZZ|SENDER         |ZZ|RECEIVER       |240115|1200|U|00401|000000001|0|P|^\r\n";
+        String body = "GS|HC|SENDER|RECEIVER|20240115|1200|1|X|004010X098A1\r\nST|837|0001\r\nHI|BK^4019|BF^2724&x<y>\r\nSE|3|0001\r\nGE|1|1\r\nIEA|1|000000001\r\n";
+        assertOutput("test-edi-reader-output03.xml", isa + body);
+    }
+
+    private void assertOutput(String expectedFile, String message) throws Exception {
+        String expected = FileUtils.readFileToString(new File("tests/" + expectedFile), "UTF-8");
+
+        assertEquals(expected, serializer.toXML(message));
+
+        // Hand the reader one character at a time so every delimiter lands on a buffer boundary
+        StringWriter writer = new StringWriter();
+        serializer.toXML(new SingleCharReader(message), writer);
+        assertEquals(expected, writer.toString());
+    }
+
+    private static class SingleCharReader extends Reader {
+        private Reader reader;
+
+        private SingleCharReader(String source) {
+            reader = new StringReader(source);
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            return reader.read(cbuf, off, Math.min(len, 1));
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+}
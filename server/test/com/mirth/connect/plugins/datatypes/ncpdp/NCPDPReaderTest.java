@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.plugins.datatypes.ncpdp;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mirth.connect.model.datatype.SerializerProperties;
+
+/**
+ * The expected output files were produced by the string based reader that NCPDPReader replaced, so
+ * these tests check that reading one segment at a time gives exactly the same XML.
+ */
+public class NCPDPReaderTest {
+
+    private static final String SS = "\u001E";
+    private static final String GS = "\u001D";
+    private static final String FS = "\u001C";
+
+    private static final String REQUEST_HEADER = "610066D0B1          1011234567890      20240115          ";
+    private static final String RESPONSE_HEADER = "D0B11A011234567890     20240115";
+
+    private static final String PATIENT = SS + FS + "AM01" + FS + "CX99" + FS + "CYJ1234" + FS + "C419800101" + FS + "C51" + FS + "CAJOHN" + FS + "CBSMITH";
+    private static final String INSURANCE = SS + FS + "AM04" + FS + "C2ABC123456" + FS + "C1GRP01" + FS + "C61";
+    private static final String CLAIM_1 = GS + SS + FS + "AM07" + FS + "EM1" + FS + "D21234567" + FS + "E103" + FS + "D700002345678" + FS + "E730000" + FS + "D530" + FS + "D61" + FS + "D80";
+    private static final String PRICING_1 = SS + FS + "AM11" + FS + "D9500{" + FS + "DC100{" + FS + "DU600{" + FS + "DQ600{";
+    private static final String CLAIM_2 = GS + SS + FS + "AM07" + FS + "EM1" + FS + "D27654321" + FS + "E103" + FS + "D700009876543" + FS + "E760000" + FS + "D590";
+    private static final String PRICING_2 = SS + FS + "AM11" + FS + "D9250{" + FS + "DQ250{";
+
+    private NCPDPSerializer serializer;
+
+    @Before
+    public void setup() {
+        serializer = new NCPDPSerializer(new SerializerProperties(new NCPDPSerializationProperties(), new NCPDPDeserializationProperties(), null));
+    }
+
+    @Test
+    public void testRequestWithTwoTransactions() throws Exception {
+        assertOutput("test-ncpdp-reader-output01.xml", REQUEST_HEADER + PATIENT + INSURANCE + CLAIM_1 + PRICING_1 + CLAIM_2 + PRICING_2);
+    }
+
+    @Test
+    public void testRequestWithSurroundingWhitespace() throws Exception {
+        assertOutput("test-ncpdp-reader-output02.xml", "  \r\n" + REQUEST_HEADER + PATIENT + CLAIM_1 + PRICING_1 + "\r\n");
+    }
+
+    @Test
+    public void testResponseStartingWithGroup() throws Exception {
+        // The body starts at the group delimiter because it comes before the first segment delimiter
+        assertOutput("test-ncpdp-reader-output03.xml", RESPONSE_HEADER + GS + SS + FS + "AM21" + FS + "ANA" + FS + "F3XYZ" + GS + SS + FS + "AM21" + FS + "ANR" + FS + "FA1" + FS + "FB70");
+    }
+
+    @Test
+    public void testResponseWithHeaderSegment() throws Exception {
+        assertOutput("test-ncpdp-reader-output04.xml", RESPONSE_HEADER + SS + FS + "AM20" + FS + "F4MESSAGE" + GS + SS + FS + "AM21" + FS + "ANP" + SS + FS + "AM21" + FS + "ANP" + FS + "F3ABC" + FS + "FA2" + FS + "FB70" + FS + "FB75" + GS + SS + FS + "AM22" + FS + "EM1" + FS + "D21234567");
+    }
+
+    private void assertOutput(String expectedFile, String message) throws Exception {
+        String expected = FileUtils.readFileToString(new File("tests/" + expectedFile), "UTF-8");
+
+        assertEquals(expected, serializer.toXML(message));
+
+        // Hand the reader one character at a time so every delimiter lands on a buffer boundary
+        StringWriter writer = new StringWriter();
+        serializer.toXML(new SingleCharReader(message), writer);
+        assertEquals(expected, writer.toString());
+    }
+
+    private static class SingleCharReader extends Reader {
+        private Reader reader;
+
+        private SingleCharReader(String source) {
+            reader = new StringReader(source);
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            return reader.read(cbuf, off, Math.min(len, 1));
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+}
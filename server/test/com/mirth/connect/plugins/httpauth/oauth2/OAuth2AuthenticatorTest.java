@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.plugins.httpauth.oauth2;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.doReturn;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.mirth.connect.connectors.core.http.HttpConfiguration;
+import com.mirth.connect.connectors.http.DefaultHttpConfiguration;
+import com.mirth.connect.donkey.model.channel.ConnectorPluginProperties;
+import com.mirth.connect.donkey.server.channel.Connector;
+import com.mirth.connect.plugins.core.httpauth.AuthenticationResultBase;
+import com.mirth.connect.plugins.core.httpauth.RequestInfo;
+import com.mirth.connect.plugins.core.httpauth.userutil.AuthStatus;
+
+public class OAuth2AuthenticatorTest {
+
+    private Server server;
+    private VerificationHandler handler;
+    private Connector connector;
+    private OAuth2HttpAuthProperties properties;
+    private OAuth2AuthenticatorProvider provider;
+
+    @Before
+    public void setup() throws Exception {
+        handler = new VerificationHandler();
+        server = new Server();
+        ServerConnector serverConnector = new ServerConnector(server);
+        serverConnector.setHost("127.0.0.1");
+        serverConnector.setPort(0);
+        server.addConnector(serverConnector);
+        server.setHandler(handler);
+        server.start();
+
+        connector = Mockito.mock(Connector.class);
+        doReturn("channelId").when(connector).getChannelId();
+        doReturn("channelName").when(connector).getChannelName();
+
+        properties = new OAuth2HttpAuthProperties();
+        properties.setVerificationURL("http://127.0.0.1:" + serverConnector.getLocalPort() + "/verify");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (provider != null) {
+            provider.shutdown();
+        }
+        server.stop();
+    }
+
+    @Test
+    public void testCachedSuccess() throws Exception {
+        TokenVerificationCache cache = new TokenVerificationCache(60000, 60000, 10);
+        provider = createProvider(cache);
+
+        assertEquals(AuthStatus.SUCCESS, authenticate("Bearer good").getStatus());
+        assertEquals(AuthStatus.SUCCESS, authenticate("Bearer good").getStatus());
+
+        assertEquals(1, handler.requests.size());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testNegativeCaching() throws Exception {
+        TokenVerificationCache cache = new TokenVerificationCache(60000, 60000, 10);
+        provider = createProvider(cache);
+
+        assertEquals(AuthStatus.FAILURE, authenticate("Bearer bad").getStatus());
+        assertEquals(AuthStatus.FAILURE, authenticate("Bearer bad").getStatus());
+        assertEquals(1, handler.requests.size());
+
+        // Errors from the verification server aren't cached
+        assertEquals(AuthStatus.FAILURE, authenticate("Bearer error").getStatus());
+        assertEquals(AuthStatus.FAILURE, authenticate("Bearer error").getStatus());
+        assertEquals(3, handler.requests.size());
+    }
+
+    @Test
+    public void testTokensCachedSeparately() throws Exception {
+        TokenVerificationCache cache = new TokenVerificationCache(60000, 60000, 10);
+        provider = createProvider(cache);
+
+        assertEquals(AuthStatus.SUCCESS, authenticate("Bearer good").getStatus());
+        assertEquals(AuthStatus.FAILURE, authenticate("Bearer bad").getStatus());
+        assertEquals(AuthStatus.SUCCESS, authenticate("Bearer good").getStatus());
+        assertEquals(AuthStatus.FAILURE, authenticate("Bearer bad").getStatus());
+
+        assertEquals(2, handler.requests.size());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testExpiry() throws Exception {
+        TestCache cache = new TestCache(1000, 100, 10);
+        provider = createProvider(cache);
+
+        authenticate("Bearer good");
+        authenticate("Bearer bad");
+
+        cache.time += 500;
+        authenticate("Bearer good");
+        authenticate("Bearer bad");
+        // The rejected token has expired, the accepted one hasn't
+        assertEquals(3, handler.requests.size());
+
+        cache.time += 1000;
+        authenticate("Bearer good");
+        assertEquals(4, handler.requests.size());
+    }
+
+    @Test
+    public void testMaxEntries() throws Exception {
+        TokenVerificationCache cache = new TokenVerificationCache(60000, 60000, 2);
+
+        cache.put("a", true);
+        cache.put("b", true);
+        cache.get("a");
+        cache.put("c", false);
+
+        // The least recently used token is removed
+        assertEquals(2, cache.size());
+        assertEquals(Boolean.TRUE, cache.get("a"));
+        assertEquals(null, cache.get("b"));
+        assertEquals(Boolean.FALSE, cache.get("c"));
+    }
+
+    @Test
+    public void testConnectionReused() throws Exception {
+        provider = createProvider(null);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(AuthStatus.SUCCESS, authenticate("Bearer good").getStatus());
+        }
+
+        // Every request is verified without a cache, over the same kept alive connection
+        assertEquals(5, handler.requests.size());
+        assertEquals(1, new HashSet<Integer>(handler.remotePorts).size());
+    }
+
+    private OAuth2AuthenticatorProvider createProvider(TokenVerificationCache cache) {
+        return new OAuth2AuthenticatorProvider(connector, properties, cache) {
+            @Override
+            HttpConfiguration getHttpConfiguration() {
+                // Only plain HTTP is needed to reach the test server
+                return new DefaultHttpConfiguration() {
+                    @Override
+                    public void configureSocketFactoryRegistry(ConnectorPluginProperties properties, RegistryBuilder<ConnectionSocketFactory> registry) {}
+                };
+            }
+        };
+    }
+
+    private AuthenticationResultBase authenticate(String authorization) throws Exception {
+        Map<String, List<String>> headers = new HashMap<String, List<String>>();
+        headers.put("Authorization", Collections.singletonList(authorization));
+        RequestInfo request = new RequestInfo("127.0.0.1", 12345, "127.0.0.1", 8080, "HTTP/1.1", "GET", "/", headers, new HashMap<String, List<String>>(), null);
+
+        return provider.getAuthenticator().authenticate(request);
+    }
+
+    private static class TestCache extends TokenVerificationCache {
+
+        private long time;
+
+        public TestCache(long ttl, long negativeTtl, int maxEntries) {
+            super(ttl, negativeTtl, maxEntries);
+        }
+
+        @Override
+        long currentTimeMillis() {
+            return time;
+        }
+    }
+
+    private static class VerificationHandler extends AbstractHandler {
+
+        private List<String> requests = Collections.synchronizedList(new ArrayList<String>());
+        private Set<Integer> remotePorts = Collections.synchronizedSet(new HashSet<Integer>());
+
+        @Override
+        public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException {
+            String authorization = request.getHeader("Authorization");
+            requests.add(authorization);
+            remotePorts.add(request.getRemotePort());
+
+            if ("Bearer good".equals(authorization)) {
+                response.setStatus(HttpServletResponse.SC_OK);
+                response.getWriter().write("{\"active\":true}");
+            } else if ("Bearer error".equals(authorization)) {
+                response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            } else {
+                response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+            }
+
+            baseRequest.setHandled(true);
+        }
+    }
+}
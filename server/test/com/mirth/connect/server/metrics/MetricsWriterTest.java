@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.server.metrics;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class MetricsWriterTest {
+
+    @Test
+    public void testFamily() {
+        StringBuilder builder = new StringBuilder();
+        MetricsWriter writer = new MetricsWriter(builder);
+
+        writer.family("test_total", MetricsWriter.COUNTER, "A \"test\" counter\\with\nlines.");
+        writer.sample("test_total", 5);
+
+        assertEquals("# HELP test_total A \"test\" counter\\\\with\\nlines.\n# TYPE test_total counter\ntest_total 5\n", builder.toString());
+    }
+
+    @Test
+    public void testLabels() {
+        StringBuilder builder = new StringBuilder();
+        MetricsWriter writer = new MetricsWriter(builder);
+
+        writer.sample("test", 1, "channel_name", "My \"Channel\"\\1\n", "status", "sent");
+
+        assertEquals("test{channel_name=\"My \\\"Channel\\\"\\\\1\\n\",status=\"sent\"} 1\n", builder.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnpairedLabels() {
+        new MetricsWriter(new StringBuilder()).sample("test", 1, "channel_name");
+    }
+
+    @Test
+    public void testValues() {
+        StringBuilder builder = new StringBuilder();
+        MetricsWriter writer = new MetricsWriter(builder);
+
+        writer.sample("a", 0);
+        writer.sample("b", -3);
+        writer.sample("c", 1234567890123L);
+        writer.sample("d", 0.25);
+        writer.sample("e", Double.NaN);
+        writer.sample("f", Double.POSITIVE_INFINITY);
+        writer.sample("g", Double.NEGATIVE_INFINITY);
+        writer.sample("h", 1e20);
+
+        assertEquals("a 0\nb -3\nc 1234567890123\nd 0.25\ne NaN\nf +Inf\ng -Inf\nh 1.0E20\n", builder.toString());
+    }
+
+    @Test
+    public void testFailingCollector() {
+        MetricsRegistry registry = new MetricsRegistry();
+
+        registry.register(new MetricsCollector() {
+            @Override
+            public void collect(MetricsWriter writer) {
+                writer.family("first", MetricsWriter.GAUGE, "First.");
+                writer.sample("first", 1);
+            }
+        });
+
+        registry.register(new MetricsCollector() {
+            @Override
+            public void collect(MetricsWriter writer) {
+                writer.family("broken", MetricsWriter.GAUGE, "Broken.");
+                throw new IllegalStateException();
+            }
+        });
+
+        MetricsCollector last = new MetricsCollector() {
+            @Override
+            public void collect(MetricsWriter writer) {
+                writer.family("last", MetricsWriter.GAUGE, "Last.");
+                writer.sample("last", 2);
+            }
+        };
+        registry.register(last);
+
+        // The broken collector's partial output is left out entirely
+        assertEquals("# HELP first First.\n# TYPE first gauge\nfirst 1\n# HELP last Last.\n# TYPE last gauge\nlast 2\n", registry.collect());
+
+        registry.unregister(last);
+        assertEquals("# HELP first First.\n# TYPE first gauge\nfirst 1\n", registry.collect());
+    }
+}
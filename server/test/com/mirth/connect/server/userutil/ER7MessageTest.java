@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.server.userutil;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import com.mirth.connect.plugins.datatypes.hl7v2.HL7v2ACKGenerator;
+
+public class ER7MessageTest {
+
+    private static final String MESSAGE = "MSH|^~\\&|SENDAPP^SENDNS|SENDFAC|RECAPP|RECFAC|20240101120000||ADT^A01^ADT_A01|MSG00001|P^T|2.5|||AL\r" + "PID|1||1234^^^MRN~5678^^^SSN||DOE^JOHN^Q&R||19700101|M\r" + "OBX|1|ST|CODE1||first\r" + "OBX|2|ST|CODE2||second\r";
+
+    @Test
+    public void testHeaderFields() {
+        ER7Message message = new ER7Message(MESSAGE);
+
+        assertEquals(MESSAGE.substring(0, MESSAGE.indexOf('\r')), message.get("MSH"));
+        assertEquals("|", message.get("MSH.1"));
+        assertEquals("^~\\&", message.get("MSH.2"));
+        assertEquals("SENDAPP^SENDNS", message.get("MSH.3"));
+        assertEquals("SENDAPP", message.get("MSH.3.1"));
+        assertEquals("SENDNS", message.get("MSH.3.2"));
+        assertEquals("A01", message.get("MSH.9.2"));
+        assertEquals("MSG00001", message.get("MSH.10.1"));
+        assertEquals("T", message.get("MSH.11.2"));
+        assertEquals("AL", message.get("MSH.15.1"));
+        assertEquals("", message.get("MSH.16"));
+    }
+
+    @Test
+    public void testFieldsAndRepetitions() {
+        ER7Message message = new ER7Message(MESSAGE);
+
+        assertEquals("1234", message.get("PID.3.1"));
+        assertEquals("1234", message.get("PID-3-1"));
+        assertEquals("5678", message.get("PID.3[2].1"));
+        assertEquals("SSN", message.get("PID.3[2].4"));
+        assertEquals("", message.get("PID.3[3].1"));
+        assertEquals("Q&R", message.get("PID.5.3"));
+        assertEquals("R", message.get("PID.5.3.2"));
+        assertEquals("DOE^JOHN^Q&R", message.get("PID.5"));
+        assertEquals("", message.get("PID.5.4"));
+        assertEquals("", message.get("PID.2"));
+        assertEquals("", message.get("PID.20"));
+        assertEquals("PID|1||1234^^^MRN~5678^^^SSN||DOE^JOHN^Q&R||19700101|M", message.get("PID"));
+    }
+
+    @Test
+    public void testSegmentRepetitions() {
+        ER7Message message = new ER7Message(MESSAGE);
+
+        assertEquals("first", message.get("OBX.5"));
+        assertEquals("second", message.get("OBX[2].5"));
+        assertEquals("", message.get("OBX[3].5"));
+        assertEquals("", message.get("NK1.1"));
+        assertTrue(message.hasSegment("OBX"));
+        assertFalse(message.hasSegment("OB"));
+        assertEquals(2, message.getSegmentCount("OBX"));
+        assertEquals(4, message.getSegmentCount());
+        assertArrayEquals(new String[] { "MSH", "PID", "OBX", "OBX" }, message.getSegmentNames());
+    }
+
+    @Test
+    public void testCustomDelimiters() {
+        ER7Message message = new ER7Message("MSH#*@!%#APP*NS#FAC\nPID#1##A*B@C*D%E\n\n", null);
+
+        assertEquals('#', message.getFieldSeparator());
+        assertEquals('*', message.getComponentSeparator());
+        assertEquals('@', message.getRepetitionSeparator());
+        assertEquals('!', message.getEscapeCharacter());
+        assertEquals('%', message.getSubcomponentSeparator());
+        assertEquals("NS", message.get("MSH.3.2"));
+        assertEquals("C", message.get("PID.3[2].1"));
+        assertEquals("E", message.get("PID.3[2].2.2"));
+        assertEquals(2, message.getSegmentCount());
+    }
+
+    @Test
+    public void testSegmentDelimiter() {
+        ER7Message message = new ER7Message("MSH|^~\\&|APP\nSTILLMSH|X\r\nPID|1", "\r\n");
+        assertEquals(2, message.getSegmentCount());
+        assertEquals("APP\nSTILLMSH", message.get("MSH.3"));
+        assertEquals("1", message.get("PID.1"));
+
+        message = new ER7Message("MSH|^~\\&|APP\r\nPID|1\rPV1|1");
+        assertEquals(3, message.getSegmentCount());
+        assertEquals("APP", message.get("MSH.3"));
+        assertEquals("1", message.get("PV1.1"));
+    }
+
+    @Test
+    public void testEmptyMessage() {
+        ER7Message message = new ER7Message("");
+        assertEquals(0, message.getSegmentCount());
+        assertEquals("", message.get("MSH.3"));
+        assertEquals('|', message.getFieldSeparator());
+    }
+
+    @Test
+    public void testInvalidPaths() {
+        ER7Message message = new ER7Message(MESSAGE);
+
+        for (String path : new String[] { null, "", "PID.x", "PID.1.2.3.4", "OBX[0].5", "OBX[2.5",
+                "PID.3[0]", ".1" }) {
+            try {
+                message.get(path);
+                fail("Expected an exception for path: " + path);
+            } catch (IllegalArgumentException e) {
+            }
+        }
+    }
+
+    @Test
+    public void testAckUsesHeaderFields() throws Exception {
+        String ack = HL7v2ACKGenerator.generateAckResponse(MESSAGE, false, "AA", "OK", "yyyyMMddHHmmss", null);
+        String[] fields = ack.substring(0, ack.indexOf('\r')).split("\\|", -1);
+
+        assertEquals("RECAPP", fields[2]);
+        assertEquals("RECFAC", fields[3]);
+        assertEquals("SENDAPP", fields[4]);
+        assertEquals("SENDFAC", fields[5]);
+        assertEquals("ACK^A01^ACK", fields[8]);
+        assertEquals("P^T", fields[10]);
+        assertEquals("2.5", fields[11]);
+        assertTrue(ack.contains("\rMSA|AA|MSG00001|OK\r"));
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) Mirth Corporation. All rights reserved.
+ *
+ * http://www.mirthcorp.com
+ *
+ * The software in this package is published under the terms of the MPL license a copy of which has
+ * been included with this distribution in the LICENSE.txt file.
+ */
+
+package com.mirth.connect.server.userutil;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.mirth.connect.donkey.model.message.RawMessage;
+import com.mirth.connect.donkey.server.channel.ChannelException;
+import com.mirth.connect.donkey.server.channel.DispatchResult;
+import com.mirth.connect.server.controllers.ChannelController;
+import com.mirth.connect.server.controllers.ControllerFactory;
+import com.mirth.connect.server.controllers.EngineController;
+import com.mirth.connect.userutil.Response;
+import com.mirth.connect.userutil.Status;
+
+public class VMRouterTest {
+
+    private static final String CHANNEL_ID = "channelId";
+    private static final String CHANNEL_NAME = "Channel";
+
+    private EngineController engineController;
+    private ChannelController channelController;
+
+    @Before
+    public void setup() {
+        engineController = mock(EngineController.class);
+        channelController = mock(ChannelController.class);
+
+        com.mirth.connect.model.Channel channel = new com.mirth.connect.model.Channel();
+        channel.setId(CHANNEL_ID);
+        channel.setName(CHANNEL_NAME);
+        when(channelController.getDeployedChannelByName(CHANNEL_NAME)).thenReturn(channel);
+
+        final ControllerFactory controllerFactory = mock(ControllerFactory.class);
+        when(controllerFactory.createEngineController()).thenReturn(engineController);
+        when(controllerFactory.createChannelController()).thenReturn(channelController);
+
+        Injector injector = Guice.createInjector(new AbstractModule() {
+            @Override
+            protected void configure() {
+                requestStaticInjection(ControllerFactory.class);
+                bind(ControllerFactory.class).toInstance(controllerFactory);
+            }
+        });
+        injector.getInstance(ControllerFactory.class);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRouteMessagesDispatchesTogether() throws Exception {
+        List<DispatchResult> dispatchResults = new ArrayList<DispatchResult>();
+        dispatchResults.add(createDispatchResult("response 1"));
+        dispatchResults.add(createDispatchResult(null));
+        dispatchResults.add(createDispatchResult("response 3"));
+        when(engineController.dispatchRawMessages(eq(CHANNEL_ID), anyList(), eq(false), eq(true))).thenReturn(dispatchResults);
+
+        List<Response> responses = new VMRouter().routeMessages(CHANNEL_NAME, Arrays.asList("message 1", "message 2", new com.mirth.connect.server.userutil.RawMessage("message 3")));
+
+        // All messages are handed to the engine in a single call, in order
+        ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+        verify(engineController, times(1)).dispatchRawMessages(eq(CHANNEL_ID), captor.capture(), eq(false), eq(true));
+        verify(engineController, never()).dispatchRawMessage(anyString(), any(RawMessage.class), anyBoolean(), anyBoolean());
+
+        List<RawMessage> rawMessages = captor.getValue();
+        assertEquals(3, rawMessages.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals("message " + (i + 1), rawMessages.get(i).getRawData());
+        }
+
+        assertEquals(3, responses.size());
+        assertEquals(Status.SENT, responses.get(0).getStatus());
+        assertEquals("response 1", responses.get(0).getMessage());
+        assertNull(responses.get(1));
+        assertEquals("response 3", responses.get(2).getMessage());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRouteMessagesReportsErrorPerMessage() throws Exception {
+        List<DispatchResult> dispatchResults = new ArrayList<DispatchResult>();
+        dispatchResults.add(createDispatchResult("response 1"));
+        dispatchResults.add(new DispatchResult(new ChannelException(true)));
+        dispatchResults.add(createDispatchResult("response 3"));
+        when(engineController.dispatchRawMessages(eq(CHANNEL_ID), anyList(), eq(false), eq(true))).thenReturn(dispatchResults);
+
+        List<Response> responses = new VMRouter().routeMessagesByChannelId(CHANNEL_ID, Arrays.asList("message 1", "message 2", "message 3"));
+
+        // Only the message that failed is reported as an error, so the others aren't retried
+        assertEquals(3, responses.size());
+        assertEquals(Status.SENT, responses.get(0).getStatus());
+        assertEquals(Status.ERROR, responses.get(1).getStatus());
+        assertEquals(Status.SENT, responses.get(2).getStatus());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRouteMessagesDispatchFailure() throws Exception {
+        when(engineController.dispatchRawMessages(eq(CHANNEL_ID), anyList(), eq(false), eq(true))).thenThrow(new ChannelException(true));
+
+        List<Response> responses = new VMRouter().routeMessagesByChannelId(CHANNEL_ID, Arrays.asList("message 1", "message 2"));
+
+        assertEquals(2, responses.size());
+        for (Response response : responses) {
+            assertEquals(Status.ERROR, response.getStatus());
+        }
+    }
+
+    @Test
+    public void testRouteMessagesUnknownChannel() throws Exception {
+        List<Response> responses = new VMRouter().routeMessages("Unknown", Arrays.asList("message 1", "message 2"));
+
+        assertEquals(2, responses.size());
+        for (Response response : responses) {
+            assertEquals(Status.ERROR, response.getStatus());
+        }
+        verify(engineController, never()).dispatchRawMessages(anyString(), anyList(), anyBoolean(), anyBoolean());
+    }
+
+    private DispatchResult createDispatchResult(String response) {
+        DispatchResult dispatchResult = mock(DispatchResult.class);
+        if (response != null) {
+            when(dispatchResult.getSelectedResponse()).thenReturn(new com.mirth.connect.donkey.model.message.Response(com.mirth.connect.donkey.model.message.Status.SENT, response));
+        }
+        return dispatchResult;
+    }
+}